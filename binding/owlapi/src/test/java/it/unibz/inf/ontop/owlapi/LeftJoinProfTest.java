@@ -1,6 +1,7 @@
 package it.unibz.inf.ontop.owlapi;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMultiset;
 import it.unibz.inf.ontop.injection.OntopSQLOWLAPIConfiguration;
 import it.unibz.inf.ontop.answering.reformulation.ExecutableQuery;
 import it.unibz.inf.ontop.answering.reformulation.impl.SQLExecutableQuery;
@@ -254,7 +255,8 @@ public class LeftJoinProfTest {
         List<String> expectedValues = ImmutableList.of(
                 "Smith", "Poppins", "Depp"
         );
-        String sql = checkReturnedValuesAndReturnSql(query, expectedValues);
+        // SELECT DISTINCT without ORDER BY: the order is up to the DB
+        String sql = checkReturnedUnorderedValuesAndReturnSql(query, expectedValues);
 
         System.out.println("SQL Query: \n" + sql);
 
@@ -279,7 +281,8 @@ public class LeftJoinProfTest {
         List<String> expectedValues = ImmutableList.of(
                 "Smith", "Poppins", "Depp"
         );
-        String sql = checkReturnedValuesAndReturnSql(query, expectedValues);
+        // SELECT DISTINCT without ORDER BY: the order is up to the DB
+        String sql = checkReturnedUnorderedValuesAndReturnSql(query, expectedValues);
 
         System.out.println("SQL Query: \n" + sql);
 
@@ -422,6 +425,15 @@ public class LeftJoinProfTest {
     }
 
     private String checkReturnedValuesAndReturnSql(String query, List<String> expectedValues) throws Exception {
+        return checkReturnedValuesAndReturnSql(query, expectedValues, true);
+    }
+
+    private String checkReturnedUnorderedValuesAndReturnSql(String query, List<String> expectedValues) throws Exception {
+        return checkReturnedValuesAndReturnSql(query, expectedValues, false);
+    }
+
+    private String checkReturnedValuesAndReturnSql(String query, List<String> expectedValues, boolean isOrdered)
+            throws Exception {
 
         OntopOWLFactory factory = OntopOWLFactory.defaultFactory();
         OntopSQLOWLAPIConfiguration config = OntopSQLOWLAPIConfiguration.defaultBuilder()
@@ -462,7 +474,9 @@ public class LeftJoinProfTest {
             reasoner.dispose();
         }
         assertTrue(String.format("%s instead of \n %s", returnedValues.toString(), expectedValues.toString()),
-                returnedValues.equals(expectedValues));
+                isOrdered
+                        ? returnedValues.equals(expectedValues)
+                        : ImmutableMultiset.copyOf(returnedValues).equals(ImmutableMultiset.copyOf(expectedValues)));
         assertTrue(String.format("Wrong size: %d (expected %d)", i, expectedValues.size()), expectedValues.size() == i);
 
         return sql;
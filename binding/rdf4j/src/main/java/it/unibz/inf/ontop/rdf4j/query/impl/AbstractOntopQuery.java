@@ -20,6 +20,7 @@
 package it.unibz.inf.ontop.rdf4j.query.impl;
 
 import it.unibz.inf.ontop.answering.connection.OntopConnection;
+import it.unibz.inf.ontop.answering.connection.OntopStatement;
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Literal;
 import org.eclipse.rdf4j.model.Value;
@@ -31,6 +32,8 @@ import org.eclipse.rdf4j.query.impl.MapBindingSet;
 import org.eclipse.rdf4j.query.parser.ParsedQuery;
 import org.eclipse.rdf4j.query.parser.QueryParserUtil;
 
+import javax.annotation.Nullable;
+
 /**
  * TODO: get rid of the query string and keeps the bindings separated from the ParsedQuery
  */
@@ -109,6 +112,19 @@ public abstract class AbstractOntopQuery implements Query {
         this.queryTimeout = maxQueryTime;
     }
 
+    /**
+     * When an exception is already being thrown
+     */
+    protected static void closeQuietly(@Nullable OntopStatement stm) {
+        if (stm == null)
+            return;
+        try {
+            stm.close();
+        } catch (Exception e) {
+            // ignored
+        }
+    }
+
     //all code below is copy-pasted from org.eclipse.rdf4j.repository.sparql.query.SPARQLOperation
     protected String getQueryString() {
         if (bindings.size() == 0)
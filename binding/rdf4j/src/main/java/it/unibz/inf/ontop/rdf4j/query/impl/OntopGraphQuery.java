@@ -23,22 +23,17 @@ package it.unibz.inf.ontop.rdf4j.query.impl;
 import it.unibz.inf.ontop.answering.reformulation.input.GraphSPARQLQuery;
 import it.unibz.inf.ontop.answering.reformulation.input.RDF4JInputQueryFactory;
 import it.unibz.inf.ontop.answering.resultset.SimpleGraphResultSet;
-import it.unibz.inf.ontop.spec.ontology.Assertion;
 
-import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Map;
+import java.util.Collections;
 
 import it.unibz.inf.ontop.answering.connection.OntopConnection;
 import it.unibz.inf.ontop.answering.connection.OntopStatement;
 import it.unibz.inf.ontop.answering.reformulation.input.SPARQLQueryUtility;
-import it.unibz.inf.ontop.rdf4j.utils.RDF4JHelper;
+import org.eclipse.rdf4j.common.iteration.EmptyIteration;
 import org.eclipse.rdf4j.model.Statement;
 import org.eclipse.rdf4j.query.GraphQuery;
 import org.eclipse.rdf4j.query.GraphQueryResult;
 import org.eclipse.rdf4j.query.QueryEvaluationException;
-import org.eclipse.rdf4j.query.algebra.evaluation.iterator.CollectionIteration;
 import org.eclipse.rdf4j.query.impl.GraphQueryResultImpl;
 import org.eclipse.rdf4j.query.parser.ParsedQuery;
 import org.eclipse.rdf4j.rio.RDFHandler;
@@ -59,46 +54,39 @@ public class OntopGraphQuery extends AbstractOntopQuery implements GraphQuery {
 		this.inputQueryFactory = inputQueryFactory;
 	}
 
-	private Statement createStatement(Assertion assertion) {
-
-		Statement stm = RDF4JHelper.createStatement(assertion);
-		if (stm.getSubject()!=null && stm.getPredicate()!=null && stm.getObject()!=null)
-			return stm;
-		else 
-			return null;
-	}
-
+    /**
+     * Lazy result: the Ontop statement is closed with it.
+     */
     @Override
 	public GraphQueryResult evaluate() throws QueryEvaluationException {
 		ParsedQuery parsedQuery = getParsedQuery();
 		GraphSPARQLQuery query = isConstruct
 				? inputQueryFactory.createConstructQuery(getQueryString(), parsedQuery)
 				: inputQueryFactory.createDescribeQuery(getQueryString(), parsedQuery);
-		try (
-				OntopStatement stm = conn.createStatement();
-				SimpleGraphResultSet res = stm.execute(query)
-		){
-			
-			Map<String, String> namespaces = new HashMap<>();
-			List<Statement> results = new LinkedList<>();
-			if (res != null) {
-				while (res.hasNext()) {
-					Assertion as = res.next();
-					Statement st = createStatement(as);
-					if (st!=null)
-						results.add(st);
-				}
+		OntopStatement stm = null;
+		try {
+			stm = conn.createStatement();
+			if (this.queryTimeout > 0)
+				stm.setQueryTimeout(this.queryTimeout);
+
+			SimpleGraphResultSet res = stm.execute(query);
+			if (res == null) {
+				stm.close();
+				return new GraphQueryResultImpl(Collections.emptyMap(),
+						new EmptyIteration<Statement, QueryEvaluationException>());
 			}
-			
-			//return new GraphQueryResultImpl(namespaces, results.iterator());
-            return new GraphQueryResultImpl(namespaces, new CollectionIteration<>(results));
-			
+			return new OntopGraphQueryResult(res, stm);
+
 		} catch (Exception e) {
+			closeQuietly(stm);
 			throw new QueryEvaluationException(e);
 		}
 	}
 
-        @Override
+    /**
+     * Statements are pushed to the handler as soon as they are produced
+     */
+    @Override
 	public void evaluate(RDFHandler handler) throws QueryEvaluationException,
 			RDFHandlerException {
 		try(GraphQueryResult result =  evaluate()) {
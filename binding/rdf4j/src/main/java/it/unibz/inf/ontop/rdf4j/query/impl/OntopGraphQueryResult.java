@@ -0,0 +1,110 @@
+package it.unibz.inf.ontop.rdf4j.query.impl;
+
+import it.unibz.inf.ontop.answering.connection.OntopStatement;
+import it.unibz.inf.ontop.answering.resultset.SimpleGraphResultSet;
+import it.unibz.inf.ontop.rdf4j.utils.RDF4JHelper;
+import it.unibz.inf.ontop.spec.ontology.Assertion;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.query.GraphQueryResult;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Lazy: the RDF statements are produced on demand from the Ontop result set
+ * (and therefore from the JDBC cursor for CONSTRUCT queries).
+ *
+ * The Ontop statement is closed together with the result.
+ */
+public class OntopGraphQueryResult implements GraphQueryResult {
+
+	private final SimpleGraphResultSet res;
+	// Owned by the result
+	private final OntopStatement statement;
+
+	// Next statement (look-ahead), null if not yet computed
+	@Nullable
+	private Statement nextStatement;
+	private boolean isClosed;
+
+	public OntopGraphQueryResult(SimpleGraphResultSet res, OntopStatement statement) {
+		if (res == null)
+			throw new NullPointerException();
+		this.res = res;
+		this.statement = statement;
+		this.nextStatement = null;
+		this.isClosed = false;
+	}
+
+	@Override
+	public Map<String, String> getNamespaces() {
+		return Collections.emptyMap();
+	}
+
+	@Override
+	public boolean hasNext() throws QueryEvaluationException {
+		if (nextStatement != null)
+			return true;
+		if (isClosed)
+			return false;
+		try {
+			while (res.hasNext()) {
+				Statement st = createStatement(res.next());
+				if (st != null) {
+					nextStatement = st;
+					return true;
+				}
+			}
+		} catch (QueryEvaluationException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new QueryEvaluationException(e);
+		}
+		// Releases the DB resources as soon as possible
+		close();
+		return false;
+	}
+
+	@Override
+	public Statement next() throws QueryEvaluationException {
+		if (!hasNext())
+			throw new NoSuchElementException();
+		Statement st = nextStatement;
+		nextStatement = null;
+		return st;
+	}
+
+	private static Statement createStatement(Assertion assertion) {
+		Statement stm = RDF4JHelper.createStatement(assertion);
+		if (stm.getSubject()!=null && stm.getPredicate()!=null && stm.getObject()!=null)
+			return stm;
+		else
+			return null;
+	}
+
+	@Override
+	public void remove() throws QueryEvaluationException {
+		throw new QueryEvaluationException("The query result is read-only. Elements cannot be removed");
+	}
+
+	@Override
+	public void close() throws QueryEvaluationException {
+		if (isClosed)
+			return;
+		isClosed = true;
+		try {
+			res.close();
+		} catch (Exception e) {
+			throw new QueryEvaluationException(e);
+		} finally {
+			try {
+				statement.close();
+			} catch (Exception e) {
+				throw new QueryEvaluationException(e);
+			}
+		}
+	}
+}
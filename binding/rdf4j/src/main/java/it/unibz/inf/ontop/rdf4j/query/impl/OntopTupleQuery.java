@@ -50,7 +50,7 @@ public class OntopTupleQuery extends AbstractOntopQuery implements TupleQuery {
     @Override
 	public TupleQueryResult evaluate() throws QueryEvaluationException {
 		TupleResultSet res;
-		OntopStatement stm;
+		OntopStatement stm = null;
 		long start = System.currentTimeMillis();
 		try {
 			stm = conn.createStatement();
@@ -68,25 +68,33 @@ public class OntopTupleQuery extends AbstractOntopQuery implements TupleQuery {
 			}
 			
 			List<String> signature = res.getSignature();
-			return new OntopTupleQueryResult(res, signature);
+			// The statement is closed with the result
+			return new OntopTupleQueryResult(res, signature, stm);
 
 		} catch (QueryEvaluationException e) {
+			closeQuietly(stm);
 			throw e;
 		}
 		catch (Exception e) {
+			closeQuietly(stm);
 			throw new QueryEvaluationException(e);
 		}
 	}
 
+    /**
+     * Streams the solutions into the handler. The result is closed afterwards, even when the handler fails
+     * (e.g. when the client has disconnected).
+     */
     @Override
 	public void evaluate(TupleQueryResultHandler handler) 
 			throws QueryEvaluationException, TupleQueryResultHandlerException {
-		TupleQueryResult result = evaluate();
-		handler.startQueryResult(result.getBindingNames());
-		while (result.hasNext()) {
-			handler.handleSolution(result.next());
+		try (TupleQueryResult result = evaluate()) {
+			handler.startQueryResult(result.getBindingNames());
+			while (result.hasNext()) {
+				handler.handleSolution(result.next());
+			}
+			handler.endQueryResult();
 		}
-		handler.endQueryResult();
 	}
 
     @Override
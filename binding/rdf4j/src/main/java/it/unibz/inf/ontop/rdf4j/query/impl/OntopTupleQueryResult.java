@@ -21,6 +21,7 @@ package it.unibz.inf.ontop.rdf4j.query.impl;
  */
 
 
+import it.unibz.inf.ontop.answering.connection.OntopStatement;
 import it.unibz.inf.ontop.exception.OntopConnectionException;
 import it.unibz.inf.ontop.answering.resultset.OntopBindingSet;
 import it.unibz.inf.ontop.answering.resultset.TupleResultSet;
@@ -40,13 +41,19 @@ public class OntopTupleQueryResult implements TupleQueryResult {
 	TupleResultSet res;
 	List<String> signature;
 	Set<String> bindingNames;
-	
-	public OntopTupleQueryResult(TupleResultSet res, List<String> signature){
+	// Owned by the result
+	private final OntopStatement statement;
+
+	/**
+	 * The statement is closed together with the result
+	 */
+	public OntopTupleQueryResult(TupleResultSet res, List<String> signature, OntopStatement statement){
 		if(res == null)
 			throw new NullPointerException();
 		this.res = res;
 		this.signature = signature;
 		this.bindingNames = new HashSet<>(signature);
+		this.statement = statement;
 	}
 	
 	@Override
@@ -55,6 +62,12 @@ public class OntopTupleQueryResult implements TupleQueryResult {
 			res.close();
 		} catch (Exception e) {
 			throw new QueryEvaluationException(e);
+		} finally {
+			try {
+				statement.close();
+			} catch (Exception e) {
+				throw new QueryEvaluationException(e);
+			}
 		}
 	}
 
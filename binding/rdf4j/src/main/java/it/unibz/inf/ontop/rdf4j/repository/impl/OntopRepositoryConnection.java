@@ -21,16 +21,20 @@ package it.unibz.inf.ontop.rdf4j.repository.impl;
  */
 
 import it.unibz.inf.ontop.answering.connection.OntopConnection;
+import it.unibz.inf.ontop.answering.connection.OntopStatement;
+import it.unibz.inf.ontop.answering.reformulation.input.SelectQuery;
 import it.unibz.inf.ontop.answering.reformulation.input.RDF4JInputQueryFactory;
 import it.unibz.inf.ontop.exception.OntopConnectionException;
+import it.unibz.inf.ontop.exception.OntopQueryAnsweringException;
 import it.unibz.inf.ontop.rdf4j.query.impl.OntopBooleanQuery;
 import it.unibz.inf.ontop.rdf4j.query.impl.OntopGraphQuery;
 import it.unibz.inf.ontop.rdf4j.query.impl.OntopTupleQuery;
 import it.unibz.inf.ontop.rdf4j.repository.OntopRepository;
 import org.eclipse.rdf4j.IsolationLevel;
 import org.eclipse.rdf4j.IsolationLevels;
-import org.eclipse.rdf4j.common.iteration.CloseableIteration;
 import org.eclipse.rdf4j.common.iteration.CloseableIteratorIteration;
+import org.eclipse.rdf4j.common.iteration.EmptyIteration;
+import org.eclipse.rdf4j.common.iteration.ExceptionConvertingIteration;
 import org.eclipse.rdf4j.model.*;
 import org.eclipse.rdf4j.model.impl.NamespaceImpl;
 import org.eclipse.rdf4j.model.impl.ValueFactoryImpl;
@@ -235,6 +239,10 @@ public class OntopRepositoryConnection implements org.eclipse.rdf4j.repository.R
 		return this.repository;
 	}
 
+	/**
+	 * Lazy result: the statements are read from the DB cursor while iterating.
+	 * The RepositoryResult must be closed (for closing the underlying statement).
+	 */
 	@Override
     public RepositoryResult<Statement> getStatements(Resource subj, org.eclipse.rdf4j.model.IRI pred,
                                                      Value obj, boolean includeInferred, Resource... contexts)
@@ -242,44 +250,41 @@ public class OntopRepositoryConnection implements org.eclipse.rdf4j.repository.R
 		//Gets all statements with a specific subject, 
 		//predicate and/or object from the repository.
 		//The result is optionally restricted to the specified set of named contexts. 
-		
-		//construct query for it
-		StringBuilder queryString = new StringBuilder("CONSTRUCT {");
 
-		StringBuilder spo = subj == null ? new StringBuilder("?s ") : RenderUtils.toSPARQL(subj, new StringBuilder());
-
-		spo = pred == null ? spo.append( " ?p ") : RenderUtils.toSPARQL(pred, spo);
+		// No named graph
+		if (!isDefaultGraph(contexts))
+			return new RepositoryResult<>(new EmptyIteration<>());
 
-		spo = obj == null ? spo.append( " ?o ") : RenderUtils.toSPARQL(obj, spo);
+		//construct query for it
+		StringBuilder spo = renderTriplePattern(subj, pred, obj);
+		String queryString = "CONSTRUCT {" + spo + "} WHERE {" + spo + "}";
 
-		queryString.append(spo).append("} WHERE {").append(spo).append("}");
-		
 		//execute construct query
 		try {
-			List<Statement> list = new LinkedList<Statement>();
-			
-			if (contexts.length == 0 || (contexts.length > 0 && contexts[0] == null)) {
-					GraphQuery query = prepareGraphQuery(QueryLanguage.SPARQL,
-							queryString.toString());
-					GraphQueryResult result = query.evaluate();
-
-					// System.out.println("result: "+result.hasNext());
-					while (result.hasNext())
-						list.add(result.next());
-					// result.close();
-			}
-			CloseableIteration<Statement, RepositoryException> iter = new CloseableIteratorIteration<Statement, RepositoryException>(
-					list.iterator());
-			RepositoryResult<Statement> repoResult = new RepositoryResult<Statement>(iter);
-
-			return repoResult;
-		} catch (MalformedQueryException e) {
+			GraphQueryResult result = prepareGraphQuery(QueryLanguage.SPARQL, queryString).evaluate();
+			return new RepositoryResult<>(new ExceptionConvertingIteration<Statement, RepositoryException>(result) {
+				@Override
+				protected RepositoryException convert(Exception e) {
+					return (e instanceof RepositoryException)
+							? (RepositoryException) e
+							: new RepositoryException(e);
+				}
+			});
+		} catch (MalformedQueryException | QueryEvaluationException e) {
 			throw new RepositoryException(e);
+		}
+	}
 
-		} catch (QueryEvaluationException e) {
-			throw new RepositoryException(e);
+	private static StringBuilder renderTriplePattern(Resource subj, org.eclipse.rdf4j.model.IRI pred, Value obj) {
+		StringBuilder spo = subj == null ? new StringBuilder("?s ") : RenderUtils.toSPARQL(subj, new StringBuilder());
 
-		}
+		spo = pred == null ? spo.append( " ?p ") : RenderUtils.toSPARQL(pred, spo);
+
+		return obj == null ? spo.append( " ?o ") : RenderUtils.toSPARQL(obj, spo);
+	}
+
+	private static boolean isDefaultGraph(Resource... contexts) {
+		return contexts.length == 0 || contexts[0] == null;
 	}
 
 	@Override
@@ -297,21 +302,24 @@ public class OntopRepositoryConnection implements org.eclipse.rdf4j.repository.R
                 .getObject(), includeInferred, contexts);
 	}
 
+	/**
+	 * ASK query: only one row is requested from the DB (LIMIT 1)
+	 */
 	@Override
     public boolean hasStatement(Resource subj, org.eclipse.rdf4j.model.IRI pred, Value obj,
                                 boolean includeInferred, Resource... contexts) throws RepositoryException {
 		//Checks whether the repository contains statements with a specific subject, 
 		//predicate and/or object, optionally in the specified contexts. 
-		    RepositoryResult<Statement> stIter = getStatements(subj, pred,
-                     obj, includeInferred, contexts);
-             try {
-                 return stIter.hasNext();
-             } finally {
-                 stIter.close();
-             }
-         }
-
+		if (!isDefaultGraph(contexts))
+			return false;
 
+		String queryString = "ASK {" + renderTriplePattern(subj, pred, obj) + "}";
+		try {
+			return prepareBooleanQuery(QueryLanguage.SPARQL, queryString).evaluate();
+		} catch (MalformedQueryException | QueryEvaluationException e) {
+			throw new RepositoryException(e);
+		}
+	}
 
 	@Override
     public boolean isAutoCommit() throws RepositoryException {
@@ -541,10 +549,23 @@ public class OntopRepositoryConnection implements org.eclipse.rdf4j.repository.R
 		rdfParser.setParserConfig(config);
 	}
 
+	/**
+	 * Number of distinct statements, counted by the DB (SQL COUNT over the reformulated query)
+	 */
 	@Override
     public long size(Resource... contexts) throws RepositoryException {
 		//Returns the number of (explicit) statements that are in the specified contexts in this repository. 
-		return 0;
+		if (!isDefaultGraph(contexts))
+			return 0;
+
+		String queryString = "SELECT DISTINCT ?s ?p ?o WHERE { ?s ?p ?o }";
+		ParsedQuery parsedQuery = QueryParserUtil.parseQuery(QueryLanguage.SPARQL, queryString, null);
+		SelectQuery query = inputQueryFactory.createSelectQuery(queryString, parsedQuery);
+		try (OntopStatement statement = ontopConnection.createStatement()) {
+			return statement.getTupleCount(query);
+		} catch (OntopConnectionException | OntopQueryAnsweringException e) {
+			throw new RepositoryException(e);
+		}
 	}
 
 
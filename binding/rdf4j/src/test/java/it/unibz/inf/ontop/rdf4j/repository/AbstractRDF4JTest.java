@@ -69,6 +69,10 @@ public class AbstractRDF4JTest {
         SQL_CONNECTION.close();
     }
 
+    protected static RepositoryConnection getRepositoryConnection() {
+        return REPO_CONNECTION;
+    }
+
     protected int runQueryAndCount(String queryString) {
         TupleQuery query = REPO_CONNECTION.prepareTupleQuery(QueryLanguage.SPARQL, queryString);
 
@@ -0,0 +1,125 @@
+package it.unibz.inf.ontop.rdf4j.repository;
+
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.ImmutableMultiset;
+import com.google.common.collect.Multiset;
+import it.unibz.inf.ontop.injection.OntopMappingSettings;
+import it.unibz.inf.ontop.injection.OntopSQLOWLAPIConfiguration;
+import org.eclipse.rdf4j.query.QueryLanguage;
+import org.eclipse.rdf4j.query.TupleQueryResult;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the answers obtained with the lazily saturated mapping with the ones of the eager saturation
+ */
+public class LazyMappingSaturationTest {
+
+    private static final String URL = "jdbc:h2:mem:lazy_saturation";
+    private static final String USER = "sa";
+    private static final String PASSWORD = "";
+
+    private static final String OWL_FILE = "src/test/resources/lazysaturation/university.owl";
+    private static final String OBDA_FILE = "src/test/resources/lazysaturation/university.obda";
+    private static final String SQL_FILE = "src/test/resources/lazysaturation/university.sql";
+
+    private static final String PREFIX = "PREFIX : <http://example.org/university#>\n";
+
+    private static Connection SQL_CONNECTION;
+    private static RepositoryConnection EAGER_CONNECTION;
+    private static RepositoryConnection LAZY_CONNECTION;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        SQL_CONNECTION = DriverManager.getConnection(URL, USER, PASSWORD);
+        try (Statement st = SQL_CONNECTION.createStatement()) {
+            st.execute(new String(Files.readAllBytes(Paths.get(SQL_FILE))));
+        }
+
+        EAGER_CONNECTION = createConnection(false, 0);
+        // Some definitions are computed in the background
+        LAZY_CONNECTION = createConnection(true, 2);
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        EAGER_CONNECTION.close();
+        LAZY_CONNECTION.close();
+        SQL_CONNECTION.close();
+    }
+
+    private static RepositoryConnection createConnection(boolean isLazy, int warmUpSize) {
+        Properties properties = new Properties();
+        properties.setProperty(OntopMappingSettings.LAZY_MAPPING_SATURATION, Boolean.toString(isLazy));
+        properties.setProperty(OntopMappingSettings.MAPPING_SATURATION_WARM_UP_SIZE, Integer.toString(warmUpSize));
+
+        OntopSQLOWLAPIConfiguration config = OntopSQLOWLAPIConfiguration.defaultBuilder()
+                .ontologyFile(OWL_FILE)
+                .nativeOntopMappingFile(OBDA_FILE)
+                .jdbcUrl(URL)
+                .jdbcUser(USER)
+                .jdbcPassword(PASSWORD)
+                .properties(properties)
+                .enableTestMode()
+                .build();
+
+        OntopRepository repo = OntopRepository.defaultRepository(config);
+        repo.initialize();
+        return repo.getConnection();
+    }
+
+    @Test
+    public void testClasses() {
+        assertSameAnswers("SELECT DISTINCT ?x WHERE { ?x a :Person }", 5);
+        assertSameAnswers("SELECT DISTINCT ?x WHERE { ?x a :Professor }", 2);
+        assertSameAnswers("SELECT DISTINCT ?x WHERE { ?x a :Course }", 3);
+    }
+
+    @Test
+    public void testProperties() {
+        assertSameAnswers("SELECT ?x ?y WHERE { ?x :teaches ?y }", -1);
+        assertSameAnswers("SELECT ?x ?y WHERE { ?x :isTaughtBy ?y }", 2);
+        assertSameAnswers("SELECT ?x ?y WHERE { ?x :name ?y }", 5);
+    }
+
+    @Test
+    public void testUnknownPredicate() {
+        assertSameAnswers("SELECT DISTINCT ?x WHERE { ?x a :Building }", 0);
+    }
+
+    @Test
+    public void testAllTriples() {
+        assertSameAnswers("SELECT ?s ?p ?o WHERE { ?s ?p ?o }", -1);
+        assertSameAnswers("SELECT ?x ?c WHERE { ?x a ?c }", -1);
+    }
+
+    /**
+     * expectedCount: ignored if negative
+     */
+    private static void assertSameAnswers(String query, int expectedCount) {
+        Multiset<String> eagerAnswers = evaluate(EAGER_CONNECTION, PREFIX + query);
+        if (expectedCount >= 0)
+            assertEquals(expectedCount, eagerAnswers.size());
+        assertEquals(eagerAnswers, evaluate(LAZY_CONNECTION, PREFIX + query));
+    }
+
+    private static Multiset<String> evaluate(RepositoryConnection connection, String query) {
+        Multiset<String> answers = HashMultiset.create();
+        try (TupleQueryResult result = connection.prepareTupleQuery(QueryLanguage.SPARQL, query).evaluate()) {
+            while (result.hasNext())
+                answers.add(result.next().toString());
+        }
+        return ImmutableMultiset.copyOf(answers);
+    }
+}
@@ -0,0 +1,6 @@
+CREATE TABLE "professor" ("id" INT PRIMARY KEY, "name" VARCHAR(50));
+CREATE TABLE "student" ("id" INT PRIMARY KEY, "name" VARCHAR(50), "course" INT);
+CREATE TABLE "course" ("id" INT PRIMARY KEY, "title" VARCHAR(50), "lecturer" INT);
+INSERT INTO "professor" VALUES (1, 'Anna'), (2, 'Bruno');
+INSERT INTO "student" VALUES (10, 'Carla', 100), (11, 'Dario', 101), (12, 'Elena', NULL);
+INSERT INTO "course" VALUES (100, 'Logic', 1), (101, 'Databases', 2), (102, 'Ontologies', NULL);
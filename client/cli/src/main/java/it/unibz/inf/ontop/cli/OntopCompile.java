@@ -21,14 +21,87 @@ package it.unibz.inf.ontop.cli;
  */
 
 import com.github.rvesse.airline.annotations.Command;
+import com.github.rvesse.airline.annotations.Option;
+import com.github.rvesse.airline.annotations.OptionType;
+import com.github.rvesse.airline.annotations.help.BashCompletion;
+import com.github.rvesse.airline.annotations.restrictions.Required;
+import com.github.rvesse.airline.help.cli.bash.CompletionBehaviour;
+import it.unibz.inf.ontop.exception.OBDASpecificationException;
+import it.unibz.inf.ontop.injection.OntopMappingSQLSettings;
+import it.unibz.inf.ontop.injection.OntopSQLOWLAPIConfiguration;
 
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.util.Properties;
+
+/**
+ * Extracts the DB metadata once and stores it into a snapshot file.
+ *
+ * Other commands (and applications) can then re-use it by setting the property
+ * ontop.dbMetadataSnapshotFile to this file: as long as the database, the source queries of the mapping
+ * and the implicit constraints remain the same, the DB metadata is not extracted again.
+ * By default, the schema is also checked (see ontop.dbMetadataSnapshotRevalidation): by its last DDL timestamp
+ * when the DBMS provides it, otherwise by the fingerprint of the relations (columns and keys).
+ *
+ * Despite its name, this command only produces a DB metadata snapshot: the OBDA specification is not
+ * precompiled. The mapping is still parsed and saturated, and the ontology classified, when it is loaded.
+ */
 @Command(name = "compile",
-        description = "compile the ontology axioms into  mappings",
-        hidden = true)
-public class OntopCompile implements OntopCommand {
+        description = "Extract the DB metadata needed by the mapping into a metadata snapshot file " +
+                "(to be referred to by the property " + OntopMappingSQLSettings.DB_METADATA_SNAPSHOT_FILE + "). " +
+                "The mapping and the ontology are not precompiled")
+public class OntopCompile extends OntopMappingOntologyRelatedCommand {
+
+    @Option(type = OptionType.COMMAND, name = {"-o", "--output"},
+            title = "output", description = "snapshot file to be created (overwritten if it exists)")
+    @Required
+    @BashCompletion(behaviour = CompletionBehaviour.FILENAMES)
+    private String outputFile;
 
     @Override
     public void run() {
+        try {
+            // Forces a new extraction
+            Files.deleteIfExists(new File(outputFile).toPath());
+
+            Properties properties = new Properties();
+            try (Reader reader = new FileReader(propertiesFile)) {
+                properties.load(reader);
+            }
+            properties.setProperty(OntopMappingSQLSettings.DB_METADATA_SNAPSHOT_FILE, outputFile);
+
+            OntopSQLOWLAPIConfiguration.Builder<? extends OntopSQLOWLAPIConfiguration.Builder> builder =
+                    OntopSQLOWLAPIConfiguration.defaultBuilder()
+                            .properties(properties);
+
+            if (isR2rmlFile(mappingFile))
+                builder.r2rmlMappingFile(mappingFile);
+            else
+                builder.nativeOntopMappingFile(mappingFile);
+
+            if (owlFile != null)
+                builder.ontologyFile(owlFile);
+
+            long start = System.currentTimeMillis();
+            builder.build().loadSpecification();
+
+            if (!new File(outputFile).exists()) {
+                System.err.format("ERROR: The snapshot %s could not be written (see the logs)\n", outputFile);
+                System.exit(1);
+            }
+            System.out.format("DB metadata snapshot written to %s (%d ms)\n", outputFile,
+                    System.currentTimeMillis() - start);
 
+        } catch (IOException e) {
+            System.err.format("ERROR: %s\n", e.getMessage());
+            System.exit(1);
+        } catch (OBDASpecificationException e) {
+            System.err.format("ERROR: There is a problem loading the mapping file %s\n", mappingFile);
+            e.printStackTrace();
+            System.exit(1);
+        }
     }
 }
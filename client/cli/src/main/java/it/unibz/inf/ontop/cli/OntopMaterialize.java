@@ -32,15 +32,26 @@ import it.unibz.inf.ontop.injection.OntopSQLOWLAPIConfiguration.Builder;
 import it.unibz.inf.ontop.materialization.MaterializationParams;
 import it.unibz.inf.ontop.owlapi.OntopOWLAPIMaterializer;
 import it.unibz.inf.ontop.owlapi.resultset.MaterializedGraphOWLResultSet;
-import it.unibz.inf.ontop.spec.mapping.pp.SQLPPMapping;
+import it.unibz.inf.ontop.rdf4j.materialization.RDF4JMaterializer;
+import it.unibz.inf.ontop.utils.ImmutableCollectors;
 import org.apache.commons.rdf.api.RDF;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.query.GraphQueryResult;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFWriter;
+import org.eclipse.rdf4j.rio.Rio;
 import org.semanticweb.owlapi.apibinding.OWLManager;
 import org.semanticweb.owlapi.io.WriterDocumentTarget;
 import org.semanticweb.owlapi.model.*;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 
 @Command(name = "materialize",
@@ -65,10 +76,20 @@ public class OntopMaterialize extends OntopReasoningCommandBase {
     }
 
     private static final int TRIPLE_LIMIT_PER_FILE = 500000;
+    // bounds the number of file descriptors (and of buffers) when writing into separate files
+    private static final int MAX_OPEN_FILES = 64;
     private static final String RDF_XML = "rdfxml";
     private static final String OWL_XML = "owlxml";
     private static final String TURTLE = "turtle";
     private static final String N3 = "n3";
+    private static final String NTRIPLES = "ntriples";
+    private static final String NQUADS = "nquads";
+
+    private static final String NO_COMPRESSION = "none";
+    private static final String GZIP = "gzip";
+
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+    private static final long PROGRESS_REPORT_INTERVAL_MS = 10_000;
 
 
     @Option(type = OptionType.COMMAND, override = true, name = {"-o", "--output"},
@@ -78,9 +99,9 @@ public class OntopMaterialize extends OntopReasoningCommandBase {
 
     @Option(type = OptionType.COMMAND, name = {"-f", "--format"}, title = "outputFormat",
             description = "The format of the materialized ontology. " +
-                    //" Options: rdfxml, owlxml, turtle, n3. " +
-                    "Default: rdfxml")
-    @AllowedValues(allowedValues = {RDF_XML, OWL_XML, TURTLE, N3})
+                    //" Options: rdfxml, owlxml, turtle, n3, ntriples, nquads. " +
+                    "ntriples and nquads imply --stream-output. Default: rdfxml")
+    @AllowedValues(allowedValues = {RDF_XML, OWL_XML, TURTLE, N3, NTRIPLES, NQUADS})
     public String format = RDF_XML;
 
     @Option(type = OptionType.COMMAND, name = {"--separate-files"}, title = "output to separate files",
@@ -92,6 +113,20 @@ public class OntopMaterialize extends OntopReasoningCommandBase {
             description = "All the SQL results of one big query will be stored in memory. Not recommended. Default: false.")
     private boolean noStream = false;
 
+    @Option(type = OptionType.COMMAND, name = {"--stream-output"}, title = "write the triples as they are materialized",
+            description = "Writes the materialized triples as they arrive, with a constant memory usage. " +
+                    "Only the triples are written (not the ontology axioms). Not available for owlxml. Default: false.")
+    private boolean streamOutput = false;
+
+    @Option(type = OptionType.COMMAND, name = {"--compression"}, title = "compression",
+            description = "Compression of the output (only with --stream-output). Default: none")
+    @AllowedValues(allowedValues = {NO_COMPRESSION, GZIP})
+    private String compression = NO_COMPRESSION;
+
+    @Option(type = OptionType.COMMAND, name = {"--parallelism"}, title = "number of connections",
+            description = "Number of classes/properties materialized concurrently (one DB connection each). Default: 1.")
+    private int parallelism = 1;
+
     private boolean doStreamResults = true;
 
     public OntopMaterialize(){}
@@ -104,55 +139,71 @@ public class OntopMaterialize extends OntopReasoningCommandBase {
         if (noStream){
             doStreamResults = false;
         }
-        if(separate) {
+        if (streamOutput || format.equals(NTRIPLES) || format.equals(NQUADS)) {
+            if (separate)
+                runStreamingWithSeparateFiles();
+            else
+                runStreamingWithSingleFile();
+        }
+        else if(separate) {
             runWithSeparateFiles();
         } else {
             runWithSingleFile();
         }
     }
 
+    private MaterializationParams createMaterializationParams() {
+        return MaterializationParams.defaultBuilder()
+                .enableDBResultsStreaming(doStreamResults)
+                .parallelism(parallelism)
+                .build();
+    }
+
+    /**
+     * Writes the axioms of each class/property of the ontology into its own files
+     * (at most TRIPLE_LIMIT_PER_FILE axioms per file).
+     *
+     * The specification is loaded and the materialization performed only once. The axioms of the files
+     * being written are kept in memory (see OutputFiles).
+     */
     private void runWithSeparateFiles() {
         if (owlFile == null) {
             throw new NullPointerException("You have to specify an ontology file!");
         }
         try {
-
-            OntopSQLOWLAPIConfiguration configuration = createAndInitConfigurationBuilder()
-                    .ontologyFile(owlFile)
-                    .build();
-
-            OWLOntology ontology = configuration.loadProvidedInputOntology();
-
-            if (disableReasoning) {
-                /*
-                 * when reasoning is disabled, we extract only the declaration assertions for the vocabulary
-                 */
-                ontology = extractDeclarations(ontology.getOWLOntologyManager(), ontology);
-            }
-
+            String suffix = getOWLFileSuffix(format);
+            OWLOntology ontology = loadOntology();
             ImmutableMap<IRI, PredicateType> predicateMap = extractPredicates(ontology);
+            ImmutableSet<OWLDeclarationAxiom> declarations = ImmutableSet.copyOf(
+                    ontology.getAxioms(AxiomType.DECLARATION));
 
-            // Loads it only once
-            SQLPPMapping ppMapping = configuration.loadProvidedPPMapping();
-            OntopSQLOWLAPIConfiguration materializationConfig = OntopSQLOWLAPIConfiguration.defaultBuilder()
-                    .propertyFile(propertiesFile)
-                    // To avoid parsing it again and again
-                    .ppMapping(ppMapping)
+            OntopSQLOWLAPIConfiguration materializerConfiguration = createAndInitConfigurationBuilder()
                     .build();
+            RDF rdfFactory = materializerConfiguration.getInjector().getInstance(RDF.class);
 
-            RDF rdfFactory = configuration.getInjector().getInstance(RDF.class);
-
-            int i = 1;
-            int numPredicates = predicateMap.size();
-            for (Map.Entry<IRI, PredicateType> entry : predicateMap.entrySet()) {
-                IRI predicateIRI = entry.getKey();
-                System.err.println(String.format("Materializing %s (%d/%d)", predicateIRI, i, numPredicates));
-                serializePredicate(materializationConfig, predicateIRI, entry.getValue(), outputFile, format, ontology, rdfFactory);
-                i++;
+            OntopOWLAPIMaterializer materializer = OntopOWLAPIMaterializer.defaultMaterializer();
+            ThroughputReporter reporter = new ThroughputReporter();
+
+            try (OutputFiles<OntologyFile> files = new OutputFiles<>(getMaxOpenFiles(),
+                    (predicateName, fileCount) -> new OntologyFile(predicateName,
+                            getFileName(predicateName, predicateMap, fileCount, suffix), declarations,
+                            getDocumentFormat(format)));
+                 MaterializedGraphOWLResultSet graphResults = materializer.materialize(materializerConfiguration,
+                         getVocabulary(predicateMap, rdfFactory), createMaterializationParams())) {
+
+                while (graphResults.hasNext()) {
+                    OWLAxiom axiom = graphResults.next();
+                    String predicateName = getPredicateIRI(axiom).toString();
+                    OntologyFile file = files.get(predicateName);
+                    file.add(axiom);
+                    if (file.getAxiomCount() >= TRIPLE_LIMIT_PER_FILE)
+                        files.close(predicateName);
+                    reporter.increment();
+                }
+                System.err.println("VOCABULARY SIZE (NR of QUERIES): " + graphResults.getSelectedVocabulary().size());
             }
+            reporter.reportEnd();
 
-        } catch (OWLOntologyCreationException e) {
-            e.printStackTrace();
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -176,98 +227,56 @@ public class OntopMaterialize extends OntopReasoningCommandBase {
         return predicateMapBuilder.build();
     }
 
-    /**
-     * Serializes the A-box corresponding to a predicate into one or multiple file.
-     */
-    private void serializePredicate(OntopSQLOWLAPIConfiguration materializationConfig, IRI predicateIRI,
-                                    PredicateType predicateType,
-                                    String outputFile, String format, OWLOntology ontology, RDF rdfFactory) throws Exception {
-        final long startTime = System.currentTimeMillis();
-
-
-        System.err.println("Starts writing triples into files.");
-
-        int tripleCount = 0;
-        int fileCount = 0;
-
-        String outputDir = outputFile;
-
-        String filePrefix = Paths.get(outputDir, predicateIRI.toString().replaceAll("[^a-zA-Z0-9]", "_")
-                + predicateType.getCode() +"_" ).toString();
-        OntopOWLAPIMaterializer materializer = OntopOWLAPIMaterializer.defaultMaterializer();
-        MaterializationParams materializationParams = MaterializationParams.defaultBuilder()
-                .enableDBResultsStreaming(doStreamResults)
-                .build();
-
-
-        try (MaterializedGraphOWLResultSet graphResultSet = materializer.materialize(materializationConfig,
-                ImmutableSet.of(rdfFactory.createIRI(predicateIRI.toString())), materializationParams)) {
-
-            while (graphResultSet.hasNext()) {
-                tripleCount += serializeTripleBatch(ontology, graphResultSet, filePrefix, predicateIRI.toString(), fileCount, format);
-                fileCount++;
-            }
-
-            System.out.println("NR of TRIPLES: " + tripleCount);
-            System.out.println("VOCABULARY SIZE (NR of QUERIES): " + graphResultSet.getSelectedVocabulary().size());
-        }
-
-        final long endTime = System.currentTimeMillis();
-        final long time = endTime - startTime;
-        System.out.println("Elapsed time to materialize: " + time + " {ms}");
+    private static ImmutableSet<org.apache.commons.rdf.api.IRI> getVocabulary(
+            ImmutableMap<IRI, PredicateType> predicateMap, RDF rdfFactory) {
+        return predicateMap.keySet().stream()
+                .map(i -> rdfFactory.createIRI(i.toString()))
+                .collect(ImmutableCollectors.toSet());
     }
 
     /**
-     * Serializes a batch of triples corresponding to a predicate into one file.
-     * Upper bound: TRIPLE_LIMIT_PER_FILE.
-     *
+     * Class of a class assertion, property of a property assertion
      */
-    private int serializeTripleBatch(OWLOntology ontology, MaterializedGraphOWLResultSet iterator,
-                                     String filePrefix, String predicateName, int fileCount, String format) throws Exception {
-        String suffix;
+    private static IRI getPredicateIRI(OWLAxiom axiom) {
+        if (axiom instanceof OWLClassAssertionAxiom)
+            return ((OWLClassAssertionAxiom) axiom).getClassExpression().asOWLClass().getIRI();
+        if (axiom instanceof OWLObjectPropertyAssertionAxiom)
+            return ((OWLObjectPropertyAssertionAxiom) axiom).getProperty().getNamedProperty().getIRI();
+        if (axiom instanceof OWLDataPropertyAssertionAxiom)
+            return ((OWLDataPropertyAssertionAxiom) axiom).getProperty().asOWLDataProperty().getIRI();
+        if (axiom instanceof OWLAnnotationAssertionAxiom)
+            return ((OWLAnnotationAssertionAxiom) axiom).getProperty().getIRI();
+        throw new IllegalArgumentException("Unexpected materialized axiom: " + axiom);
+    }
 
+    private String getFileName(String predicateName, ImmutableMap<IRI, PredicateType> predicateMap, int fileCount,
+                               String suffix) {
+        PredicateType predicateType = predicateMap.get(IRI.create(predicateName));
+        return Paths.get(outputFile, predicateName.replaceAll("[^a-zA-Z0-9]", "_")
+                + (predicateType == null ? "" : predicateType.getCode()) + "_" + fileCount + suffix).toString();
+    }
+
+    private static String getOWLFileSuffix(String format) throws Exception {
         switch (format) {
             case RDF_XML:
-                suffix = ".rdf";
-                break;
+                return ".rdf";
             case OWL_XML:
-                suffix = ".owl";
-                break;
+                return ".owl";
             case TURTLE:
-                suffix = ".ttl";
-                break;
+                return ".ttl";
             case N3:
-                suffix = ".n3";
-                break;
+                return ".n3";
             default:
                 throw new Exception("Unknown format: " + format);
         }
-        String fileName = filePrefix + fileCount + suffix;
-
-        OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
-
-        // Main buffer
-        OWLOntology aBox = manager.createOntology(IRI.create(predicateName));
-
-        // Add the signatures
-        for (OWLDeclarationAxiom axiom : ontology.getAxioms(AxiomType.DECLARATION)) {
-            manager.addAxiom(aBox, axiom);
-        }
-
-        int tripleCount = 0;
-        while (iterator.hasNext() && (tripleCount < TRIPLE_LIMIT_PER_FILE )) {
-            manager.addAxiom(aBox, iterator.next());
-            tripleCount++;
-        }
-
-        //BufferedOutputStream output = new BufferedOutputStream(new FileOutputStream(outputPath.toFile()));
-        //BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(output, "UTF-8"));
-        BufferedWriter writer = new BufferedWriter(new FileWriter(fileName));
-        manager.saveOntology(aBox, getDocumentFormat(format), new WriterDocumentTarget(writer));
-
-        return tripleCount;
     }
 
+    /**
+     * The triples of at most parallelism classes/properties are materialized at the same time
+     */
+    private int getMaxOpenFiles() {
+        return Math.max(1, Math.min(MAX_OPEN_FILES, parallelism));
+    }
 
     public void runWithSingleFile() {
         BufferedOutputStream output = null;
@@ -283,43 +292,13 @@ public class OntopMaterialize extends OntopReasoningCommandBase {
             }
             writer = new BufferedWriter(new OutputStreamWriter(output, "UTF-8"));
 
-            Builder configBuilder = createAndInitConfigurationBuilder();
-
-            if (owlFile != null) {
-                configBuilder.ontologyFile(owlFile);
-            }
-
-            OntopSQLOWLAPIConfiguration initialConfiguration = configBuilder.build();
-            //OBDAModel obdaModel = initialConfiguration.loadSpecification();
-
-            OWLOntology ontology;
-            OntopSQLOWLAPIConfiguration materializerConfiguration;
-
-            if (owlFile != null) {
-            // Loading the OWL ontology from the file as with normal OWLReasoners
-                OWLOntology initialOntology = initialConfiguration.loadProvidedInputOntology();
-
-                if (disableReasoning) {
-                    ontology = extractDeclarations(initialOntology.getOWLOntologyManager(), initialOntology);
-                }
-                else {
-                    ontology = initialOntology;
-                }
-                materializerConfiguration = createAndInitConfigurationBuilder()
-                        .ontology(ontology)
-                        .build();
-
-            } else {
-                ontology = OWLManager.createOWLOntologyManager().createOntology();
-                materializerConfiguration = createAndInitConfigurationBuilder()
-                        .ontology(ontology)
-                        .build();
-            }
+            OWLOntology ontology = loadOntology();
+            OntopSQLOWLAPIConfiguration materializerConfiguration = createAndInitConfigurationBuilder()
+                    .ontology(ontology)
+                    .build();
 
             OntopOWLAPIMaterializer materializer = OntopOWLAPIMaterializer.defaultMaterializer();
-            MaterializationParams materializationParams = MaterializationParams.defaultBuilder()
-                    .enableDBResultsStreaming(doStreamResults)
-                    .build();
+            MaterializationParams materializationParams = createMaterializationParams();
 
 
             // OBDAModelSynchronizer.declarePredicates(ontology, obdaModel);
@@ -352,6 +331,315 @@ public class OntopMaterialize extends OntopReasoningCommandBase {
     }
 
 
+    /**
+     * Loads the OWL ontology from the file as with normal OWLReasoners (empty ontology if none is provided)
+     */
+    private OWLOntology loadOntology() throws OWLOntologyCreationException {
+        if (owlFile == null)
+            return OWLManager.createOWLOntologyManager().createOntology();
+
+        OWLOntology initialOntology = createAndInitConfigurationBuilder()
+                .ontologyFile(owlFile)
+                .build()
+                .loadProvidedInputOntology();
+
+        return disableReasoning
+                ? extractDeclarations(initialOntology.getOWLOntologyManager(), initialOntology)
+                : initialOntology;
+    }
+
+    /**
+     * Writes the triples into one file (or the standard output) as they are materialized.
+     */
+    private void runStreamingWithSingleFile() {
+        try {
+            RDFFormat rdfFormat = getRDFFormat(format);
+            OntopSQLOWLAPIConfiguration materializerConfiguration = createAndInitConfigurationBuilder()
+                    .ontology(loadOntology())
+                    .build();
+
+            RDF4JMaterializer materializer = RDF4JMaterializer.defaultMaterializer();
+            ThroughputReporter reporter = new ThroughputReporter();
+
+            try (GraphQueryResult graphResults = materializer.materialize(materializerConfiguration,
+                    createMaterializationParams()).evaluate();
+                 OutputStream output = openOutputStream(outputFile)) {
+
+                RDFWriter writer = Rio.createWriter(rdfFormat, output);
+                writer.startRDF();
+                while (graphResults.hasNext()) {
+                    writer.handleStatement(graphResults.next());
+                    reporter.increment();
+                }
+                writer.endRDF();
+            }
+            reporter.reportEnd();
+
+        } catch (Exception e) {
+            System.out.println("Error materializing ontology:");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Writes the triples of each class/property of the ontology into its own files, as they are materialized.
+     *
+     * The specification is loaded and the materialization performed only once. See OutputFiles for the files
+     * that remain open.
+     */
+    private void runStreamingWithSeparateFiles() {
+        if (owlFile == null) {
+            throw new NullPointerException("You have to specify an ontology file!");
+        }
+        try {
+            RDFFormat rdfFormat = getRDFFormat(format);
+            String suffix = getFileSuffix(rdfFormat);
+            OWLOntology ontology = loadOntology();
+            ImmutableMap<IRI, PredicateType> predicateMap = extractPredicates(ontology);
+
+            OntopSQLOWLAPIConfiguration materializerConfiguration = createAndInitConfigurationBuilder()
+                    .build();
+            RDF rdfFactory = materializerConfiguration.getInjector().getInstance(RDF.class);
+
+            RDF4JMaterializer materializer = RDF4JMaterializer.defaultMaterializer();
+            ThroughputReporter reporter = new ThroughputReporter();
+
+            try (OutputFiles<RDFFile> files = new OutputFiles<>(getMaxOpenFiles(),
+                    (predicateName, fileCount) -> new RDFFile(
+                            // Overwrites the files of previous runs
+                            openOutputStream(getFileName(predicateName, predicateMap, fileCount, suffix)),
+                            rdfFormat));
+                 GraphQueryResult graphResults = materializer.materialize(materializerConfiguration,
+                         getVocabulary(predicateMap, rdfFactory), createMaterializationParams()).evaluate()) {
+
+                while (graphResults.hasNext()) {
+                    Statement statement = graphResults.next();
+                    String predicateName = statement.getPredicate().equals(org.eclipse.rdf4j.model.vocabulary.RDF.TYPE)
+                            ? statement.getObject().stringValue()
+                            : statement.getPredicate().stringValue();
+                    files.get(predicateName).writer.handleStatement(statement);
+                    reporter.increment();
+                }
+            }
+            reporter.reportEnd();
+
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static RDFFormat getRDFFormat(String format) throws Exception {
+        switch (format) {
+            case RDF_XML:
+                return RDFFormat.RDFXML;
+            case TURTLE:
+                return RDFFormat.TURTLE;
+            case N3:
+                return RDFFormat.N3;
+            case NTRIPLES:
+                return RDFFormat.NTRIPLES;
+            case NQUADS:
+                return RDFFormat.NQUADS;
+            default:
+                throw new Exception("Format not supported when streaming the output: " + format);
+        }
+    }
+
+    private String getFileSuffix(RDFFormat rdfFormat) {
+        String suffix = "." + rdfFormat.getDefaultFileExtension();
+        return compression.equals(GZIP) ? suffix + ".gz" : suffix;
+    }
+
+    /**
+     * Buffered and possibly compressed. Closing it does not close the standard output.
+     */
+    private OutputStream openOutputStream(String fileName) throws IOException {
+        OutputStream output = (fileName == null)
+                ? new FilterOutputStream(System.out) {
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        out.write(b, off, len);
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        flush();
+                    }
+                }
+                : new FileOutputStream(fileName);
+
+        if (compression.equals(GZIP))
+            output = new GZIPOutputStream(output, OUTPUT_BUFFER_SIZE);
+        return new BufferedOutputStream(output, OUTPUT_BUFFER_SIZE);
+    }
+
+
+    /**
+     * Output files of the classes/properties, at most maxOpen of them being open at the same time.
+     *
+     * As the triples of a class/property may not be consecutive (e.g. parallel materialization),
+     * the least recently used file is closed when another one has to be opened. The next triples
+     * of its class/property then go into a new file (with the next number), so that each file remains
+     * a complete document.
+     */
+    private static final class OutputFiles<F extends Closeable> implements Closeable {
+        // in access order
+        private final LinkedHashMap<String, F> openFiles = new LinkedHashMap<>(16, 0.75f, true);
+        private final Map<String, Integer> fileCounts = new HashMap<>();
+        private final int maxOpen;
+        private final OutputFileFactory<F> factory;
+
+        OutputFiles(int maxOpen, OutputFileFactory<F> factory) {
+            this.maxOpen = maxOpen;
+            this.factory = factory;
+        }
+
+        F get(String predicateName) throws Exception {
+            F file = openFiles.get(predicateName);
+            if (file == null) {
+                if (openFiles.size() >= maxOpen) {
+                    Iterator<F> leastRecentlyUsed = openFiles.values().iterator();
+                    F evictedFile = leastRecentlyUsed.next();
+                    leastRecentlyUsed.remove();
+                    evictedFile.close();
+                }
+                int fileCount = fileCounts.merge(predicateName, 1, Integer::sum) - 1;
+                file = factory.create(predicateName, fileCount);
+                openFiles.put(predicateName, file);
+            }
+            return file;
+        }
+
+        /**
+         * The next triples of the class/property go into a new file
+         */
+        void close(String predicateName) throws IOException {
+            F file = openFiles.remove(predicateName);
+            if (file != null)
+                file.close();
+        }
+
+        /**
+         * Closes every file, even if some of them fail to close (their exceptions are suppressed by the first one)
+         */
+        @Override
+        public void close() throws IOException {
+            IOException failure = null;
+            for (F file : openFiles.values()) {
+                try {
+                    file.close();
+                } catch (IOException | RuntimeException e) {
+                    if (failure == null)
+                        failure = (e instanceof IOException) ? (IOException) e : new IOException(e);
+                    else
+                        failure.addSuppressed(e);
+                }
+            }
+            openFiles.clear();
+            if (failure != null)
+                throw failure;
+        }
+    }
+
+    @FunctionalInterface
+    private interface OutputFileFactory<F extends Closeable> {
+        F create(String predicateName, int fileCount) throws Exception;
+    }
+
+    /**
+     * RDF document written as the triples arrive
+     */
+    private static final class RDFFile implements Closeable {
+        private final OutputStream output;
+        private final RDFWriter writer;
+
+        RDFFile(OutputStream output, RDFFormat rdfFormat) {
+            this.output = output;
+            this.writer = Rio.createWriter(rdfFormat, output);
+            writer.startRDF();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                writer.endRDF();
+            } finally {
+                output.close();
+            }
+        }
+    }
+
+    /**
+     * Ontology (declarations and axioms) kept in memory and saved into its file when closed
+     */
+    private static final class OntologyFile implements Closeable {
+        private final String fileName;
+        private final OWLDocumentFormat documentFormat;
+        private final OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+        private final OWLOntology aBox;
+        private int axiomCount = 0;
+
+        OntologyFile(String predicateName, String fileName, ImmutableSet<OWLDeclarationAxiom> declarations,
+                     OWLDocumentFormat documentFormat) throws OWLOntologyCreationException {
+            this.fileName = fileName;
+            this.documentFormat = documentFormat;
+            this.aBox = manager.createOntology(IRI.create(predicateName));
+            manager.addAxioms(aBox, declarations);
+        }
+
+        void add(OWLAxiom axiom) {
+            manager.addAxiom(aBox, axiom);
+            axiomCount++;
+        }
+
+        int getAxiomCount() {
+            return axiomCount;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(fileName), StandardCharsets.UTF_8))) {
+                manager.saveOntology(aBox, documentFormat, new WriterDocumentTarget(writer));
+            } catch (OWLOntologyStorageException e) {
+                throw new IOException(e);
+            }
+        }
+    }
+
+    /**
+     * Reports the number of triples written and the throughput on the standard error
+     */
+    private static class ThroughputReporter {
+        private final long startTime = System.currentTimeMillis();
+        private long lastReportTime = startTime;
+        private long tripleCount = 0;
+
+        void increment() {
+            tripleCount++;
+            // Does not check the time for every triple
+            if ((tripleCount & 0xFFF) == 0) {
+                long now = System.currentTimeMillis();
+                if (now - lastReportTime >= PROGRESS_REPORT_INTERVAL_MS) {
+                    lastReportTime = now;
+                    report(now);
+                }
+            }
+        }
+
+        void reportEnd() {
+            long now = System.currentTimeMillis();
+            report(now);
+            System.err.println("Elapsed time to materialize: " + (now - startTime) + " {ms}");
+        }
+
+        private void report(long now) {
+            long elapsed = Math.max(1, now - startTime);
+            System.err.println(String.format("%d triples written (%d triples/s)", tripleCount,
+                    tripleCount * 1000 / elapsed));
+        }
+    }
+
     /**
      * Mapping file + connection info
      */
@@ -0,0 +1,47 @@
+package it.unibz.inf.ontop.cli;
+
+import it.unibz.inf.ontop.injection.OntopMappingSQLSettings;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.ExternalResource;
+
+import java.io.*;
+import java.util.Properties;
+
+import static org.junit.Assert.assertTrue;
+
+public class OntopCompileTest {
+
+    @ClassRule
+    public static ExternalResource h2Connection = new H2ExternalResourceForBookExample();
+
+    @Test
+    public void testOntopCompileAndReuseSnapshot() throws IOException {
+        File snapshotFile = new File("src/test/resources/output/exampleBooks.dbmetadata");
+        Ontop.main("compile",
+                "-m", "src/test/resources/books/exampleBooks.obda",
+                "-t", "src/test/resources/books/exampleBooks.owl",
+                "-p", "src/test/resources/books/exampleBooks.properties",
+                "-o", snapshotFile.getPath());
+        assertTrue(snapshotFile.length() > 0);
+
+        Properties properties = new Properties();
+        try (Reader reader = new FileReader("src/test/resources/books/exampleBooks.properties")) {
+            properties.load(reader);
+        }
+        properties.setProperty(OntopMappingSQLSettings.DB_METADATA_SNAPSHOT_FILE, snapshotFile.getPath());
+        File propertyFile = new File("src/test/resources/output/exampleBooks-snapshot.properties");
+        try (Writer writer = new FileWriter(propertyFile)) {
+            properties.store(writer, null);
+        }
+
+        File outputFile = new File("src/test/resources/output/exampleBooks-from-snapshot.nt");
+        Ontop.main("materialize",
+                "-m", "src/test/resources/books/exampleBooks.obda",
+                "-t", "src/test/resources/books/exampleBooks.owl",
+                "-p", propertyFile.getPath(),
+                "-f", "ntriples",
+                "-o", outputFile.getPath());
+        assertTrue(outputFile.length() > 0);
+    }
+}
@@ -1,9 +1,31 @@
 package it.unibz.inf.ontop.cli;
 
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.Rio;
 import org.junit.ClassRule;
 import org.junit.Test;
 import org.junit.rules.ExternalResource;
 
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
 public class OntopMaterializeTest {
 
     @ClassRule
@@ -94,6 +116,71 @@ public class OntopMaterializeTest {
         Ontop.main(argv);
     }
 
+    @Test
+    public void testOntopMaterializeStreamingNTriples() throws IOException {
+        String outputFile = "src/test/resources/output/exampleBooks.materialized.nt.gz";
+        String[] argv = {"materialize", "-m", "src/test/resources/books/exampleBooks.obda",
+                "-t", "src/test/resources/books/exampleBooks.owl",
+                "-p", "src/test/resources/books/exampleBooks.properties",
+                "-f", "ntriples", "--compression", "gzip", "--parallelism", "2",
+                "-o", outputFile
+        };
+        Ontop.main(argv);
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new FileInputStream(outputFile)), StandardCharsets.UTF_8))) {
+            assertTrue(reader.lines().count() > 0);
+        }
+    }
+
+    /**
+     * With several workers, the triples of a class/property are not consecutive:
+     * each file must nevertheless be one Turtle document, with the same triples as without parallelism
+     */
+    @Test
+    public void testOntopMaterializeStreamingSeparatefiles() throws IOException {
+        Map<String, Integer> expectedTripleCounts = materializeStreamingSeparateFiles(
+                "src/test/resources/output/streaming-separate-files-sequential", 1);
+        assertFalse(expectedTripleCounts.isEmpty());
+
+        Map<String, Integer> tripleCounts = materializeStreamingSeparateFiles(
+                "src/test/resources/output/streaming-separate-files", 3);
+        assertEquals(expectedTripleCounts, tripleCounts);
+    }
+
+    /**
+     * Returns the number of triples of each file
+     */
+    private static Map<String, Integer> materializeStreamingSeparateFiles(String outputDirectory, int parallelism)
+            throws IOException {
+        Path outputDir = Paths.get(outputDirectory);
+        if (Files.exists(outputDir)) {
+            try (Stream<Path> files = Files.list(outputDir)) {
+                for (Path file : files.collect(Collectors.toList()))
+                    Files.delete(file);
+            }
+        }
+        Files.createDirectories(outputDir);
+
+        Ontop.main("materialize", "-m", "src/test/resources/books/exampleBooks.obda",
+                "-t", "src/test/resources/books/exampleBooks.owl",
+                "-p", "src/test/resources/books/exampleBooks.properties",
+                "-f", "turtle", "--stream-output", "--parallelism", String.valueOf(parallelism),
+                "-o", outputDirectory, "--separate-files");
+
+        Map<String, Integer> tripleCounts = new HashMap<>();
+        try (Stream<Path> files = Files.list(outputDir)) {
+            for (Path file : files.collect(Collectors.toList())) {
+                try (InputStream input = new FileInputStream(file.toFile())) {
+                    Model model = Rio.parse(input, "", RDFFormat.TURTLE);
+                    assertFalse(file + " is empty", model.isEmpty());
+                    tripleCounts.put(file.getFileName().toString(), model.size());
+                }
+            }
+        }
+        return tripleCounts;
+    }
+
     @Test
     public void testOntopMaterializeSeparatefilesNoFormat (){
         String[] argv = {"materialize", "-m", "src/test/resources/books/exampleBooks.obda",
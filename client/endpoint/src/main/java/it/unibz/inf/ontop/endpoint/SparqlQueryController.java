@@ -8,9 +8,11 @@ import org.eclipse.rdf4j.query.GraphQuery;
 import org.eclipse.rdf4j.query.MalformedQueryException;
 import org.eclipse.rdf4j.query.Query;
 import org.eclipse.rdf4j.query.QueryLanguage;
+import org.eclipse.rdf4j.query.QueryResultHandlerException;
 import org.eclipse.rdf4j.query.TupleQuery;
 import org.eclipse.rdf4j.query.Update;
 import org.eclipse.rdf4j.query.resultio.BooleanQueryResultWriter;
+import org.eclipse.rdf4j.query.resultio.TupleQueryResultWriter;
 import org.eclipse.rdf4j.query.resultio.sparqljson.SPARQLBooleanJSONWriter;
 import org.eclipse.rdf4j.query.resultio.sparqljson.SPARQLResultsJSONWriter;
 import org.eclipse.rdf4j.query.resultio.sparqlxml.SPARQLBooleanXMLWriter;
@@ -22,20 +24,23 @@ import org.eclipse.rdf4j.repository.Repository;
 import org.eclipse.rdf4j.repository.RepositoryConnection;
 import org.eclipse.rdf4j.repository.RepositoryException;
 import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
+import org.eclipse.rdf4j.rio.RDFWriter;
 import org.eclipse.rdf4j.rio.rdfxml.RDFXMLWriter;
 import org.eclipse.rdf4j.rio.turtle.TurtleWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.server.ServerHttpResponse;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.ModelAndView;
 
 import javax.servlet.http.HttpServletRequest;
-import java.io.ByteArrayOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -46,6 +51,8 @@ import static org.springframework.http.MediaType.APPLICATION_FORM_URLENCODED_VAL
 @RestController
 public class SparqlQueryController {
 
+    private static final Logger log = LoggerFactory.getLogger(SparqlQueryController.class);
+
     private final Repository repository;
 
     @Autowired
@@ -80,127 +87,141 @@ public class SparqlQueryController {
     @RequestMapping(value = "/sparql",
             method = {RequestMethod.GET}
     )
-    @ResponseBody
-    public HttpEntity<String> query_get(
+    public void query_get(
             @RequestHeader(ACCEPT) String accept,
             @RequestParam(value = "query") String query,
             @RequestParam(value = "default-graph-uri", required = false) String[] defaultGraphUri,
-            @RequestParam(value = "named-graph-uri", required = false) String[] namedGraphUri) {
-        return execQuery(accept, query, defaultGraphUri, namedGraphUri);
+            @RequestParam(value = "named-graph-uri", required = false) String[] namedGraphUri,
+            HttpServletResponse response) throws IOException {
+        execQuery(accept, query, defaultGraphUri, namedGraphUri, response);
     }
 
     @RequestMapping(value = "/sparql",
             method = RequestMethod.POST,
             consumes = APPLICATION_FORM_URLENCODED_VALUE)
-    @ResponseBody
-    public HttpEntity<String> query_post_URL_encoded(
+    public void query_post_URL_encoded(
             @RequestHeader(ACCEPT) String accept,
             @RequestParam(value = "query") String query,
             @RequestParam(value = "default-graph-uri", required = false) String[] defaultGraphUri,
-            @RequestParam(value = "named-graph-uri", required = false) String[] namedGraphUri) {
-        return execQuery(accept, query, defaultGraphUri, namedGraphUri);
+            @RequestParam(value = "named-graph-uri", required = false) String[] namedGraphUri,
+            HttpServletResponse response) throws IOException {
+        execQuery(accept, query, defaultGraphUri, namedGraphUri, response);
     }
 
     @RequestMapping(value = "/sparql",
             method = RequestMethod.POST,
             consumes = "application/sparql-query")
-    @ResponseBody
-    public HttpEntity<String> query_post_directly(
+    public void query_post_directly(
             @RequestHeader(ACCEPT) String accept,
             @RequestBody String query,
             @RequestParam(value = "default-graph-uri", required = false) String[] defaultGraphUri,
-            @RequestParam(value = "named-graph-uri", required = false) String[] namedGraphUri) {
-        return execQuery(accept, query, defaultGraphUri, namedGraphUri);
+            @RequestParam(value = "named-graph-uri", required = false) String[] namedGraphUri,
+            HttpServletResponse response) throws IOException {
+        execQuery(accept, query, defaultGraphUri, namedGraphUri, response);
     }
 
-    private ResponseEntity<String> execQuery(String accept,
-                                             String query, String[] defaultGraphUri, String[] namedGraphUri) {
-
-        HttpHeaders headers = new HttpHeaders();
-        HttpStatus status = HttpStatus.OK;
-
-        RepositoryConnection connection = repository.getConnection();
-        Query q = connection.prepareQuery(QueryLanguage.SPARQL, query);
-        ByteArrayOutputStream bao = new ByteArrayOutputStream();
-        final String result;
-
-        if (q instanceof TupleQuery) {
-            TupleQuery selectQuery = (TupleQuery) q;
-
-            if ("*/*".equals(accept) || accept.contains("json")) {
-                headers.set(HttpHeaders.CONTENT_TYPE, "application/sparql-results+json");
-                selectQuery.evaluate(new SPARQLResultsJSONWriter(bao));
-                result = bao.toString();
-            } else if (accept.contains("xml")) {
-                headers.set(HttpHeaders.CONTENT_TYPE, "application/sparql-results+xml");
-                selectQuery.evaluate(new SPARQLResultsXMLWriter(bao));
-                result = bao.toString();
-            } else if (accept.contains("csv")) {
-                headers.set(HttpHeaders.CONTENT_TYPE, "text/sparql-results+csv");
-                selectQuery.evaluate(new SPARQLResultsCSVWriter(bao));
-                result = bao.toString();
-            } else if (accept.contains("tsv")) {
-                headers.set(HttpHeaders.CONTENT_TYPE, "text/sparql-results+tsv");
-                selectQuery.evaluate(new SPARQLResultsTSVWriter(bao));
-                result = bao.toString();
+    /**
+     * Results are streamed into the response (chunked transfer), as they are read from the DB.
+     * Writing blocks when the client does not consume them fast enough.
+     *
+     * When the client disconnects, the query result and its statement are closed.
+     */
+    private void execQuery(String accept, String query, String[] defaultGraphUri, String[] namedGraphUri,
+                           HttpServletResponse response) throws IOException {
+
+        try (RepositoryConnection connection = repository.getConnection()) {
+            Query q = connection.prepareQuery(QueryLanguage.SPARQL, query);
+
+            if (q instanceof TupleQuery) {
+                TupleQuery selectQuery = (TupleQuery) q;
+
+                if ("*/*".equals(accept) || accept.contains("json")) {
+                    response.setHeader(CONTENT_TYPE, "application/sparql-results+json");
+                    evaluate(selectQuery, new SPARQLResultsJSONWriter(response.getOutputStream()));
+                } else if (accept.contains("xml")) {
+                    response.setHeader(CONTENT_TYPE, "application/sparql-results+xml");
+                    evaluate(selectQuery, new SPARQLResultsXMLWriter(response.getOutputStream()));
+                } else if (accept.contains("csv")) {
+                    response.setHeader(CONTENT_TYPE, "text/sparql-results+csv");
+                    evaluate(selectQuery, new SPARQLResultsCSVWriter(response.getOutputStream()));
+                } else if (accept.contains("tsv")) {
+                    response.setHeader(CONTENT_TYPE, "text/sparql-results+tsv");
+                    evaluate(selectQuery, new SPARQLResultsTSVWriter(response.getOutputStream()));
+                } else {
+                    response.setStatus(HttpStatus.BAD_REQUEST.value());
+                    //throw new IllegalArgumentException("unsupported ACCEPT : " + accept);
+                }
+
+            } else if (q instanceof BooleanQuery) {
+                BooleanQuery askQuery = (BooleanQuery) q;
+
+                if ("*/*".equals(accept) || accept.contains("json")) {
+                    response.setHeader(CONTENT_TYPE, "application/sparql-results+json");
+                    BooleanQueryResultWriter writer = new SPARQLBooleanJSONWriter(response.getOutputStream());
+                    writer.handleBoolean(askQuery.evaluate());
+                } else if (accept.contains("xml")) {
+                    response.setHeader(CONTENT_TYPE, "application/sparql-results+xml");
+                    BooleanQueryResultWriter writer = new SPARQLBooleanXMLWriter(response.getOutputStream());
+                    writer.handleBoolean(askQuery.evaluate());
+                } else if (accept.contains("text")) {
+                    response.setHeader(CONTENT_TYPE, "text/boolean");
+                    BooleanQueryResultWriter writer = new BooleanTextWriter(response.getOutputStream());
+                    writer.handleBoolean(askQuery.evaluate());
+                } else {
+                    response.setStatus(HttpStatus.BAD_REQUEST.value());
+                    //throw new IllegalArgumentException("unsupported ACCEPT : " + accept);
+                }
+            } else if (q instanceof GraphQuery) {
+                GraphQuery graphQuery = (GraphQuery) q;
+                if ("*/*".equals(accept) || accept.contains("turtle")) {
+                    response.setHeader(CONTENT_TYPE, "text/turtle");
+                    evaluate(graphQuery, new TurtleWriter(response.getOutputStream()));
+                } else if (accept.contains("json")) {
+                    response.setHeader(CONTENT_TYPE, "application/json");
+                    evaluate(graphQuery, new org.eclipse.rdf4j.rio.rdfjson.RDFJSONWriter(response.getOutputStream(),
+                            RDFFormat.JSONLD));
+                } else if (accept.contains("xml")) {
+                    response.setHeader(CONTENT_TYPE, "application/rdf+xml");
+                    evaluate(graphQuery, new RDFXMLWriter(response.getOutputStream()));
+                } else {
+                    //throw new IllegalArgumentException("unsupported ACCEPT : " + accept);
+                    response.setStatus(HttpStatus.BAD_REQUEST.value());
+                }
+            } else if (q instanceof Update) {
+                //else if (q instanceof Update)
+                response.setStatus(HttpStatus.NOT_IMPLEMENTED.value());
             } else {
-                result = "";
-                status = HttpStatus.BAD_REQUEST;
-                //throw new IllegalArgumentException("unsupported ACCEPT : " + accept);
+                response.setStatus(HttpStatus.BAD_REQUEST.value());
             }
+        }
+    }
 
-        } else if (q instanceof BooleanQuery) {
-            BooleanQuery askQuery = (BooleanQuery) q;
-            boolean b = askQuery.evaluate();
-
-            if ("*/*".equals(accept) || accept.contains("json")) {
-                headers.set(HttpHeaders.CONTENT_TYPE, "application/sparql-results+json");
-                BooleanQueryResultWriter writer = new SPARQLBooleanJSONWriter(bao);
-                writer.handleBoolean(b);
-                result = bao.toString();
-            } else if (accept.contains("xml")) {
-                headers.set(HttpHeaders.CONTENT_TYPE, "application/sparql-results+xml");
-                BooleanQueryResultWriter writer = new SPARQLBooleanXMLWriter(bao);
-                writer.handleBoolean(b);
-                result = bao.toString();
-            } else if (accept.contains("text")) {
-                headers.set(HttpHeaders.CONTENT_TYPE, "text/boolean");
-                BooleanQueryResultWriter writer = new BooleanTextWriter(bao);
-                writer.handleBoolean(b);
-                result = bao.toString();
-            } else {
-                result = "";
-                status = HttpStatus.BAD_REQUEST;
-                //throw new IllegalArgumentException("unsupported ACCEPT : " + accept);
-            }
-        } else if (q instanceof GraphQuery) {
-            GraphQuery graphQuery = (GraphQuery) q;
-            if ("*/*".equals(accept) || accept.contains("turtle")) {
-                headers.set(HttpHeaders.CONTENT_TYPE, "text/turtle");
-                graphQuery.evaluate(new TurtleWriter(bao));
-                result = bao.toString();
-            } else if (accept.contains("json")) {
-                headers.set(HttpHeaders.CONTENT_TYPE, "application/json");
-                graphQuery.evaluate(new org.eclipse.rdf4j.rio.rdfjson.RDFJSONWriter(bao, RDFFormat.JSONLD));
-                result = bao.toString();
-            } else if (accept.contains("xml")) {
-                headers.set(HttpHeaders.CONTENT_TYPE, "application/rdf+xml");
-                graphQuery.evaluate(new RDFXMLWriter(bao));
-                result = bao.toString();
-            } else {
-                //throw new IllegalArgumentException("unsupported ACCEPT : " + accept);
-                result = "";
-                status = HttpStatus.BAD_REQUEST;
-            }
-        } else if (q instanceof Update) {
-            //else if (q instanceof Update)
-            result = "";
-            status = HttpStatus.NOT_IMPLEMENTED;
-        } else {
-            result = "";
-            status = HttpStatus.BAD_REQUEST;
+    /**
+     * The writer throws a QueryResultHandlerException when the client has disconnected.
+     * The result (and its statement) is then closed by the query.
+     */
+    private static void evaluate(TupleQuery selectQuery, TupleQueryResultWriter writer) {
+        try {
+            selectQuery.evaluate(writer);
+        } catch (QueryResultHandlerException e) {
+            handleWritingException(e);
+        }
+    }
+
+    private static void evaluate(GraphQuery graphQuery, RDFWriter writer) {
+        try {
+            graphQuery.evaluate(writer);
+        } catch (RDFHandlerException e) {
+            handleWritingException(e);
+        }
+    }
+
+    private static void handleWritingException(RuntimeException e) {
+        if (e.getCause() instanceof IOException) {
+            log.debug("The client has disconnected: {}", e.getCause().getMessage());
         }
-        return new ResponseEntity<>(result, headers, status);
+        else
+            throw e;
     }
 
 
@@ -13,6 +13,7 @@ import it.unibz.inf.ontop.model.type.TypeFactory;
 import it.unibz.inf.ontop.utils.ImmutableCollectors;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.IntStream;
 
 
@@ -158,7 +159,7 @@ public class DatalogFactoryImpl implements DatalogFactory {
     @Override
     public CQIE getFreshCQIECopy(CQIE rule) {
 
-        int suff = ++suffix;
+        int suff = suffix.incrementAndGet();
 
         // This method doesn't support nested functional terms
         CQIE freshRule = rule.clone();
@@ -182,7 +183,7 @@ public class DatalogFactoryImpl implements DatalogFactory {
         return freshRule;
     }
 
-    private int suffix = 0;
+    private final AtomicInteger suffix = new AtomicInteger(0);
 
     private Term getFreshTerm(Term term, int suff) {
         Term newTerm;
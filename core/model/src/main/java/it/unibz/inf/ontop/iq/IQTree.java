@@ -82,6 +82,14 @@ public interface IQTree {
 
     boolean isEquivalentTo(IQTree tree);
 
+    /**
+     * Hash code consistent with isEquivalentTo(...): equivalent trees have the same structural hash code.
+     *
+     * Computed from the structural hash codes of the root node and of the children.
+     * Composite trees compute it only once.
+     */
+    int getStructuralHashCode();
+
     /**
      * TODO: explain
      *
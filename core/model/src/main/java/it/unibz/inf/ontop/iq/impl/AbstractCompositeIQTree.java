@@ -33,6 +33,17 @@ public abstract class AbstractCompositeIQTree<N extends QueryNode> implements Co
     @Nullable
     private ImmutableSet<Variable> knownVariables;
 
+    /**
+     * LAZY
+     */
+    @Nullable
+    private ImmutableSet<Variable> variables;
+
+    /**
+     * LAZY (0 if not computed yet)
+     */
+    private int structuralHashCode;
+
     // Non final
     private boolean hasBeenSuccessfullyValidate;
 
@@ -51,6 +62,8 @@ public abstract class AbstractCompositeIQTree<N extends QueryNode> implements Co
         this.iqProperties = iqProperties;
         // To be computed on-demand
         knownVariables = null;
+        variables = null;
+        structuralHashCode = 0;
         hasBeenSuccessfullyValidate = false;
     }
 
@@ -68,10 +81,11 @@ public abstract class AbstractCompositeIQTree<N extends QueryNode> implements Co
     public ImmutableSet<Variable> getVariables() {
         if (rootNode instanceof ExplicitVariableProjectionNode)
             return ((ExplicitVariableProjectionNode) rootNode).getVariables();
-        else
-            return children.stream()
+        if (variables == null)
+            variables = children.stream()
                     .flatMap(c -> c.getVariables().stream())
                     .collect(ImmutableCollectors.toSet());
+        return variables;
     }
 
     @Override
@@ -87,19 +101,22 @@ public abstract class AbstractCompositeIQTree<N extends QueryNode> implements Co
 
     @Override
     public String toString() {
-        return printSubtree(this, "");
+        StringBuilder builder = new StringBuilder();
+        printSubtree(this, "", builder);
+        return builder.toString();
     }
 
     /**
      * Recursive
      */
-    private static String printSubtree(IQTree subTree, String offset) {
+    private static void printSubtree(IQTree subTree, String offset, StringBuilder builder) {
         String childOffset = offset + TAB_STR;
 
-        return offset + subTree.getRootNode() + "\n"
-                + subTree.getChildren().stream()
-                    .map(c -> printSubtree(c, childOffset))
-                    .reduce("", (c, a) -> c + a);
+        builder.append(offset)
+                .append(subTree.getRootNode())
+                .append("\n");
+        subTree.getChildren()
+                .forEach(c -> printSubtree(c, childOffset, builder));
     }
 
     @Override
@@ -110,11 +127,33 @@ public abstract class AbstractCompositeIQTree<N extends QueryNode> implements Co
 
     @Override
     public int hashCode() {
-        return toString().hashCode();
+        return getStructuralHashCode();
+    }
+
+    /**
+     * Computed once from the structural hash codes of the root node and of the children
+     */
+    @Override
+    public int getStructuralHashCode() {
+        if (structuralHashCode == 0) {
+            int hashCode = rootNode.getStructuralHashCode();
+            for (IQTree child : children)
+                hashCode = 31 * hashCode + child.getStructuralHashCode();
+            structuralHashCode = hashCode;
+        }
+        return structuralHashCode;
     }
 
+    /**
+     * Cheap rejection of most non-equivalent trees by comparing their (cached) structural hash codes
+     */
     @Override
     public boolean isEquivalentTo(IQTree tree) {
+        if (this == tree)
+            return true;
+        if (getStructuralHashCode() != tree.getStructuralHashCode())
+            return false;
+
         if (!getRootNode().isEquivalentTo(tree.getRootNode()))
             return false;
 
@@ -103,4 +103,11 @@ public interface QueryNode extends Cloneable {
      * Is syntactically equivalent
      */
     boolean isEquivalentTo(QueryNode queryNode);
+
+    /**
+     * Hash code consistent with isEquivalentTo(...).
+     *
+     * NB: hashCode() is identity-based, as query nodes are identified by reference in an intermediate query.
+     */
+    int getStructuralHashCode();
 }
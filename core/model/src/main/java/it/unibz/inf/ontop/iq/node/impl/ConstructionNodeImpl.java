@@ -34,6 +34,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -518,6 +519,11 @@ public class ConstructionNodeImpl extends CompositeQueryNodeImpl implements Cons
                 && substitution.equals(node.getSubstitution());
     }
 
+    @Override
+    public int getStructuralHashCode() {
+        return Objects.hash(CONSTRUCTION_NODE_STR, projectedVariables, substitution);
+    }
+
     @Override
     public void acceptVisitor(QueryNodeVisitor visitor) {
         visitor.visit(this);
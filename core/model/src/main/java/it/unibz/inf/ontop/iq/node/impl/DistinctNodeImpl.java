@@ -178,6 +178,11 @@ public class DistinctNodeImpl extends QueryModifierNodeImpl implements DistinctN
         return queryNode instanceof DistinctNode;
     }
 
+    @Override
+    public int getStructuralHashCode() {
+        return DISTINCT_NODE_STR.hashCode();
+    }
+
     @Override
     public String toString() {
         return DISTINCT_NODE_STR;
@@ -16,6 +16,7 @@ import it.unibz.inf.ontop.iq.*;
 import it.unibz.inf.ontop.iq.transform.node.HeterogeneousQueryNodeTransformer;
 import it.unibz.inf.ontop.iq.transform.node.HomogeneousQueryNodeTransformer;
 
+import java.util.Objects;
 
 public class EmptyNodeImpl extends LeafIQTreeImpl implements EmptyNode {
 
@@ -136,4 +137,9 @@ public class EmptyNodeImpl extends LeafIQTreeImpl implements EmptyNode {
             return false;
         return projectedVariables.equals(((EmptyNode) queryNode).getVariables());
     }
+
+    @Override
+    public int getStructuralHashCode() {
+        return Objects.hash(EmptyNode.class.getSimpleName(), projectedVariables);
+    }
 }
@@ -22,6 +22,7 @@ import it.unibz.inf.ontop.model.term.VariableOrGroundTerm;
 import it.unibz.inf.ontop.utils.ImmutableCollectors;
 
 import javax.annotation.Nullable;
+import java.util.Objects;
 import java.util.stream.IntStream;
 
 /**
@@ -133,6 +134,11 @@ public class ExtensionalDataNodeImpl extends DataNodeImpl<RelationPredicate> imp
                 && getProjectionAtom().equals(((ExtensionalDataNode) queryNode).getProjectionAtom());
     }
 
+    @Override
+    public int getStructuralHashCode() {
+        return Objects.hash(EXTENSIONAL_NODE_STR, getProjectionAtom());
+    }
+
 
     @Override
     public String toString() {
@@ -26,6 +26,7 @@ import it.unibz.inf.ontop.substitution.impl.ImmutableUnificationTools;
 import it.unibz.inf.ontop.utils.ImmutableCollectors;
 import it.unibz.inf.ontop.utils.VariableGenerator;
 
+import java.util.Objects;
 import java.util.Optional;
 
 
@@ -156,6 +157,11 @@ public class FilterNodeImpl extends JoinOrFilterNodeImpl implements FilterNode {
                 && getFilterCondition().equals(((FilterNode) queryNode).getFilterCondition());
     }
 
+    @Override
+    public int getStructuralHashCode() {
+        return Objects.hash(FILTER_NODE_STR, getFilterCondition());
+    }
+
     @Override
     public String toString() {
         return FILTER_NODE_STR + getOptionalFilterString();
@@ -16,6 +16,8 @@ import it.unibz.inf.ontop.iq.*;
 import it.unibz.inf.ontop.iq.transform.node.HeterogeneousQueryNodeTransformer;
 import it.unibz.inf.ontop.iq.transform.node.HomogeneousQueryNodeTransformer;
 
+import java.util.Objects;
+
 
 public class IntensionalDataNodeImpl extends DataNodeImpl<AtomPredicate> implements IntensionalDataNode {
 
@@ -86,6 +88,11 @@ public class IntensionalDataNodeImpl extends DataNodeImpl<AtomPredicate> impleme
                 && getProjectionAtom().equals(((IntensionalDataNode) queryNode).getProjectionAtom());
     }
 
+    @Override
+    public int getStructuralHashCode() {
+        return Objects.hash(INTENSIONAL_DATA_NODE_STR, getProjectionAtom());
+    }
+
     @Override
     public NodeTransformationProposal acceptNodeTransformer(HeterogeneousQueryNodeTransformer transformer) {
         return transformer.transform(this);
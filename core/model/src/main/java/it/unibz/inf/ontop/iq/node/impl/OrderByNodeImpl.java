@@ -20,6 +20,7 @@ import it.unibz.inf.ontop.substitution.ImmutableSubstitution;
 import it.unibz.inf.ontop.utils.ImmutableCollectors;
 import it.unibz.inf.ontop.utils.VariableGenerator;
 
+import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Stream;
 
@@ -172,6 +173,11 @@ public class OrderByNodeImpl extends QueryModifierNodeImpl implements OrderByNod
                 && ((OrderByNode) queryNode).getComparators().equals(comparators);
     }
 
+    @Override
+    public int getStructuralHashCode() {
+        return Objects.hash(ORDER_BY_NODE_STR, comparators);
+    }
+
     @Override
     public OrderByNode clone() {
         return iqFactory.createOrderByNode(comparators);
@@ -20,6 +20,7 @@ import it.unibz.inf.ontop.substitution.ImmutableSubstitution;
 import it.unibz.inf.ontop.utils.VariableGenerator;
 
 import javax.annotation.Nullable;
+import java.util.Objects;
 import java.util.Optional;
 
 public class SliceNodeImpl extends QueryModifierNodeImpl implements SliceNode {
@@ -140,6 +141,11 @@ public class SliceNodeImpl extends QueryModifierNodeImpl implements SliceNode {
                 && ((SliceNode) queryNode).getLimit().equals(getLimit());
     }
 
+    @Override
+    public int getStructuralHashCode() {
+        return Objects.hash(SLICE_STR, offset, getLimit());
+    }
+
     @Override
     public ImmutableSet<Variable> getLocalVariables() {
         return ImmutableSet.of();
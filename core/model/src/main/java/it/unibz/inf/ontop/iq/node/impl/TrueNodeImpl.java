@@ -90,6 +90,11 @@ public class TrueNodeImpl extends LeafIQTreeImpl implements TrueNode {
         return (queryNode instanceof TrueNode);
     }
 
+    @Override
+    public int getStructuralHashCode() {
+        return TrueNode.class.getSimpleName().hashCode();
+    }
+
     @Override
     public ImmutableSet<Variable> getVariables() {
         return EMPTY_VARIABLE_SET;
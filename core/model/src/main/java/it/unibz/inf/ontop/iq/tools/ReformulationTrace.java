@@ -0,0 +1,159 @@
+package it.unibz.inf.ontop.iq.tools;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import it.unibz.inf.ontop.iq.IQ;
+import it.unibz.inf.ontop.iq.IQTree;
+import it.unibz.inf.ontop.iq.IntermediateQuery;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Trace of the reformulation of one query: for each phase, its duration,
+ * the number of nodes of the resulting query and the rendering of the latter.
+ *
+ * IQs being immutable, their nodes are only counted and rendered on demand.
+ * Intermediate queries being mutable, they are rendered when recorded.
+ *
+ * The disabled trace records nothing, so that the callers do not have to test it.
+ *
+ * Not thread-safe (one trace per query).
+ */
+public class ReformulationTrace {
+
+    private static final ReformulationTrace DISABLED_TRACE = new ReformulationTrace(false);
+
+    private final boolean isEnabled;
+    private final List<Phase> phases;
+
+    private ReformulationTrace(boolean isEnabled) {
+        this.isEnabled = isEnabled;
+        this.phases = new ArrayList<>();
+    }
+
+    public static ReformulationTrace create() {
+        return new ReformulationTrace(true);
+    }
+
+    public static ReformulationTrace disabled() {
+        return DISABLED_TRACE;
+    }
+
+    public boolean isEnabled() {
+        return isEnabled;
+    }
+
+    /**
+     * Duration in ms
+     */
+    public void recordPhase(String name, long duration) {
+        if (isEnabled)
+            phases.add(new Phase(name, duration, Optional.empty(), Optional.empty()));
+    }
+
+    public void recordPhase(String name, long duration, IQ result) {
+        if (isEnabled)
+            phases.add(new Phase(name, duration,
+                    Optional.of(Suppliers.memoize(() -> countNodes(result.getTree()))),
+                    Optional.of(Suppliers.memoize(result::toString))));
+    }
+
+    public void recordPhase(String name, long duration, IntermediateQuery result) {
+        if (isEnabled) {
+            int nodeCount = result.getNodesInTopDownOrder().size();
+            String rendering = result.toString();
+            phases.add(new Phase(name, duration, Optional.of(() -> nodeCount), Optional.of(() -> rendering)));
+        }
+    }
+
+    public ImmutableList<Phase> getPhases() {
+        return ImmutableList.copyOf(phases);
+    }
+
+    public long getTotalDuration() {
+        return phases.stream()
+                .mapToLong(Phase::getDuration)
+                .sum();
+    }
+
+    /**
+     * Durations and node counts, without the query renderings
+     */
+    public String getSummary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Reformulation trace (").append(getTotalDuration()).append(" ms)\n");
+        Optional<Integer> previousNodeCount = Optional.empty();
+        for (Phase phase : phases) {
+            sb.append("  ").append(phase.getName()).append(": ").append(phase.getDuration()).append(" ms");
+            Optional<Integer> nodeCount = phase.getNodeCount();
+            if (nodeCount.isPresent()) {
+                sb.append(", nodes: ");
+                previousNodeCount.ifPresent(c -> sb.append(c).append(" -> "));
+                sb.append(nodeCount.get());
+                previousNodeCount = nodeCount;
+            }
+            sb.append("\n");
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(getSummary());
+        for (Phase phase : phases) {
+            phase.getRendering().ifPresent(r -> sb.append("After ").append(phase.getName()).append(":\n")
+                    .append(r).append("\n"));
+        }
+        return sb.toString();
+    }
+
+    private static int countNodes(IQTree tree) {
+        return 1 + tree.getChildren().stream()
+                .mapToInt(ReformulationTrace::countNodes)
+                .sum();
+    }
+
+
+    public static class Phase {
+        private final String name;
+        private final long duration;
+        private final Optional<Supplier<Integer>> nodeCountSupplier;
+        private final Optional<Supplier<String>> renderingSupplier;
+
+        private Phase(String name, long duration, Optional<Supplier<Integer>> nodeCountSupplier,
+                      Optional<Supplier<String>> renderingSupplier) {
+            this.name = name;
+            this.duration = duration;
+            this.nodeCountSupplier = nodeCountSupplier;
+            this.renderingSupplier = renderingSupplier;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * In ms
+         */
+        public long getDuration() {
+            return duration;
+        }
+
+        /**
+         * Number of nodes of the resulting query (if any)
+         */
+        public Optional<Integer> getNodeCount() {
+            return nodeCountSupplier.map(Supplier::get);
+        }
+
+        /**
+         * Rendering of the resulting query (if any). Lazily computed for IQs.
+         */
+        public Optional<String> getRendering() {
+            return renderingSupplier.map(Supplier::get);
+        }
+    }
+}
@@ -64,7 +64,7 @@ public class TermFactoryImpl implements TermFactory {
 		this.valueNull = new ValueConstantImpl("null", typeFactory.getXsdStringDatatype());
 		this.provenanceConstant = new ValueConstantImpl("ontop-provenance-constant", typeFactory.getXsdStringDatatype());
 		this.immutabilityTools = new ImmutabilityTools(this);
-		this.type2FunctionSymbolMap = new HashMap<>();
+		this.type2FunctionSymbolMap = new ConcurrentHashMap<>();
 		this.isTestModeEnabled = settings.isTestModeEnabled();
 		this.templateCounter = new AtomicInteger();
 		this.templateSuffix = new ConcurrentHashMap<>();
@@ -22,168 +22,218 @@ package it.unibz.inf.ontop.utils;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.ImmutableSet;
 import it.unibz.inf.ontop.model.term.functionsymbol.URITemplatePredicate;
 import it.unibz.inf.ontop.model.term.*;
 
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.stream.Stream;
 
+/**
+ * Finds the most specific IRI template matching an IRI and extracts the values of its placeholders.
+ *
+ * Templates are indexed in a trie by their literal prefix (the part before the first placeholder),
+ * so that only the templates whose prefix is a prefix of the IRI are considered.
+ * The remaining separators are then located without backtracking.
+ *
+ * Immutable, therefore safe for concurrent use.
+ */
 public class UriTemplateMatcher {
 
+    private static final String PLACEHOLDER = "{}";
+
     private final TermFactory termFactory;
+    // Indexed by the template string (in insertion order)
+    private final ImmutableMap<String, IRITemplate> templates;
+    private final TrieNode root;
 
-    private UriTemplateMatcher(TermFactory termFactory) {
+    private UriTemplateMatcher(ImmutableMap<String, IRITemplate> templates, TermFactory termFactory) {
         this.termFactory = termFactory;
+        this.templates = templates;
+        this.root = new TrieNode();
+        for (IRITemplate template : templates.values())
+            root.insert(template);
     }
 
-    private final Map<Pattern, ImmutableFunctionalTerm> uriTemplateMatcher = new HashMap<>();
-
-    /**
-     * TODO: refactor using streaming.
-     */
     public static UriTemplateMatcher create(Stream<? extends ImmutableFunctionalTerm> targetAtomStream,
                                             TermFactory termFactory) {
-        Set<String> templateStrings = new HashSet<>();
-
-        UriTemplateMatcher uriTemplateMatcher = new UriTemplateMatcher(termFactory);
-
-        ImmutableList<? extends ImmutableFunctionalTerm> targetAtoms = targetAtomStream.collect(ImmutableCollectors.toList());
-
-        for (ImmutableFunctionalTerm fun : targetAtoms) {
-
-            // Collecting URI templates and making pattern matchers for them.
-            if (!(fun.getFunctionSymbol() instanceof URITemplatePredicate)) {
-                continue;
-            }
-            /*
-			 * This is a URI function, so it can generate pattern matchers
-			 * for the URIs. We have two cases, one where the arity is 1,
-			 * and there is a constant/variable. The second case is
-			 * where the first element is a string template of the URI, and
-			 * the rest of the terms are variables/constants
-			 */
-            if (fun.getTerms().size() == 1) {
-				/*
-				 * URI without template, we get it directly from the column
-				 * of the table, and the function is only f(x)
-				 */
-                if (templateStrings.contains("(.+)")) {
-                    continue;
-                }
-
-                ImmutableFunctionalTerm templateFunction = termFactory.getImmutableUriTemplate(termFactory.getVariable("x"));
-                Pattern matcher = Pattern.compile("(.+)");
-                uriTemplateMatcher.uriTemplateMatcher.put(matcher, templateFunction);
-                templateStrings.add("(.+)");
-            } else {
-                ValueConstant template = (ValueConstant) fun.getTerms().get(0);
-                String templateString = template.getValue();
-                templateString = templateString.replace("{}", "(.+)");
-
-                if (templateStrings.contains(templateString)) {
-                    continue;
-                }
-
-                Pattern matcher = Pattern.compile(templateString);
-                uriTemplateMatcher.uriTemplateMatcher.put(matcher, fun);
-                templateStrings.add(templateString);
-
-            }
-        }
-        return uriTemplateMatcher;
+        Map<String, IRITemplate> templateMap = new LinkedHashMap<>();
+
+        targetAtomStream
+                // Collecting URI templates
+                .filter(fun -> fun.getFunctionSymbol() instanceof URITemplatePredicate)
+                .forEach(fun -> {
+                    /*
+                     * We have two cases, one where the arity is 1, and there is a constant/variable.
+                     * The second case is where the first element is a string template of the URI, and
+                     * the rest of the terms are variables/constants
+                     */
+                    if (fun.getTerms().size() == 1) {
+                        /*
+                         * URI without template, we get it directly from the column
+                         * of the table, and the function is only f(x)
+                         */
+                        templateMap.computeIfAbsent(PLACEHOLDER, t -> new IRITemplate(t,
+                                termFactory.getImmutableUriTemplate(termFactory.getVariable("x")),
+                                templateMap.size()));
+                    }
+                    else {
+                        String templateString = ((ValueConstant) fun.getTerms().get(0)).getValue();
+                        templateMap.computeIfAbsent(templateString, t -> new IRITemplate(t, fun, templateMap.size()));
+                    }
+                });
+        return new UriTemplateMatcher(ImmutableMap.copyOf(templateMap), termFactory);
     }
 
+    /**
+     * When several matchers share a template, the first one is kept
+     */
     public static UriTemplateMatcher merge(Stream<UriTemplateMatcher> uriTemplateMatchers, TermFactory termFactory) {
-
-        ImmutableMap<Pattern, Collection<ImmutableFunctionalTerm>> pattern2Terms = uriTemplateMatchers
-                .flatMap(m -> m.getMap().entrySet().stream())
-                .collect(ImmutableCollectors.toMultimap())
-                .asMap();
-
-        ImmutableMap<Pattern, ImmutableFunctionalTerm> pattern2Term = pattern2Terms.entrySet().stream()
-                .collect(ImmutableCollectors.toMap(
-                        e -> e.getKey(),
-                        e -> flatten(e.getKey(), e.getValue())
-                ));
-        UriTemplateMatcher uriTemplateMatcher = new UriTemplateMatcher(termFactory);
-        uriTemplateMatcher.uriTemplateMatcher.putAll(pattern2Term);
-        return uriTemplateMatcher;
-    }
-
-    private static ImmutableFunctionalTerm flatten(Pattern pattern, Collection<ImmutableFunctionalTerm> collection) {
-        if (ImmutableSet.copyOf(collection).size() == 1) {
-            return collection.iterator().next();
-        }
-        throw new IllegalArgumentException("Conflicting term for pattern" + pattern + ": " + collection);
+        Map<String, IRITemplate> templateMap = new LinkedHashMap<>();
+        uriTemplateMatchers
+                .flatMap(m -> m.templates.values().stream())
+                .forEach(t -> templateMap.computeIfAbsent(t.templateString,
+                        s -> new IRITemplate(s, t.functionalTerm, templateMap.size())));
+        return new UriTemplateMatcher(ImmutableMap.copyOf(templateMap), termFactory);
     }
 
     /***
-     * We will try to match the URI to one of our patterns, if this happens, we
+     * We will try to match the URI to one of our templates, if this happens, we
      * have a corresponding function, and the parameters for this function. The
-     * parameters are the values for the groups of the pattern.
+     * parameters are the values of the placeholders of the template.
+     *
+     * When several templates match, the most specific one (the longest) is chosen.
      */
     public ImmutableFunctionalTerm generateURIFunction(String uriString) {
-        ImmutableFunctionalTerm functionURI = null;
-
-        List<Pattern> patternsMatched = new LinkedList<>();
-        for (Pattern pattern : uriTemplateMatcher.keySet()) {
-
-            Matcher matcher = pattern.matcher(uriString);
-            boolean match = matcher.matches();
-            if (!match) {
-                continue;
+        IRITemplate bestTemplate = null;
+        ImmutableList<String> bestValues = null;
+
+        TrieNode node = root;
+        int depth = 0;
+        while (node != null) {
+            for (IRITemplate template : node.templates) {
+                if (bestTemplate != null && !template.isMoreSpecificThan(bestTemplate))
+                    continue;
+                ImmutableList<String> values = template.match(uriString);
+                if (values != null) {
+                    bestTemplate = template;
+                    bestValues = values;
+                }
             }
-            patternsMatched.add(pattern);
+            node = depth < uriString.length()
+                    ? node.children.get(uriString.charAt(depth++))
+                    : null;
         }
-        Comparator<Pattern> comparator = new Comparator<Pattern>() {
-            public int compare(Pattern c1, Pattern c2) {
-                return c2.pattern().length() - c1.pattern().length(); // use your logic
-            }
-        };
 
-        Collections.sort(patternsMatched, comparator);
-        for (Pattern pattern : patternsMatched) {
-            ImmutableFunctionalTerm matchingFunction = uriTemplateMatcher.get(pattern);
-            ImmutableTerm baseParameter = matchingFunction.getTerm(0);
+        if (bestTemplate != null) {
+            ImmutableTerm baseParameter = bestTemplate.functionalTerm.getTerm(0);
             if (baseParameter instanceof Constant) {
-				/*
-				 * This is a general template function of the form
-				 * uri("http://....", var1, var2,...) <p> we need to match var1,
-				 * var2, etc with substrings from the subjectURI
-				 */
-                Matcher matcher = pattern.matcher(uriString);
-                if (matcher.matches()) {
-                    ImmutableList.Builder<ImmutableTerm> values = ImmutableList.builder();
-                    values.add(baseParameter);
-                    for (int i = 0; i < matcher.groupCount(); i++) {
-                        String value = matcher.group(i + 1);
-                        values.add(termFactory.getConstantLiteral(value));
-                    }
-                    functionURI = termFactory.getImmutableUriTemplate(values.build());
-                }
-            } else if (baseParameter instanceof Variable) {
-				/*
-				 * This is a direct mapping to a column, uri(x)
-				 * we need to match x with the subjectURI
-				 */
-                functionURI = termFactory.getImmutableUriTemplate(termFactory.getConstantLiteral(uriString));
+                /*
+                 * This is a general template function of the form
+                 * uri("http://....", var1, var2,...) <p> we need to match var1,
+                 * var2, etc with substrings from the subjectURI
+                 */
+                ImmutableList.Builder<ImmutableTerm> termBuilder = ImmutableList.builder();
+                termBuilder.add(baseParameter);
+                bestValues.forEach(v -> termBuilder.add(termFactory.getConstantLiteral(v)));
+                return termFactory.getImmutableUriTemplate(termBuilder.build());
+            }
+        }
+        /*
+         * Either a direct mapping to a column, uri(x), or no matching template.
+         * In the latter case, we use the most general template (which will
+         * generate empty queries later in the query answering process)
+         */
+        return termFactory.getImmutableUriTemplate(termFactory.getConstantLiteral(uriString));
+    }
+
+
+    private static class IRITemplate {
+        private final String templateString;
+        private final ImmutableFunctionalTerm functionalTerm;
+        // Literal parts: before the first placeholder, between the placeholders and after the last one
+        private final ImmutableList<String> separators;
+        // Length of the equivalent regular expression (where each placeholder is "(.+)")
+        private final int specificity;
+        private final int rank;
+
+        private IRITemplate(String templateString, ImmutableFunctionalTerm functionalTerm, int rank) {
+            this.templateString = templateString;
+            this.functionalTerm = functionalTerm;
+            this.rank = rank;
+
+            ImmutableList.Builder<String> separatorBuilder = ImmutableList.builder();
+            int from = 0;
+            int index;
+            while ((index = templateString.indexOf(PLACEHOLDER, from)) >= 0) {
+                separatorBuilder.add(templateString.substring(from, index));
+                from = index + PLACEHOLDER.length();
             }
-            break;
+            separatorBuilder.add(templateString.substring(from));
+            this.separators = separatorBuilder.build();
+            this.specificity = templateString.length() + 2 * (separators.size() - 1);
+        }
+
+        String getPrefix() {
+            return separators.get(0);
         }
-        if (functionURI == null) {
-			/* If we cannot match against a template, we try to match against the most general template (which will
-			 * generate empty queries later in the query answering process
-			 */
-            functionURI = termFactory.getImmutableUriTemplate(termFactory.getConstantLiteral(uriString));
+
+        /**
+         * Ties are broken by order of insertion
+         */
+        boolean isMoreSpecificThan(IRITemplate other) {
+            return specificity > other.specificity
+                    || (specificity == other.specificity && rank < other.rank);
         }
 
-        return functionURI;
+        /**
+         * Returns the values of the placeholders, or null if the IRI does not match.
+         *
+         * Each value is non-empty. Like greedy regular expression groups, the first values are the longest ones:
+         * the separators are therefore located from right to left, each at its last possible occurrence.
+         */
+        ImmutableList<String> match(String iri) {
+            int placeholderCount = separators.size() - 1;
+            String prefix = separators.get(0);
+            if (placeholderCount == 0)
+                return iri.equals(prefix) ? ImmutableList.of() : null;
+
+            String suffix = separators.get(placeholderCount);
+            if (!iri.startsWith(prefix) || !iri.endsWith(suffix))
+                return null;
+
+            int start = prefix.length();
+            // Exclusive end of the current value
+            int limit = iri.length() - suffix.length();
+            String[] values = new String[placeholderCount];
+
+            for (int i = placeholderCount - 1; i > 0; i--) {
+                String separator = separators.get(i);
+                int separatorIndex = iri.lastIndexOf(separator, limit - 1 - separator.length());
+                // The previous value must not be empty either
+                if (separatorIndex <= start)
+                    return null;
+                values[i] = iri.substring(separatorIndex + separator.length(), limit);
+                limit = separatorIndex;
+            }
+            if (limit <= start)
+                return null;
+            values[0] = iri.substring(start, limit);
+            return ImmutableList.copyOf(values);
+        }
     }
 
-    private ImmutableMap<Pattern, ImmutableFunctionalTerm> getMap() {
-        return ImmutableMap.copyOf(uriTemplateMatcher);
+    /**
+     * Not modified after the construction of the matcher
+     */
+    private static class TrieNode {
+        private final Map<Character, TrieNode> children = new HashMap<>();
+        private final List<IRITemplate> templates = new ArrayList<>();
+
+        void insert(IRITemplate template) {
+            TrieNode node = this;
+            for (char c : template.getPrefix().toCharArray())
+                node = node.children.computeIfAbsent(c, k -> new TrieNode());
+            node.templates.add(template);
+        }
     }
 }
@@ -0,0 +1,68 @@
+package it.unibz.inf.ontop.iq;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import it.unibz.inf.ontop.dbschema.BasicDBMetadata;
+import it.unibz.inf.ontop.dbschema.DatabaseRelationDefinition;
+import it.unibz.inf.ontop.dbschema.QuotedIDFactory;
+import it.unibz.inf.ontop.model.atom.RelationPredicate;
+import it.unibz.inf.ontop.model.term.Variable;
+import org.junit.Test;
+
+import java.sql.Types;
+
+import static it.unibz.inf.ontop.OntopModelTestingTools.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class IQTreeStructuralHashingTest {
+
+    private final static RelationPredicate TABLE_PREDICATE;
+    private final static Variable X = TERM_FACTORY.getVariable("x");
+    private final static Variable Y = TERM_FACTORY.getVariable("y");
+
+    static {
+        BasicDBMetadata dbMetadata = createDummyMetadata();
+        QuotedIDFactory idFactory = dbMetadata.getQuotedIDFactory();
+
+        DatabaseRelationDefinition tableDef = dbMetadata.createDatabaseRelation(idFactory.createRelationID(null, "TABLE1"));
+        tableDef.addAttribute(idFactory.createAttributeID("col1"), Types.INTEGER, null, false);
+        tableDef.addAttribute(idFactory.createAttributeID("col2"), Types.INTEGER, null, false);
+        TABLE_PREDICATE = tableDef.getAtomPredicate();
+        dbMetadata.freeze();
+    }
+
+    @Test
+    public void testEquivalentTreesHaveTheSameHashCode() {
+        IQTree tree1 = createUnion(X, Y);
+        IQTree tree2 = createUnion(X, Y);
+
+        assertEquals(tree1, tree2);
+        assertEquals(tree1.hashCode(), tree2.hashCode());
+        assertEquals(tree1.getStructuralHashCode(), tree2.getStructuralHashCode());
+        assertEquals(ImmutableSet.of(tree1), ImmutableSet.of(tree2));
+    }
+
+    @Test
+    public void testDifferentLeaves() {
+        IQTree tree1 = createUnion(X, Y);
+        IQTree tree2 = createUnion(Y, X);
+
+        assertNotEquals(tree1, tree2);
+        assertNotEquals(tree1.getStructuralHashCode(), tree2.getStructuralHashCode());
+    }
+
+    @Test
+    public void testToString() {
+        IQTree tree = createUnion(X, Y);
+        String leaf = tree.getChildren().get(0).toString();
+        assertEquals(tree.getRootNode() + "\n   " + leaf + "\n   " + leaf + "\n", tree.toString());
+    }
+
+    private static IQTree createUnion(Variable v1, Variable v2) {
+        return IQ_FACTORY.createNaryIQTree(IQ_FACTORY.createUnionNode(ImmutableSet.of(v1, v2)),
+                ImmutableList.of(
+                        IQ_FACTORY.createExtensionalDataNode(ATOM_FACTORY.getDataAtom(TABLE_PREDICATE, v1, v2)),
+                        IQ_FACTORY.createExtensionalDataNode(ATOM_FACTORY.getDataAtom(TABLE_PREDICATE, v1, v2))));
+    }
+}
@@ -0,0 +1,80 @@
+package it.unibz.inf.ontop.iq.tools;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import it.unibz.inf.ontop.dbschema.BasicDBMetadata;
+import it.unibz.inf.ontop.dbschema.DatabaseRelationDefinition;
+import it.unibz.inf.ontop.dbschema.QuotedIDFactory;
+import it.unibz.inf.ontop.iq.IQ;
+import it.unibz.inf.ontop.iq.IQTree;
+import it.unibz.inf.ontop.model.atom.RelationPredicate;
+import it.unibz.inf.ontop.model.term.Variable;
+import org.junit.Test;
+
+import java.sql.Types;
+import java.util.Optional;
+
+import static it.unibz.inf.ontop.OntopModelTestingTools.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ReformulationTraceTest {
+
+    private final static RelationPredicate TABLE_PREDICATE;
+    private final static Variable X = TERM_FACTORY.getVariable("x");
+    private final static Variable Y = TERM_FACTORY.getVariable("y");
+
+    static {
+        BasicDBMetadata dbMetadata = createDummyMetadata();
+        QuotedIDFactory idFactory = dbMetadata.getQuotedIDFactory();
+
+        DatabaseRelationDefinition tableDef = dbMetadata.createDatabaseRelation(idFactory.createRelationID(null, "TABLE1"));
+        tableDef.addAttribute(idFactory.createAttributeID("col1"), Types.INTEGER, null, false);
+        tableDef.addAttribute(idFactory.createAttributeID("col2"), Types.INTEGER, null, false);
+        TABLE_PREDICATE = tableDef.getAtomPredicate();
+        dbMetadata.freeze();
+    }
+
+    @Test
+    public void testNodeCounts() {
+        ReformulationTrace trace = ReformulationTrace.create();
+        trace.recordPhase("union", 3, createIQ(createUnion()));
+        trace.recordPhase("other", 1);
+        trace.recordPhase("data node", 2, createIQ(createDataNode()));
+
+        ImmutableList<ReformulationTrace.Phase> phases = trace.getPhases();
+        assertEquals(3, phases.size());
+        assertEquals(Optional.of(3), phases.get(0).getNodeCount());
+        assertEquals(Optional.empty(), phases.get(1).getNodeCount());
+        assertEquals(Optional.of(1), phases.get(2).getNodeCount());
+        assertEquals(6, trace.getTotalDuration());
+
+        assertTrue(trace.getSummary().contains("data node: 2 ms, nodes: 3 -> 1"));
+        assertTrue(phases.get(0).getRendering().isPresent());
+        assertFalse(phases.get(1).getRendering().isPresent());
+    }
+
+    @Test
+    public void testDisabledTrace() {
+        ReformulationTrace trace = ReformulationTrace.disabled();
+        trace.recordPhase("union", 3, createIQ(createUnion()));
+
+        assertFalse(trace.isEnabled());
+        assertTrue(trace.getPhases().isEmpty());
+    }
+
+    private static IQ createIQ(IQTree tree) {
+        return IQ_FACTORY.createIQ(ATOM_FACTORY.getDistinctVariableOnlyDataAtom(ATOM_FACTORY.getRDFAnswerPredicate(2),
+                ImmutableList.of(X, Y)), tree);
+    }
+
+    private static IQTree createUnion() {
+        return IQ_FACTORY.createNaryIQTree(IQ_FACTORY.createUnionNode(ImmutableSet.of(X, Y)),
+                ImmutableList.of(createDataNode(), createDataNode()));
+    }
+
+    private static IQTree createDataNode() {
+        return IQ_FACTORY.createExtensionalDataNode(ATOM_FACTORY.getDataAtom(TABLE_PREDICATE, X, Y));
+    }
+}
@@ -0,0 +1,82 @@
+package it.unibz.inf.ontop.utils;
+
+import it.unibz.inf.ontop.model.term.ImmutableFunctionalTerm;
+import it.unibz.inf.ontop.model.term.ImmutableTerm;
+import it.unibz.inf.ontop.model.term.Variable;
+import org.junit.Test;
+
+import java.util.stream.Stream;
+
+import static it.unibz.inf.ontop.OntopModelTestingTools.TERM_FACTORY;
+import static org.junit.Assert.assertEquals;
+
+public class UriTemplateMatcherTest {
+
+    private static final Variable X = TERM_FACTORY.getVariable("x");
+    private static final Variable Y = TERM_FACTORY.getVariable("y");
+
+    private static final ImmutableFunctionalTerm PERSON = template("http://example.org/person/{}", X);
+    private static final ImmutableFunctionalTerm PERSON_ROLE = template("http://example.org/person/{}/role/{}", X, Y);
+    private static final ImmutableFunctionalTerm DOT = template("http://example.org/a.b/{}", X);
+
+    private static final UriTemplateMatcher MATCHER = UriTemplateMatcher.create(
+            Stream.of(PERSON, PERSON_ROLE, DOT), TERM_FACTORY);
+
+    @Test
+    public void testMostSpecificTemplate() {
+        assertEquals(expected("http://example.org/person/{}/role/{}", "1", "2"),
+                MATCHER.generateURIFunction("http://example.org/person/1/role/2"));
+        assertEquals(expected("http://example.org/person/{}", "1"),
+                MATCHER.generateURIFunction("http://example.org/person/1"));
+    }
+
+    @Test
+    public void testGreedyValues() {
+        assertEquals(expected("http://example.org/person/{}/role/{}", "1/role/2", "3"),
+                MATCHER.generateURIFunction("http://example.org/person/1/role/2/role/3"));
+    }
+
+    @Test
+    public void testEmptyValue() {
+        assertEquals(expected("http://example.org/person/{}", "/role/2"),
+                MATCHER.generateURIFunction("http://example.org/person//role/2"));
+        assertEquals(generic("http://example.org/person/"),
+                MATCHER.generateURIFunction("http://example.org/person/"));
+    }
+
+    @Test
+    public void testLiteralSeparators() {
+        assertEquals(generic("http://example.org/aXb/1"),
+                MATCHER.generateURIFunction("http://example.org/aXb/1"));
+        assertEquals(expected("http://example.org/a.b/{}", "1"),
+                MATCHER.generateURIFunction("http://example.org/a.b/1"));
+    }
+
+    @Test
+    public void testMerge() {
+        UriTemplateMatcher columnMatcher = UriTemplateMatcher.create(
+                Stream.of(TERM_FACTORY.getImmutableUriTemplate(Y)), TERM_FACTORY);
+        UriTemplateMatcher merged = UriTemplateMatcher.merge(Stream.of(columnMatcher, MATCHER), TERM_FACTORY);
+
+        assertEquals(expected("http://example.org/person/{}", "1"),
+                merged.generateURIFunction("http://example.org/person/1"));
+        assertEquals(generic("http://other.org/1"), merged.generateURIFunction("http://other.org/1"));
+    }
+
+    private static ImmutableFunctionalTerm template(String template, Variable... variables) {
+        return expected(template, variables);
+    }
+
+    private static ImmutableFunctionalTerm expected(String template, Object... arguments) {
+        return TERM_FACTORY.getImmutableUriTemplate(Stream.concat(
+                Stream.of(TERM_FACTORY.getConstantLiteral(template)),
+                Stream.of(arguments).map(a -> a instanceof Variable
+                        ? (ImmutableTerm) a
+                        : TERM_FACTORY.getConstantLiteral((String) a)))
+                .collect(ImmutableCollectors.toList()));
+    }
+
+    private static ImmutableFunctionalTerm generic(String iri) {
+        return TERM_FACTORY.getImmutableUriTemplate(TERM_FACTORY.getConstantLiteral(iri));
+    }
+}
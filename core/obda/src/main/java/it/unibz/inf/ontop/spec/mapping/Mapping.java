@@ -42,6 +42,14 @@ public interface Mapping {
      */
     ImmutableSet<IRI> getRDFClasses(RDFAtomPredicate rdfAtomPredicate);
 
+    /**
+     * Rough size (e.g. number of mapping assertions) of the definitions of the class or property,
+     * 0 if it has none.
+     *
+     * Cheap: does not compute the definitions when they are computed on demand.
+     */
+    int estimateDefinitionSize(IRI classOrPropertyIRI);
+
     ImmutableCollection<IQ> getQueries(RDFAtomPredicate rdfAtomPredicate);
 
     ImmutableSet<Table.Cell<RDFAtomPredicate, IRI, IQ>> getRDFPropertyQueries();
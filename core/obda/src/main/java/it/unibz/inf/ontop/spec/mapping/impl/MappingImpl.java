@@ -6,6 +6,7 @@ import com.google.inject.assistedinject.AssistedInject;
 import it.unibz.inf.ontop.injection.OntopModelSettings;
 import it.unibz.inf.ontop.injection.SpecificationFactory;
 import it.unibz.inf.ontop.iq.IQ;
+import it.unibz.inf.ontop.iq.IQTree;
 import it.unibz.inf.ontop.iq.node.VariableNullability;
 import it.unibz.inf.ontop.model.atom.RDFAtomPredicate;
 import it.unibz.inf.ontop.spec.mapping.Mapping;
@@ -84,6 +85,25 @@ public class MappingImpl implements Mapping {
                 .orElseGet(ImmutableSet::of);
     }
 
+    /**
+     * Number of leaves of the definitions
+     */
+    @Override
+    public int estimateDefinitionSize(IRI classOrPropertyIRI) {
+        return Stream.concat(classDefinitions.column(classOrPropertyIRI).values().stream(),
+                    propertyDefinitions.column(classOrPropertyIRI).values().stream())
+                .mapToInt(d -> countLeaves(d.getTree()))
+                .sum();
+    }
+
+    private static int countLeaves(IQTree tree) {
+        return tree.isLeaf()
+                ? 1
+                : tree.getChildren().stream()
+                    .mapToInt(MappingImpl::countLeaves)
+                    .sum();
+    }
+
     @Override
     public ImmutableCollection<IQ> getQueries(RDFAtomPredicate rdfAtomPredicate) {
         return Stream.concat(classDefinitions.row(rdfAtomPredicate).values().stream(),
@@ -31,6 +31,7 @@ import org.jgrapht.graph.SimpleDirectedGraph;
 import org.jgrapht.traverse.BreadthFirstIterator;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 /**
@@ -63,8 +64,8 @@ public class EquivalencesDAGImpl<T> implements EquivalencesDAG<T> {
 		this.vertexIndex = vertexIndex;
 		this.fullVertexIndex = fullVertexIndex;
 
-		this.cacheSub = new HashMap<>();
-		this.cacheSubRep = new HashMap<>();
+		this.cacheSub = new ConcurrentHashMap<>();
+		this.cacheSubRep = new ConcurrentHashMap<>();
 	}
 
 	
@@ -2,27 +2,55 @@ package it.unibz.inf.ontop.datalog.impl;
 
 import java.util.*;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.ImmutableSet;
 import it.unibz.inf.ontop.datalog.*;
 import it.unibz.inf.ontop.model.atom.AtomPredicate;
 import it.unibz.inf.ontop.model.term.*;
 import it.unibz.inf.ontop.model.term.functionsymbol.Predicate;
 import it.unibz.inf.ontop.substitution.Substitution;
 import it.unibz.inf.ontop.substitution.SubstitutionBuilder;
+import it.unibz.inf.ontop.substitution.impl.SubstitutionImpl;
 import it.unibz.inf.ontop.substitution.impl.SubstitutionUtilities;
 import it.unibz.inf.ontop.substitution.impl.UnifierUtilities;
 import it.unibz.inf.ontop.utils.ImmutableCollectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Containment check (homomorphism computation) under linear inclusion dependencies (e.g., foreign keys).
+ *
+ * The chased and indexed bodies are cached. The cache is keyed by a canonical form of the query,
+ * in which the variables are renamed by order of first occurrence: queries that only differ by the names
+ * of their variables share the same chase. The cache is bounded and thread-safe, so a single instance
+ * can be shared by the threads of the mapping saturation.
+ *
+ * The canonical form of a query is itself memoized per CQIE object (weak identity keys), so that checking
+ * the same query again does not clone, rename and print it. A CQIE must therefore not be modified
+ * after having been checked as first argument of computeHomomorphsim.
+ */
 public class CQContainmentCheckUnderLIDs {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(CQContainmentCheckUnderLIDs.class);
-	
-	private final Map<CQIE,IndexedCQ> indexedCQcache = new HashMap<>();
+
+	public static final int DEFAULT_CACHE_SIZE = 10000;
+
+	private static final String CANONICAL_VARIABLE_PREFIX = "cqc_v";
+
+	// canonical form of the query (string) -> chased and indexed canonical query
+	private final Cache<String, IndexedCQ> indexedCQcache;
+	// query (compared by identity) -> its canonical form
+	private final Cache<CQIE, CanonicalCQ> canonicalCQCache;
+	private final int maxCacheSize;
 	
 	private final ImmutableMultimap<Predicate, LinearInclusionDependency> dependencies;
+	// the dependencies as rules (never modified: only their fresh copies are used)
+	private final ImmutableMultimap<Predicate, CQIE> dependencyRules;
 	private final DatalogFactory datalogFactory;
 	private final UnifierUtilities unifierUtilities;
 	private final SubstitutionUtilities substitutionUtilities;
@@ -35,17 +63,59 @@ public class CQContainmentCheckUnderLIDs {
 	public CQContainmentCheckUnderLIDs(ImmutableList<LinearInclusionDependency> dependencies, DatalogFactory datalogFactory,
                                        UnifierUtilities unifierUtilities, SubstitutionUtilities substitutionUtilities,
                                        TermFactory termFactory) {
+		this(dependencies, datalogFactory, unifierUtilities, substitutionUtilities, termFactory, DEFAULT_CACHE_SIZE);
+	}
+
+	/**
+	 * maxCacheSize: maximal number of chased queries kept in the cache
+	 */
+	public CQContainmentCheckUnderLIDs(ImmutableList<LinearInclusionDependency> dependencies, DatalogFactory datalogFactory,
+									   UnifierUtilities unifierUtilities, SubstitutionUtilities substitutionUtilities,
+									   TermFactory termFactory, int maxCacheSize) {
+		if (maxCacheSize < 0)
+			throw new IllegalArgumentException("The size of the containment check cache must be positive");
+		this.maxCacheSize = maxCacheSize;
+		this.indexedCQcache = CacheBuilder.newBuilder()
+				.maximumSize(maxCacheSize)
+				.recordStats()
+				.build();
+		this.canonicalCQCache = CacheBuilder.newBuilder()
+				.weakKeys()
+				.maximumSize(maxCacheSize)
+				.build();
 	    // index dependencies
 		this.dependencies = dependencies.stream()
 				.collect(ImmutableCollectors.toMultimap(
 						d -> d.getHead().getFunctionSymbol(),
 						d -> d));
+		this.dependencyRules = dependencies.stream()
+				.collect(ImmutableCollectors.toMultimap(
+						d -> d.getHead().getFunctionSymbol(),
+						d -> datalogFactory.getCQIE((Function) d.getHead().clone(),
+								(Function) d.getBody().clone())));
 		this.datalogFactory = datalogFactory;
 		this.unifierUtilities = unifierUtilities;
 		this.substitutionUtilities = substitutionUtilities;
 		this.termFactory = termFactory;
 	}
 
+	/**
+	 * Predicates that may occur in the chase of a body whose atoms have the given predicates
+	 * (an over-approximation).
+	 *
+	 * A query q2 can only be mapped into a query q1 if the predicates of q2 are among
+	 * the chased predicates of q1.
+	 */
+	public ImmutableSet<Predicate> getChasedPredicates(Collection<? extends Predicate> predicates) {
+		ImmutableSet.Builder<Predicate> builder = ImmutableSet.builder();
+		for (Predicate predicate : predicates) {
+			builder.add(predicate);
+			for (LinearInclusionDependency d : dependencies.get(predicate))
+				builder.add(d.getHead().getFunctionSymbol());
+		}
+		return builder.build();
+	}
+
 
 
     /**
@@ -62,8 +132,8 @@ public class CQContainmentCheckUnderLIDs {
 		Set<Function> derivedAtoms = new HashSet<>();
 		for (Function fact : atoms) {
 			derivedAtoms.add(fact);
-			for (LinearInclusionDependency d : dependencies.get(fact.getFunctionSymbol())) {
-				CQIE rule = datalogFactory.getFreshCQIECopy(datalogFactory.getCQIE(d.getHead(), d.getBody()));
+			for (CQIE dependencyRule : dependencyRules.get(fact.getFunctionSymbol())) {
+				CQIE rule = datalogFactory.getFreshCQIECopy(dependencyRule);
 				Function ruleBody = rule.getBody().get(0);
 				Substitution theta = unifierUtilities.getMGU(ruleBody, fact);
 				if (theta != null && !theta.isEmpty()) {
@@ -79,39 +149,35 @@ public class CQContainmentCheckUnderLIDs {
 		return derivedAtoms;
 	}
 	
-	public final class IndexedCQ {
+	/**
+	 * Chased and indexed canonical query.
+	 *
+	 * Never modified after its construction: can be shared by several threads.
+	 */
+	private final class IndexedCQ {
 		
 		private final Function head;
 		/***
 		 * An index of all the facts obtained by freezing this query.
 		 */
-		private final Map<Predicate, List<Function>> factMap;
+		private final ImmutableMap<Predicate, ImmutableList<Function>> factMap;
 
-		/***
-		 * Computes a query in which all terms have been replaced by
-		 * ValueConstants that have the no type and have the same 'name' as the
-		 * original variable.
-		 * 
-		 * This new query can be used for query containment checking.
-		 * 
-		 */
-		
-		public IndexedCQ(Function head, Collection<Function> body) { 
+		private IndexedCQ(Function head, Collection<Function> body) {
 			
 			this.head = head;
 
-			this.factMap = new HashMap<>(body.size() * 2);
+			Map<Predicate, ImmutableList.Builder<Function>> factBuilders = new HashMap<>(body.size() * 2);
 			for (Function atom : body) 
 				// not boolean, not algebra, not arithmetic, not datatype
 				if (atom != null && atom.isDataFunction()) {
-					Predicate pred = atom.getFunctionSymbol();
-					List<Function> facts = factMap.get(pred);
-					if (facts == null) {
-						facts = new LinkedList<Function>();
-						factMap.put(pred, facts);
-					}
-					facts.add(atom);
+					factBuilders.computeIfAbsent(atom.getFunctionSymbol(), p -> ImmutableList.builder())
+							.add(atom);
+					computeHashCodes(atom);
 				}
+			computeHashCodes(head);
+
+			this.factMap = factBuilders.entrySet().stream()
+					.collect(ImmutableCollectors.toMap(Map.Entry::getKey, e -> e.getValue().build()));
 		}
 		
 		private Substitution computeHomomorphism(CQIE query) {
@@ -127,22 +193,123 @@ public class CQContainmentCheckUnderLIDs {
 			Substitution sub = computeSomeHomomorphism(sb, query.getBody(), factMap);
 			
 			return sub;
-		}	
+		}
+
+		/**
+		 * The hash codes of mutable functional terms are computed lazily (and used by equals):
+		 * they are computed here, before the index is shared.
+		 */
+		private void computeHashCodes(Function atom) {
+			atom.hashCode();
+			for (Term term : atom.getTerms())
+				if (term instanceof Function)
+					computeHashCodes((Function) term);
+		}
 	}
 
-	
+	/**
+	 * Query in which the variables are renamed by order of first occurrence (head first).
+	 */
+	private final class CanonicalCQ {
+		private final Function head;
+		private final ImmutableList<Function> body;
+		// canonical variable -> original variable
+		private final ImmutableMap<Variable, Variable> inverseRenaming;
+		private final String key;
+
+		private CanonicalCQ(CQIE query) {
+			Map<Variable, Term> renaming = new LinkedHashMap<>();
+			collectVariables(renaming, query.getHead());
+			for (Function atom : query.getBody())
+				collectVariables(renaming, atom);
+			Substitution renamingSubstitution = new SubstitutionImpl(renaming, termFactory);
+
+			this.head = rename(query.getHead(), renamingSubstitution);
+			this.body = query.getBody().stream()
+					.map(a -> rename(a, renamingSubstitution))
+					.collect(ImmutableCollectors.toList());
+			this.inverseRenaming = renaming.entrySet().stream()
+					.collect(ImmutableCollectors.toMap(e -> (Variable) e.getValue(), Map.Entry::getKey));
+
+			StringBuilder sb = new StringBuilder(head.toString()).append(" :- ");
+			body.forEach(a -> sb.append(a).append(", "));
+			this.key = sb.toString();
+		}
 
+		private void collectVariables(Map<Variable, Term> renaming, Function atom) {
+			for (Term term : atom.getTerms()) {
+				if (term instanceof Variable)
+					renaming.computeIfAbsent((Variable) term,
+							v -> termFactory.getVariable(CANONICAL_VARIABLE_PREFIX + renaming.size()));
+				else if (term instanceof Function)
+					collectVariables(renaming, (Function) term);
+			}
+		}
+
+		private Function rename(Function atom, Substitution renamingSubstitution) {
+			Function clone = (Function) atom.clone();
+			substitutionUtilities.applySubstitution(clone, renamingSubstitution);
+			return clone;
+		}
+
+		/**
+		 * Replaces the canonical variables by the original ones in a homomorphism into the canonical query.
+		 * The labelled nulls introduced by the chase are left unchanged.
+		 */
+		private Substitution restoreVariables(Substitution homomorphism) {
+			Substitution inverseSubstitution = new SubstitutionImpl(new HashMap<Variable, Term>(inverseRenaming), termFactory);
+			Map<Variable, Term> map = new HashMap<>();
+			for (Map.Entry<Variable, Term> e : homomorphism.getMap().entrySet()) {
+				Term term = e.getValue();
+				Term restoredTerm;
+				if (term instanceof Variable)
+					restoredTerm = inverseRenaming.getOrDefault(term, (Variable) term);
+				else if (term instanceof Function) {
+					restoredTerm = term.clone();
+					substitutionUtilities.applySubstitution((Function) restoredTerm, inverseSubstitution);
+				}
+				else
+					restoredTerm = term;
+				map.put(e.getKey(), restoredTerm);
+			}
+			return new SubstitutionImpl(map, termFactory);
+		}
+	}
+
+	/**
+	 * May be computed concurrently by several threads: all of them produce the same canonical form
+	 */
+	private CanonicalCQ getCanonicalCQ(CQIE query) {
+		CanonicalCQ canonicalCQ = canonicalCQCache.getIfPresent(query);
+		if (canonicalCQ == null) {
+			canonicalCQ = new CanonicalCQ(query);
+			canonicalCQCache.put(query, canonicalCQ);
+		}
+		return canonicalCQ;
+	}
+
+	private IndexedCQ getIndexedCQ(CanonicalCQ canonicalCQ) {
+		IndexedCQ indexedCQ = indexedCQcache.getIfPresent(canonicalCQ.key);
+		if (indexedCQ == null) {
+			// may be computed concurrently by several threads: all of them produce an equivalent index
+			Collection<Function> body = (dependencies != null)
+					? chaseAtoms(canonicalCQ.body)
+					: canonicalCQ.body;
+			indexedCQ = new IndexedCQ(canonicalCQ.head, body);
+			indexedCQcache.put(canonicalCQ.key, indexedCQ);
+		}
+		return indexedCQ;
+	}
+
+	/**
+	 * Homomorphism from q2 into the chase of q1 (null if there is none).
+	 *
+	 * Thread-safe.
+	 */
 	public Substitution computeHomomorphsim(CQIE q1, CQIE q2) {
 
-        IndexedCQ indexedQ1 = indexedCQcache.get(q1);
-        if (indexedQ1 == null) {
-        	Collection<Function> q1body = q1.getBody();
-        	if (dependencies != null)
-        		q1body = chaseAtoms(q1body);
-        	
-        	indexedQ1 = new IndexedCQ(q1.getHead(), q1body);
-    		indexedCQcache.put(q1, indexedQ1);
-        }
+		CanonicalCQ canonicalQ1 = getCanonicalCQ(q1);
+		IndexedCQ indexedQ1 = getIndexedCQ(canonicalQ1);
            
         // just to speed up the check in case there can be no match
         for (Function q2atom : q2.getBody()) 
@@ -150,9 +317,31 @@ public class CQContainmentCheckUnderLIDs {
 				// in particular, !q2atom.isDataFunction() 
 				return null;
 			}
-				
-		return indexedQ1.computeHomomorphism(q2);
-	}	
+
+		Substitution homomorphism = indexedQ1.computeHomomorphism(q2);
+		return (homomorphism == null)
+				? null
+				: canonicalQ1.restoreVariables(homomorphism);
+	}
+
+	/**
+	 * Hit rate, number of loads and evictions of the cache of chased queries
+	 */
+	public CacheStats getCacheStats() {
+		return indexedCQcache.stats();
+	}
+
+	public long getCacheSize() {
+		return indexedCQcache.size();
+	}
+
+	public int getMaxCacheSize() {
+		return maxCacheSize;
+	}
+
+	long getCanonicalCQCacheSize() {
+		return canonicalCQCache.size();
+	}
 
 	static int redundantCounter = 0;
 	public static int twoAtomQs = 0;
@@ -284,7 +473,8 @@ public class CQContainmentCheckUnderLIDs {
 	 * @param to
 	 * @return
 	 */
-	private static Substitution computeSomeHomomorphism(SubstitutionBuilder sb, List<Function> from, Map<Predicate, List<Function>> to) {
+	private static Substitution computeSomeHomomorphism(SubstitutionBuilder sb, List<Function> from,
+														Map<Predicate, ImmutableList<Function>> to) {
 
 		int fromSize = from.size();
 		if (fromSize == 0)
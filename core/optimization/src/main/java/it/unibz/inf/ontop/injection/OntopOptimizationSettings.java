@@ -2,4 +2,19 @@ package it.unibz.inf.ontop.injection;
 
 
 public interface OntopOptimizationSettings extends OntopModelSettings {
+
+    /**
+     * If true, the optimizations applied to the unfolded query are repeated until a fixed point is reached.
+     * Otherwise, the join-like, projection shrinking and boolean expression pull-up optimizations are applied once.
+     *
+     * These optimizations still rely on proposals over an IntermediateQuery: each additional round requires
+     * converting the whole query into an IQ and back.
+     */
+    boolean isPostUnfoldingFixedPointEnabled();
+
+    //--------------------------
+    // Keys
+    //--------------------------
+
+    String POST_UNFOLDING_FIXED_POINT = "ontop.postUnfoldingFixedPoint";
 }
@@ -32,4 +32,9 @@ public class OntopOptimizationSettingsImpl extends OntopModelSettingsImpl
     public static Properties loadDefaultOptimizationProperties() {
         return loadDefaultPropertiesFromFile(OntopOptimizationSettings.class, DEFAULT_FILE);
     }
+
+    @Override
+    public boolean isPostUnfoldingFixedPointEnabled() {
+        return getRequiredBoolean(POST_UNFOLDING_FIXED_POINT);
+    }
 }
@@ -1,6 +1,8 @@
 package it.unibz.inf.ontop.iq.optimizer;
 
 import com.google.common.collect.ImmutableList;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
 import it.unibz.inf.ontop.iq.IntermediateQuery;
 import it.unibz.inf.ontop.iq.exception.EmptyQueryException;
 import it.unibz.inf.ontop.iq.node.QueryNode;
@@ -34,10 +36,12 @@ import java.util.stream.Stream;
  * <p>
  * Assumption: the input query is well-formed wrt projections.
  */
+@Singleton
 public class FlattenUnionOptimizer extends NodeCentricDepthFirstOptimizer<FlattenUnionProposal> {
 
     private static final Logger log = LoggerFactory.getLogger(FlattenUnionOptimizer.class);
 
+    @Inject
     public FlattenUnionOptimizer() {
         super(false);
     }
@@ -45,7 +49,7 @@ public class FlattenUnionOptimizer extends NodeCentricDepthFirstOptimizer<Flatte
     @Override
     public IntermediateQuery optimize(IntermediateQuery query) throws EmptyQueryException {
         IntermediateQuery optimizedQuery = super.optimize(query);
-        log.trace("New query after union flattening: \n" + optimizedQuery.toString());
+        log.trace("New query after union flattening: \n{}", optimizedQuery);
         return optimizedQuery;
     }
 
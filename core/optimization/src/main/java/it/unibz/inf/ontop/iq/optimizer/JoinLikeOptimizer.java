@@ -1,7 +1,16 @@
 package it.unibz.inf.ontop.iq.optimizer;
 
+import it.unibz.inf.ontop.iq.IntermediateQuery;
+import it.unibz.inf.ontop.iq.exception.EmptyQueryException;
+
 /**
  *
  */
 public interface JoinLikeOptimizer extends IntermediateQueryOptimizer {
+
+    /**
+     * Same as {@link #optimize(IntermediateQuery)} but without lifting the bindings in-between,
+     * for the callers lifting them over the IQ themselves (spares the conversions of the query).
+     */
+    IntermediateQuery optimizeWithoutBindingLift(IntermediateQuery query) throws EmptyQueryException;
 }
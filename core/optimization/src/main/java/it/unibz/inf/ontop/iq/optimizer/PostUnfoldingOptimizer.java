@@ -0,0 +1,23 @@
+package it.unibz.inf.ontop.iq.optimizer;
+
+import it.unibz.inf.ontop.dbschema.DBMetadata;
+import it.unibz.inf.ontop.iq.IQ;
+import it.unibz.inf.ontop.iq.IntermediateQuery;
+import it.unibz.inf.ontop.iq.exception.EmptyQueryException;
+import it.unibz.inf.ontop.iq.tools.ExecutorRegistry;
+import it.unibz.inf.ontop.iq.tools.ReformulationTrace;
+
+/**
+ * Optimizes the unfolded query before the generation of the native query.
+ *
+ * Single driver for the binding lift, boolean expression, projection shrinking,
+ * join-like and union flattening optimizations.
+ */
+public interface PostUnfoldingOptimizer {
+
+    /**
+     * Each pass is recorded in the trace
+     */
+    IntermediateQuery optimize(IQ unfoldedQuery, DBMetadata dbMetadata, ExecutorRegistry executorRegistry,
+                               ReformulationTrace trace) throws EmptyQueryException;
+}
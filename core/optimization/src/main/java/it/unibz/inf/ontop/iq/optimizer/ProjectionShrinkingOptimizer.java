@@ -2,6 +2,8 @@ package it.unibz.inf.ontop.iq.optimizer;
 
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
 import it.unibz.inf.ontop.iq.exception.EmptyQueryException;
 import it.unibz.inf.ontop.iq.node.*;
 import it.unibz.inf.ontop.model.term.ImmutableExpression;
@@ -16,8 +18,12 @@ import it.unibz.inf.ontop.utils.ImmutableCollectors;
 import java.util.*;
 import java.util.stream.Collectors;
 
+@Singleton
 public class ProjectionShrinkingOptimizer implements IntermediateQueryOptimizer {
 
+    @Inject
+    public ProjectionShrinkingOptimizer() {
+    }
 
     @Override
     public IntermediateQuery optimize(IntermediateQuery query) {
@@ -12,6 +12,7 @@ import it.unibz.inf.ontop.iq.tools.IQConverter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Optional;
 import java.util.UUID;
 
 /**
@@ -38,30 +39,46 @@ public class FixedPointJoinLikeOptimizer implements JoinLikeOptimizer {
         UUID conversionVersion = UUID.randomUUID();
         boolean converged;
         do {
-
-            UUID oldVersionNumber;
-            do {
-                oldVersionNumber = query.getVersionNumber();
-                query = leftJoinOptimizer.optimize(query);
-                log.debug("New query after left join optimization: \n" + query.toString());
-
-                query = joinOptimizer.optimize(query);
-                log.debug("New query after join optimization: \n" + query.toString());
-
-            } while (oldVersionNumber != query.getVersionNumber());
+            query = optimizeWithoutBindingLift(query);
 
             converged = (conversionVersion == query.getVersionNumber());
             if (!converged) {
-                query = liftBinding(query);
-                conversionVersion = query.getVersionNumber();
+                Optional<IntermediateQuery> liftedQuery = liftBinding(query);
+                // Nothing lifted: the join-like optimizers have already reached their fixed point on this query
+                converged = !liftedQuery.isPresent();
+                if (!converged) {
+                    query = liftedQuery.get();
+                    conversionVersion = query.getVersionNumber();
+                }
             }
 
         } while (!converged);
         return query;
     }
 
-    private IntermediateQuery liftBinding(IntermediateQuery query) throws EmptyQueryException {
+    @Override
+    public IntermediateQuery optimizeWithoutBindingLift(IntermediateQuery query) throws EmptyQueryException {
+        UUID oldVersionNumber;
+        do {
+            oldVersionNumber = query.getVersionNumber();
+            query = leftJoinOptimizer.optimize(query);
+            log.debug("New query after left join optimization: \n{}", query);
+
+            query = joinOptimizer.optimize(query);
+            log.debug("New query after join optimization: \n{}", query);
+
+        } while (oldVersionNumber != query.getVersionNumber());
+        return query;
+    }
+
+    /**
+     * Returns empty if the binding lift does not change the query (spares its conversion back)
+     */
+    private Optional<IntermediateQuery> liftBinding(IntermediateQuery query) throws EmptyQueryException {
         IQ iq = iqConverter.convert(query);
-        return iqConverter.convert(iq.liftBinding(), query.getDBMetadata(), query.getExecutorRegistry());
+        IQ liftedIQ = iq.liftBinding();
+        if (liftedIQ.equals(iq))
+            return Optional.empty();
+        return Optional.of(iqConverter.convert(liftedIQ, query.getDBMetadata(), query.getExecutorRegistry()));
     }
 }
@@ -0,0 +1,120 @@
+package it.unibz.inf.ontop.iq.optimizer.impl;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import it.unibz.inf.ontop.dbschema.DBMetadata;
+import it.unibz.inf.ontop.injection.OntopOptimizationSettings;
+import it.unibz.inf.ontop.iq.IQ;
+import it.unibz.inf.ontop.iq.IntermediateQuery;
+import it.unibz.inf.ontop.iq.exception.EmptyQueryException;
+import it.unibz.inf.ontop.iq.optimizer.*;
+import it.unibz.inf.ontop.iq.tools.ExecutorRegistry;
+import it.unibz.inf.ontop.iq.tools.IQConverter;
+import it.unibz.inf.ontop.iq.tools.ReformulationTrace;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.UUID;
+
+/**
+ * The bindings and the unions are lifted directly over the IQ, which is then converted ONCE
+ * into an IntermediateQuery for the optimizers still relying on proposals
+ * (boolean expression pull-up, projection shrinking, join-like and union flattening).
+ *
+ * These optimizers have not been ported to IQTree. Repeating them until a fixed point is reached
+ * would therefore require converting the query back into an IQ (and forth again) in each round,
+ * which dominates the optimization time of large unions. By default, they are applied once:
+ * the bindings they expose (e.g. after a self-join elimination) are simply not lifted.
+ * The rounds are only repeated when the fixed point is enabled (see OntopOptimizationSettings).
+ */
+@Singleton
+public class PostUnfoldingOptimizerImpl implements PostUnfoldingOptimizer {
+
+    private static final Logger log = LoggerFactory.getLogger(PostUnfoldingOptimizerImpl.class);
+    // Safety net: a fixed point is normally reached after 2 or 3 rounds
+    private static final int MAX_ROUNDS = 10;
+
+    private final UnionAndBindingLiftOptimizer bindingLiftOptimizer;
+    private final PushUpBooleanExpressionOptimizer pullUpExpressionOptimizer;
+    private final ProjectionShrinkingOptimizer projectionShrinkingOptimizer;
+    private final JoinLikeOptimizer joinLikeOptimizer;
+    private final FlattenUnionOptimizer flattenUnionOptimizer;
+    private final IQConverter iqConverter;
+    private final boolean isFixedPointEnabled;
+
+    @Inject
+    private PostUnfoldingOptimizerImpl(UnionAndBindingLiftOptimizer bindingLiftOptimizer,
+                                       PushUpBooleanExpressionOptimizer pullUpExpressionOptimizer,
+                                       ProjectionShrinkingOptimizer projectionShrinkingOptimizer,
+                                       JoinLikeOptimizer joinLikeOptimizer,
+                                       FlattenUnionOptimizer flattenUnionOptimizer,
+                                       IQConverter iqConverter,
+                                       OntopOptimizationSettings settings) {
+        this.bindingLiftOptimizer = bindingLiftOptimizer;
+        this.pullUpExpressionOptimizer = pullUpExpressionOptimizer;
+        this.projectionShrinkingOptimizer = projectionShrinkingOptimizer;
+        this.joinLikeOptimizer = joinLikeOptimizer;
+        this.flattenUnionOptimizer = flattenUnionOptimizer;
+        this.iqConverter = iqConverter;
+        this.isFixedPointEnabled = settings.isPostUnfoldingFixedPointEnabled();
+    }
+
+    @Override
+    public IntermediateQuery optimize(IQ unfoldedQuery, DBMetadata dbMetadata, ExecutorRegistry executorRegistry,
+                                      ReformulationTrace trace) throws EmptyQueryException {
+        IQ iq = unfoldedQuery;
+        for (int round = 1; ; round++) {
+            long start = System.currentTimeMillis();
+            IQ liftedIQ = bindingLiftOptimizer.optimize(iq);
+            trace.recordPhase(getPhaseName("binding lift", round), System.currentTimeMillis() - start, liftedIQ);
+            log.debug("New query after substitution lift optimization: \n{}", liftedIQ);
+
+            start = System.currentTimeMillis();
+            IntermediateQuery query = iqConverter.convert(liftedIQ, dbMetadata, executorRegistry);
+            trace.recordPhase(getPhaseName("conversion into an intermediate query", round),
+                    System.currentTimeMillis() - start);
+            UUID convertedVersion = query.getVersionNumber();
+
+            start = System.currentTimeMillis();
+            query = pullUpExpressionOptimizer.optimize(query);
+            trace.recordPhase(getPhaseName("boolean expression pull-up", round), System.currentTimeMillis() - start, query);
+            log.debug("After pushing up boolean expressions: \n{}", query);
+
+            start = System.currentTimeMillis();
+            query = projectionShrinkingOptimizer.optimize(query);
+            trace.recordPhase(getPhaseName("projection shrinking", round), System.currentTimeMillis() - start, query);
+            log.debug("After projection shrinking: \n{}", query);
+
+            // The bindings are lifted at the beginning of the next round
+            start = System.currentTimeMillis();
+            query = joinLikeOptimizer.optimizeWithoutBindingLift(query);
+            trace.recordPhase(getPhaseName("join-like fixed point", round), System.currentTimeMillis() - start, query);
+            log.debug("New query after fixed point join optimization: \n{}", query);
+
+            start = System.currentTimeMillis();
+            query = flattenUnionOptimizer.optimize(query);
+            trace.recordPhase(getPhaseName("union flattening", round), System.currentTimeMillis() - start, query);
+            log.debug("New query after flattening Unions: \n{}", query);
+
+            // Untouched by the optimizers relying on proposals
+            if (!isFixedPointEnabled || query.getVersionNumber() == convertedVersion)
+                return query;
+
+            start = System.currentTimeMillis();
+            IQ optimizedIQ = iqConverter.convert(query);
+            trace.recordPhase(getPhaseName("conversion into an IQ", round), System.currentTimeMillis() - start);
+
+            if (optimizedIQ.equals(liftedIQ))
+                return query;
+            if (round >= MAX_ROUNDS) {
+                log.warn("No fixed point reached after {} rounds of post-unfolding optimization", MAX_ROUNDS);
+                return query;
+            }
+            iq = optimizedIQ;
+        }
+    }
+
+    private static String getPhaseName(String passName, int round) {
+        return passName + " (round " + round + ")";
+    }
+}
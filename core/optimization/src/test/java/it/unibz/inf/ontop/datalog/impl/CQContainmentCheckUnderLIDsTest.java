@@ -0,0 +1,129 @@
+package it.unibz.inf.ontop.datalog.impl;
+
+import com.google.common.collect.ImmutableList;
+import it.unibz.inf.ontop.datalog.CQIE;
+import it.unibz.inf.ontop.datalog.LinearInclusionDependency;
+import it.unibz.inf.ontop.model.atom.AtomPredicate;
+import it.unibz.inf.ontop.model.term.Function;
+import it.unibz.inf.ontop.model.term.Variable;
+import it.unibz.inf.ontop.substitution.Substitution;
+import it.unibz.inf.ontop.substitution.impl.SubstitutionUtilities;
+import it.unibz.inf.ontop.substitution.impl.UnifierUtilities;
+import org.junit.Test;
+
+import java.util.stream.IntStream;
+
+import static it.unibz.inf.ontop.NoDependencyTestDBMetadata.TABLE1_AR2;
+import static it.unibz.inf.ontop.NoDependencyTestDBMetadata.TABLE2_AR1;
+import static it.unibz.inf.ontop.OptimizationTestingTools.*;
+import static org.junit.Assert.*;
+
+public class CQContainmentCheckUnderLIDsTest {
+
+    private static final AtomPredicate ANS1 = ATOM_FACTORY.getRDFAnswerPredicate(1);
+    private static final Variable X = TERM_FACTORY.getVariable("x");
+    private static final Variable Y = TERM_FACTORY.getVariable("y");
+    private static final Variable A = TERM_FACTORY.getVariable("a");
+    private static final Variable B = TERM_FACTORY.getVariable("b");
+
+    /**
+     * Foreign key from the second attribute of TABLE1_AR2 to TABLE2_AR1
+     */
+    private static CQContainmentCheckUnderLIDs createCQC() {
+        Variable t1 = TERM_FACTORY.getVariable("t1");
+        Variable p1 = TERM_FACTORY.getVariable("p1");
+        LinearInclusionDependency fk = new LinearInclusionDependency(
+                TERM_FACTORY.getFunction(TABLE2_AR1, p1),
+                TERM_FACTORY.getFunction(TABLE1_AR2, t1, p1));
+
+        return new CQContainmentCheckUnderLIDs(ImmutableList.of(fk), DATALOG_FACTORY,
+                new UnifierUtilities(TERM_FACTORY), new SubstitutionUtilities(TERM_FACTORY), TERM_FACTORY);
+    }
+
+    // ans(v1) :- TABLE1_AR2(v1, v2)
+    private static CQIE createQuery(Variable v1, Variable v2) {
+        return DATALOG_FACTORY.getCQIE(TERM_FACTORY.getFunction(ANS1, v1),
+                TERM_FACTORY.getFunction(TABLE1_AR2, v1, v2));
+    }
+
+    // ans(x) :- TABLE1_AR2(x, y), TABLE2_AR1(y)
+    private static CQIE createJoinQuery() {
+        Function head = TERM_FACTORY.getFunction(ANS1, X);
+        return DATALOG_FACTORY.getCQIE(head,
+                TERM_FACTORY.getFunction(TABLE1_AR2, X, Y),
+                TERM_FACTORY.getFunction(TABLE2_AR1, Y));
+    }
+
+    @Test
+    public void testHomomorphismIntoChase() {
+        CQContainmentCheckUnderLIDs cqc = createCQC();
+
+        Substitution homomorphism = cqc.computeHomomorphsim(createQuery(A, B), createJoinQuery());
+        assertNotNull(homomorphism);
+        // the original variables of the first query, not the canonical ones
+        assertEquals(A, homomorphism.get(X));
+        assertEquals(B, homomorphism.get(Y));
+
+        assertNull(createCQC().computeHomomorphsim(createQuery(A, B),
+                DATALOG_FACTORY.getCQIE(TERM_FACTORY.getFunction(ANS1, X),
+                        TERM_FACTORY.getFunction(TABLE2_AR1, X))));
+    }
+
+    @Test
+    public void testChaseSharedByRenamedQueries() {
+        CQContainmentCheckUnderLIDs cqc = createCQC();
+
+        Substitution homomorphism1 = cqc.computeHomomorphsim(createQuery(A, B), createJoinQuery());
+        Substitution homomorphism2 = cqc.computeHomomorphsim(createQuery(X, Y), createJoinQuery());
+
+        assertEquals(A, homomorphism1.get(X));
+        assertEquals(X, homomorphism2.get(X));
+        assertEquals(Y, homomorphism2.get(Y));
+        assertEquals(1, cqc.getCacheSize());
+        assertEquals(1, cqc.getCacheStats().hitCount());
+    }
+
+    /**
+     * The canonical form is memoized per query object
+     */
+    @Test
+    public void testCanonicalFormMemoizedPerQuery() {
+        CQContainmentCheckUnderLIDs cqc = createCQC();
+        CQIE query = createQuery(A, B);
+
+        Substitution homomorphism1 = cqc.computeHomomorphsim(query, createJoinQuery());
+        Substitution homomorphism2 = cqc.computeHomomorphsim(query, createJoinQuery());
+        assertEquals(A, homomorphism1.get(X));
+        assertEquals(homomorphism1.getMap(), homomorphism2.getMap());
+        assertEquals(1, cqc.getCanonicalCQCacheSize());
+
+        // Equal but distinct query
+        CQIE equalQuery = createQuery(A, B);
+        cqc.computeHomomorphsim(equalQuery, createJoinQuery());
+        assertEquals(2, cqc.getCanonicalCQCacheSize());
+        assertEquals(1, cqc.getCacheSize());
+    }
+
+    @Test
+    public void testBoundedCache() {
+        CQContainmentCheckUnderLIDs cqc = new CQContainmentCheckUnderLIDs(ImmutableList.of(), DATALOG_FACTORY,
+                new UnifierUtilities(TERM_FACTORY), new SubstitutionUtilities(TERM_FACTORY), TERM_FACTORY, 1);
+
+        cqc.computeHomomorphsim(createQuery(A, B), createQuery(X, Y));
+        cqc.computeHomomorphsim(createQuery(A, A), createQuery(X, Y));
+        assertEquals(1, cqc.getCacheSize());
+        assertEquals(1, cqc.getCacheStats().evictionCount());
+    }
+
+    @Test
+    public void testSharedByThreads() {
+        CQContainmentCheckUnderLIDs cqc = createCQC();
+
+        assertTrue(IntStream.range(0, 1000).parallel()
+                .mapToObj(i -> cqc.computeHomomorphsim(
+                        createQuery(TERM_FACTORY.getVariable("a" + (i % 10)), TERM_FACTORY.getVariable("b" + i)),
+                        createJoinQuery()))
+                .allMatch(h -> h != null));
+        assertEquals(1, cqc.getCacheSize());
+    }
+}
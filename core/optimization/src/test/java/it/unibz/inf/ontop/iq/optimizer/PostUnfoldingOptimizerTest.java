@@ -0,0 +1,235 @@
+package it.unibz.inf.ontop.iq.optimizer;
+
+import it.unibz.inf.ontop.dbschema.*;
+import it.unibz.inf.ontop.injection.OntopOptimizationConfiguration;
+import it.unibz.inf.ontop.injection.OntopOptimizationSettings;
+import it.unibz.inf.ontop.iq.IQ;
+import it.unibz.inf.ontop.iq.IntermediateQuery;
+import it.unibz.inf.ontop.iq.IntermediateQueryBuilder;
+import it.unibz.inf.ontop.iq.equivalence.IQSyntacticEquivalenceChecker;
+import it.unibz.inf.ontop.iq.exception.EmptyQueryException;
+import it.unibz.inf.ontop.iq.node.ConstructionNode;
+import it.unibz.inf.ontop.iq.node.InnerJoinNode;
+import it.unibz.inf.ontop.iq.tools.ReformulationTrace;
+import it.unibz.inf.ontop.model.atom.AtomPredicate;
+import it.unibz.inf.ontop.model.atom.DistinctVariableOnlyDataAtom;
+import it.unibz.inf.ontop.model.atom.RelationPredicate;
+import it.unibz.inf.ontop.model.term.ImmutableExpression;
+import it.unibz.inf.ontop.model.term.Variable;
+import it.unibz.inf.ontop.model.term.functionsymbol.ExpressionOperation;
+import it.unibz.inf.ontop.utils.VariableGenerator;
+import it.unibz.inf.ontop.utils.impl.LegacyVariableGenerator;
+import org.junit.Test;
+
+import java.sql.Types;
+import java.util.Properties;
+
+import static it.unibz.inf.ontop.OptimizationTestingTools.*;
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+
+/**
+ * Fixed point of the post-unfolding optimizations (when enabled) and single round (by default)
+ */
+public class PostUnfoldingOptimizerTest {
+
+    private final static RelationPredicate TABLE1_PREDICATE;
+    private final static RelationPredicate TABLE2_PREDICATE;
+    private final static AtomPredicate ANS1_PREDICATE = ATOM_FACTORY.getRDFAnswerPredicate(3);
+    private final static Variable M = TERM_FACTORY.getVariable("m");
+    private final static Variable M1 = TERM_FACTORY.getVariable("m1");
+    private final static Variable N = TERM_FACTORY.getVariable("n");
+    private final static Variable N1 = TERM_FACTORY.getVariable("n1");
+    private final static Variable O = TERM_FACTORY.getVariable("o");
+    private final static Variable O1 = TERM_FACTORY.getVariable("o1");
+
+    private final static ImmutableExpression EXPRESSION1 = TERM_FACTORY.getImmutableExpression(
+            ExpressionOperation.EQ, M, N);
+
+    private static final DBMetadata METADATA;
+    private static final PostUnfoldingOptimizer FIXED_POINT_OPTIMIZER;
+
+    static {
+        BasicDBMetadata dbMetadata = createDummyMetadata();
+        QuotedIDFactory idFactory = dbMetadata.getQuotedIDFactory();
+
+        /*
+         * Table 1: unique constraint over the first column
+         */
+        DatabaseRelationDefinition table1Def = dbMetadata.createDatabaseRelation(idFactory.createRelationID(null, "table1"));
+        Attribute col1T1 = table1Def.addAttribute(idFactory.createAttributeID("col1"), Types.INTEGER, null, false);
+        table1Def.addAttribute(idFactory.createAttributeID("col2"), Types.INTEGER, null, false);
+        table1Def.addAttribute(idFactory.createAttributeID("col3"), Types.INTEGER, null, false);
+        table1Def.addUniqueConstraint(UniqueConstraint.primaryKeyOf(col1T1));
+        TABLE1_PREDICATE = table1Def.getAtomPredicate();
+
+        /*
+         * Table 2: unique constraint over the second column
+         */
+        DatabaseRelationDefinition table2Def = dbMetadata.createDatabaseRelation(idFactory.createRelationID(null, "table2"));
+        table2Def.addAttribute(idFactory.createAttributeID("col1"), Types.INTEGER, null, false);
+        Attribute col2T2 = table2Def.addAttribute(idFactory.createAttributeID("col2"), Types.INTEGER, null, false);
+        table2Def.addAttribute(idFactory.createAttributeID("col3"), Types.INTEGER, null, false);
+        table2Def.addUniqueConstraint(UniqueConstraint.primaryKeyOf(col2T2));
+        TABLE2_PREDICATE = table2Def.getAtomPredicate();
+
+        dbMetadata.freeze();
+        METADATA = dbMetadata;
+
+        Properties properties = new Properties();
+        properties.put(VariableGenerator.class.getCanonicalName(), LegacyVariableGenerator.class.getCanonicalName());
+        properties.put(OntopOptimizationSettings.POST_UNFOLDING_FIXED_POINT, "true");
+        FIXED_POINT_OPTIMIZER = OntopOptimizationConfiguration.defaultBuilder()
+                .properties(properties)
+                .enableTestMode()
+                .build()
+                .getInjector()
+                .getInstance(PostUnfoldingOptimizer.class);
+    }
+
+    /**
+     * The binding produced by the self-join elimination is only lifted in the second round
+     */
+    @Test
+    public void testSelfJoinEliminationWithBinding() throws EmptyQueryException {
+        IntermediateQueryBuilder queryBuilder = createQueryBuilder(METADATA);
+        DistinctVariableOnlyDataAtom projectionAtom = ATOM_FACTORY.getDistinctVariableOnlyDataAtom(ANS1_PREDICATE, M, N, O);
+        ConstructionNode constructionNode = IQ_FACTORY.createConstructionNode(projectionAtom.getVariables());
+        queryBuilder.init(projectionAtom, constructionNode);
+        InnerJoinNode joinNode = IQ_FACTORY.createInnerJoinNode(EXPRESSION1);
+        queryBuilder.addChild(constructionNode, joinNode);
+        queryBuilder.addChild(joinNode, IQ_FACTORY.createExtensionalDataNode(
+                ATOM_FACTORY.getDataAtom(TABLE1_PREDICATE, M, N, O1)));
+        queryBuilder.addChild(joinNode, IQ_FACTORY.createExtensionalDataNode(
+                ATOM_FACTORY.getDataAtom(TABLE1_PREDICATE, M, N1, O)));
+
+        IntermediateQueryBuilder expectedQueryBuilder = createQueryBuilder(METADATA);
+        ConstructionNode expectedConstructionNode = IQ_FACTORY.createConstructionNode(projectionAtom.getVariables(),
+                SUBSTITUTION_FACTORY.getSubstitution(M, N));
+        expectedQueryBuilder.init(projectionAtom, expectedConstructionNode);
+        expectedQueryBuilder.addChild(expectedConstructionNode, IQ_FACTORY.createExtensionalDataNode(
+                ATOM_FACTORY.getDataAtom(TABLE1_PREDICATE, N, N, O)));
+
+        IntermediateQuery optimizedQuery = optimizeAndCompare(queryBuilder.build(), expectedQueryBuilder.build());
+        assertEquals(1, getRoundCount(optimizedQuery));
+    }
+
+    @Test
+    public void testSelfJoinElimination() throws EmptyQueryException {
+        IntermediateQueryBuilder queryBuilder = createQueryBuilder(METADATA);
+        DistinctVariableOnlyDataAtom projectionAtom = ATOM_FACTORY.getDistinctVariableOnlyDataAtom(ANS1_PREDICATE, M, N, O);
+        ConstructionNode constructionNode = IQ_FACTORY.createConstructionNode(projectionAtom.getVariables());
+        queryBuilder.init(projectionAtom, constructionNode);
+        InnerJoinNode joinNode = IQ_FACTORY.createInnerJoinNode();
+        queryBuilder.addChild(constructionNode, joinNode);
+        queryBuilder.addChild(joinNode, IQ_FACTORY.createExtensionalDataNode(
+                ATOM_FACTORY.getDataAtom(TABLE1_PREDICATE, M, N, O1)));
+        queryBuilder.addChild(joinNode, IQ_FACTORY.createExtensionalDataNode(
+                ATOM_FACTORY.getDataAtom(TABLE1_PREDICATE, M, N1, O)));
+        queryBuilder.addChild(joinNode, IQ_FACTORY.createExtensionalDataNode(
+                ATOM_FACTORY.getDataAtom(TABLE2_PREDICATE, M, N, O1)));
+        queryBuilder.addChild(joinNode, IQ_FACTORY.createExtensionalDataNode(
+                ATOM_FACTORY.getDataAtom(TABLE2_PREDICATE, M1, N, O)));
+
+        IntermediateQuery optimizedQuery = optimizeAndCompare(queryBuilder.build(), createOptimizedJoinQuery());
+        // The re-optimization of the result is immediate
+        assertEquals(1, getRoundCount(optimizedQuery));
+    }
+
+    /**
+     * No pass changes the query: no further round
+     */
+    @Test
+    public void testOptimizedQuery() throws EmptyQueryException {
+        ReformulationTrace trace = ReformulationTrace.create();
+        optimizeAndCompare(createOptimizedJoinQuery(), createOptimizedJoinQuery(), trace);
+        assertEquals(1, countRounds(trace));
+    }
+
+    /**
+     * By default, the query is converted once into an intermediate query and never back
+     */
+    @Test
+    public void testSingleRoundByDefault() throws EmptyQueryException {
+        IntermediateQueryBuilder queryBuilder = createQueryBuilder(METADATA);
+        DistinctVariableOnlyDataAtom projectionAtom = ATOM_FACTORY.getDistinctVariableOnlyDataAtom(ANS1_PREDICATE, M, N, O);
+        ConstructionNode constructionNode = IQ_FACTORY.createConstructionNode(projectionAtom.getVariables());
+        queryBuilder.init(projectionAtom, constructionNode);
+        InnerJoinNode joinNode = IQ_FACTORY.createInnerJoinNode(EXPRESSION1);
+        queryBuilder.addChild(constructionNode, joinNode);
+        queryBuilder.addChild(joinNode, IQ_FACTORY.createExtensionalDataNode(
+                ATOM_FACTORY.getDataAtom(TABLE1_PREDICATE, M, N, O1)));
+        queryBuilder.addChild(joinNode, IQ_FACTORY.createExtensionalDataNode(
+                ATOM_FACTORY.getDataAtom(TABLE1_PREDICATE, M, N1, O)));
+        IntermediateQuery query = queryBuilder.build();
+
+        ReformulationTrace trace = ReformulationTrace.create();
+        POST_UNFOLDING_OPTIMIZER.optimize(IQ_CONVERTER.convert(query), query.getDBMetadata(),
+                query.getExecutorRegistry(), trace);
+        System.out.println(trace.getSummary());
+
+        assertEquals(1, countRounds(trace));
+        assertEquals(1, countPhases(trace, "conversion into an intermediate query"));
+        assertEquals(0, countPhases(trace, "conversion into an IQ"));
+    }
+
+    private static IntermediateQuery createOptimizedJoinQuery() {
+        IntermediateQueryBuilder queryBuilder = createQueryBuilder(METADATA);
+        DistinctVariableOnlyDataAtom projectionAtom = ATOM_FACTORY.getDistinctVariableOnlyDataAtom(ANS1_PREDICATE, M, N, O);
+        ConstructionNode constructionNode = IQ_FACTORY.createConstructionNode(projectionAtom.getVariables());
+        queryBuilder.init(projectionAtom, constructionNode);
+        InnerJoinNode joinNode = IQ_FACTORY.createInnerJoinNode();
+        queryBuilder.addChild(constructionNode, joinNode);
+        queryBuilder.addChild(joinNode, IQ_FACTORY.createExtensionalDataNode(
+                ATOM_FACTORY.getDataAtom(TABLE1_PREDICATE, M, N, O)));
+        queryBuilder.addChild(joinNode, IQ_FACTORY.createExtensionalDataNode(
+                ATOM_FACTORY.getDataAtom(TABLE2_PREDICATE, M, N, O)));
+        return queryBuilder.build();
+    }
+
+    private static IntermediateQuery optimizeAndCompare(IntermediateQuery initialQuery,
+                                                        IntermediateQuery expectedQuery) throws EmptyQueryException {
+        ReformulationTrace trace = ReformulationTrace.create();
+        IntermediateQuery optimizedQuery = optimizeAndCompare(initialQuery, expectedQuery, trace);
+        // The self-join elimination changes the query: at least a second round checks the fixed point
+        assertTrue(countRounds(trace) >= 2);
+        return optimizedQuery;
+    }
+
+    private static IntermediateQuery optimizeAndCompare(IntermediateQuery initialQuery, IntermediateQuery expectedQuery,
+                                                        ReformulationTrace trace) throws EmptyQueryException {
+        System.out.println("Initial query: " + initialQuery);
+        System.out.println("Expected query: " + expectedQuery);
+        IntermediateQuery optimizedQuery = optimize(initialQuery, trace);
+        System.out.println("Optimized query: " + optimizedQuery);
+        System.out.println(trace.getSummary());
+
+        assertTrue(IQSyntacticEquivalenceChecker.areEquivalent(optimizedQuery, expectedQuery));
+        return optimizedQuery;
+    }
+
+    private static IntermediateQuery optimize(IntermediateQuery query, ReformulationTrace trace)
+            throws EmptyQueryException {
+        IQ iq = IQ_CONVERTER.convert(query);
+        return FIXED_POINT_OPTIMIZER.optimize(iq, query.getDBMetadata(), query.getExecutorRegistry(), trace);
+    }
+
+    /**
+     * Number of rounds needed for re-optimizing an already optimized query
+     */
+    private static int getRoundCount(IntermediateQuery optimizedQuery) throws EmptyQueryException {
+        ReformulationTrace trace = ReformulationTrace.create();
+        optimize(optimizedQuery, trace);
+        return countRounds(trace);
+    }
+
+    private static int countRounds(ReformulationTrace trace) {
+        return countPhases(trace, "binding lift");
+    }
+
+    private static int countPhases(ReformulationTrace trace, String passName) {
+        return (int) trace.getPhases().stream()
+                .filter(p -> p.getName().startsWith(passName + " (round"))
+                .count();
+    }
+}
@@ -91,5 +91,13 @@ public class QuotedIDFactoryMySQL implements QuotedIDFactory {
 	@Override
 	public String getIDQuotationString() {
 		return quotationString;
-	}	
+	}
+
+	/**
+	 * used only in RDBMetadataSnapshotTools
+	 */
+
+	boolean areTableNamesCaseSensitive() {
+		return caseSensitiveTableNames;
+	}
 }
@@ -21,13 +21,26 @@ package it.unibz.inf.ontop.dbschema;
 */
 
 
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import it.unibz.inf.ontop.model.type.TypeFactory;
+import it.unibz.inf.ontop.utils.ImmutableCollectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+import java.nio.charset.StandardCharsets;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Retrieves the database metadata (table schema and database constraints)
@@ -182,6 +195,22 @@ public class RDBMetadataExtractionTools {
 	 */
 
 	public static void loadMetadata(RDBMetadata metadata, Connection conn, Set<RelationID> realTables) throws SQLException {
+		loadMetadata(metadata, conn, realTables, 1, () -> conn);
+	}
+
+	/**
+	 * Same as above, but the catalog queries (columns, primary keys, unique indexes and foreign keys)
+	 * are distributed over up to maxConnections connections: the given one and additional ones
+	 * obtained from the connectionSupplier (which are closed at the end).
+	 *
+	 * When the complete list of tables is retrieved, the columns are obtained by one query per schema
+	 * instead of one query per table.
+	 *
+	 * The metadata object itself is only modified by the calling thread.
+	 */
+
+	public static void loadMetadata(RDBMetadata metadata, Connection conn, @Nullable Set<RelationID> realTables,
+									int maxConnections, ConnectionSupplier connectionSupplier) throws SQLException {
 
 		if (printouts)
 			System.out.println("GETTING METADATA WITH " + conn + " ON " + realTables);
@@ -191,16 +220,17 @@ public class RDBMetadataExtractionTools {
 
 		List<RelationID> seedRelationIds;
 		QuotedIDFactory idfac =  metadata.getQuotedIDFactory();
+		boolean isCompleteTableList = realTables == null || realTables.isEmpty();
 
 		if (productName.contains("Oracle")) {
 			String defaultSchema = getOracleDefaultOwner(conn);
-			if (realTables == null || realTables.isEmpty())
+			if (isCompleteTableList)
 				seedRelationIds = getTableList(conn, new OracleRelationListProvider(idfac, defaultSchema), idfac);
 			else
 				seedRelationIds = getTableList(defaultSchema, realTables, idfac);
 		}
 		else {
-			if (realTables == null || realTables.isEmpty())  {
+			if (isCompleteTableList)  {
 				if (productName.contains("DB2"))
 					// select CURRENT SCHEMA  from  SYSIBM.SYSDUMMY1
 					seedRelationIds = getTableListDefault(md,
@@ -225,51 +255,73 @@ public class RDBMetadataExtractionTools {
 			dt = MySQLTypeFixer;
 		else if (productName.contains("Microsoft SQL Server"))
 			dt = SQLServerTypeFixer;
-
-		List<DatabaseRelationDefinition> extractedRelations = new LinkedList<>();
+		DatatypeNormalizer typeFixer = dt;
 
         String catalog = getCatalog(metadata, conn);
 
-        for (RelationID seedId : seedRelationIds) {
+		// all the tables of a schema are needed: one query for the whole schema
+		// (the seedId without a schema are still queried one by one)
+		Map<String, Set<RelationID>> batchedSchemas = new LinkedHashMap<>();
+		List<ColumnQuery> columnQueries = new ArrayList<>();
+		for (RelationID seedId : seedRelationIds) {
+			if (isCompleteTableList && seedId.hasSchema())
+				batchedSchemas.computeIfAbsent(seedId.getSchemaName(), s -> new HashSet<>()).add(seedId);
+			else
+				columnQueries.add(new ColumnQuery(seedId.getSchemaName(), seedId.getTableName(), false));
+		}
+		batchedSchemas.keySet().forEach(s -> columnQueries.add(new ColumnQuery(s, "%", true)));
+
+		List<List<RelationColumns>> columnResults = runCatalogQueries(columnQueries,
+				(m, q) -> getColumns(m, catalog, q, idfac, typeFixer), conn, maxConnections, connectionSupplier);
+
+		Map<RelationID, RelationColumns> batchedColumns = new HashMap<>();
+		Iterator<List<RelationColumns>> resultIterator = columnResults.iterator();
+		List<List<RelationColumns>> seedResults = new ArrayList<>();
+		for (ColumnQuery query : columnQueries) {
+			List<RelationColumns> result = resultIterator.next();
+			if (query.isBatch) {
+				// the table name pattern may match tables that are not seeds (e.g., Oracle system tables)
+				Set<RelationID> seeds = batchedSchemas.get(query.schema);
+				result.stream()
+						.filter(r -> seeds.contains(r.relationId))
+						.forEach(r -> batchedColumns.put(r.relationId, r));
+			}
+			else
+				seedResults.add(result);
+		}
+
+		// the relations are created in the order of the seeds
+		List<DatabaseRelationDefinition> extractedRelations = new ArrayList<>();
+		Iterator<List<RelationColumns>> seedResultIterator = seedResults.iterator();
+		for (RelationID seedId : seedRelationIds) {
 			// the same seedId can be mapped to many tables (if the seedId has no schema)
 			// we collect attributes from all of them
-			DatabaseRelationDefinition currentRelation = null;
-
-			// catalog is ignored for now (rs.getString("TABLE_CAT"))
-            try (ResultSet rs = md.getColumns(catalog, seedId.getSchemaName(), seedId.getTableName(), null)) {
-				while (rs.next()) {
-					String schema = rs.getString("TABLE_SCHEM");
-					// MySQL workaround
-					if (schema == null)
-						schema = rs.getString("TABLE_CAT");
-
-					RelationID relationId = RelationID.createRelationIdFromDatabaseRecord(idfac, schema,
-										rs.getString("TABLE_NAME"));
-					QuotedID attributeId = QuotedID.createIdFromDatabaseRecord(idfac, rs.getString("COLUMN_NAME"));
-					if (printouts)
-						System.out.println("         " + relationId + "." + attributeId);
-
-					if (currentRelation == null || !currentRelation.getID().equals(relationId)) {
-						// switch to the next database relation
-						currentRelation = metadata.createDatabaseRelation(relationId);
-						extractedRelations.add(currentRelation);
-					}
-
-					// columnNoNulls, columnNullable, columnNullableUnknown
-					boolean isNullable = rs.getInt("NULLABLE") != DatabaseMetaData.columnNoNulls;
-					String typeName = rs.getString("TYPE_NAME");
-					int dataType = dt.getCorrectedDatatype(rs.getInt("DATA_TYPE"), typeName);
+			List<RelationColumns> seedColumns;
+			if (isCompleteTableList && seedId.hasSchema()) {
+				RelationColumns columns = batchedColumns.remove(seedId);
+				seedColumns = (columns == null) ? ImmutableList.of() : ImmutableList.of(columns);
+			}
+			else
+				seedColumns = seedResultIterator.next();
 
-					currentRelation.addAttribute(attributeId, dataType, typeName, isNullable);
-				}
+			for (RelationColumns columns : seedColumns) {
+				DatabaseRelationDefinition currentRelation = metadata.createDatabaseRelation(columns.relationId);
+				extractedRelations.add(currentRelation);
+				for (ColumnRecord column : columns.columns)
+					currentRelation.addAttribute(column.attributeId, column.dataType, column.typeName, column.isNullable);
 			}
 		}
 
-		for (DatabaseRelationDefinition relation : extractedRelations)	{
-			getPrimaryKey(md, relation, metadata.getQuotedIDFactory());
-			getUniqueAttributes(md, relation, metadata.getQuotedIDFactory());
-			getForeignKeys(md, relation, metadata);
-			if (printouts) {
+		// each query only modifies its relation (all the relations are known by now)
+		runCatalogQueries(extractedRelations, (m, relation) -> {
+			getPrimaryKey(m, relation, idfac);
+			getUniqueAttributes(m, relation, idfac);
+			getForeignKeys(m, relation, metadata);
+			return relation;
+		}, conn, maxConnections, connectionSupplier);
+
+		if (printouts) {
+			for (DatabaseRelationDefinition relation : extractedRelations) {
 				System.out.println(relation + ";");
 				for (UniqueConstraint uc : relation.getUniqueConstraints())
 					System.out.println(uc + ";");
@@ -277,14 +329,305 @@ public class RDBMetadataExtractionTools {
 					System.out.println(fk +  ";");
 				System.out.println("");
 			}
-		}
-
-		if (printouts) {
 			System.out.println("RESULTING METADATA:\n" + metadata);
 			System.out.println("DBMetadataExtractor END OF REPORT\n=================================");
 		}
 	}
 
+	/**
+	 * Retrieves the columns of the tables matching the query (grouped by table)
+	 */
+	private static List<RelationColumns> getColumns(DatabaseMetaData md, String catalog, ColumnQuery query,
+													QuotedIDFactory idfac, DatatypeNormalizer dt) throws SQLException {
+		List<RelationColumns> relations = new ArrayList<>();
+		RelationColumns currentRelation = null;
+
+		// catalog is ignored for now (rs.getString("TABLE_CAT"))
+		try (ResultSet rs = md.getColumns(catalog, query.schema, query.tableNamePattern, null)) {
+			while (rs.next()) {
+				String schema = rs.getString("TABLE_SCHEM");
+				// MySQL workaround
+				if (schema == null)
+					schema = rs.getString("TABLE_CAT");
+
+				RelationID relationId = RelationID.createRelationIdFromDatabaseRecord(idfac, schema,
+									rs.getString("TABLE_NAME"));
+				QuotedID attributeId = QuotedID.createIdFromDatabaseRecord(idfac, rs.getString("COLUMN_NAME"));
+				if (printouts)
+					System.out.println("         " + relationId + "." + attributeId);
+
+				if (currentRelation == null || !currentRelation.relationId.equals(relationId)) {
+					// switch to the next database relation
+					currentRelation = new RelationColumns(relationId);
+					relations.add(currentRelation);
+				}
+
+				// columnNoNulls, columnNullable, columnNullableUnknown
+				boolean isNullable = rs.getInt("NULLABLE") != DatabaseMetaData.columnNoNulls;
+				String typeName = rs.getString("TYPE_NAME");
+				int dataType = dt.getCorrectedDatatype(rs.getInt("DATA_TYPE"), typeName);
+
+				currentRelation.columns.add(new ColumnRecord(attributeId, dataType, typeName, isNullable));
+			}
+		}
+		return relations;
+	}
+
+	/**
+	 * Runs the query for each item and returns the results (in the order of the items).
+	 *
+	 * The items are processed by up to maxConnections workers, each with its own connection.
+	 * The calling thread is one of them (with the given connection), so that all the items
+	 * are processed even if no additional connection can be obtained.
+	 */
+	private static <T, R> List<R> runCatalogQueries(List<T> items, CatalogQuery<T, R> query, Connection conn,
+													int maxConnections, ConnectionSupplier connectionSupplier)
+			throws SQLException {
+
+		int workerCount = Math.min(maxConnections, items.size());
+		List<R> results = new ArrayList<>(Collections.nCopies(items.size(), null));
+		AtomicInteger nextIndex = new AtomicInteger(0);
+
+		if (workerCount <= 1) {
+			runCatalogQueryWorker(conn.getMetaData(), items, query, results, nextIndex);
+			return results;
+		}
+
+		AtomicInteger threadCounter = new AtomicInteger(0);
+		ExecutorService executor = Executors.newFixedThreadPool(workerCount - 1, r -> {
+			Thread thread = new Thread(r, "ontop-db-metadata-" + threadCounter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 1; i < workerCount; i++) {
+				futures.add(executor.submit(() -> {
+					Connection additionalConnection;
+					try {
+						additionalConnection = connectionSupplier.get();
+					}
+					catch (SQLException e) {
+						log.warn("Cannot open an additional connection for extracting the DB metadata: " + e.getMessage());
+						return null;
+					}
+					try (Connection c = additionalConnection) {
+						runCatalogQueryWorker(c.getMetaData(), items, query, results, nextIndex);
+					}
+					return null;
+				}));
+			}
+			runCatalogQueryWorker(conn.getMetaData(), items, query, results, nextIndex);
+
+			for (Future<?> future : futures) {
+				try {
+					future.get();
+				}
+				catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					if (cause instanceof SQLException)
+						throw (SQLException) cause;
+					if (cause instanceof RuntimeException)
+						throw (RuntimeException) cause;
+					throw new SQLException(cause);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new SQLException("Interrupted while extracting the DB metadata", e);
+				}
+			}
+			return results;
+		}
+		finally {
+			// stops the other workers in case of failure
+			nextIndex.set(items.size());
+			executor.shutdownNow();
+		}
+	}
+
+	private static <T, R> void runCatalogQueryWorker(DatabaseMetaData md, List<T> items, CatalogQuery<T, R> query,
+													 List<R> results, AtomicInteger nextIndex) throws SQLException {
+		int index;
+		while ((index = nextIndex.getAndIncrement()) < items.size()) {
+			R result = query.run(md, items.get(index));
+			synchronized (results) {
+				results.set(index, result);
+			}
+		}
+	}
+
+	/**
+	 * Value of the last DDL timestamp of the database, if the DBMS provides it
+	 * (Oracle, DB2 and MS SQL Server).
+	 *
+	 * Used for detecting that the schema has changed since the metadata was extracted:
+	 * a single query, but it covers the whole database (and not only the extracted relations).
+	 */
+	public static Optional<String> getLastDDLTimestamp(Connection conn) throws SQLException {
+		String productName = conn.getMetaData().getDatabaseProductName();
+		String query;
+		if (productName.contains("Oracle"))
+			query = "SELECT MAX(LAST_DDL_TIME) FROM ALL_OBJECTS";
+		else if (productName.contains("DB2"))
+			query = "SELECT MAX(ALTER_TIME) FROM SYSCAT.TABLES";
+		else if (productName.contains("SQL Server"))
+			query = "SELECT MAX(modify_date) FROM sys.objects";
+		else
+			return Optional.empty();
+
+		try (Statement stmt = conn.createStatement();
+			 ResultSet rs = stmt.executeQuery(query)) {
+			return rs.next()
+					? Optional.ofNullable(rs.getString(1))
+					: Optional.empty();
+		}
+	}
+
+	public static String computeSchemaFingerprint(RDBMetadata metadata, Connection conn) throws SQLException {
+		return computeSchemaFingerprint(metadata, conn, 1, () -> conn);
+	}
+
+	/**
+	 * Fingerprint of the current definition in the database of the relations of the metadata:
+	 * hash of their columns, primary keys, unique indexes and foreign keys, as returned by the JDBC metadata.
+	 *
+	 * Used for detecting that the schema has changed since the metadata was extracted when the DBMS
+	 * does not provide a last DDL timestamp (only standard JDBC metadata calls).
+	 * The catalog queries are distributed over up to maxConnections connections, as for the extraction.
+	 */
+	public static String computeSchemaFingerprint(RDBMetadata metadata, Connection conn, int maxConnections,
+												  ConnectionSupplier connectionSupplier) throws SQLException {
+		String catalog = getCatalog(metadata, conn);
+
+		List<RelationID> relationIds = metadata.getDatabaseRelations().stream()
+				.map(RelationDefinition::getID)
+				.sorted(Comparator.comparing(RelationID::toString))
+				.collect(ImmutableCollectors.toList());
+
+		List<HashCode> relationFingerprints = runCatalogQueries(relationIds,
+				(md, id) -> computeRelationFingerprint(md, catalog, id), conn, maxConnections, connectionSupplier);
+
+		Hasher hasher = Hashing.sha256().newHasher();
+		hasher.putInt(relationFingerprints.size());
+		relationFingerprints.forEach(h -> hasher.putBytes(h.asBytes()));
+		return hasher.hash().toString();
+	}
+
+	private static HashCode computeRelationFingerprint(DatabaseMetaData md, String catalog, RelationID id)
+			throws SQLException {
+		Hasher hasher = Hashing.sha256().newHasher();
+		putString(hasher, id.getSchemaName());
+		putString(hasher, id.getTableName());
+
+		try (ResultSet rs = md.getColumns(catalog, id.getSchemaName(), id.getTableName(), null)) {
+			putRows(hasher, rs, "COLUMN_NAME", "ORDINAL_POSITION", "DATA_TYPE", "TYPE_NAME", "NULLABLE");
+		}
+		try (ResultSet rs = md.getPrimaryKeys(null, id.getSchemaName(), id.getTableName())) {
+			putRows(hasher, rs, "COLUMN_NAME", "KEY_SEQ", "PK_NAME");
+		}
+		catch (SQLSyntaxErrorException e) {
+			// WORKAROUND for MySQL connector >= 8.0 (see getPrimaryKey)
+			try (ResultSet rs = md.getPrimaryKeys(id.getSchemaName(), null, id.getTableName())) {
+				putRows(hasher, rs, "COLUMN_NAME", "KEY_SEQ", "PK_NAME");
+			}
+		}
+		// the statistics (cardinality, pages) are not part of the fingerprint
+		try (ResultSet rs = md.getIndexInfo(null, id.getSchemaName(), id.getTableName(), true, true)) {
+			putRows(hasher, rs, "INDEX_NAME", "NON_UNIQUE", "TYPE", "ORDINAL_POSITION", "COLUMN_NAME");
+		}
+		catch (SQLException e) {
+			// same fallback as in getUniqueAttributes
+			try (ResultSet rs = md.getIndexInfo(id.getSchemaName(), null, id.getTableName(), true, true)) {
+				putRows(hasher, rs, "INDEX_NAME", "NON_UNIQUE", "TYPE", "ORDINAL_POSITION", "COLUMN_NAME");
+			}
+		}
+		try (ResultSet rs = md.getImportedKeys(null, id.getSchemaName(), id.getTableName())) {
+			putRows(hasher, rs, "FK_NAME", "KEY_SEQ", "FKCOLUMN_NAME", "PKTABLE_CAT", "PKTABLE_SCHEM",
+					"PKTABLE_NAME", "PKCOLUMN_NAME");
+		}
+		catch (SQLException e) {
+			// same fallback as in getForeignKeys
+			try (ResultSet rs = md.getImportedKeys(id.getSchemaName(), null, id.getTableName())) {
+				putRows(hasher, rs, "FK_NAME", "KEY_SEQ", "FKCOLUMN_NAME", "PKTABLE_CAT", "PKTABLE_SCHEM",
+						"PKTABLE_NAME", "PKCOLUMN_NAME");
+			}
+		}
+		return hasher.hash();
+	}
+
+	/**
+	 * The rows are sorted, as their order is not always specified by JDBC
+	 */
+	private static void putRows(Hasher hasher, ResultSet rs, String... columns) throws SQLException {
+		List<String> rows = new ArrayList<>();
+		while (rs.next()) {
+			StringBuilder row = new StringBuilder();
+			for (String column : columns) {
+				String value = rs.getString(column);
+				// length-prefixed, so that the concatenation is not ambiguous
+				row.append(value == null ? -1 : value.length()).append(':').append(Strings.nullToEmpty(value));
+			}
+			rows.add(row.toString());
+		}
+		Collections.sort(rows);
+		hasher.putInt(rows.size());
+		rows.forEach(r -> putString(hasher, r));
+	}
+
+	private static void putString(Hasher hasher, @Nullable String s) {
+		String value = Strings.nullToEmpty(s);
+		hasher.putInt(s == null ? -1 : value.length());
+		hasher.putString(value, StandardCharsets.UTF_8);
+	}
+
+	@FunctionalInterface
+	public interface ConnectionSupplier {
+		Connection get() throws SQLException;
+	}
+
+	@FunctionalInterface
+	private interface CatalogQuery<T, R> {
+		R run(DatabaseMetaData md, T item) throws SQLException;
+	}
+
+	/**
+	 * Columns of one table (isBatch = false) or of all the tables of a schema (isBatch = true)
+	 */
+	private static final class ColumnQuery {
+		private final String schema;
+		private final String tableNamePattern;
+		private final boolean isBatch;
+
+		private ColumnQuery(String schema, String tableNamePattern, boolean isBatch) {
+			this.schema = schema;
+			this.tableNamePattern = tableNamePattern;
+			this.isBatch = isBatch;
+		}
+	}
+
+	private static final class RelationColumns {
+		private final RelationID relationId;
+		private final List<ColumnRecord> columns = new ArrayList<>();
+
+		private RelationColumns(RelationID relationId) {
+			this.relationId = relationId;
+		}
+	}
+
+	private static final class ColumnRecord {
+		private final QuotedID attributeId;
+		private final int dataType;
+		private final String typeName;
+		private final boolean isNullable;
+
+		private ColumnRecord(QuotedID attributeId, int dataType, String typeName, boolean isNullable) {
+			this.attributeId = attributeId;
+			this.dataType = dataType;
+			this.typeName = typeName;
+			this.isNullable = isNullable;
+		}
+	}
+
     private static String getCatalog(RDBMetadata metadata, Connection conn) throws SQLException {
         String catalog = null;
 
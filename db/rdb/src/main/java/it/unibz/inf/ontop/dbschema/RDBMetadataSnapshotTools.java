@@ -0,0 +1,235 @@
+package it.unibz.inf.ontop.dbschema;
+
+import it.unibz.inf.ontop.model.type.TypeFactory;
+
+import javax.annotation.Nullable;
+import java.io.*;
+import java.util.*;
+
+/**
+ * Binary snapshot of the database relations of a RDBMetadata (attributes, unique constraints and foreign keys),
+ * so that they can be re-loaded without querying the JDBC metadata of the database again.
+ *
+ * Only the DB metadata is covered: the rest of the OBDA specification (parsed mapping, classified TBox,
+ * saturated mapping) is still computed when the specification is loaded.
+ * Parser views are not included (they are re-created when the mapping is parsed).
+ *
+ * The snapshot is versioned and labelled with a checksum of the inputs it has been extracted from
+ * (possibly including the version of the schema: see RDBMetadataExtractionTools.getLastDDLTimestamp
+ * and RDBMetadataExtractionTools.computeSchemaFingerprint):
+ * it is only used if the expected checksum matches.
+ */
+public class RDBMetadataSnapshotTools {
+
+    private static final String MAGIC = "ONTOP-DB-METADATA-SNAPSHOT";
+    private static final int FORMAT_VERSION = 1;
+
+    private static final String STANDARD_SQL_ID_FACTORY = "standard";
+    private static final String LOWER_CASE_ID_FACTORY = "lower-case";
+    private static final String IDENTITY_ID_FACTORY = "identity";
+    private static final String MYSQL_ID_FACTORY = "mysql";
+
+    public static void write(RDBMetadata metadata, String checksum, OutputStream outputStream) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream));
+
+        out.writeUTF(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeUTF(checksum);
+
+        writeNullableString(out, metadata.getDriverName());
+        writeNullableString(out, metadata.getDriverVersion());
+        writeNullableString(out, metadata.getDbmsProductName());
+        writeNullableString(out, metadata.getDbmsVersion());
+        writeIDFactory(out, metadata.getQuotedIDFactory());
+
+        List<DatabaseRelationDefinition> relations = new ArrayList<>(metadata.getDatabaseRelations());
+        Map<RelationID, Integer> relationIndexes = new HashMap<>();
+        out.writeInt(relations.size());
+        for (DatabaseRelationDefinition relation : relations) {
+            relationIndexes.put(relation.getID(), relationIndexes.size());
+            writeNullableString(out, relation.getID().getSchemaName());
+            out.writeUTF(relation.getID().getTableName());
+
+            out.writeInt(relation.getAttributes().size());
+            for (Attribute attribute : relation.getAttributes()) {
+                out.writeUTF(attribute.getID().getName());
+                out.writeInt(attribute.getType());
+                writeNullableString(out, attribute.getSQLTypeName());
+                out.writeBoolean(attribute.canNull());
+            }
+
+            out.writeInt(relation.getUniqueConstraints().size());
+            for (UniqueConstraint uc : relation.getUniqueConstraints()) {
+                writeNullableString(out, uc.getName());
+                out.writeBoolean(uc.isPrimaryKey());
+                out.writeInt(uc.getAttributes().size());
+                for (Attribute attribute : uc.getAttributes())
+                    out.writeInt(attribute.getIndex());
+            }
+        }
+
+        // After all the relations, as they may refer to any of them
+        for (DatabaseRelationDefinition relation : relations) {
+            out.writeInt(relation.getForeignKeys().size());
+            for (ForeignKeyConstraint fk : relation.getForeignKeys()) {
+                Integer referencedRelationIndex = relationIndexes.get(fk.getReferencedRelation().getID());
+                if (referencedRelationIndex == null)
+                    throw new IOException("Foreign key referring to an unknown relation: " + fk);
+
+                writeNullableString(out, fk.getName());
+                out.writeInt(referencedRelationIndex);
+                out.writeInt(fk.getComponents().size());
+                for (ForeignKeyConstraint.Component component : fk.getComponents()) {
+                    out.writeInt(component.getAttribute().getIndex());
+                    out.writeInt(component.getReference().getIndex());
+                }
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Returns a new (mutable) RDBMetadata if the snapshot has been produced by the current format
+     * from inputs having the expected checksum.
+     * Otherwise, returns empty.
+     */
+    public static Optional<RDBMetadata> read(InputStream inputStream, String expectedChecksum, TypeFactory typeFactory,
+                                             JdbcTypeMapper jdbcTypeMapper) throws IOException {
+        return read(inputStream, typeFactory, jdbcTypeMapper)
+                .filter(s -> s.getChecksum().equals(expectedChecksum))
+                .map(Snapshot::getMetadata);
+    }
+
+    /**
+     * Returns the snapshot if it has been produced by the current format (whatever its checksum),
+     * for checksums that depend on the metadata (e.g. on a fingerprint of its relations).
+     * Otherwise, returns empty.
+     */
+    public static Optional<Snapshot> read(InputStream inputStream, TypeFactory typeFactory,
+                                          JdbcTypeMapper jdbcTypeMapper) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(inputStream));
+
+        if (!MAGIC.equals(in.readUTF()))
+            throw new IOException("Not a DB metadata snapshot");
+        if (in.readInt() != FORMAT_VERSION)
+            return Optional.empty();
+        String checksum = in.readUTF();
+
+        String driverName = readNullableString(in);
+        String driverVersion = readNullableString(in);
+        String productName = readNullableString(in);
+        String productVersion = readNullableString(in);
+        QuotedIDFactory idfac = readIDFactory(in);
+
+        RDBMetadata metadata = new RDBMetadata(driverName, driverVersion, productName, productVersion, idfac,
+                jdbcTypeMapper, typeFactory);
+
+        int relationCount = in.readInt();
+        List<DatabaseRelationDefinition> relations = new ArrayList<>(relationCount);
+        for (int i = 0; i < relationCount; i++) {
+            String schema = readNullableString(in);
+            String table = in.readUTF();
+            DatabaseRelationDefinition relation = metadata.createDatabaseRelation(
+                    RelationID.createRelationIdFromDatabaseRecord(idfac, schema, table));
+            relations.add(relation);
+
+            int attributeCount = in.readInt();
+            for (int j = 0; j < attributeCount; j++) {
+                QuotedID attributeId = QuotedID.createIdFromDatabaseRecord(idfac, in.readUTF());
+                int type = in.readInt();
+                String typeName = readNullableString(in);
+                relation.addAttribute(attributeId, type, typeName, in.readBoolean());
+            }
+
+            int ucCount = in.readInt();
+            for (int j = 0; j < ucCount; j++) {
+                String name = readNullableString(in);
+                boolean isPK = in.readBoolean();
+                UniqueConstraint.Builder builder = UniqueConstraint.builder(relation);
+                int size = in.readInt();
+                for (int k = 0; k < size; k++)
+                    builder.add(relation.getAttribute(in.readInt()));
+                relation.addUniqueConstraint(builder.build(name, isPK));
+            }
+        }
+
+        for (DatabaseRelationDefinition relation : relations) {
+            int fkCount = in.readInt();
+            for (int j = 0; j < fkCount; j++) {
+                String name = readNullableString(in);
+                DatabaseRelationDefinition referencedRelation = relations.get(in.readInt());
+                ForeignKeyConstraint.Builder builder = ForeignKeyConstraint.builder(relation, referencedRelation);
+                int size = in.readInt();
+                for (int k = 0; k < size; k++)
+                    builder.add(relation.getAttribute(in.readInt()), referencedRelation.getAttribute(in.readInt()));
+                relation.addForeignKeyConstraint(builder.build(name));
+            }
+        }
+        return Optional.of(new Snapshot(checksum, metadata));
+    }
+
+    public static final class Snapshot {
+        private final String checksum;
+        private final RDBMetadata metadata;
+
+        private Snapshot(String checksum, RDBMetadata metadata) {
+            this.checksum = checksum;
+            this.metadata = metadata;
+        }
+
+        public String getChecksum() {
+            return checksum;
+        }
+
+        /**
+         * Mutable
+         */
+        public RDBMetadata getMetadata() {
+            return metadata;
+        }
+    }
+
+    private static void writeIDFactory(DataOutputStream out, QuotedIDFactory idfac) throws IOException {
+        if (idfac instanceof QuotedIDFactoryMySQL) {
+            out.writeUTF(MYSQL_ID_FACTORY);
+            out.writeBoolean(((QuotedIDFactoryMySQL) idfac).areTableNamesCaseSensitive());
+        }
+        else if (idfac instanceof QuotedIDFactoryStandardSQL)
+            out.writeUTF(STANDARD_SQL_ID_FACTORY);
+        else if (idfac instanceof QuotedIDFactoryLowerCase)
+            out.writeUTF(LOWER_CASE_ID_FACTORY);
+        else if (idfac instanceof QuotedIDFactoryIdentity)
+            out.writeUTF(IDENTITY_ID_FACTORY);
+        else
+            throw new IOException("Unsupported QuotedIDFactory: " + idfac.getClass());
+        out.writeUTF(idfac.getIDQuotationString());
+    }
+
+    private static QuotedIDFactory readIDFactory(DataInputStream in) throws IOException {
+        String kind = in.readUTF();
+        switch (kind) {
+            case MYSQL_ID_FACTORY:
+                boolean caseSensitiveTableNames = in.readBoolean();
+                return new QuotedIDFactoryMySQL(caseSensitiveTableNames, in.readUTF());
+            case STANDARD_SQL_ID_FACTORY:
+                return new QuotedIDFactoryStandardSQL(in.readUTF());
+            case LOWER_CASE_ID_FACTORY:
+                return new QuotedIDFactoryLowerCase(in.readUTF());
+            case IDENTITY_ID_FACTORY:
+                return new QuotedIDFactoryIdentity(in.readUTF());
+            default:
+                throw new IOException("Unknown QuotedIDFactory in the snapshot: " + kind);
+        }
+    }
+
+    private static void writeNullableString(DataOutputStream out, @Nullable String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null)
+            out.writeUTF(s);
+    }
+
+    @Nullable
+    private static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -1,6 +1,8 @@
 package it.unibz.inf.ontop.utils;
 
 import it.unibz.inf.ontop.injection.OntopSQLCredentialSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
@@ -8,6 +10,9 @@ import java.sql.SQLException;
 
 public class LocalJDBCConnectionUtils {
 
+    private static final Logger log = LoggerFactory.getLogger(LocalJDBCConnectionUtils.class);
+    private static final String H2_IN_MEMORY_PREFIX = "jdbc:h2:mem:";
+
     /**
      * Brings robustness to some Tomcat classloading issues.
      */
@@ -30,4 +35,31 @@ public class LocalJDBCConnectionUtils {
             return DriverManager.getConnection(settings.getJdbcUrl(), settings.getJdbcUser(), settings.getJdbcPassword());
         }
     }
+
+    /**
+     * Number of connections (created from the settings) that can be used in parallel on the same database.
+     *
+     * A private in-memory database (unnamed H2 or SQLite in-memory DB) is different for each connection:
+     * only one connection can then be used.
+     */
+    public static int getMaxConnections(OntopSQLCredentialSettings settings, int requestedConnections) {
+        if (requestedConnections <= 1)
+            return 1;
+
+        if (isPrivateInMemoryDB(settings.getJdbcUrl())) {
+            log.warn("{} connections requested, but {} refers to a private in-memory database: " +
+                    "only one connection is used", requestedConnections, settings.getJdbcUrl());
+            return 1;
+        }
+        return requestedConnections;
+    }
+
+    private static boolean isPrivateInMemoryDB(String jdbcUrl) {
+        String url = jdbcUrl.toLowerCase();
+        if (url.startsWith(H2_IN_MEMORY_PREFIX)) {
+            String name = url.substring(H2_IN_MEMORY_PREFIX.length()).split(";", 2)[0];
+            return name.isEmpty();
+        }
+        return url.equals("jdbc:sqlite:") || url.startsWith("jdbc:sqlite::memory:");
+    }
 }
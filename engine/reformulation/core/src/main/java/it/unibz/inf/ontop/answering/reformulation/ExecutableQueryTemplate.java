@@ -0,0 +1,19 @@
+package it.unibz.inf.ontop.answering.reformulation;
+
+import com.google.common.collect.ImmutableList;
+import it.unibz.inf.ontop.answering.reformulation.generation.QueryParameterPlaceholders;
+import it.unibz.inf.ontop.exception.OntopInvalidInputQueryException;
+import it.unibz.inf.ontop.model.term.ValueConstant;
+
+/**
+ * Executable query containing placeholders (see {@link QueryParameterPlaceholders}).
+ *
+ * Independent of the values of the placeholders, so it can be cached and reused for any of them.
+ */
+public interface ExecutableQueryTemplate extends ExecutableQuery {
+
+    /**
+     * The i-th value is bound to the placeholder of index i.
+     */
+    ExecutableQuery bind(ImmutableList<ValueConstant> placeholderValues) throws OntopInvalidInputQueryException;
+}
@@ -13,5 +13,13 @@ public interface QueryCache {
 
     void put(InputQuery inputQuery, ExecutableQuery executableQuery);
 
+    /**
+     * reformulationDuration (in ms): time spent to produce the executable query.
+     * May be used by implementations for their statistics.
+     */
+    default void put(InputQuery inputQuery, ExecutableQuery executableQuery, long reformulationDuration) {
+        put(inputQuery, executableQuery);
+    }
+
     void clear();
 }
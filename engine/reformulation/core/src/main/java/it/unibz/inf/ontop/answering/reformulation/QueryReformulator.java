@@ -1,14 +1,34 @@
 package it.unibz.inf.ontop.answering.reformulation;
 
 
+import com.google.common.collect.ImmutableMap;
 import it.unibz.inf.ontop.answering.reformulation.input.InputQuery;
 import it.unibz.inf.ontop.answering.reformulation.input.InputQueryFactory;
 import it.unibz.inf.ontop.exception.OntopReformulationException;
+import it.unibz.inf.ontop.iq.tools.ReformulationTrace;
+import it.unibz.inf.ontop.model.term.Constant;
 
 public interface QueryReformulator {
 
     ExecutableQuery reformulateIntoNativeQuery(InputQuery inputQuery) throws OntopReformulationException;
 
+    /**
+     * Records the phases of the reformulation (durations, node counts and intermediate queries) into the trace.
+     *
+     * If the query is found in the cache, only the cache hit is recorded.
+     */
+    ExecutableQuery reformulateIntoNativeQuery(InputQuery inputQuery, ReformulationTrace trace)
+            throws OntopReformulationException;
+
+    /**
+     * Reformulates the input query, some projected variables of which (the parameters) are bound to the given values.
+     *
+     * The values are bound as constants before unfolding. Whenever possible, the query is only reformulated once
+     * into a template (whatever the values are), the values then being passed as parameters of the native query.
+     */
+    ExecutableQuery reformulateIntoNativeQuery(InputQuery inputQuery, ImmutableMap<String, Constant> parameterValues)
+            throws OntopReformulationException;
+
     /**
      * For analysis purposes
      */
@@ -41,5 +41,15 @@ public interface NativeQueryGenerator extends Serializable {
 	ExecutableQuery generateSourceQuery(IntermediateQuery query)
 			throws OntopReformulationException;
 
+	/**
+	 * Translates a query containing placeholders (see {@link QueryParameterPlaceholders}) into a template,
+	 * in which they become parameters of the native query.
+	 *
+	 * Returns an {@link it.unibz.inf.ontop.answering.reformulation.ExecutableQueryTemplate}
+	 * (or a regular executable query when no placeholder remains).
+	 */
+	ExecutableQuery generateTemplateQuery(IntermediateQuery query)
+			throws OntopReformulationException;
+
 	ExecutableQuery generateEmptyQuery(ImmutableList<String> signature);
 }
@@ -0,0 +1,45 @@
+package it.unibz.inf.ontop.answering.reformulation.generation;
+
+import it.unibz.inf.ontop.model.term.TermFactory;
+import it.unibz.inf.ontop.model.term.ValueConstant;
+import it.unibz.inf.ontop.model.type.RDFDatatype;
+
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Placeholders for the values of query parameters.
+ *
+ * A placeholder is a constant inserted into the query before unfolding, in place of a lexical value
+ * (e.g. an argument of an IRI template or the lexical form of a literal).
+ * It is therefore unified with the mapping like a regular constant and ends up in the conditions
+ * on the base tables. The native query generator renders it as a parameter of the native query
+ * (e.g. "?" in JDBC), whose value is given at evaluation time.
+ *
+ * Placeholders are identified by their index. Their lexical value starts with a NUL character,
+ * which cannot appear in an RDF literal.
+ */
+public class QueryParameterPlaceholders {
+
+    private static final String PREFIX = "\u0000ontop-parameter-";
+    private static final String SUFFIX = "\u0000";
+    private static final Pattern PATTERN = Pattern.compile("\u0000ontop-parameter-(\\d+)\u0000");
+
+    private QueryParameterPlaceholders() {
+    }
+
+    public static ValueConstant createPlaceholder(TermFactory termFactory, int index, RDFDatatype datatype) {
+        return termFactory.getConstantLiteral(PREFIX + index + SUFFIX, datatype);
+    }
+
+    public static Optional<Integer> getIndex(ValueConstant constant) {
+        String value = constant.getValue();
+        if (!value.startsWith(PREFIX))
+            return Optional.empty();
+        Matcher matcher = PATTERN.matcher(value);
+        return matcher.matches()
+                ? Optional.of(Integer.valueOf(matcher.group(1)))
+                : Optional.empty();
+    }
+}
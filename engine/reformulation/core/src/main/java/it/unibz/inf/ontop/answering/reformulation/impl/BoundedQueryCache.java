@@ -0,0 +1,175 @@
+package it.unibz.inf.ontop.answering.reformulation.impl;
+
+import com.google.inject.Inject;
+import it.unibz.inf.ontop.answering.reformulation.ExecutableQuery;
+import it.unibz.inf.ontop.answering.reformulation.QueryCache;
+import it.unibz.inf.ontop.answering.reformulation.input.InputQuery;
+import it.unibz.inf.ontop.injection.OntopReformulationSettings;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LRU cache bounded by its number of entries and by the estimated size of its entries.
+ *
+ * Relies on the equality of input queries, which is based on a normalized form of their algebra
+ * (not on their string).
+ *
+ * Keeps track of the hits, misses and evictions, and of the reformulation time saved by the hits.
+ *
+ * Thread-safe.
+ */
+public class BoundedQueryCache implements QueryCache {
+
+    /**
+     * Rough estimation of the overhead of an entry (key, value, map entry, signature, etc.)
+     */
+    private static final long ENTRY_OVERHEAD = 512;
+
+    private final int maxEntries;
+    private final long maxSize;
+
+    // Access-ordered. Guarded by "this"
+    private final LinkedHashMap<InputQuery, CacheEntry> mutableMap;
+    // Guarded by "this"
+    private long currentSize;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private final LongAdder savedReformulationTime = new LongAdder();
+
+    @Inject
+    private BoundedQueryCache(OntopReformulationSettings settings) {
+        this(settings.getQueryCacheMaxEntries(), settings.getQueryCacheMaxSize() * 1024L * 1024L);
+    }
+
+    /**
+     * maxSize: in bytes
+     */
+    public BoundedQueryCache(int maxEntries, long maxSize) {
+        if (maxEntries < 0 || maxSize < 0)
+            throw new IllegalArgumentException("The bounds of the query cache must be positive");
+        this.maxEntries = maxEntries;
+        this.maxSize = maxSize;
+        this.mutableMap = new LinkedHashMap<>(16, 0.75f, true);
+        this.currentSize = 0;
+    }
+
+    @Override
+    public ExecutableQuery get(InputQuery inputQuery) {
+        CacheEntry entry;
+        synchronized (this) {
+            entry = mutableMap.get(inputQuery);
+        }
+        if (entry == null) {
+            missCount.increment();
+            return null;
+        }
+        hitCount.increment();
+        savedReformulationTime.add(entry.reformulationDuration);
+        return entry.executableQuery;
+    }
+
+    @Override
+    public void put(InputQuery inputQuery, ExecutableQuery executableQuery) {
+        put(inputQuery, executableQuery, 0);
+    }
+
+    @Override
+    public void put(InputQuery inputQuery, ExecutableQuery executableQuery, long reformulationDuration) {
+        CacheEntry entry = new CacheEntry(executableQuery, estimateSize(inputQuery, executableQuery),
+                reformulationDuration);
+        // Too big to be cached
+        if (entry.size > maxSize || maxEntries == 0)
+            return;
+
+        synchronized (this) {
+            CacheEntry previousEntry = mutableMap.put(inputQuery, entry);
+            if (previousEntry != null)
+                currentSize -= previousEntry.size;
+            currentSize += entry.size;
+            evict();
+        }
+    }
+
+    /**
+     * Removes the least recently used entries until the bounds are respected
+     */
+    private void evict() {
+        Iterator<Map.Entry<InputQuery, CacheEntry>> iterator = mutableMap.entrySet().iterator();
+        while ((mutableMap.size() > maxEntries || currentSize > maxSize) && iterator.hasNext()) {
+            currentSize -= iterator.next().getValue().size;
+            iterator.remove();
+            evictionCount.increment();
+        }
+    }
+
+    /**
+     * Approximation: strings are assumed to be the main source of memory consumption,
+     * the normalized form of the input query being several times bigger than its string.
+     */
+    private static long estimateSize(InputQuery inputQuery, ExecutableQuery executableQuery) {
+        return ENTRY_OVERHEAD
+                + 8L * inputQuery.getInputString().length()
+                + 2L * executableQuery.toString().length();
+    }
+
+    @Override
+    public synchronized void clear() {
+        mutableMap.clear();
+        currentSize = 0;
+    }
+
+    public synchronized int getEntryCount() {
+        return mutableMap.size();
+    }
+
+    /**
+     * Estimated size (in bytes) of the cached entries
+     */
+    public synchronized long getEstimatedSize() {
+        return currentSize;
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * In ms
+     */
+    public long getSavedReformulationTime() {
+        return savedReformulationTime.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BoundedQueryCache{entries=%d, estimatedSize=%d, hits=%d, misses=%d, evictions=%d, " +
+                        "savedReformulationTime=%dms}", getEntryCount(), getEstimatedSize(), getHitCount(),
+                getMissCount(), getEvictionCount(), getSavedReformulationTime());
+    }
+
+
+    private static class CacheEntry {
+        private final ExecutableQuery executableQuery;
+        private final long size;
+        private final long reformulationDuration;
+
+        private CacheEntry(ExecutableQuery executableQuery, long size, long reformulationDuration) {
+            this.executableQuery = executableQuery;
+            this.size = size;
+            this.reformulationDuration = reformulationDuration;
+        }
+    }
+}
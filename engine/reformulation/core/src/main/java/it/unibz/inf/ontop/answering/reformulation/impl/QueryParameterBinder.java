@@ -0,0 +1,355 @@
+package it.unibz.inf.ontop.answering.reformulation.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import it.unibz.inf.ontop.answering.reformulation.IRIDictionary;
+import it.unibz.inf.ontop.answering.reformulation.generation.QueryParameterPlaceholders;
+import it.unibz.inf.ontop.exception.OntopUnsupportedInputQueryException;
+import it.unibz.inf.ontop.injection.IntermediateQueryFactory;
+import it.unibz.inf.ontop.iq.IQ;
+import it.unibz.inf.ontop.iq.IQTree;
+import it.unibz.inf.ontop.iq.UnaryIQTree;
+import it.unibz.inf.ontop.iq.node.*;
+import it.unibz.inf.ontop.model.atom.AtomPredicate;
+import it.unibz.inf.ontop.model.atom.DataAtom;
+import it.unibz.inf.ontop.model.atom.RDFAtomPredicate;
+import it.unibz.inf.ontop.model.term.*;
+import it.unibz.inf.ontop.model.term.functionsymbol.DatatypePredicate;
+import it.unibz.inf.ontop.model.term.functionsymbol.ExpressionOperation;
+import it.unibz.inf.ontop.model.term.functionsymbol.FunctionSymbol;
+import it.unibz.inf.ontop.model.term.functionsymbol.URITemplatePredicate;
+import it.unibz.inf.ontop.model.type.RDFDatatype;
+import it.unibz.inf.ontop.model.type.TypeFactory;
+import it.unibz.inf.ontop.model.vocabulary.RDF;
+import it.unibz.inf.ontop.spec.mapping.Mapping;
+import it.unibz.inf.ontop.substitution.ImmutableSubstitution;
+import it.unibz.inf.ontop.substitution.SubstitutionFactory;
+import it.unibz.inf.ontop.utils.ImmutableCollectors;
+import it.unibz.inf.ontop.utils.R2RMLIRISafeEncoder;
+import it.unibz.inf.ontop.utils.UriTemplateMatcher;
+
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Binds the parameters of a query (some of its projected variables) to constants before unfolding.
+ *
+ * Each value is first decomposed like a constant of the query would be: an IRI into an IRI template and
+ * the values of its placeholders, a literal into its datatype and lexical value.
+ * The lexical values are then replaced by placeholders (see {@link QueryParameterPlaceholders}):
+ * the reformulated query only depends on the "shapes" of the values (e.g. the IRI template or the datatype).
+ *
+ * The values of some parameters cannot be replaced by placeholders. These parameters are "value-bound"
+ * and the query is filtered by their actual values:
+ *   - when the parameter may be unbound (e.g. only appearing in an OPTIONAL),
+ *   - when the parameter is used in an expression (e.g. a FILTER), as the expression could be evaluated
+ *     over the placeholder during the reformulation,
+ *   - when the mapping of the predicates used by the query contains constants of the same shape
+ *     (a placeholder would not be unified with them).
+ *
+ * Only the parameters given by the user are replaced by placeholders. The constants written in the query
+ * (e.g. literals in a FILTER or in a triple pattern) are not lifted: queries only differing by these constants
+ * have distinct templates.
+ */
+class QueryParameterBinder {
+
+    private final Mapping mapping;
+    private final UriTemplateMatcher uriTemplateMatcher;
+    @Nullable
+    private final IRIDictionary iriDictionary;
+    private final TermFactory termFactory;
+    private final TypeFactory typeFactory;
+    private final IntermediateQueryFactory iqFactory;
+    private final SubstitutionFactory substitutionFactory;
+
+    QueryParameterBinder(Mapping mapping, @Nullable IRIDictionary iriDictionary, TermFactory termFactory,
+                         TypeFactory typeFactory, IntermediateQueryFactory iqFactory,
+                         SubstitutionFactory substitutionFactory) {
+        this.mapping = mapping;
+        this.uriTemplateMatcher = mapping.getMetadata().getUriTemplateMatcher();
+        this.iriDictionary = iriDictionary;
+        this.termFactory = termFactory;
+        this.typeFactory = typeFactory;
+        this.iqFactory = iqFactory;
+        this.substitutionFactory = substitutionFactory;
+    }
+
+    /**
+     * Sorted by name, so that the placeholders do not depend on the order of the bindings
+     */
+    ImmutableList<QueryParameter> decompose(ImmutableMap<String, Constant> parameterValues)
+            throws OntopUnsupportedInputQueryException {
+        ImmutableList.Builder<QueryParameter> builder = ImmutableList.builder();
+        for (String name : parameterValues.keySet().stream().sorted().collect(ImmutableCollectors.toList())) {
+            Constant value = parameterValues.get(name);
+            ImmutableFunctionalTerm term = getTerm(name, value);
+            builder.add(new QueryParameter(name, termFactory.getVariable(name), value, term,
+                    getShape(term).orElseThrow(() -> new OntopUnsupportedInputQueryException(
+                            "Unsupported value for the parameter " + name + ": " + value))));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Same term as for a constant of the SPARQL query
+     */
+    private ImmutableFunctionalTerm getTerm(String name, Constant value) throws OntopUnsupportedInputQueryException {
+        if (value instanceof IRIConstant) {
+            String iri = R2RMLIRISafeEncoder.decode(((IRIConstant) value).getIRI().getIRIString());
+            if (iriDictionary != null) {
+                return termFactory.getImmutableUriTemplate(termFactory.getConstantLiteral(
+                        String.valueOf(iriDictionary.getId(iri)), typeFactory.getXsdIntegerDatatype()));
+            }
+            return uriTemplateMatcher.generateURIFunction(iri);
+        }
+        else if (value instanceof ValueConstant) {
+            ValueConstant literal = (ValueConstant) value;
+            RDFDatatype datatype = literal.getType();
+            ValueConstant lexicalValue = datatype.getLanguageTag().isPresent()
+                    ? termFactory.getConstantLiteral(literal.getValue(), typeFactory.getXsdStringDatatype())
+                    : literal;
+            return termFactory.getImmutableTypedTerm(lexicalValue, datatype);
+        }
+        throw new OntopUnsupportedInputQueryException("Unsupported value for the parameter " + name + ": " + value);
+    }
+
+    /**
+     * The term without its lexical values. Empty if the term is not an IRI or a literal.
+     */
+    private Optional<String> getShape(ImmutableFunctionalTerm term) {
+        FunctionSymbol functionSymbol = term.getFunctionSymbol();
+        if (functionSymbol instanceof URITemplatePredicate) {
+            if (iriDictionary != null)
+                return Optional.of("iri-id");
+            return Optional.of("iri:" + ((term.getArity() == 1)
+                    ? "{}"
+                    : ((ValueConstant) term.getTerm(0)).getValue()));
+        }
+        else if (functionSymbol instanceof DatatypePredicate) {
+            RDFDatatype datatype = ((DatatypePredicate) functionSymbol).getReturnedType();
+            return Optional.of("literal:" + datatype.getIRI().getIRIString()
+                    + datatype.getLanguageTag().map(t -> "@" + t.getFullString()).orElse(""));
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Parameters that have to be bound to their actual values (see above)
+     */
+    ImmutableSet<String> getValueBoundParameters(IQ query, ImmutableList<QueryParameter> parameters) {
+        IQTree tree = query.getTree();
+        VariableNullability nullability = tree.getVariableNullability();
+        ImmutableSet<Variable> expressionVariables = getExpressionVariables(tree)
+                .collect(ImmutableCollectors.toSet());
+        ImmutableSet<String> groundShapes = getIntensionalNodes(tree)
+                .flatMap(this::getDefinitions)
+                .flatMap(d -> getGroundTerms(d.getTree()))
+                .map(this::getShape)
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .collect(ImmutableCollectors.toSet());
+
+        return parameters.stream()
+                .filter(p -> nullability.isPossiblyNullable(p.variable)
+                        || expressionVariables.contains(p.variable)
+                        || groundShapes.contains(p.shape))
+                .map(p -> p.name)
+                .collect(ImmutableCollectors.toSet());
+    }
+
+    /**
+     * Placeholders are numbered in the order of the parameters (skipping the value-bound ones).
+     *
+     * The query modifiers are kept on top.
+     */
+    IQ bind(IQ query, ImmutableList<QueryParameter> parameters, ImmutableSet<String> valueBoundParameters) {
+        ImmutableMap.Builder<Variable, ImmutableTerm> placeholderBuilder = ImmutableMap.builder();
+        ImmutableList.Builder<ImmutableExpression> conditionBuilder = ImmutableList.builder();
+        int index = 0;
+        for (QueryParameter parameter : parameters) {
+            if (valueBoundParameters.contains(parameter.name)) {
+                conditionBuilder.add(termFactory.getImmutableExpression(ExpressionOperation.EQ,
+                        parameter.variable, parameter.term));
+            }
+            else {
+                placeholderBuilder.put(parameter.variable, parameter.createPlaceholderTerm(index));
+                index += parameter.getLexicalValues().size();
+            }
+        }
+        return iqFactory.createIQ(query.getProjectionAtom(), bind(query.getTree(), placeholderBuilder.build(),
+                conditionBuilder.build()));
+    }
+
+    private IQTree bind(IQTree tree, ImmutableMap<Variable, ImmutableTerm> placeholderTerms,
+                        ImmutableList<ImmutableExpression> conditions) {
+        QueryNode rootNode = tree.getRootNode();
+        if (rootNode instanceof QueryModifierNode) {
+            return iqFactory.createUnaryIQTree((QueryModifierNode) rootNode,
+                    bind(((UnaryIQTree) tree).getChild(), placeholderTerms, conditions));
+        }
+
+        IQTree filteredTree = conditions.stream()
+                .reduce((c1, c2) -> termFactory.getImmutableExpression(ExpressionOperation.AND, c1, c2))
+                .map(c -> (IQTree) iqFactory.createUnaryIQTree(iqFactory.createFilterNode(c), tree))
+                .orElse(tree);
+
+        if (placeholderTerms.isEmpty())
+            return filteredTree;
+
+        // Placeholder terms are ground
+        ImmutableSubstitution<GroundTerm> descendingSubstitution = substitutionFactory.getSubstitution(
+                placeholderTerms.entrySet().stream()
+                        .collect(ImmutableCollectors.toMap(
+                                Map.Entry::getKey,
+                                e -> (GroundTerm) e.getValue())));
+
+        return iqFactory.createUnaryIQTree(
+                iqFactory.createConstructionNode(tree.getVariables(),
+                        substitutionFactory.getSubstitution(placeholderTerms)),
+                filteredTree.applyDescendingSubstitution(descendingSubstitution, Optional.empty()));
+    }
+
+    /**
+     * Values of the placeholders introduced by {@link #bind}
+     */
+    ImmutableList<ValueConstant> getPlaceholderValues(ImmutableList<QueryParameter> parameters,
+                                                      ImmutableSet<String> valueBoundParameters) {
+        return parameters.stream()
+                .filter(p -> !valueBoundParameters.contains(p.name))
+                .flatMap(p -> p.getLexicalValues().stream())
+                .collect(ImmutableCollectors.toList());
+    }
+
+    ImmutableMap<String, Constant> getValues(ImmutableList<QueryParameter> parameters,
+                                             ImmutableSet<String> valueBoundParameters) {
+        return parameters.stream()
+                .filter(p -> valueBoundParameters.contains(p.name))
+                .collect(ImmutableCollectors.toMap(p -> p.name, p -> p.value));
+    }
+
+    ImmutableMap<String, String> getShapes(ImmutableList<QueryParameter> parameters) {
+        return parameters.stream()
+                .collect(ImmutableCollectors.toMap(p -> p.name, p -> p.shape));
+    }
+
+    private static Stream<Variable> getExpressionVariables(IQTree tree) {
+        QueryNode rootNode = tree.getRootNode();
+        Stream<Variable> localVariables;
+        if (rootNode instanceof JoinOrFilterNode) {
+            localVariables = ((JoinOrFilterNode) rootNode).getOptionalFilterCondition()
+                    .map(c -> c.getVariables().stream())
+                    .orElseGet(Stream::empty);
+        }
+        else if (rootNode instanceof ConstructionNode) {
+            localVariables = ((ConstructionNode) rootNode).getSubstitution().getImmutableMap().values().stream()
+                    .flatMap(ImmutableTerm::getVariableStream);
+        }
+        else
+            localVariables = Stream.empty();
+
+        return Stream.concat(localVariables, tree.getChildren().stream()
+                .flatMap(QueryParameterBinder::getExpressionVariables));
+    }
+
+    private static Stream<IntensionalDataNode> getIntensionalNodes(IQTree tree) {
+        QueryNode rootNode = tree.getRootNode();
+        return (rootNode instanceof IntensionalDataNode)
+                ? Stream.of((IntensionalDataNode) rootNode)
+                : tree.getChildren().stream()
+                    .flatMap(QueryParameterBinder::getIntensionalNodes);
+    }
+
+    /**
+     * Same definitions as the ones used by the unfolder
+     */
+    private Stream<IQ> getDefinitions(IntensionalDataNode dataNode) {
+        DataAtom<AtomPredicate> atom = dataNode.getProjectionAtom();
+        if (!(atom.getPredicate() instanceof RDFAtomPredicate))
+            return Stream.empty();
+        RDFAtomPredicate predicate = (RDFAtomPredicate) atom.getPredicate();
+        ImmutableList<? extends VariableOrGroundTerm> arguments = atom.getArguments();
+
+        Optional<org.apache.commons.rdf.api.IRI> propertyIRI = predicate.getPropertyIRI(arguments);
+        if (!propertyIRI.isPresent())
+            return mapping.getQueries(predicate).stream();
+        if (!propertyIRI.get().equals(RDF.TYPE))
+            return optionalToStream(mapping.getRDFPropertyDefinition(predicate, propertyIRI.get()));
+
+        return predicate.getClassIRI(arguments)
+                .map(i -> optionalToStream(mapping.getRDFClassDefinition(predicate, i)))
+                .orElseGet(() -> mapping.getRDFClasses(predicate).stream()
+                        .flatMap(i -> optionalToStream(mapping.getRDFClassDefinition(predicate, i))));
+    }
+
+    private static Stream<ImmutableFunctionalTerm> getGroundTerms(IQTree tree) {
+        QueryNode rootNode = tree.getRootNode();
+        Stream<ImmutableFunctionalTerm> localTerms = (rootNode instanceof ConstructionNode)
+                ? ((ConstructionNode) rootNode).getSubstitution().getImmutableMap().values().stream()
+                    .filter(t -> (t instanceof ImmutableFunctionalTerm) && t.isGround())
+                    .map(t -> (ImmutableFunctionalTerm) t)
+                : Stream.empty();
+        return Stream.concat(localTerms, tree.getChildren().stream()
+                .flatMap(QueryParameterBinder::getGroundTerms));
+    }
+
+    private static <T> Stream<T> optionalToStream(Optional<T> optional) {
+        return optional.map(Stream::of).orElseGet(Stream::empty);
+    }
+
+
+    /**
+     * Parameter value, decomposed
+     */
+    class QueryParameter {
+        private final String name;
+        private final Variable variable;
+        private final Constant value;
+        // Term with the lexical values
+        private final ImmutableFunctionalTerm term;
+        private final String shape;
+
+        private QueryParameter(String name, Variable variable, Constant value, ImmutableFunctionalTerm term,
+                               String shape) {
+            this.name = name;
+            this.variable = variable;
+            this.value = value;
+            this.term = term;
+            this.shape = shape;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        /**
+         * The arguments of the IRI template (the IRI itself when there is no template) or the lexical form
+         */
+        private ImmutableList<Integer> getLexicalPositions() {
+            return (term.getArity() == 1)
+                    ? ImmutableList.of(0)
+                    : IntStream.range(1, term.getArity()).boxed().collect(ImmutableCollectors.toList());
+        }
+
+        ImmutableList<ValueConstant> getLexicalValues() {
+            return getLexicalPositions().stream()
+                    .map(i -> (ValueConstant) term.getTerm(i))
+                    .collect(ImmutableCollectors.toList());
+        }
+
+        ImmutableTerm createPlaceholderTerm(int firstIndex) {
+            ImmutableList<Integer> lexicalPositions = getLexicalPositions();
+            ImmutableList<ImmutableTerm> arguments = IntStream.range(0, term.getArity())
+                    .mapToObj(i -> lexicalPositions.contains(i)
+                            ? QueryParameterPlaceholders.createPlaceholder(termFactory,
+                                firstIndex + lexicalPositions.indexOf(i),
+                                ((ValueConstant) term.getTerm(i)).getType())
+                            : term.getTerm(i))
+                    .collect(ImmutableCollectors.toList());
+            return termFactory.getImmutableFunctionalTerm(term.getFunctionSymbol(), arguments);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package it.unibz.inf.ontop.answering.reformulation.impl;
+
+import com.google.common.collect.ImmutableMap;
+import it.unibz.inf.ontop.answering.reformulation.input.InputQuery;
+import it.unibz.inf.ontop.answering.reformulation.input.translation.InputQueryTranslator;
+import it.unibz.inf.ontop.datalog.InternalSparqlQuery;
+import it.unibz.inf.ontop.exception.OntopInvalidInputQueryException;
+import it.unibz.inf.ontop.exception.OntopUnsupportedInputQueryException;
+import it.unibz.inf.ontop.iq.IQ;
+import it.unibz.inf.ontop.model.term.Constant;
+
+/**
+ * Input query together with the shapes of its parameters (e.g. the IRI template or the datatype of their values).
+ *
+ * The values of some parameters cannot be replaced by placeholders (see {@link QuestQueryProcessor}):
+ * they are then part of the key.
+ *
+ * Used as a key for caching query templates separately from regular queries.
+ */
+class QueryTemplateKey implements InputQuery {
+
+    private final InputQuery inputQuery;
+    private final ImmutableMap<String, String> parameterShapes;
+    private final ImmutableMap<String, Constant> boundValues;
+
+    QueryTemplateKey(InputQuery inputQuery, ImmutableMap<String, String> parameterShapes) {
+        this(inputQuery, parameterShapes, ImmutableMap.of());
+    }
+
+    private QueryTemplateKey(InputQuery inputQuery, ImmutableMap<String, String> parameterShapes,
+                             ImmutableMap<String, Constant> boundValues) {
+        this.inputQuery = inputQuery;
+        this.parameterShapes = parameterShapes;
+        this.boundValues = boundValues;
+    }
+
+    QueryTemplateKey bindValues(ImmutableMap<String, Constant> values) {
+        return values.isEmpty()
+                ? this
+                : new QueryTemplateKey(inputQuery, parameterShapes, values);
+    }
+
+    @Override
+    public String getInputString() {
+        return inputQuery.getInputString();
+    }
+
+    @Override
+    public InternalSparqlQuery translate(InputQueryTranslator translator)
+            throws OntopUnsupportedInputQueryException, OntopInvalidInputQueryException {
+        return inputQuery.translate(translator);
+    }
+
+    @Override
+    public IQ translateIntoIQ(InputQueryTranslator translator)
+            throws OntopUnsupportedInputQueryException, OntopInvalidInputQueryException {
+        return inputQuery.translateIntoIQ(translator);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        QueryTemplateKey that = (QueryTemplateKey) o;
+
+        return parameterShapes.equals(that.parameterShapes) && boundValues.equals(that.boundValues)
+                && inputQuery.equals(that.inputQuery);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * inputQuery.hashCode() + parameterShapes.hashCode()) + boundValues.hashCode();
+    }
+}
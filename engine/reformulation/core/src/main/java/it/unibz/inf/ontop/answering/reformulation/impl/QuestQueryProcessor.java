@@ -1,16 +1,24 @@
 package it.unibz.inf.ontop.answering.reformulation.impl;
 
 import com.google.common.base.Joiner;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.inject.assistedinject.Assisted;
 import com.google.inject.assistedinject.AssistedInject;
 import it.unibz.inf.ontop.answering.reformulation.ExecutableQuery;
+import it.unibz.inf.ontop.answering.reformulation.ExecutableQueryTemplate;
+import it.unibz.inf.ontop.answering.reformulation.IRIDictionary;
 import it.unibz.inf.ontop.answering.reformulation.QueryCache;
 import it.unibz.inf.ontop.answering.reformulation.QueryReformulator;
 import it.unibz.inf.ontop.answering.reformulation.generation.NativeQueryGenerator;
+import it.unibz.inf.ontop.answering.reformulation.impl.QueryParameterBinder.QueryParameter;
 import it.unibz.inf.ontop.answering.reformulation.input.InputQuery;
 import it.unibz.inf.ontop.answering.reformulation.input.InputQueryFactory;
 import it.unibz.inf.ontop.answering.reformulation.input.translation.InputQueryTranslator;
+import it.unibz.inf.ontop.answering.reformulation.input.translation.RDF4JInputQueryToIQTranslator;
 import it.unibz.inf.ontop.answering.reformulation.rewriting.QueryRewriter;
 import it.unibz.inf.ontop.answering.reformulation.rewriting.SameAsRewriter;
 import it.unibz.inf.ontop.answering.reformulation.unfolding.QueryUnfolder;
@@ -18,6 +26,7 @@ import it.unibz.inf.ontop.datalog.*;
 import it.unibz.inf.ontop.dbschema.DBMetadata;
 import it.unibz.inf.ontop.exception.OntopInvalidInputQueryException;
 import it.unibz.inf.ontop.exception.OntopReformulationException;
+import it.unibz.inf.ontop.injection.IntermediateQueryFactory;
 import it.unibz.inf.ontop.injection.OntopReformulationSettings;
 import it.unibz.inf.ontop.injection.TranslationFactory;
 import it.unibz.inf.ontop.iq.IQ;
@@ -25,14 +34,24 @@ import it.unibz.inf.ontop.iq.IntermediateQuery;
 import it.unibz.inf.ontop.iq.exception.EmptyQueryException;
 import it.unibz.inf.ontop.iq.optimizer.*;
 import it.unibz.inf.ontop.iq.tools.ExecutorRegistry;
-import it.unibz.inf.ontop.iq.tools.IQConverter;
+import it.unibz.inf.ontop.iq.tools.ReformulationTrace;
+import it.unibz.inf.ontop.model.atom.AtomFactory;
+import it.unibz.inf.ontop.model.atom.DistinctVariableOnlyDataAtom;
+import it.unibz.inf.ontop.model.term.Constant;
+import it.unibz.inf.ontop.model.term.TermFactory;
 import it.unibz.inf.ontop.model.term.Variable;
+import it.unibz.inf.ontop.model.type.TypeFactory;
 import it.unibz.inf.ontop.spec.OBDASpecification;
 import it.unibz.inf.ontop.spec.mapping.Mapping;
+import it.unibz.inf.ontop.substitution.SubstitutionFactory;
 import it.unibz.inf.ontop.utils.ImmutableCollectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+import java.util.Optional;
+import java.util.function.UnaryOperator;
+
 /**
  * TODO: rename it QueryTranslatorImpl ?
  */
@@ -44,47 +63,51 @@ public class QuestQueryProcessor implements QueryReformulator {
 
 	private final QueryUnfolder queryUnfolder;
 	private final SameAsRewriter sameAsRewriter;
-	private final BindingLiftOptimizer bindingLiftOptimizer;
+	private final PostUnfoldingOptimizer postUnfoldingOptimizer;
 
 	private static final Logger log = LoggerFactory.getLogger(QuestQueryProcessor.class);
 	private final ExecutorRegistry executorRegistry;
 	private final OntopReformulationSettings settings;
 	private final DBMetadata dbMetadata;
-	private final JoinLikeOptimizer joinLikeOptimizer;
 	private final InputQueryTranslator inputQueryTranslator;
 	private final InputQueryFactory inputQueryFactory;
 	private final DatalogFactory datalogFactory;
-	private final FlattenUnionOptimizer flattenUnionOptimizer;
 	private final EQNormalizer eqNormalizer;
-	private final PushUpBooleanExpressionOptimizer pullUpExpressionOptimizer;
-	private final IQConverter iqConverter;
     private final DatalogProgram2QueryConverter datalogConverter;
+	private final IntermediateQueryFactory iqFactory;
+	private final AtomFactory atomFactory;
+	// Without going through Datalog
+	private final boolean isDirectIQTranslationEnabled;
+	private final QueryParameterBinder parameterBinder;
+	// Value-bound parameters of the query templates (see QueryParameterBinder)
+	private final Cache<QueryTemplateKey, ImmutableSet<String>> valueBoundParameterCache;
+
+	private static final int VALUE_BOUND_PARAMETER_CACHE_SIZE = 10000;
 
 	@AssistedInject
 	private QuestQueryProcessor(@Assisted OBDASpecification obdaSpecification,
                                 @Assisted ExecutorRegistry executorRegistry,
                                 QueryCache queryCache,
-                                BindingLiftOptimizer bindingLiftOptimizer, OntopReformulationSettings settings,
+                                PostUnfoldingOptimizer postUnfoldingOptimizer, OntopReformulationSettings settings,
                                 TranslationFactory translationFactory,
                                 QueryRewriter queryRewriter,
-                                JoinLikeOptimizer joinLikeOptimizer,
                                 InputQueryFactory inputQueryFactory,
                                 DatalogFactory datalogFactory,
-                                FlattenUnionOptimizer flattenUnionOptimizer,
                                 EQNormalizer eqNormalizer,
-                                PushUpBooleanExpressionOptimizer pullUpExpressionOptimizer,
-                                IQConverter iqConverter, DatalogProgram2QueryConverter datalogConverter) {
-		this.bindingLiftOptimizer = bindingLiftOptimizer;
+                                DatalogProgram2QueryConverter datalogConverter,
+                                IntermediateQueryFactory iqFactory, AtomFactory atomFactory,
+                                TermFactory termFactory, TypeFactory typeFactory,
+                                SubstitutionFactory substitutionFactory,
+                                @Nullable IRIDictionary iriDictionary) {
+		this.postUnfoldingOptimizer = postUnfoldingOptimizer;
 		this.settings = settings;
-		this.joinLikeOptimizer = joinLikeOptimizer;
 		this.inputQueryFactory = inputQueryFactory;
 		this.datalogFactory = datalogFactory;
-		this.flattenUnionOptimizer = flattenUnionOptimizer;
 		this.eqNormalizer = eqNormalizer;
-		this.pullUpExpressionOptimizer = pullUpExpressionOptimizer;
-		this.iqConverter = iqConverter;
 		this.rewriter = queryRewriter;
         this.datalogConverter = datalogConverter;
+		this.iqFactory = iqFactory;
+		this.atomFactory = atomFactory;
 
         this.rewriter.setTBox(obdaSpecification.getSaturatedTBox());
 
@@ -104,12 +127,42 @@ public class QuestQueryProcessor implements QueryReformulator {
 		this.inputQueryTranslator = translationFactory.createInputQueryTranslator(saturatedMapping.getMetadata()
 				.getUriTemplateMatcher());
 		this.sameAsRewriter = translationFactory.createSameAsRewriter(saturatedMapping);
+		// The SameAs rewriting is still performed over Datalog
+		this.isDirectIQTranslationEnabled = (inputQueryTranslator instanceof RDF4JInputQueryToIQTranslator)
+				&& (!settings.isSameAsInMappingsEnabled());
 		this.queryCache = queryCache;
 		this.executorRegistry = executorRegistry;
+		this.parameterBinder = new QueryParameterBinder(saturatedMapping, iriDictionary, termFactory, typeFactory,
+				iqFactory, substitutionFactory);
+		this.valueBoundParameterCache = CacheBuilder.newBuilder()
+				.maximumSize(VALUE_BOUND_PARAMETER_CACHE_SIZE)
+				.build();
 
 		log.info("Ontop has completed the setup and it is ready for query answering!");
 	}
 
+	/**
+	 * Directly if supported by the input query translator, otherwise through Datalog
+	 */
+	private IQ translateIntoIQ(InputQuery inputQuery) throws OntopReformulationException {
+		if (isDirectIQTranslationEnabled) {
+			IQ iq = inputQuery.translateIntoIQ(inputQueryTranslator);
+			log.debug("IQ translated from the SPARQL query: \n{}", iq);
+			// Propagates the equalities (as the EQNormalizer does for Datalog)
+			return iq.liftBinding();
+		}
+
+		InternalSparqlQuery translation = inputQuery.translate(inputQueryTranslator);
+		try {
+			return preProcess(translation);
+		} catch (EmptyQueryException e) {
+			ImmutableList<Variable> signature = translation.getSignature();
+			DistinctVariableOnlyDataAtom projectionAtom = atomFactory.getDistinctVariableOnlyDataAtom(
+					atomFactory.getRDFAnswerPredicate(signature.size()), signature);
+			return iqFactory.createIQ(projectionAtom, iqFactory.createEmptyNode(projectionAtom.getVariables()));
+		}
+	}
+
 	private IQ preProcess(InternalSparqlQuery translation) throws OntopInvalidInputQueryException, EmptyQueryException {
 		DatalogProgram program = translation.getProgram();
 		log.debug("Datalog program translated from the SPARQL query: \n{}", program);
@@ -142,66 +195,141 @@ public class QuestQueryProcessor implements QueryReformulator {
 	@Override
 	public ExecutableQuery reformulateIntoNativeQuery(InputQuery inputQuery)
 			throws OntopReformulationException {
+		return reformulate(inputQuery, inputQuery, Optional.empty(), Optional.empty(), ReformulationTrace.disabled());
+	}
+
+	@Override
+	public ExecutableQuery reformulateIntoNativeQuery(InputQuery inputQuery, ReformulationTrace trace)
+			throws OntopReformulationException {
+		return reformulate(inputQuery, inputQuery, Optional.empty(), Optional.empty(), trace);
+	}
 
-		ExecutableQuery cachedQuery = queryCache.get(inputQuery);
-		if (cachedQuery != null)
-			return cachedQuery;
+	/**
+	 * The template is cached under the query and the shapes of the parameter values
+	 * (and the values of the value-bound parameters, see {@link QueryParameterBinder}).
+	 */
+	@Override
+	public ExecutableQuery reformulateIntoNativeQuery(InputQuery inputQuery,
+													  ImmutableMap<String, Constant> parameterValues)
+			throws OntopReformulationException {
+		if (parameterValues.isEmpty())
+			return reformulateIntoNativeQuery(inputQuery);
+
+		ImmutableList<QueryParameter> parameters = parameterBinder.decompose(parameterValues);
+		QueryTemplateKey templateKey = new QueryTemplateKey(inputQuery, parameterBinder.getShapes(parameters));
+
+		ImmutableSet<String> valueBoundParameters = valueBoundParameterCache.getIfPresent(templateKey);
+		// Re-used by the reformulation of the template (if not cached either)
+		Optional<IQ> translatedIQ = Optional.empty();
+		if (valueBoundParameters == null) {
+			IQ convertedIQ = translateIntoIQ(inputQuery);
+			checkParameters(parameters, convertedIQ);
+			valueBoundParameters = parameterBinder.getValueBoundParameters(convertedIQ, parameters);
+			valueBoundParameterCache.put(templateKey, valueBoundParameters);
+			if (!valueBoundParameters.isEmpty())
+				log.debug("Parameters bound to their values in the query template: {}", valueBoundParameters);
+			translatedIQ = Optional.of(convertedIQ);
+		}
+		ImmutableSet<String> finalValueBoundParameters = valueBoundParameters;
+
+		ExecutableQuery executableQuery = reformulate(inputQuery,
+				templateKey.bindValues(parameterBinder.getValues(parameters, valueBoundParameters)),
+				translatedIQ,
+				Optional.of(iq -> parameterBinder.bind(iq, parameters, finalValueBoundParameters)),
+				ReformulationTrace.disabled());
+
+		return (executableQuery instanceof ExecutableQueryTemplate)
+				? ((ExecutableQueryTemplate) executableQuery).bind(
+						parameterBinder.getPlaceholderValues(parameters, valueBoundParameters))
+				: executableQuery;
+	}
 
+	/**
+	 * When the parameter binding is present, produces a query template.
+	 *
+	 * The input query is only translated into an IQ if not already done by the caller (translatedIQ).
+	 *
+	 * When debugging, the reformulation is traced (even if not requested) and the trace is logged.
+	 */
+	private ExecutableQuery reformulate(InputQuery inputQuery, InputQuery cacheKey, Optional<IQ> translatedIQ,
+										Optional<UnaryOperator<IQ>> parameterBinding,
+										ReformulationTrace requestedTrace) throws OntopReformulationException {
+		ReformulationTrace trace = (requestedTrace.isEnabled() || (!log.isDebugEnabled()))
+				? requestedTrace
+				: ReformulationTrace.create();
 		try {
-            InternalSparqlQuery translation = inputQuery.translate(inputQueryTranslator);
+			ExecutableQuery cachedQuery = queryCache.get(cacheKey);
+			if (cachedQuery != null) {
+				trace.recordPhase("query cache hit", 0);
+				return cachedQuery;
+			}
+			return reformulateNewQuery(inputQuery, cacheKey, translatedIQ, parameterBinding, trace);
+		} finally {
+			if (trace.isEnabled())
+				log.debug("{}", trace);
+		}
+	}
+
+	private ExecutableQuery reformulateNewQuery(InputQuery inputQuery, InputQuery cacheKey,
+												Optional<IQ> translatedIQ,
+												Optional<UnaryOperator<IQ>> parameterBinding,
+												ReformulationTrace trace)
+			throws OntopReformulationException {
+
+		long beginning = System.currentTimeMillis();
+
+		try {
+            long start = System.currentTimeMillis();
+            IQ iq = translatedIQ.isPresent()
+                    ? translatedIQ.get()
+                    : translateIntoIQ(inputQuery);
+            // The parameters are bound before unfolding
+            IQ convertedIQ = parameterBinding
+                    .map(b -> b.apply(iq))
+                    .orElse(iq);
+            trace.recordPhase("translation into IQ", System.currentTimeMillis() - start, convertedIQ);
 
             try {
-                IQ convertedIQ = preProcess(translation);
+                if (convertedIQ.getTree().isDeclaredAsEmpty())
+                    throw new EmptyQueryException();
 
                 log.debug("Start the rewriting process...");
+                start = System.currentTimeMillis();
                 IQ rewrittenIQ = rewriter.rewrite(convertedIQ);
+                trace.recordPhase("rewriting", System.currentTimeMillis() - start, rewrittenIQ);
 
-                log.debug("Directly translated (SPARQL) IQ: \n" + rewrittenIQ.toString());
+                log.debug("Directly translated (SPARQL) IQ: \n{}", rewrittenIQ);
 
                 log.debug("Start the unfolding...");
 
+                start = System.currentTimeMillis();
                 IQ unfoldedIQ = queryUnfolder.optimize(rewrittenIQ);
+                trace.recordPhase("unfolding", System.currentTimeMillis() - start, unfoldedIQ);
                 if (unfoldedIQ.getTree().isDeclaredAsEmpty())
                     throw new EmptyQueryException();
-                log.debug("Unfolded query: \n" + unfoldedIQ.toString());
-
-                // Non-final
-                IntermediateQuery intermediateQuery = iqConverter.convert(unfoldedIQ, dbMetadata, executorRegistry);
-
-                //lift bindings and union when it is possible
-                intermediateQuery = bindingLiftOptimizer.optimize(intermediateQuery);
-                log.debug("New query after substitution lift optimization: \n" + intermediateQuery.toString());
+                log.debug("Unfolded query: \n{}", unfoldedIQ);
 
-                log.debug("New lifted query: \n" + intermediateQuery.toString());
+                // Lifts the bindings over the IQ before converting it (once) into an IntermediateQuery
+                IntermediateQuery intermediateQuery = postUnfoldingOptimizer.optimize(unfoldedIQ, dbMetadata,
+                        executorRegistry, trace);
 
-                intermediateQuery = pullUpExpressionOptimizer.optimize(intermediateQuery);
-                log.debug("After pushing up boolean expressions: \n" + intermediateQuery.toString());
-
-                intermediateQuery = new ProjectionShrinkingOptimizer().optimize(intermediateQuery);
-
-                log.debug("After projection shrinking: \n" + intermediateQuery.toString());
-
-
-                intermediateQuery = joinLikeOptimizer.optimize(intermediateQuery);
-                log.debug("New query after fixed point join optimization: \n" + intermediateQuery.toString());
-
-                intermediateQuery = flattenUnionOptimizer.optimize(intermediateQuery);
-                log.debug("New query after flattening Unions: \n" + intermediateQuery.toString());
-
-                ExecutableQuery executableQuery = generateExecutableQuery(intermediateQuery);
-                queryCache.put(inputQuery, executableQuery);
+                start = System.currentTimeMillis();
+                ExecutableQuery executableQuery = generateExecutableQuery(intermediateQuery,
+                        parameterBinding.isPresent());
+                trace.recordPhase("native query generation", System.currentTimeMillis() - start);
+                queryCache.put(cacheKey, executableQuery, System.currentTimeMillis() - beginning);
                 return executableQuery;
 
             }
             catch (EmptyQueryException e) {
                 // No solution.
                 ExecutableQuery emptyQuery = datasourceQueryGenerator.generateEmptyQuery(
-                		translation.getSignature().stream()
+                		convertedIQ.getProjectionAtom().getArguments().stream()
 								.map(Variable::getName)
 								.collect(ImmutableCollectors.toList()));
 
                 log.debug("Empty query --> no solution.");
-                queryCache.put(inputQuery, emptyQuery);
+                queryCache.put(cacheKey, emptyQuery, System.currentTimeMillis() - beginning);
                 return emptyQuery;
             }
             catch (OntopReformulationException e) {
@@ -219,11 +347,26 @@ public class QuestQueryProcessor implements QueryReformulator {
 		}
 	}
 
-	private ExecutableQuery generateExecutableQuery(IntermediateQuery intermediateQuery)
+	private void checkParameters(ImmutableList<QueryParameter> parameters, IQ convertedIQ)
+			throws OntopInvalidInputQueryException {
+		ImmutableSet<String> projectedVariableNames = convertedIQ.getProjectionAtom().getArguments().stream()
+				.map(Variable::getName)
+				.collect(ImmutableCollectors.toSet());
+
+		for (QueryParameter parameter : parameters) {
+			if (!projectedVariableNames.contains(parameter.getName()))
+				throw new OntopInvalidInputQueryException("The parameter " + parameter.getName()
+						+ " is not a projected variable of the query");
+		}
+	}
+
+	private ExecutableQuery generateExecutableQuery(IntermediateQuery intermediateQuery, boolean hasPlaceholders)
 			throws OntopReformulationException {
 		log.debug("Producing the native query string...");
 
-		ExecutableQuery executableQuery = datasourceQueryGenerator.generateSourceQuery(intermediateQuery);
+		ExecutableQuery executableQuery = hasPlaceholders
+				? datasourceQueryGenerator.generateTemplateQuery(intermediateQuery)
+				: datasourceQueryGenerator.generateSourceQuery(intermediateQuery);
 
 		log.debug("Resulting native query: \n{}", executableQuery);
 
@@ -236,9 +379,10 @@ public class QuestQueryProcessor implements QueryReformulator {
 	 */
 	@Override
 	public String getRewritingRendering(InputQuery query) throws OntopReformulationException {
-		InternalSparqlQuery translation = query.translate(inputQueryTranslator);
+		IQ converetedIQ = translateIntoIQ(query);
 		try {
-            IQ converetedIQ = preProcess(translation);
+			if (converetedIQ.getTree().isDeclaredAsEmpty())
+				throw new EmptyQueryException();
 			IQ rewrittenIQ = rewriter.rewrite(converetedIQ);
 			return rewrittenIQ.toString();
 		}
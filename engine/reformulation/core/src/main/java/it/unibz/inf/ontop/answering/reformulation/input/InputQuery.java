@@ -6,6 +6,7 @@ import it.unibz.inf.ontop.exception.OntopInvalidInputQueryException;
 import it.unibz.inf.ontop.exception.OntopUnsupportedInputQueryException;
 import it.unibz.inf.ontop.answering.resultset.OBDAResultSet;
 import it.unibz.inf.ontop.datalog.InternalSparqlQuery;
+import it.unibz.inf.ontop.iq.IQ;
 
 /**
  * Must throw an OntopInvalidInputQueryException at CONSTRUCTION time if the input query is invalid.
@@ -21,4 +22,10 @@ public interface InputQuery<R extends OBDAResultSet> {
      * TODO: return an IntermediateQuery instead!
      */
     InternalSparqlQuery translate(InputQueryTranslator translator) throws OntopUnsupportedInputQueryException, OntopInvalidInputQueryException;
+
+    /**
+     * Direct translation into an IQ (without going through Datalog).
+     * Requires a translator supporting it.
+     */
+    IQ translateIntoIQ(InputQueryTranslator translator) throws OntopUnsupportedInputQueryException, OntopInvalidInputQueryException;
 }
@@ -25,6 +25,8 @@ import org.eclipse.rdf4j.query.algebra.TupleExpr;
 import org.eclipse.rdf4j.query.parser.ParsedQuery;
 import org.eclipse.rdf4j.query.parser.sparql.SPARQLParser;
 
+import java.util.Collection;
+
 public class SPARQLQueryUtility {
 	
 	private static final String ASK_KEYWORD = "ask";
@@ -127,6 +129,25 @@ public class SPARQLQueryUtility {
 				+ constant + "> ?p ?o}";
 	}
 
+	/**
+	 * Single CONSTRUCT query describing several resources, in subject and in object position.
+	 *
+	 * Union of the queries produced by getConstructSubjQuery and getConstructObjQuery,
+	 * the described resource being bound to ?s or ?o so that all the branches share the same template.
+	 */
+	public static String getDescribeConstructQuery(Collection<String> constants) {
+		StringBuilder sb = new StringBuilder("CONSTRUCT { ?s ?p ?o } WHERE { ");
+		boolean isFirst = true;
+		for (String constant : constants) {
+			if (!isFirst)
+				sb.append(" UNION ");
+			isFirst = false;
+			sb.append("{ <").append(constant).append("> ?p ?o BIND(<").append(constant).append("> AS ?s) }")
+					.append(" UNION { ?s ?p <").append(constant).append("> BIND(<").append(constant).append("> AS ?o) }");
+		}
+		return sb.append(" }").toString();
+	}
+
 	public static String getSelectFromConstruct(String strquery){
 		String strlower = strquery.toLowerCase();
 		// Let's assume it IS Construct query and we don't need to check
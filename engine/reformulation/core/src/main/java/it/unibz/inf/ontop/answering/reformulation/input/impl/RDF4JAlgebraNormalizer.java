@@ -0,0 +1,46 @@
+package it.unibz.inf.ontop.answering.reformulation.input.impl;
+
+import org.eclipse.rdf4j.query.Dataset;
+import org.eclipse.rdf4j.query.algebra.QueryModelNode;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Renders an RDF4J algebra tree into a canonical string, usable as a key for caching.
+ *
+ * The RDF4J SPARQL parser names its anonymous variables (blank nodes, property paths, etc.)
+ * after random UUIDs, so two parsings of the same query string never produce equal trees.
+ * These names are replaced by positional ones (in order of first occurrence).
+ */
+class RDF4JAlgebraNormalizer {
+
+    private static final String ANONYMOUS_PREFIX = "_anon_";
+    private static final Pattern ANONYMOUS_VARIABLE_PATTERN = Pattern.compile(ANONYMOUS_PREFIX
+            + "[0-9a-fA-F]{8}(_[0-9a-fA-F]{4}){3}_[0-9a-fA-F]{12}");
+
+    private RDF4JAlgebraNormalizer() {
+    }
+
+    static String normalize(QueryModelNode node, Dataset dataset) {
+        String rendering = (dataset == null)
+                ? node.toString()
+                : dataset.toString() + "\n" + node.toString();
+
+        Matcher matcher = ANONYMOUS_VARIABLE_PATTERN.matcher(rendering);
+        Map<String, String> renaming = new HashMap<>();
+        StringBuffer sb = new StringBuffer(rendering.length());
+        while (matcher.find()) {
+            String newName = renaming.get(matcher.group());
+            if (newName == null) {
+                newName = ANONYMOUS_PREFIX + renaming.size();
+                renaming.put(matcher.group(), newName);
+            }
+            matcher.appendReplacement(sb, newName);
+        }
+        matcher.appendTail(sb);
+        return sb.toString();
+    }
+}
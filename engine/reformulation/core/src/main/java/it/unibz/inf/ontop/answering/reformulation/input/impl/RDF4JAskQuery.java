@@ -18,11 +18,11 @@ class RDF4JAskQuery extends RDF4JInputQuery<BooleanResultSet>  implements AskQue
 
         RDF4JAskQuery that = (RDF4JAskQuery) o;
 
-        return getParsedQuery().equals(that.getParsedQuery());
+        return getNormalizedAlgebra().equals(that.getNormalizedAlgebra());
     }
 
     @Override
     public int hashCode() {
-        return getParsedQuery().hashCode();
+        return getNormalizedAlgebra().hashCode();
     }
 }
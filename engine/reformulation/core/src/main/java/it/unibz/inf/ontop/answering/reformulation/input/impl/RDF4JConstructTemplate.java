@@ -29,8 +29,12 @@ import org.eclipse.rdf4j.query.parser.ParsedQuery;
 class RDF4JConstructTemplate implements ConstructTemplate {
     private final TupleExpr projection;
 	private final TupleExpr extension;
+	private final ParsedQuery parsedQuery;
+	// Lazy (computed on demand)
+	private String normalizedAlgebra;
 
 	RDF4JConstructTemplate(ParsedQuery pq) {
+		this.parsedQuery = pq;
 		TupleExpr topExpression = pq.getTupleExpr();
 
 		// NB: the slice is not relevant for the construct template
@@ -67,4 +71,25 @@ class RDF4JConstructTemplate implements ConstructTemplate {
 	public Extension getExtension() {
 		return (Extension) extension;
 	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+
+		RDF4JConstructTemplate that = (RDF4JConstructTemplate) o;
+
+		return getNormalizedAlgebra().equals(that.getNormalizedAlgebra());
+	}
+
+	@Override
+	public int hashCode() {
+		return getNormalizedAlgebra().hashCode();
+	}
+
+	private String getNormalizedAlgebra() {
+		if (normalizedAlgebra == null)
+			normalizedAlgebra = RDF4JAlgebraNormalizer.normalize(projection, parsedQuery.getDataset());
+		return normalizedAlgebra;
+	}
 }
@@ -2,11 +2,13 @@ package it.unibz.inf.ontop.answering.reformulation.input.impl;
 
 import it.unibz.inf.ontop.answering.reformulation.input.InputQuery;
 import it.unibz.inf.ontop.answering.reformulation.input.translation.InputQueryTranslator;
+import it.unibz.inf.ontop.answering.reformulation.input.translation.RDF4JInputQueryToIQTranslator;
 import it.unibz.inf.ontop.answering.reformulation.input.translation.RDF4JInputQueryTranslator;
 import it.unibz.inf.ontop.exception.OntopInvalidInputQueryException;
 import it.unibz.inf.ontop.exception.OntopUnsupportedInputQueryException;
 import it.unibz.inf.ontop.answering.resultset.OBDAResultSet;
 import it.unibz.inf.ontop.datalog.InternalSparqlQuery;
+import it.unibz.inf.ontop.iq.IQ;
 import org.eclipse.rdf4j.query.parser.ParsedQuery;
 
 
@@ -14,6 +16,8 @@ class RDF4JInputQuery<R extends OBDAResultSet> implements InputQuery<R> {
 
     private final ParsedQuery parsedQuery;
     private final String inputQueryString;
+    // Lazy (computed on demand)
+    private String normalizedAlgebra;
 
     /**
      * TODO: support bindings
@@ -37,7 +41,28 @@ class RDF4JInputQuery<R extends OBDAResultSet> implements InputQuery<R> {
         return ((RDF4JInputQueryTranslator) translator).translate(parsedQuery);
     }
 
+    @Override
+    public IQ translateIntoIQ(InputQueryTranslator translator)
+            throws OntopUnsupportedInputQueryException, OntopInvalidInputQueryException {
+        if (!(translator instanceof RDF4JInputQueryToIQTranslator)) {
+            throw new IllegalArgumentException("RDF4JInputQueryImpl requires an RDF4JInputQueryToIQTranslator " +
+                    "for translating directly into an IQ");
+        }
+        return ((RDF4JInputQueryToIQTranslator) translator).translateIntoIQ(parsedQuery);
+    }
+
     protected ParsedQuery getParsedQuery() {
         return parsedQuery;
     }
+
+    /**
+     * Canonical rendering of the algebra of the parsed query.
+     *
+     * Unlike ParsedQuery, which relies on the object identity, it is suitable for equals() and hashCode().
+     */
+    protected String getNormalizedAlgebra() {
+        if (normalizedAlgebra == null)
+            normalizedAlgebra = RDF4JAlgebraNormalizer.normalize(parsedQuery.getTupleExpr(), parsedQuery.getDataset());
+        return normalizedAlgebra;
+    }
 }
@@ -20,11 +20,11 @@ class RDF4JSelectQuery extends RDF4JInputQuery<TupleResultSet> implements Select
 
         RDF4JSelectQuery that = (RDF4JSelectQuery) o;
 
-        return getParsedQuery().equals(that.getParsedQuery());
+        return getNormalizedAlgebra().equals(that.getNormalizedAlgebra());
     }
 
     @Override
     public int hashCode() {
-        return getParsedQuery().hashCode();
+        return getNormalizedAlgebra().hashCode();
     }
 }
@@ -0,0 +1,20 @@
+package it.unibz.inf.ontop.answering.reformulation.input.translation;
+
+import it.unibz.inf.ontop.exception.OntopInvalidInputQueryException;
+import it.unibz.inf.ontop.exception.OntopUnsupportedInputQueryException;
+import it.unibz.inf.ontop.iq.IQ;
+import org.eclipse.rdf4j.query.parser.ParsedQuery;
+
+/**
+ * Also able to translate the RDF4J algebra directly into an IQ, without going through Datalog.
+ *
+ * The Datalog translation remains available for the features still requiring it (e.g. the SameAs rewriting).
+ */
+public interface RDF4JInputQueryToIQTranslator extends RDF4JInputQueryTranslator {
+
+    /**
+     * TODO: support bindings
+     */
+    IQ translateIntoIQ(ParsedQuery inputParsedQuery)
+            throws OntopUnsupportedInputQueryException, OntopInvalidInputQueryException;
+}
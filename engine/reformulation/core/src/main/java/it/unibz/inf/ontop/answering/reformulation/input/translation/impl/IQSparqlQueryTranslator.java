@@ -0,0 +1,80 @@
+package it.unibz.inf.ontop.answering.reformulation.input.translation.impl;
+
+import com.google.inject.assistedinject.Assisted;
+import com.google.inject.assistedinject.AssistedInject;
+import it.unibz.inf.ontop.answering.reformulation.IRIDictionary;
+import it.unibz.inf.ontop.answering.reformulation.input.translation.RDF4JInputQueryToIQTranslator;
+import it.unibz.inf.ontop.datalog.DatalogFactory;
+import it.unibz.inf.ontop.datalog.InternalSparqlQuery;
+import it.unibz.inf.ontop.exception.OntopInvalidInputQueryException;
+import it.unibz.inf.ontop.exception.OntopUnsupportedInputQueryException;
+import it.unibz.inf.ontop.injection.IntermediateQueryFactory;
+import it.unibz.inf.ontop.iq.IQ;
+import it.unibz.inf.ontop.model.atom.AtomFactory;
+import it.unibz.inf.ontop.model.term.TermFactory;
+import it.unibz.inf.ontop.model.term.impl.ImmutabilityTools;
+import it.unibz.inf.ontop.model.type.TypeFactory;
+import it.unibz.inf.ontop.substitution.SubstitutionFactory;
+import it.unibz.inf.ontop.utils.UriTemplateMatcher;
+import org.apache.commons.rdf.api.RDF;
+import org.eclipse.rdf4j.query.parser.ParsedQuery;
+
+import javax.annotation.Nullable;
+
+/**
+ * Translates SPARQL queries directly into IQs (see SparqlAlgebraToIQTranslator).
+ *
+ * Thread-safe wrapper: a new translator is created for each query.
+ *
+ * Still offers the Datalog translation (see SparqlAlgebraToDatalogTranslator), for the features requiring it.
+ */
+public class IQSparqlQueryTranslator implements RDF4JInputQueryToIQTranslator {
+
+    private final UriTemplateMatcher uriTemplateMatcher;
+    @Nullable
+    private final IRIDictionary iriDictionary;
+    private final AtomFactory atomFactory;
+    private final TermFactory termFactory;
+    private final TypeFactory typeFactory;
+    private final DatalogFactory datalogFactory;
+    private final ImmutabilityTools immutabilityTools;
+    private final IntermediateQueryFactory iqFactory;
+    private final SubstitutionFactory substitutionFactory;
+    private final RDF rdfFactory;
+
+    @AssistedInject
+    private IQSparqlQueryTranslator(@Assisted UriTemplateMatcher uriTemplateMatcher,
+                                    @Nullable IRIDictionary iriDictionary,
+                                    AtomFactory atomFactory, TermFactory termFactory,
+                                    TypeFactory typeFactory, DatalogFactory datalogFactory,
+                                    ImmutabilityTools immutabilityTools, IntermediateQueryFactory iqFactory,
+                                    SubstitutionFactory substitutionFactory, RDF rdfFactory) {
+        this.uriTemplateMatcher = uriTemplateMatcher;
+        this.iriDictionary = iriDictionary;
+        this.atomFactory = atomFactory;
+        this.termFactory = termFactory;
+        this.typeFactory = typeFactory;
+        this.datalogFactory = datalogFactory;
+        this.immutabilityTools = immutabilityTools;
+        this.iqFactory = iqFactory;
+        this.substitutionFactory = substitutionFactory;
+        this.rdfFactory = rdfFactory;
+    }
+
+    @Override
+    public IQ translateIntoIQ(ParsedQuery inputParsedQuery)
+            throws OntopUnsupportedInputQueryException, OntopInvalidInputQueryException {
+        SparqlAlgebraToIQTranslator translator = new SparqlAlgebraToIQTranslator(uriTemplateMatcher, iriDictionary,
+                atomFactory, termFactory, typeFactory, iqFactory, substitutionFactory, rdfFactory);
+        return translator.translate(inputParsedQuery);
+    }
+
+    @Override
+    public InternalSparqlQuery translate(ParsedQuery inputParsedQuery)
+            throws OntopUnsupportedInputQueryException, OntopInvalidInputQueryException {
+        SparqlAlgebraToDatalogTranslator mutableTranslator =
+                new SparqlAlgebraToDatalogTranslator(uriTemplateMatcher, iriDictionary, atomFactory, termFactory,
+                        typeFactory, datalogFactory, immutabilityTools, rdfFactory);
+        return mutableTranslator.translate(inputParsedQuery);
+    }
+}
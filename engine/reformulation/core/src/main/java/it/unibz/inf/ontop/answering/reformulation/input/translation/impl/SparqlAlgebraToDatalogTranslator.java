@@ -785,7 +785,7 @@ public class SparqlAlgebraToDatalogTranslator {
 	}
 
     // XPath 1.0 functions (XPath 1.1 has variants with more arguments)
-    private static final ImmutableMap<String, OperationPredicate> XPathFunctions =
+    static final ImmutableMap<String, OperationPredicate> XPathFunctions =
             new ImmutableMap.Builder<String, OperationPredicate>()
                     /*
                      * String functions
@@ -830,7 +830,7 @@ public class SparqlAlgebraToDatalogTranslator {
                     .build();
 
 
-	private static final ImmutableMap<Compare.CompareOp, ExpressionOperation> RelationalOperations =
+	static final ImmutableMap<Compare.CompareOp, ExpressionOperation> RelationalOperations =
 			new ImmutableMap.Builder<Compare.CompareOp, ExpressionOperation>()
 				.put(Compare.CompareOp.EQ, ExpressionOperation.EQ)
 				.put(Compare.CompareOp.GE, ExpressionOperation.GTE)
@@ -840,7 +840,7 @@ public class SparqlAlgebraToDatalogTranslator {
 				.put(Compare.CompareOp.NE, ExpressionOperation.NEQ)
 				.build();
 
-	private static final ImmutableMap<MathExpr.MathOp, ExpressionOperation> NumericalOperations =
+	static final ImmutableMap<MathExpr.MathOp, ExpressionOperation> NumericalOperations =
 			new ImmutableMap.Builder<MathExpr.MathOp, ExpressionOperation>()
 			.put(MathExpr.MathOp.PLUS, ExpressionOperation.ADD)
 			.put(MathExpr.MathOp.MINUS, ExpressionOperation.SUBTRACT)
@@ -0,0 +1,745 @@
+package it.unibz.inf.ontop.answering.reformulation.input.translation.impl;
+
+import com.google.common.collect.*;
+import it.unibz.inf.ontop.answering.reformulation.IRIDictionary;
+import it.unibz.inf.ontop.exception.OntopInvalidInputQueryException;
+import it.unibz.inf.ontop.exception.OntopUnsupportedInputQueryException;
+import it.unibz.inf.ontop.injection.IntermediateQueryFactory;
+import it.unibz.inf.ontop.iq.IQ;
+import it.unibz.inf.ontop.iq.IQTree;
+import it.unibz.inf.ontop.iq.node.*;
+import it.unibz.inf.ontop.model.atom.AtomFactory;
+import it.unibz.inf.ontop.model.atom.DistinctVariableOnlyDataAtom;
+import it.unibz.inf.ontop.model.term.Constant;
+import it.unibz.inf.ontop.model.term.GroundFunctionalTerm;
+import it.unibz.inf.ontop.model.term.GroundTerm;
+import it.unibz.inf.ontop.model.term.ImmutableExpression;
+import it.unibz.inf.ontop.model.term.ImmutableFunctionalTerm;
+import it.unibz.inf.ontop.model.term.ImmutableTerm;
+import it.unibz.inf.ontop.model.term.TermFactory;
+import it.unibz.inf.ontop.model.term.Variable;
+import it.unibz.inf.ontop.model.term.VariableOrGroundTerm;
+import it.unibz.inf.ontop.model.term.functionsymbol.DatatypePredicate;
+import it.unibz.inf.ontop.model.term.functionsymbol.ExpressionOperation;
+import it.unibz.inf.ontop.model.term.functionsymbol.OperationPredicate;
+import it.unibz.inf.ontop.model.term.impl.ImmutabilityTools;
+import it.unibz.inf.ontop.model.type.RDFDatatype;
+import it.unibz.inf.ontop.model.type.TypeFactory;
+import it.unibz.inf.ontop.substitution.SubstitutionFactory;
+import it.unibz.inf.ontop.utils.ImmutableCollectors;
+import it.unibz.inf.ontop.utils.R2RMLIRISafeEncoder;
+import it.unibz.inf.ontop.utils.UriTemplateMatcher;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.datatypes.XMLDatatypeUtil;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.query.Binding;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.algebra.*;
+import org.eclipse.rdf4j.query.parser.ParsedGraphQuery;
+import org.eclipse.rdf4j.query.parser.ParsedQuery;
+import org.eclipse.rdf4j.query.parser.ParsedTupleQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.*;
+
+import static it.unibz.inf.ontop.answering.reformulation.input.translation.impl.SparqlAlgebraToDatalogTranslator.NumericalOperations;
+import static it.unibz.inf.ontop.answering.reformulation.input.translation.impl.SparqlAlgebraToDatalogTranslator.RelationalOperations;
+import static it.unibz.inf.ontop.answering.reformulation.input.translation.impl.SparqlAlgebraToDatalogTranslator.XPathFunctions;
+
+/**
+ * Translates a SPARQL algebra expression directly into an IQ, without going through Datalog.
+ *
+ * Follows the same semantics as SparqlAlgebraToDatalogTranslator:
+ *   - variables not in scope of an expression are replaced by NULL,
+ *   - the children of a union (and the rows of a VALUES block) are padded with NULLs,
+ *   - the query modifiers (DISTINCT, ORDER BY, LIMIT and OFFSET) are placed on top of the query.
+ *
+ * IMPORTANT: an instance is meant to translate only one query (see IQSparqlQueryTranslator)
+ */
+public class SparqlAlgebraToIQTranslator {
+
+    private static final Logger log = LoggerFactory.getLogger(SparqlAlgebraToIQTranslator.class);
+
+    private final UriTemplateMatcher uriTemplateMatcher;
+    @Nullable
+    private final IRIDictionary uriRef;
+    private final AtomFactory atomFactory;
+    private final TermFactory termFactory;
+    private final TypeFactory typeFactory;
+    private final IntermediateQueryFactory iqFactory;
+    private final SubstitutionFactory substitutionFactory;
+    private final org.apache.commons.rdf.api.RDF rdfFactory;
+    private final Constant valueNull;
+
+    // Query modifiers (collected during the translation)
+    private boolean isDistinct = false;
+    private long limit = -1;
+    private long offset = -1;
+    private final List<OrderByNode.OrderComparator> orderComparators = new ArrayList<>();
+    private boolean translated = false;
+
+    SparqlAlgebraToIQTranslator(@Nonnull UriTemplateMatcher uriTemplateMatcher,
+                                @Nullable IRIDictionary iriDictionary,
+                                AtomFactory atomFactory, TermFactory termFactory, TypeFactory typeFactory,
+                                IntermediateQueryFactory iqFactory, SubstitutionFactory substitutionFactory,
+                                org.apache.commons.rdf.api.RDF rdfFactory) {
+        this.uriTemplateMatcher = uriTemplateMatcher;
+        this.uriRef = iriDictionary;
+        this.atomFactory = atomFactory;
+        this.termFactory = termFactory;
+        this.typeFactory = typeFactory;
+        this.iqFactory = iqFactory;
+        this.substitutionFactory = substitutionFactory;
+        this.rdfFactory = rdfFactory;
+        this.valueNull = termFactory.getNullConstant();
+    }
+
+    /**
+     * Translates a given SPARQL query object into an IQ.
+     *
+     * IMPORTANT: this method should be called only once on each instance of the class
+     */
+    public IQ translate(ParsedQuery pq) throws OntopUnsupportedInputQueryException, OntopInvalidInputQueryException {
+        if (translated)
+            throw new IllegalStateException("SparqlAlgebraToIQTranslator.translate can only be called once.");
+        translated = true;
+
+        TupleExpr te = pq.getTupleExpr();
+        log.debug("SPARQL algebra: \n{}", te);
+
+        TranslationResult body = translate(te);
+
+        ImmutableList<Variable> answerVariables = (pq instanceof ParsedTupleQuery || pq instanceof ParsedGraphQuery)
+                // order elements of the set in some way by converting it into the list
+                ? ImmutableList.copyOf(body.variables)
+                // ASK queries have no answer variables
+                : ImmutableList.of();
+
+        DistinctVariableOnlyDataAtom projectionAtom = atomFactory.getDistinctVariableOnlyDataAtom(
+                atomFactory.getRDFAnswerPredicate(answerVariables.size()), answerVariables);
+
+        IQTree constructionTree = iqFactory.createUnaryIQTree(
+                iqFactory.createConstructionNode(projectionAtom.getVariables()),
+                body.tree);
+
+        return iqFactory.createIQ(projectionAtom, insertModifiersAbove(constructionTree));
+    }
+
+    /**
+     * Top-down: SLICE, DISTINCT and ORDER BY (as for the conversion of Datalog query modifiers)
+     */
+    private IQTree insertModifiersAbove(IQTree tree) {
+        // Non-final
+        IQTree newTree = tree;
+        if (!orderComparators.isEmpty())
+            newTree = iqFactory.createUnaryIQTree(
+                    iqFactory.createOrderByNode(ImmutableList.copyOf(orderComparators)), newTree);
+        if (isDistinct)
+            newTree = iqFactory.createUnaryIQTree(iqFactory.createDistinctNode(), newTree);
+
+        long correctedOffset = offset > 0 ? offset : 0;
+        if (limit >= 0)
+            newTree = iqFactory.createUnaryIQTree(iqFactory.createSliceNode(correctedOffset, limit), newTree);
+        else if (correctedOffset > 0)
+            newTree = iqFactory.createUnaryIQTree(iqFactory.createSliceNode(correctedOffset), newTree);
+        return newTree;
+    }
+
+
+    private static class TranslationResult {
+        private final IQTree tree;
+        // Ordered, as for the Datalog translation
+        private final ImmutableSet<Variable> variables;
+
+        TranslationResult(IQTree tree, ImmutableSet<Variable> variables) {
+            this.tree = tree;
+            this.variables = variables;
+        }
+    }
+
+    private TranslationResult translate(TupleExpr node)
+            throws OntopUnsupportedInputQueryException, OntopInvalidInputQueryException {
+
+        if (node instanceof Slice) {   // SLICE algebra operation
+            Slice slice = (Slice) node;
+            offset = slice.getOffset();
+            limit = slice.getLimit();
+            return translate(slice.getArg());
+        }
+        else if (node instanceof Distinct) { // DISTINCT algebra operation
+            isDistinct = true;
+            return translate(((Distinct) node).getArg());
+        }
+        else if (node instanceof Reduced) {  // REDUCED algebra operation
+            return translate(((Reduced) node).getArg());
+        }
+        else if (node instanceof Order) {   // ORDER algebra operation
+            Order order = (Order) node;
+            for (OrderElem c : order.getElements()) {
+                ValueExpr expression = c.getExpr();
+                if (!(expression instanceof Var))
+                    throw new OntopUnsupportedInputQueryException("Error translating ORDER BY. "
+                            + "The current implementation can only sort by variables. "
+                            + "This query has a more complex expression '" + expression + "'");
+
+                Variable var = termFactory.getVariable(((Var) expression).getName());
+                orderComparators.add(iqFactory.createOrderComparator(var, c.isAscending()));
+            }
+            return translate(order.getArg());
+        }
+        else if (node instanceof StatementPattern) { // triple pattern
+            return translateTriplePattern((StatementPattern) node);
+        }
+        else if (node instanceof SingletonSet) {
+            // the empty BGP has no variables and gives a single solution mapping on every non-empty graph
+            return new TranslationResult(iqFactory.createTrueNode(), ImmutableSet.of());
+        }
+        else if (node instanceof Join) {     // JOIN algebra operation
+            Join join = (Join) node;
+            TranslationResult a1 = translate(join.getLeftArg());
+            TranslationResult a2 = translate(join.getRightArg());
+            ImmutableSet<Variable> vars = Sets.union(a1.variables, a2.variables).immutableCopy();
+
+            // Flattens the joins (e.g. the triple patterns of a BGP) and removes the neutral elements
+            ImmutableList<IQTree> children = ImmutableList.<IQTree>builder()
+                    .addAll(getJoinOperands(a1.tree))
+                    .addAll(getJoinOperands(a2.tree))
+                    .build();
+            switch (children.size()) {
+                case 0:
+                    return new TranslationResult(iqFactory.createTrueNode(), vars);
+                case 1:
+                    return new TranslationResult(children.get(0), vars);
+                default:
+                    return new TranslationResult(
+                            iqFactory.createNaryIQTree(iqFactory.createInnerJoinNode(), children), vars);
+            }
+        }
+        else if (node instanceof LeftJoin) {  // OPTIONAL algebra operation
+            LeftJoin lj = (LeftJoin) node;
+            TranslationResult a1 = translate(lj.getLeftArg());
+            TranslationResult a2 = translate(lj.getRightArg());
+            ImmutableSet<Variable> vars = Sets.union(a1.variables, a2.variables).immutableCopy();
+
+            ValueExpr expr = lj.getCondition();
+            Optional<ImmutableExpression> condition = (expr == null)
+                    ? Optional.empty()
+                    : Optional.of(getFilterExpression(expr, vars));
+
+            return new TranslationResult(
+                    iqFactory.createBinaryNonCommutativeIQTree(iqFactory.createLeftJoinNode(condition),
+                            a1.tree, a2.tree),
+                    vars);
+        }
+        else if (node instanceof Union) {   // UNION algebra operation
+            Union union = (Union) node;
+            TranslationResult a1 = translate(union.getLeftArg());
+            TranslationResult a2 = translate(union.getRightArg());
+            ImmutableSet<Variable> vars = Sets.union(a1.variables, a2.variables).immutableCopy();
+
+            return new TranslationResult(
+                    iqFactory.createNaryIQTree(iqFactory.createUnionNode(vars),
+                            ImmutableList.of(extendWithNulls(a1, vars), extendWithNulls(a2, vars))),
+                    vars);
+        }
+        else if (node instanceof Filter) {   // FILTER algebra operation
+            Filter filter = (Filter) node;
+            TranslationResult a = translate(filter.getArg());
+
+            ImmutableExpression condition = getFilterExpression(filter.getCondition(), a.variables);
+            return new TranslationResult(
+                    iqFactory.createUnaryIQTree(iqFactory.createFilterNode(condition), a.tree),
+                    a.variables);
+        }
+        else if (node instanceof Projection) {  // PROJECT algebra operation
+            Projection projection = (Projection) node;
+            TranslationResult sub = translate(projection.getArg());
+
+            List<ProjectionElem> pes = projection.getProjectionElemList().getElements();
+            List<Variable> tVars = new ArrayList<>(pes.size());
+            Set<Variable> sVars = new HashSet<>();
+            Set<Variable> keptVars = new HashSet<>();
+            for (ProjectionElem pe : pes) {
+                Variable sVar = termFactory.getVariable(pe.getSourceName());
+                if (!sub.variables.contains(sVar))
+                    throw new IllegalArgumentException("Projection source of " + pe
+                            + " not found in " + projection.getArg());
+                sVars.add(sVar);
+
+                Variable tVar = termFactory.getVariable(pe.getTargetName());
+                tVars.add(tVar);
+                if (sVar.equals(tVar))
+                    keptVars.add(tVar);
+            }
+
+            // Construction nodes cannot rename variables: the sub-tree is renamed instead.
+            // When a source variable is also projected (or renamed twice), the other targets are bound to it.
+            Map<Variable, Variable> renaming = new HashMap<>();
+            Map<Variable, ImmutableTerm> copies = new HashMap<>();
+            for (ProjectionElem pe : pes) {
+                Variable sVar = termFactory.getVariable(pe.getSourceName());
+                Variable tVar = termFactory.getVariable(pe.getTargetName());
+                if (sVar.equals(tVar))
+                    continue;
+
+                if (keptVars.contains(sVar))
+                    copies.put(tVar, sVar);
+                else if (renaming.containsKey(sVar))
+                    copies.put(tVar, renaming.get(sVar));
+                else
+                    renaming.put(sVar, tVar);
+            }
+            if (renaming.isEmpty() && copies.isEmpty() && tVars.containsAll(sub.variables)) // neither projection nor renaming
+                return sub;
+
+            // Preserves the variable order of the SPARQL query (good practice)
+            ImmutableSet<Variable> vars = ImmutableSortedSet.copyOf(tVars);
+
+            IQTree childTree = sub.tree;
+            // The target variables may already be defined in the sub-tree (e.g. by an extension):
+            // they are hidden by only keeping the source variables
+            if (renaming.values().stream().anyMatch(v -> sub.variables.contains(v) && !renaming.containsKey(v)))
+                childTree = iqFactory.createUnaryIQTree(
+                        iqFactory.createConstructionNode(ImmutableSet.copyOf(sVars)), childTree);
+
+            if (!renaming.isEmpty())
+                childTree = childTree.applyDescendingSubstitutionWithoutOptimizing(
+                        substitutionFactory.getInjectiveVar2VarSubstitution(renaming));
+
+            if (copies.isEmpty() && childTree.getVariables().equals(vars))
+                return new TranslationResult(childTree, vars);
+
+            ConstructionNode constructionNode = iqFactory.createConstructionNode(vars,
+                    substitutionFactory.getSubstitution(ImmutableMap.copyOf(copies)));
+            return new TranslationResult(iqFactory.createUnaryIQTree(constructionNode, childTree), vars);
+        }
+        else if (node instanceof Extension) {     // EXTEND algebra operation
+            Extension extension = (Extension) node;
+            TranslationResult sub = translate(extension.getArg());
+
+            Set<Variable> vars = new LinkedHashSet<>(sub.variables);
+            Map<Variable, ImmutableTerm> bindings = new LinkedHashMap<>();
+            for (ExtensionElem ee : extension.getElements()) {
+                // ignore EXTEND(P, v, v), which is sometimes introduced by Sesame SPARQL parser
+                if (ee.getExpr() instanceof Var && ee.getName().equals(((Var) ee.getExpr()).getName()))
+                    continue;
+
+                // Previous bindings of the same extension can be used in the expression
+                ImmutableTerm expr = substitutionFactory.getSubstitution(ImmutableMap.copyOf(bindings))
+                        .apply(getExpression(ee.getExpr(), ImmutableSet.copyOf(vars)));
+
+                Variable v = termFactory.getVariable(ee.getName());
+                if (!vars.add(v))
+                    throw new IllegalArgumentException("Duplicate binding for variable " + v);
+                bindings.put(v, expr);
+            }
+            return extendWithBindings(sub, bindings, ImmutableSet.copyOf(vars));
+        }
+        else if (node instanceof BindingSetAssignment) { // VALUES in SPARQL
+            BindingSetAssignment values = (BindingSetAssignment) node;
+
+            List<TranslationResult> rows = new ArrayList<>();
+            for (BindingSet bs : values.getBindingSets()) {
+                Map<Variable, ImmutableTerm> bindings = new LinkedHashMap<>();
+                for (Binding be : bs) {
+                    Variable v = termFactory.getVariable(be.getName());
+                    if (bindings.put(v, getTermForLiteralOrIri(be.getValue())) != null)
+                        throw new IllegalArgumentException("Duplicate binding for variable " + v);
+                }
+                rows.add(extendWithBindings(new TranslationResult(iqFactory.createTrueNode(), ImmutableSet.of()),
+                        bindings, ImmutableSet.copyOf(bindings.keySet())));
+            }
+
+            ImmutableSet<Variable> allVars = rows.stream()
+                    .flatMap(s -> s.variables.stream())
+                    .collect(ImmutableCollectors.toSet());
+
+            switch (rows.size()) {
+                case 0:
+                    return new TranslationResult(iqFactory.createEmptyNode(allVars), allVars);
+                case 1:
+                    return new TranslationResult(extendWithNulls(rows.get(0), allVars), allVars);
+                default:
+                    return new TranslationResult(
+                            iqFactory.createNaryIQTree(iqFactory.createUnionNode(allVars),
+                                    rows.stream()
+                                            .map(r -> extendWithNulls(r, allVars))
+                                            .collect(ImmutableCollectors.toList())),
+                            allVars);
+            }
+        }
+        else if (node instanceof Group) {
+            throw new OntopUnsupportedInputQueryException("GROUP BY is not supported yet");
+        }
+        throw new OntopUnsupportedInputQueryException("Not supported: " + node);
+    }
+
+    private static ImmutableList<IQTree> getJoinOperands(IQTree tree) {
+        QueryNode rootNode = tree.getRootNode();
+        if (rootNode instanceof TrueNode)
+            return ImmutableList.of();
+        // Only joins without conditions (produced by this translator) are flattened
+        if ((rootNode instanceof InnerJoinNode) && !((InnerJoinNode) rootNode).getOptionalFilterCondition().isPresent())
+            return tree.getChildren();
+        return ImmutableList.of(tree);
+    }
+
+    private TranslationResult extendWithBindings(TranslationResult sub, Map<Variable, ImmutableTerm> bindings,
+                                                 ImmutableSet<Variable> vars) {
+        if (bindings.isEmpty())
+            return new TranslationResult(sub.tree, vars);
+
+        ConstructionNode constructionNode = iqFactory.createConstructionNode(vars,
+                substitutionFactory.getSubstitution(ImmutableMap.copyOf(bindings)));
+        return new TranslationResult(iqFactory.createUnaryIQTree(constructionNode, sub.tree), vars);
+    }
+
+    /**
+     * Binds to NULL the variables of allVariables not defined by the translation result
+     */
+    private IQTree extendWithNulls(TranslationResult result, ImmutableSet<Variable> allVariables) {
+        ImmutableMap<Variable, ImmutableTerm> nullBindings = Sets.difference(allVariables, result.variables).stream()
+                .collect(ImmutableCollectors.toMap(v -> v, v -> valueNull));
+        if (nullBindings.isEmpty())
+            return result.tree;
+
+        return iqFactory.createUnaryIQTree(
+                iqFactory.createConstructionNode(allVariables, substitutionFactory.getSubstitution(nullBindings)),
+                result.tree);
+    }
+
+    private ImmutableExpression getFilterExpression(ValueExpr expr, ImmutableSet<Variable> variables)
+            throws OntopUnsupportedInputQueryException, OntopInvalidInputQueryException {
+        ImmutableTerm term = getExpression(expr, variables);
+        // Effective Boolean Value (EBV): wrap in isTrue function if it is not a (Boolean) expression
+        if (term instanceof ImmutableExpression)
+            // TODO: check whether the return type is Boolean
+            return (ImmutableExpression) term;
+        return termFactory.getImmutableExpression(ExpressionOperation.IS_TRUE, term);
+    }
+
+    private TranslationResult translateTriplePattern(StatementPattern triple) throws OntopUnsupportedInputQueryException {
+
+        // A triple pattern is member of the set (RDF-T + V) x (I + V) x (RDF-T + V)
+        // VarOrTerm ::=  Var | GraphTerm
+        // GraphTerm ::=  iri | RDFLiteral | NumericLiteral | BooleanLiteral | BlankNode | NIL
+
+        ImmutableSet.Builder<Variable> variables = ImmutableSet.builder();
+
+        Value s = triple.getSubjectVar().getValue();
+        Value p = triple.getPredicateVar().getValue();
+        Value o = triple.getObjectVar().getValue();
+
+        VariableOrGroundTerm sTerm = (s == null)
+                ? getTermForVariable(triple.getSubjectVar(), variables)
+                : getTermForLiteralOrIri(s);
+
+        VariableOrGroundTerm pTerm, oTerm;
+        if (p == null) {
+            //  term variable term .
+            pTerm = getTermForVariable(triple.getPredicateVar(), variables);
+            oTerm = (o == null) ? getTermForVariable(triple.getObjectVar(), variables) : getTermForLiteralOrIri(o);
+        }
+        else if (p instanceof IRI) {
+            pTerm = getIRITemplate(p.stringValue());
+            if (p.equals(RDF.TYPE)) {
+                // term rdf:type variable .
+                if (o == null)
+                    oTerm = getTermForVariable(triple.getObjectVar(), variables);
+                else if (o instanceof IRI)
+                    oTerm = getIRITemplate(o.stringValue());
+                else
+                    throw new OntopUnsupportedInputQueryException("Unsupported query syntax");
+            }
+            else {
+                // term uri term . (where uri is either an object or a datatype property)
+                oTerm = (o == null) ? getTermForVariable(triple.getObjectVar(), variables) : getTermForLiteralOrIri(o);
+            }
+        }
+        else
+            // if predicate is a variable or literal
+            throw new OntopUnsupportedInputQueryException("Unsupported query syntax");
+
+        IntensionalDataNode dataNode = iqFactory.createIntensionalDataNode(
+                atomFactory.getIntensionalTripleAtom(sTerm, pTerm, oTerm));
+        return new TranslationResult(dataNode, variables.build());
+    }
+
+    private Variable getTermForVariable(Var v, ImmutableSet.Builder<Variable> variables) {
+        Variable var = termFactory.getVariable(v.getName());
+        variables.add(var);
+        return var;
+    }
+
+    private GroundFunctionalTerm getIRITemplate(String iri) {
+        return (GroundFunctionalTerm) termFactory.getImmutableUriTemplate(termFactory.getConstantLiteral(iri));
+    }
+
+    private GroundTerm getTermForLiteralOrIri(Value v) throws OntopUnsupportedInputQueryException {
+
+        if (v instanceof Literal)
+            return getTermForLiteral((Literal) v);
+        else if (v instanceof IRI)
+            return getTermForIri((IRI) v, false);
+
+        throw new OntopUnsupportedInputQueryException("The value " + v + " is not supported yet!");
+    }
+
+    private GroundTerm getTermForLiteral(Literal literal) throws OntopUnsupportedInputQueryException {
+        IRI typeURI = literal.getDatatype();
+        String value = literal.getLabel();
+        Optional<String> lang = literal.getLanguage();
+
+        if (lang.isPresent()) {
+            // TODO: use a string lexical type instead
+            return (GroundTerm) termFactory.getImmutableTypedTerm(
+                    termFactory.getConstantLiteral(value, typeFactory.getXsdStringDatatype()), lang.get());
+        }
+        else {
+            RDFDatatype type;
+             /*
+              * default data type is xsd:string
+              */
+            if (typeURI == null) {
+                type = typeFactory.getXsdStringDatatype();
+            }
+            else {
+                type = typeFactory.getDatatype(rdfFactory.createIRI(typeURI.stringValue()));
+            }
+
+            if (type == null)
+                // the actual value is LOST here (as in the Datalog translation)
+                return getIRITemplate(typeURI.stringValue());
+
+            // check if the value is (lexically) correct for the specified datatype
+            if (!XMLDatatypeUtil.isValidValue(value, typeURI))
+                throw new OntopUnsupportedInputQueryException("Invalid lexical form for datatype. Found: " + value);
+
+            return (GroundTerm) termFactory.getImmutableTypedTerm(termFactory.getConstantLiteral(value, type), type);
+        }
+    }
+
+    /**
+     * @param unknownUrisToTemplates - the URIs are treated differently in triple patterns
+     *                               and filter expressions
+     */
+    private GroundTerm getTermForIri(IRI v, boolean unknownUrisToTemplates) {
+
+        String uri = R2RMLIRISafeEncoder.decode(v.stringValue());
+
+        if (uriRef != null) {  // if in the Semantic Index mode
+            int id = uriRef.getId(uri);
+            if (id < 0 && unknownUrisToTemplates)  // URI is not found and need to wrap it in a template
+                return getIRITemplate(uri);
+            else
+                // TODO: use a lexical term type instead
+                return (GroundTerm) termFactory.getImmutableUriTemplate(termFactory.getConstantLiteral(
+                        String.valueOf(id), typeFactory.getXsdIntegerDatatype()));
+        }
+        else {
+            ImmutableFunctionalTerm constantFunction = uriTemplateMatcher.generateURIFunction(uri);
+            if (constantFunction.getArity() == 1 && unknownUrisToTemplates) {
+                // ZERO arguments, e.g., xsd:double or :z
+                // despite the name, this is NOT necessarily a datatype
+                return getIRITemplate(uri);
+            }
+            return (GroundTerm) ImmutabilityTools.convertIntoVariableOrGroundTerm(constantFunction);
+        }
+    }
+
+    /**
+     * @param variables the set of variables that can occur in the expression
+     *                  (the rest will be replaced with NULL)
+     */
+    private ImmutableTerm getExpression(ValueExpr expr, ImmutableSet<Variable> variables)
+            throws OntopUnsupportedInputQueryException, OntopInvalidInputQueryException {
+
+        // PrimaryExpression ::= BrackettedExpression | BuiltInCall | iriOrFunction |
+        //                          RDFLiteral | NumericLiteral | BooleanLiteral | Var
+        // iriOrFunction ::= iri ArgList?
+
+        if (expr instanceof Var) {
+            Variable var = termFactory.getVariable(((Var) expr).getName());
+            return variables.contains(var) ? var : valueNull;
+        }
+        else if (expr instanceof ValueConstant) {
+            Value v = ((ValueConstant) expr).getValue();
+            if (v instanceof Literal)
+                return getTermForLiteral((Literal) v);
+            else if (v instanceof IRI)
+                return getTermForIri((IRI) v, true);
+
+            throw new OntopUnsupportedInputQueryException("The value " + v + " is not supported yet!");
+        }
+        else if (expr instanceof Bound) {
+            // BOUND (Sec 17.4.1.1)
+            // xsd:boolean  BOUND (variable var)
+            Variable var = termFactory.getVariable(((Bound) expr).getArg().getName());
+            return variables.contains(var)
+                    ? termFactory.getImmutableExpression(ExpressionOperation.IS_NOT_NULL, var)
+                    : termFactory.getBooleanConstant(false);
+        }
+        else if (expr instanceof UnaryValueOperator) {
+            ImmutableTerm term = getExpression(((UnaryValueOperator) expr).getArg(), variables);
+
+            if (expr instanceof Not) {
+                return termFactory.getImmutableExpression(ExpressionOperation.NOT, term);
+            }
+            else if (expr instanceof IsNumeric) {
+                return termFactory.getImmutableExpression(ExpressionOperation.IS_NUMERIC, term);
+            }
+            else if (expr instanceof IsLiteral) {
+                return termFactory.getImmutableExpression(ExpressionOperation.IS_LITERAL, term);
+            }
+            else if (expr instanceof IsURI) {
+                return termFactory.getImmutableExpression(ExpressionOperation.IS_IRI, term);
+            }
+            else if (expr instanceof Str) {
+                return termFactory.getImmutableExpression(ExpressionOperation.SPARQL_STR, term);
+            }
+            else if (expr instanceof Datatype) {
+                return termFactory.getImmutableExpression(ExpressionOperation.SPARQL_DATATYPE, term);
+            }
+            else if (expr instanceof IsBNode) {
+                return termFactory.getImmutableExpression(ExpressionOperation.IS_BLANK, term);
+            }
+            else if (expr instanceof Lang) {
+                ValueExpr arg = ((UnaryValueOperator) expr).getArg();
+                if (arg instanceof Var)
+                    return termFactory.getImmutableExpression(ExpressionOperation.SPARQL_LANG, term);
+                else
+                    throw new RuntimeException("A variable or a value is expected in " + expr);
+            }
+        }
+        else if (expr instanceof BinaryValueOperator) {
+            BinaryValueOperator bexpr = (BinaryValueOperator) expr;
+            ImmutableTerm term1 = getExpression(bexpr.getLeftArg(), variables);
+            ImmutableTerm term2 = getExpression(bexpr.getRightArg(), variables);
+
+            if (expr instanceof And) {
+                return termFactory.getImmutableExpression(ExpressionOperation.AND, term1, term2);
+            }
+            else if (expr instanceof Or) {
+                return termFactory.getImmutableExpression(ExpressionOperation.OR, term1, term2);
+            }
+            else if (expr instanceof SameTerm) {
+                // sameTerm (Sec 17.4.1.8)
+                // strictly speaking it's not equality
+                return termFactory.getImmutableExpression(ExpressionOperation.EQ, term1, term2);
+            }
+            else if (expr instanceof Regex) {
+                // REGEX (Sec 17.4.3.14)
+                Regex reg = (Regex) expr;
+                ImmutableTerm term3 = (reg.getFlagsArg() != null)
+                        ? getExpression(reg.getFlagsArg(), variables)
+                        : valueNull;
+                return termFactory.getImmutableExpression(ExpressionOperation.REGEX, term1, term2, term3);
+            }
+            else if (expr instanceof Compare) {
+                ExpressionOperation p = RelationalOperations.get(((Compare) expr).getOperator());
+                return termFactory.getImmutableExpression(p, term1, term2);
+            }
+            else if (expr instanceof MathExpr) {
+                ExpressionOperation p = NumericalOperations.get(((MathExpr) expr).getOperator());
+                return termFactory.getImmutableExpression(p, term1, term2);
+            }
+            else if (expr instanceof LangMatches) {
+                return termFactory.getImmutableExpression(ExpressionOperation.LANGMATCHES, term1,
+                        lowerCaseLanguageRange(term2));
+            }
+        }
+        else if (expr instanceof FunctionCall) {
+            FunctionCall f = (FunctionCall) expr;
+
+            int arity = f.getArgs().size();
+            ImmutableList.Builder<ImmutableTerm> termBuilder = ImmutableList.builder();
+            for (ValueExpr a : f.getArgs())
+                termBuilder.add(getExpression(a, variables));
+            ImmutableList<ImmutableTerm> terms = termBuilder.build();
+
+            OperationPredicate p = XPathFunctions.get(f.getURI());
+            if (p != null) {
+                if (arity != p.getArity())
+                    throw new OntopInvalidInputQueryException(
+                            "Wrong number of arguments (found " + terms.size() + ", only " +
+                                    p.getArity() + "supported) for SPARQL " + f.getURI() + "function");
+
+                return termFactory.getImmutableExpression(p, terms);
+            }
+
+            // these are all special cases with **variable** number of arguments
+
+            switch (f.getURI()) {
+                // CONCAT (Sec 17.4.3.12)
+                case "http://www.w3.org/2005/xpath-functions#concat":
+                    if (arity < 1)
+                        throw new OntopInvalidInputQueryException("Wrong number of arguments (found " + terms.size() +
+                                ", at least 1) for SPARQL function CONCAT");
+
+                    ImmutableTerm concat = terms.get(0);
+                    for (int i = 1; i < arity; i++)
+                        concat = termFactory.getImmutableExpression(ExpressionOperation.CONCAT, concat, terms.get(i));
+                    return concat;
+
+                // REPLACE (Sec 17.4.3.15)
+                case "http://www.w3.org/2005/xpath-functions#replace":
+                    // TODO: the fourth argument is flags (see http://www.w3.org/TR/xpath-functions/#flags)
+                    ImmutableTerm flags;
+                    if (arity == 3)
+                        flags = termFactory.getConstantLiteral("");
+                    else if (arity == 4)
+                        flags = terms.get(3);
+                    else
+                        throw new OntopInvalidInputQueryException("Wrong number of arguments (found "
+                                + terms.size() + ", only 3 or 4 supported) for SPARQL function REPLACE");
+
+                    return termFactory.getImmutableExpression(ExpressionOperation.REPLACE, terms.get(0), terms.get(1),
+                            terms.get(2), flags);
+
+                // SUBSTR (Sec 17.4.3.3)
+                case "http://www.w3.org/2005/xpath-functions#substring":
+                    if (arity == 2)
+                        return termFactory.getImmutableExpression(ExpressionOperation.SUBSTR2, terms.get(0),
+                                terms.get(1));
+                    else if (arity == 3)
+                        return termFactory.getImmutableExpression(ExpressionOperation.SUBSTR3, terms.get(0),
+                                terms.get(1), terms.get(2));
+
+                    throw new OntopInvalidInputQueryException("Wrong number of arguments (found "
+                            + terms.size() + ", only 2 or 3 supported) for SPARQL function SUBSTRING");
+
+                default:
+                    throw new OntopUnsupportedInputQueryException("Function " + f.getURI() + " is not supported yet!");
+            }
+        }
+        // other subclasses
+        // SubQueryValueOperator
+        // If
+        // BNodeGenerator
+        // NAryValueOperator (ListMemberOperator and Coalesce)
+        throw new OntopUnsupportedInputQueryException("The expression " + expr + " is not supported yet!");
+    }
+
+    /**
+     * Language ranges given as typed literals are lower-cased (as the language tags)
+     */
+    private ImmutableTerm lowerCaseLanguageRange(ImmutableTerm term) {
+        if (term instanceof ImmutableFunctionalTerm) {
+            ImmutableFunctionalTerm f = (ImmutableFunctionalTerm) term;
+            if (f.getFunctionSymbol() instanceof DatatypePredicate) {
+                ImmutableTerm functionTerm = f.getTerm(0);
+                if (functionTerm instanceof it.unibz.inf.ontop.model.term.ValueConstant) {
+                    it.unibz.inf.ontop.model.term.ValueConstant c = (it.unibz.inf.ontop.model.term.ValueConstant) functionTerm;
+                    return termFactory.getImmutableFunctionalTerm(f.getFunctionSymbol(),
+                            termFactory.getConstantLiteral(c.getValue().toLowerCase(), c.getType()));
+                }
+            }
+        }
+        return term;
+    }
+}
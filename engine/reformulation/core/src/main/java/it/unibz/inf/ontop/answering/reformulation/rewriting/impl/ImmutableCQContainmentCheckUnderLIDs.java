@@ -1,5 +1,8 @@
 package it.unibz.inf.ontop.answering.reformulation.rewriting.impl;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.*;
 import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
@@ -16,9 +19,17 @@ import it.unibz.inf.ontop.utils.ImmutableCollectors;
 import java.util.*;
 import java.util.stream.Stream;
 
+/**
+ * Thread-safe: the chases are kept in a bounded concurrent cache (keyed by the immutable list of atoms).
+ */
 public class ImmutableCQContainmentCheckUnderLIDs implements ImmutableCQContainmentCheck {
 
-    private final Map<ImmutableList<DataAtom>, ImmutableSet<DataAtom>> chaseCache = new HashMap<>();
+    private static final int CHASE_CACHE_SIZE = 10000;
+
+    private final Cache<ImmutableList<DataAtom>, ImmutableSet<DataAtom>> chaseCache = CacheBuilder.newBuilder()
+            .maximumSize(CHASE_CACHE_SIZE)
+            .recordStats()
+            .build();
 
     private final ImmutableList<ImmutableLinearInclusionDependency<AtomPredicate>> dependencies;
 
@@ -48,7 +59,7 @@ public class ImmutableCQContainmentCheckUnderLIDs implements ImmutableCQContainm
     }
 
     private ImmutableSet<DataAtom> getChase(ImmutableList<DataAtom> atoms) {
-        ImmutableSet<DataAtom> result = chaseCache.get(atoms);
+        ImmutableSet<DataAtom> result = chaseCache.getIfPresent(atoms);
         if (result == null) {
             result = ((dependencies == null)
                         ? atoms.stream()
@@ -60,4 +71,11 @@ public class ImmutableCQContainmentCheckUnderLIDs implements ImmutableCQContainm
         }
         return result;
     }
+
+    /**
+     * Hit rate and evictions of the chase cache
+     */
+    public CacheStats getChaseCacheStats() {
+        return chaseCache.stats();
+    }
 }
@@ -12,6 +12,16 @@ public interface OntopReformulationSettings extends OntopOBDASettings, OntopOpti
 
     boolean isDistinctPostProcessingEnabled();
 
+    /**
+     * Maximum number of executable queries kept by a bounded query cache
+     */
+    int getQueryCacheMaxEntries();
+
+    /**
+     * Maximum estimated size (in MB) of the executable queries kept by a bounded query cache
+     */
+    int getQueryCacheMaxSize();
+
 
     //--------------------------
     // Keys
@@ -20,4 +30,6 @@ public interface OntopReformulationSettings extends OntopOBDASettings, OntopOpti
     String SQL_GENERATE_REPLACE = "ontop.iriSafeEncoding";
     String EXISTENTIAL_REASONING = "ontop.existentialReasoning";
     String DISTINCT_RESULTSET = "ontop.distinctResultSet";
+    String QUERY_CACHE_MAX_ENTRIES = "ontop.queryCache.maxEntries";
+    String QUERY_CACHE_MAX_SIZE = "ontop.queryCache.maxSizeMB";
 }
@@ -41,4 +41,19 @@ public class OntopReformulationSettingsImpl extends OntopOBDASettingsImpl implem
     public boolean isDistinctPostProcessingEnabled() {
         return getRequiredBoolean(DISTINCT_RESULTSET);
     }
+
+    @Override
+    public int getQueryCacheMaxEntries() {
+        return getRequiredInteger(QUERY_CACHE_MAX_ENTRIES);
+    }
+
+    @Override
+    public int getQueryCacheMaxSize() {
+        return getRequiredInteger(QUERY_CACHE_MAX_SIZE);
+    }
+
+    @Override
+    public boolean isPostUnfoldingFixedPointEnabled() {
+        return optimizationSettings.isPostUnfoldingFixedPointEnabled();
+    }
 }
@@ -0,0 +1,107 @@
+package it.unibz.inf.ontop.answering.reformulation.impl;
+
+import com.google.common.collect.ImmutableList;
+import it.unibz.inf.ontop.answering.reformulation.ExecutableQuery;
+import it.unibz.inf.ontop.answering.reformulation.input.InputQuery;
+import it.unibz.inf.ontop.answering.reformulation.input.translation.InputQueryTranslator;
+import it.unibz.inf.ontop.datalog.InternalSparqlQuery;
+import it.unibz.inf.ontop.iq.IQ;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BoundedQueryCacheTest {
+
+    @Test
+    public void testHitAndMiss() {
+        BoundedQueryCache cache = new BoundedQueryCache(10, 1024 * 1024);
+        ExecutableQuery executableQuery = new DummyExecutableQuery("SELECT 1");
+        cache.put(new DummyInputQuery("q1"), executableQuery, 100);
+
+        assertSame(executableQuery, cache.get(new DummyInputQuery("q1")));
+        assertNull(cache.get(new DummyInputQuery("q2")));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(100, cache.getSavedReformulationTime());
+    }
+
+    @Test
+    public void testEntryBound() {
+        BoundedQueryCache cache = new BoundedQueryCache(2, 1024 * 1024);
+        cache.put(new DummyInputQuery("q1"), new DummyExecutableQuery("SELECT 1"));
+        cache.put(new DummyInputQuery("q2"), new DummyExecutableQuery("SELECT 2"));
+        // q1 becomes the most recently used
+        assertNotNull(cache.get(new DummyInputQuery("q1")));
+        cache.put(new DummyInputQuery("q3"), new DummyExecutableQuery("SELECT 3"));
+
+        assertEquals(2, cache.getEntryCount());
+        assertEquals(1, cache.getEvictionCount());
+        assertNotNull(cache.get(new DummyInputQuery("q1")));
+        assertNull(cache.get(new DummyInputQuery("q2")));
+        assertNotNull(cache.get(new DummyInputQuery("q3")));
+    }
+
+    @Test
+    public void testSizeBound() {
+        BoundedQueryCache cache = new BoundedQueryCache(100, 3000);
+        for (int i = 0; i < 10; i++)
+            cache.put(new DummyInputQuery("q" + i), new DummyExecutableQuery("SELECT " + i));
+
+        assertTrue(cache.getEstimatedSize() <= 3000);
+        assertTrue(cache.getEntryCount() < 10);
+        assertNotNull(cache.get(new DummyInputQuery("q9")));
+        assertNull(cache.get(new DummyInputQuery("q0")));
+    }
+
+
+    private static class DummyInputQuery implements InputQuery {
+        private final String queryString;
+
+        private DummyInputQuery(String queryString) {
+            this.queryString = queryString;
+        }
+
+        @Override
+        public String getInputString() {
+            return queryString;
+        }
+
+        @Override
+        public InternalSparqlQuery translate(InputQueryTranslator translator) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public IQ translateIntoIQ(InputQueryTranslator translator) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return (o instanceof DummyInputQuery) && ((DummyInputQuery) o).queryString.equals(queryString);
+        }
+
+        @Override
+        public int hashCode() {
+            return queryString.hashCode();
+        }
+    }
+
+    private static class DummyExecutableQuery implements ExecutableQuery {
+        private final String query;
+
+        private DummyExecutableQuery(String query) {
+            this.query = query;
+        }
+
+        @Override
+        public ImmutableList<String> getSignature() {
+            return ImmutableList.of();
+        }
+
+        @Override
+        public String toString() {
+            return query;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package it.unibz.inf.ontop.answering.reformulation.input.impl;
+
+import org.eclipse.rdf4j.query.MalformedQueryException;
+import org.eclipse.rdf4j.query.QueryLanguage;
+import org.eclipse.rdf4j.query.parser.ParsedQuery;
+import org.eclipse.rdf4j.query.parser.QueryParserUtil;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class RDF4JInputQueryEqualityTest {
+
+    private static final String PREFIX = "PREFIX : <http://example.org/>\n";
+
+    @Test
+    public void testSameSelectString() throws MalformedQueryException {
+        String query = PREFIX + "SELECT ?x ?y WHERE { ?x :worksFor ?y ; :name ?n . }";
+        RDF4JSelectQuery q1 = new RDF4JSelectQuery(parse(query), query);
+        RDF4JSelectQuery q2 = new RDF4JSelectQuery(parse(query), query);
+        assertEquals(q1, q2);
+        assertEquals(q1.hashCode(), q2.hashCode());
+    }
+
+    @Test
+    public void testDifferentFormatting() throws MalformedQueryException {
+        String query1 = PREFIX + "SELECT ?x WHERE { ?x :worksFor <http://example.org/dept42> . }";
+        String query2 = "PREFIX ex: <http://example.org/>\nSELECT ?x\nWHERE {\n  ?x ex:worksFor ex:dept42\n}";
+        assertEquals(new RDF4JSelectQuery(parse(query1), query1), new RDF4JSelectQuery(parse(query2), query2));
+    }
+
+    @Test
+    public void testBlankNodes() throws MalformedQueryException {
+        String query = PREFIX + "SELECT ?x WHERE { ?x :worksFor [ :name ?n ] . ?x :knows/:name ?m }";
+        assertEquals(new RDF4JSelectQuery(parse(query), query), new RDF4JSelectQuery(parse(query), query));
+    }
+
+    @Test
+    public void testDifferentConstants() throws MalformedQueryException {
+        String query1 = PREFIX + "SELECT ?x WHERE { ?x :worksFor :dept42 . }";
+        String query2 = PREFIX + "SELECT ?x WHERE { ?x :worksFor :dept43 . }";
+        assertNotEquals(new RDF4JSelectQuery(parse(query1), query1), new RDF4JSelectQuery(parse(query2), query2));
+    }
+
+    @Test
+    public void testConstruct() throws MalformedQueryException {
+        String query = PREFIX + "CONSTRUCT { ?x :employer [ :label ?y ] } WHERE { ?x :worksFor ?y }";
+        RDF4JConstructQuery q1 = new RDF4JConstructQuery(query, parse(query));
+        RDF4JConstructQuery q2 = new RDF4JConstructQuery(query, parse(query));
+        assertEquals(q1, q2);
+        assertEquals(q1.hashCode(), q2.hashCode());
+    }
+
+    private static ParsedQuery parse(String query) throws MalformedQueryException {
+        return QueryParserUtil.parseQuery(QueryLanguage.SPARQL, query, null);
+    }
+}
@@ -0,0 +1,87 @@
+package it.unibz.inf.ontop.answering.reformulation.input.translation.impl;
+
+import com.google.common.collect.ImmutableSet;
+import it.unibz.inf.ontop.iq.IQ;
+import it.unibz.inf.ontop.iq.IQTree;
+import it.unibz.inf.ontop.iq.node.ConstructionNode;
+import it.unibz.inf.ontop.iq.node.UnionNode;
+import it.unibz.inf.ontop.model.term.Variable;
+import it.unibz.inf.ontop.utils.ImmutableCollectors;
+import it.unibz.inf.ontop.utils.UriTemplateMatcher;
+import org.eclipse.rdf4j.query.QueryLanguage;
+import org.eclipse.rdf4j.query.parser.ParsedQuery;
+import org.eclipse.rdf4j.query.parser.QueryParserUtil;
+import org.junit.Test;
+
+import java.util.stream.Stream;
+
+import static it.unibz.inf.ontop.utils.ReformulationTestingTools.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SparqlAlgebraToIQTranslatorTest {
+
+    private static final String PREFIXES = "PREFIX  dc:  <http://purl.org/dc/elements/1.1/>\n"
+            + "PREFIX  ns:  <http://example.org/ns#>\n";
+
+    @Test
+    public void testUnionIsPaddedWithNulls() throws Exception {
+        IQ iq = translate(PREFIXES + "SELECT ?x ?title ?p WHERE { { ?x dc:title ?title } UNION { ?x ns:price ?p } }");
+
+        assertEquals(variables("x", "title", "p"), iq.getTree().getVariables());
+
+        IQTree union = iq.getTree().getChildren().get(0);
+        assertTrue(union.getRootNode() instanceof UnionNode);
+        for (IQTree child : union.getChildren())
+            assertEquals(variables("x", "title", "p"), child.getVariables());
+    }
+
+    @Test
+    public void testBind() throws Exception {
+        IQ iq = translate(PREFIXES + "SELECT ?title ?w WHERE { ?x dc:title ?title . "
+                + "BIND (UCASE(?title) AS ?v) BIND (CONCAT(?title, \" \", ?v) AS ?w) }");
+
+        assertEquals(variables("title", "w"), iq.getTree().getVariables());
+    }
+
+    @Test
+    public void testProjectionRenamingABoundVariable() throws Exception {
+        IQ iq = translate(PREFIXES + "SELECT ?title (?p AS ?price) (?price-?discount AS ?customerPrice) "
+                + "{ ?x ns:price ?p . ?x dc:title ?title . ?x ns:discount ?discount }");
+
+        assertEquals(variables("title", "price", "customerPrice"), iq.getTree().getVariables());
+        assertTrue(iq.getTree().getRootNode() instanceof ConstructionNode);
+    }
+
+    @Test
+    public void testProjectionOfASourceVariableAndItsAlias() throws Exception {
+        IQ iq = translate(PREFIXES + "SELECT ?p (?p AS ?price) { ?x ns:price ?p }");
+
+        assertEquals(variables("p", "price"), iq.getTree().getVariables());
+    }
+
+    @Test
+    public void testSubQueryRenaming() throws Exception {
+        IQ iq = translate(PREFIXES + "SELECT ?length WHERE { ?x dc:title ?title . "
+                + "{ SELECT ?x (STRLEN(?t) AS ?length) WHERE { ?x ns:name ?t } } }");
+
+        assertEquals(variables("length"), iq.getTree().getVariables());
+    }
+
+    private static IQ translate(String query) throws Exception {
+        ParsedQuery pq = QueryParserUtil.createParser(QueryLanguage.SPARQL).parseQuery(query, null);
+        SparqlAlgebraToIQTranslator translator = new SparqlAlgebraToIQTranslator(
+                UriTemplateMatcher.create(Stream.of(), TERM_FACTORY), null, ATOM_FACTORY, TERM_FACTORY,
+                TYPE_FACTORY, IQ_FACTORY, SUBSTITUTION_FACTORY, RDF_FACTORY);
+        IQ iq = translator.translate(pq);
+        // Checks that the tree is well-formed
+        iq.validate();
+        return iq;
+    }
+
+    private static ImmutableSet<Variable> variables(String... names) {
+        return Stream.of(names)
+                .map(TERM_FACTORY::getVariable)
+                .collect(ImmutableCollectors.toSet());
+    }
+}
@@ -0,0 +1,75 @@
+package it.unibz.inf.ontop.answering.reformulation.generation.algebra;
+
+import it.unibz.inf.ontop.dbschema.Attribute;
+import it.unibz.inf.ontop.dbschema.QualifiedAttributeID;
+import it.unibz.inf.ontop.model.type.TermType;
+
+import java.util.Optional;
+
+/**
+ * Column of a FROM item.
+ *
+ * Columns of a database relation are given with their attribute,
+ * while the columns of a sub-query come with the columns storing their RDF type and language tag.
+ *
+ * In the terms of the SQL algebra, a column is referred to by a dedicated variable (see {@link SQLColumns}).
+ */
+public class SQLColumn {
+
+    private final QualifiedAttributeID id;
+    private final Optional<Attribute> attribute;
+    private final Optional<QualifiedAttributeID> typeColumn, langColumn;
+    private final TermType castType;
+
+    private SQLColumn(QualifiedAttributeID id, Optional<Attribute> attribute, Optional<QualifiedAttributeID> typeColumn,
+                      Optional<QualifiedAttributeID> langColumn, TermType castType) {
+        this.id = id;
+        this.attribute = attribute;
+        this.typeColumn = typeColumn;
+        this.langColumn = langColumn;
+        this.castType = castType;
+    }
+
+    public static SQLColumn createRelationColumn(QualifiedAttributeID id, Attribute attribute) {
+        return new SQLColumn(id, Optional.of(attribute), Optional.empty(), Optional.empty(), attribute.getTermType());
+    }
+
+    public static SQLColumn createSubQueryColumn(QualifiedAttributeID id, QualifiedAttributeID typeColumn,
+                                                 QualifiedAttributeID langColumn, TermType castType) {
+        return new SQLColumn(id, Optional.empty(), Optional.of(typeColumn), Optional.of(langColumn), castType);
+    }
+
+    public QualifiedAttributeID getID() {
+        return id;
+    }
+
+    /**
+     * Present for the columns of database relations
+     */
+    public Optional<Attribute> getAttribute() {
+        return attribute;
+    }
+
+    /**
+     * Present for the columns of sub-queries
+     */
+    public Optional<QualifiedAttributeID> getTypeColumn() {
+        return typeColumn;
+    }
+
+    /**
+     * Present for the columns of sub-queries
+     */
+    public Optional<QualifiedAttributeID> getLangColumn() {
+        return langColumn;
+    }
+
+    public TermType getCastType() {
+        return castType;
+    }
+
+    @Override
+    public String toString() {
+        return id.getSQLRendering();
+    }
+}
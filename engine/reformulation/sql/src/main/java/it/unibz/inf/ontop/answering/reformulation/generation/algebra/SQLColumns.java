@@ -0,0 +1,22 @@
+package it.unibz.inf.ontop.answering.reformulation.generation.algebra;
+
+import com.google.common.collect.ImmutableMap;
+import it.unibz.inf.ontop.model.term.Variable;
+
+import java.util.Optional;
+
+/**
+ * Columns referred to by the column variables of an SQL query.
+ */
+public class SQLColumns {
+
+    private final ImmutableMap<Variable, SQLColumn> map;
+
+    public SQLColumns(ImmutableMap<Variable, SQLColumn> map) {
+        this.map = map;
+    }
+
+    public Optional<SQLColumn> get(Variable columnVariable) {
+        return Optional.ofNullable(map.get(columnVariable));
+    }
+}
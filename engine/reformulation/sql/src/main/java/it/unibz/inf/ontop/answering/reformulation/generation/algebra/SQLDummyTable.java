@@ -0,0 +1,17 @@
+package it.unibz.inf.ontop.answering.reformulation.generation.algebra;
+
+/**
+ * One-tuple table without columns (e.g. the right-hand side of a left join with a TrueNode)
+ */
+public class SQLDummyTable implements SQLRelation {
+
+    public static final SQLDummyTable INSTANCE = new SQLDummyTable();
+
+    private SQLDummyTable() {
+    }
+
+    @Override
+    public String toString() {
+        return "DUMMY";
+    }
+}
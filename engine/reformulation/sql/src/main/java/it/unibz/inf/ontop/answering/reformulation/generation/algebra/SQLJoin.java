@@ -0,0 +1,28 @@
+package it.unibz.inf.ontop.answering.reformulation.generation.algebra;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Cross join of at least two relations.
+ *
+ * Only used as an operand of a left join: the conditions go to its ON clause.
+ */
+public class SQLJoin implements SQLRelation {
+
+    private final ImmutableList<SQLRelation> operands;
+
+    public SQLJoin(ImmutableList<SQLRelation> operands) {
+        if (operands.size() < 2)
+            throw new IllegalArgumentException("A join requires at least two operands");
+        this.operands = operands;
+    }
+
+    public ImmutableList<SQLRelation> getOperands() {
+        return operands;
+    }
+
+    @Override
+    public String toString() {
+        return "JOIN " + operands;
+    }
+}
@@ -0,0 +1,36 @@
+package it.unibz.inf.ontop.answering.reformulation.generation.algebra;
+
+import com.google.common.collect.ImmutableList;
+import it.unibz.inf.ontop.model.term.ImmutableExpression;
+
+/**
+ * LEFT OUTER JOIN. The ON clause is a conjunction (never empty).
+ */
+public class SQLLeftJoin implements SQLRelation {
+
+    private final SQLRelation left, right;
+    private final ImmutableList<ImmutableExpression> onConditions;
+
+    public SQLLeftJoin(SQLRelation left, SQLRelation right, ImmutableList<ImmutableExpression> onConditions) {
+        this.left = left;
+        this.right = right;
+        this.onConditions = onConditions;
+    }
+
+    public SQLRelation getLeft() {
+        return left;
+    }
+
+    public SQLRelation getRight() {
+        return right;
+    }
+
+    public ImmutableList<ImmutableExpression> getOnConditions() {
+        return onConditions;
+    }
+
+    @Override
+    public String toString() {
+        return "LJ " + left + " " + right + " ON " + onConditions;
+    }
+}
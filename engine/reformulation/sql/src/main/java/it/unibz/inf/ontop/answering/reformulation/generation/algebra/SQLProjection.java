@@ -0,0 +1,59 @@
+package it.unibz.inf.ontop.answering.reformulation.generation.algebra;
+
+import it.unibz.inf.ontop.model.term.ImmutableTerm;
+import it.unibz.inf.ontop.model.type.TermType;
+
+import java.util.Optional;
+
+/**
+ * Projected term, rendered as three columns: its RDF type, its language tag and its main (lexical) value.
+ *
+ * The main column is cast to the cast type, which is shared by all the queries of a union.
+ * The term type is absent when it is given by the type column of a sub-query.
+ */
+public class SQLProjection {
+
+    private final ImmutableTerm term;
+    private final Optional<TermType> termType;
+    private final TermType castType;
+    private final String typeAlias, langAlias, mainAlias;
+
+    public SQLProjection(ImmutableTerm term, Optional<TermType> termType, TermType castType,
+                         String typeAlias, String langAlias, String mainAlias) {
+        this.term = term;
+        this.termType = termType;
+        this.castType = castType;
+        this.typeAlias = typeAlias;
+        this.langAlias = langAlias;
+        this.mainAlias = mainAlias;
+    }
+
+    public ImmutableTerm getTerm() {
+        return term;
+    }
+
+    public Optional<TermType> getTermType() {
+        return termType;
+    }
+
+    public TermType getCastType() {
+        return castType;
+    }
+
+    public String getTypeAlias() {
+        return typeAlias;
+    }
+
+    public String getLangAlias() {
+        return langAlias;
+    }
+
+    public String getMainAlias() {
+        return mainAlias;
+    }
+
+    @Override
+    public String toString() {
+        return term + " AS " + mainAlias;
+    }
+}
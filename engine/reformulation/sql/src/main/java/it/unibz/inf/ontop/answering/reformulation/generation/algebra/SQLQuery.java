@@ -0,0 +1,16 @@
+package it.unibz.inf.ontop.answering.reformulation.generation.algebra;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * SQL query of the lightweight SQL algebra: either a SELECT-FROM-WHERE block or a union of such blocks.
+ *
+ * Terms (projected terms and conditions) are expressed over column variables (see {@link SQLColumn}).
+ */
+public interface SQLQuery {
+
+    /**
+     * One per projected variable, in the order of the signature
+     */
+    ImmutableList<SQLProjection> getProjections();
+}
@@ -0,0 +1,7 @@
+package it.unibz.inf.ontop.answering.reformulation.generation.algebra;
+
+/**
+ * Item of a FROM clause: a table, a sub-query, the dummy table, or a (left) join of such items.
+ */
+public interface SQLRelation {
+}
@@ -0,0 +1,54 @@
+package it.unibz.inf.ontop.answering.reformulation.generation.algebra;
+
+import com.google.common.collect.ImmutableList;
+import it.unibz.inf.ontop.model.term.ImmutableExpression;
+
+/**
+ * SELECT [DISTINCT] ... FROM ... WHERE ...
+ *
+ * When there is no FROM item, the dummy table of the dialect is used.
+ */
+public class SQLSelectQuery implements SQLQuery {
+
+    private final boolean distinct;
+    private final ImmutableList<SQLProjection> projections;
+    private final ImmutableList<SQLRelation> fromItems;
+    private final ImmutableList<ImmutableExpression> whereConditions;
+
+    public SQLSelectQuery(boolean distinct, ImmutableList<SQLProjection> projections,
+                          ImmutableList<SQLRelation> fromItems, ImmutableList<ImmutableExpression> whereConditions) {
+        this.distinct = distinct;
+        this.projections = projections;
+        this.fromItems = fromItems;
+        this.whereConditions = whereConditions;
+    }
+
+    public boolean isDistinct() {
+        return distinct;
+    }
+
+    @Override
+    public ImmutableList<SQLProjection> getProjections() {
+        return projections;
+    }
+
+    /**
+     * Cross product (comma-separated)
+     */
+    public ImmutableList<SQLRelation> getFromItems() {
+        return fromItems;
+    }
+
+    /**
+     * Conjunction
+     */
+    public ImmutableList<ImmutableExpression> getWhereConditions() {
+        return whereConditions;
+    }
+
+    @Override
+    public String toString() {
+        return "SELECT " + (distinct ? "DISTINCT " : "") + projections + " FROM " + fromItems
+                + " WHERE " + whereConditions;
+    }
+}
@@ -0,0 +1,30 @@
+package it.unibz.inf.ontop.answering.reformulation.generation.algebra;
+
+import it.unibz.inf.ontop.dbschema.RelationID;
+
+/**
+ * Nested query together with its alias.
+ */
+public class SQLSubQuery implements SQLRelation {
+
+    private final SQLQuery query;
+    private final RelationID alias;
+
+    public SQLSubQuery(SQLQuery query, RelationID alias) {
+        this.query = query;
+        this.alias = alias;
+    }
+
+    public SQLQuery getQuery() {
+        return query;
+    }
+
+    public RelationID getAlias() {
+        return alias;
+    }
+
+    @Override
+    public String toString() {
+        return "(" + query + ") " + alias;
+    }
+}
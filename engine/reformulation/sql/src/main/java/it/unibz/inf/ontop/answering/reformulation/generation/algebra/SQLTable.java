@@ -0,0 +1,31 @@
+package it.unibz.inf.ontop.answering.reformulation.generation.algebra;
+
+import it.unibz.inf.ontop.dbschema.RelationDefinition;
+import it.unibz.inf.ontop.dbschema.RelationID;
+
+/**
+ * Database relation (or parser view) together with its alias.
+ */
+public class SQLTable implements SQLRelation {
+
+    private final RelationDefinition relation;
+    private final RelationID alias;
+
+    public SQLTable(RelationDefinition relation, RelationID alias) {
+        this.relation = relation;
+        this.alias = alias;
+    }
+
+    public RelationDefinition getRelation() {
+        return relation;
+    }
+
+    public RelationID getAlias() {
+        return alias;
+    }
+
+    @Override
+    public String toString() {
+        return relation.getID() + " " + alias;
+    }
+}
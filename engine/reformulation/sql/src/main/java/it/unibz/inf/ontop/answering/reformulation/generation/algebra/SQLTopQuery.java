@@ -0,0 +1,71 @@
+package it.unibz.inf.ontop.answering.reformulation.generation.algebra;
+
+import com.google.common.collect.ImmutableList;
+import it.unibz.inf.ontop.datalog.OrderCondition;
+
+/**
+ * Top-level SQL query: the query itself, the columns its column variables refer to,
+ * its signature and its modifiers (applied on top of the query).
+ */
+public class SQLTopQuery {
+
+    private final SQLQuery query;
+    private final SQLColumns columns;
+    private final ImmutableList<String> signature;
+    private final boolean hasModifiers;
+    private final boolean distinct;
+    private final ImmutableList<OrderCondition> orderConditions;
+    private final long limit, offset;
+
+    /**
+     * limit and offset are -1 when absent
+     */
+    public SQLTopQuery(SQLQuery query, SQLColumns columns, ImmutableList<String> signature, boolean hasModifiers,
+                       boolean distinct, ImmutableList<OrderCondition> orderConditions, long limit, long offset) {
+        this.query = query;
+        this.columns = columns;
+        this.signature = signature;
+        this.hasModifiers = hasModifiers;
+        this.distinct = distinct;
+        this.orderConditions = orderConditions;
+        this.limit = limit;
+        this.offset = offset;
+    }
+
+    public SQLQuery getQuery() {
+        return query;
+    }
+
+    public SQLColumns getColumns() {
+        return columns;
+    }
+
+    public ImmutableList<String> getSignature() {
+        return signature;
+    }
+
+    public boolean hasModifiers() {
+        return hasModifiers;
+    }
+
+    public boolean isDistinct() {
+        return distinct;
+    }
+
+    public ImmutableList<OrderCondition> getOrderConditions() {
+        return orderConditions;
+    }
+
+    public long getLimit() {
+        return limit;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    @Override
+    public String toString() {
+        return query.toString();
+    }
+}
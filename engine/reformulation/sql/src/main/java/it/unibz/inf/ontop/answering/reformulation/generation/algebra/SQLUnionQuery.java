@@ -0,0 +1,40 @@
+package it.unibz.inf.ontop.answering.reformulation.generation.algebra;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * UNION [ALL] of SELECT blocks having the same column aliases and cast types.
+ */
+public class SQLUnionQuery implements SQLQuery {
+
+    private final ImmutableList<SQLSelectQuery> selectQueries;
+    private final boolean distinct;
+
+    public SQLUnionQuery(ImmutableList<SQLSelectQuery> selectQueries, boolean distinct) {
+        if (selectQueries.size() < 2)
+            throw new IllegalArgumentException("A union requires at least two queries");
+        this.selectQueries = selectQueries;
+        this.distinct = distinct;
+    }
+
+    public ImmutableList<SQLSelectQuery> getSelectQueries() {
+        return selectQueries;
+    }
+
+    /**
+     * UNION instead of UNION ALL
+     */
+    public boolean isDistinct() {
+        return distinct;
+    }
+
+    @Override
+    public ImmutableList<SQLProjection> getProjections() {
+        return selectQueries.get(0).getProjections();
+    }
+
+    @Override
+    public String toString() {
+        return (distinct ? "UNION " : "UNION ALL ") + selectQueries;
+    }
+}
@@ -0,0 +1,541 @@
+package it.unibz.inf.ontop.answering.reformulation.generation.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import it.unibz.inf.ontop.answering.reformulation.generation.algebra.*;
+import it.unibz.inf.ontop.answering.reformulation.generation.dialect.SQLDialectAdapter;
+import it.unibz.inf.ontop.datalog.MutableQueryModifiers;
+import it.unibz.inf.ontop.datalog.OrderCondition;
+import it.unibz.inf.ontop.datalog.impl.MutableQueryModifiersImpl;
+import it.unibz.inf.ontop.dbschema.*;
+import it.unibz.inf.ontop.exception.IncompatibleTermException;
+import it.unibz.inf.ontop.exception.MinorOntopInternalBugException;
+import it.unibz.inf.ontop.exception.OntopTypingException;
+import it.unibz.inf.ontop.injection.IntermediateQueryFactory;
+import it.unibz.inf.ontop.iq.BinaryNonCommutativeIQTree;
+import it.unibz.inf.ontop.iq.IQ;
+import it.unibz.inf.ontop.iq.IQTree;
+import it.unibz.inf.ontop.iq.UnaryIQTree;
+import it.unibz.inf.ontop.iq.node.*;
+import it.unibz.inf.ontop.model.atom.DataAtom;
+import it.unibz.inf.ontop.model.atom.RelationPredicate;
+import it.unibz.inf.ontop.model.term.*;
+import it.unibz.inf.ontop.model.term.functionsymbol.DatatypePredicate;
+import it.unibz.inf.ontop.model.term.functionsymbol.ExpressionOperation;
+import it.unibz.inf.ontop.model.term.functionsymbol.FunctionSymbol;
+import it.unibz.inf.ontop.model.type.TermType;
+import it.unibz.inf.ontop.model.type.TypeFactory;
+import it.unibz.inf.ontop.model.type.impl.TermTypeInferenceTools;
+import it.unibz.inf.ontop.substitution.ImmutableSubstitution;
+import it.unibz.inf.ontop.substitution.SubstitutionFactory;
+import it.unibz.inf.ontop.utils.ImmutableCollectors;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Translates an IQ tree (prepared for SQL generation) into the SQL algebra.
+ *
+ * The top query modifiers (slice, distinct and order by) are extracted.
+ * Below them, each construction, union and distinct node becomes a sub-query,
+ * while the joins, left joins, filters and data nodes are flattened
+ * into the FROM and WHERE clauses of the enclosing SELECT block.
+ *
+ * The terms of the algebra do not refer to the variables of the IQ but to column variables,
+ * each of them standing for one column of a FROM item (see {@link SQLColumns}).
+ *
+ * Thread-safe: the query-dependent state is kept in a {@link Translation}.
+ */
+class IQ2SQLAlgebraTranslator {
+
+    private static final String VIEW_PREFIX = "Q";
+    private static final String VIEW_SUFFIX = "VIEW";
+    private static final String VIEW_ANS_SUFFIX = "View";
+    private static final String SUB_QUERY_PREFIX = "ans";
+
+    private static final String TYPE_COLUMN_SUFFIX = "QuestType";
+    private static final String LANG_COLUMN_SUFFIX = "Lang";
+    private static final String MAIN_COLUMN_SUFFIX = "";
+
+    private final SQLDialectAdapter sqladapter;
+    private final QuotedIDFactory idFactory;
+    private final boolean distinctResultSet;
+    private final TermFactory termFactory;
+    private final TypeFactory typeFactory;
+    private final SubstitutionFactory substitutionFactory;
+    private final IntermediateQueryFactory iqFactory;
+    private final TermTypeInferenceTools termTypeInferenceTools;
+
+    /**
+     * Thrown when the tree contains a construct not supported by the SQL algebra (e.g. a nested slice)
+     */
+    static class UnsupportedTreeException extends Exception {
+        UnsupportedTreeException(String message) {
+            super(message);
+        }
+    }
+
+    IQ2SQLAlgebraTranslator(SQLDialectAdapter sqladapter, QuotedIDFactory idFactory, boolean distinctResultSet,
+                            TermFactory termFactory, TypeFactory typeFactory, SubstitutionFactory substitutionFactory,
+                            IntermediateQueryFactory iqFactory, TermTypeInferenceTools termTypeInferenceTools) {
+        this.sqladapter = sqladapter;
+        this.idFactory = idFactory;
+        this.distinctResultSet = distinctResultSet;
+        this.termFactory = termFactory;
+        this.typeFactory = typeFactory;
+        this.substitutionFactory = substitutionFactory;
+        this.iqFactory = iqFactory;
+        this.termTypeInferenceTools = termTypeInferenceTools;
+    }
+
+    SQLTopQuery translate(IQ iq) throws UnsupportedTreeException, OntopTypingException {
+        try {
+            return new Translation().translate(iq);
+        }
+        /*
+         * Currently, incompatible terms are treated as a reformulation error
+         */
+        catch (IncompatibleTermException e) {
+            throw new OntopTypingException(e.getMessage());
+        }
+    }
+
+    /**
+     * For each name, the aliases of its type, lang and main columns
+     */
+    private ImmutableList<ImmutableList<String>> createColumnAliases(List<String> names) {
+        // Needed by the dialects restricting the length of the names (e.g. Oracle)
+        Set<String> columnAliases = new HashSet<>();
+        ImmutableList.Builder<ImmutableList<String>> builder = ImmutableList.builder();
+        for (String name : names) {
+            String typeAlias = sqladapter.nameTopVariable(name, TYPE_COLUMN_SUFFIX, columnAliases);
+            columnAliases.add(typeAlias);
+
+            String langAlias = sqladapter.nameTopVariable(name, LANG_COLUMN_SUFFIX, columnAliases);
+            columnAliases.add(langAlias);
+
+            String mainAlias = sqladapter.nameTopVariable(name, MAIN_COLUMN_SUFFIX, columnAliases);
+            columnAliases.add(mainAlias);
+
+            builder.add(ImmutableList.of(typeAlias, langAlias, mainAlias));
+        }
+        return builder.build();
+    }
+
+    private ImmutableExpression createEquality(ImmutableTerm term1, ImmutableTerm term2) {
+        return termFactory.getImmutableExpression(ExpressionOperation.EQ, term1, term2);
+    }
+
+
+    /**
+     * Query-dependent state
+     */
+    private class Translation {
+
+        private final Map<Variable, SQLColumn> columns = new HashMap<>();
+        private final Set<RelationID> usedAliases = new HashSet<>();
+        private int viewCounter = 0;
+        private int subQueryCounter = 0;
+        // When true, all the SELECT blocks are DISTINCT (not only the top ones)
+        private boolean distinctSelects = false;
+
+        SQLTopQuery translate(IQ iq) throws UnsupportedTreeException {
+            IQTree tree = iq.getTree();
+            MutableQueryModifiers modifiers = new MutableQueryModifiersImpl();
+            boolean hasModifiers = false;
+
+            if (tree.getRootNode() instanceof SliceNode) {
+                SliceNode sliceNode = (SliceNode) tree.getRootNode();
+                sliceNode.getLimit().ifPresent(modifiers::setLimit);
+                if (sliceNode.getOffset() > 0)
+                    modifiers.setOffset(sliceNode.getOffset());
+                tree = ((UnaryIQTree) tree).getChild();
+                hasModifiers = true;
+            }
+            if (tree.getRootNode() instanceof DistinctNode) {
+                modifiers.setDistinct();
+                tree = ((UnaryIQTree) tree).getChild();
+                hasModifiers = true;
+            }
+            if (tree.getRootNode() instanceof OrderByNode) {
+                addOrderConditions((OrderByNode) tree.getRootNode(), modifiers);
+                tree = ((UnaryIQTree) tree).getChild();
+                hasModifiers = true;
+            }
+            // ORDER BY under the top construction node: only when it does not depend on its substitution
+            else if ((tree.getRootNode() instanceof ConstructionNode)
+                    && (((UnaryIQTree) tree).getChild().getRootNode() instanceof OrderByNode)) {
+                ConstructionNode constructionNode = (ConstructionNode) tree.getRootNode();
+                UnaryIQTree orderByTree = (UnaryIQTree) ((UnaryIQTree) tree).getChild();
+                OrderByNode orderByNode = (OrderByNode) orderByTree.getRootNode();
+                ImmutableSet<Variable> domain = constructionNode.getSubstitution().getDomain();
+                if (!orderByNode.getComparators().stream()
+                        .map(OrderByNode.OrderComparator::getTerm)
+                        .allMatch(t -> constructionNode.getVariables().contains(t) && !domain.contains(t)))
+                    throw new UnsupportedTreeException("ORDER BY depending on the top construction node");
+
+                addOrderConditions(orderByNode, modifiers);
+                tree = iqFactory.createUnaryIQTree(constructionNode, orderByTree.getChild());
+                hasModifiers = true;
+            }
+
+            boolean isDistinct = modifiers.isDistinct() && !distinctResultSet;
+            distinctSelects = isDistinct;
+
+            ImmutableList<Variable> signature = ImmutableList.copyOf(iq.getProjectionAtom().getArguments());
+            ImmutableList<String> signatureNames = signature.stream()
+                    .map(Variable::getName)
+                    .collect(ImmutableCollectors.toList());
+
+            SQLQuery query = translateQuery(tree, signature, createColumnAliases(signatureNames), isDistinct);
+
+            return new SQLTopQuery(query, new SQLColumns(ImmutableMap.copyOf(columns)), signatureNames,
+                    hasModifiers, modifiers.isDistinct(),
+                    ImmutableList.copyOf(modifiers.getSortConditions()), modifiers.getLimit(), modifiers.getOffset());
+        }
+
+        private void addOrderConditions(OrderByNode orderByNode, MutableQueryModifiers modifiers)
+                throws UnsupportedTreeException {
+            for (OrderByNode.OrderComparator comparator : orderByNode.getComparators()) {
+                NonGroundTerm term = comparator.getTerm();
+                if (!(term instanceof Variable))
+                    throw new UnsupportedTreeException("Non-variable order condition: " + term);
+                modifiers.addOrderCondition((Variable) term, comparator.isAscending()
+                        ? OrderCondition.ORDER_ASCENDING
+                        : OrderCondition.ORDER_DESCENDING);
+            }
+        }
+
+        /**
+         * Translates a tree into a SELECT block or a union of SELECT blocks projecting the signature
+         */
+        private SQLQuery translateQuery(IQTree tree, ImmutableList<Variable> signature,
+                                        ImmutableList<ImmutableList<String>> columnAliases, boolean distinct)
+                throws UnsupportedTreeException {
+            QueryNode rootNode = tree.getRootNode();
+            if (rootNode instanceof DistinctNode)
+                return translateQuery(((UnaryIQTree) tree).getChild(), signature, columnAliases, true);
+
+            ImmutableList<IQTree> selectTrees = (rootNode instanceof UnionNode)
+                    ? tree.getChildren()
+                    : ImmutableList.of(tree);
+
+            List<SelectBlock> blocks = new ArrayList<>(selectTrees.size());
+            for (IQTree selectTree : selectTrees)
+                blocks.add(translateSelectBlock(selectTree, signature));
+
+            // The cast types are shared by all the blocks of a union
+            ImmutableList<TermType> castTypes = IntStream.range(0, signature.size())
+                    .mapToObj(i -> blocks.stream()
+                            .map(b -> b.castTypes.get(i))
+                            .reduce(TermType::getCommonDenominator)
+                            .get())
+                    .collect(ImmutableCollectors.toList());
+
+            ImmutableList<SQLSelectQuery> selectQueries = blocks.stream()
+                    .map(b -> b.createSelectQuery(castTypes, columnAliases, distinct || distinctSelects))
+                    .collect(ImmutableCollectors.toList());
+
+            return selectQueries.size() == 1
+                    ? selectQueries.get(0)
+                    : new SQLUnionQuery(selectQueries, distinct);
+        }
+
+        private SelectBlock translateSelectBlock(IQTree tree, ImmutableList<Variable> signature)
+                throws UnsupportedTreeException {
+
+            final ImmutableSubstitution<ImmutableTerm> substitution;
+            final IQTree body;
+            if (tree.getRootNode() instanceof ConstructionNode) {
+                substitution = ((ConstructionNode) tree.getRootNode()).getSubstitution();
+                body = ((UnaryIQTree) tree).getChild();
+            }
+            else {
+                substitution = substitutionFactory.getSubstitution();
+                body = tree;
+            }
+            Scope scope = translateBody(body);
+
+            ImmutableList<ImmutableTerm> terms = signature.stream()
+                    .map(substitution::apply)
+                    .map(scope::resolve)
+                    .collect(ImmutableCollectors.toList());
+
+            ImmutableList<Optional<TermType>> termTypes = terms.stream()
+                    .map(termTypeInferenceTools::inferType)
+                    .collect(ImmutableCollectors.toList());
+
+            ImmutableList<TermType> castTypes = IntStream.range(0, terms.size())
+                    .mapToObj(i -> termTypes.get(i)
+                            .orElseGet(() -> getCastType(terms.get(i))))
+                    .collect(ImmutableCollectors.toList());
+
+            return new SelectBlock(scope, terms, termTypes, castTypes);
+        }
+
+        /**
+         * Translates the tree into FROM items and WHERE conditions
+         */
+        private Scope translateBody(IQTree tree) throws UnsupportedTreeException {
+            QueryNode node = tree.getRootNode();
+
+            if (node instanceof ExtensionalDataNode)
+                return translateExtensionalDataNode((ExtensionalDataNode) node);
+
+            else if (node instanceof InnerJoinNode) {
+                Scope scope = new Scope();
+                for (IQTree child : tree.getChildren())
+                    scope.join(translateBody(child));
+                ((InnerJoinNode) node).getOptionalFilterCondition()
+                        .ifPresent(scope::addCondition);
+                return scope;
+            }
+            else if (node instanceof FilterNode) {
+                Scope scope = translateBody(((UnaryIQTree) tree).getChild());
+                scope.addCondition(((FilterNode) node).getFilterCondition());
+                return scope;
+            }
+            else if (node instanceof LeftJoinNode) {
+                BinaryNonCommutativeIQTree ljTree = (BinaryNonCommutativeIQTree) tree;
+                return translateLeftJoin((LeftJoinNode) node, translateBody(ljTree.getLeftChild()),
+                        translateBody(ljTree.getRightChild()));
+            }
+            else if (node instanceof TrueNode)
+                return new Scope();
+
+            else if ((node instanceof ConstructionNode) || (node instanceof UnionNode)
+                    || (node instanceof DistinctNode))
+                return translateSubQuery(tree);
+
+            throw new UnsupportedTreeException("Unsupported node in the body of the query: " + node);
+        }
+
+        private Scope translateExtensionalDataNode(ExtensionalDataNode dataNode) {
+            DataAtom<RelationPredicate> atom = dataNode.getProjectionAtom();
+            RelationDefinition relation = atom.getPredicate().getRelationDefinition();
+            RelationID alias = createAlias(atom.getPredicate().getName(), VIEW_SUFFIX + viewCounter++);
+
+            Scope scope = new Scope();
+            scope.items.add(new SQLTable(relation, alias));
+
+            for (int i = 0; i < atom.getArity(); i++) {
+                Attribute attribute = relation.getAttribute(i + 1);
+                Variable columnVariable = registerColumn(SQLColumn.createRelationColumn(
+                        new QualifiedAttributeID(alias, attribute.getID()), attribute));
+
+                VariableOrGroundTerm argument = atom.getTerm(i);
+                if (argument instanceof Variable)
+                    scope.addColumn((Variable) argument, columnVariable);
+                else
+                    scope.conditions.add(createEquality(columnVariable, argument));
+            }
+            return scope;
+        }
+
+        /**
+         * The conditions of the right child and the equalities between the left and right columns go to the
+         * ON clause, while the conditions of the left child remain in the enclosing scope
+         * (they only refer to the left columns).
+         */
+        private Scope translateLeftJoin(LeftJoinNode leftJoinNode, Scope left, Scope right) {
+            Scope scope = new Scope();
+            // The left columns are used above the left join
+            scope.columns.putAll(left.columns);
+
+            List<ImmutableExpression> onConditions = new ArrayList<>(right.conditions);
+            right.columns.forEach((v, c) -> {
+                Variable leftColumn = scope.columns.putIfAbsent(v, c);
+                if (leftColumn != null)
+                    onConditions.add(createEquality(leftColumn, c));
+            });
+            leftJoinNode.getOptionalFilterCondition()
+                    .ifPresent(c -> onConditions.addAll(scope.resolve(c).flattenAND()));
+
+            if (onConditions.isEmpty()) {
+                ValueConstant one = termFactory.getConstantLiteral("1", typeFactory.getXsdIntegerDatatype());
+                onConditions.add(createEquality(one, one));
+            }
+
+            scope.items.add(new SQLLeftJoin(left.asRelation(), right.asRelation(),
+                    ImmutableList.copyOf(onConditions)));
+            scope.conditions.addAll(left.conditions);
+            return scope;
+        }
+
+        private Scope translateSubQuery(IQTree tree) throws UnsupportedTreeException {
+            ImmutableList<Variable> variables = ImmutableList.copyOf(tree.getVariables());
+            ImmutableList<ImmutableList<String>> columnAliases = createColumnAliases(
+                    IntStream.range(0, variables.size())
+                            .mapToObj(i -> "v" + i)
+                            .collect(ImmutableCollectors.toList()));
+
+            SQLQuery query = translateQuery(tree, variables, columnAliases, false);
+            RelationID alias = createAlias(SUB_QUERY_PREFIX + ++subQueryCounter, VIEW_ANS_SUFFIX);
+
+            Scope scope = new Scope();
+            scope.items.add(new SQLSubQuery(query, alias));
+
+            ImmutableList<SQLProjection> projections = query.getProjections();
+            for (int i = 0; i < variables.size(); i++) {
+                SQLProjection projection = projections.get(i);
+                Variable columnVariable = registerColumn(SQLColumn.createSubQueryColumn(
+                        createColumnID(alias, projection.getMainAlias()),
+                        createColumnID(alias, projection.getTypeAlias()),
+                        createColumnID(alias, projection.getLangAlias()),
+                        projection.getCastType()));
+                scope.addColumn(variables.get(i), columnVariable);
+            }
+            return scope;
+        }
+
+        private QualifiedAttributeID createColumnID(RelationID alias, String columnAlias) {
+            return new QualifiedAttributeID(alias, idFactory.createAttributeID(columnAlias));
+        }
+
+        private RelationID createAlias(String predicateName, String suffix) {
+            // escapes the predicate name
+            String safePredicateName = predicateName
+                    .replace('.', '_')
+                    .replace(':', '_')
+                    .replace('/', '_')
+                    .replace(' ', '_');
+            String alias = sqladapter.nameView(VIEW_PREFIX, safePredicateName, suffix, usedAliases);
+            RelationID relationID = idFactory.createRelationID(null, alias);
+            usedAliases.add(relationID);
+            return relationID;
+        }
+
+        /**
+         * Returns the column variable (named after the qualified column)
+         */
+        private Variable registerColumn(SQLColumn column) {
+            Variable columnVariable = termFactory.getVariable(column.getID().getSQLRendering());
+            if (columns.put(columnVariable, column) != null)
+                throw new MinorOntopInternalBugException("Column registered twice: " + column);
+            return columnVariable;
+        }
+
+        /**
+         * Type used for casting the main column of a projected term whose term type is not known
+         * (e.g. a variable)
+         */
+        private TermType getCastType(ImmutableTerm term) {
+            if (term instanceof Variable) {
+                SQLColumn column = columns.get(term);
+                if (column == null)
+                    throw new MinorOntopInternalBugException("Unbound variable: " + term);
+                return column.getCastType();
+            }
+            else if (term instanceof ImmutableExpression) {
+                ImmutableExpression expression = (ImmutableExpression) term;
+                ImmutableList<Optional<TermType>> argumentTypes = expression.getTerms().stream()
+                        .map(t -> Optional.of(getCastType(t)))
+                        .collect(ImmutableCollectors.toList());
+
+                return expression.getOptionalTermType(argumentTypes)
+                        .orElseThrow(() -> new IllegalStateException("No type could be inferred for " + term));
+            }
+            else if (term instanceof Constant) {
+                return ((Constant) term).getType();
+            }
+            else if (term instanceof ImmutableFunctionalTerm) {
+                FunctionSymbol functionSymbol = ((ImmutableFunctionalTerm) term).getFunctionSymbol();
+                if (functionSymbol instanceof DatatypePredicate)
+                    return functionSymbol.getExpectedBaseType(0);
+            }
+            throw new IllegalStateException("Could not determine the type of " + term);
+        }
+
+        /**
+         * FROM items and WHERE conditions of a SELECT block (or of the operand of a left join) under construction.
+         *
+         * The conditions are expressed over column variables.
+         */
+        private class Scope {
+            private final List<SQLRelation> items = new ArrayList<>();
+            private final List<ImmutableExpression> conditions = new ArrayList<>();
+            // Variable of the IQ -> column variable
+            private final Map<Variable, Variable> columns = new LinkedHashMap<>();
+
+            /**
+             * A variable provided by several columns is translated into equalities
+             */
+            void addColumn(Variable variable, Variable columnVariable) {
+                Variable previousColumn = columns.get(variable);
+                if (previousColumn == null) {
+                    columns.put(variable, columnVariable);
+                    return;
+                }
+                conditions.add(createEquality(previousColumn, columnVariable));
+
+                // Prefers the columns of sub-queries (they provide the RDF type and language tag)
+                if (!Translation.this.columns.get(previousColumn).getTypeColumn().isPresent()
+                        && Translation.this.columns.get(columnVariable).getTypeColumn().isPresent())
+                    columns.put(variable, columnVariable);
+            }
+
+            void join(Scope other) {
+                items.addAll(other.items);
+                conditions.addAll(other.conditions);
+                other.columns.forEach(this::addColumn);
+            }
+
+            void addCondition(ImmutableExpression condition) {
+                conditions.addAll(resolve(condition).flattenAND());
+            }
+
+            <T extends ImmutableTerm> T resolve(T term) {
+                T resolvedTerm = substitutionFactory.getVar2VarSubstitution(ImmutableMap.copyOf(columns))
+                        .applyToTerm(term);
+                resolvedTerm.getVariableStream()
+                        .filter(v -> !Translation.this.columns.containsKey(v))
+                        .findAny()
+                        .ifPresent(v -> {
+                            throw new MinorOntopInternalBugException("Unbound variable " + v + " in " + term);
+                        });
+                return resolvedTerm;
+            }
+
+            SQLRelation asRelation() {
+                switch (items.size()) {
+                    case 0:
+                        return SQLDummyTable.INSTANCE;
+                    case 1:
+                        return items.get(0);
+                    default:
+                        return new SQLJoin(ImmutableList.copyOf(items));
+                }
+            }
+        }
+
+        /**
+         * SELECT block before the cast types are unified (over the blocks of a union)
+         */
+        private class SelectBlock {
+            private final Scope scope;
+            private final ImmutableList<ImmutableTerm> terms;
+            private final ImmutableList<Optional<TermType>> termTypes;
+            private final ImmutableList<TermType> castTypes;
+
+            SelectBlock(Scope scope, ImmutableList<ImmutableTerm> terms, ImmutableList<Optional<TermType>> termTypes,
+                        ImmutableList<TermType> castTypes) {
+                this.scope = scope;
+                this.terms = terms;
+                this.termTypes = termTypes;
+                this.castTypes = castTypes;
+            }
+
+            SQLSelectQuery createSelectQuery(ImmutableList<TermType> unifiedCastTypes,
+                                             ImmutableList<ImmutableList<String>> columnAliases, boolean distinct) {
+                ImmutableList<SQLProjection> projections = IntStream.range(0, terms.size())
+                        .mapToObj(i -> new SQLProjection(terms.get(i), termTypes.get(i), unifiedCastTypes.get(i),
+                                columnAliases.get(i).get(0), columnAliases.get(i).get(1), columnAliases.get(i).get(2)))
+                        .collect(ImmutableCollectors.toList());
+
+                return new SQLSelectQuery(distinct, projections, ImmutableList.copyOf(scope.items),
+                        ImmutableList.copyOf(scope.conditions));
+            }
+        }
+    }
+}
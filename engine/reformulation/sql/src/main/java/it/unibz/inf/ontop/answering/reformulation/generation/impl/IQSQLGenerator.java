@@ -0,0 +1,180 @@
+package it.unibz.inf.ontop.answering.reformulation.generation.impl;
+
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.inject.assistedinject.Assisted;
+import com.google.inject.assistedinject.AssistedInject;
+import it.unibz.inf.ontop.answering.reformulation.ExecutableQuery;
+import it.unibz.inf.ontop.answering.reformulation.IRIDictionary;
+import it.unibz.inf.ontop.answering.reformulation.generation.NativeQueryGenerator;
+import it.unibz.inf.ontop.answering.reformulation.generation.algebra.SQLTopQuery;
+import it.unibz.inf.ontop.answering.reformulation.generation.dialect.SQLDialectAdapter;
+import it.unibz.inf.ontop.answering.reformulation.generation.impl.IQ2SQLAlgebraTranslator.UnsupportedTreeException;
+import it.unibz.inf.ontop.answering.reformulation.impl.SQLColumnPlan;
+import it.unibz.inf.ontop.answering.reformulation.impl.SQLExecutableQuery;
+import it.unibz.inf.ontop.answering.reformulation.impl.SQLTemplateExecutableQuery;
+import it.unibz.inf.ontop.datalog.DatalogFactory;
+import it.unibz.inf.ontop.datalog.DatalogNormalizer;
+import it.unibz.inf.ontop.datalog.IQ2DatalogTranslator;
+import it.unibz.inf.ontop.datalog.UnionFlattener;
+import it.unibz.inf.ontop.dbschema.DBMetadata;
+import it.unibz.inf.ontop.dbschema.JdbcTypeMapper;
+import it.unibz.inf.ontop.dbschema.RDBMetadata;
+import it.unibz.inf.ontop.dbschema.Relation2Predicate;
+import it.unibz.inf.ontop.exception.OntopReformulationException;
+import it.unibz.inf.ontop.injection.IntermediateQueryFactory;
+import it.unibz.inf.ontop.injection.OntopReformulationSQLSettings;
+import it.unibz.inf.ontop.injection.OptimizerFactory;
+import it.unibz.inf.ontop.iq.IQ;
+import it.unibz.inf.ontop.iq.IntermediateQuery;
+import it.unibz.inf.ontop.iq.optimizer.PushDownBooleanExpressionOptimizer;
+import it.unibz.inf.ontop.iq.optimizer.PushUpBooleanExpressionOptimizer;
+import it.unibz.inf.ontop.iq.tools.IQConverter;
+import it.unibz.inf.ontop.model.term.TermFactory;
+import it.unibz.inf.ontop.model.term.functionsymbol.ExpressionOperation;
+import it.unibz.inf.ontop.model.type.TypeFactory;
+import it.unibz.inf.ontop.model.type.impl.TermTypeInferenceTools;
+import it.unibz.inf.ontop.substitution.SubstitutionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+
+/**
+ * Generates SQL directly from the IQ: the tree is translated into a lightweight SQL algebra
+ * (see the package it.unibz.inf.ontop.answering.reformulation.generation.algebra),
+ * which is then rendered once through the SQL dialect adapter.
+ *
+ * Contrary to {@link LegacySQLGenerator}, the IQ is converted neither into Datalog
+ * nor several times back and forth into an IntermediateQuery.
+ *
+ * Trees that cannot be expressed in the SQL algebra (e.g. with nested slices)
+ * are delegated to the legacy engine.
+ *
+ * Thread-safe.
+ */
+public class IQSQLGenerator implements NativeQueryGenerator {
+
+    private static final String OUTER_VIEW_NAME = "SUB_QVIEW";
+
+    private static final Logger log = LoggerFactory.getLogger(IQSQLGenerator.class);
+
+    private final SQLDialectAdapter sqladapter;
+    private final IQ2SQLAlgebraTranslator translator;
+    private final SQLAlgebraSerializer serializer;
+    private final IQConverter iqConverter;
+    private final UnionFlattener unionFlattener;
+    private final PushDownBooleanExpressionOptimizer pushDownExpressionOptimizer;
+
+    /**
+     * For the trees not supported by the SQL algebra. To be cloned for every query!
+     */
+    private final OneShotSQLGeneratorEngine legacyEngine;
+
+    @AssistedInject
+    private IQSQLGenerator(@Assisted DBMetadata metadata,
+                           @Nullable IRIDictionary iriDictionary,
+                           OntopReformulationSQLSettings settings,
+                           IQ2DatalogTranslator iq2DatalogTranslator,
+                           JdbcTypeMapper jdbcTypeMapper,
+                           TypeExtractor typeExtractor, Relation2Predicate relation2Predicate,
+                           DatalogNormalizer datalogNormalizer, DatalogFactory datalogFactory,
+                           TypeFactory typeFactory, TermFactory termFactory,
+                           IntermediateQueryFactory iqFactory,
+                           IQConverter iqConverter, UnionFlattener unionFlattener,
+                           PushDownBooleanExpressionOptimizer pushDownExpressionOptimizer,
+                           OptimizerFactory optimizerFactory, PushUpBooleanExpressionOptimizer pullUpExpressionOptimizer,
+                           SubstitutionFactory substitutionFactory, TermTypeInferenceTools termTypeInferenceTools) {
+        if (!(metadata instanceof RDBMetadata)) {
+            throw new IllegalArgumentException("Not a DBMetadata!");
+        }
+        this.iqConverter = iqConverter;
+        this.unionFlattener = unionFlattener;
+        this.pushDownExpressionOptimizer = pushDownExpressionOptimizer;
+
+        this.sqladapter = OneShotSQLGeneratorEngine.createSQLDialectAdapter((RDBMetadata) metadata, settings);
+        ImmutableMap<ExpressionOperation, String> operations = OneShotSQLGeneratorEngine.buildOperations(sqladapter);
+
+        this.translator = new IQ2SQLAlgebraTranslator(sqladapter, metadata.getQuotedIDFactory(),
+                settings.isDistinctPostProcessingEnabled(), termFactory, typeFactory, substitutionFactory, iqFactory,
+                termTypeInferenceTools);
+        this.serializer = new SQLAlgebraSerializer(sqladapter, operations,
+                new SQLTermRenderer(sqladapter, jdbcTypeMapper, termFactory, iriDictionary), jdbcTypeMapper,
+                typeFactory, settings.isIRISafeEncodingEnabled());
+
+        this.legacyEngine = new OneShotSQLGeneratorEngine(metadata, iriDictionary, settings, jdbcTypeMapper,
+                iq2DatalogTranslator, typeExtractor, relation2Predicate, datalogNormalizer, datalogFactory,
+                typeFactory, termFactory, iqFactory, iqConverter, unionFlattener,
+                pushDownExpressionOptimizer, optimizerFactory, pullUpExpressionOptimizer);
+    }
+
+    @Override
+    public ExecutableQuery generateSourceQuery(IntermediateQuery query) throws OntopReformulationException {
+        SQLTopQuery topQuery;
+        try {
+            topQuery = translate(query);
+        } catch (UnsupportedTreeException e) {
+            log.debug("Falling back to the legacy SQL generator: {}", e.getMessage());
+            return legacyEngine.clone().generateSourceQuery(query);
+        }
+        return new SQLExecutableQuery(serialize(topQuery), topQuery.getSignature());
+    }
+
+    /**
+     * The placeholders are regular constants of the query, rendered as markers by the serializer:
+     * the conditions on them are applied to the base tables.
+     */
+    @Override
+    public ExecutableQuery generateTemplateQuery(IntermediateQuery query) throws OntopReformulationException {
+        SQLTopQuery topQuery;
+        try {
+            topQuery = translate(query);
+        } catch (UnsupportedTreeException e) {
+            log.debug("Falling back to the legacy SQL generator: {}", e.getMessage());
+            return legacyEngine.clone().generateTemplateQuery(query);
+        }
+        ImmutableList<String> signature = topQuery.getSignature();
+        return SQLTemplateExecutableQuery.create(serialize(topQuery), signature,
+                SQLColumnPlan.createDefault(signature.size()));
+    }
+
+    @Override
+    public ExecutableQuery generateEmptyQuery(ImmutableList<String> signatureContainer) {
+        // Empty string query
+        return new SQLExecutableQuery(signatureContainer);
+    }
+
+    private String serialize(SQLTopQuery topQuery) {
+        String queryString = serializer.serialize(topQuery);
+        return topQuery.hasModifiers()
+                ? "SELECT *\nFROM (\n" + queryString + "\n) " + OUTER_VIEW_NAME + "\n" + getModifier(topQuery)
+                : queryString;
+    }
+
+    /**
+     * Pushes down the boolean expressions (e.g. under unions, where they may be evaluated)
+     * and flattens the unions, before translating the tree into the SQL algebra
+     */
+    SQLTopQuery translate(IntermediateQuery query) throws UnsupportedTreeException, OntopReformulationException {
+        IntermediateQuery pushedDownQuery = pushDownExpressionOptimizer.optimize(query);
+        IQ iq = unionFlattener.optimize(iqConverter.convert(pushedDownQuery));
+        log.debug("Query tree prepared for SQL generation: \n{}", iq);
+
+        SQLTopQuery topQuery = translator.translate(iq);
+        log.debug("SQL algebra query: \n{}", topQuery);
+        return topQuery;
+    }
+
+    private String getModifier(SQLTopQuery topQuery) {
+        long limit = topQuery.getLimit();
+        long offset = topQuery.getOffset();
+
+        if (!topQuery.getOrderConditions().isEmpty())
+            return sqladapter.sqlOrderByAndSlice(topQuery.getOrderConditions(), OUTER_VIEW_NAME, limit, offset) + "\n";
+        else if (limit != -1 || offset != -1)
+            return sqladapter.sqlSlice(limit, offset) + "\n";
+        else
+            return "";
+    }
+}
@@ -67,6 +67,13 @@ public class LegacySQLGenerator implements NativeQueryGenerator {
                 .generateSourceQuery(query);
     }
 
+    @Override
+    public ExecutableQuery generateTemplateQuery(IntermediateQuery query)
+            throws OntopReformulationException {
+        return originalEngine.clone()
+                .generateTemplateQuery(query);
+    }
+
     @Override
     public ExecutableQuery generateEmptyQuery(ImmutableList<String> signatureContainer) {
         // Empty string query
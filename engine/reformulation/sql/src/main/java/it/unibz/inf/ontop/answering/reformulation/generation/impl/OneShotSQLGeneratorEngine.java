@@ -24,15 +24,16 @@ package it.unibz.inf.ontop.answering.reformulation.generation.impl;
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 import it.unibz.inf.ontop.answering.reformulation.IRIDictionary;
 import it.unibz.inf.ontop.answering.reformulation.generation.dialect.SQLAdapterFactory;
 import it.unibz.inf.ontop.answering.reformulation.generation.dialect.SQLDialectAdapter;
-import it.unibz.inf.ontop.answering.reformulation.generation.dialect.impl.DB2SQLDialectAdapter;
 import it.unibz.inf.ontop.answering.reformulation.generation.utils.COL_TYPE;
-import it.unibz.inf.ontop.answering.reformulation.generation.utils.XsdDatatypeConverter;
+import it.unibz.inf.ontop.answering.reformulation.impl.SQLColumnPlan;
 import it.unibz.inf.ontop.answering.reformulation.impl.SQLExecutableQuery;
+import it.unibz.inf.ontop.answering.reformulation.impl.SQLTemplateExecutableQuery;
 import it.unibz.inf.ontop.datalog.*;
 import it.unibz.inf.ontop.dbschema.*;
 import it.unibz.inf.ontop.exception.IncompatibleTermException;
@@ -58,7 +59,6 @@ import it.unibz.inf.ontop.utils.ImmutableCollectors;
 import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
 import org.slf4j.LoggerFactory;
 
-import javax.annotation.Nullable;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Types;
@@ -105,8 +105,7 @@ public class OneShotSQLGeneratorEngine {
 	private final boolean distinctResultSet;
 	private final boolean isIRISafeEncodingEnabled;
 
-	@Nullable
-	private final IRIDictionary uriRefIds;
+	private final SQLTermRenderer termRenderer;
 
 	private final ImmutableMap<ExpressionOperation, String> operations;
 
@@ -155,29 +154,18 @@ public class OneShotSQLGeneratorEngine {
 		this.optimizerFactory = optimizerFactory;
 		this.pullUpExpressionOptimizer = pullUpExpressionOptimizer;
 
-		String driverURI = settings.getJdbcDriver()
-				.orElseGet(() -> {
-					try {
-						return DriverManager.getDriver(settings.getJdbcUrl()).getClass().getCanonicalName();
-					}
-					catch (SQLException e) {
-						// TODO: find a better exception
-						throw new RuntimeException("Impossible to get the JDBC driver. Reason: " + e.getMessage());
-					}
-				});
-
 		if (!(metadata instanceof RDBMetadata)) {
 			throw new IllegalArgumentException("Not a DBMetadata!");
 		}
 
 		this.metadata = (RDBMetadata)metadata;
 		this.idFactory = metadata.getQuotedIDFactory();
-		this.sqladapter = SQLAdapterFactory.getSQLDialectAdapter(driverURI, this.metadata.getDbmsVersion(), settings);
+		this.sqladapter = createSQLDialectAdapter(this.metadata, settings);
 		this.operations = buildOperations(sqladapter);
 		this.distinctResultSet = settings.isDistinctPostProcessingEnabled();
 		this.iq2DatalogTranslator = iq2DatalogTranslator;
 		this.isIRISafeEncodingEnabled = settings.isIRISafeEncodingEnabled();
-		this.uriRefIds = iriDictionary;
+		this.termRenderer = new SQLTermRenderer(sqladapter, jdbcTypeMapper, termFactory, iriDictionary);
 		this.jdbcTypeMapper = jdbcTypeMapper;
 	}
 
@@ -186,7 +174,7 @@ public class OneShotSQLGeneratorEngine {
 	 */
 	private OneShotSQLGeneratorEngine(RDBMetadata metadata, SQLDialectAdapter sqlAdapter,
 									  boolean isIRISafeEncodingEnabled, boolean distinctResultSet,
-									  IRIDictionary uriRefIds, JdbcTypeMapper jdbcTypeMapper,
+									  SQLTermRenderer termRenderer, JdbcTypeMapper jdbcTypeMapper,
 									  ImmutableMap<ExpressionOperation, String> operations,
 									  IQ2DatalogTranslator iq2DatalogTranslator,
 									  TypeExtractor typeExtractor, Relation2Predicate relation2Predicate,
@@ -201,7 +189,7 @@ public class OneShotSQLGeneratorEngine {
 		this.operations = operations;
 		this.isIRISafeEncodingEnabled = isIRISafeEncodingEnabled;
 		this.distinctResultSet = distinctResultSet;
-		this.uriRefIds = uriRefIds;
+		this.termRenderer = termRenderer;
 		this.jdbcTypeMapper = jdbcTypeMapper;
 		this.iq2DatalogTranslator = iq2DatalogTranslator;
 		this.typeExtractor = typeExtractor;
@@ -218,7 +206,24 @@ public class OneShotSQLGeneratorEngine {
 		this.pullUpExpressionOptimizer = pullUpExpressionOptimizer;
 	}
 
-	private static ImmutableMap<ExpressionOperation, String> buildOperations(SQLDialectAdapter sqladapter) {
+	/**
+	 * The dialect is determined by the JDBC driver
+	 */
+	static SQLDialectAdapter createSQLDialectAdapter(RDBMetadata metadata, OntopReformulationSQLSettings settings) {
+		String driverURI = settings.getJdbcDriver()
+				.orElseGet(() -> {
+					try {
+						return DriverManager.getDriver(settings.getJdbcUrl()).getClass().getCanonicalName();
+					}
+					catch (SQLException e) {
+						// TODO: find a better exception
+						throw new RuntimeException("Impossible to get the JDBC driver. Reason: " + e.getMessage());
+					}
+				});
+		return SQLAdapterFactory.getSQLDialectAdapter(driverURI, metadata.getDbmsVersion(), settings);
+	}
+
+	static ImmutableMap<ExpressionOperation, String> buildOperations(SQLDialectAdapter sqladapter) {
 		ImmutableMap.Builder<ExpressionOperation, String> builder = new ImmutableMap.Builder<ExpressionOperation, String>()
 				.put(ExpressionOperation.ADD, "%s + %s")
 				.put(ExpressionOperation.SUBTRACT, "%s - %s")
@@ -271,7 +276,7 @@ public class OneShotSQLGeneratorEngine {
 	@Override
 	public OneShotSQLGeneratorEngine clone() {
 		return new OneShotSQLGeneratorEngine(metadata, sqladapter,
-				isIRISafeEncodingEnabled, distinctResultSet, uriRefIds, jdbcTypeMapper, operations, iq2DatalogTranslator,
+				isIRISafeEncodingEnabled, distinctResultSet, termRenderer, jdbcTypeMapper, operations, iq2DatalogTranslator,
 				typeExtractor, relation2Predicate, datalogNormalizer, datalogFactory,
                 typeFactory, termFactory, iqFactory, iqConverter, unionFlattener, pushDownExpressionOptimizer,
 				optimizerFactory, pullUpExpressionOptimizer);
@@ -288,6 +293,42 @@ public class OneShotSQLGeneratorEngine {
 	SQLExecutableQuery generateSourceQuery(IntermediateQuery intermediateQuery)
 			throws OntopReformulationException {
 
+		TopQuery topQuery = generateTopQuery(intermediateQuery);
+		String resultingQuery = topQuery.modifier
+				.map(m -> wrapWithModifier(topQuery.queryString, m))
+				.orElse(topQuery.queryString);
+		return new SQLExecutableQuery(resultingQuery, topQuery.signature, topQuery.columnPlan);
+	}
+
+	/**
+	 * Same as {@link #generateSourceQuery} but the placeholders of the query become JDBC parameters.
+	 *
+	 * As they are regular constants of the query, the conditions on them are applied to the base tables.
+	 */
+	SQLTemplateExecutableQuery generateTemplateQuery(IntermediateQuery intermediateQuery)
+			throws OntopReformulationException {
+
+		TopQuery topQuery = generateTopQuery(intermediateQuery);
+		String resultingQuery = topQuery.modifier
+				.map(m -> wrapWithModifier(topQuery.queryString, m))
+				.orElse(topQuery.queryString);
+		return SQLTemplateExecutableQuery.create(resultingQuery, topQuery.signature, topQuery.columnPlan);
+	}
+
+	private String wrapWithModifier(String queryString, String modifier) {
+		return "SELECT *\n" +
+				"FROM " + inBrackets("\n" + queryString + "\n") + " " + OUTER_VIEW_NAME + "\n" +
+				modifier;
+	}
+
+	/**
+	 * SQL query without its modifiers (if any)
+	 *
+	 * The type and lang columns are only projected when they are not constant.
+	 */
+	private TopQuery generateTopQuery(IntermediateQuery intermediateQuery)
+			throws OntopReformulationException {
+
 		IQ normalizedQuery = normalizeIQ(intermediateQuery);
 
 		DatalogProgram queryProgram = iq2DatalogTranslator.translate(normalizedQuery);
@@ -295,7 +336,7 @@ public class OneShotSQLGeneratorEngine {
 		for (CQIE cq : queryProgram.getRules()) {
 			datalogNormalizer.addMinimalEqualityToLeftOrNestedInnerJoin(cq);
 		}
-		log.debug("Program normalized for SQL translation:\n" + queryProgram);
+		log.debug("Program normalized for SQL translation:\n{}", queryProgram);
 
 		MutableQueryModifiers queryModifiers = queryProgram.getQueryModifiers();
 		isDistinct = queryModifiers.hasModifiers() && queryModifiers.isDistinct();
@@ -310,8 +351,8 @@ public class OneShotSQLGeneratorEngine {
 				.map(Variable::getName)
 				.collect(ImmutableCollectors.toList());
 
-		final String resultingQuery;
-		String queryString = generateQuery(signature, ruleIndex, predicatesInBottomUp, extensionalPredicates);
+		GeneratedQuery generatedQuery = generateQuery(signature, ruleIndex, predicatesInBottomUp, extensionalPredicates);
+		String queryString = generatedQuery.queryString;
 		if (queryModifiers.hasModifiers()) {
 			//List<Variable> groupby = queryProgram.getQueryModifiers().getGroupConditions();
 			// if (!groupby.isEmpty()) {
@@ -335,15 +376,11 @@ public class OneShotSQLGeneratorEngine {
 			else {
 				modifier = "";
 			}
-
-			resultingQuery = "SELECT *\n" +
-					"FROM " + inBrackets("\n" + queryString + "\n") + " " + OUTER_VIEW_NAME + "\n" +
-					modifier;
+			return new TopQuery(signature, queryString, Optional.of(modifier), generatedQuery.columnPlan);
 		}
 		else {
-			resultingQuery = queryString;
+			return new TopQuery(signature, queryString, Optional.empty(), generatedQuery.columnPlan);
 		}
-		return new SQLExecutableQuery(resultingQuery, signature);
 	}
 
 	private IQ normalizeIQ(IntermediateQuery intermediateQuery) {
@@ -352,13 +389,13 @@ public class OneShotSQLGeneratorEngine {
 		//   - there the context may be concrete enough for evaluating certain expressions
 		//   - useful for dealing with SPARQL EBVs for instance
 		IntermediateQuery pushedDownQuery = pushDownExpressionOptimizer.optimize(intermediateQuery);
-		log.debug("New query after pushing down the boolean expressions (temporary): \n" + pushedDownQuery);
+		log.debug("New query after pushing down the boolean expressions (temporary): \n{}", pushedDownQuery);
 
 		IQ flattenIQ = unionFlattener.optimize(iqConverter.convert(pushedDownQuery));
-		log.debug("New query after flattening the union: \n" + flattenIQ);
+		log.debug("New query after flattening the union: \n{}", flattenIQ);
 
 		IQTree treeAfterPullOut = optimizerFactory.createEETransformer(flattenIQ.getVariableGenerator()).transform(flattenIQ.getTree());
-		log.debug("Query tree after pulling out equalities: \n" + treeAfterPullOut);
+		log.debug("Query tree after pulling out equalities: \n{}", treeAfterPullOut);
 
 		// Pulling up is needed when filtering conditions appear above a data atom on the left
 		// (causes problems to the IQ2DatalogConverter)
@@ -366,7 +403,7 @@ public class OneShotSQLGeneratorEngine {
 			IntermediateQuery queryAfterPullUp = pullUpExpressionOptimizer.optimize(iqConverter.convert(
 					iqFactory.createIQ(flattenIQ.getProjectionAtom(), treeAfterPullOut),
 					intermediateQuery.getDBMetadata(), intermediateQuery.getExecutorRegistry()));
-			log.debug("New query after pulling up the boolean expressions: \n" + queryAfterPullUp);
+			log.debug("New query after pulling up the boolean expressions: \n{}", queryAfterPullUp);
 			return iqConverter.convert(queryAfterPullUp);
 
 		} catch (EmptyQueryException e) {
@@ -387,10 +424,10 @@ public class OneShotSQLGeneratorEngine {
 	 * @param extensionalPredicates are the predicates that are not defined by any rule
 	 * @return
 	 */
-	private String generateQuery(List<String> signature,
-								 Multimap<Predicate, CQIE> ruleIndex,
-								 List<Predicate> predicatesInBottomUp,
-								 List<Predicate> extensionalPredicates) throws OntopReformulationException {
+	private GeneratedQuery generateQuery(List<String> signature,
+										 Multimap<Predicate, CQIE> ruleIndex,
+										 List<Predicate> predicatesInBottomUp,
+										 List<Predicate> extensionalPredicates) throws OntopReformulationException {
 
 		final TypeExtractor.TypeResults typeResults;
 		try {
@@ -445,7 +482,7 @@ public class OneShotSQLGeneratorEngine {
 
 				// Creates the body of the subquery
 				String subQuery = generateQueryFromRules(ruleIndex.get(pred), s,
-						subQueryDefinitionsBuilder.build(), termTypeMap, false, viewCounter);
+						subQueryDefinitionsBuilder.build(), termTypeMap, false, viewCounter, false).queryString;
 
 				RelationID subQueryAlias = createAlias(pred.getName(), VIEW_ANS_SUFFIX, usedAliases);
 				usedAliases.add(subQueryAlias);
@@ -468,7 +505,7 @@ public class OneShotSQLGeneratorEngine {
 
 		return generateQueryFromRules(ruleIndex.get(topLevelPredicate), topSignature,
 				subQueryDefinitionsBuilder.build(), termTypeMap,
-				isDistinct && !distinctResultSet, viewCounter);
+				isDistinct && !distinctResultSet, viewCounter, true);
 	}
 
 
@@ -481,38 +518,30 @@ public class OneShotSQLGeneratorEngine {
 	 * @param termTypeMap
 	 * @param unionNoDuplicates
 	 * @param viewCounter
+	 * @param pruneStaticColumns the type and lang columns are only projected when they are not constant
 	 */
-	private String generateQueryFromRules(Collection<CQIE> cqs,
-										  ImmutableList<SignatureVariable> signature,
-										  ImmutableMap<Predicate, FromItem> subQueryDefinitions,
-										  ImmutableMap<CQIE, ImmutableList<Optional<TermType>>> termTypeMap,
-										  boolean unionNoDuplicates, AtomicInteger viewCounter) {
-
-		List<String> sqls = Lists.newArrayListWithExpectedSize(cqs.size());
+	private GeneratedQuery generateQueryFromRules(Collection<CQIE> cqs,
+												  ImmutableList<SignatureVariable> signature,
+												  ImmutableMap<Predicate, FromItem> subQueryDefinitions,
+												  ImmutableMap<CQIE, ImmutableList<Optional<TermType>>> termTypeMap,
+												  boolean unionNoDuplicates, AtomicInteger viewCounter,
+												  boolean pruneStaticColumns) {
+
+		List<ImmutableList<ProjectedColumns>> projections = Lists.newArrayListWithExpectedSize(cqs.size());
+		List<String> bodies = Lists.newArrayListWithExpectedSize(cqs.size());
 		for (CQIE cq : cqs) {
 		    /* Main loop, constructing the SPJ query for each CQ */
 			AliasIndex index = new AliasIndex(cq, subQueryDefinitions, viewCounter);
 
-			StringBuilder sb = new StringBuilder();
-			sb.append("SELECT ");
-			if (isDistinct && !distinctResultSet) {
-				sb.append("DISTINCT ");
-			}
-
-			List<String> select;
-			if (!signature.isEmpty()) {
-				List<Term> terms = cq.getHead().getTerms();
-				List<Optional<TermType>> termTypes = termTypeMap.get(cq);
-				select = Lists.newArrayListWithCapacity(signature.size());
-				for (int i = 0; i < signature.size(); i++) {
-					select.add(getSelectClauseFragment(signature.get(i), terms.get(i), termTypes.get(i), index));
-				}
+			List<Term> terms = cq.getHead().getTerms();
+			List<Optional<TermType>> termTypes = termTypeMap.get(cq);
+			ImmutableList.Builder<ProjectedColumns> projectionBuilder = ImmutableList.builder();
+			for (int i = 0; i < signature.size(); i++) {
+				projectionBuilder.add(getProjectedColumns(signature.get(i), terms.get(i), termTypes.get(i), index));
 			}
-			else {
-				select = ImmutableList.of("'true' AS x"); // Only for ASK
-			}
-			Joiner.on(", ").appendTo(sb, select);
+			projections.add(projectionBuilder.build());
 
+			StringBuilder sb = new StringBuilder();
 			List<Function> body = cq.getBody();
 			sb.append("\nFROM \n").append(INDENT);
 			List<String> from = getTableDefs(body, index, INDENT);
@@ -541,14 +570,68 @@ public class OneShotSQLGeneratorEngine {
 				Joiner.on(" AND ").appendTo(sb, getBooleanConditions(having, index));
 				sb.append(") ");
 			}
+			bodies.add(sb.toString());
+		}
+
+		SQLColumnPlan columnPlan = pruneStaticColumns
+				? createColumnPlan(signature.size(), projections)
+				: SQLColumnPlan.createDefault(signature.size());
+
+		List<String> sqls = Lists.newArrayListWithExpectedSize(cqs.size());
+		for (int j = 0; j < bodies.size(); j++) {
+			StringBuilder sb = new StringBuilder();
+			sb.append("SELECT ");
+			if (isDistinct && !distinctResultSet) {
+				sb.append("DISTINCT ");
+			}
+
+			List<String> select;
+			if (!signature.isEmpty()) {
+				ImmutableList<ProjectedColumns> projection = projections.get(j);
+				select = Lists.newArrayListWithCapacity(signature.size());
+				for (int i = 0; i < signature.size(); i++) {
+					select.add(getSelectClauseFragment(signature.get(i), projection.get(i),
+							columnPlan.getVariableColumns().get(i)));
+				}
+			}
+			else {
+				select = ImmutableList.of("'true' AS x"); // Only for ASK
+			}
+			Joiner.on(", ").appendTo(sb, select);
+			sb.append(bodies.get(j));
 
 			sqls.add(sb.toString());
 		}
-		return sqls.size() == 1
+		String queryString = sqls.size() == 1
 				? sqls.get(0)
 				: inBrackets(Joiner.on(")\n " + (unionNoDuplicates ? "UNION" : "UNION ALL") + "\n (").join(sqls));
+		return new GeneratedQuery(queryString, columnPlan);
 	}
 
+	/**
+	 * A type column is static when all the CQs project the same type code (a constant).
+	 * A lang column is static when none of the CQs projects a language tag.
+	 */
+	private SQLColumnPlan createColumnPlan(int variableCount, List<ImmutableList<ProjectedColumns>> projections) {
+		SQLColumnPlan.Builder builder = SQLColumnPlan.builder();
+		for (int i = 0; i < variableCount; i++) {
+			final int index = i;
+			ImmutableSet<String> typeColumns = projections.stream()
+					.map(p -> p.get(index).typeColumn)
+					.collect(ImmutableCollectors.toSet());
+			Optional<Integer> staticTypeCode = Optional.of(typeColumns)
+					.filter(s -> s.size() == 1)
+					.map(s -> s.iterator().next())
+					.filter(c -> TYPE_CODE_PATTERN.matcher(c).matches())
+					.map(Integer::valueOf);
+
+			boolean hasLangColumn = projections.stream()
+					.anyMatch(p -> !p.get(index).langColumn.equals(sqladapter.getNullForLang()));
+
+			builder.addVariable(staticTypeCode, hasLangColumn);
+		}
+		return builder.build();
+	}
 
 	private ImmutableList<Function> convert(List<Term> terms) {
 		return terms.stream().map(c -> (Function)c).collect(ImmutableCollectors.toList());
@@ -644,16 +727,7 @@ public class OneShotSQLGeneratorEngine {
 			return effectiveBooleanValue(atom.getTerm(0), index);
 		}
 		else if (functionSymbol == ExpressionOperation.REGEX) {
-			boolean caseinSensitive = false, multiLine = false, dotAllMode = false;
-			if (atom.getArity() == 3) {
-				String options = atom.getTerm(2).toString();
-				caseinSensitive = options.contains("i");
-				multiLine = options.contains("m");
-				dotAllMode = options.contains("s");
-			}
-			String column = getSQLString(atom.getTerm(0), index, false);
-			String pattern = getSQLString(atom.getTerm(1), index, false);
-			return sqladapter.sqlRegex(column, pattern, caseinSensitive, multiLine, dotAllMode);
+			return getRegex(atom, index);
 		}
 
 		throw new RuntimeException("The builtin function " + functionSymbol + " is not supported yet!");
@@ -884,53 +958,17 @@ public class OneShotSQLGeneratorEngine {
 	}
 
 	private String effectiveBooleanValue(Term term, AliasIndex index) {
-
-		String column = getSQLString(term, index, false);
-		// find data type of term and evaluate accordingly
-		switch (getDataType(term)) {
-			case Types.INTEGER:
-			case Types.BIGINT:
-			case Types.DOUBLE:
-			case Types.FLOAT:
-				return String.format("%s != 0", column);
-			case Types.VARCHAR:
-				return String.format("LENGTH(%s) > 0", column);
-			case Types.BOOLEAN:
-				return column;
-			default:
-				return "1";
-		}
+		int sqlType = (term instanceof Function)
+				? termRenderer.getSQLType(((Function) term).getFunctionSymbol())
+				: termRenderer.getSQLType((NonFunctionalTerm) term);
+		return termRenderer.getEffectiveBooleanValue(getSQLString(term, index, false), sqlType);
 	}
 
-	// return the SQL data type
-	private int getDataType(Term term) {
-
-		/*
-		 * TODO: refactor!
-		 */
-		if (term instanceof Function){
-			Function f = (Function) term;
-			Predicate p = f.getFunctionSymbol();
-			if (p instanceof DatatypePredicate) {
-
-				RDFDatatype type = ((DatatypePredicate) p).getReturnedType();
-				return jdbcTypeMapper.getSQLType(type);
-			}
-			// return varchar for unknown
-			return Types.VARCHAR;
-		}
-        else if (term instanceof Variable) {
-            throw new RuntimeException("Cannot return the SQL type for: " + term);
-        }
-		/*
-		 * Boolean constant
-		 */
-		else if (term.equals(termFactory.getBooleanConstant(false))
-				 || term.equals(termFactory.getBooleanConstant(true))) {
-			return Types.BOOLEAN;
-		}
-
-		return Types.VARCHAR;
+	private String getRegex(Function function, AliasIndex index) {
+		String column = getSQLString(function.getTerm(0), index, false);
+		String pattern = getSQLString(function.getTerm(1), index, false);
+		String options = (function.getArity() == 3) ? function.getTerm(2).toString() : "";
+		return termRenderer.getRegex(column, pattern, options);
 	}
 
 	private static final class SignatureVariable {
@@ -942,15 +980,69 @@ public class OneShotSQLGeneratorEngine {
 		}
 	}
 
+	/**
+	 * SQL query without its modifiers. The modifier is absent when the query has no modifiers at all.
+	 */
+	private static final class TopQuery {
+		private final ImmutableList<String> signature;
+		private final String queryString;
+		private final Optional<String> modifier;
+		private final SQLColumnPlan columnPlan;
+
+		TopQuery(ImmutableList<String> signature, String queryString, Optional<String> modifier,
+				 SQLColumnPlan columnPlan) {
+			this.signature = signature;
+			this.queryString = queryString;
+			this.modifier = modifier;
+			this.columnPlan = columnPlan;
+		}
+	}
+
+	private static final class GeneratedQuery {
+		private final String queryString;
+		private final SQLColumnPlan columnPlan;
+
+		GeneratedQuery(String queryString, SQLColumnPlan columnPlan) {
+			this.queryString = queryString;
+			this.columnPlan = columnPlan;
+		}
+	}
+
+	/**
+	 * SQL expressions of the type, lang and main columns of a projected term
+	 */
+	private static final class ProjectedColumns {
+		private final String typeColumn;
+		private final String langColumn;
+		private final String mainColumn;
+
+		ProjectedColumns(String typeColumn, String langColumn, String mainColumn) {
+			this.typeColumn = typeColumn;
+			this.langColumn = langColumn;
+			this.mainColumn = mainColumn;
+		}
+	}
+
 	/**
 	 * produces the select clause of the sql query for the given CQIE
 	 *
 	 * @return the sql select clause
 	 */
-	private String getSelectClauseFragment(SignatureVariable var,
-										   Term term,
-										   Optional<TermType> termType,
-										   AliasIndex index) {
+	private String getSelectClauseFragment(SignatureVariable var, ProjectedColumns columns,
+										   SQLColumnPlan.VariableColumns plan) {
+		StringBuilder sb = new StringBuilder().append("\n   ");
+		if (plan.getTypeColumnIndex().isPresent())
+			sb.append(columns.typeColumn).append(" AS ").append(var.columnAliases.get(0)).append(", ");
+		if (plan.getLangColumnIndex().isPresent())
+			sb.append(columns.langColumn).append(" AS ").append(var.columnAliases.get(1)).append(", ");
+		return sb.append(columns.mainColumn).append(" AS ").append(var.columnAliases.get(2))
+				.toString();
+	}
+
+	private ProjectedColumns getProjectedColumns(SignatureVariable var,
+												 Term term,
+												 Optional<TermType> termType,
+												 AliasIndex index) {
 		/*
 		 * Datatype for the main column (to which it is cast).
 		 * Beware, it may defer the RDF datatype (the one of the type column).
@@ -963,24 +1055,30 @@ public class OneShotSQLGeneratorEngine {
 		String langColumn = getLangColumnForSELECT(term, index, termType);
 		String mainColumn = getMainColumnForSELECT(term, index, var.castType);
 
-		return new StringBuffer().append("\n   ")
-				.append(typeColumn).append(" AS ").append(var.columnAliases.get(0)).append(", ")
-				.append(langColumn).append(" AS ").append(var.columnAliases.get(1)).append(", ")
-				.append(mainColumn).append(" AS ").append(var.columnAliases.get(2))
-				.toString();
+		return new ProjectedColumns(typeColumn, langColumn, mainColumn);
 	}
 
 	private ImmutableList<SignatureVariable> createSignature(List<String> names, ImmutableList<TermType> castTypes) {
+		ImmutableList<ImmutableList<String>> columnAliases = createColumnAliases(names);
+		ImmutableList.Builder<SignatureVariable> builder = ImmutableList.builder();
+		for (int i = 0; i < names.size(); i++) {
+			builder.add(new SignatureVariable(names.get(i), columnAliases.get(i), castTypes.get(i)));
+		}
+		return builder.build();
+	}
+
+	/**
+	 * For each name, the aliases of its type, lang and main columns
+	 */
+	private ImmutableList<ImmutableList<String>> createColumnAliases(List<String> names) {
 		/**
 		 * Set that contains all the variable names created on the top query.
 		 * It helps the dialect adapter to generate variable names according to its possible restrictions.
 		 * Currently, this is needed for the Oracle adapter (max. length of 30 characters).
 		 */
 		Set<String> columnAliases = new HashSet<>();
-		ImmutableList.Builder<SignatureVariable> builder = ImmutableList.builder();
-		for (int i = 0; i < names.size(); i++) {
-			String name = names.get(i);
-
+		ImmutableList.Builder<ImmutableList<String>> builder = ImmutableList.builder();
+		for (String name : names) {
 			// Creates name names that satisfy the restrictions of the SQL dialect.
 			String typeAlias = sqladapter.nameTopVariable(name, TYPE_COLUMN_SUFFIX, columnAliases);
 			columnAliases.add(typeAlias);
@@ -991,9 +1089,7 @@ public class OneShotSQLGeneratorEngine {
 			String mainAlias = sqladapter.nameTopVariable(name, MAIN_COLUMN_SUFFIX, columnAliases);
 			columnAliases.add(mainAlias);
 
-			builder.add(new SignatureVariable(name,
-					ImmutableList.of(typeAlias, langAlias, mainAlias),
-					castTypes.get(i)));
+			builder.add(ImmutableList.of(typeAlias, langAlias, mainAlias));
 		}
 		return builder.build();
 	}
@@ -1068,25 +1164,22 @@ public class OneShotSQLGeneratorEngine {
 	}
 
 
-	private static final Pattern pQuotes = Pattern.compile("[\"`\\['][^\\.]*[\"`\\]']");
+	private static final Pattern TYPE_CODE_PATTERN = Pattern.compile("-?\\d+");
 
 	private String getSQLStringForTemplateFunction(List<Term> terms, AliasIndex index) {
 
 		// The first argument determines the form of the result
 		Term term0 = terms.get(0);
-		if (term0 instanceof ValueConstant || term0 instanceof BNode) {
+		if (term0 instanceof ValueConstant && termRenderer.isPlaceholder((ValueConstant) term0)) {
+			// A placeholder for a complete IRI
+			return getSQLString(term0, index, false);
+		}
+		else if (term0 instanceof ValueConstant || term0 instanceof BNode) {
 			// An actual template: the first term is a string of the form
 			// http://.../.../ or empty "{}" with placeholders of the form {}
 			// The other terms are variables or constants that should replace
 			// the placeholders. We need to tokenize and form the CONCAT
-			String template = (term0 instanceof BNode)
-					? ((BNode) term0).getName()   // getValue should be removed from Constant
-					: ((ValueConstant) term0).getValue();
-			// strip the template of all quotation marks (dubious step)
-			while (pQuotes.matcher(template).matches()) {
-				template = template.substring(1, template.length() - 1);
-			}
-			String[] split = template.split("[{][}]");
+			String[] split = termRenderer.getTemplateFragments((Constant) term0);
 
 			List<String> vex = new ArrayList<>();
 			if (split.length > 0 && !split[0].isEmpty()) { // fragment before the first {}
@@ -1110,7 +1203,9 @@ public class OneShotSQLGeneratorEngine {
 			}
 
 			// if there is only one element there is nothing to concatenate
-			return (vex.size() == 1) ? vex.get(0) : getStringConcatenation(vex.toArray(new String[0]));
+			return (vex.size() == 1)
+					? vex.get(0)
+					: termRenderer.getStringConcatenation(vex.toArray(new String[0]), isDistinct || isOrderBy);
 		}
 		else {
 			// a concrete uri, a variable or a complex expression like in uri(CONCAT(x, "a"))
@@ -1119,24 +1214,6 @@ public class OneShotSQLGeneratorEngine {
 		}
 	}
 
-	// TODO: move to SQLAdapter
-	private String getStringConcatenation(String[] params) {
-		String toReturn = sqladapter.strConcat(params);
-		if (sqladapter instanceof DB2SQLDialectAdapter) {
-			/*
-			 * A work around to handle DB2 (>9.1) issue SQL0134N: Improper use
-			 * of a string column, host variable, constant, or function name.
-			 * http
-			 * ://publib.boulder.ibm.com/infocenter/db2luw/v9r5/index.jsp?topic
-			 * =%2Fcom.ibm.db2.luw.messages.sql.doc%2Fdoc%2Fmsql00134n.html
-			 */
-			if (isDistinct || isOrderBy) {
-				return sqladapter.sqlCast(toReturn, Types.VARCHAR);
-			}
-		}
-		return toReturn;
-	}
-
 	private boolean isStringColType(Term term, AliasIndex index) {
 		if (term instanceof Function) {
 			Function function = (Function) term;
@@ -1146,7 +1223,7 @@ public class OneShotSQLGeneratorEngine {
 				 * A URI function always returns a string, thus it is a string
 				 * column type.
 				 */
-				return !hasIRIDictionary();
+				return !termRenderer.hasIRIDictionary();
 			}
 			else {
 				if (functionSymbol.getArity() == 1) {
@@ -1211,24 +1288,10 @@ public class OneShotSQLGeneratorEngine {
 			return "";
 		}
 		if (term instanceof ValueConstant) {
-			ValueConstant ct = (ValueConstant) term;
-			if (hasIRIDictionary()) {
-				if (ct.getType().isA(XSD.STRING)) {
-					int id = getUriid(ct.getValue());
-					if (id >= 0)
-						//return jdbcutil.getSQLLexicalForm(String.valueOf(id));
-						return String.valueOf(id);
-				}
-			}
-			return getSQLLexicalForm(ct);
+			return termRenderer.getSQLString((ValueConstant) term);
 		}
 		else if (term instanceof IRIConstant) {
-			IRIConstant uc = (IRIConstant) term;
-			if (hasIRIDictionary()) {
-				int id = getUriid(uc.getValue());
-				return sqladapter.getSQLLexicalFormString(String.valueOf(id));
-			}
-			return sqladapter.getSQLLexicalFormString(uc.toString());
+			return termRenderer.getSQLString((IRIConstant) term);
 		}
 		else if (term instanceof Variable) {
 			Set<QualifiedAttributeID> columns = index.getColumns((Variable) term);
@@ -1282,16 +1345,7 @@ public class OneShotSQLGeneratorEngine {
 			return effectiveBooleanValue(function.getTerm(0), index);
 		}
 		if (functionSymbol == ExpressionOperation.REGEX) {
-			boolean caseinSensitive = false, multiLine = false, dotAllMode = false;
-			if (function.getArity() == 3) {
-				String options = function.getTerm(2).toString();
-				caseinSensitive = options.contains("i");
-				multiLine = options.contains("m");
-				dotAllMode = options.contains("s");
-			}
-			String column = getSQLString(function.getTerm(0), index, false);
-			String pattern = getSQLString(function.getTerm(1), index, false);
-			return sqladapter.sqlRegex(column, pattern, caseinSensitive, multiLine, dotAllMode);
+			return getRegex(function, index);
 		}
 		/*
 		 * TODO: make sure that SPARQL_LANG are eliminated earlier on
@@ -1351,66 +1405,6 @@ public class OneShotSQLGeneratorEngine {
 			String right = getSQLString(function.getTerm(1), index, false);
 			return sqladapter.strConcat(new String[]{left, right});
 		}
-		if (functionSymbol == ExpressionOperation.STRLEN) {
-			String literal = getSQLString(function.getTerm(0), index, false);
-			return sqladapter.strLength(literal);
-		}
-		if (functionSymbol == ExpressionOperation.YEAR) {
-			String literal = getSQLString(function.getTerm(0), index, false);
-			return sqladapter.dateYear(literal);
-		}
-		if (functionSymbol == ExpressionOperation.MINUTES) {
-			String literal = getSQLString(function.getTerm(0), index, false);
-			return sqladapter.dateMinutes(literal);
-		}
-		if (functionSymbol == ExpressionOperation.DAY) {
-			String literal = getSQLString(function.getTerm(0), index, false);
-			return sqladapter.dateDay(literal);
-		}
-		if (functionSymbol == ExpressionOperation.MONTH) {
-			String literal = getSQLString(function.getTerm(0), index, false);
-			return sqladapter.dateMonth(literal);
-		}
-		if (functionSymbol == ExpressionOperation.SECONDS) {
-			String literal = getSQLString(function.getTerm(0), index, false);
-			return sqladapter.dateSeconds(literal);
-		}
-		if (functionSymbol == ExpressionOperation.HOURS) {
-			String literal = getSQLString(function.getTerm(0), index, false);
-			return sqladapter.dateHours(literal);
-		}
-		if (functionSymbol == ExpressionOperation.TZ) {
-			String literal = getSQLString(function.getTerm(0), index, false);
-			return sqladapter.dateTZ(literal);
-		}
-		if (functionSymbol == ExpressionOperation.ENCODE_FOR_URI) {
-			String literal = getSQLString(function.getTerm(0), index, false);
-			return sqladapter.iriSafeEncode(literal);
-		}
-		if (functionSymbol == ExpressionOperation.UCASE) {
-			String literal = getSQLString(function.getTerm(0), index, false);
-			return sqladapter.strUcase(literal);
-		}
-		if (functionSymbol == ExpressionOperation.MD5) {
-			String literal = getSQLString(function.getTerm(0), index, false);
-			return sqladapter.MD5(literal);
-		}
-		if (functionSymbol == ExpressionOperation.SHA1) {
-			String literal = getSQLString(function.getTerm(0), index, false);
-			return sqladapter.SHA1(literal);
-		}
-		if (functionSymbol == ExpressionOperation.SHA256) {
-			String literal = getSQLString(function.getTerm(0), index, false);
-			return sqladapter.SHA256(literal);
-		}
-		if (functionSymbol == ExpressionOperation.SHA512) {
-			String literal = getSQLString(function.getTerm(0), index, false);
-			return sqladapter.SHA512(literal); //TODO FIX
-		}
-		if (functionSymbol == ExpressionOperation.LCASE) {
-			String literal = getSQLString(function.getTerm(0), index, false);
-			return sqladapter.strLcase(literal);
-		}
 		if (functionSymbol == ExpressionOperation.SUBSTR2) {
 			String string = getSQLString(function.getTerm(0), index, false);
 			String start = getSQLString(function.getTerm(1), index, false);
@@ -1450,85 +1444,14 @@ public class OneShotSQLGeneratorEngine {
 			//havingCond = true;
 			return "SUM(" + columnName + ")";
 		}
-
-		throw new RuntimeException("Unexpected function in the query: " + functionSymbol);
-	}
-
-	/***
-	 * Returns the valid SQL lexical form of rdf literals based on the current
-	 * database and the datatype specified in the function predicate.
-	 *
-	 * <p>
-	 * For example, if the function is xsd:boolean, and the current database is
-	 * H2, the SQL lexical form would be for "true" "TRUE" (or any combination
-	 * of lower and upper case) or "1" is always
-	 *
-	 * @param constant
-	 * @return
-	 */
-	private String getSQLLexicalForm(ValueConstant constant) {
-
-		if (constant.equals(termFactory.getNullConstant())) {
-			// TODO: we should not have to treat NULL as a special case!
-			// It is because this constant is currently of type COL_TYPE.STRING!
-			return "NULL";
-		}
-		switch (COL_TYPE.getColType(constant.getType().getIRI())) {
-			case BNODE:
-			case OBJECT:
-			case STRING:
-				return sqladapter.getSQLLexicalFormString(constant.getValue());
-			case BOOLEAN:
-				boolean v = XsdDatatypeConverter.parseXsdBoolean(constant.getValue());
-				return sqladapter.getSQLLexicalFormBoolean(v);
-			case DATETIME:
-				return sqladapter.getSQLLexicalFormDatetime(constant.getValue());
-			case DATETIME_STAMP:
-				return sqladapter.getSQLLexicalFormDatetimeStamp(constant.getValue());
-			case DECIMAL:
-			case DOUBLE:
-			case INTEGER:
-			case LONG:
-			case FLOAT:
-			case NON_POSITIVE_INTEGER:
-			case INT:
-			case UNSIGNED_INT:
-			case NEGATIVE_INTEGER:
-			case POSITIVE_INTEGER:
-			case NON_NEGATIVE_INTEGER:
-				return constant.getValue();
-			case NULL:
-				return "NULL";
-			default:
-				return "'" + constant.getValue() + "'";
+		if (functionSymbol instanceof ExpressionOperation && function.getArity() == 1) {
+			String literal = getSQLString(function.getTerm(0), index, false);
+			return termRenderer.getUnaryFunctionString((ExpressionOperation) functionSymbol, literal);
 		}
-	}
-
-
 
-	private boolean hasIRIDictionary() {
-		return uriRefIds != null;
-	}
-
-	/**
-	 * We look for the ID in the list of IDs, if it's not there, then we return -2,
-	 * which we know will never appear on the DB. This is correct because if a
-	 * constant appears in a query, and that constant was never inserted in the
-	 * DB, the query must be empty (that atom), by putting -2 as id, we will
-	 * enforce that.
-	 *
-	 * @param uri
-	 * @return
-	 */
-	private int getUriid(String uri) {
-		Integer id = uriRefIds.getId(uri);
-		if (id != null)
-			return id;
-		return -2;
+		throw new RuntimeException("Unexpected function in the query: " + functionSymbol);
 	}
 
-
-
 	private static final class FromItem {
 		private final RelationID alias;
 		private final String definition;
@@ -0,0 +1,507 @@
+package it.unibz.inf.ontop.answering.reformulation.generation.impl;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import it.unibz.inf.ontop.answering.reformulation.generation.algebra.*;
+import it.unibz.inf.ontop.answering.reformulation.generation.dialect.SQLDialectAdapter;
+import it.unibz.inf.ontop.answering.reformulation.generation.utils.COL_TYPE;
+import it.unibz.inf.ontop.dbschema.*;
+import it.unibz.inf.ontop.exception.MinorOntopInternalBugException;
+import it.unibz.inf.ontop.model.term.*;
+import it.unibz.inf.ontop.model.term.functionsymbol.*;
+import it.unibz.inf.ontop.model.type.*;
+import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+
+import java.sql.Types;
+import java.util.*;
+
+import static it.unibz.inf.ontop.answering.reformulation.generation.utils.COL_TYPE.*;
+
+/**
+ * Renders a query of the SQL algebra into a string, through the SQL dialect adapter.
+ *
+ * The rendering of the terms follows the one of {@link OneShotSQLGeneratorEngine}
+ * (the constants and the SQL functions are rendered by the shared {@link SQLTermRenderer}).
+ * The placeholders of the query parameters are rendered as markers.
+ *
+ * Thread-safe: the query-dependent state is kept in a {@link Serialization}.
+ */
+class SQLAlgebraSerializer {
+
+    private static final String INDENT = "    ";
+
+    private final SQLDialectAdapter sqladapter;
+    private final ImmutableMap<ExpressionOperation, String> operations;
+    private final SQLTermRenderer termRenderer;
+    private final JdbcTypeMapper jdbcTypeMapper;
+    private final TypeFactory typeFactory;
+    private final boolean isIRISafeEncodingEnabled;
+
+    SQLAlgebraSerializer(SQLDialectAdapter sqladapter, ImmutableMap<ExpressionOperation, String> operations,
+                         SQLTermRenderer termRenderer, JdbcTypeMapper jdbcTypeMapper, TypeFactory typeFactory,
+                         boolean isIRISafeEncodingEnabled) {
+        this.sqladapter = sqladapter;
+        this.operations = operations;
+        this.termRenderer = termRenderer;
+        this.jdbcTypeMapper = jdbcTypeMapper;
+        this.typeFactory = typeFactory;
+        this.isIRISafeEncodingEnabled = isIRISafeEncodingEnabled;
+    }
+
+    /**
+     * SQL query without its modifiers
+     */
+    String serialize(SQLTopQuery topQuery) {
+        return new Serialization(topQuery).serialize(topQuery.getQuery());
+    }
+
+    /**
+     * Query-dependent state
+     */
+    private class Serialization {
+
+        private final SQLColumns columns;
+        // Because of DB2
+        private final boolean castConcatenations;
+
+        Serialization(SQLTopQuery topQuery) {
+            this.columns = topQuery.getColumns();
+            this.castConcatenations = topQuery.isDistinct() || !topQuery.getOrderConditions().isEmpty();
+        }
+
+        String serialize(SQLQuery query) {
+            if (query instanceof SQLSelectQuery)
+                return serializeSelect((SQLSelectQuery) query);
+            else if (query instanceof SQLUnionQuery) {
+                SQLUnionQuery union = (SQLUnionQuery) query;
+                StringJoiner joiner = new StringJoiner(
+                        ")\n " + (union.isDistinct() ? "UNION" : "UNION ALL") + "\n (", "(", ")");
+                union.getSelectQueries().forEach(q -> joiner.add(serializeSelect(q)));
+                return joiner.toString();
+            }
+            throw new MinorOntopInternalBugException("Unexpected SQL query: " + query);
+        }
+
+        private String serializeSelect(SQLSelectQuery query) {
+            StringBuilder sb = new StringBuilder();
+            sb.append("SELECT ");
+            if (query.isDistinct())
+                sb.append("DISTINCT ");
+
+            if (query.getProjections().isEmpty())
+                sb.append("'true' AS x"); // Only for ASK
+            else
+                Joiner.on(", ").appendTo(sb, query.getProjections().stream()
+                        .map(this::getSelectClauseFragment)
+                        .iterator());
+
+            sb.append("\nFROM \n").append(INDENT);
+            if (query.getFromItems().isEmpty())
+                sb.append(getDummyTable());
+            else
+                Joiner.on(",\n" + INDENT).appendTo(sb, query.getFromItems().stream()
+                        .map(r -> serializeRelation(r, INDENT))
+                        .iterator());
+
+            if (!query.getWhereConditions().isEmpty()) {
+                sb.append("\nWHERE \n").append(INDENT);
+                Joiner.on(" AND\n" + INDENT).appendTo(sb, getConditions(query.getWhereConditions()));
+            }
+            return sb.toString();
+        }
+
+        private String serializeRelation(SQLRelation relation, String indent) {
+            if (relation instanceof SQLTable) {
+                SQLTable table = (SQLTable) relation;
+                RelationDefinition definition = table.getRelation();
+                return sqladapter.sqlTableName(
+                        definition instanceof DatabaseRelationDefinition
+                                ? definition.getID().getSQLRendering()
+                                : inBrackets(((ParserViewDefinition) definition).getStatement()),
+                        table.getAlias().getSQLRendering());
+            }
+            else if (relation instanceof SQLSubQuery) {
+                SQLSubQuery subQuery = (SQLSubQuery) relation;
+                return sqladapter.sqlTableName(inBrackets(serialize(subQuery.getQuery())),
+                        subQuery.getAlias().getSQLRendering());
+            }
+            else if (relation instanceof SQLDummyTable)
+                return getDummyTable();
+
+            else if (relation instanceof SQLJoin) {
+                StringJoiner joiner = new StringJoiner("\n" + indent + "CROSS JOIN\n" + INDENT + indent);
+                ((SQLJoin) relation).getOperands()
+                        .forEach(o -> joiner.add(serializeJoinOperand(o, INDENT + indent)));
+                return joiner.toString();
+            }
+            else if (relation instanceof SQLLeftJoin) {
+                SQLLeftJoin leftJoin = (SQLLeftJoin) relation;
+                // The left operand does not need brackets when it is a left join (left-associativity)
+                String left = leftJoin.getLeft() instanceof SQLLeftJoin
+                        ? serializeRelation(leftJoin.getLeft(), indent)
+                        : serializeJoinOperand(leftJoin.getLeft(), INDENT + indent);
+                String right = serializeJoinOperand(leftJoin.getRight(), INDENT + indent);
+
+                return left + "\n" + indent + "LEFT OUTER JOIN\n" + INDENT + indent + right + "\n"
+                        + indent + "ON " + Joiner.on(" AND\n" + indent).join(getConditions(leftJoin.getOnConditions()));
+            }
+            throw new MinorOntopInternalBugException("Unexpected SQL relation: " + relation);
+        }
+
+        private String serializeJoinOperand(SQLRelation relation, String indent) {
+            String operand = serializeRelation(relation, indent);
+            return (relation instanceof SQLJoin) || (relation instanceof SQLLeftJoin)
+                    ? inBrackets(operand)
+                    : operand;
+        }
+
+        private String getDummyTable() {
+            return inBrackets(sqladapter.getDummyTable()) + " tdummy";
+        }
+
+        private Set<String> getConditions(ImmutableList<ImmutableExpression> conditions) {
+            Set<String> strings = new LinkedHashSet<>();
+            for (ImmutableExpression condition : conditions) {
+                // flatten ANDs
+                for (ImmutableExpression conjunct : condition.flattenAND())
+                    strings.add(getSQLCondition(conjunct));
+            }
+            return strings;
+        }
+
+        /**
+         * Renders the type, lang and main columns of the projected term
+         */
+        private String getSelectClauseFragment(SQLProjection projection) {
+            ImmutableTerm term = projection.getTerm();
+            return "\n   " +
+                    getTypeColumnForSELECT(term, projection.getTermType()) + " AS " + projection.getTypeAlias() + ", " +
+                    getLangColumnForSELECT(term, projection.getTermType()) + " AS " + projection.getLangAlias() + ", " +
+                    getMainColumnForSELECT(term, projection.getCastType()) + " AS " + projection.getMainAlias();
+        }
+
+        private String getMainColumnForSELECT(ImmutableTerm term, TermType castDataType) {
+            String column = getSQLString(term, false);
+            if (column.charAt(0) != '\'' && column.charAt(0) != '(') {
+                // a column that still needs a CAST to VARCHAR
+                return sqladapter.sqlCast(column, jdbcTypeMapper.getSQLType(castDataType));
+            }
+            return column;
+        }
+
+        private String getLangColumnForSELECT(ImmutableTerm term, Optional<TermType> optionalTermType) {
+            if (term instanceof Variable) {
+                return getColumn((Variable) term).getLangColumn()
+                        .map(QualifiedAttributeID::getSQLRendering)
+                        .orElseGet(sqladapter::getNullForLang);
+            }
+            return optionalTermType
+                    .filter(t -> t instanceof RDFDatatype)
+                    .map(t -> (RDFDatatype) t)
+                    .flatMap(RDFDatatype::getLanguageTag)
+                    .map(tag -> sqladapter.getSQLLexicalFormString(tag.getFullString()))
+                    .orElseGet(sqladapter::getNullForLang);
+        }
+
+        private String getTypeColumnForSELECT(ImmutableTerm term, Optional<TermType> optionalTermType) {
+            if (term instanceof Variable) {
+                return getColumn((Variable) term).getTypeColumn()
+                        .map(QualifiedAttributeID::getSQLRendering)
+                        // By default, we assume that the variable is an IRI.
+                        .orElseGet(() -> String.valueOf(OBJECT.getQuestCode()));
+            }
+            COL_TYPE colType = optionalTermType
+                    .flatMap(this::extractColType)
+                    // By default, we apply the "most" general COL_TYPE
+                    .orElse(STRING);
+            return String.valueOf(colType.getQuestCode());
+        }
+
+        private Optional<COL_TYPE> extractColType(TermType termType) {
+            if (termType instanceof ObjectRDFType)
+                return Optional.of(((ObjectRDFType) termType).isBlankNode() ? BNODE : OBJECT);
+            else if (termType instanceof RDFDatatype)
+                return Optional.of(COL_TYPE.getColType(((RDFDatatype) termType).getIRI()));
+            else
+                return Optional.empty();
+        }
+
+        private SQLColumn getColumn(Variable columnVariable) {
+            return columns.get(columnVariable)
+                    .orElseThrow(() -> new MinorOntopInternalBugException("Unknown column variable: " + columnVariable));
+        }
+
+        /**
+         * Returns the SQL for an expression representing an SQL condition (booleans).
+         */
+        private String getSQLCondition(ImmutableExpression expression) {
+            OperationPredicate functionSymbol = expression.getFunctionSymbol();
+            String expressionFormat = operations.get(functionSymbol);
+            if (expressionFormat != null) {
+                if (functionSymbol.getArity() == 1) {
+                    // For unary boolean operators, e.g., NOT, IS NULL, IS NOT NULL.
+                    ImmutableTerm term = expression.getTerm(0);
+                    String arg = (functionSymbol == ExpressionOperation.NOT) && isDatatypeFunctionalTerm(term)
+                            ? effectiveBooleanValue(term)
+                            : getSQLString(term, false);
+                    return String.format(expressionFormat, arg);
+                }
+                else if (functionSymbol.getArity() == 2) {
+                    // For binary boolean operators, e.g., AND, OR, EQ, GT, LT, etc.
+                    String left = getSQLString(expression.getTerm(0), true);
+                    String right = getSQLString(expression.getTerm(1), true);
+                    return String.format(inBrackets(expressionFormat), left, right);
+                }
+            }
+            else if (functionSymbol == ExpressionOperation.IS_TRUE)
+                return effectiveBooleanValue(expression.getTerm(0));
+            else if (functionSymbol == ExpressionOperation.REGEX)
+                return getRegex(expression);
+
+            throw new RuntimeException("The builtin function " + functionSymbol + " is not supported yet!");
+        }
+
+        private String getRegex(ImmutableFunctionalTerm function) {
+            String column = getSQLString(function.getTerm(0), false);
+            String pattern = getSQLString(function.getTerm(1), false);
+            String options = (function.getArity() == 3) ? function.getTerm(2).toString() : "";
+            return termRenderer.getRegex(column, pattern, options);
+        }
+
+        private String effectiveBooleanValue(ImmutableTerm term) {
+            int sqlType = (term instanceof ImmutableFunctionalTerm)
+                    ? termRenderer.getSQLType(((ImmutableFunctionalTerm) term).getFunctionSymbol())
+                    : termRenderer.getSQLType((NonFunctionalTerm) term);
+            return termRenderer.getEffectiveBooleanValue(getSQLString(term, false), sqlType);
+        }
+
+        private boolean isDatatypeFunctionalTerm(ImmutableTerm term) {
+            return (term instanceof ImmutableFunctionalTerm)
+                    && (((ImmutableFunctionalTerm) term).getFunctionSymbol() instanceof DatatypePredicate);
+        }
+
+        private String getSQLStringForTemplateFunction(ImmutableList<? extends ImmutableTerm> terms) {
+            // The first argument determines the form of the result
+            ImmutableTerm term0 = terms.get(0);
+            if (term0 instanceof ValueConstant && termRenderer.isPlaceholder((ValueConstant) term0)) {
+                // A placeholder for a complete IRI
+                return getSQLString(term0, false);
+            }
+            else if (term0 instanceof ValueConstant || term0 instanceof BNode) {
+                // An actual template: the first term is a string of the form
+                // http://.../.../ or empty "{}" with placeholders of the form {}
+                String[] split = termRenderer.getTemplateFragments((Constant) term0);
+
+                List<String> vex = new ArrayList<>();
+                if (split.length > 0 && !split[0].isEmpty()) { // fragment before the first {}
+                    vex.add(sqladapter.getSQLLexicalFormString(split[0]));
+                }
+
+                for (int i = 1; i < terms.size(); i++) {
+                    ImmutableTerm term = terms.get(i);
+                    String arg = getSQLString(term, false);
+                    String cast = isStringColType(term)
+                            ? arg
+                            : sqladapter.sqlCast(arg, Types.VARCHAR);
+                    // empty placeholder: the correct uri is in the column of DB no need to replace
+                    vex.add((split.length > 0 && isIRISafeEncodingEnabled)
+                            ? sqladapter.iriSafeEncode(cast)
+                            : cast);
+                    if (i < split.length) { // fragment after the current {} (if it exists)
+                        vex.add(sqladapter.getSQLLexicalFormString(split[i]));
+                    }
+                }
+
+                // if there is only one element there is nothing to concatenate
+                return (vex.size() == 1)
+                        ? vex.get(0)
+                        : termRenderer.getStringConcatenation(vex.toArray(new String[0]), castConcatenations);
+            }
+            else {
+                // a concrete uri, a variable or a complex expression like in uri(CONCAT(x, "a"))
+                // use the first term as the result string and ignore other terms
+                return getSQLString(term0, false);
+            }
+        }
+
+        private boolean isStringColType(ImmutableTerm term) {
+            if (term instanceof ImmutableFunctionalTerm) {
+                ImmutableFunctionalTerm function = (ImmutableFunctionalTerm) term;
+                FunctionSymbol functionSymbol = function.getFunctionSymbol();
+                if (functionSymbol instanceof URITemplatePredicate) {
+                    // A URI function always returns a string, thus it is a string column type.
+                    return !termRenderer.hasIRIDictionary();
+                }
+                else if (functionSymbol.getArity() == 1) {
+                    if (functionSymbol.getName().equals("Count"))
+                        return false;
+                    return isStringColType(function.getTerm(0));
+                }
+            }
+            else if (term instanceof Variable) {
+                return getColumn((Variable) term).getAttribute()
+                        .map(a -> {
+                            switch (a.getType()) {
+                                case Types.VARCHAR:
+                                case Types.CHAR:
+                                case Types.LONGNVARCHAR:
+                                case Types.LONGVARCHAR:
+                                case Types.NVARCHAR:
+                                case Types.NCHAR:
+                                    return true;
+                                default:
+                                    return false;
+                            }
+                        })
+                        .orElse(false);
+            }
+            return false;
+        }
+
+        /**
+         * Generates the SQL string that forms or retrieves the given term: a constant, a column variable
+         * or a functional term.
+         */
+        private String getSQLString(ImmutableTerm term, boolean useBrackets) {
+            if (term instanceof ValueConstant)
+                return termRenderer.getSQLString((ValueConstant) term);
+
+            else if (term instanceof IRIConstant)
+                return termRenderer.getSQLString((IRIConstant) term);
+
+            else if (term instanceof Variable)
+                return getColumn((Variable) term).getID().getSQLRendering();
+
+            else if (!(term instanceof ImmutableFunctionalTerm))
+                throw new MinorOntopInternalBugException("Unexpected term in the query: " + term);
+
+            ImmutableFunctionalTerm function = (ImmutableFunctionalTerm) term;
+            FunctionSymbol functionSymbol = function.getFunctionSymbol();
+
+            if (functionSymbol instanceof DatatypePredicate) {
+                if (functionSymbol.getExpectedBaseType(0).isA(typeFactory.getUnsupportedDatatype())) {
+                    throw new RuntimeException("Unsupported type in the query: " + function);
+                }
+                // Only the first argument (lexical value) is used for SQL generation
+                // (the second one of rdf:langString is the language tag)
+                return getSQLString(function.getTerm(0), false);
+            }
+            if (functionSymbol instanceof URITemplatePredicate || functionSymbol instanceof BNodePredicate) {
+                // The atom must be of the form uri("...", x, y)
+                return getSQLStringForTemplateFunction(function.getTerms());
+            }
+            String expressionFormat = operations.get(functionSymbol);
+            if (expressionFormat != null) {
+                switch (function.getArity()) {
+                    case 0:
+                        return expressionFormat;
+                    case 1:
+                        // for unary functions, e.g., NOT, IS NULL, IS NOT NULL
+                        return String.format(expressionFormat, getSQLString(function.getTerm(0), true));
+                    case 2:
+                        // for binary functions, e.g., AND, OR, EQ, NEQ, GT etc.
+                        String left = getSQLString(function.getTerm(0), true);
+                        String right = getSQLString(function.getTerm(1), true);
+                        String result = String.format(expressionFormat, left, right);
+                        return useBrackets ? inBrackets(result) : result;
+                    default:
+                        throw new RuntimeException("Cannot translate boolean function: " + functionSymbol);
+                }
+            }
+            if (functionSymbol == ExpressionOperation.IS_TRUE)
+                return effectiveBooleanValue(function.getTerm(0));
+
+            if (functionSymbol == ExpressionOperation.REGEX)
+                return getRegex(function);
+
+            if (functionSymbol == ExpressionOperation.SPARQL_LANG) {
+                ImmutableTerm subTerm = function.getTerm(0);
+                if (subTerm instanceof Variable) {
+                    return getColumn((Variable) subTerm).getLangColumn()
+                            .map(QualifiedAttributeID::getSQLRendering)
+                            .orElseThrow(() -> new RuntimeException("Cannot find LANG column for " + subTerm));
+                }
+                String langString = Optional.of(subTerm)
+                        .filter(t -> t instanceof ImmutableFunctionalTerm)
+                        .map(t -> ((ImmutableFunctionalTerm) t).getFunctionSymbol())
+                        .filter(f -> f instanceof DatatypePredicate)
+                        .map(f -> ((DatatypePredicate) f).getReturnedType())
+                        .flatMap(RDFDatatype::getLanguageTag)
+                        .map(LanguageTag::getFullString)
+                        .orElse("");
+                return sqladapter.getSQLLexicalFormString(langString);
+            }
+            if (functionSymbol == ExpressionOperation.IF_ELSE_NULL) {
+                String condition = getSQLString(function.getTerm(0), false);
+                String value = getSQLString(function.getTerm(1), false);
+                return sqladapter.ifElseNull(condition, value);
+            }
+            if (functionSymbol == ExpressionOperation.QUEST_CAST) {
+                String columnName = getSQLString(function.getTerm(0), false);
+                String datatype = ((Constant) function.getTerm(1)).getValue();
+                int sqlDatatype = datatype.equals(XMLSchema.STRING.stringValue())
+                        ? Types.VARCHAR
+                        : Types.LONGVARCHAR;
+                return isStringColType(function) ? columnName : sqladapter.sqlCast(columnName, sqlDatatype);
+            }
+            if (functionSymbol == ExpressionOperation.SPARQL_STR) {
+                String columnName = getSQLString(function.getTerm(0), false);
+                return isStringColType(function) ? columnName : sqladapter.sqlCast(columnName, Types.VARCHAR);
+            }
+            if (functionSymbol == ExpressionOperation.REPLACE) {
+                String orig = getSQLString(function.getTerm(0), false);
+                String out_str = getSQLString(function.getTerm(1), false);
+                String in_str = getSQLString(function.getTerm(2), false);
+                // TODO: handle flags
+                return sqladapter.strReplace(orig, out_str, in_str);
+            }
+            if (functionSymbol == ExpressionOperation.CONCAT) {
+                String left = getSQLString(function.getTerm(0), false);
+                String right = getSQLString(function.getTerm(1), false);
+                return sqladapter.strConcat(new String[]{left, right});
+            }
+            if (functionSymbol == ExpressionOperation.SUBSTR2) {
+                String string = getSQLString(function.getTerm(0), false);
+                String start = getSQLString(function.getTerm(1), false);
+                return sqladapter.strSubstr(string, start);
+            }
+            if (functionSymbol == ExpressionOperation.SUBSTR3) {
+                String string = getSQLString(function.getTerm(0), false);
+                String start = getSQLString(function.getTerm(1), false);
+                String end = getSQLString(function.getTerm(2), false);
+                return sqladapter.strSubstr(string, start, end);
+            }
+            if (functionSymbol == ExpressionOperation.STRBEFORE) {
+                String string = getSQLString(function.getTerm(0), false);
+                String before = getSQLString(function.getTerm(1), false);
+                return sqladapter.strBefore(string, before);
+            }
+            if (functionSymbol == ExpressionOperation.STRAFTER) {
+                String string = getSQLString(function.getTerm(0), false);
+                String after = getSQLString(function.getTerm(1), false);
+                return sqladapter.strAfter(string, after);
+            }
+            if (functionSymbol == ExpressionOperation.COUNT) {
+                if (function.getTerm(0).toString().equals("*")) {
+                    return "COUNT(*)";
+                }
+                return "COUNT(" + getSQLString(function.getTerm(0), false) + ")";
+            }
+            if (functionSymbol == ExpressionOperation.AVG)
+                return "AVG(" + getSQLString(function.getTerm(0), false) + ")";
+            if (functionSymbol == ExpressionOperation.SUM)
+                return "SUM(" + getSQLString(function.getTerm(0), false) + ")";
+
+            if (functionSymbol instanceof ExpressionOperation && function.getArity() == 1)
+                return termRenderer.getUnaryFunctionString((ExpressionOperation) functionSymbol,
+                        getSQLString(function.getTerm(0), false));
+
+            throw new RuntimeException("Unexpected function in the query: " + functionSymbol);
+        }
+    }
+
+    private static String inBrackets(String s) {
+        return "(" + s + ")";
+    }
+}
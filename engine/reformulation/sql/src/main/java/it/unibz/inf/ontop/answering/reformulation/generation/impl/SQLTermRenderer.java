@@ -0,0 +1,257 @@
+package it.unibz.inf.ontop.answering.reformulation.generation.impl;
+
+import it.unibz.inf.ontop.answering.reformulation.IRIDictionary;
+import it.unibz.inf.ontop.answering.reformulation.generation.QueryParameterPlaceholders;
+import it.unibz.inf.ontop.answering.reformulation.generation.dialect.SQLDialectAdapter;
+import it.unibz.inf.ontop.answering.reformulation.generation.dialect.impl.DB2SQLDialectAdapter;
+import it.unibz.inf.ontop.answering.reformulation.generation.utils.COL_TYPE;
+import it.unibz.inf.ontop.answering.reformulation.generation.utils.XsdDatatypeConverter;
+import it.unibz.inf.ontop.answering.reformulation.impl.SQLTemplateExecutableQuery;
+import it.unibz.inf.ontop.dbschema.JdbcTypeMapper;
+import it.unibz.inf.ontop.model.term.*;
+import it.unibz.inf.ontop.model.term.functionsymbol.DatatypePredicate;
+import it.unibz.inf.ontop.model.term.functionsymbol.ExpressionOperation;
+import it.unibz.inf.ontop.model.term.functionsymbol.Predicate;
+import it.unibz.inf.ontop.model.vocabulary.XSD;
+
+import javax.annotation.Nullable;
+import java.sql.Types;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Rendering of the constants and of the SQL functions shared by the SQL generators
+ * ({@link OneShotSQLGeneratorEngine} over Datalog terms and {@link SQLAlgebraSerializer} over immutable terms).
+ *
+ * The placeholders of the query parameters are rendered as markers (see {@link SQLTemplateExecutableQuery}).
+ *
+ * Stateless, thus thread-safe.
+ */
+class SQLTermRenderer {
+
+    private static final Pattern pQuotes = Pattern.compile("[\"`\\['][^\\.]*[\"`\\]']");
+
+    private final SQLDialectAdapter sqladapter;
+    private final JdbcTypeMapper jdbcTypeMapper;
+    private final TermFactory termFactory;
+
+    @Nullable
+    private final IRIDictionary uriRefIds;
+
+    SQLTermRenderer(SQLDialectAdapter sqladapter, JdbcTypeMapper jdbcTypeMapper, TermFactory termFactory,
+                    @Nullable IRIDictionary uriRefIds) {
+        this.sqladapter = sqladapter;
+        this.jdbcTypeMapper = jdbcTypeMapper;
+        this.termFactory = termFactory;
+        this.uriRefIds = uriRefIds;
+    }
+
+    boolean hasIRIDictionary() {
+        return uriRefIds != null;
+    }
+
+    boolean isPlaceholder(Constant constant) {
+        return (constant instanceof ValueConstant)
+                && QueryParameterPlaceholders.getIndex((ValueConstant) constant).isPresent();
+    }
+
+    /**
+     * With an IRI dictionary, the strings that are known IRIs are replaced by their IDs
+     */
+    String getSQLString(ValueConstant constant) {
+        if (hasIRIDictionary() && !isPlaceholder(constant) && constant.getType().isA(XSD.STRING)) {
+            int id = getUriid(constant.getValue());
+            if (id >= 0)
+                return String.valueOf(id);
+        }
+        return getSQLLexicalForm(constant);
+    }
+
+    String getSQLString(IRIConstant constant) {
+        return hasIRIDictionary()
+                ? sqladapter.getSQLLexicalFormString(String.valueOf(getUriid(constant.getValue())))
+                : sqladapter.getSQLLexicalFormString(constant.toString());
+    }
+
+    /***
+     * Returns the valid SQL lexical form of rdf literals based on the current
+     * database and the datatype specified in the function predicate.
+     *
+     * <p>
+     * For example, if the function is xsd:boolean, and the current database is
+     * H2, the SQL lexical form would be for "true" "TRUE" (or any combination
+     * of lower and upper case) or "1" is always
+     */
+    String getSQLLexicalForm(ValueConstant constant) {
+
+        Optional<Integer> placeholderIndex = QueryParameterPlaceholders.getIndex(constant);
+        if (placeholderIndex.isPresent())
+            return SQLTemplateExecutableQuery.getMarker(placeholderIndex.get());
+
+        if (constant.equals(termFactory.getNullConstant())) {
+            // TODO: we should not have to treat NULL as a special case!
+            // It is because this constant is currently of type COL_TYPE.STRING!
+            return "NULL";
+        }
+        switch (COL_TYPE.getColType(constant.getType().getIRI())) {
+            case BNODE:
+            case OBJECT:
+            case STRING:
+                return sqladapter.getSQLLexicalFormString(constant.getValue());
+            case BOOLEAN:
+                boolean v = XsdDatatypeConverter.parseXsdBoolean(constant.getValue());
+                return sqladapter.getSQLLexicalFormBoolean(v);
+            case DATETIME:
+                return sqladapter.getSQLLexicalFormDatetime(constant.getValue());
+            case DATETIME_STAMP:
+                return sqladapter.getSQLLexicalFormDatetimeStamp(constant.getValue());
+            case DECIMAL:
+            case DOUBLE:
+            case INTEGER:
+            case LONG:
+            case FLOAT:
+            case NON_POSITIVE_INTEGER:
+            case INT:
+            case UNSIGNED_INT:
+            case NEGATIVE_INTEGER:
+            case POSITIVE_INTEGER:
+            case NON_NEGATIVE_INTEGER:
+                return constant.getValue();
+            case NULL:
+                return "NULL";
+            default:
+                return "'" + constant.getValue() + "'";
+        }
+    }
+
+    /**
+     * The IRI dictionary returns -2 for the unknown IRIs, which never appears in the DB:
+     * a query with such a constant has no answer.
+     */
+    private int getUriid(String uri) {
+        return uriRefIds.getId(uri);
+    }
+
+    /**
+     * Fragments of an IRI or blank node template (of the form http://.../{}/... or "{}"),
+     * around its placeholders {}
+     */
+    String[] getTemplateFragments(Constant template) {
+        String templateString = (template instanceof BNode)
+                ? ((BNode) template).getName()   // getValue should be removed from Constant
+                : template.getValue();
+        // strip the template of all quotation marks (dubious step)
+        while (pQuotes.matcher(templateString).matches()) {
+            templateString = templateString.substring(1, templateString.length() - 1);
+        }
+        return templateString.split("[{][}]");
+    }
+
+    /**
+     * castConcatenation: when the query is DISTINCT or has an ORDER BY
+     */
+    String getStringConcatenation(String[] params, boolean castConcatenation) {
+        String toReturn = sqladapter.strConcat(params);
+        if ((sqladapter instanceof DB2SQLDialectAdapter) && castConcatenation) {
+            /*
+             * A work around to handle DB2 (>9.1) issue SQL0134N: Improper use
+             * of a string column, host variable, constant, or function name.
+             * http
+             * ://publib.boulder.ibm.com/infocenter/db2luw/v9r5/index.jsp?topic
+             * =%2Fcom.ibm.db2.luw.messages.sql.doc%2Fdoc%2Fmsql00134n.html
+             */
+            return sqladapter.sqlCast(toReturn, Types.VARCHAR);
+        }
+        return toReturn;
+    }
+
+    /**
+     * options: the flags of the REGEX function (empty when absent)
+     */
+    String getRegex(String column, String pattern, String options) {
+        boolean caseinSensitive = options.contains("i");
+        boolean multiLine = options.contains("m");
+        boolean dotAllMode = options.contains("s");
+        return sqladapter.sqlRegex(column, pattern, caseinSensitive, multiLine, dotAllMode);
+    }
+
+    /**
+     * sqlType: see {@link #getSQLType(Predicate)} and {@link #getSQLType(NonFunctionalTerm)}
+     */
+    String getEffectiveBooleanValue(String column, int sqlType) {
+        switch (sqlType) {
+            case Types.INTEGER:
+            case Types.BIGINT:
+            case Types.DOUBLE:
+            case Types.FLOAT:
+                return String.format("%s != 0", column);
+            case Types.VARCHAR:
+                return String.format("LENGTH(%s) > 0", column);
+            case Types.BOOLEAN:
+                return column;
+            default:
+                return "1";
+        }
+    }
+
+    /**
+     * SQL type of a functional term
+     */
+    int getSQLType(Predicate functionSymbol) {
+        if (functionSymbol instanceof DatatypePredicate)
+            return jdbcTypeMapper.getSQLType(((DatatypePredicate) functionSymbol).getReturnedType());
+        // return varchar for unknown
+        return Types.VARCHAR;
+    }
+
+    int getSQLType(NonFunctionalTerm term) {
+        if (term instanceof Variable)
+            throw new RuntimeException("Cannot return the SQL type for: " + term);
+        // Boolean constant
+        else if (term.equals(termFactory.getBooleanConstant(false))
+                || term.equals(termFactory.getBooleanConstant(true)))
+            return Types.BOOLEAN;
+
+        return Types.VARCHAR;
+    }
+
+    /**
+     * Unary SQL functions (their argument is already rendered)
+     */
+    String getUnaryFunctionString(ExpressionOperation operation, String literal) {
+        switch (operation) {
+            case STRLEN:
+                return sqladapter.strLength(literal);
+            case YEAR:
+                return sqladapter.dateYear(literal);
+            case MINUTES:
+                return sqladapter.dateMinutes(literal);
+            case DAY:
+                return sqladapter.dateDay(literal);
+            case MONTH:
+                return sqladapter.dateMonth(literal);
+            case SECONDS:
+                return sqladapter.dateSeconds(literal);
+            case HOURS:
+                return sqladapter.dateHours(literal);
+            case TZ:
+                return sqladapter.dateTZ(literal);
+            case ENCODE_FOR_URI:
+                return sqladapter.iriSafeEncode(literal);
+            case UCASE:
+                return sqladapter.strUcase(literal);
+            case LCASE:
+                return sqladapter.strLcase(literal);
+            case MD5:
+                return sqladapter.MD5(literal);
+            case SHA1:
+                return sqladapter.SHA1(literal);
+            case SHA256:
+                return sqladapter.SHA256(literal);
+            case SHA512:
+                return sqladapter.SHA512(literal);
+            default:
+                throw new RuntimeException("Unexpected function in the query: " + operation);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package it.unibz.inf.ontop.answering.reformulation.impl;
+
+import com.google.common.collect.ImmutableList;
+import it.unibz.inf.ontop.utils.ImmutableCollectors;
+
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+/**
+ * Columns of the SQL result set, for each projected variable (in the order of the signature).
+ *
+ * By default, each variable has a type, a lang and a main column (in this order).
+ * The type and lang columns are not projected when they are constant
+ * (i.e. statically known at reformulation time).
+ *
+ * Immutable.
+ */
+public class SQLColumnPlan {
+
+    private final ImmutableList<VariableColumns> variableColumns;
+    private final int columnCount;
+
+    private SQLColumnPlan(ImmutableList<VariableColumns> variableColumns, int columnCount) {
+        this.variableColumns = variableColumns;
+        this.columnCount = columnCount;
+    }
+
+    /**
+     * Type, lang and main columns for each variable
+     */
+    public static SQLColumnPlan createDefault(int variableCount) {
+        return new SQLColumnPlan(
+                IntStream.range(0, variableCount)
+                        .mapToObj(i -> new VariableColumns(3 * i + 3, Optional.of(3 * i + 1), -1, Optional.of(3 * i + 2)))
+                        .collect(ImmutableCollectors.toList()),
+                3 * variableCount);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public ImmutableList<VariableColumns> getVariableColumns() {
+        return variableColumns;
+    }
+
+    /**
+     * Total number of columns in the result set
+     */
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return (o instanceof SQLColumnPlan)
+                && variableColumns.equals(((SQLColumnPlan) o).variableColumns);
+    }
+
+    @Override
+    public int hashCode() {
+        return variableColumns.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "SQLColumnPlan" + variableColumns;
+    }
+
+
+    /**
+     * Column indexes are 1-based (as in JDBC).
+     */
+    public static class VariableColumns {
+        private final int mainColumnIndex;
+        private final Optional<Integer> typeColumnIndex;
+        private final int staticTypeCode;
+        private final Optional<Integer> langColumnIndex;
+
+        private VariableColumns(int mainColumnIndex, Optional<Integer> typeColumnIndex, int staticTypeCode,
+                                Optional<Integer> langColumnIndex) {
+            this.mainColumnIndex = mainColumnIndex;
+            this.typeColumnIndex = typeColumnIndex;
+            this.staticTypeCode = staticTypeCode;
+            this.langColumnIndex = langColumnIndex;
+        }
+
+        public int getMainColumnIndex() {
+            return mainColumnIndex;
+        }
+
+        /**
+         * Empty when the type is static
+         */
+        public Optional<Integer> getTypeColumnIndex() {
+            return typeColumnIndex;
+        }
+
+        /**
+         * Type code (see COL_TYPE), when not given by a column
+         */
+        public Optional<Integer> getStaticTypeCode() {
+            return typeColumnIndex.isPresent()
+                    ? Optional.empty()
+                    : Optional.of(staticTypeCode);
+        }
+
+        /**
+         * Empty when the variable never has a language tag
+         */
+        public Optional<Integer> getLangColumnIndex() {
+            return langColumnIndex;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof VariableColumns))
+                return false;
+            VariableColumns other = (VariableColumns) o;
+            return mainColumnIndex == other.mainColumnIndex
+                    && typeColumnIndex.equals(other.typeColumnIndex)
+                    && getStaticTypeCode().equals(other.getStaticTypeCode())
+                    && langColumnIndex.equals(other.langColumnIndex);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * mainColumnIndex + typeColumnIndex.hashCode() + langColumnIndex.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return "(type: " + typeColumnIndex.map(i -> "column " + i).orElseGet(() -> "static " + staticTypeCode)
+                    + ", lang: " + langColumnIndex.map(i -> "column " + i).orElse("none")
+                    + ", main: column " + mainColumnIndex + ")";
+        }
+    }
+
+
+    public static class Builder {
+        private final ImmutableList.Builder<VariableColumns> listBuilder = ImmutableList.builder();
+        private int columnCount = 0;
+
+        private Builder() {
+        }
+
+        /**
+         * Adds the columns of the next variable: [type] [lang] main.
+         *
+         * staticTypeCode: when present, no type column is projected
+         */
+        public Builder addVariable(Optional<Integer> staticTypeCode, boolean hasLangColumn) {
+            Optional<Integer> typeColumnIndex = staticTypeCode.isPresent()
+                    ? Optional.empty()
+                    : Optional.of(++columnCount);
+            Optional<Integer> langColumnIndex = hasLangColumn
+                    ? Optional.of(++columnCount)
+                    : Optional.empty();
+            listBuilder.add(new VariableColumns(++columnCount, typeColumnIndex, staticTypeCode.orElse(-1),
+                    langColumnIndex));
+            return this;
+        }
+
+        public SQLColumnPlan build() {
+            return new SQLColumnPlan(listBuilder.build(), columnCount);
+        }
+    }
+}
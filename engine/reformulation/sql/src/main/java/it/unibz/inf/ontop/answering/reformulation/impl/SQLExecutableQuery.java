@@ -6,22 +6,50 @@ import it.unibz.inf.ontop.answering.reformulation.ExecutableQuery;
 /**
  * SQL-query string, signature and optional construct template
  * (for SPARQL CONSTRUCT queries).
+ *
+ * The SQL query may contain JDBC parameters ("?"), whose values are then given in order.
+ *
+ * The column plan gives the columns of the result set for each variable of the signature.
  */
 public class SQLExecutableQuery implements ExecutableQuery {
 
     private final String sqlQuery;
     private final ImmutableList<String> signature;
+    private final ImmutableList<Object> parameterValues;
+    private final SQLColumnPlan columnPlan;
 
+    /**
+     * Type, lang and main columns for each variable
+     */
     public SQLExecutableQuery(String sqlQuery, ImmutableList<String> signature) {
+        this(sqlQuery, signature, ImmutableList.of());
+    }
+
+    public SQLExecutableQuery(String sqlQuery, ImmutableList<String> signature, SQLColumnPlan columnPlan) {
+        this(sqlQuery, signature, ImmutableList.of(), columnPlan);
+    }
+
+    /**
+     * Type, lang and main columns for each variable
+     */
+    public SQLExecutableQuery(String sqlQuery, ImmutableList<String> signature,
+                              ImmutableList<Object> parameterValues) {
+        this(sqlQuery, signature, parameterValues, SQLColumnPlan.createDefault(signature.size()));
+    }
+
+    public SQLExecutableQuery(String sqlQuery, ImmutableList<String> signature,
+                              ImmutableList<Object> parameterValues, SQLColumnPlan columnPlan) {
         this.sqlQuery = sqlQuery;
         this.signature = signature;
+        this.parameterValues = parameterValues;
+        this.columnPlan = columnPlan;
     }
+
     /**
      * Empty SQL
      */
     public SQLExecutableQuery(ImmutableList<String> signature) {
-        this.sqlQuery = "";
-        this.signature = signature;
+        this("", signature);
     }
 
     @Override
@@ -33,6 +61,17 @@ public class SQLExecutableQuery implements ExecutableQuery {
         return sqlQuery;
     }
 
+    /**
+     * Values of the JDBC parameters (empty for non-parameterized queries)
+     */
+    public ImmutableList<Object> getParameterValues() {
+        return parameterValues;
+    }
+
+    public SQLColumnPlan getColumnPlan() {
+        return columnPlan;
+    }
+
     @Override
     public String toString() {
         return sqlQuery;
@@ -0,0 +1,178 @@
+package it.unibz.inf.ontop.answering.reformulation.impl;
+
+import com.google.common.collect.ImmutableList;
+import it.unibz.inf.ontop.answering.reformulation.ExecutableQuery;
+import it.unibz.inf.ontop.answering.reformulation.ExecutableQueryTemplate;
+import it.unibz.inf.ontop.answering.reformulation.generation.utils.COL_TYPE;
+import it.unibz.inf.ontop.answering.reformulation.generation.utils.XsdDatatypeConverter;
+import it.unibz.inf.ontop.exception.MinorOntopInternalBugException;
+import it.unibz.inf.ontop.exception.OntopInvalidInputQueryException;
+import it.unibz.inf.ontop.model.term.ValueConstant;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * SQL query template: SQL query containing JDBC parameters ("?") in place of the placeholders
+ * of the reformulated query.
+ *
+ * The placeholders are rendered as markers by the SQL generator (see {@link #getMarker}),
+ * which are replaced by JDBC parameters when the template is created.
+ * A placeholder may give several JDBC parameters (e.g. when it appears in several branches of a union).
+ *
+ * The values are typed according to their datatype (e.g. an xsd:integer is bound as a number),
+ * so that they can be compared to the columns of the base tables without casting them.
+ */
+public class SQLTemplateExecutableQuery implements ExecutableQueryTemplate {
+
+    private static final String MARKER_DELIMITER = "\u0000";
+    private static final Pattern MARKER_PATTERN = Pattern.compile("\u0000(\\d+)\u0000");
+
+    private final String sqlQuery;
+    // Index of the placeholder of each JDBC parameter
+    private final ImmutableList<Integer> placeholderIndexes;
+    private final ImmutableList<String> signature;
+    private final SQLColumnPlan columnPlan;
+
+    private SQLTemplateExecutableQuery(String sqlQuery, ImmutableList<Integer> placeholderIndexes,
+                                       ImmutableList<String> signature, SQLColumnPlan columnPlan) {
+        this.sqlQuery = sqlQuery;
+        this.placeholderIndexes = placeholderIndexes;
+        this.signature = signature;
+        this.columnPlan = columnPlan;
+    }
+
+    /**
+     * The SQL query contains the markers of the placeholders
+     */
+    public static SQLTemplateExecutableQuery create(String sqlQueryWithMarkers, ImmutableList<String> signature,
+                                                    SQLColumnPlan columnPlan) {
+        StringBuffer sb = new StringBuffer();
+        ImmutableList.Builder<Integer> indexBuilder = ImmutableList.builder();
+        Matcher matcher = MARKER_PATTERN.matcher(sqlQueryWithMarkers);
+        while (matcher.find()) {
+            indexBuilder.add(Integer.valueOf(matcher.group(1)));
+            matcher.appendReplacement(sb, "?");
+        }
+        matcher.appendTail(sb);
+
+        String sqlQuery = sb.toString();
+        if (sqlQuery.indexOf('\u0000') >= 0)
+            throw new MinorOntopInternalBugException("A placeholder has not been rendered as a JDBC parameter in "
+                    + sqlQuery);
+
+        return new SQLTemplateExecutableQuery(sqlQuery, indexBuilder.build(), signature, columnPlan);
+    }
+
+    /**
+     * Rendering of a placeholder in the generated SQL query
+     */
+    public static String getMarker(int placeholderIndex) {
+        return MARKER_DELIMITER + placeholderIndex + MARKER_DELIMITER;
+    }
+
+    @Override
+    public ImmutableList<String> getSignature() {
+        return signature;
+    }
+
+    @Override
+    public ExecutableQuery bind(ImmutableList<ValueConstant> placeholderValues)
+            throws OntopInvalidInputQueryException {
+        ImmutableList.Builder<Object> jdbcValueBuilder = ImmutableList.builder();
+        for (int placeholderIndex : placeholderIndexes) {
+            if (placeholderIndex >= placeholderValues.size())
+                throw new MinorOntopInternalBugException("No value given for the placeholder " + placeholderIndex);
+            jdbcValueBuilder.add(convertIntoJDBCValue(placeholderValues.get(placeholderIndex)));
+        }
+        return new SQLExecutableQuery(sqlQuery, signature, jdbcValueBuilder.build(), columnPlan);
+    }
+
+    /**
+     * Unknown datatypes (e.g. IRIs and language-tagged strings) are bound as strings
+     */
+    private static Object convertIntoJDBCValue(ValueConstant constant) throws OntopInvalidInputQueryException {
+        String lexicalValue = constant.getValue();
+        COL_TYPE colType = COL_TYPE.getColType(constant.getType().getIRI());
+        try {
+            switch (colType) {
+                case INTEGER:
+                case LONG:
+                case INT:
+                case UNSIGNED_INT:
+                case NEGATIVE_INTEGER:
+                case NON_NEGATIVE_INTEGER:
+                case POSITIVE_INTEGER:
+                case NON_POSITIVE_INTEGER:
+                    BigInteger integer = new BigInteger(lexicalValue.trim());
+                    return (integer.bitLength() < Long.SIZE)
+                            ? (Object) integer.longValue()
+                            : new BigDecimal(integer);
+                case DECIMAL:
+                    return new BigDecimal(lexicalValue.trim());
+                case DOUBLE:
+                    return parseXsdDouble(lexicalValue.trim());
+                case FLOAT:
+                    return (float) parseXsdDouble(lexicalValue.trim());
+                case BOOLEAN:
+                    return XsdDatatypeConverter.parseXsdBoolean(lexicalValue.trim());
+                case DATE:
+                    return Date.valueOf(LocalDate.parse(lexicalValue.trim(), DateTimeFormatter.ISO_DATE));
+                case TIME:
+                    return Time.valueOf(LocalTime.parse(lexicalValue.trim(), DateTimeFormatter.ISO_TIME));
+                case DATETIME:
+                case DATETIME_STAMP:
+                    return parseXsdDateTime(lexicalValue.trim());
+                default:
+                    return lexicalValue;
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new OntopInvalidInputQueryException("Invalid lexical form for " + constant.getType()
+                    + ": " + lexicalValue);
+        } catch (RuntimeException e) {
+            // Thrown by XsdDatatypeConverter
+            throw new OntopInvalidInputQueryException(e.getMessage());
+        }
+    }
+
+    private static double parseXsdDouble(String lexicalValue) {
+        switch (lexicalValue) {
+            case "INF":
+                return Double.POSITIVE_INFINITY;
+            case "-INF":
+                return Double.NEGATIVE_INFINITY;
+            case "NaN":
+                return Double.NaN;
+            default:
+                return Double.parseDouble(lexicalValue);
+        }
+    }
+
+    /**
+     * Without time zone, the date-time is local to the DB. Fractional seconds are preserved.
+     */
+    private static Timestamp parseXsdDateTime(String lexicalValue) {
+        TemporalAccessor temporal = DateTimeFormatter.ISO_DATE_TIME.parse(lexicalValue);
+        return temporal.isSupported(ChronoField.OFFSET_SECONDS)
+                ? Timestamp.from(OffsetDateTime.from(temporal).toInstant())
+                : Timestamp.valueOf(LocalDateTime.from(temporal));
+    }
+
+    @Override
+    public String toString() {
+        return sqlQuery + "\n<placeholders " + placeholderIndexes + ">";
+    }
+}
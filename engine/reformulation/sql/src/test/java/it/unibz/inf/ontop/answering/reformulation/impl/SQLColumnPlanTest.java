@@ -0,0 +1,93 @@
+package it.unibz.inf.ontop.answering.reformulation.impl;
+
+import it.unibz.inf.ontop.answering.reformulation.impl.SQLColumnPlan.VariableColumns;
+import org.junit.Test;
+
+import java.util.Optional;
+
+import static org.junit.Assert.*;
+
+public class SQLColumnPlanTest {
+
+    @Test
+    public void testDefault() {
+        SQLColumnPlan plan = SQLColumnPlan.createDefault(2);
+        assertEquals(6, plan.getColumnCount());
+
+        VariableColumns first = plan.getVariableColumns().get(0);
+        assertEquals(Optional.of(1), first.getTypeColumnIndex());
+        assertEquals(Optional.of(2), first.getLangColumnIndex());
+        assertEquals(3, first.getMainColumnIndex());
+        assertFalse(first.getStaticTypeCode().isPresent());
+
+        VariableColumns second = plan.getVariableColumns().get(1);
+        assertEquals(Optional.of(4), second.getTypeColumnIndex());
+        assertEquals(Optional.of(5), second.getLangColumnIndex());
+        assertEquals(6, second.getMainColumnIndex());
+    }
+
+    /**
+     * The columns of the next variables are shifted by the missing type and lang columns
+     */
+    @Test
+    public void testStaticColumns() {
+        SQLColumnPlan plan = SQLColumnPlan.builder()
+                .addVariable(Optional.of(1), false)
+                .addVariable(Optional.empty(), false)
+                .addVariable(Optional.of(7), true)
+                .addVariable(Optional.empty(), true)
+                .build();
+        assertEquals(8, plan.getColumnCount());
+
+        VariableColumns first = plan.getVariableColumns().get(0);
+        assertEquals(Optional.of(1), first.getStaticTypeCode());
+        assertFalse(first.getTypeColumnIndex().isPresent());
+        assertFalse(first.getLangColumnIndex().isPresent());
+        assertEquals(1, first.getMainColumnIndex());
+
+        VariableColumns second = plan.getVariableColumns().get(1);
+        assertFalse(second.getStaticTypeCode().isPresent());
+        assertEquals(Optional.of(2), second.getTypeColumnIndex());
+        assertFalse(second.getLangColumnIndex().isPresent());
+        assertEquals(3, second.getMainColumnIndex());
+
+        VariableColumns third = plan.getVariableColumns().get(2);
+        assertEquals(Optional.of(7), third.getStaticTypeCode());
+        assertEquals(Optional.of(4), third.getLangColumnIndex());
+        assertEquals(5, third.getMainColumnIndex());
+
+        VariableColumns fourth = plan.getVariableColumns().get(3);
+        assertEquals(Optional.of(6), fourth.getTypeColumnIndex());
+        assertEquals(Optional.of(7), fourth.getLangColumnIndex());
+        assertEquals(8, fourth.getMainColumnIndex());
+    }
+
+    @Test
+    public void testBuiltDefaultEqualsDefault() {
+        SQLColumnPlan plan = SQLColumnPlan.builder()
+                .addVariable(Optional.empty(), true)
+                .addVariable(Optional.empty(), true)
+                .build();
+        assertEquals(SQLColumnPlan.createDefault(2), plan);
+        assertEquals(SQLColumnPlan.createDefault(2).hashCode(), plan.hashCode());
+        assertEquals(6, plan.getColumnCount());
+    }
+
+    @Test
+    public void testDifferentStaticTypeCodes() {
+        SQLColumnPlan plan1 = SQLColumnPlan.builder()
+                .addVariable(Optional.of(1), false)
+                .build();
+        SQLColumnPlan plan2 = SQLColumnPlan.builder()
+                .addVariable(Optional.of(7), false)
+                .build();
+        assertNotEquals(plan1, plan2);
+    }
+
+    @Test
+    public void testNoVariable() {
+        SQLColumnPlan plan = SQLColumnPlan.builder().build();
+        assertEquals(0, plan.getColumnCount());
+        assertEquals(SQLColumnPlan.createDefault(0), plan);
+    }
+}
@@ -3,6 +3,7 @@ package it.unibz.inf.ontop.answering;
 
 import it.unibz.inf.ontop.exception.OntopConnectionException;
 import it.unibz.inf.ontop.answering.connection.OntopConnection;
+import it.unibz.inf.ontop.answering.connection.QueryExecutionService;
 
 public interface OntopQueryEngine extends AutoCloseable {
 
@@ -17,4 +18,9 @@ public interface OntopQueryEngine extends AutoCloseable {
      * Gets a OntopConnection usually coming from a connection pool.
      */
     OntopConnection getConnection() throws OntopConnectionException;
+
+    /**
+     * Service executing the queries of all the connections (e.g. for monitoring)
+     */
+    QueryExecutionService getQueryExecutionService();
 }
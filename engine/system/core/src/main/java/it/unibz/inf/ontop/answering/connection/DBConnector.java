@@ -20,4 +20,6 @@ public interface DBConnector extends AutoCloseable {
      */
     OntopConnection getConnection() throws OntopConnectionException;
 
+    QueryExecutionService getQueryExecutionService();
+
 }
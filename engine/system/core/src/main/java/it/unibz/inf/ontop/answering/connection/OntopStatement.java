@@ -1,8 +1,14 @@
 package it.unibz.inf.ontop.answering.connection;
 
+import com.google.common.collect.ImmutableMap;
 import it.unibz.inf.ontop.answering.reformulation.ExecutableQuery;
 import it.unibz.inf.ontop.answering.reformulation.input.InputQuery;
+import it.unibz.inf.ontop.answering.resultset.OBDAResultSet;
 import it.unibz.inf.ontop.exception.*;
+import it.unibz.inf.ontop.iq.tools.ReformulationTrace;
+import it.unibz.inf.ontop.model.term.Constant;
+
+import java.util.Optional;
 
 /**
  * OBDAStatement specific to Ontop.
@@ -13,9 +19,31 @@ import it.unibz.inf.ontop.exception.*;
  */
 public interface OntopStatement extends OBDAStatement {
 
-    int getTupleCount(InputQuery inputQuery) throws OntopReformulationException, OntopQueryEvaluationException, OntopConnectionException;
+    /**
+     * Executes the query with some of its projected variables bound to the given values.
+     *
+     * The query is reformulated only once into a template (then cached) for all the possible values
+     * of these parameters. Not supported for DESCRIBE queries.
+     */
+    <R extends OBDAResultSet> R execute(InputQuery<R> inputQuery, ImmutableMap<String, Constant> parameterValues)
+            throws OntopReformulationException, OntopQueryEvaluationException, OntopConnectionException,
+            OntopResultConversionException;
+
+    long getTupleCount(InputQuery inputQuery) throws OntopReformulationException, OntopQueryEvaluationException, OntopConnectionException;
 
     String getRewritingRendering(InputQuery inputQuery) throws OntopReformulationException;
 
     ExecutableQuery getExecutableQuery(InputQuery inputQuery) throws OntopReformulationException;
+
+    /**
+     * When enabled, the reformulations of the next queries are traced (see {@link #getLastReformulationTrace()}).
+     *
+     * Disabled by default. Query templates are not traced.
+     */
+    void setReformulationTraceEnabled(boolean isEnabled);
+
+    /**
+     * Trace of the last query reformulated by this statement, if traced.
+     */
+    Optional<ReformulationTrace> getLastReformulationTrace();
 }
@@ -0,0 +1,51 @@
+package it.unibz.inf.ontop.answering.connection;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Executes the target queries of the statements.
+ *
+ * Shared by all the connections of a DBConnector.
+ *
+ * Guice-enabled interface (implementation declared in the settings).
+ */
+public interface QueryExecutionService extends AutoCloseable {
+
+    /**
+     * Throws a RejectedExecutionException when too many queries are already waiting
+     */
+    <T> Future<T> submit(Callable<T> task) throws RejectedExecutionException;
+
+    /**
+     * Number of queries waiting for being executed
+     */
+    int getQueueDepth();
+
+    /**
+     * Number of queries being executed
+     */
+    int getActiveCount();
+
+    /**
+     * Number of queries that have been executed (or are being executed)
+     */
+    long getStartedCount();
+
+    /**
+     * Number of queries rejected because the queue was full
+     */
+    long getRejectedCount();
+
+    /**
+     * Cumulated time (in ms) spent by the queries in the queue
+     */
+    long getTotalWaitTime();
+
+    /**
+     * Stops accepting new queries. Does not wait for the running ones.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,108 @@
+package it.unibz.inf.ontop.answering.connection.impl;
+
+import com.google.inject.Inject;
+import it.unibz.inf.ontop.answering.connection.QueryExecutionService;
+import it.unibz.inf.ontop.injection.OntopSystemSettings;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-size pool of daemon threads, with a bounded queue.
+ *
+ * Idle threads are released after some time.
+ *
+ * NOT a singleton: one per DBConnector.
+ */
+public class BoundedQueryExecutionService implements QueryExecutionService {
+
+    private static final long KEEP_ALIVE_SECONDS = 60;
+    private static final AtomicInteger POOL_COUNTER = new AtomicInteger(0);
+
+    private final ThreadPoolExecutor executor;
+
+    private final LongAdder startedCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder totalWaitTime = new LongAdder();
+
+    @Inject
+    private BoundedQueryExecutionService(OntopSystemSettings settings) {
+        this(settings.getQueryExecutionMaxThreads(), settings.getQueryExecutionQueueSize());
+    }
+
+    /**
+     * queueSize: 0 means that queries are rejected when all the threads are busy
+     */
+    public BoundedQueryExecutionService(int maxThreads, int queueSize) {
+        if (maxThreads < 1 || queueSize < 0)
+            throw new IllegalArgumentException("At least one thread and a non-negative queue size are required");
+
+        BlockingQueue<Runnable> queue = (queueSize == 0)
+                ? new SynchronousQueue<>()
+                : new ArrayBlockingQueue<>(queueSize);
+
+        String threadPrefix = "ontop-query-" + POOL_COUNTER.incrementAndGet() + "-";
+        AtomicInteger threadCounter = new AtomicInteger(0);
+
+        this.executor = new ThreadPoolExecutor(maxThreads, maxThreads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, queue,
+                r -> {
+                    Thread thread = new Thread(r, threadPrefix + threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public <T> Future<T> submit(Callable<T> task) throws RejectedExecutionException {
+        long submissionTime = System.currentTimeMillis();
+        try {
+            return executor.submit(() -> {
+                totalWaitTime.add(System.currentTimeMillis() - submissionTime);
+                startedCount.increment();
+                return task.call();
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedCount.increment();
+            throw e;
+        }
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    @Override
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    @Override
+    public long getStartedCount() {
+        return startedCount.sum();
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    @Override
+    public long getTotalWaitTime() {
+        return totalWaitTime.sum();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BoundedQueryExecutionService{active=%d, queued=%d, started=%d, rejected=%d, " +
+                        "totalWaitTime=%dms}", getActiveCount(), getQueueDepth(), getStartedCount(),
+                getRejectedCount(), getTotalWaitTime());
+    }
+}
@@ -20,20 +20,30 @@ package it.unibz.inf.ontop.answering.connection.impl;
  * #L%
  */
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterators;
 import it.unibz.inf.ontop.answering.connection.OntopStatement;
+import it.unibz.inf.ontop.answering.connection.QueryExecutionService;
 import it.unibz.inf.ontop.answering.reformulation.ExecutableQuery;
 import it.unibz.inf.ontop.answering.reformulation.QueryReformulator;
 import it.unibz.inf.ontop.answering.reformulation.input.*;
 import it.unibz.inf.ontop.answering.resultset.*;
+import it.unibz.inf.ontop.answering.resultset.impl.DescribeGraphResultSet;
 import it.unibz.inf.ontop.exception.*;
+import it.unibz.inf.ontop.injection.OntopSystemSettings;
+import it.unibz.inf.ontop.iq.tools.ReformulationTrace;
 import it.unibz.inf.ontop.model.term.Constant;
 import it.unibz.inf.ontop.model.term.IRIConstant;
 import org.eclipse.rdf4j.query.MalformedQueryException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.CountDownLatch;
+import javax.annotation.Nullable;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.concurrent.*;
 
 
 /**
@@ -44,21 +54,33 @@ public abstract class QuestStatement implements OntopStatement {
 
 	private final QueryReformulator engine;
 	private final InputQueryFactory inputQueryFactory;
+	private final QueryExecutionService executionService;
+	private final OntopSystemSettings settings;
 
-	private QueryExecutionThread executionThread;
-	private boolean canceled = false;
+	// Execution of the current target query (if any)
+	@Nullable
+	private volatile Future<?> currentExecution;
+	private volatile boolean canceled = false;
+
+	private volatile boolean isReformulationTraceEnabled = false;
+	@Nullable
+	private volatile ReformulationTrace lastReformulationTrace;
 
 
 	private static final Logger log = LoggerFactory.getLogger(QuestStatement.class);
+	private static final long NO_DEADLINE = Long.MIN_VALUE;
 
 
-	public QuestStatement(QueryReformulator queryProcessor, InputQueryFactory inputQueryFactory) {
+	public QuestStatement(QueryReformulator queryProcessor, InputQueryFactory inputQueryFactory,
+						  QueryExecutionService executionService, OntopSystemSettings settings) {
 		this.engine = queryProcessor;
 		this.inputQueryFactory = inputQueryFactory;
+		this.executionService = executionService;
+		this.settings = settings;
 	}
 
 	/**
-	 * TODO: explain
+	 * Evaluates the target query (executable query) corresponding to the input query.
 	 */
 	@FunctionalInterface
 	private interface Evaluator<R extends OBDAResultSet, Q extends InputQuery<R>> {
@@ -67,79 +89,6 @@ public abstract class QuestStatement implements OntopStatement {
 				throws OntopQueryEvaluationException, OntopResultConversionException, OntopConnectionException;
 	}
 
-	/**
-	 * Execution thread
-	 */
-	private class QueryExecutionThread<R extends OBDAResultSet, Q extends InputQuery<R>> extends Thread {
-
-		private final Q inputQuery;
-		private final QuestStatement.Evaluator<R, Q> evaluator;
-		private final CountDownLatch monitor;
-		private final ExecutableQuery executableQuery;
-
-		private R resultSet;	  // only for SELECT and ASK queries
-		private Exception exception;
-		private boolean executingTargetQuery;
-
-		QueryExecutionThread(Q inputQuery, ExecutableQuery executableQuery, Evaluator<R,Q> evaluator,
-							 CountDownLatch monitor) {
-			this.executableQuery = executableQuery;
-			this.inputQuery = inputQuery;
-			this.evaluator = evaluator;
-			this.monitor = monitor;
-			this.exception = null;
-			this.executingTargetQuery = false;
-		}
-
-		public boolean errorStatus() {
-			return exception != null;
-		}
-
-		public Exception getException() {
-			return exception;
-		}
-
-		public R getResultSet() {
-			return resultSet;
-		}
-
-		public void cancel() throws OntopQueryEvaluationException {
-			canceled = true;
-			if (!executingTargetQuery) {
-				this.stop();
-			} else {
-				cancelExecution();
-			}
-		}
-
-		@Override
-		public void run() {
-			//                        FOR debugging H2 in-memory database
-//			try {
-//				org.h2.tools.Server.startWebServer(((QuestConnection)conn).getSQLConnection());
-//			} catch (SQLException e) {
-//				e.printStackTrace();
-//			}
-			try {
-				/**
-				 * Executes the target query.
-				 */
-				log.debug("Executing the query and get the result...");
-				executingTargetQuery = true;
-				resultSet = evaluator.evaluate(inputQuery, executableQuery);
-				log.debug("Execution finished.\n");
-				/*
-				 * TODO: re-handle the timeout exception.
-				 */
-			} catch (Exception e) {
-				exception = e;
-				log.error(e.getMessage(), e);
-			} finally {
-				monitor.countDown();
-			}
-		}
-	}
-
 	protected abstract TupleResultSet executeSelectQuery(ExecutableQuery executableQuery)
 			throws OntopQueryEvaluationException;
 
@@ -156,27 +105,18 @@ public abstract class QuestStatement implements OntopStatement {
 		return executeBooleanQuery(executableQuery);
 	}
 
-	/**
-	 * TODO: describe
-	 */
-	private SimpleGraphResultSet executeDescribeConstructQuery(ConstructQuery constructQuery, ExecutableQuery executableQuery)
-			throws OntopQueryEvaluationException, OntopResultConversionException, OntopConnectionException {
-		return executeGraphQuery(constructQuery, executableQuery, true);
-	}
-
 	/**
 	 * TODO: describe
 	 */
 	private SimpleGraphResultSet executeConstructQuery(ConstructQuery constructQuery, ExecutableQuery executableQuery)
 			throws OntopQueryEvaluationException, OntopResultConversionException, OntopConnectionException {
-		return executeGraphQuery(constructQuery, executableQuery, false);
+		return executeGraphQuery(constructQuery, executableQuery);
 	}
 
 	/**
 	 * TODO: refactor
 	 */
-	protected abstract SimpleGraphResultSet executeGraphQuery(ConstructQuery query, ExecutableQuery executableQuery,
-															  boolean collectResults)
+	protected abstract SimpleGraphResultSet executeGraphQuery(ConstructQuery query, ExecutableQuery executableQuery)
 			throws OntopQueryEvaluationException, OntopResultConversionException, OntopConnectionException;
 
 	/**
@@ -191,17 +131,45 @@ public abstract class QuestStatement implements OntopStatement {
 	@Override
 	public <R extends OBDAResultSet> R execute(InputQuery<R> inputQuery) throws OntopConnectionException,
             OntopReformulationException, OntopQueryEvaluationException, OntopResultConversionException {
+		long deadline = computeDeadline();
 		if (inputQuery instanceof SelectQuery) {
-			return (R) executeInThread((SelectQuery) inputQuery, this::executeSelectQuery);
+			return (R) executeInThread((SelectQuery) inputQuery, this::executeSelectQuery, deadline);
 		}
 		else if (inputQuery instanceof AskQuery) {
-			return (R) executeInThread((AskQuery) inputQuery, this::executeBooleanQuery);
+			return (R) executeInThread((AskQuery) inputQuery, this::executeBooleanQuery, deadline);
 		}
 		else if (inputQuery instanceof ConstructQuery) {
-			return (R) executeInThread((ConstructQuery) inputQuery, this::executeConstructQuery);
+			return (R) executeInThread((ConstructQuery) inputQuery, this::executeConstructQuery, deadline);
 		}
 		else if (inputQuery instanceof DescribeQuery) {
-			return (R) executeDescribeQuery((DescribeQuery) inputQuery);
+			return (R) executeDescribeQuery((DescribeQuery) inputQuery, deadline);
+		}
+		else {
+			throw new OntopUnsupportedInputQueryException("Unsupported query type: " + inputQuery);
+		}
+	}
+
+	@Override
+	public <R extends OBDAResultSet> R execute(InputQuery<R> inputQuery, ImmutableMap<String, Constant> parameterValues)
+			throws OntopReformulationException, OntopQueryEvaluationException, OntopConnectionException,
+			OntopResultConversionException {
+		if (parameterValues.isEmpty())
+			return execute(inputQuery);
+		if (inputQuery instanceof DescribeQuery)
+			throw new OntopUnsupportedInputQueryException("Parameters are not supported for DESCRIBE queries");
+
+		long deadline = computeDeadline();
+		ExecutableQuery executableQuery = engine.reformulateIntoNativeQuery(inputQuery, parameterValues);
+
+		if (inputQuery instanceof SelectQuery) {
+			return (R) executeInThread((SelectQuery) inputQuery, executableQuery, this::executeSelectQuery, deadline);
+		}
+		else if (inputQuery instanceof AskQuery) {
+			return (R) executeInThread((AskQuery) inputQuery, executableQuery, this::executeBooleanQuery, deadline);
+		}
+		else if (inputQuery instanceof ConstructQuery) {
+			return (R) executeInThread((ConstructQuery) inputQuery, executableQuery, this::executeConstructQuery,
+					deadline);
 		}
 		else {
 			throw new OntopUnsupportedInputQueryException("Unsupported query type: " + inputQuery);
@@ -209,56 +177,50 @@ public abstract class QuestStatement implements OntopStatement {
 	}
 
 	/**
-	 * TODO: completely refactor this old-way of processing DESCRIBE.
-	 *  ---> should be converted into 1 CONSTRUCT query
+	 * The described resources are grouped into batches, each batch being described by one CONSTRUCT query
+	 * (in subject and object position).
+	 *
+	 * Only the first batch is evaluated here (before the deadline), the next ones being evaluated on demand
+	 * while the results are consumed (each with its own deadline).
 	 */
-	private SimpleGraphResultSet executeDescribeQuery(DescribeQuery inputQuery)
+	private SimpleGraphResultSet executeDescribeQuery(DescribeQuery inputQuery, long deadline)
 			throws OntopReformulationException, OntopResultConversionException, OntopConnectionException,
 			OntopQueryEvaluationException {
 
-		ImmutableSet<String> constants = extractDescribeQueryConstants(inputQuery);
+		ImmutableSet<String> constants = extractDescribeQueryConstants(inputQuery, deadline);
+
+		Iterator<ImmutableList<String>> batches = Iterators.transform(
+				Iterators.partition(constants.iterator(), Math.max(1, settings.getDescribeBatchSize())),
+				ImmutableList::copyOf);
+
+		SimpleGraphResultSet firstResultSet = batches.hasNext()
+				? executeDescribeBatch(batches.next(), deadline)
+				: null;
 
-		SimpleGraphResultSet describeResultSet = null;
+		return new DescribeGraphResultSet(firstResultSet, batches,
+				b -> {
+					try {
+						return executeDescribeBatch(b, computeDeadline());
+					} catch (OntopReformulationException | OntopQueryEvaluationException e) {
+						throw new OntopConnectionException("Cannot describe the resources " + b, e);
+					}
+				},
+				settings.getDescribeDuplicateWindowSize());
+	}
 
+	private SimpleGraphResultSet executeDescribeBatch(ImmutableList<String> constants, long deadline)
+			throws OntopReformulationException, OntopQueryEvaluationException {
 		try {
-			// execute describe <uriconst> in subject position
-			for (String constant : constants) {
-				// for each constant we execute a construct with
-				// the uri as subject, and collect the results
-				String str = SPARQLQueryUtility.getConstructSubjQuery(constant);
-				ConstructQuery constructQuery = inputQueryFactory.createConstructQuery(str);
-
-				SimpleGraphResultSet set = executeInThread(constructQuery, this::executeDescribeConstructQuery);
-				if (describeResultSet == null) { // just for the first time
-					describeResultSet = set;
-				} else if (set != null) {
-					// 2nd and manyth times execute, but collect result into one object
-					while (set.hasNext())
-						describeResultSet.addNewResult(set.next());
-				}
-			}
-			// execute describe <uriconst> in object position
-			for (String constant : constants) {
-				String str = SPARQLQueryUtility.getConstructObjQuery(constant);
-
-				ConstructQuery constructQuery = inputQueryFactory.createConstructQuery(str);
-				SimpleGraphResultSet set = executeInThread(constructQuery, this::executeDescribeConstructQuery);
-
-				if (describeResultSet == null) { // just for the first time
-					describeResultSet = set;
-				} else if (set != null) {
-					while (set.hasNext())
-						describeResultSet.addNewResult(set.next());
-				}
-			}
+			ConstructQuery constructQuery = inputQueryFactory.createConstructQuery(
+					SPARQLQueryUtility.getDescribeConstructQuery(constants));
+			return executeInThread(constructQuery, this::executeConstructQuery, deadline);
 			// Exception is re-cast because not due to the initial input query
 		} catch (OntopInvalidInputQueryException e) {
 			throw new OntopReformulationException(e);
 		}
-		return describeResultSet;
 	}
 
-	private ImmutableSet<String> extractDescribeQueryConstants(DescribeQuery inputQuery)
+	private ImmutableSet<String> extractDescribeQueryConstants(DescribeQuery inputQuery, long deadline)
 			throws OntopQueryEvaluationException, OntopConnectionException,
             OntopReformulationException, OntopResultConversionException {
 		String inputQueryString = inputQuery.getInputString();
@@ -269,7 +231,7 @@ public abstract class QuestStatement implements OntopStatement {
 			String sel = SPARQLQueryUtility.getSelectVarDescribe(inputQueryString);
 			try {
 				SelectQuery selectQuery = inputQueryFactory.createSelectQuery(sel);
-				TupleResultSet resultSet = execute(selectQuery);
+				TupleResultSet resultSet = executeInThread(selectQuery, this::executeSelectQuery, deadline);
 
 				ImmutableSet.Builder<String> constantSetBuilder = ImmutableSet.builder();
 				while (resultSet.hasNext()) {
@@ -301,53 +263,119 @@ public abstract class QuestStatement implements OntopStatement {
 
 
 	/**
-	 * Internal method to start a new query execution thread type defines the
-	 * query type SELECT, ASK, CONSTRUCT, or DESCRIBE
+	 * Reformulates the input query and executes the resulting target query with the execution service.
+	 * Type defines the query type SELECT, ASK, CONSTRUCT, or DESCRIBE
 	 */
-	private <R extends OBDAResultSet, Q extends InputQuery<R>> R executeInThread(Q inputQuery, Evaluator<R, Q> evaluator)
+	private <R extends OBDAResultSet, Q extends InputQuery<R>> R executeInThread(Q inputQuery, Evaluator<R, Q> evaluator,
+																				  long deadline)
 			throws OntopReformulationException, OntopQueryEvaluationException {
 
 		log.debug("Executing SPARQL query: \n{}", inputQuery);
 
-		CountDownLatch monitor = new CountDownLatch(1);
-		ExecutableQuery executableQuery = engine.reformulateIntoNativeQuery(inputQuery);
+		ExecutableQuery executableQuery = reformulate(inputQuery);
+		return executeInThread(inputQuery, executableQuery, evaluator, deadline);
+	}
+
+	/**
+	 * Waits for the execution until the deadline (in ns, see System.nanoTime()).
+	 * After it, cancels the execution.
+	 */
+	private <R extends OBDAResultSet, Q extends InputQuery<R>> R executeInThread(Q inputQuery,
+																				  ExecutableQuery executableQuery,
+																				  Evaluator<R, Q> evaluator,
+																				  long deadline)
+			throws OntopReformulationException, OntopQueryEvaluationException {
 
-		QueryExecutionThread<R, Q> executionthread = new QueryExecutionThread<>(inputQuery, executableQuery, evaluator,
-				monitor);
+		canceled = false;
 
-		this.executionThread = executionthread;
-		executionthread.start();
+		Future<R> execution;
 		try {
-			monitor.await();
-		} catch (InterruptedException e) {
-			e.printStackTrace();
+			execution = executionService.submit(() -> {
+				log.debug("Executing the query and get the result...");
+				R resultSet = evaluator.evaluate(inputQuery, executableQuery);
+				log.debug("Execution finished.\n");
+				return resultSet;
+			});
+		} catch (RejectedExecutionException e) {
+			throw new OntopQueryEvaluationException("Too many queries are already waiting for being executed");
 		}
-		if (executionthread.errorStatus()) {
-			Exception ex = executionthread.getException();
+		currentExecution = execution;
+
+		try {
+			R resultSet = (deadline == NO_DEADLINE)
+					? execution.get()
+					: execution.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+
+			if (canceled) {
+				canceled = false;
+				throw new OntopQueryEvaluationException("Query execution was cancelled");
+			}
+			return resultSet;
+
+		} catch (TimeoutException e) {
+			cancelCurrentExecution();
+			throw new OntopQueryEvaluationException("The query execution has timed out");
+		} catch (InterruptedException e) {
+			cancelCurrentExecution();
+			Thread.currentThread().interrupt();
+			throw new OntopQueryEvaluationException("Interrupted while waiting for the query execution");
+		} catch (CancellationException e) {
+			canceled = false;
+			throw new OntopQueryEvaluationException("Query execution was cancelled");
+		} catch (ExecutionException e) {
+			canceled = false;
+			Throwable ex = e.getCause();
+			log.error(ex.getMessage(), ex);
 			if (ex instanceof OntopReformulationException) {
 				throw (OntopReformulationException) ex;
 			}
 			else if (ex instanceof OntopQueryEvaluationException) {
 				throw (OntopQueryEvaluationException) ex;
 			}
+			else if (ex instanceof Error) {
+				throw (Error) ex;
+			}
 			else {
-				throw new OntopQueryEvaluationException(ex);
+				throw new OntopQueryEvaluationException((Exception) ex);
 			}
+		} finally {
+			currentExecution = null;
 		}
+	}
 
-		if (canceled) {
-			canceled = false;
-			throw new OntopQueryEvaluationException("Query execution was cancelled");
+	/**
+	 * From the query timeout of the statement
+	 */
+	private long computeDeadline() throws OntopQueryEvaluationException {
+		int timeout;
+		try {
+			timeout = getQueryTimeout();
+		} catch (OntopConnectionException e) {
+			throw new OntopQueryEvaluationException(e);
+		}
+		return timeout > 0
+				? System.nanoTime() + TimeUnit.SECONDS.toNanos(timeout)
+				: NO_DEADLINE;
+	}
+
+	/**
+	 * Cancels the target query (on the DB side) and interrupts its evaluation
+	 */
+	private void cancelCurrentExecution() throws OntopQueryEvaluationException {
+		Future<?> execution = currentExecution;
+		try {
+			cancelExecution();
+		} finally {
+			if (execution != null)
+				execution.cancel(true);
 		}
-		return executionthread.getResultSet();
 	}
 
-	
 	@Override
 	public void cancel() throws OntopConnectionException {
 		canceled = true;
 		try {
-			QuestStatement.this.executionThread.cancel();
+			cancelCurrentExecution();
 		} catch (Exception e) {
 			throw new OntopConnectionException(e);
 		}
@@ -368,7 +396,26 @@ public abstract class QuestStatement implements OntopStatement {
 
 	@Override
 	public ExecutableQuery getExecutableQuery(InputQuery inputQuery) throws OntopReformulationException {
+			return reformulate(inputQuery);
+	}
+
+	@Override
+	public void setReformulationTraceEnabled(boolean isEnabled) {
+		this.isReformulationTraceEnabled = isEnabled;
+	}
+
+	@Override
+	public Optional<ReformulationTrace> getLastReformulationTrace() {
+		return Optional.ofNullable(lastReformulationTrace);
+	}
+
+	private ExecutableQuery reformulate(InputQuery inputQuery) throws OntopReformulationException {
+		if (!isReformulationTraceEnabled)
 			return engine.reformulateIntoNativeQuery(inputQuery);
+
+		ReformulationTrace trace = ReformulationTrace.create();
+		lastReformulationTrace = trace;
+		return engine.reformulateIntoNativeQuery(inputQuery, trace);
 	}
 
 }
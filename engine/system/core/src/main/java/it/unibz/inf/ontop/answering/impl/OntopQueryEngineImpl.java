@@ -10,6 +10,7 @@ import it.unibz.inf.ontop.injection.OntopSystemFactory;
 import it.unibz.inf.ontop.injection.ReformulationFactory;
 import it.unibz.inf.ontop.answering.connection.DBConnector;
 import it.unibz.inf.ontop.answering.connection.OntopConnection;
+import it.unibz.inf.ontop.answering.connection.QueryExecutionService;
 import it.unibz.inf.ontop.iq.tools.ExecutorRegistry;
 import it.unibz.inf.ontop.spec.OBDASpecification;
 
@@ -40,4 +41,9 @@ public class OntopQueryEngineImpl implements OntopQueryEngine {
     public OntopConnection getConnection() throws OntopConnectionException {
         return dbConnector.getConnection();
     }
+
+    @Override
+    public QueryExecutionService getQueryExecutionService() {
+        return dbConnector.getQueryExecutionService();
+    }
 }
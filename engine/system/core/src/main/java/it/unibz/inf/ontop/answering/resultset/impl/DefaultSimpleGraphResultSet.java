@@ -39,13 +39,16 @@ import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Literal;
 import org.eclipse.rdf4j.query.algebra.*;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import java.util.NoSuchElementException;
 
 public class DefaultSimpleGraphResultSet implements SimpleGraphResultSet {
 
-	private final List<Assertion> results = new ArrayList<>();
+	// Assertions of the current row not returned yet
+	private final Deque<Assertion> results = new ArrayDeque<>();
 
 	private final TupleResultSet tupleResultSet;
 
@@ -53,14 +56,12 @@ public class DefaultSimpleGraphResultSet implements SimpleGraphResultSet {
 
 	private final ImmutableMap<String, ValueExpr> extMap;
 
-	// store results in case of describe queries
-	private final boolean storeResults;
     private final TermFactory termFactory;
     private final org.apache.commons.rdf.api.RDF rdfFactory;
 
     public DefaultSimpleGraphResultSet(TupleResultSet tupleResultSet, ConstructTemplate constructTemplate,
-                                       boolean storeResults, TermFactory termFactory,
-                                       org.apache.commons.rdf.api.RDF rdfFactory) throws OntopResultConversionException, OntopConnectionException {
+                                       TermFactory termFactory,
+                                       org.apache.commons.rdf.api.RDF rdfFactory) {
 		this.tupleResultSet = tupleResultSet;
 		this.constructTemplate = constructTemplate;
         this.termFactory = termFactory;
@@ -72,15 +73,6 @@ public class DefaultSimpleGraphResultSet implements SimpleGraphResultSet {
         }
         else
             extMap = null;
-
-        this.storeResults = storeResults;
-        if (storeResults) {
-            //process current result set into local buffer,
-            //since additional results will be collected
-            while (tupleResultSet.hasNext()) {
-                results.addAll(processResults(tupleResultSet.next()));
-            }
-        }
 	}
 
 
@@ -89,19 +81,10 @@ public class DefaultSimpleGraphResultSet implements SimpleGraphResultSet {
         return tupleResultSet.getFetchSize();
     }
 
-    @Override
-	public void addNewResult(Assertion assertion)
-	{
-		results.add(assertion);
-	}
-
 	/**
 	 * The method to actually process the current result set Row.
 	 * Construct a list of assertions from the current result set row.
-	 * In case of describe it is called to process and store all 
-	 * the results from a resultset.
-	 * In case of construct it is called upon next, to process
-	 * the only current result set.
+	 * Called upon hasNext(), once the assertions of the previous row have been consumed.
 	 */
     private List<Assertion> processResults(OntopBindingSet bindingSet)
             throws OntopResultConversionException, OntopConnectionException {
@@ -154,12 +137,8 @@ public class DefaultSimpleGraphResultSet implements SimpleGraphResultSet {
 
     @Override
     public boolean hasNext() throws OntopConnectionException, OntopResultConversionException {
-        if (results.size() > 0)
+        if (!results.isEmpty())
             return true;
-        //in case of describe, we return the collected results list information
-        if (storeResults)
-            return false;
-        // construct
         while(tupleResultSet.hasNext()) {
             List<Assertion> newTriples = processResults(tupleResultSet.next());
             if (!newTriples.isEmpty()) {
@@ -172,8 +151,8 @@ public class DefaultSimpleGraphResultSet implements SimpleGraphResultSet {
 
     @Override
     public Assertion next() {
-        if (results.size() > 0)
-            return results.remove(0);
+        if (!results.isEmpty())
+            return results.poll();
         else
             throw new NoSuchElementException("Please call hasNext() before calling next()");
     }
@@ -0,0 +1,100 @@
+package it.unibz.inf.ontop.answering.resultset.impl;
+
+import com.google.common.collect.ImmutableList;
+import it.unibz.inf.ontop.answering.resultset.SimpleGraphResultSet;
+import it.unibz.inf.ontop.exception.OntopConnectionException;
+import it.unibz.inf.ontop.exception.OntopResultConversionException;
+import it.unibz.inf.ontop.spec.ontology.Assertion;
+
+import javax.annotation.Nullable;
+import java.util.*;
+
+/**
+ * Results of a DESCRIBE query: concatenation of the results of one CONSTRUCT query per batch of described resources.
+ *
+ * The CONSTRUCT query of the next batch is only evaluated once the results of the previous one are consumed.
+ *
+ * Duplicates are removed among the last triples returned (bounded window).
+ * A duplicate of a triple returned earlier than that may therefore appear again.
+ */
+public class DescribeGraphResultSet implements SimpleGraphResultSet {
+
+    /**
+     * Evaluates the CONSTRUCT query describing a batch of resources (IRIs)
+     */
+    @FunctionalInterface
+    public interface BatchEvaluator {
+        SimpleGraphResultSet evaluate(ImmutableList<String> describedIRIs)
+                throws OntopConnectionException, OntopResultConversionException;
+    }
+
+    private final Iterator<ImmutableList<String>> remainingBatches;
+    private final BatchEvaluator evaluator;
+    // Access-ordered, bounded
+    private final Set<Assertion> recentAssertions;
+
+    @Nullable
+    private SimpleGraphResultSet currentResultSet;
+    @Nullable
+    private Assertion nextAssertion;
+
+    /**
+     * firstResultSet: results of the first batch (null if there is no resource to describe)
+     */
+    public DescribeGraphResultSet(@Nullable SimpleGraphResultSet firstResultSet,
+                                  Iterator<ImmutableList<String>> remainingBatches, BatchEvaluator evaluator,
+                                  int duplicateWindowSize) {
+        this.currentResultSet = firstResultSet;
+        this.remainingBatches = remainingBatches;
+        this.evaluator = evaluator;
+        this.recentAssertions = Collections.newSetFromMap(new LinkedHashMap<Assertion, Boolean>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Assertion, Boolean> eldest) {
+                return size() > duplicateWindowSize;
+            }
+        });
+    }
+
+    @Override
+    public int getFetchSize() throws OntopConnectionException {
+        return currentResultSet == null ? 0 : currentResultSet.getFetchSize();
+    }
+
+    @Override
+    public boolean hasNext() throws OntopConnectionException, OntopResultConversionException {
+        if (nextAssertion != null)
+            return true;
+
+        while (currentResultSet != null) {
+            while (currentResultSet.hasNext()) {
+                Assertion assertion = currentResultSet.next();
+                if (recentAssertions.add(assertion)) {
+                    nextAssertion = assertion;
+                    return true;
+                }
+            }
+            currentResultSet.close();
+            currentResultSet = null;
+            if (remainingBatches.hasNext())
+                currentResultSet = evaluator.evaluate(remainingBatches.next());
+        }
+        return false;
+    }
+
+    @Override
+    public Assertion next() {
+        if (nextAssertion == null)
+            throw new NoSuchElementException("Please call hasNext() before calling next()");
+        Assertion assertion = nextAssertion;
+        nextAssertion = null;
+        return assertion;
+    }
+
+    @Override
+    public void close() throws OntopConnectionException {
+        if (currentResultSet != null) {
+            currentResultSet.close();
+            currentResultSet = null;
+        }
+    }
+}
@@ -9,11 +9,43 @@ public interface OntopSystemSettings extends OntopReformulationSettings {
      */
     boolean isPermanentDBConnectionEnabled();
 
+    /**
+     * Maximal number of target queries executed concurrently
+     */
+    int getQueryExecutionMaxThreads();
+
+    /**
+     * Maximal number of target queries waiting for being executed.
+     * Beyond, new queries are rejected.
+     */
+    int getQueryExecutionQueueSize();
+
+    /**
+     * Default timeout (in seconds) of the statements. 0 means no timeout.
+     */
+    int getDefaultQueryTimeout();
+
+    /**
+     * Maximal number of resources described by the same target query (DESCRIBE queries)
+     */
+    int getDescribeBatchSize();
+
+    /**
+     * Maximal number of triples remembered for removing duplicates from the results of a DESCRIBE query.
+     * Beyond, duplicates may appear.
+     */
+    int getDescribeDuplicateWindowSize();
+
     //--------------------------
     // Keys
     //--------------------------
 
     String PERMANENT_DB_CONNECTION = "ontop.permanentConnection";
+    String QUERY_EXECUTION_MAX_THREADS = "ontop.queryExecution.maxThreads";
+    String QUERY_EXECUTION_QUEUE_SIZE = "ontop.queryExecution.queueSize";
+    String DEFAULT_QUERY_TIMEOUT = "ontop.query.defaultTimeout";
+    String DESCRIBE_BATCH_SIZE = "ontop.describe.batchSize";
+    String DESCRIBE_DUPLICATE_WINDOW_SIZE = "ontop.describe.duplicateWindowSize";
 
 
 }
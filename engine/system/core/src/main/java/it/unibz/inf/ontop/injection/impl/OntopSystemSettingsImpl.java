@@ -27,4 +27,29 @@ public class OntopSystemSettingsImpl extends OntopReformulationSettingsImpl impl
     public boolean isPermanentDBConnectionEnabled() {
         return getRequiredBoolean(PERMANENT_DB_CONNECTION);
     }
+
+    @Override
+    public int getQueryExecutionMaxThreads() {
+        return getRequiredInteger(QUERY_EXECUTION_MAX_THREADS);
+    }
+
+    @Override
+    public int getQueryExecutionQueueSize() {
+        return getRequiredInteger(QUERY_EXECUTION_QUEUE_SIZE);
+    }
+
+    @Override
+    public int getDefaultQueryTimeout() {
+        return getRequiredInteger(DEFAULT_QUERY_TIMEOUT);
+    }
+
+    @Override
+    public int getDescribeBatchSize() {
+        return getRequiredInteger(DESCRIBE_BATCH_SIZE);
+    }
+
+    @Override
+    public int getDescribeDuplicateWindowSize() {
+        return getRequiredInteger(DESCRIBE_DUPLICATE_WINDOW_SIZE);
+    }
 }
@@ -23,6 +23,13 @@ public interface MaterializationParams {
      */
     boolean canMaterializationBeIncomplete();
 
+    /**
+     * Number of RDF classes/properties materialized concurrently (one DB connection each).
+     *
+     * 1 by default (sequential materialization).
+     */
+    int getParallelism();
+
 
     static Builder defaultBuilder() {
         return new MaterializationParamsImpl.DefaultBuilder<>();
@@ -35,6 +42,8 @@ public interface MaterializationParams {
 
         B enableIncompleteMaterialization(boolean enable);
 
+        B parallelism(int parallelism);
+
         MaterializationParams build();
 
     }
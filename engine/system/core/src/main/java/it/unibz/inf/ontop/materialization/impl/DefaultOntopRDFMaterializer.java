@@ -62,17 +62,23 @@ import java.util.stream.Stream;
  */
 public class DefaultOntopRDFMaterializer implements OntopRDFMaterializer {
 
-	private static int FETCH_SIZE = 50000;
+	static final int FETCH_SIZE = 50000;
 
-	private static final class VocabularyEntry {
-        private final IRI name;
+	static final class VocabularyEntry {
+        final IRI name;
         private final int arity;
+        /**
+         * Size of the mapping definition (rough approximation of the cost of its query).
+         * Estimated without computing the definition, which may be lazily saturated.
+         */
+        final int estimatedCost;
 
-        VocabularyEntry(IRI predicate, int arity) {
+        VocabularyEntry(IRI predicate, int arity, int estimatedCost) {
 
                 this.name =predicate;
 
             	this.arity = arity;
+            	this.estimatedCost = estimatedCost;
         }
 
         private static final String PROPERTY_QUERY = "CONSTRUCT {?s <%s> ?o} WHERE {?s <%s> ?o}";
@@ -81,6 +87,11 @@ public class DefaultOntopRDFMaterializer implements OntopRDFMaterializer {
         String getQuery() {
             return String.format((arity == 1) ? CLASS_QUERY : PROPERTY_QUERY, name.getIRIString(), name.getIRIString());
         }
+
+        @Override
+        public String toString() {
+            return name.getIRIString();
+        }
     }
 
 	@Override
@@ -114,7 +125,9 @@ public class DefaultOntopRDFMaterializer implements OntopRDFMaterializer {
 		OntopQueryEngine queryEngine = engineFactory.create(obdaSpecification, configuration.getExecutorRegistry());
 		InputQueryFactory inputQueryFactory = injector.getInstance(InputQueryFactory.class);
 
-		return new DefaultMaterializedGraphResultSet(selectedVocabulary, params, queryEngine, inputQueryFactory);
+		return params.getParallelism() > 1
+				? new ParallelMaterializedGraphResultSet(selectedVocabulary, params, queryEngine, inputQueryFactory)
+				: new DefaultMaterializedGraphResultSet(selectedVocabulary, params, queryEngine, inputQueryFactory);
 	}
 
 	/**
@@ -132,10 +145,10 @@ public class DefaultOntopRDFMaterializer implements OntopRDFMaterializer {
 
     private static Stream<VocabularyEntry> extractTripleVocabulary(Mapping mapping, TriplePredicate triplePredicate) {
 		Stream<VocabularyEntry> vocabularyPropertyStream = mapping.getRDFProperties(triplePredicate).stream()
-				.map(p -> new VocabularyEntry(p, 2));
+				.map(p -> new VocabularyEntry(p, 2, mapping.estimateDefinitionSize(p)));
 
 		Stream<VocabularyEntry> vocabularyClassStream = mapping.getRDFClasses(triplePredicate).stream()
-				.map(p -> new VocabularyEntry(p, 1));
+				.map(p -> new VocabularyEntry(p, 1, mapping.estimateDefinitionSize(p)));
 
 		return Stream.concat(vocabularyClassStream,vocabularyPropertyStream);
 	}
@@ -6,10 +6,13 @@ public class MaterializationParamsImpl implements MaterializationParams {
 
     private final boolean enableDBResultStreaming;
     private final boolean enableIncompleteMaterialization;
+    private final int parallelism;
 
-    private MaterializationParamsImpl(boolean enableDBResultStreaming, boolean enableIncompleteMaterialization) {
+    private MaterializationParamsImpl(boolean enableDBResultStreaming, boolean enableIncompleteMaterialization,
+                                      int parallelism) {
         this.enableDBResultStreaming = enableDBResultStreaming;
         this.enableIncompleteMaterialization = enableIncompleteMaterialization;
+        this.parallelism = parallelism;
     }
 
 
@@ -23,16 +26,23 @@ public class MaterializationParamsImpl implements MaterializationParams {
         return enableIncompleteMaterialization;
     }
 
+    @Override
+    public int getParallelism() {
+        return parallelism;
+    }
+
 
     public static class DefaultBuilder<B extends Builder<B>> implements Builder<B> {
 
         private final B builder;
         private boolean isDBResultStreamingEnabled;
         private boolean canMaterializationBeIncomplete;
+        private int parallelism;
 
         public DefaultBuilder() {
             this.isDBResultStreamingEnabled = false;
             this.canMaterializationBeIncomplete = false;
+            this.parallelism = 1;
             this.builder = (B) this;
         }
 
@@ -49,9 +59,18 @@ public class MaterializationParamsImpl implements MaterializationParams {
             return builder;
         }
 
+        @Override
+        public B parallelism(int parallelism) {
+            if (parallelism < 1)
+                throw new IllegalArgumentException("The parallelism must be at least 1");
+            this.parallelism = parallelism;
+            return builder;
+        }
+
         @Override
         public MaterializationParams build() {
-            return new MaterializationParamsImpl(isDBResultStreamingEnabled, canMaterializationBeIncomplete);
+            return new MaterializationParamsImpl(isDBResultStreamingEnabled, canMaterializationBeIncomplete,
+                    parallelism);
         }
     }
 
@@ -0,0 +1,284 @@
+package it.unibz.inf.ontop.materialization.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import it.unibz.inf.ontop.answering.OntopQueryEngine;
+import it.unibz.inf.ontop.answering.connection.OntopConnection;
+import it.unibz.inf.ontop.answering.connection.OntopStatement;
+import it.unibz.inf.ontop.answering.reformulation.input.ConstructQuery;
+import it.unibz.inf.ontop.answering.reformulation.input.InputQueryFactory;
+import it.unibz.inf.ontop.answering.resultset.MaterializedGraphResultSet;
+import it.unibz.inf.ontop.answering.resultset.SimpleGraphResultSet;
+import it.unibz.inf.ontop.exception.OntopConnectionException;
+import it.unibz.inf.ontop.exception.OntopQueryAnsweringException;
+import it.unibz.inf.ontop.materialization.MaterializationParams;
+import it.unibz.inf.ontop.materialization.impl.DefaultOntopRDFMaterializer.VocabularyEntry;
+import it.unibz.inf.ontop.spec.ontology.Assertion;
+import org.apache.commons.rdf.api.IRI;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Materializes several RDF classes/properties concurrently, each worker having its own connection.
+ *
+ * Workers take the next class/property from a shared queue, the most expensive ones (estimated from their
+ * mapping definitions) first, so that a long one does not start at the end.
+ * Their triples are pushed by batches into a bounded buffer, from which hasNext()/next() read.
+ * Therefore the triples of different classes/properties are interleaved.
+ *
+ * Progress (classes/properties done, triples, throughput) is logged regularly.
+ *
+ * Not thread-safe: hasNext() and next() are expected to be called by one consumer.
+ */
+class ParallelMaterializedGraphResultSet implements MaterializedGraphResultSet {
+
+    private static final int BATCH_SIZE = 1000;
+    // In number of batches
+    private static final int BUFFER_CAPACITY = 64;
+    private static final long PROGRESS_LOG_INTERVAL_MS = 10_000;
+    private static final long OFFER_TIMEOUT_MS = 100;
+    private static final long TERMINATION_TIMEOUT_MS = 10_000;
+    private static final AtomicInteger POOL_COUNTER = new AtomicInteger(0);
+
+    // Put by a worker when it stops (compared by identity)
+    private static final List<Assertion> END_OF_WORKER = new ArrayList<>(0);
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParallelMaterializedGraphResultSet.class);
+
+    private final ImmutableMap<IRI, VocabularyEntry> vocabulary;
+    private final OntopQueryEngine queryEngine;
+    private final InputQueryFactory inputQueryFactory;
+    private final boolean doStreamResults, canBeIncomplete;
+    private final int parallelism;
+
+    private final Queue<VocabularyEntry> pendingEntries;
+    private final BlockingQueue<List<Assertion>> buffer;
+    private final Queue<IRI> possiblyIncompleteClassesAndProperties = new ConcurrentLinkedQueue<>();
+    // First critical exception thrown by a worker (possibly unchecked)
+    private final AtomicReference<Exception> failure = new AtomicReference<>();
+    private final AtomicInteger completedEntryCount = new AtomicInteger(0);
+    private final AtomicLong producedTripleCount = new AtomicLong(0);
+    private final AtomicLong lastProgressLog = new AtomicLong(0);
+    private volatile boolean closed = false;
+
+    // Lately initiated
+    @Nullable
+    private ExecutorService workers;
+    private long startTime;
+    private int runningWorkerCount;
+    private Iterator<Assertion> currentBatch = Collections.emptyIterator();
+    private long counter = 0;
+
+    ParallelMaterializedGraphResultSet(ImmutableMap<IRI, VocabularyEntry> vocabulary, MaterializationParams params,
+                                       OntopQueryEngine queryEngine, InputQueryFactory inputQueryFactory) {
+        this.vocabulary = vocabulary;
+        this.queryEngine = queryEngine;
+        this.inputQueryFactory = inputQueryFactory;
+        this.doStreamResults = params.isDBResultStreamingEnabled();
+        this.canBeIncomplete = params.canMaterializationBeIncomplete();
+        this.parallelism = Math.min(params.getParallelism(), Math.max(1, vocabulary.size()));
+
+        List<VocabularyEntry> entries = new ArrayList<>(vocabulary.values());
+        entries.sort(Comparator.comparingInt((VocabularyEntry e) -> e.estimatedCost).reversed());
+        this.pendingEntries = new ConcurrentLinkedQueue<>(entries);
+        this.buffer = new ArrayBlockingQueue<>(BUFFER_CAPACITY);
+    }
+
+    @Override
+    public ImmutableSet<IRI> getSelectedVocabulary() {
+        return vocabulary.keySet();
+    }
+
+    @Override
+    public boolean hasNext() throws OntopQueryAnsweringException, OntopConnectionException {
+        if (currentBatch.hasNext())
+            return true;
+        if (workers == null)
+            startWorkers();
+
+        while (runningWorkerCount > 0) {
+            rethrowFailure();
+            List<Assertion> batch;
+            try {
+                batch = buffer.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new OntopQueryAnsweringException(e);
+            }
+            if (batch == END_OF_WORKER)
+                runningWorkerCount--;
+            else {
+                currentBatch = batch.iterator();
+                return true;
+            }
+        }
+        rethrowFailure();
+        return false;
+    }
+
+    /**
+     * Stops as soon as a worker fails, even in the middle of a batch
+     */
+    @Override
+    public Assertion next() throws OntopQueryAnsweringException {
+        Exception e = failure.get();
+        if (e != null) {
+            if (e instanceof RuntimeException)
+                throw (RuntimeException) e;
+            if (e instanceof OntopQueryAnsweringException)
+                throw (OntopQueryAnsweringException) e;
+            throw new OntopQueryAnsweringException(e);
+        }
+        counter++;
+        return currentBatch.next();
+    }
+
+    private void startWorkers() {
+        String threadPrefix = "ontop-materialization-" + POOL_COUNTER.incrementAndGet() + "-";
+        AtomicInteger threadCounter = new AtomicInteger(0);
+        workers = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread thread = new Thread(r, threadPrefix + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        startTime = System.currentTimeMillis();
+        lastProgressLog.set(startTime);
+        runningWorkerCount = parallelism;
+        for (int i = 0; i < parallelism; i++)
+            workers.execute(this::runWorker);
+        workers.shutdown();
+    }
+
+    private void runWorker() {
+        try (OntopConnection connection = queryEngine.getConnection()) {
+            VocabularyEntry entry;
+            while (!closed && failure.get() == null && (entry = pendingEntries.poll()) != null)
+                materialize(connection, entry);
+        } catch (OntopConnectionException | RuntimeException e) {
+            failure.compareAndSet(null, e);
+        } catch (InterruptedException e) {
+            // Closed
+        } finally {
+            try {
+                push(END_OF_WORKER);
+            } catch (InterruptedException e) {
+                // Closed
+            }
+        }
+    }
+
+    private void materialize(OntopConnection connection, VocabularyEntry entry) throws InterruptedException {
+        long entryStartTime = System.currentTimeMillis();
+        long tripleCount = 0;
+        try (OntopStatement statement = connection.createStatement()) {
+            if (doStreamResults)
+                statement.setFetchSize(DefaultOntopRDFMaterializer.FETCH_SIZE);
+            ConstructQuery query = inputQueryFactory.createConstructQuery(entry.getQuery());
+            SimpleGraphResultSet resultSet = statement.execute(query);
+
+            List<Assertion> batch = new ArrayList<>(BATCH_SIZE);
+            while (resultSet.hasNext()) {
+                batch.add(resultSet.next());
+                if (batch.size() == BATCH_SIZE) {
+                    push(batch);
+                    tripleCount += batch.size();
+                    batch = new ArrayList<>(BATCH_SIZE);
+                }
+            }
+            if (!batch.isEmpty()) {
+                push(batch);
+                tripleCount += batch.size();
+            }
+            resultSet.close();
+        } catch (OntopQueryAnsweringException | OntopConnectionException e) {
+            if (canBeIncomplete) {
+                LOGGER.warn("Possibly incomplete class/property " + entry + " (materialization problem).\n"
+                        + "Details: " + e);
+                possiblyIncompleteClassesAndProperties.add(entry.name);
+            }
+            else {
+                LOGGER.error("Problem materialiing the class/property " + entry);
+                failure.compareAndSet(null, e);
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("Problem materialiing the class/property " + entry);
+            throw e;
+        }
+        reportProgress(entry, tripleCount, System.currentTimeMillis() - entryStartTime);
+    }
+
+    /**
+     * Blocks while the buffer is full, unless closed
+     */
+    private void push(List<Assertion> batch) throws InterruptedException {
+        while (!closed) {
+            if (buffer.offer(batch, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS))
+                return;
+        }
+        throw new InterruptedException("Closed");
+    }
+
+    private void reportProgress(VocabularyEntry entry, long tripleCount, long duration) {
+        int completed = completedEntryCount.incrementAndGet();
+        long total = producedTripleCount.addAndGet(tripleCount);
+        LOGGER.debug("Materialized {}: {} triples in {} ms", entry, tripleCount, duration);
+
+        long now = System.currentTimeMillis();
+        long last = lastProgressLog.get();
+        if ((now - last >= PROGRESS_LOG_INTERVAL_MS || completed == vocabulary.size())
+                && lastProgressLog.compareAndSet(last, now)) {
+            long elapsed = Math.max(1, now - startTime);
+            LOGGER.info("Materialization progress: {}/{} classes/properties, {} triples ({} triples/s)",
+                    completed, vocabulary.size(), total, total * 1000 / elapsed);
+        }
+    }
+
+    private void rethrowFailure() throws OntopQueryAnsweringException, OntopConnectionException {
+        Exception e = failure.get();
+        if (e == null)
+            return;
+        if (e instanceof RuntimeException)
+            throw (RuntimeException) e;
+        if (e instanceof OntopConnectionException)
+            throw (OntopConnectionException) e;
+        if (e instanceof OntopQueryAnsweringException)
+            throw (OntopQueryAnsweringException) e;
+        throw new OntopQueryAnsweringException(e);
+    }
+
+    /**
+     * Stops the workers and waits (for a bounded time) until they have released their connections
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (workers != null) {
+            workers.shutdownNow();
+            try {
+                if (!workers.awaitTermination(TERMINATION_TIMEOUT_MS, TimeUnit.MILLISECONDS))
+                    LOGGER.warn("The materialization workers have not stopped within {} ms", TERMINATION_TIMEOUT_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public long getTripleCountSoFar() {
+        return counter;
+    }
+
+    @Override
+    public ImmutableList<IRI> getPossiblyIncompleteRDFPropertiesAndClassesSoFar() {
+        return ImmutableList.copyOf(possiblyIncompleteClassesAndProperties);
+    }
+}
@@ -0,0 +1,43 @@
+package it.unibz.inf.ontop.answering.connection.impl;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class BoundedQueryExecutionServiceTest {
+
+    @Test
+    public void testQueueAndRejection() throws Exception {
+        BoundedQueryExecutionService service = new BoundedQueryExecutionService(1, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<Integer> first = service.submit(() -> {
+            started.countDown();
+            release.await();
+            return 1;
+        });
+        started.await();
+        Future<Integer> second = service.submit(() -> 2);
+        assertEquals(1, service.getQueueDepth());
+
+        try {
+            service.submit(() -> 3);
+            fail("The queue is full");
+        } catch (RejectedExecutionException e) {
+            assertEquals(1, service.getRejectedCount());
+        }
+
+        release.countDown();
+        assertEquals(1, (int) first.get());
+        assertEquals(2, (int) second.get());
+        assertEquals(2, service.getStartedCount());
+        assertEquals(0, service.getQueueDepth());
+        service.close();
+    }
+}
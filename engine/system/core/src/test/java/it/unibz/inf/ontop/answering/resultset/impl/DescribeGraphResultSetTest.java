@@ -0,0 +1,108 @@
+package it.unibz.inf.ontop.answering.resultset.impl;
+
+import com.google.common.collect.ImmutableList;
+import it.unibz.inf.ontop.answering.resultset.SimpleGraphResultSet;
+import it.unibz.inf.ontop.exception.OntopConnectionException;
+import it.unibz.inf.ontop.exception.OntopResultConversionException;
+import it.unibz.inf.ontop.spec.ontology.Assertion;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class DescribeGraphResultSetTest {
+
+    @Test
+    public void testBatchesAreEvaluatedLazilyAndDeduplicated() throws Exception {
+        List<ImmutableList<String>> evaluatedBatches = new ArrayList<>();
+
+        DescribeGraphResultSet resultSet = new DescribeGraphResultSet(
+                new ListGraphResultSet(ImmutableList.of(assertion("a", "b"), assertion("a", "b"), assertion("b", "c"))),
+                ImmutableList.of(ImmutableList.of("c"), ImmutableList.of("d")).iterator(),
+                b -> {
+                    evaluatedBatches.add(b);
+                    return new ListGraphResultSet(ImmutableList.of(assertion("b", "c"), assertion(b.get(0), "e")));
+                },
+                10);
+
+        assertEquals(ImmutableList.of(assertion("a", "b"), assertion("b", "c")), take(resultSet, 2));
+        assertEquals(0, evaluatedBatches.size());
+
+        assertEquals(ImmutableList.of(assertion("c", "e"), assertion("d", "e")), take(resultSet, 10));
+        assertEquals(ImmutableList.of(ImmutableList.of("c"), ImmutableList.of("d")), evaluatedBatches);
+    }
+
+    @Test
+    public void testNothingToDescribe() throws Exception {
+        DescribeGraphResultSet resultSet = new DescribeGraphResultSet(null,
+                ImmutableList.<ImmutableList<String>>of().iterator(),
+                b -> { throw new IllegalStateException(); }, 10);
+        assertEquals(ImmutableList.of(), take(resultSet, 10));
+    }
+
+    private static List<Assertion> take(SimpleGraphResultSet resultSet, int max)
+            throws OntopConnectionException, OntopResultConversionException {
+        List<Assertion> assertions = new ArrayList<>();
+        while (assertions.size() < max && resultSet.hasNext())
+            assertions.add(resultSet.next());
+        return assertions;
+    }
+
+    private static Assertion assertion(String subject, String object) {
+        return new TestAssertion(subject + " " + object);
+    }
+
+
+    private static class TestAssertion implements Assertion {
+        private final String triple;
+
+        private TestAssertion(String triple) {
+            this.triple = triple;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof TestAssertion && triple.equals(((TestAssertion) o).triple);
+        }
+
+        @Override
+        public int hashCode() {
+            return triple.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return triple;
+        }
+    }
+
+    private static class ListGraphResultSet implements SimpleGraphResultSet {
+        private final Iterator<Assertion> iterator;
+
+        private ListGraphResultSet(ImmutableList<Assertion> assertions) {
+            this.iterator = assertions.iterator();
+        }
+
+        @Override
+        public int getFetchSize() {
+            return 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+
+        @Override
+        public Assertion next() {
+            return iterator.next();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
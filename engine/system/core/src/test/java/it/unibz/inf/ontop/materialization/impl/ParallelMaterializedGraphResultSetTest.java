@@ -0,0 +1,81 @@
+package it.unibz.inf.ontop.materialization.impl;
+
+import com.google.common.collect.ImmutableMap;
+import it.unibz.inf.ontop.answering.OntopQueryEngine;
+import it.unibz.inf.ontop.answering.connection.OntopConnection;
+import it.unibz.inf.ontop.answering.connection.OntopStatement;
+import it.unibz.inf.ontop.answering.reformulation.input.InputQueryFactory;
+import it.unibz.inf.ontop.materialization.MaterializationParams;
+import it.unibz.inf.ontop.materialization.impl.DefaultOntopRDFMaterializer.VocabularyEntry;
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.simple.SimpleRDF;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class ParallelMaterializedGraphResultSetTest {
+
+    private static final SimpleRDF RDF = new SimpleRDF();
+    private static final String BROKEN_DEFINITION = "Broken definition";
+
+    /**
+     * The definitions fail at runtime with an unchecked exception
+     */
+    @Test
+    public void testRuntimeExceptionIsRethrown() throws Exception {
+        AtomicInteger closedConnectionCount = new AtomicInteger(0);
+        ImmutableMap<IRI, VocabularyEntry> vocabulary = ImmutableMap.of(
+                RDF.createIRI("http://example.com/voc#A"), createEntry("http://example.com/voc#A", 1),
+                RDF.createIRI("http://example.com/voc#p"), createEntry("http://example.com/voc#p", 2));
+
+        ParallelMaterializedGraphResultSet resultSet = new ParallelMaterializedGraphResultSet(vocabulary,
+                MaterializationParams.defaultBuilder()
+                        .parallelism(2)
+                        .build(),
+                createFailingQueryEngine(closedConnectionCount),
+                stub(InputQueryFactory.class, (m, a) -> null));
+        try {
+            resultSet.hasNext();
+            fail("The failure of the workers has not been rethrown");
+        } catch (IllegalStateException e) {
+            assertEquals(BROKEN_DEFINITION, e.getMessage());
+        } finally {
+            resultSet.close();
+        }
+        // Each worker has released its connection before stopping
+        assertEquals(2, closedConnectionCount.get());
+    }
+
+    private static VocabularyEntry createEntry(String iri, int arity) {
+        return new VocabularyEntry(RDF.createIRI(iri), arity, 1);
+    }
+
+    private static OntopQueryEngine createFailingQueryEngine(AtomicInteger closedConnectionCount) {
+        OntopStatement statement = stub(OntopStatement.class, (m, a) -> {
+            if (m.equals("execute"))
+                throw new IllegalStateException(BROKEN_DEFINITION);
+            return null;
+        });
+        return stub(OntopQueryEngine.class, (m, a) -> m.equals("getConnection")
+                ? stub(OntopConnection.class, (m2, a2) -> {
+                    if (m2.equals("close"))
+                        closedConnectionCount.incrementAndGet();
+                    return m2.equals("createStatement") ? statement : null;
+                })
+                : null);
+    }
+
+    private interface StubMethod {
+        Object invoke(String methodName, Object[] args);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(Class<T> stubbedInterface, StubMethod method) {
+        return (T) Proxy.newProxyInstance(stubbedInterface.getClassLoader(), new Class<?>[]{stubbedInterface},
+                (proxy, m, args) -> method.invoke(m.getName(), args));
+    }
+}
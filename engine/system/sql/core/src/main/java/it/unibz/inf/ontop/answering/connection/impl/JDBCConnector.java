@@ -4,6 +4,7 @@ import com.google.inject.assistedinject.Assisted;
 import com.google.inject.assistedinject.AssistedInject;
 import it.unibz.inf.ontop.answering.connection.DBConnector;
 import it.unibz.inf.ontop.answering.connection.OntopConnection;
+import it.unibz.inf.ontop.answering.connection.QueryExecutionService;
 import it.unibz.inf.ontop.answering.reformulation.input.InputQueryFactory;
 import it.unibz.inf.ontop.dbschema.DBMetadata;
 import it.unibz.inf.ontop.exception.OntopConnectionException;
@@ -41,6 +42,7 @@ public class JDBCConnector implements DBConnector {
 
     private final DBMetadata dbMetadata;
     private final InputQueryFactory inputQueryFactory;
+    private final QueryExecutionService executionService;
     private final TermFactory termFactory;
     private final TypeFactory typeFactory;
     private final RDF rdfFactory;
@@ -51,6 +53,7 @@ public class JDBCConnector implements DBConnector {
                           @Nullable IRIDictionary iriDictionary,
                           JDBCConnectionPool connectionPool,
                           InputQueryFactory inputQueryFactory,
+                          QueryExecutionService executionService,
                           TermFactory termFactory,
                           TypeFactory typeFactory,
                           RDF rdfFactory,
@@ -58,6 +61,7 @@ public class JDBCConnector implements DBConnector {
         this.queryReformulator = queryReformulator;
         this.dbMetadata = dbMetadata;
         this.inputQueryFactory = inputQueryFactory;
+        this.executionService = executionService;
         this.termFactory = termFactory;
         this.settings = settings;
         this.iriDictionary = Optional.ofNullable(iriDictionary);
@@ -97,6 +101,8 @@ public class JDBCConnector implements DBConnector {
             log.error(e.getMessage());
         }
         connectionPool.close();
+        // The execution service is not shut down, as previously created statements may still be used.
+        // Its idle threads are released after some time.
     }
 
     public synchronized Connection getSQLPoolConnection() throws OntopConnectionException {
@@ -125,7 +131,12 @@ public class JDBCConnector implements DBConnector {
     public OntopConnection getConnection() throws OntopConnectionException {
 
         return new SQLConnection(this, queryReformulator, getSQLPoolConnection(), iriDictionary,
-                dbMetadata, inputQueryFactory, termFactory, typeFactory, rdfFactory, settings);
+                dbMetadata, inputQueryFactory, executionService, termFactory, typeFactory, rdfFactory, settings);
+    }
+
+    @Override
+    public QueryExecutionService getQueryExecutionService() {
+        return executionService;
     }
 
 
@@ -0,0 +1,88 @@
+package it.unibz.inf.ontop.answering.connection.impl;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Idle prepared statements of a connection, indexed by their SQL string.
+ *
+ * A prepared statement is borrowed by one statement at a time (executing it again would close
+ * the result set of the previous execution) and given back when the statement does not need it anymore.
+ * At most maxIdleStatements are kept: the least recently given back is closed first.
+ */
+class PreparedStatementCache implements AutoCloseable {
+
+    private final int maxIdleStatements;
+    // Access order: the eldest is the least recently used
+    private final LinkedHashMap<String, PreparedStatement> idleStatements = new LinkedHashMap<>(16, 0.75f, true);
+    private boolean isClosed = false;
+
+    PreparedStatementCache(int maxIdleStatements) {
+        this.maxIdleStatements = maxIdleStatements;
+    }
+
+    /**
+     * Prepares a new statement if there is no idle one for this SQL string (and this connection)
+     */
+    PreparedStatement borrow(Connection connection, String sql) throws SQLException {
+        PreparedStatement statement;
+        synchronized (this) {
+            statement = idleStatements.remove(sql);
+        }
+        if (statement != null) {
+            if (!statement.isClosed() && statement.getConnection() == connection)
+                return statement;
+            // Prepared by a previous connection
+            statement.close();
+        }
+        return connection.prepareStatement(sql);
+    }
+
+    /**
+     * Closes the statement if the cache is closed or already has an idle statement for this SQL string
+     */
+    void giveBack(String sql, PreparedStatement statement) throws SQLException {
+        if (statement.isClosed())
+            return;
+        statement.clearParameters();
+
+        PreparedStatement discardedStatement = statement;
+        synchronized (this) {
+            if (!isClosed && !idleStatements.containsKey(sql)) {
+                idleStatements.put(sql, statement);
+                discardedStatement = null;
+                if (idleStatements.size() > maxIdleStatements) {
+                    Iterator<PreparedStatement> it = idleStatements.values().iterator();
+                    discardedStatement = it.next();
+                    it.remove();
+                }
+            }
+        }
+        if (discardedStatement != null)
+            discardedStatement.close();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        SQLException exception = null;
+        synchronized (this) {
+            isClosed = true;
+            for (PreparedStatement statement : idleStatements.values()) {
+                try {
+                    statement.close();
+                } catch (SQLException e) {
+                    if (exception == null)
+                        exception = e;
+                    else
+                        exception.addSuppressed(e);
+                }
+            }
+            idleStatements.clear();
+        }
+        if (exception != null)
+            throw exception;
+    }
+}
@@ -21,10 +21,12 @@ package it.unibz.inf.ontop.answering.connection.impl;
  */
 
 import java.sql.Connection;
+import java.sql.Statement;
 import java.util.Optional;
 
 import it.unibz.inf.ontop.answering.connection.OntopConnection;
 import it.unibz.inf.ontop.answering.connection.OntopStatement;
+import it.unibz.inf.ontop.answering.connection.QueryExecutionService;
 import it.unibz.inf.ontop.answering.reformulation.input.InputQueryFactory;
 import it.unibz.inf.ontop.dbschema.DBMetadata;
 import it.unibz.inf.ontop.exception.OntopConnectionException;
@@ -49,11 +51,15 @@ import org.apache.commons.rdf.api.RDF;
  */
 public class SQLConnection implements OntopConnection {
 
+	// Idle prepared statements kept for the queries with parameters
+	private static final int MAX_IDLE_PREPARED_STATEMENTS = 64;
+
 	private final QueryReformulator queryProcessor;
 	private Connection conn;
 	private final Optional<IRIDictionary> iriDictionary;
 	private final DBMetadata dbMetadata;
 	private final InputQueryFactory inputQueryFactory;
+	private final QueryExecutionService executionService;
 	private final TermFactory termFactory;
 	private final TypeFactory typeFactory;
 	private final OntopSystemSQLSettings settings;
@@ -61,11 +67,14 @@ public class SQLConnection implements OntopConnection {
 	private final JDBCConnector jdbcConnector;
 	private boolean isClosed;
 	private final RDF rdfFactory;
+	private final PreparedStatementCache preparedStatementCache =
+			new PreparedStatementCache(MAX_IDLE_PREPARED_STATEMENTS);
 
 
 	public SQLConnection(JDBCConnector jdbcConnector, QueryReformulator queryProcessor, Connection connection,
 						 Optional<IRIDictionary> iriDictionary, DBMetadata dbMetadata,
-						 InputQueryFactory inputQueryFactory, TermFactory termFactory, TypeFactory typeFactory,
+						 InputQueryFactory inputQueryFactory, QueryExecutionService executionService,
+						 TermFactory termFactory, TypeFactory typeFactory,
 						 RDF rdfFactory, OntopSystemSQLSettings settings) {
 		this.jdbcConnector = jdbcConnector;
 		this.queryProcessor = queryProcessor;
@@ -73,6 +82,7 @@ public class SQLConnection implements OntopConnection {
 		this.iriDictionary = iriDictionary;
 		this.dbMetadata = dbMetadata;
 		this.inputQueryFactory = inputQueryFactory;
+		this.executionService = executionService;
 		this.termFactory = termFactory;
 		this.typeFactory = typeFactory;
 		this.settings = settings;
@@ -83,7 +93,11 @@ public class SQLConnection implements OntopConnection {
 	@Override
 	public void close() throws OntopConnectionException {
 		try {
-			conn.close();
+			try {
+				preparedStatementCache.close();
+			} finally {
+				conn.close();
+			}
 		} catch (Exception e) {
 			throw new OntopConnectionException(e);
 		}
@@ -96,10 +110,15 @@ public class SQLConnection implements OntopConnection {
 				// Sometimes it gets dropped, reconnect
 				conn = jdbcConnector.getSQLPoolConnection();
 			}
-			return new SQLQuestStatement(
-					this.queryProcessor,
-					conn.createStatement(java.sql.ResultSet.TYPE_FORWARD_ONLY, java.sql.ResultSet.CONCUR_READ_ONLY),
-					iriDictionary, dbMetadata, inputQueryFactory, termFactory, typeFactory, rdfFactory, settings);
+			Statement sqlStatement = conn.createStatement(java.sql.ResultSet.TYPE_FORWARD_ONLY,
+					java.sql.ResultSet.CONCUR_READ_ONLY);
+			// Connection-level timeout (can be overridden by the statement)
+			int defaultTimeout = settings.getDefaultQueryTimeout();
+			if (defaultTimeout > 0)
+				sqlStatement.setQueryTimeout(defaultTimeout);
+
+			return new SQLQuestStatement(this.queryProcessor, sqlStatement, preparedStatementCache, iriDictionary,
+					dbMetadata, inputQueryFactory, executionService, termFactory, typeFactory, rdfFactory, settings);
 		} catch (Exception e) {
 			throw new OntopConnectionException(e);
 		}
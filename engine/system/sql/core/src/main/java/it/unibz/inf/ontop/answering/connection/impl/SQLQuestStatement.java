@@ -2,6 +2,8 @@ package it.unibz.inf.ontop.answering.connection.impl;
 
 import java.util.Optional;
 
+import com.google.common.collect.ImmutableList;
+import it.unibz.inf.ontop.answering.connection.QueryExecutionService;
 import it.unibz.inf.ontop.answering.reformulation.ExecutableQuery;
 import it.unibz.inf.ontop.answering.reformulation.impl.SQLExecutableQuery;
 import it.unibz.inf.ontop.answering.reformulation.input.*;
@@ -20,6 +22,8 @@ import it.unibz.inf.ontop.model.term.TermFactory;
 import it.unibz.inf.ontop.model.type.TypeFactory;
 import org.apache.commons.rdf.api.RDF;
 
+import javax.annotation.Nullable;
+import java.nio.file.Paths;
 import java.sql.*;
 import java.sql.ResultSet;
 
@@ -37,13 +41,24 @@ public class SQLQuestStatement extends QuestStatement {
     private final RDF rdfFactory;
     private final OntopSystemSQLSettings settings;
 
+    // Prepared statements shared by the statements of the connection
+    private final PreparedStatementCache preparedStatementCache;
+
+    // For queries with parameters. Given back to the cache when the next one is borrowed.
+    @Nullable
+    private volatile PreparedStatement preparedStatement;
+    @Nullable
+    private String preparedSQL;
+
     public SQLQuestStatement(QueryReformulator queryProcessor, Statement sqlStatement,
+                             PreparedStatementCache preparedStatementCache,
                              Optional<IRIDictionary> iriDictionary, DBMetadata dbMetadata,
-                             InputQueryFactory inputQueryFactory,
+                             InputQueryFactory inputQueryFactory, QueryExecutionService executionService,
                              TermFactory termFactory, TypeFactory typeFactory,
                              RDF rdfFactory, OntopSystemSQLSettings settings) {
-        super(queryProcessor, inputQueryFactory);
+        super(queryProcessor, inputQueryFactory, executionService, settings);
         this.sqlStatement = sqlStatement;
+        this.preparedStatementCache = preparedStatementCache;
         this.dbMetadata = dbMetadata;
         this.iriDictionary = iriDictionary;
         this.termFactory = termFactory;
@@ -130,19 +145,26 @@ public class SQLQuestStatement extends QuestStatement {
     }
 
     /**
-     * Returns the number of tuples returned by the query
+     * Returns the number of tuples returned by the query, counted by the DB.
+     *
+     * When the duplicates are removed after the SQL query (see the distinct post-processing),
+     * they are not counted.
      */
     @Override
-    public int getTupleCount(InputQuery inputQuery) throws OntopReformulationException, OntopQueryEvaluationException {
+    public long getTupleCount(InputQuery inputQuery) throws OntopReformulationException, OntopQueryEvaluationException {
         SQLExecutableQuery targetQuery = checkAndConvertTargetQuery(getExecutableQuery(inputQuery));
         String sql = targetQuery.getSQL();
-        String newsql = "SELECT count(*) FROM (" + sql + ") t1";
+        if (sql.isEmpty())
+            return 0;
+        String newsql = settings.isDistinctPostProcessingEnabled()
+                ? "SELECT count(*) FROM (SELECT DISTINCT * FROM (" + sql + ") t0) t1"
+                : "SELECT count(*) FROM (" + sql + ") t1";
         if (!isCanceled()) {
             try {
 
                 java.sql.ResultSet set = sqlStatement.executeQuery(newsql);
                 if (set.next()) {
-                    return set.getInt(1);
+                    return set.getLong(1);
                 } else {
                     //throw new OBDAException("Tuple count failed due to empty result set.");
                     return 0;
@@ -159,8 +181,12 @@ public class SQLQuestStatement extends QuestStatement {
     @Override
     public void close() throws OntopConnectionException {
         try {
-            if (sqlStatement != null)
-                sqlStatement.close();
+            try {
+                giveBackPreparedStatement();
+            } finally {
+                if (sqlStatement != null)
+                    sqlStatement.close();
+            }
         } catch (SQLException e) {
             throw new OntopConnectionException(e);
         }
@@ -168,6 +194,9 @@ public class SQLQuestStatement extends QuestStatement {
 
     protected void cancelExecution() throws OntopQueryEvaluationException {
         try {
+            PreparedStatement currentPreparedStatement = preparedStatement;
+            if (currentPreparedStatement != null)
+                currentPreparedStatement.cancel();
             sqlStatement.cancel();
         } catch (SQLException e) {
             throw new OntopQueryEvaluationException(e);
@@ -184,7 +213,7 @@ public class SQLQuestStatement extends QuestStatement {
         }
 
         try {
-            java.sql.ResultSet set = sqlStatement.executeQuery(sqlQuery);
+            java.sql.ResultSet set = executeSQLQuery(sqlTargetQuery);
             return new SQLBooleanResultSet(set);
         } catch (SQLException e) {
             throw new OntopQueryEvaluationException(e.getMessage());
@@ -201,11 +230,17 @@ public class SQLQuestStatement extends QuestStatement {
             return new EmptyTupleResultSet(executableQuery.getSignature());
         }
         try {
-            java.sql.ResultSet set = sqlStatement.executeQuery(sqlQuery);
+            java.sql.ResultSet set = executeSQLQuery(sqlTargetQuery);
             return settings.isDistinctPostProcessingEnabled()
-                    ? new SQLDistinctTupleResultSet(set, executableQuery.getSignature(), dbMetadata, iriDictionary,
-                    termFactory, typeFactory, rdfFactory)
-                    : new DelegatedIriSQLTupleResultSet(set, executableQuery.getSignature(), dbMetadata, iriDictionary,
+                    ? new SQLDistinctTupleResultSet(set, executableQuery.getSignature(),
+                    sqlTargetQuery.getColumnPlan(), dbMetadata, iriDictionary,
+                    termFactory, typeFactory, rdfFactory,
+                    settings.getDistinctPostProcessingMaxMemory() * 1024L * 1024L,
+                    settings.getDistinctPostProcessingSpillDirectory()
+                            .map(Paths::get)
+                            .orElseGet(() -> Paths.get(System.getProperty("java.io.tmpdir"))))
+                    : new DelegatedIriSQLTupleResultSet(set, executableQuery.getSignature(),
+                    sqlTargetQuery.getColumnPlan(), dbMetadata, iriDictionary,
                     termFactory, typeFactory, rdfFactory);
         } catch (SQLException e) {
             throw new OntopQueryEvaluationException(e);
@@ -213,8 +248,7 @@ public class SQLQuestStatement extends QuestStatement {
     }
 
     @Override
-    protected SimpleGraphResultSet executeGraphQuery(ConstructQuery inputQuery, ExecutableQuery executableQuery,
-                                                     boolean collectResults)
+    protected SimpleGraphResultSet executeGraphQuery(ConstructQuery inputQuery, ExecutableQuery executableQuery)
             throws OntopQueryEvaluationException, OntopResultConversionException, OntopConnectionException {
         SQLExecutableQuery sqlTargetQuery = checkAndConvertTargetQuery(executableQuery);
 
@@ -227,14 +261,53 @@ public class SQLQuestStatement extends QuestStatement {
         }
         else {
             try {
-                ResultSet set = sqlStatement.executeQuery(sqlQuery);
-                tuples = new DelegatedIriSQLTupleResultSet(set, executableQuery.getSignature(), dbMetadata,
+                ResultSet set = executeSQLQuery(sqlTargetQuery);
+                tuples = new DelegatedIriSQLTupleResultSet(set, executableQuery.getSignature(),
+                        sqlTargetQuery.getColumnPlan(), dbMetadata,
                         iriDictionary, termFactory, typeFactory, rdfFactory);
             } catch (SQLException e) {
                 throw new OntopQueryEvaluationException(e.getMessage());
             }
         }
-        return new DefaultSimpleGraphResultSet(tuples, inputQuery.getConstructTemplate(), collectResults, termFactory, rdfFactory);
+        return new DefaultSimpleGraphResultSet(tuples, inputQuery.getConstructTemplate(), termFactory, rdfFactory);
+    }
+
+    /**
+     * Queries with parameters are evaluated with a prepared statement (borrowed from the cache of the connection),
+     * which inherits the fetch size, max rows and timeout of the SQL statement.
+     */
+    private ResultSet executeSQLQuery(SQLExecutableQuery sqlTargetQuery) throws SQLException {
+        ImmutableList<Object> parameterValues = sqlTargetQuery.getParameterValues();
+        if (parameterValues.isEmpty())
+            return sqlStatement.executeQuery(sqlTargetQuery.getSQL());
+
+        String sql = sqlTargetQuery.getSQL();
+        PreparedStatement newStatement;
+        if (sql.equals(preparedSQL) && preparedStatement != null && !preparedStatement.isClosed())
+            newStatement = preparedStatement;
+        else {
+            giveBackPreparedStatement();
+            newStatement = preparedStatementCache.borrow(sqlStatement.getConnection(), sql);
+            preparedStatement = newStatement;
+            preparedSQL = sql;
+        }
+        newStatement.setFetchSize(sqlStatement.getFetchSize());
+        newStatement.setMaxRows(sqlStatement.getMaxRows());
+        newStatement.setQueryTimeout(sqlStatement.getQueryTimeout());
+        for (int i = 0; i < parameterValues.size(); i++) {
+            newStatement.setObject(i + 1, parameterValues.get(i));
+        }
+        return newStatement.executeQuery();
+    }
+
+    private void giveBackPreparedStatement() throws SQLException {
+        PreparedStatement currentPreparedStatement = preparedStatement;
+        if (currentPreparedStatement == null)
+            return;
+        String currentSQL = preparedSQL;
+        preparedStatement = null;
+        preparedSQL = null;
+        preparedStatementCache.giveBack(currentSQL, currentPreparedStatement);
     }
 
     private SQLExecutableQuery checkAndConvertTargetQuery(ExecutableQuery executableQuery) {
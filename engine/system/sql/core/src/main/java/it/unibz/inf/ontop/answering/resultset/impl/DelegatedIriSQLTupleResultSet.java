@@ -24,6 +24,7 @@ package it.unibz.inf.ontop.answering.resultset.impl;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import it.unibz.inf.ontop.answering.reformulation.IRIDictionary;
+import it.unibz.inf.ontop.answering.reformulation.impl.SQLColumnPlan;
 import it.unibz.inf.ontop.answering.resultset.TupleResultSet;
 import it.unibz.inf.ontop.dbschema.DBMetadata;
 import it.unibz.inf.ontop.exception.OntopConnectionException;
@@ -46,21 +47,25 @@ public class DelegatedIriSQLTupleResultSet extends AbstractSQLTupleResultSet imp
 
     private final ImmutableMap<String, Integer> columnMap;
     protected final JDBC2ConstantConverter ontopConstantRetriever;
+    protected final SQLColumnPlan columnPlan;
+    private final SQLRowReader rowReader;
 
-    public DelegatedIriSQLTupleResultSet(ResultSet rs, ImmutableList<String> signature, DBMetadata dbMetadata,
+    public DelegatedIriSQLTupleResultSet(ResultSet rs, ImmutableList<String> signature, SQLColumnPlan columnPlan,
+                                         DBMetadata dbMetadata,
                                          Optional<IRIDictionary> iriDictionary, TermFactory termFactory,
                                          TypeFactory typeFactory, RDF rdfFactory) {
         super(rs, signature);
         this.columnMap = buildColumnMap();
+        this.columnPlan = columnPlan;
         this.ontopConstantRetriever = new JDBC2ConstantConverter(dbMetadata, iriDictionary, termFactory, typeFactory,
                 rdfFactory);
+        this.rowReader = new SQLRowReader(columnPlan, ontopConstantRetriever);
     }
 
     @Override
     protected DelegatedIriSQLBindingSet readCurrentRow() throws OntopConnectionException {
-        SQLRowReader rowReader = new SQLRowReader();
         try {
-            final List<MainTypeLangValues> cells = rowReader.read(rs, getColumnCount());
+            final List<MainTypeLangValues> cells = rowReader.read(rs);
             return new DelegatedIriSQLBindingSet(cells, signature, columnMap, ontopConstantRetriever);
         } catch (SQLException e) {
             throw new OntopConnectionException(e);
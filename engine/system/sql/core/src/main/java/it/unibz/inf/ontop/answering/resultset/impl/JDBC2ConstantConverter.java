@@ -2,30 +2,37 @@ package it.unibz.inf.ontop.answering.resultset.impl;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hashing;
 import it.unibz.inf.ontop.answering.reformulation.IRIDictionary;
 import it.unibz.inf.ontop.answering.reformulation.generation.utils.COL_TYPE;
 import it.unibz.inf.ontop.dbschema.DBMetadata;
+import it.unibz.inf.ontop.exception.MinorOntopInternalBugException;
 import it.unibz.inf.ontop.exception.OntopResultConversionException;
 import it.unibz.inf.ontop.model.term.Constant;
 import it.unibz.inf.ontop.model.term.TermFactory;
+import it.unibz.inf.ontop.model.type.RDFDatatype;
 import it.unibz.inf.ontop.model.type.TypeFactory;
-import it.unibz.inf.ontop.model.vocabulary.XSD;
-import org.apache.commons.lang3.time.DateUtils;
 import org.apache.commons.rdf.api.RDF;
 
+import javax.annotation.Nullable;
+
 import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.math.RoundingMode;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.sql.Timestamp;
 import java.text.DecimalFormat;
+import java.text.ParsePosition;
 import java.time.*;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeFormatterBuilder;
-import java.time.format.DateTimeParseException;
 import java.time.temporal.TemporalAccessor;
+import java.time.temporal.TemporalQuery;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
-import static it.unibz.inf.ontop.answering.reformulation.generation.utils.COL_TYPE.WKT;
 import static it.unibz.inf.ontop.answering.resultset.impl.JDBC2ConstantConverter.System.*;
 
 
@@ -44,9 +51,17 @@ public class JDBC2ConstantConverter {
     private AtomicInteger bnodeCounter;
     private IRIDictionary iriDictionary;
 
+    /**
+     * Beyond this number of distinct blank nodes, the labels are hashes of the DB values
+     */
+    static final int MAX_BNODE_LABELS = 100_000;
+    private static final SecureRandom SALT_GENERATOR = new SecureRandom();
+
     private final Map<String, String> bnodeMap;
+    private final byte[] bnodeSalt;
 
     private final System systemDB;
+    private final ImmutableMap<Integer, ValueConverter> convertersByCode;
 
     static {
         defaultDateTimeFormatter = buildDefaultDateTimeFormatter();
@@ -107,6 +122,9 @@ public class JDBC2ConstantConverter {
         systemDB = identifySystem(vendor);
         this.bnodeCounter = new AtomicInteger();
         bnodeMap = new HashMap<>(1000);
+        bnodeSalt = new byte[16];
+        SALT_GENERATOR.nextBytes(bnodeSalt);
+        this.convertersByCode = buildConverters();
     }
 
     private System identifySystem(String vendor) {
@@ -117,112 +135,40 @@ public class JDBC2ConstantConverter {
         return DEFAULT;
     }
 
-    public Constant getConstantFromJDBC(MainTypeLangValues cell) throws OntopResultConversionException {
-
-        Object value = "";
-        String stringValue;
+    /**
+     * Converts a non-null JDBC value (with its language tag, if any) into a constant.
+     *
+     * Precompiled for one type, so that the type code does not have to be dispatched for each cell.
+     */
+    @FunctionalInterface
+    public interface ValueConverter {
+        @Nullable
+        Constant convert(Object value, @Nullable String language) throws OntopResultConversionException;
+    }
 
-        try {
-            value = cell.getMainValue();
+    /**
+     * Fresh converter, to be used for a single column: datetime formats are detected from its first values.
+     *
+     * Empty if the type code is unknown
+     */
+    public Optional<ValueConverter> createConverter(int typeCode) {
+        return Optional.ofNullable(COL_TYPE.getQuestType(typeCode))
+                .flatMap(this::buildConverter);
+    }
 
-            if (value == null) {
-                return null;
-            }
-            stringValue = String.valueOf(value);
-
-            int t = cell.getTypeValue();
-            COL_TYPE type = COL_TYPE.getQuestType(t);
-            if (type == null)
-                throw new OntopResultConversionException("typeCode unknown: " + t);
-
-            switch (type) {
-                case UNSUPPORTED:
-                    return termFactory.getConstantLiteral(stringValue, typeFactory.getUnsupportedDatatype());
-                case NULL:
-                    return null;
-
-                case OBJECT:
-                    if (iriDictionary != null) {
-                        try {
-                            Integer id = Integer.parseInt(stringValue);
-                            stringValue = iriDictionary.getURI(id);
-                        } catch (NumberFormatException e) {
-                            // If its not a number, then it has to be a URI, so
-                            // we leave realValue as it is.
-                        }
-                    }
-                    return termFactory.getConstantIRI(rdfFactory.createIRI(stringValue.trim()));
-
-                case BNODE:
-                    String scopedLabel = this.bnodeMap.get(stringValue);
-                    if (scopedLabel == null) {
-                        scopedLabel = "b" + bnodeCounter.getAndIncrement();
-                        bnodeMap.put(stringValue, scopedLabel);
-                    }
-                    return termFactory.getConstantBNode(scopedLabel);
-                case LANG_STRING:
-                    // The constant is a literal, we need to find if its
-                    // rdfs:Literal or a normal literal and construct it
-                    // properly.
-                    String language = cell.getLangValue();
-                    if (language == null || language.trim().equals(""))
-                        return termFactory.getConstantLiteral(stringValue);
-                    else
-                        return termFactory.getConstantLiteral(stringValue, language);
-
-                case BOOLEAN:
-
-                    boolean bvalue = Boolean.parseBoolean(stringValue);
-                    return termFactory.getBooleanConstant(bvalue);
-
-                case DECIMAL:
-                    return termFactory.getConstantLiteral(stringValue, XSD.DECIMAL);
-                case FLOAT:
-                    return termFactory.getConstantLiteral(extractFloatingValue(stringValue), XSD.FLOAT);
-                case DOUBLE:
-                    return termFactory.getConstantLiteral(extractFloatingValue(stringValue), XSD.DOUBLE);
-
-                case INT:
-                    return termFactory.getConstantLiteral(stringValue, XSD.INT);
-
-                case LONG:
-                    return termFactory.getConstantLiteral(stringValue, XSD.LONG);
-                case UNSIGNED_INT:
-                    return termFactory.getConstantLiteral(stringValue, XSD.UNSIGNED_INT);
-
-                case INTEGER:
-                    return termFactory.getConstantLiteral(extractIntegerValue(stringValue), XSD.INTEGER);
-                case NEGATIVE_INTEGER:
-                    return termFactory.getConstantLiteral(extractIntegerValue(stringValue), XSD.NEGATIVE_INTEGER);
-                case NON_NEGATIVE_INTEGER:
-                    return termFactory.getConstantLiteral(extractIntegerValue(stringValue), XSD.NON_NEGATIVE_INTEGER);
-                case POSITIVE_INTEGER:
-                    return termFactory.getConstantLiteral(extractIntegerValue(stringValue), XSD.POSITIVE_INTEGER);
-                case NON_POSITIVE_INTEGER:
-                    return termFactory.getConstantLiteral(extractIntegerValue(stringValue), XSD.NON_POSITIVE_INTEGER);
-
-                case STRING:
-                    return termFactory.getConstantLiteral(stringValue, XSD.STRING);
-                case DATETIME:
-                    return termFactory.getConstantLiteral(extractDatetimeValue(value), XSD.DATETIME);
-                case DATETIME_STAMP:
-                    return termFactory.getConstantLiteral(extractDatetimeValue(value), XSD.DATETIMESTAMP);
-
-                case DATE:
-                    return termFactory.getConstantLiteral( DateTimeFormatter.ISO_DATE.format(convertToJavaDate(value)), XSD.DATE);
-
-                case TIME:
-
-                    return termFactory.getConstantLiteral(DateTimeFormatter.ISO_TIME.format(convertToTime(value)), XSD.TIME);
-
-                case YEAR:
-                    return termFactory.getConstantLiteral(stringValue, XSD.GYEAR);
-                case WKT:
-                    return termFactory.getConstantLiteral(stringValue, WKT.getIri().get());
-                default:
-                    throw new IllegalStateException("Unexpected colType: " + type);
+    @Nullable
+    public Constant getConstantFromJDBC(MainTypeLangValues cell) throws OntopResultConversionException {
+        Object value = cell.getMainValue();
+        if (value == null) {
+            return null;
+        }
+        ValueConverter converter = cell.getConverter()
+                .orElseGet(() -> convertersByCode.get(cell.getTypeValue()));
+        if (converter == null)
+            throw new OntopResultConversionException("typeCode unknown: " + cell.getTypeValue());
 
-            }
+        try {
+            return converter.convert(value, cell.getLangValue());
         } catch (IllegalArgumentException e) {
             Throwable cause = e.getCause();
             if (cause instanceof URISyntaxException) {
@@ -242,16 +188,162 @@ public class JDBC2ConstantConverter {
                 ex.setStackTrace(e.getStackTrace());
                 throw ex;
             }
+        } catch (OntopResultConversionException e) {
+            throw e;
         } catch (Exception e) {
             throw new OntopResultConversionException(e);
         }
     }
 
-    private String extractFloatingValue(String stringValue) {
+    /**
+     * One converter per type code (the UNSUPPORTED type has no code), shared by the columns whose type varies
+     */
+    private ImmutableMap<Integer, ValueConverter> buildConverters() {
+        ImmutableMap.Builder<Integer, ValueConverter> builder = ImmutableMap.builder();
+        for (COL_TYPE type : COL_TYPE.values()) {
+            if (COL_TYPE.getQuestType(type.getQuestCode()) == type)
+                buildConverter(type)
+                        .ifPresent(c -> builder.put(type.getQuestCode(), c));
+        }
+        return builder.build();
+    }
+
+    /**
+     * The datatypes are resolved once (and not for each value)
+     */
+    private Optional<ValueConverter> buildConverter(COL_TYPE type) {
+        switch (type) {
+            case NULL:
+                return Optional.of((v, l) -> null);
+            case OBJECT:
+                return Optional.of((v, l) -> convertIRI(v));
+            case BNODE:
+                return Optional.of((v, l) -> convertBNode(String.valueOf(v)));
+            case LANG_STRING:
+                return Optional.of((v, l) -> (l == null || l.trim().equals(""))
+                        // The constant is a literal, we need to find if its
+                        // rdfs:Literal or a normal literal and construct it
+                        // properly.
+                        ? termFactory.getConstantLiteral(String.valueOf(v))
+                        : termFactory.getConstantLiteral(String.valueOf(v), l));
+            case BOOLEAN:
+                return Optional.of((v, l) -> termFactory.getBooleanConstant((v instanceof Boolean)
+                        ? (Boolean) v
+                        : Boolean.parseBoolean(String.valueOf(v))));
+            case FLOAT:
+            case DOUBLE: {
+                RDFDatatype datatype = getDatatype(type);
+                return Optional.of((v, l) -> termFactory.getConstantLiteral(extractFloatingValue(v), datatype));
+            }
+            case INTEGER:
+            case NEGATIVE_INTEGER:
+            case NON_NEGATIVE_INTEGER:
+            case POSITIVE_INTEGER:
+            case NON_POSITIVE_INTEGER: {
+                RDFDatatype datatype = getDatatype(type);
+                return Optional.of((v, l) -> termFactory.getConstantLiteral(extractIntegerValue(v), datatype));
+            }
+            case DATETIME:
+            case DATETIME_STAMP: {
+                RDFDatatype datatype = getDatatype(type);
+                TemporalParser parser = new TemporalParser(system2DateTimeFormatter.get(systemDB),
+                        OffsetDateTime::from, LocalDateTime::from, LocalDate::from);
+                return Optional.of((v, l) -> termFactory.getConstantLiteral(extractDatetimeValue(v, parser), datatype));
+            }
+            case DATE: {
+                RDFDatatype datatype = getDatatype(type);
+                TemporalParser parser = new TemporalParser(system2DateTimeFormatter.get(systemDB),
+                        OffsetDateTime::from, LocalDateTime::from, LocalDate::from);
+                return Optional.of((v, l) -> termFactory.getConstantLiteral(
+                        DateTimeFormatter.ISO_DATE.format(convertToJavaDate(v, parser)), datatype));
+            }
+            case TIME: {
+                RDFDatatype datatype = getDatatype(type);
+                TemporalParser parser = new TemporalParser(system2TimeFormatter.get(DEFAULT),
+                        OffsetTime::from, LocalTime::from);
+                return Optional.of((v, l) -> termFactory.getConstantLiteral(
+                        DateTimeFormatter.ISO_TIME.format(convertToTime(v, parser)), datatype));
+            }
+            case DECIMAL:
+            case INT:
+            case LONG:
+            case UNSIGNED_INT:
+            case STRING:
+            case YEAR:
+            case WKT: {
+                RDFDatatype datatype = getDatatype(type);
+                return Optional.of((v, l) -> termFactory.getConstantLiteral(String.valueOf(v), datatype));
+            }
+            default:
+                return Optional.empty();
+        }
+    }
+
+    private RDFDatatype getDatatype(COL_TYPE type) {
+        return typeFactory.getDatatype(type.getIri()
+                .orElseThrow(() -> new MinorOntopInternalBugException("No datatype IRI for " + type)));
+    }
+
+    private Constant convertIRI(Object value) {
+        String stringValue = String.valueOf(value);
+        // Most IRIs are not numbers: checked before parsing, to avoid building exceptions
+        if (iriDictionary != null && isInteger(stringValue)) {
+            try {
+                Integer id = Integer.parseInt(stringValue);
+                stringValue = iriDictionary.getURI(id);
+            } catch (NumberFormatException e) {
+                // If its not a number, then it has to be a URI, so
+                // we leave realValue as it is.
+            }
+        }
+        return termFactory.getConstantIRI(rdfFactory.createIRI(stringValue.trim()));
+    }
+
+    private static boolean isInteger(String s) {
+        int length = s.length();
+        int start = (length > 0 && (s.charAt(0) == '-' || s.charAt(0) == '+')) ? 1 : 0;
+        if (length == start)
+            return false;
+        for (int i = start; i < length; i++) {
+            if (!Character.isDigit(s.charAt(i)))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * The first MAX_BNODE_LABELS blank nodes receive short labels (b0, b1, ...).
+     * The following ones are labelled after a salted hash of their DB value, so that the memory footprint
+     * remains bounded while the labels stay consistent within the result set.
+     * The salt being specific to the result set, the labels do not reveal the DB values.
+     */
+    private Constant convertBNode(String stringValue) {
+        String scopedLabel = this.bnodeMap.get(stringValue);
+        if (scopedLabel == null) {
+            if (bnodeMap.size() < MAX_BNODE_LABELS) {
+                scopedLabel = "b" + bnodeCounter.getAndIncrement();
+                bnodeMap.put(stringValue, scopedLabel);
+            }
+            else
+                scopedLabel = "b_" + Hashing.sha256().newHasher()
+                        .putBytes(bnodeSalt)
+                        .putString(stringValue, StandardCharsets.UTF_8)
+                        .hash();
+        }
+        return termFactory.getConstantBNode(scopedLabel);
+    }
+
+    private String extractFloatingValue(Object value) {
+        if (value instanceof Double && (((Double) value).isNaN() || ((Double) value).isInfinite())
+                || (value instanceof Float && (((Float) value).isNaN() || ((Float) value).isInfinite())))
+            return String.valueOf(value);
+
+        String stringValue = String.valueOf(value);
         BigDecimal bigDecimal;
         try {
-            bigDecimal = new BigDecimal (stringValue);
-
+            bigDecimal = (value instanceof BigDecimal)
+                    ? (BigDecimal) value
+                    : new BigDecimal(stringValue);
         }
         catch (NumberFormatException e){
             return stringValue;
@@ -262,8 +354,8 @@ public class JDBC2ConstantConverter {
         return  formatter.format(bigDecimal);
     }
 
-    private String extractDatetimeValue(Object value) throws OntopResultConversionException {
-        TemporalAccessor temporal = convertToJavaDate(value);
+    private String extractDatetimeValue(Object value, TemporalParser parser) throws OntopResultConversionException {
+        TemporalAccessor temporal = convertToJavaDate(value, parser);
         if(temporal instanceof LocalDate){
             temporal = LocalDateTime.of((LocalDate)temporal, LocalTime.MIDNIGHT);
         }
@@ -273,68 +365,114 @@ public class JDBC2ConstantConverter {
     /**
      * Sometimes the integer may have been converted as DECIMAL, FLOAT or DOUBLE
      */
-    private String extractIntegerValue(String stringValue) {
-        return String.valueOf(new BigDecimal(stringValue).toBigInteger());
+    private String extractIntegerValue(Object value) {
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte
+                || value instanceof BigInteger)
+            return value.toString();
+        if (value instanceof BigDecimal)
+            return String.valueOf(((BigDecimal) value).toBigInteger());
+        return String.valueOf(new BigDecimal(String.valueOf(value)).toBigInteger());
     }
 
-    private TemporalAccessor convertToJavaDate(Object value) throws OntopResultConversionException {
-        TemporalAccessor dateValue = null;
-
-        if (value instanceof Date ) {
+    private TemporalAccessor convertToJavaDate(Object value, TemporalParser parser) throws OntopResultConversionException {
+        if (value instanceof Date) {
             // If JDBC gives us proper Java object, we simply return the formatted version of the datatype
-            Calendar calendar = DateUtils.toCalendar(((Date) value));
-            TimeZone timeZone = calendar.getTimeZone();
-            dateValue = OffsetDateTime.from(calendar.toInstant().atZone(timeZone.toZoneId()));
-        } else {
-            // Otherwise, we need to deal with possible String representation of datetime
-            String stringValue = String.valueOf(value);
-            for (DateTimeFormatter format : system2DateTimeFormatter.get(systemDB)) {
-                try {
-                    dateValue = format.parseBest(stringValue, OffsetDateTime::from, LocalDateTime::from, LocalDate::from);
-
-                    break;
-                } catch (DateTimeParseException e) {
-                    // continue with the next try
-                }
-            }
-
-            if (dateValue == null) {
-                throw new OntopResultConversionException("unparseable datetime: " + stringValue);
-            }
-
+            return OffsetDateTime.ofInstant(toInstant((Date) value), ZoneId.systemDefault());
+        }
+        // JDBC 4.2 drivers may directly return java.time objects
+        if (value instanceof OffsetDateTime || value instanceof LocalDateTime || value instanceof LocalDate)
+            return (TemporalAccessor) value;
+        if (value instanceof ZonedDateTime)
+            return ((ZonedDateTime) value).toOffsetDateTime();
+
+        // Otherwise, we need to deal with possible String representation of datetime
+        String stringValue = String.valueOf(value);
+        TemporalAccessor dateValue = parser.parse(stringValue);
+        if (dateValue == null) {
+            throw new OntopResultConversionException("unparseable datetime: " + stringValue);
         }
         return dateValue;
-
     }
 
-    private TemporalAccessor convertToTime(Object value) throws OntopResultConversionException {
-        TemporalAccessor timeValue = null;
+    /**
+     * The fractional seconds of a timestamp are not limited to milliseconds
+     */
+    private static Instant toInstant(Date date) {
+        return (date instanceof Timestamp)
+                ? ((Timestamp) date).toInstant()
+                : Instant.ofEpochMilli(date.getTime());
+    }
 
-        if (value instanceof Date ) {
+    private TemporalAccessor convertToTime(Object value, TemporalParser parser) throws OntopResultConversionException {
+        if (value instanceof Date) {
             // If JDBC gives us proper Java object, we simply return the formatted version of the datatype
-            Calendar calendar = DateUtils.toCalendar(((Date) value));
-            TimeZone timeZone = calendar.getTimeZone();
-            timeValue = OffsetTime.from(calendar.toInstant().atZone(timeZone.toZoneId()));
-        } else {
-            // Otherwise, we need to deal with possible String representation of datetime
-            String stringValue = String.valueOf(value);
-            for (DateTimeFormatter format : system2TimeFormatter.get(DEFAULT)) {
-                try {
-                    timeValue = format.parseBest(stringValue, OffsetTime::from, LocalTime::from);
-
-                    break;
-                } catch (DateTimeParseException e) {
-                    // continue with the next try
+            return OffsetTime.ofInstant(Instant.ofEpochMilli(((Date) value).getTime()), ZoneId.systemDefault());
+        }
+        // JDBC 4.2 drivers may directly return java.time objects
+        if (value instanceof OffsetTime || value instanceof LocalTime)
+            return (TemporalAccessor) value;
+
+        // Otherwise, we need to deal with possible String representation of datetime
+        String stringValue = String.valueOf(value);
+        TemporalAccessor timeValue = parser.parse(stringValue);
+        if (timeValue == null) {
+            throw new OntopResultConversionException("unparseable time: " + stringValue);
+        }
+        return timeValue;
+    }
+
+
+    /**
+     * Parses the string representations of the temporal values of a column.
+     *
+     * The values of a column being usually formatted the same way, the formatter that succeeded last
+     * is tried first. Failed attempts do not throw (and build) exceptions.
+     *
+     * Not thread-safe.
+     */
+    static class TemporalParser {
+        private final ImmutableList<DateTimeFormatter> formatters;
+        private final TemporalQuery<?>[] queries;
+        private int preferredIndex;
+
+        TemporalParser(ImmutableList<DateTimeFormatter> formatters, TemporalQuery<?>... queries) {
+            this.formatters = formatters;
+            this.queries = queries;
+            this.preferredIndex = 0;
+        }
+
+        @Nullable
+        TemporalAccessor parse(String value) {
+            TemporalAccessor temporal = tryParse(formatters.get(preferredIndex), value);
+            if (temporal != null)
+                return temporal;
+
+            for (int i = 0; i < formatters.size(); i++) {
+                if (i == preferredIndex)
+                    continue;
+                temporal = tryParse(formatters.get(i), value);
+                if (temporal != null) {
+                    preferredIndex = i;
+                    return temporal;
                 }
             }
+            return null;
+        }
 
-            if (timeValue == null) {
-                throw new OntopResultConversionException("unparseable time: " + stringValue);
+        @Nullable
+        private TemporalAccessor tryParse(DateTimeFormatter formatter, String value) {
+            ParsePosition position = new ParsePosition(0);
+            // Returns null instead of throwing an exception
+            if (formatter.parseUnresolved(value, position) == null
+                    || position.getErrorIndex() >= 0
+                    || position.getIndex() != value.length())
+                return null;
+            try {
+                return formatter.parseBest(value, queries);
+            } catch (DateTimeException e) {
+                // Rare: syntactically valid but not resolvable
+                return null;
             }
         }
-        return timeValue;
-
     }
-
-
 }
@@ -1,6 +1,9 @@
 package it.unibz.inf.ontop.answering.resultset.impl;
 
+import it.unibz.inf.ontop.answering.resultset.impl.JDBC2ConstantConverter.ValueConverter;
+
 import javax.annotation.Nullable;
+import java.util.Optional;
 
 public class MainTypeLangValues {
 
@@ -13,10 +16,21 @@ public class MainTypeLangValues {
     @Nullable
     private Object mainValue;
 
+    /**
+     * Present when the type is static
+     */
+    @Nullable
+    private ValueConverter converter;
+
     MainTypeLangValues(Object mainValue, Integer typeValue, String langValue) {
+        this(mainValue, typeValue, langValue, null);
+    }
+
+    MainTypeLangValues(Object mainValue, Integer typeValue, String langValue, @Nullable ValueConverter converter) {
         this.mainValue = mainValue;
         this.typeValue = typeValue;
         this.langValue = langValue;
+        this.converter = converter;
     }
 
     @Nullable
@@ -33,5 +47,8 @@ public class MainTypeLangValues {
     public Object getMainValue() {
         return mainValue;
     }
-}
 
+    public Optional<ValueConverter> getConverter() {
+        return Optional.ofNullable(converter);
+    }
+}
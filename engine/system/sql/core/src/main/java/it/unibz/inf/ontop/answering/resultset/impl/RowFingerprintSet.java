@@ -0,0 +1,619 @@
+package it.unibz.inf.ontop.answering.resultset.impl;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Set of the rows already seen, for removing duplicates from a result set.
+ *
+ * Each row is serialized and identified by a 128-bit fingerprint, kept in an open-addressing table
+ * of primitive longs, next to the offset of the serialized row. The serialized rows are compared
+ * when their fingerprints are equal, so that colliding fingerprints never merge distinct rows.
+ *
+ * When the table or the serialized rows would exceed the memory budget, the rows are appended to a row file
+ * and the fingerprints are sorted into a new run file. Runs of similar sizes are merged pairwise,
+ * so that their number remains logarithmic in the number of spilled fingerprints.
+ * The runs are looked up through a sparse in-memory index and positional reads (no memory mapping,
+ * so that the files can be deleted as soon as they are closed).
+ *
+ * Not thread-safe. Must be closed (for deleting the files).
+ */
+class RowFingerprintSet implements Closeable {
+
+    /**
+     * First half, second half and offset of the serialized row
+     */
+    private static final int SLOT_LONGS = 3;
+    private static final int RECORD_SIZE = SLOT_LONGS * Long.BYTES;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MAX_CAPACITY = 1 << 28;
+    private static final int MIN_ROW_BUFFER_SIZE = 1 << 16;
+    /**
+     * One fingerprint out of INDEX_INTERVAL is kept in memory for each run
+     */
+    private static final int INDEX_INTERVAL = 128;
+    private static final String FILE_PREFIX = "ontop-distinct-";
+
+    private final int maxCapacity;
+    private final int maxRowBufferSize;
+    private final Path spillDirectory;
+    /**
+     * Lower than -1 for testing the collisions only
+     */
+    private final long fingerprintMask;
+
+    /**
+     * Triples (first half, second half, offset in the row buffer). The pair (0,0) marks an empty slot.
+     */
+    private long[] table;
+    private int capacity;
+    private int size;
+
+    /**
+     * Serialized rows of the table, each preceded by its length (int)
+     */
+    private byte[] rowBuffer;
+    private int rowBufferLength;
+
+    /**
+     * Serialization of the current row (reused)
+     */
+    private byte[] currentRow;
+    private int currentRowLength;
+
+    private FileChannel rowFileChannel;
+    private Path rowFile;
+    private long rowFileSize;
+    private final List<Run> runs;
+    private final ByteBuffer recordBlock;
+    private final ByteBuffer lengthBuffer;
+    private ByteBuffer rowReadBuffer;
+    private int spillCount;
+
+    private long rowCount;
+    private long distinctRowCount;
+
+    /**
+     * memoryBudget: in bytes
+     */
+    RowFingerprintSet(long memoryBudget, Path spillDirectory) {
+        this(memoryBudget, spillDirectory, -1L);
+    }
+
+    /**
+     * fingerprintMask: applied to the fingerprint halves (for testing the collisions)
+     */
+    RowFingerprintSet(long memoryBudget, Path spillDirectory, long fingerprintMask) {
+        this.spillDirectory = spillDirectory;
+        this.fingerprintMask = fingerprintMask;
+        // Half of the budget for the table: largest power of 2 fitting in it, not smaller than the initial capacity
+        long maxSlots = Math.max(INITIAL_CAPACITY,
+                Long.highestOneBit(Math.max(1, memoryBudget / 2 / RECORD_SIZE)));
+        this.maxCapacity = (int) Math.min(maxSlots, MAX_CAPACITY);
+        this.maxRowBufferSize = (int) Math.max(MIN_ROW_BUFFER_SIZE, Math.min(memoryBudget / 2, Integer.MAX_VALUE / 2));
+        this.capacity = Math.min(INITIAL_CAPACITY, maxCapacity);
+        this.table = new long[SLOT_LONGS * capacity];
+        this.size = 0;
+        this.rowBuffer = new byte[4096];
+        this.rowBufferLength = 0;
+        this.currentRow = new byte[256];
+        this.runs = new ArrayList<>();
+        this.recordBlock = ByteBuffer.allocate(INDEX_INTERVAL * RECORD_SIZE);
+        this.lengthBuffer = ByteBuffer.allocate(Integer.BYTES);
+        this.rowReadBuffer = ByteBuffer.allocate(256);
+        this.spillCount = 0;
+    }
+
+    /**
+     * Returns true if the row had not been seen before.
+     *
+     * Values are compared through their string representation.
+     */
+    boolean add(Object[] row) throws IOException {
+        rowCount++;
+        serialize(row);
+
+        long first = 0xcbf29ce484222325L;
+        long second = 0x84222325cbf29ce4L;
+        for (int i = 0; i < currentRowLength; i++) {
+            int b = currentRow[i];
+            first = (first ^ b) * 0x100000001b3L;
+            second = Long.rotateLeft(second ^ (b * 0xc2b2ae3d27d4eb4fL), 31) * 0x9e3779b97f4a7c15L;
+        }
+        first = mix(first) & fingerprintMask;
+        second = mix(second) & fingerprintMask;
+        if (first == 0 && second == 0)
+            second = 1;
+
+        if (containsInTable(first, second) || containsInRuns(first, second))
+            return false;
+
+        insertIntoTable(first, second, appendCurrentRow());
+        distinctRowCount++;
+        if (size > capacity / 2 && capacity < maxCapacity)
+            resize(2 * capacity);
+        else if (size > capacity / 2 || rowBufferLength > maxRowBufferSize)
+            spill();
+        return true;
+    }
+
+    long getRowCount() {
+        return rowCount;
+    }
+
+    long getDistinctRowCount() {
+        return distinctRowCount;
+    }
+
+    /**
+     * Bytes used by the in-memory table, the serialized rows and the run indexes
+     */
+    long getMemoryUsed() {
+        return (long) table.length * Long.BYTES + rowBuffer.length
+                + runs.stream()
+                .mapToLong(r -> (long) r.indexFirsts.length * 2 * Long.BYTES)
+                .sum();
+    }
+
+    long getSpilledFingerprintCount() {
+        return runs.stream()
+                .mapToLong(r -> r.count)
+                .sum();
+    }
+
+    int getSpillCount() {
+        return spillCount;
+    }
+
+    int getRunCount() {
+        return runs.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        table = new long[0];
+        rowBuffer = new byte[0];
+        IOException exception = null;
+        for (Run run : runs) {
+            try {
+                run.delete();
+            } catch (IOException e) {
+                exception = e;
+            }
+        }
+        runs.clear();
+        if (rowFile != null) {
+            try {
+                rowFileChannel.close();
+                Files.deleteIfExists(rowFile);
+            } catch (IOException e) {
+                exception = e;
+            }
+            rowFile = null;
+        }
+        if (exception != null)
+            throw exception;
+    }
+
+    /**
+     * For each value: a null marker (0) or a presence marker (1), its length and its chars
+     */
+    private void serialize(Object[] row) {
+        currentRowLength = 0;
+        for (Object value : row) {
+            if (value == null) {
+                ensureCurrentRowCapacity(1);
+                currentRow[currentRowLength++] = 0;
+                continue;
+            }
+            String s = (value instanceof byte[])
+                    ? Arrays.toString((byte[]) value)
+                    : value.toString();
+            int length = s.length();
+            ensureCurrentRowCapacity(5 + 2 * length);
+            currentRow[currentRowLength++] = 1;
+            writeInt(currentRow, currentRowLength, length);
+            currentRowLength += Integer.BYTES;
+            for (int i = 0; i < length; i++) {
+                char c = s.charAt(i);
+                currentRow[currentRowLength++] = (byte) (c >>> 8);
+                currentRow[currentRowLength++] = (byte) c;
+            }
+        }
+    }
+
+    private void ensureCurrentRowCapacity(int additionalLength) {
+        if (currentRowLength + additionalLength > currentRow.length)
+            currentRow = Arrays.copyOf(currentRow,
+                    Math.max(2 * currentRow.length, currentRowLength + additionalLength));
+    }
+
+    /**
+     * Returns the offset of the current row in the row buffer
+     */
+    private int appendCurrentRow() {
+        int offset = rowBufferLength;
+        int newLength = rowBufferLength + Integer.BYTES + currentRowLength;
+        if (newLength > rowBuffer.length)
+            rowBuffer = Arrays.copyOf(rowBuffer, Math.max(2 * rowBuffer.length, newLength));
+        writeInt(rowBuffer, offset, currentRowLength);
+        System.arraycopy(currentRow, 0, rowBuffer, offset + Integer.BYTES, currentRowLength);
+        rowBufferLength = newLength;
+        return offset;
+    }
+
+    private static void writeInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xff) << 24) | ((bytes[offset + 1] & 0xff) << 16)
+                | ((bytes[offset + 2] & 0xff) << 8) | (bytes[offset + 3] & 0xff);
+    }
+
+    /**
+     * Finalizer of SplitMix64
+     */
+    private static long mix(long h) {
+        h = (h ^ (h >>> 30)) * 0xbf58476d1ce4e5b9L;
+        h = (h ^ (h >>> 27)) * 0x94d049bb133111ebL;
+        return h ^ (h >>> 31);
+    }
+
+    /**
+     * Distinct rows may share a fingerprint: all the slots of the cluster are examined
+     */
+    private boolean containsInTable(long first, long second) {
+        int mask = capacity - 1;
+        for (int slot = (int) first & mask; ; slot = (slot + 1) & mask) {
+            int index = SLOT_LONGS * slot;
+            long f = table[index];
+            long s = table[index + 1];
+            if (f == 0 && s == 0)
+                return false;
+            if (f == first && s == second && isCurrentRowInBuffer((int) table[index + 2]))
+                return true;
+        }
+    }
+
+    private boolean isCurrentRowInBuffer(int offset) {
+        int length = readInt(rowBuffer, offset);
+        if (length != currentRowLength)
+            return false;
+        int start = offset + Integer.BYTES;
+        for (int i = 0; i < length; i++) {
+            if (rowBuffer[start + i] != currentRow[i])
+                return false;
+        }
+        return true;
+    }
+
+    private void insertIntoTable(long first, long second, long rowOffset) {
+        int mask = capacity - 1;
+        int slot = (int) first & mask;
+        while (table[SLOT_LONGS * slot] != 0 || table[SLOT_LONGS * slot + 1] != 0)
+            slot = (slot + 1) & mask;
+        int index = SLOT_LONGS * slot;
+        table[index] = first;
+        table[index + 1] = second;
+        table[index + 2] = rowOffset;
+        size++;
+    }
+
+    private void resize(int newCapacity) {
+        long[] oldTable = table;
+        table = new long[SLOT_LONGS * newCapacity];
+        capacity = newCapacity;
+        size = 0;
+        for (int i = 0; i < oldTable.length; i += SLOT_LONGS) {
+            if (oldTable[i] != 0 || oldTable[i + 1] != 0)
+                insertIntoTable(oldTable[i], oldTable[i + 1], oldTable[i + 2]);
+        }
+    }
+
+    /**
+     * Appends the serialized rows to the row file, writes the sorted fingerprints into a new run
+     * and empties the table
+     */
+    private void spill() throws IOException {
+        if (rowFile == null) {
+            rowFile = Files.createTempFile(spillDirectory, FILE_PREFIX, ".rows");
+            rowFileChannel = FileChannel.open(rowFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        ByteBuffer rows = ByteBuffer.wrap(rowBuffer, 0, rowBufferLength);
+        long position = rowFileSize;
+        while (rows.hasRemaining())
+            position += rowFileChannel.write(rows, position);
+
+        long[] sorted = new long[SLOT_LONGS * size];
+        int n = 0;
+        for (int i = 0; i < table.length; i += SLOT_LONGS) {
+            if (table[i] != 0 || table[i + 1] != 0) {
+                sorted[n++] = table[i];
+                sorted[n++] = table[i + 1];
+                // Offset in the row file
+                sorted[n++] = rowFileSize + table[i + 2];
+            }
+        }
+        sortTriples(sorted, 0, size - 1);
+        rowFileSize = position;
+
+        Path runFile = Files.createTempFile(spillDirectory, FILE_PREFIX, ".run");
+        try (RunWriter writer = new RunWriter(runFile, size)) {
+            for (int i = 0; i < size; i++)
+                writer.write(sorted[SLOT_LONGS * i], sorted[SLOT_LONGS * i + 1], sorted[SLOT_LONGS * i + 2]);
+            runs.add(writer.toRun());
+        }
+        spillCount++;
+
+        // Binary counter: the last run is merged with the previous one while it is not smaller
+        while (runs.size() > 1 && runs.get(runs.size() - 1).count >= runs.get(runs.size() - 2).count) {
+            Run newer = runs.remove(runs.size() - 1);
+            Run older = runs.remove(runs.size() - 1);
+            runs.add(merge(older, newer));
+        }
+
+        Arrays.fill(table, 0);
+        size = 0;
+        rowBufferLength = 0;
+    }
+
+    private Run merge(Run run1, Run run2) throws IOException {
+        Path mergedFile = Files.createTempFile(spillDirectory, FILE_PREFIX, ".run");
+        Run mergedRun;
+        try (RunWriter writer = new RunWriter(mergedFile, run1.count + run2.count);
+             DataInputStream in1 = run1.openStream();
+             DataInputStream in2 = run2.openStream()) {
+            long remaining1 = run1.count;
+            long remaining2 = run2.count;
+            long[] record1 = new long[SLOT_LONGS];
+            long[] record2 = new long[SLOT_LONGS];
+            if (remaining1 > 0)
+                readRecord(in1, record1);
+            if (remaining2 > 0)
+                readRecord(in2, record2);
+            while (remaining1 > 0 || remaining2 > 0) {
+                if (remaining2 == 0
+                        || (remaining1 > 0 && compare(record1[0], record1[1], record2[0], record2[1]) <= 0)) {
+                    writer.write(record1[0], record1[1], record1[2]);
+                    if (--remaining1 > 0)
+                        readRecord(in1, record1);
+                }
+                else {
+                    writer.write(record2[0], record2[1], record2[2]);
+                    if (--remaining2 > 0)
+                        readRecord(in2, record2);
+                }
+            }
+            mergedRun = writer.toRun();
+        }
+        run1.delete();
+        run2.delete();
+        return mergedRun;
+    }
+
+    private static void readRecord(DataInputStream in, long[] record) throws IOException {
+        for (int i = 0; i < SLOT_LONGS; i++)
+            record[i] = in.readLong();
+    }
+
+    private boolean containsInRuns(long first, long second) throws IOException {
+        for (Run run : runs) {
+            if (containsInRun(run, first, second))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Scans the run from the last indexed fingerprint lower than the given one,
+     * until a greater fingerprint is met
+     */
+    private boolean containsInRun(Run run, long first, long second) throws IOException {
+        int low = 0;
+        int high = run.indexFirsts.length - 1;
+        int startEntry = 0;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (compare(run.indexFirsts[middle], run.indexSeconds[middle], first, second) < 0) {
+                startEntry = middle;
+                low = middle + 1;
+            }
+            else
+                high = middle - 1;
+        }
+
+        for (long record = (long) startEntry * INDEX_INTERVAL; record < run.count; ) {
+            int blockSize = (int) Math.min(INDEX_INTERVAL, run.count - record);
+            readFully(run.channel, recordBlock, record * RECORD_SIZE, blockSize * RECORD_SIZE);
+            for (int i = 0; i < blockSize; i++) {
+                int position = i * RECORD_SIZE;
+                int comparison = compare(recordBlock.getLong(position), recordBlock.getLong(position + Long.BYTES),
+                        first, second);
+                if (comparison > 0)
+                    return false;
+                if (comparison == 0 && isCurrentRowInFile(recordBlock.getLong(position + 2 * Long.BYTES)))
+                    return true;
+            }
+            record += blockSize;
+        }
+        return false;
+    }
+
+    private boolean isCurrentRowInFile(long offset) throws IOException {
+        readFully(rowFileChannel, lengthBuffer, offset, Integer.BYTES);
+        int length = lengthBuffer.getInt(0);
+        if (length != currentRowLength)
+            return false;
+        if (rowReadBuffer.capacity() < length)
+            rowReadBuffer = ByteBuffer.allocate(Math.max(2 * rowReadBuffer.capacity(), length));
+        readFully(rowFileChannel, rowReadBuffer, offset + Integer.BYTES, length);
+        for (int i = 0; i < length; i++) {
+            if (rowReadBuffer.get(i) != currentRow[i])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Positional read of length bytes into the buffer (from its start)
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position, int length)
+            throws IOException {
+        buffer.clear();
+        buffer.limit(length);
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0)
+                throw new EOFException("Unexpected end of the spill file");
+        }
+    }
+
+    private static int compare(long first1, long second1, long first2, long second2) {
+        int comparison = Long.compare(first1, first2);
+        return comparison != 0 ? comparison : Long.compare(second1, second2);
+    }
+
+    /**
+     * Quicksort of the triples from..to (inclusive), by fingerprint
+     */
+    private static void sortTriples(long[] triples, int from, int to) {
+        while (from < to) {
+            if (to - from < 16) {
+                // Insertion sort
+                for (int i = from + 1; i <= to; i++) {
+                    for (int j = i; j > from && compareTriples(triples, j - 1, j) > 0; j--)
+                        swap(triples, j - 1, j);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            long pivotFirst = triples[SLOT_LONGS * middle];
+            long pivotSecond = triples[SLOT_LONGS * middle + 1];
+            int i = from;
+            int j = to;
+            while (i <= j) {
+                while (compare(triples[SLOT_LONGS * i], triples[SLOT_LONGS * i + 1], pivotFirst, pivotSecond) < 0)
+                    i++;
+                while (compare(triples[SLOT_LONGS * j], triples[SLOT_LONGS * j + 1], pivotFirst, pivotSecond) > 0)
+                    j--;
+                if (i <= j) {
+                    swap(triples, i, j);
+                    i++;
+                    j--;
+                }
+            }
+            // Recurses on the smaller part
+            if (j - from < to - i) {
+                sortTriples(triples, from, j);
+                from = i;
+            }
+            else {
+                sortTriples(triples, i, to);
+                to = j;
+            }
+        }
+    }
+
+    private static int compareTriples(long[] triples, int i, int j) {
+        return compare(triples[SLOT_LONGS * i], triples[SLOT_LONGS * i + 1],
+                triples[SLOT_LONGS * j], triples[SLOT_LONGS * j + 1]);
+    }
+
+    private static void swap(long[] triples, int i, int j) {
+        for (int k = 0; k < SLOT_LONGS; k++) {
+            long value = triples[SLOT_LONGS * i + k];
+            triples[SLOT_LONGS * i + k] = triples[SLOT_LONGS * j + k];
+            triples[SLOT_LONGS * j + k] = value;
+        }
+    }
+
+
+    /**
+     * Sorted file of records (first half, second half, row offset), with its sparse index.
+     * Its channel remains open for the positional reads.
+     */
+    private static class Run {
+        private final Path file;
+        private final FileChannel channel;
+        private final long count;
+        private final long[] indexFirsts;
+        private final long[] indexSeconds;
+
+        private Run(Path file, FileChannel channel, long count, long[] indexFirsts, long[] indexSeconds) {
+            this.file = file;
+            this.channel = channel;
+            this.count = count;
+            this.indexFirsts = indexFirsts;
+            this.indexSeconds = indexSeconds;
+        }
+
+        DataInputStream openStream() throws IOException {
+            return new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+        }
+
+        void delete() throws IOException {
+            channel.close();
+            Files.deleteIfExists(file);
+        }
+    }
+
+
+    /**
+     * Writes the sorted records and builds the sparse index.
+     * The file is deleted if the run is not built.
+     */
+    private static class RunWriter implements Closeable {
+        private final Path file;
+        private final DataOutputStream out;
+        private final long[] indexFirsts;
+        private final long[] indexSeconds;
+        private long count;
+        private boolean isBuilt;
+
+        RunWriter(Path file, long expectedCount) throws IOException {
+            this.file = file;
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+            int indexSize = (int) ((expectedCount + INDEX_INTERVAL - 1) / INDEX_INTERVAL);
+            this.indexFirsts = new long[indexSize];
+            this.indexSeconds = new long[indexSize];
+            this.count = 0;
+            this.isBuilt = false;
+        }
+
+        void write(long first, long second, long rowOffset) throws IOException {
+            if (count % INDEX_INTERVAL == 0) {
+                indexFirsts[(int) (count / INDEX_INTERVAL)] = first;
+                indexSeconds[(int) (count / INDEX_INTERVAL)] = second;
+            }
+            out.writeLong(first);
+            out.writeLong(second);
+            out.writeLong(rowOffset);
+            count++;
+        }
+
+        Run toRun() throws IOException {
+            out.close();
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+            isBuilt = true;
+            return new Run(file, channel, count, indexFirsts, indexSeconds);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+            if (!isBuilt)
+                Files.deleteIfExists(file);
+        }
+    }
+}
@@ -25,30 +25,47 @@ import it.unibz.inf.ontop.answering.resultset.TupleResultSet;
 import it.unibz.inf.ontop.dbschema.DBMetadata;
 import it.unibz.inf.ontop.exception.OntopConnectionException;
 import it.unibz.inf.ontop.answering.reformulation.IRIDictionary;
+import it.unibz.inf.ontop.answering.reformulation.impl.SQLColumnPlan;
 import it.unibz.inf.ontop.model.term.TermFactory;
 import it.unibz.inf.ontop.model.type.TypeFactory;
 import org.apache.commons.rdf.api.RDF;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.*;
+import java.util.Optional;
 
 /**
  * Class to handle distinct in SPARQL query. Avoid returning duplicate rows.
  * See test case DistinctResultSetTest
+ *
+ * The rows already seen are remembered as fingerprints, within a memory budget
+ * beyond which they are spilled to disk (see {@link RowFingerprintSet}).
  */
 
 public class SQLDistinctTupleResultSet extends DelegatedIriSQLTupleResultSet implements TupleResultSet {
 
-    private Set<List<Object>> rowKeys;
+    private static final Logger log = LoggerFactory.getLogger(SQLDistinctTupleResultSet.class);
+
+    private final RowFingerprintSet rowFingerprints;
+    private final Object[] rowKey;
 
-    public SQLDistinctTupleResultSet(ResultSet rs, ImmutableList<String> signature,
+    /**
+     * memoryBudget: in bytes
+     */
+    public SQLDistinctTupleResultSet(ResultSet rs, ImmutableList<String> signature, SQLColumnPlan columnPlan,
                                      DBMetadata dbMetadata,
                                      Optional<IRIDictionary> iriDictionary, TermFactory termFactory,
-                                     TypeFactory typeFactory, RDF rdfFactory) {
+                                     TypeFactory typeFactory, RDF rdfFactory,
+                                     long memoryBudget, Path spillDirectory) {
 
-        super(rs, signature, dbMetadata, iriDictionary, termFactory, typeFactory, rdfFactory);
-        rowKeys = new HashSet<>();
+        super(rs, signature, columnPlan, dbMetadata, iriDictionary, termFactory, typeFactory, rdfFactory);
+        rowFingerprints = new RowFingerprintSet(memoryBudget, spillDirectory);
+        // Type, lang (when projected) and main columns
+        rowKey = new Object[columnPlan.getColumnCount()];
     }
 
     /**
@@ -56,30 +73,22 @@ public class SQLDistinctTupleResultSet extends DelegatedIriSQLTupleResultSet imp
      */
     @Override
     protected boolean moveCursor() throws SQLException, OntopConnectionException {
-        boolean foundFreshRow;
-        List<Object> currentKey;
-        do{
-           foundFreshRow = rs.next();
-           // Cannot use this in the while condition: limit case where the last row was a duplicate
-           if(!foundFreshRow) {
-               break;
-           }
-           currentKey = computeRowKey(rs);
-        } while(!rowKeys.add(currentKey));
-
-        return foundFreshRow;
+        try {
+            while (rs.next()) {
+                computeRowKey();
+                if (rowFingerprints.add(rowKey))
+                    return true;
+            }
+            return false;
+        } catch (IOException e) {
+            throw new OntopConnectionException(e);
+        }
     }
 
-    private List<Object> computeRowKey(ResultSet rs) throws OntopConnectionException {
-
-        ArrayList rowKey = new ArrayList<>();
-        for (int i = 1; i <= getSignature().size();  i ++ ) {
-            int column = i * 3;
-            rowKey.add(getRawObject(column-2));  //type
-            rowKey.add(getRawObject(column-1)); //lang
-            rowKey.add(getRawObject(column)); //value
+    private void computeRowKey() throws OntopConnectionException {
+        for (int column = 1; column <= rowKey.length; column++) {
+            rowKey[column - 1] = getRawObject(column);
         }
-        return rowKey;
     }
 
     Object getRawObject(int column) throws OntopConnectionException {
@@ -90,4 +99,57 @@ public class SQLDistinctTupleResultSet extends DelegatedIriSQLTupleResultSet imp
             throw new OntopConnectionException(e);
         }
     }
+
+    /**
+     * Number of rows read so far from the DB (including the duplicates)
+     */
+    public long getRowCount() {
+        return rowFingerprints.getRowCount();
+    }
+
+    /**
+     * Number of distinct rows returned so far
+     */
+    public long getDistinctRowCount() {
+        return rowFingerprints.getDistinctRowCount();
+    }
+
+    /**
+     * Proportion of the rows read that were duplicates (between 0 and 1)
+     */
+    public double getDeduplicationRatio() {
+        long rowCount = getRowCount();
+        return rowCount == 0
+                ? 0
+                : (double) (rowCount - getDistinctRowCount()) / rowCount;
+    }
+
+    /**
+     * In bytes, without the spilled fingerprints
+     */
+    public long getMemoryUsed() {
+        return rowFingerprints.getMemoryUsed();
+    }
+
+    /**
+     * Number of row fingerprints spilled to disk
+     */
+    public long getSpilledRowCount() {
+        return rowFingerprints.getSpilledFingerprintCount();
+    }
+
+    @Override
+    public void close() throws OntopConnectionException {
+        if (log.isDebugEnabled())
+            log.debug("DISTINCT post-processing: {} rows read, {} distinct (deduplication ratio: {}), " +
+                            "{} bytes in memory, {} rows spilled in {} runs",
+                    getRowCount(), getDistinctRowCount(), String.format("%.3f", getDeduplicationRatio()),
+                    getMemoryUsed(), getSpilledRowCount(), rowFingerprints.getSpillCount());
+        try {
+            rowFingerprints.close();
+        } catch (IOException e) {
+            log.warn("Could not delete the DISTINCT spill file: {}", e.getMessage());
+        }
+        super.close();
+    }
 }
@@ -1,26 +1,51 @@
 package it.unibz.inf.ontop.answering.resultset.impl;
 
 import com.google.common.collect.ImmutableList;
+import it.unibz.inf.ontop.answering.reformulation.impl.SQLColumnPlan;
+import it.unibz.inf.ontop.answering.reformulation.impl.SQLColumnPlan.VariableColumns;
+import it.unibz.inf.ontop.answering.resultset.impl.JDBC2ConstantConverter.ValueConverter;
+import it.unibz.inf.ontop.utils.ImmutableCollectors;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.List;
+import java.util.Optional;
 
+/**
+ * Reads the columns of the current row according to the column plan.
+ *
+ * When the type of a variable is static, its converter is resolved once for all the rows.
+ */
 public class SQLRowReader {
 
-    public List<MainTypeLangValues> read(ResultSet rs, int bindingNamesCount) throws SQLException {
+    private final ImmutableList<VariableColumns> variableColumns;
+    private final ImmutableList<Optional<ValueConverter>> staticConverters;
+
+    public SQLRowReader(SQLColumnPlan columnPlan, JDBC2ConstantConverter constantConverter) {
+        this.variableColumns = columnPlan.getVariableColumns();
+        this.staticConverters = variableColumns.stream()
+                .map(c -> c.getStaticTypeCode().flatMap(constantConverter::createConverter))
+                .collect(ImmutableCollectors.toList());
+    }
+
+    public List<MainTypeLangValues> read(ResultSet rs) throws SQLException {
 
         final ImmutableList.Builder<MainTypeLangValues> builder = ImmutableList.builder();
 
-        for (int i = 1; i <= bindingNamesCount; i++) {
-            final int mainColumnIndex = 3 * i;
-            final int typeColumnIndex = 3 * i - 2;
-            final int langColumnIndex = 3 * i - 1;
+        for (int i = 0; i < variableColumns.size(); i++) {
+            VariableColumns columns = variableColumns.get(i);
+            Optional<Integer> typeColumnIndex = columns.getTypeColumnIndex();
+            Optional<Integer> langColumnIndex = columns.getLangColumnIndex();
 
             builder.add(new MainTypeLangValues(
-                    rs.getObject(mainColumnIndex),
-                    rs.getInt(typeColumnIndex),
-                    rs.getString(langColumnIndex)
+                    rs.getObject(columns.getMainColumnIndex()),
+                    typeColumnIndex.isPresent()
+                            ? rs.getInt(typeColumnIndex.get())
+                            : columns.getStaticTypeCode().get(),
+                    langColumnIndex.isPresent()
+                            ? rs.getString(langColumnIndex.get())
+                            : null,
+                    staticConverters.get(i).orElse(null)
             ));
         }
 
@@ -1,5 +1,6 @@
 package it.unibz.inf.ontop.injection;
 
+import java.util.Optional;
 
 public interface OntopSystemSQLSettings extends OntopSystemSettings, OntopReformulationSQLSettings,
         OntopSQLCredentialSettings {
@@ -14,6 +15,21 @@ public interface OntopSystemSQLSettings extends OntopSystemSettings, OntopReform
     int getConnectionPoolInitialSize();
     int getConnectionPoolMaxSize();
 
+    //--------------------------
+    // DISTINCT post-processing
+    //--------------------------
+
+    /**
+     * Memory budget (in MB) for remembering the rows already seen, when the duplicates are removed
+     * by Ontop (see isDistinctPostProcessingEnabled()). Beyond, they are spilled to disk.
+     */
+    int getDistinctPostProcessingMaxMemory();
+
+    /**
+     * Directory of the spill files. By default, the temporary directory of the JVM.
+     */
+    Optional<String> getDistinctPostProcessingSpillDirectory();
+
     //--------------------------
     // Keys
     //--------------------------
@@ -24,4 +40,6 @@ public interface OntopSystemSQLSettings extends OntopSystemSettings, OntopReform
     // Connection timeout (in ms)
     String CONNECTION_TIMEOUT = "jdbc.pool.connectionTimeout";
     String KEEP_ALIVE = "jdbc.pool.keepAlive";
+    String DISTINCT_MAX_MEMORY = "ontop.distinctResultSet.maxMemoryMB";
+    String DISTINCT_SPILL_DIRECTORY = "ontop.distinctResultSet.spillDirectory";
 }
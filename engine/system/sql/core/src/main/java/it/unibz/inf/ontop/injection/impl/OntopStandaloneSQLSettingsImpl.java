@@ -3,6 +3,7 @@ package it.unibz.inf.ontop.injection.impl;
 import it.unibz.inf.ontop.injection.OntopStandaloneSQLSettings;
 import it.unibz.inf.ontop.injection.OntopSystemSQLSettings;
 
+import java.util.Optional;
 import java.util.Properties;
 
 
@@ -31,6 +32,16 @@ public class OntopStandaloneSQLSettingsImpl extends OntopMappingSQLAllSettingsIm
         return getRequiredBoolean(DISTINCT_RESULTSET);
     }
 
+    @Override
+    public int getQueryCacheMaxEntries() {
+        return systemSettings.getQueryCacheMaxEntries();
+    }
+
+    @Override
+    public int getQueryCacheMaxSize() {
+        return systemSettings.getQueryCacheMaxSize();
+    }
+
     @Override
     public boolean isIRISafeEncodingEnabled() {
         return systemSettings.isIRISafeEncodingEnabled();
@@ -61,8 +72,43 @@ public class OntopStandaloneSQLSettingsImpl extends OntopMappingSQLAllSettingsIm
         return systemSettings.getConnectionPoolMaxSize();
     }
 
+    @Override
+    public int getDistinctPostProcessingMaxMemory() {
+        return systemSettings.getDistinctPostProcessingMaxMemory();
+    }
+
+    @Override
+    public Optional<String> getDistinctPostProcessingSpillDirectory() {
+        return systemSettings.getDistinctPostProcessingSpillDirectory();
+    }
+
     @Override
     public boolean isPermanentDBConnectionEnabled() {
         return systemSettings.isPermanentDBConnectionEnabled();
     }
+
+    @Override
+    public int getQueryExecutionMaxThreads() {
+        return systemSettings.getQueryExecutionMaxThreads();
+    }
+
+    @Override
+    public int getQueryExecutionQueueSize() {
+        return systemSettings.getQueryExecutionQueueSize();
+    }
+
+    @Override
+    public int getDefaultQueryTimeout() {
+        return systemSettings.getDefaultQueryTimeout();
+    }
+
+    @Override
+    public int getDescribeBatchSize() {
+        return systemSettings.getDescribeBatchSize();
+    }
+
+    @Override
+    public int getDescribeDuplicateWindowSize() {
+        return systemSettings.getDescribeDuplicateWindowSize();
+    }
 }
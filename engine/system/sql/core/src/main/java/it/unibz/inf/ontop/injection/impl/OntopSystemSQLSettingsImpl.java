@@ -4,6 +4,7 @@ import it.unibz.inf.ontop.injection.OntopSQLCredentialSettings;
 import it.unibz.inf.ontop.injection.OntopSystemSQLSettings;
 import it.unibz.inf.ontop.injection.OntopSystemSettings;
 
+import java.util.Optional;
 import java.util.Properties;
 
 
@@ -61,11 +62,46 @@ public class OntopSystemSQLSettingsImpl extends OntopReformulationSQLSettingsImp
         return getRequiredInteger(MAX_POOL_SIZE);
     }
 
+    @Override
+    public int getDistinctPostProcessingMaxMemory() {
+        return getRequiredInteger(DISTINCT_MAX_MEMORY);
+    }
+
+    @Override
+    public Optional<String> getDistinctPostProcessingSpillDirectory() {
+        return getProperty(DISTINCT_SPILL_DIRECTORY);
+    }
+
     @Override
     public boolean isPermanentDBConnectionEnabled() {
         return systemSettings.isPermanentDBConnectionEnabled();
     }
 
+    @Override
+    public int getQueryExecutionMaxThreads() {
+        return systemSettings.getQueryExecutionMaxThreads();
+    }
+
+    @Override
+    public int getQueryExecutionQueueSize() {
+        return systemSettings.getQueryExecutionQueueSize();
+    }
+
+    @Override
+    public int getDefaultQueryTimeout() {
+        return systemSettings.getDefaultQueryTimeout();
+    }
+
+    @Override
+    public int getDescribeBatchSize() {
+        return systemSettings.getDescribeBatchSize();
+    }
+
+    @Override
+    public int getDescribeDuplicateWindowSize() {
+        return systemSettings.getDescribeDuplicateWindowSize();
+    }
+
     @Override
     public String getJdbcUser() {
         return sqlCredentialSettings.getJdbcUser();
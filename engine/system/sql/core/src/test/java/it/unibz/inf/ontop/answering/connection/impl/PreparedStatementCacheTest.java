@@ -0,0 +1,83 @@
+package it.unibz.inf.ontop.answering.connection.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import static org.junit.Assert.*;
+
+public class PreparedStatementCacheTest {
+
+    private static final String SQL1 = "SELECT CAST(? AS INT) FROM DUAL";
+    private static final String SQL2 = "SELECT CAST(? AS INT), CAST(? AS INT) FROM DUAL";
+    private static final String SQL3 = "SELECT CAST(? AS INT), CAST(? AS INT), CAST(? AS INT) FROM DUAL";
+
+    private Connection connection;
+    private PreparedStatementCache cache;
+
+    @Before
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:prepared_statement_cache_test", "sa", "");
+        cache = new PreparedStatementCache(2);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        cache.close();
+        connection.close();
+    }
+
+    @Test
+    public void testReuse() throws SQLException {
+        PreparedStatement statement = cache.borrow(connection, SQL1);
+        cache.giveBack(SQL1, statement);
+        assertSame(statement, cache.borrow(connection, SQL1));
+        // Already borrowed
+        assertNotSame(statement, cache.borrow(connection, SQL1));
+    }
+
+    /**
+     * Only one idle statement per SQL string
+     */
+    @Test
+    public void testSecondIdleStatementIsClosed() throws SQLException {
+        PreparedStatement statement1 = cache.borrow(connection, SQL1);
+        PreparedStatement statement2 = cache.borrow(connection, SQL1);
+        cache.giveBack(SQL1, statement1);
+        cache.giveBack(SQL1, statement2);
+        assertFalse(statement1.isClosed());
+        assertTrue(statement2.isClosed());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsClosed() throws SQLException {
+        PreparedStatement statement1 = cache.borrow(connection, SQL1);
+        PreparedStatement statement2 = cache.borrow(connection, SQL2);
+        PreparedStatement statement3 = cache.borrow(connection, SQL3);
+        cache.giveBack(SQL1, statement1);
+        cache.giveBack(SQL2, statement2);
+        cache.giveBack(SQL3, statement3);
+
+        assertTrue(statement1.isClosed());
+        assertSame(statement2, cache.borrow(connection, SQL2));
+        assertSame(statement3, cache.borrow(connection, SQL3));
+    }
+
+    @Test
+    public void testClose() throws SQLException {
+        PreparedStatement idleStatement = cache.borrow(connection, SQL1);
+        PreparedStatement borrowedStatement = cache.borrow(connection, SQL2);
+        cache.giveBack(SQL1, idleStatement);
+        cache.close();
+        assertTrue(idleStatement.isClosed());
+
+        // Given back after the closing
+        cache.giveBack(SQL2, borrowedStatement);
+        assertTrue(borrowedStatement.isClosed());
+    }
+}
@@ -0,0 +1,217 @@
+package it.unibz.inf.ontop.answering.reformulation;
+
+import com.google.common.collect.ImmutableMultiset;
+import it.unibz.inf.ontop.answering.OntopQueryEngine;
+import it.unibz.inf.ontop.answering.connection.OntopConnection;
+import it.unibz.inf.ontop.answering.connection.OntopStatement;
+import it.unibz.inf.ontop.answering.reformulation.input.translation.InputQueryTranslator;
+import it.unibz.inf.ontop.answering.reformulation.input.translation.impl.IQSparqlQueryTranslator;
+import it.unibz.inf.ontop.answering.resultset.OntopBinding;
+import it.unibz.inf.ontop.answering.resultset.OntopBindingSet;
+import it.unibz.inf.ontop.answering.resultset.TupleResultSet;
+import it.unibz.inf.ontop.injection.OntopMappingSQLAllConfiguration;
+import it.unibz.inf.ontop.injection.OntopSystemSQLConfiguration;
+import it.unibz.inf.ontop.spec.OBDASpecification;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The direct translation of SPARQL into IQ (IQSparqlQueryTranslator) gives the same answers
+ * as the translation through Datalog (default)
+ */
+public class IQTranslationEquivalenceTest {
+
+    private static final String OBDA_FILE = "src/test/resources/marriage/marriage.obda";
+    private static final String CREATE_DB_FILE = "src/test/resources/marriage/create-db.sql";
+    private static final String JDBC_URL = "jdbc:h2:mem:iqtranslationequivalencedb";
+    private static final String JDBC_USER = "sa";
+    private static final String JDBC_PASSWORD = "";
+    private static final String PREFIX = "PREFIX : <http://example.org/marriage/voc#>\n";
+    private static final String PERSON_PREFIX = "http://example.com/person/";
+
+    /*
+     * DB connection (keeps it alive)
+     */
+    private static Connection CONN;
+
+    private static OntopQueryEngine DATALOG_QUERY_ENGINE;
+    private static OntopQueryEngine IQ_QUERY_ENGINE;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        CONN = DriverManager.getConnection(JDBC_URL, JDBC_USER, JDBC_PASSWORD);
+
+        Statement st = CONN.createStatement();
+
+        FileReader reader = new FileReader(CREATE_DB_FILE);
+        BufferedReader in = new BufferedReader(reader);
+        StringBuilder bf = new StringBuilder();
+        String line = in.readLine();
+        while (line != null) {
+            bf.append(line);
+            line = in.readLine();
+        }
+        in.close();
+
+        st.executeUpdate(bf.toString());
+        CONN.commit();
+
+        OBDASpecification obdaSpecification = OntopMappingSQLAllConfiguration.defaultBuilder()
+                .nativeOntopMappingFile(OBDA_FILE)
+                .jdbcUser(JDBC_USER)
+                .jdbcPassword(JDBC_PASSWORD)
+                .jdbcUrl(JDBC_URL)
+                .enableTestMode()
+                .build()
+                .loadSpecification();
+
+        DATALOG_QUERY_ENGINE = createQueryEngine(obdaSpecification, new Properties());
+
+        Properties properties = new Properties();
+        properties.setProperty(InputQueryTranslator.class.getCanonicalName(),
+                IQSparqlQueryTranslator.class.getCanonicalName());
+        IQ_QUERY_ENGINE = createQueryEngine(obdaSpecification, properties);
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        DATALOG_QUERY_ENGINE.close();
+        IQ_QUERY_ENGINE.close();
+        CONN.close();
+    }
+
+    /**
+     * The filter of the optional part only restricts the optional part
+     */
+    @Test
+    public void testOptionalWithFilter() throws Exception {
+        ImmutableMultiset<List<String>> answers = checkEquivalence(PREFIX
+                + "SELECT ?x ?s ?n WHERE { ?x a :Person . "
+                + "OPTIONAL { ?x :hasSpouse ?s . ?s :firstName ?n FILTER (?n != \"John\") } }");
+
+        assertEquals(ImmutableMultiset.of(
+                row(PERSON_PREFIX + 1, null, null),
+                row(PERSON_PREFIX + 2, PERSON_PREFIX + 1, "Mary"),
+                row(PERSON_PREFIX + 3, null, null)),
+                answers);
+    }
+
+    @Test
+    public void testOptionalFollowedByFilterOnUnbound() throws Exception {
+        ImmutableMultiset<List<String>> answers = checkEquivalence(PREFIX
+                + "SELECT ?x WHERE { ?x a :Person OPTIONAL { ?x :hasSpouse ?s } FILTER (!BOUND(?s)) }");
+
+        assertEquals(ImmutableMultiset.of(row(PERSON_PREFIX + 3)), answers);
+    }
+
+    /**
+     * The ?n of the sub-query is not the ?n of the outer query
+     */
+    @Test
+    public void testVariableHidingInSubQuery() throws Exception {
+        ImmutableMultiset<List<String>> answers = checkEquivalence(PREFIX
+                + "SELECT ?x ?n WHERE { ?x :firstName ?n . "
+                + "{ SELECT ?x WHERE { ?x :hasSpouse ?n } } }");
+
+        assertEquals(ImmutableMultiset.of(
+                row(PERSON_PREFIX + 1, "Mary"),
+                row(PERSON_PREFIX + 2, "John")),
+                answers);
+    }
+
+    /**
+     * Each branch of the union is padded with nulls for the variables of the other branch
+     */
+    @Test
+    public void testUnionNullPadding() throws Exception {
+        ImmutableMultiset<List<String>> answers = checkEquivalence(PREFIX
+                + "SELECT ?x ?f ?l WHERE { { ?x :firstName ?f } UNION { ?x :lastName ?l } }");
+
+        assertEquals(6, answers.size());
+        assertEquals(3, answers.stream().filter(r -> r.get(1) == null).count());
+        assertEquals(3, answers.stream().filter(r -> r.get(2) == null).count());
+    }
+
+    /**
+     * The variable of the first branch is unbound in the answers of the second branch
+     */
+    @Test
+    public void testUnionNullPaddingOfOneBranch() throws Exception {
+        ImmutableMultiset<List<String>> answers = checkEquivalence(PREFIX
+                + "SELECT ?x ?s WHERE { { ?x :hasSpouse ?s } UNION { ?x a :Person } }");
+
+        assertEquals(ImmutableMultiset.of(
+                row(PERSON_PREFIX + 1, PERSON_PREFIX + 2),
+                row(PERSON_PREFIX + 2, PERSON_PREFIX + 1),
+                row(PERSON_PREFIX + 1, null),
+                row(PERSON_PREFIX + 2, null),
+                row(PERSON_PREFIX + 3, null)),
+                answers);
+    }
+
+    /**
+     * Returns the answers (identical for both translations)
+     */
+    private static ImmutableMultiset<List<String>> checkEquivalence(String query) throws Exception {
+        ImmutableMultiset<List<String>> datalogAnswers = evaluate(DATALOG_QUERY_ENGINE, query);
+        ImmutableMultiset<List<String>> iqAnswers = evaluate(IQ_QUERY_ENGINE, query);
+        assertEquals(datalogAnswers, iqAnswers);
+        return iqAnswers;
+    }
+
+    private static ImmutableMultiset<List<String>> evaluate(OntopQueryEngine queryEngine, String query)
+            throws Exception {
+        ImmutableMultiset.Builder<List<String>> answerBuilder = ImmutableMultiset.builder();
+        try (OntopConnection connection = queryEngine.getConnection();
+             OntopStatement statement = connection.createStatement()) {
+            TupleResultSet resultSet = statement.execute(
+                    connection.getInputQueryFactory().createSelectQuery(query));
+            List<String> signature = resultSet.getSignature();
+            while (resultSet.hasNext()) {
+                OntopBindingSet bindingSet = resultSet.next();
+                List<String> values = new ArrayList<>();
+                for (String variable : signature) {
+                    OntopBinding binding = bindingSet.getBinding(variable);
+                    values.add(binding == null ? null : binding.getValue().getValue());
+                }
+                answerBuilder.add(values);
+            }
+            resultSet.close();
+        }
+        return answerBuilder.build();
+    }
+
+    private static List<String> row(String... values) {
+        List<String> row = new ArrayList<>();
+        for (String value : values)
+            row.add(value);
+        return row;
+    }
+
+    private static OntopQueryEngine createQueryEngine(OBDASpecification obdaSpecification, Properties properties)
+            throws Exception {
+        OntopQueryEngine queryEngine = OntopSystemSQLConfiguration.defaultBuilder()
+                .obdaSpecification(obdaSpecification)
+                .properties(properties)
+                .jdbcUser(JDBC_USER)
+                .jdbcPassword(JDBC_PASSWORD)
+                .jdbcUrl(JDBC_URL)
+                .enableTestMode()
+                .build()
+                .loadQueryEngine();
+        queryEngine.connect();
+        return queryEngine;
+    }
+}
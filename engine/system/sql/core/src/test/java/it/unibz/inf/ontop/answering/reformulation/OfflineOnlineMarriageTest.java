@@ -1,6 +1,8 @@
 package it.unibz.inf.ontop.answering.reformulation;
 
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import it.unibz.inf.ontop.answering.OntopQueryEngine;
 import it.unibz.inf.ontop.answering.connection.OntopConnection;
@@ -15,7 +17,10 @@ import it.unibz.inf.ontop.exception.*;
 import it.unibz.inf.ontop.injection.OntopMappingSQLAllConfiguration;
 import it.unibz.inf.ontop.injection.OntopReformulationSQLConfiguration;
 import it.unibz.inf.ontop.injection.OntopSystemSQLConfiguration;
+import it.unibz.inf.ontop.model.term.TermFactory;
+import it.unibz.inf.ontop.model.vocabulary.XSD;
 import it.unibz.inf.ontop.spec.OBDASpecification;
+import org.apache.commons.rdf.simple.SimpleRDF;
 import org.junit.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -47,6 +52,12 @@ public class OfflineOnlineMarriageTest {
             "WHERE {\n" +
             "  ?x a :Person .\n" +
             "}";
+    private static final String FIRST_NAME_QUERY_STRING = "PREFIX : <http://example.org/marriage/voc#>\n" +
+            "\n" +
+            "SELECT ?x ?n \n" +
+            "WHERE {\n" +
+            "  ?x :firstName ?n .\n" +
+            "}";
     private static final String VAR = "x";
     private static final String PERSON_PREFIX = "http://example.com/person/";
 
@@ -95,20 +106,44 @@ public class OfflineOnlineMarriageTest {
         LOGGER.info(sqlQuery);
     }
 
+    @Test
+    public void testParameterizedQueryReformulation() throws OBDASpecificationException, OntopReformulationException {
+        OntopReformulationSQLConfiguration reformulationConfiguration = createReformulationConfiguration();
+        QueryReformulator queryReformulator = reformulationConfiguration.loadQueryReformulator();
+        TermFactory termFactory = reformulationConfiguration.getTermFactory();
+        SelectQuery query = queryReformulator.getInputQueryFactory().createSelectQuery(FIRST_NAME_QUERY_STRING);
+
+        SQLExecutableQuery johnQuery = (SQLExecutableQuery) queryReformulator.reformulateIntoNativeQuery(query,
+                ImmutableMap.of("n", termFactory.getConstantLiteral("John", XSD.STRING)));
+        SQLExecutableQuery bobQuery = (SQLExecutableQuery) queryReformulator.reformulateIntoNativeQuery(query,
+                ImmutableMap.of("n", termFactory.getConstantLiteral("Bob", XSD.STRING)));
+        LOGGER.info(johnQuery.getSQL());
+
+        // The parameter is a JDBC parameter of the query over the base tables, not a filter over the whole query
+        assertFalse(johnQuery.getSQL().contains("QPARAMVIEW"));
+        assertEquals(ImmutableList.of("John"), johnQuery.getParameterValues());
+        // Same template for both values
+        assertEquals(johnQuery.getSQL(), bobQuery.getSQL());
+        assertEquals(ImmutableList.of("Bob"), bobQuery.getParameterValues());
+    }
+
     /**
      * Instantiation of the query reformulator
      */
     private static QueryReformulator createReformulator() throws OBDASpecificationException {
+        return createReformulationConfiguration().loadQueryReformulator();
+    }
+
+    private static OntopReformulationSQLConfiguration createReformulationConfiguration()
+            throws OBDASpecificationException {
 
         OBDASpecification obdaSpecification = loadOBDASpecification();
 
-        OntopReformulationSQLConfiguration reformulationConfiguration = OntopReformulationSQLConfiguration.defaultBuilder()
+        return OntopReformulationSQLConfiguration.defaultBuilder()
                 .obdaSpecification(obdaSpecification)
                 .jdbcUrl(JDBC_URL)
                 .enableTestMode()
                 .build();
-
-        return reformulationConfiguration.loadQueryReformulator();
     }
 
     private static OBDASpecification loadOBDASpecification() throws OBDASpecificationException {
@@ -151,20 +186,63 @@ public class OfflineOnlineMarriageTest {
         }
     }
 
+    @Test
+    public void testParameterizedQuery() throws OBDASpecificationException, OntopConnectionException,
+            OntopReformulationException, OntopResultConversionException, OntopQueryEvaluationException {
+        OntopSystemSQLConfiguration configuration = createSystemConfiguration();
+        TermFactory termFactory = configuration.getTermFactory();
+
+        try (OntopQueryEngine queryEngine = configuration.loadQueryEngine()) {
+            queryEngine.connect();
+
+            try (OntopConnection connection = queryEngine.getConnection();
+                 OntopStatement statement = connection.createStatement()) {
+                InputQueryFactory inputQueryFactory = connection.getInputQueryFactory();
+
+                SelectQuery query = inputQueryFactory.createSelectQuery(FIRST_NAME_QUERY_STRING);
+
+                assertEquals(ImmutableSet.of(PERSON_PREFIX + 2),
+                        collectValues(statement.execute(query,
+                                ImmutableMap.of("n", termFactory.getConstantLiteral("John", XSD.STRING))), VAR));
+                assertEquals(ImmutableSet.of("Bob"),
+                        collectValues(statement.execute(query,
+                                ImmutableMap.of(VAR, termFactory.getConstantIRI(
+                                        new SimpleRDF().createIRI(PERSON_PREFIX + 3)))), "n"));
+                // Not an xsd:string
+                assertEquals(ImmutableSet.of(),
+                        collectValues(statement.execute(query,
+                                ImmutableMap.of("n", termFactory.getConstantLiteral("John", "en"))), VAR));
+            }
+        }
+    }
+
+    private static ImmutableSet<String> collectValues(TupleResultSet resultSet, String variable)
+            throws OntopConnectionException, OntopResultConversionException, OntopQueryEvaluationException {
+        ImmutableSet.Builder<String> answerBuilder = ImmutableSet.builder();
+        while (resultSet.hasNext()) {
+            OntopBinding binding = resultSet.next().getBinding(variable);
+            if (binding != null)
+                answerBuilder.add(binding.getValue().getValue());
+        }
+        return answerBuilder.build();
+    }
+
     /**
      * Instantiation of the query engine
      */
     private static OntopQueryEngine createQueryEngine() throws OBDASpecificationException {
+        return createSystemConfiguration().loadQueryEngine();
+    }
+
+    private static OntopSystemSQLConfiguration createSystemConfiguration() throws OBDASpecificationException {
         OBDASpecification obdaSpecification = loadOBDASpecification();
 
-        OntopSystemSQLConfiguration systemConfiguration = OntopSystemSQLConfiguration.defaultBuilder()
+        return OntopSystemSQLConfiguration.defaultBuilder()
                 .obdaSpecification(obdaSpecification)
                 .jdbcUser(JDBC_USER)
                 .jdbcPassword(JDBC_PASSWORD)
                 .jdbcUrl(JDBC_URL)
                 .enableTestMode()
                 .build();
-
-        return systemConfiguration.loadQueryEngine();
     }
 }
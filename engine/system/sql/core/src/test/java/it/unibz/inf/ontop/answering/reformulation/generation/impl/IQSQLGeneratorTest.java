@@ -0,0 +1,347 @@
+package it.unibz.inf.ontop.answering.reformulation.generation.impl;
+
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.inject.Injector;
+import it.unibz.inf.ontop.answering.reformulation.ExecutableQuery;
+import it.unibz.inf.ontop.answering.reformulation.generation.NativeQueryGenerator;
+import it.unibz.inf.ontop.answering.reformulation.generation.QueryParameterPlaceholders;
+import it.unibz.inf.ontop.answering.reformulation.generation.algebra.*;
+import it.unibz.inf.ontop.answering.reformulation.impl.SQLExecutableQuery;
+import it.unibz.inf.ontop.answering.reformulation.impl.SQLTemplateExecutableQuery;
+import it.unibz.inf.ontop.dbschema.DBMetadata;
+import it.unibz.inf.ontop.dbschema.DatabaseRelationDefinition;
+import it.unibz.inf.ontop.injection.*;
+import it.unibz.inf.ontop.iq.IntermediateQuery;
+import it.unibz.inf.ontop.iq.IntermediateQueryBuilder;
+import it.unibz.inf.ontop.iq.node.*;
+import it.unibz.inf.ontop.model.atom.AtomFactory;
+import it.unibz.inf.ontop.model.atom.DistinctVariableOnlyDataAtom;
+import it.unibz.inf.ontop.model.atom.RelationPredicate;
+import it.unibz.inf.ontop.model.term.*;
+import it.unibz.inf.ontop.model.type.TypeFactory;
+import it.unibz.inf.ontop.model.vocabulary.XSD;
+import it.unibz.inf.ontop.spec.OBDASpecification;
+import it.unibz.inf.ontop.substitution.SubstitutionFactory;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.sql.*;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * IQ -> SQL algebra -> SQL: checks the SQL algebra query and evaluates the generated SQL query on H2
+ */
+public class IQSQLGeneratorTest {
+
+    private static final String OBDA_FILE = "src/test/resources/marriage/marriage.obda";
+    private static final String CREATE_DB_FILE = "src/test/resources/marriage/create-db.sql";
+    private static final String JDBC_URL = "jdbc:h2:mem:iqsqlgeneratordb";
+    private static final String JDBC_USER = "sa";
+    private static final String JDBC_PASSWORD = "";
+    private static final String PERSON_PREFIX = "http://example.com/person/";
+
+    /*
+     * DB connection (keeps it alive)
+     */
+    private static Connection CONN;
+
+    private static IQSQLGenerator GENERATOR;
+    private static DBMetadata METADATA;
+    private static OntopReformulationSQLConfiguration CONFIGURATION;
+    private static IntermediateQueryFactory IQ_FACTORY;
+    private static AtomFactory ATOM_FACTORY;
+    private static TermFactory TERM_FACTORY;
+    private static TypeFactory TYPE_FACTORY;
+    private static SubstitutionFactory SUBSTITUTION_FACTORY;
+    private static RelationPredicate PERSON;
+
+    private static Variable X, N, ID, FN, LN, SP, ID2, FN2, LN2, SP2;
+    private static ImmutableFunctionalTerm PERSON_IRI;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+
+        CONN = DriverManager.getConnection(JDBC_URL, JDBC_USER, JDBC_PASSWORD);
+
+        Statement st = CONN.createStatement();
+
+        FileReader reader = new FileReader(CREATE_DB_FILE);
+        BufferedReader in = new BufferedReader(reader);
+        StringBuilder bf = new StringBuilder();
+        String line = in.readLine();
+        while (line != null) {
+            bf.append(line);
+            line = in.readLine();
+        }
+        in.close();
+
+        st.executeUpdate(bf.toString());
+        CONN.commit();
+
+        OBDASpecification obdaSpecification = OntopMappingSQLAllConfiguration.defaultBuilder()
+                .nativeOntopMappingFile(OBDA_FILE)
+                .jdbcUser(JDBC_USER)
+                .jdbcPassword(JDBC_PASSWORD)
+                .jdbcUrl(JDBC_URL)
+                .enableTestMode()
+                .build()
+                .loadSpecification();
+
+        Properties properties = new Properties();
+        properties.setProperty(NativeQueryGenerator.class.getCanonicalName(), IQSQLGenerator.class.getCanonicalName());
+
+        CONFIGURATION = OntopReformulationSQLConfiguration.defaultBuilder()
+                .obdaSpecification(obdaSpecification)
+                .properties(properties)
+                .jdbcUrl(JDBC_URL)
+                .enableTestMode()
+                .build();
+
+        Injector injector = CONFIGURATION.getInjector();
+        IQ_FACTORY = injector.getInstance(IntermediateQueryFactory.class);
+        ATOM_FACTORY = injector.getInstance(AtomFactory.class);
+        SUBSTITUTION_FACTORY = injector.getInstance(SubstitutionFactory.class);
+        TERM_FACTORY = CONFIGURATION.getTermFactory();
+        TYPE_FACTORY = CONFIGURATION.getTypeFactory();
+
+        METADATA = obdaSpecification.getDBMetadata();
+        GENERATOR = (IQSQLGenerator) injector.getInstance(TranslationFactory.class).create(METADATA);
+
+        DatabaseRelationDefinition personTable = METADATA.getDatabaseRelation(
+                METADATA.getQuotedIDFactory().createRelationID(null, "\"person\""));
+        PERSON = personTable.getAtomPredicate();
+
+        X = TERM_FACTORY.getVariable("x");
+        N = TERM_FACTORY.getVariable("n");
+        ID = TERM_FACTORY.getVariable("id");
+        FN = TERM_FACTORY.getVariable("fn");
+        LN = TERM_FACTORY.getVariable("ln");
+        SP = TERM_FACTORY.getVariable("sp");
+        ID2 = TERM_FACTORY.getVariable("id2");
+        FN2 = TERM_FACTORY.getVariable("fn2");
+        LN2 = TERM_FACTORY.getVariable("ln2");
+        SP2 = TERM_FACTORY.getVariable("sp2");
+        PERSON_IRI = TERM_FACTORY.getImmutableUriTemplate(TERM_FACTORY.getConstantLiteral(PERSON_PREFIX + "{}"), ID);
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        CONN.close();
+    }
+
+    /**
+     * Name of the spouse
+     */
+    @Test
+    public void testJoin() throws Exception {
+        DistinctVariableOnlyDataAtom projectionAtom = ATOM_FACTORY.getDistinctVariableOnlyDataAtom(
+                ATOM_FACTORY.getRDFAnswerPredicate(2), X, N);
+        ConstructionNode constructionNode = IQ_FACTORY.createConstructionNode(projectionAtom.getVariables(),
+                SUBSTITUTION_FACTORY.getSubstitution(X, PERSON_IRI, N, createString(FN2)));
+        InnerJoinNode joinNode = IQ_FACTORY.createInnerJoinNode();
+
+        IntermediateQueryBuilder queryBuilder = createQueryBuilder();
+        queryBuilder.init(projectionAtom, constructionNode);
+        queryBuilder.addChild(constructionNode, joinNode);
+        queryBuilder.addChild(joinNode, createPersonNode(ID, FN, LN, SP));
+        queryBuilder.addChild(joinNode, createPersonNode(SP, FN2, LN2, SP2));
+        IntermediateQuery query = queryBuilder.build();
+
+        SQLSelectQuery selectQuery = (SQLSelectQuery) GENERATOR.translate(query).getQuery();
+        assertEquals(2, selectQuery.getFromItems().size());
+        assertTrue(selectQuery.getFromItems().stream().allMatch(r -> r instanceof SQLTable));
+        assertFalse(selectQuery.getWhereConditions().isEmpty());
+
+        assertEquals(ImmutableMap.of(PERSON_PREFIX + 1, "John", PERSON_PREFIX + 2, "Mary"),
+                evaluateMap(GENERATOR.generateSourceQuery(query)));
+    }
+
+    /**
+     * Name of the spouse, if any
+     */
+    @Test
+    public void testLeftJoin() throws Exception {
+        DistinctVariableOnlyDataAtom projectionAtom = ATOM_FACTORY.getDistinctVariableOnlyDataAtom(
+                ATOM_FACTORY.getRDFAnswerPredicate(2), X, N);
+        ConstructionNode constructionNode = IQ_FACTORY.createConstructionNode(projectionAtom.getVariables(),
+                SUBSTITUTION_FACTORY.getSubstitution(X, PERSON_IRI, N, createString(FN2)));
+        LeftJoinNode leftJoinNode = IQ_FACTORY.createLeftJoinNode();
+
+        IntermediateQueryBuilder queryBuilder = createQueryBuilder();
+        queryBuilder.init(projectionAtom, constructionNode);
+        queryBuilder.addChild(constructionNode, leftJoinNode);
+        queryBuilder.addChild(leftJoinNode, createPersonNode(ID, FN, LN, SP), BinaryOrderedOperatorNode.ArgumentPosition.LEFT);
+        queryBuilder.addChild(leftJoinNode, createPersonNode(SP, FN2, LN2, SP2), BinaryOrderedOperatorNode.ArgumentPosition.RIGHT);
+        IntermediateQuery query = queryBuilder.build();
+
+        SQLSelectQuery selectQuery = (SQLSelectQuery) GENERATOR.translate(query).getQuery();
+        assertEquals(1, selectQuery.getFromItems().size());
+        SQLLeftJoin leftJoin = (SQLLeftJoin) selectQuery.getFromItems().get(0);
+        assertFalse(leftJoin.getOnConditions().isEmpty());
+
+        ExecutableQuery executableQuery = GENERATOR.generateSourceQuery(query);
+        assertTrue(((SQLExecutableQuery) executableQuery).getSQL().contains("LEFT OUTER JOIN"));
+
+        Map<String, String> expectedMap = new HashMap<>();
+        expectedMap.put(PERSON_PREFIX + 1, "John");
+        expectedMap.put(PERSON_PREFIX + 2, "Mary");
+        expectedMap.put(PERSON_PREFIX + 3, null);
+        assertEquals(expectedMap, evaluateMap(executableQuery));
+    }
+
+    /**
+     * First and last names
+     */
+    @Test
+    public void testUnion() throws Exception {
+        DistinctVariableOnlyDataAtom projectionAtom = ATOM_FACTORY.getDistinctVariableOnlyDataAtom(
+                ATOM_FACTORY.getRDFAnswerPredicate(2), X, N);
+        UnionNode unionNode = IQ_FACTORY.createUnionNode(projectionAtom.getVariables());
+        ConstructionNode firstNameNode = IQ_FACTORY.createConstructionNode(projectionAtom.getVariables(),
+                SUBSTITUTION_FACTORY.getSubstitution(X, PERSON_IRI, N, createString(FN)));
+        ConstructionNode lastNameNode = IQ_FACTORY.createConstructionNode(projectionAtom.getVariables(),
+                SUBSTITUTION_FACTORY.getSubstitution(X, PERSON_IRI, N, createString(LN)));
+
+        IntermediateQueryBuilder queryBuilder = createQueryBuilder();
+        queryBuilder.init(projectionAtom, unionNode);
+        queryBuilder.addChild(unionNode, firstNameNode);
+        queryBuilder.addChild(firstNameNode, createPersonNode(ID, FN, LN, SP));
+        queryBuilder.addChild(unionNode, lastNameNode);
+        queryBuilder.addChild(lastNameNode, createPersonNode(ID, FN, LN, SP));
+        IntermediateQuery query = queryBuilder.build();
+
+        SQLUnionQuery unionQuery = (SQLUnionQuery) GENERATOR.translate(query).getQuery();
+        assertEquals(2, unionQuery.getSelectQueries().size());
+        assertFalse(unionQuery.isDistinct());
+
+        assertEquals(ImmutableSet.of(
+                ImmutableList.of(PERSON_PREFIX + 1, "Mary"), ImmutableList.of(PERSON_PREFIX + 1, "Smith"),
+                ImmutableList.of(PERSON_PREFIX + 2, "John"), ImmutableList.of(PERSON_PREFIX + 2, "Doe"),
+                ImmutableList.of(PERSON_PREFIX + 3, "Bob"), ImmutableList.of(PERSON_PREFIX + 3, "Forester")),
+                ImmutableSet.copyOf(evaluate(GENERATOR.generateSourceQuery(query))));
+    }
+
+    /**
+     * Two greatest first names, over the (redundant) cross product of the persons
+     */
+    @Test
+    public void testDistinctOrderByLimit() throws Exception {
+        DistinctVariableOnlyDataAtom projectionAtom = ATOM_FACTORY.getDistinctVariableOnlyDataAtom(
+                ATOM_FACTORY.getRDFAnswerPredicate(1), N);
+        SliceNode sliceNode = IQ_FACTORY.createSliceNode(0, 2);
+        DistinctNode distinctNode = IQ_FACTORY.createDistinctNode();
+        OrderByNode orderByNode = IQ_FACTORY.createOrderByNode(
+                ImmutableList.of(IQ_FACTORY.createOrderComparator(N, false)));
+        ConstructionNode constructionNode = IQ_FACTORY.createConstructionNode(projectionAtom.getVariables(),
+                SUBSTITUTION_FACTORY.getSubstitution(N, createString(FN)));
+        InnerJoinNode joinNode = IQ_FACTORY.createInnerJoinNode();
+
+        IntermediateQueryBuilder queryBuilder = createQueryBuilder();
+        queryBuilder.init(projectionAtom, sliceNode);
+        queryBuilder.addChild(sliceNode, distinctNode);
+        queryBuilder.addChild(distinctNode, orderByNode);
+        queryBuilder.addChild(orderByNode, constructionNode);
+        queryBuilder.addChild(constructionNode, joinNode);
+        queryBuilder.addChild(joinNode, createPersonNode(ID, FN, LN, SP));
+        queryBuilder.addChild(joinNode, createPersonNode(ID2, FN2, LN2, SP2));
+        IntermediateQuery query = queryBuilder.build();
+
+        SQLTopQuery topQuery = GENERATOR.translate(query);
+        assertTrue(topQuery.hasModifiers());
+        assertTrue(topQuery.isDistinct());
+        assertEquals(1, topQuery.getOrderConditions().size());
+        assertEquals(2, topQuery.getLimit());
+        assertTrue(((SQLSelectQuery) topQuery.getQuery()).isDistinct());
+
+        assertEquals(ImmutableList.of(ImmutableList.of("Mary"), ImmutableList.of("John")),
+                evaluate(GENERATOR.generateSourceQuery(query)));
+    }
+
+    /**
+     * The placeholder becomes a JDBC parameter of the condition on the base table
+     */
+    @Test
+    public void testTemplate() throws Exception {
+        DistinctVariableOnlyDataAtom projectionAtom = ATOM_FACTORY.getDistinctVariableOnlyDataAtom(
+                ATOM_FACTORY.getRDFAnswerPredicate(1), X);
+        ConstructionNode constructionNode = IQ_FACTORY.createConstructionNode(projectionAtom.getVariables(),
+                SUBSTITUTION_FACTORY.getSubstitution(X, PERSON_IRI));
+        ValueConstant placeholder = QueryParameterPlaceholders.createPlaceholder(TERM_FACTORY, 0,
+                TYPE_FACTORY.getXsdStringDatatype());
+
+        IntermediateQueryBuilder queryBuilder = createQueryBuilder();
+        queryBuilder.init(projectionAtom, constructionNode);
+        queryBuilder.addChild(constructionNode, IQ_FACTORY.createExtensionalDataNode(
+                ATOM_FACTORY.getDataAtom(PERSON, ID, placeholder, LN, SP)));
+        IntermediateQuery query = queryBuilder.build();
+
+        SQLTemplateExecutableQuery template = (SQLTemplateExecutableQuery) GENERATOR.generateTemplateQuery(query);
+
+        SQLExecutableQuery johnQuery = (SQLExecutableQuery) template.bind(
+                ImmutableList.of(TERM_FACTORY.getConstantLiteral("John", XSD.STRING)));
+        assertTrue(johnQuery.getSQL().contains("?"));
+        assertEquals(ImmutableList.of("John"), johnQuery.getParameterValues());
+        assertEquals(ImmutableList.of(ImmutableList.of(PERSON_PREFIX + 2)), evaluate(johnQuery));
+
+        SQLExecutableQuery bobQuery = (SQLExecutableQuery) template.bind(
+                ImmutableList.of(TERM_FACTORY.getConstantLiteral("Bob", XSD.STRING)));
+        assertEquals(johnQuery.getSQL(), bobQuery.getSQL());
+        assertEquals(ImmutableList.of(ImmutableList.of(PERSON_PREFIX + 3)), evaluate(bobQuery));
+    }
+
+    private static IntermediateQueryBuilder createQueryBuilder() {
+        return IQ_FACTORY.createIQBuilder(METADATA, CONFIGURATION.getExecutorRegistry());
+    }
+
+    private static ExtensionalDataNode createPersonNode(Variable id, Variable firstName, Variable lastName,
+                                                        Variable spouse) {
+        return IQ_FACTORY.createExtensionalDataNode(ATOM_FACTORY.getDataAtom(PERSON, id, firstName, lastName, spouse));
+    }
+
+    private static ImmutableFunctionalTerm createString(Variable variable) {
+        return TERM_FACTORY.getImmutableTypedTerm(variable, XSD.STRING);
+    }
+
+    /**
+     * Pairs of values
+     */
+    private static Map<String, String> evaluateMap(ExecutableQuery executableQuery) throws SQLException {
+        Map<String, String> map = new HashMap<>();
+        for (List<String> row : evaluate(executableQuery))
+            map.put(row.get(0), row.get(1));
+        return map;
+    }
+
+    /**
+     * Main columns (the type and lang columns precede the main column of each variable)
+     */
+    private static List<List<String>> evaluate(ExecutableQuery executableQuery) throws SQLException {
+        SQLExecutableQuery sqlQuery = (SQLExecutableQuery) executableQuery;
+        int variableCount = sqlQuery.getSignature().size();
+
+        List<List<String>> rows = new ArrayList<>();
+        try (PreparedStatement statement = CONN.prepareStatement(sqlQuery.getSQL())) {
+            ImmutableList<Object> parameterValues = sqlQuery.getParameterValues();
+            for (int i = 0; i < parameterValues.size(); i++)
+                statement.setObject(i + 1, parameterValues.get(i));
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    String[] row = new String[variableCount];
+                    for (int i = 0; i < variableCount; i++)
+                        row[i] = resultSet.getString(3 * i + 3);
+                    rows.add(Arrays.asList(row));
+                }
+            }
+        }
+        return rows;
+    }
+}
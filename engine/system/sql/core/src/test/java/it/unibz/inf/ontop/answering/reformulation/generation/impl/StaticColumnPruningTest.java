@@ -0,0 +1,256 @@
+package it.unibz.inf.ontop.answering.reformulation.generation.impl;
+
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.inject.Injector;
+import it.unibz.inf.ontop.answering.reformulation.generation.NativeQueryGenerator;
+import it.unibz.inf.ontop.answering.reformulation.generation.utils.COL_TYPE;
+import it.unibz.inf.ontop.answering.reformulation.impl.SQLColumnPlan;
+import it.unibz.inf.ontop.answering.reformulation.impl.SQLColumnPlan.VariableColumns;
+import it.unibz.inf.ontop.answering.reformulation.impl.SQLExecutableQuery;
+import it.unibz.inf.ontop.dbschema.DBMetadata;
+import it.unibz.inf.ontop.injection.*;
+import it.unibz.inf.ontop.iq.IntermediateQuery;
+import it.unibz.inf.ontop.iq.IntermediateQueryBuilder;
+import it.unibz.inf.ontop.iq.node.*;
+import it.unibz.inf.ontop.model.atom.AtomFactory;
+import it.unibz.inf.ontop.model.atom.DistinctVariableOnlyDataAtom;
+import it.unibz.inf.ontop.model.atom.RelationPredicate;
+import it.unibz.inf.ontop.model.term.*;
+import it.unibz.inf.ontop.model.vocabulary.XSD;
+import it.unibz.inf.ontop.spec.OBDASpecification;
+import it.unibz.inf.ontop.substitution.SubstitutionFactory;
+import it.unibz.inf.ontop.utils.ImmutableCollectors;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.Assert.*;
+
+/**
+ * The type and lang columns of the source query are only projected when they are not constant
+ */
+public class StaticColumnPruningTest {
+
+    private static final String OBDA_FILE = "src/test/resources/marriage/marriage.obda";
+    private static final String CREATE_DB_FILE = "src/test/resources/marriage/create-db.sql";
+    private static final String JDBC_URL = "jdbc:h2:mem:staticcolumnpruningdb";
+    private static final String JDBC_USER = "sa";
+    private static final String JDBC_PASSWORD = "";
+    private static final String PERSON_PREFIX = "http://example.com/person/";
+
+    /*
+     * DB connection (keeps it alive)
+     */
+    private static Connection CONN;
+
+    private static NativeQueryGenerator GENERATOR;
+    private static DBMetadata METADATA;
+    private static OntopReformulationSQLConfiguration CONFIGURATION;
+    private static IntermediateQueryFactory IQ_FACTORY;
+    private static AtomFactory ATOM_FACTORY;
+    private static TermFactory TERM_FACTORY;
+    private static SubstitutionFactory SUBSTITUTION_FACTORY;
+    private static RelationPredicate PERSON;
+
+    private static Variable X, N, ID, FN, LN, SP;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+
+        CONN = DriverManager.getConnection(JDBC_URL, JDBC_USER, JDBC_PASSWORD);
+
+        Statement st = CONN.createStatement();
+
+        FileReader reader = new FileReader(CREATE_DB_FILE);
+        BufferedReader in = new BufferedReader(reader);
+        StringBuilder bf = new StringBuilder();
+        String line = in.readLine();
+        while (line != null) {
+            bf.append(line);
+            line = in.readLine();
+        }
+        in.close();
+
+        st.executeUpdate(bf.toString());
+        CONN.commit();
+
+        OBDASpecification obdaSpecification = OntopMappingSQLAllConfiguration.defaultBuilder()
+                .nativeOntopMappingFile(OBDA_FILE)
+                .jdbcUser(JDBC_USER)
+                .jdbcPassword(JDBC_PASSWORD)
+                .jdbcUrl(JDBC_URL)
+                .enableTestMode()
+                .build()
+                .loadSpecification();
+
+        // Default native query generator
+        CONFIGURATION = OntopReformulationSQLConfiguration.defaultBuilder()
+                .obdaSpecification(obdaSpecification)
+                .jdbcUrl(JDBC_URL)
+                .enableTestMode()
+                .build();
+
+        Injector injector = CONFIGURATION.getInjector();
+        IQ_FACTORY = injector.getInstance(IntermediateQueryFactory.class);
+        ATOM_FACTORY = injector.getInstance(AtomFactory.class);
+        SUBSTITUTION_FACTORY = injector.getInstance(SubstitutionFactory.class);
+        TERM_FACTORY = CONFIGURATION.getTermFactory();
+
+        METADATA = obdaSpecification.getDBMetadata();
+        GENERATOR = injector.getInstance(TranslationFactory.class).create(METADATA);
+
+        PERSON = METADATA.getDatabaseRelation(
+                METADATA.getQuotedIDFactory().createRelationID(null, "\"person\"")).getAtomPredicate();
+
+        X = TERM_FACTORY.getVariable("x");
+        N = TERM_FACTORY.getVariable("n");
+        ID = TERM_FACTORY.getVariable("id");
+        FN = TERM_FACTORY.getVariable("fn");
+        LN = TERM_FACTORY.getVariable("ln");
+        SP = TERM_FACTORY.getVariable("sp");
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        CONN.close();
+    }
+
+    /**
+     * IRI and string without language tag: only the main columns are projected
+     */
+    @Test
+    public void testConstantTypeCodes() throws Exception {
+        DistinctVariableOnlyDataAtom projectionAtom = ATOM_FACTORY.getDistinctVariableOnlyDataAtom(
+                ATOM_FACTORY.getRDFAnswerPredicate(2), X, N);
+        ConstructionNode constructionNode = IQ_FACTORY.createConstructionNode(projectionAtom.getVariables(),
+                SUBSTITUTION_FACTORY.getSubstitution(X, createPersonIRI(), N, createString(FN)));
+
+        IntermediateQueryBuilder queryBuilder = createQueryBuilder();
+        queryBuilder.init(projectionAtom, constructionNode);
+        queryBuilder.addChild(constructionNode, createPersonNode());
+
+        SQLExecutableQuery executableQuery = (SQLExecutableQuery) GENERATOR.generateSourceQuery(queryBuilder.build());
+        SQLColumnPlan columnPlan = executableQuery.getColumnPlan();
+        assertEquals(2, columnPlan.getColumnCount());
+
+        VariableColumns xColumns = columnPlan.getVariableColumns().get(0);
+        assertEquals(Optional.of(COL_TYPE.OBJECT.getQuestCode()), xColumns.getStaticTypeCode());
+        assertFalse(xColumns.getLangColumnIndex().isPresent());
+
+        VariableColumns nColumns = columnPlan.getVariableColumns().get(1);
+        assertEquals(Optional.of(COL_TYPE.STRING.getQuestCode()), nColumns.getStaticTypeCode());
+        assertFalse(nColumns.getLangColumnIndex().isPresent());
+
+        assertEquals(ImmutableSet.of(
+                ImmutableList.of(PERSON_PREFIX + 1, "Mary"),
+                ImmutableList.of(PERSON_PREFIX + 2, "John"),
+                ImmutableList.of(PERSON_PREFIX + 3, "Bob")),
+                ImmutableSet.copyOf(evaluate(executableQuery)));
+    }
+
+    /**
+     * Strings and IRIs: the type column is kept but the lang column is NULL in all the branches
+     */
+    @Test
+    public void testNullLangColumn() throws Exception {
+        IntermediateQuery query = createUnionQuery(createString(FN), createPersonIRI());
+
+        SQLExecutableQuery executableQuery = (SQLExecutableQuery) GENERATOR.generateSourceQuery(query);
+        SQLColumnPlan columnPlan = executableQuery.getColumnPlan();
+        assertEquals(2, columnPlan.getColumnCount());
+
+        VariableColumns nColumns = columnPlan.getVariableColumns().get(0);
+        assertFalse(nColumns.getStaticTypeCode().isPresent());
+        assertTrue(nColumns.getTypeColumnIndex().isPresent());
+        assertFalse(nColumns.getLangColumnIndex().isPresent());
+
+        assertEquals(ImmutableSet.of("Mary", "John", "Bob", PERSON_PREFIX + 1, PERSON_PREFIX + 2, PERSON_PREFIX + 3),
+                getMainValues(executableQuery));
+    }
+
+    /**
+     * Plain and language-tagged strings: the type and lang columns are kept
+     */
+    @Test
+    public void testMixedUnion() throws Exception {
+        IntermediateQuery query = createUnionQuery(createString(FN),
+                TERM_FACTORY.getImmutableTypedTerm(LN, "en"));
+
+        SQLExecutableQuery executableQuery = (SQLExecutableQuery) GENERATOR.generateSourceQuery(query);
+        SQLColumnPlan columnPlan = executableQuery.getColumnPlan();
+        assertEquals(SQLColumnPlan.createDefault(1), columnPlan);
+
+        assertEquals(ImmutableSet.of("Mary", "John", "Bob", "Smith", "Doe", "Forester"),
+                getMainValues(executableQuery));
+    }
+
+    private static IntermediateQuery createUnionQuery(ImmutableTerm firstDefinition, ImmutableTerm secondDefinition) {
+        DistinctVariableOnlyDataAtom projectionAtom = ATOM_FACTORY.getDistinctVariableOnlyDataAtom(
+                ATOM_FACTORY.getRDFAnswerPredicate(1), N);
+        UnionNode unionNode = IQ_FACTORY.createUnionNode(projectionAtom.getVariables());
+        ConstructionNode firstNode = IQ_FACTORY.createConstructionNode(projectionAtom.getVariables(),
+                SUBSTITUTION_FACTORY.getSubstitution(N, firstDefinition));
+        ConstructionNode secondNode = IQ_FACTORY.createConstructionNode(projectionAtom.getVariables(),
+                SUBSTITUTION_FACTORY.getSubstitution(N, secondDefinition));
+
+        IntermediateQueryBuilder queryBuilder = createQueryBuilder();
+        queryBuilder.init(projectionAtom, unionNode);
+        queryBuilder.addChild(unionNode, firstNode);
+        queryBuilder.addChild(firstNode, createPersonNode());
+        queryBuilder.addChild(unionNode, secondNode);
+        queryBuilder.addChild(secondNode, createPersonNode());
+        return queryBuilder.build();
+    }
+
+    private static IntermediateQueryBuilder createQueryBuilder() {
+        return IQ_FACTORY.createIQBuilder(METADATA, CONFIGURATION.getExecutorRegistry());
+    }
+
+    private static ExtensionalDataNode createPersonNode() {
+        return IQ_FACTORY.createExtensionalDataNode(ATOM_FACTORY.getDataAtom(PERSON, ID, FN, LN, SP));
+    }
+
+    private static ImmutableFunctionalTerm createPersonIRI() {
+        return TERM_FACTORY.getImmutableUriTemplate(TERM_FACTORY.getConstantLiteral(PERSON_PREFIX + "{}"), ID);
+    }
+
+    private static ImmutableFunctionalTerm createString(Variable variable) {
+        return TERM_FACTORY.getImmutableTypedTerm(variable, XSD.STRING);
+    }
+
+    private static ImmutableSet<String> getMainValues(SQLExecutableQuery executableQuery) throws SQLException {
+        return evaluate(executableQuery).stream()
+                .map(r -> r.get(0))
+                .collect(ImmutableCollectors.toSet());
+    }
+
+    /**
+     * Main columns, located according to the column plan
+     */
+    private static List<List<String>> evaluate(SQLExecutableQuery executableQuery) throws SQLException {
+        ImmutableList<VariableColumns> variableColumns = executableQuery.getColumnPlan().getVariableColumns();
+
+        List<List<String>> rows = new ArrayList<>();
+        try (Statement statement = CONN.createStatement();
+             ResultSet resultSet = statement.executeQuery(executableQuery.getSQL())) {
+            assertEquals(executableQuery.getColumnPlan().getColumnCount(), resultSet.getMetaData().getColumnCount());
+            while (resultSet.next()) {
+                String[] row = new String[variableColumns.size()];
+                for (int i = 0; i < variableColumns.size(); i++)
+                    row[i] = resultSet.getString(variableColumns.get(i).getMainColumnIndex());
+                rows.add(Arrays.asList(row));
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,302 @@
+package it.unibz.inf.ontop.answering.resultset.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.inject.Injector;
+import it.unibz.inf.ontop.answering.reformulation.generation.utils.COL_TYPE;
+import it.unibz.inf.ontop.answering.resultset.impl.JDBC2ConstantConverter.TemporalParser;
+import it.unibz.inf.ontop.answering.resultset.impl.JDBC2ConstantConverter.ValueConverter;
+import it.unibz.inf.ontop.dbschema.DBMetadata;
+import it.unibz.inf.ontop.exception.OntopResultConversionException;
+import it.unibz.inf.ontop.injection.OntopModelConfiguration;
+import it.unibz.inf.ontop.model.term.BNode;
+import it.unibz.inf.ontop.model.term.Constant;
+import it.unibz.inf.ontop.model.term.TermFactory;
+import it.unibz.inf.ontop.model.type.TypeFactory;
+import it.unibz.inf.ontop.model.vocabulary.XSD;
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.api.RDF;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.*;
+import java.time.format.DateTimeFormatter;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class JDBC2ConstantConverterTest {
+
+    private static final TermFactory TERM_FACTORY;
+    private static final TypeFactory TYPE_FACTORY;
+    private static final RDF RDF_FACTORY;
+
+    static {
+        OntopModelConfiguration configuration = OntopModelConfiguration.defaultBuilder()
+                .enableTestMode()
+                .build();
+        Injector injector = configuration.getInjector();
+        TERM_FACTORY = injector.getInstance(TermFactory.class);
+        TYPE_FACTORY = injector.getInstance(TypeFactory.class);
+        RDF_FACTORY = injector.getInstance(RDF.class);
+    }
+
+    private TimeZone defaultTimeZone;
+    private JDBC2ConstantConverter converter;
+
+    @Before
+    public void setUp() {
+        // Fixed time zone for the JDBC temporal objects (CET/CEST)
+        defaultTimeZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("Europe/Rome"));
+        converter = createConverter();
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(defaultTimeZone);
+    }
+
+    @Test
+    public void testNull() throws Exception {
+        assertNull(convert(COL_TYPE.NULL, "abc"));
+    }
+
+    @Test
+    public void testIRI() throws Exception {
+        assertEquals(TERM_FACTORY.getConstantIRI(RDF_FACTORY.createIRI("http://example.org/a")),
+                convert(COL_TYPE.OBJECT, "http://example.org/a "));
+    }
+
+    @Test
+    public void testLangString() throws Exception {
+        ValueConverter langStringConverter = getConverter(COL_TYPE.LANG_STRING);
+        assertEquals(TERM_FACTORY.getConstantLiteral("chat", "fr"), langStringConverter.convert("chat", "fr"));
+        assertEquals(TERM_FACTORY.getConstantLiteral("chat"), langStringConverter.convert("chat", null));
+        assertEquals(TERM_FACTORY.getConstantLiteral("chat"), langStringConverter.convert("chat", " "));
+    }
+
+    @Test
+    public void testBoolean() throws Exception {
+        assertEquals(TERM_FACTORY.getBooleanConstant(true), convert(COL_TYPE.BOOLEAN, true));
+        assertEquals(TERM_FACTORY.getBooleanConstant(false), convert(COL_TYPE.BOOLEAN, "false"));
+    }
+
+    @Test
+    public void testFloatingValues() throws Exception {
+        assertEquals(createLiteral("1.5E0", XSD.DOUBLE), convert(COL_TYPE.DOUBLE, 1.5));
+        assertEquals(createLiteral("-1.275E1", XSD.DOUBLE), convert(COL_TYPE.DOUBLE, -12.75));
+        assertEquals(createLiteral("1.0E2", XSD.DOUBLE), convert(COL_TYPE.DOUBLE, new BigDecimal("100")));
+        assertEquals(createLiteral("NaN", XSD.DOUBLE), convert(COL_TYPE.DOUBLE, Double.NaN));
+        assertEquals(createLiteral("2.5E-1", XSD.FLOAT), convert(COL_TYPE.FLOAT, 0.25f));
+        assertEquals(createLiteral("Infinity", XSD.FLOAT), convert(COL_TYPE.FLOAT, Float.POSITIVE_INFINITY));
+    }
+
+    /**
+     * The integers may be returned as decimal numbers by the driver
+     */
+    @Test
+    public void testIntegers() throws Exception {
+        assertEquals(createLiteral("42", XSD.INTEGER), convert(COL_TYPE.INTEGER, 42L));
+        assertEquals(createLiteral("42", XSD.INTEGER), convert(COL_TYPE.INTEGER, new BigDecimal("42.0")));
+        assertEquals(createLiteral("42", XSD.INTEGER), convert(COL_TYPE.INTEGER, 42.0));
+        assertEquals(createLiteral("-3", XSD.NEGATIVE_INTEGER), convert(COL_TYPE.NEGATIVE_INTEGER, -3));
+        assertEquals(createLiteral("0", XSD.NON_NEGATIVE_INTEGER), convert(COL_TYPE.NON_NEGATIVE_INTEGER, (short) 0));
+        assertEquals(createLiteral("7", XSD.POSITIVE_INTEGER), convert(COL_TYPE.POSITIVE_INTEGER, 7));
+        assertEquals(createLiteral("0", XSD.NON_POSITIVE_INTEGER), convert(COL_TYPE.NON_POSITIVE_INTEGER, 0));
+    }
+
+    /**
+     * Lexical value of the JDBC value
+     */
+    @Test
+    public void testStringBasedValues() throws Exception {
+        assertEquals(createLiteral("12.50", XSD.DECIMAL), convert(COL_TYPE.DECIMAL, new BigDecimal("12.50")));
+        assertEquals(createLiteral("12", XSD.INT), convert(COL_TYPE.INT, 12));
+        assertEquals(createLiteral("12", XSD.LONG), convert(COL_TYPE.LONG, 12L));
+        assertEquals(createLiteral("12", XSD.UNSIGNED_INT), convert(COL_TYPE.UNSIGNED_INT, 12));
+        assertEquals(createLiteral("abc", XSD.STRING), convert(COL_TYPE.STRING, "abc"));
+        assertEquals(createLiteral("2018", XSD.GYEAR), convert(COL_TYPE.YEAR, 2018));
+    }
+
+    @Test
+    public void testDatetimeStrings() throws Exception {
+        assertEquals(createLiteral("2018-05-07T10:20:30", XSD.DATETIME),
+                convert(COL_TYPE.DATETIME, "2018-05-07T10:20:30"));
+        assertEquals(createLiteral("2018-05-07T10:20:30.5", XSD.DATETIME),
+                convert(COL_TYPE.DATETIME, "2018-05-07 10:20:30.5"));
+        assertEquals(createLiteral("2018-05-07T10:20:30.123+02:00", XSD.DATETIME),
+                convert(COL_TYPE.DATETIME, "2018-05-07 10:20:30.123+02:00"));
+        assertEquals(createLiteral("2018-05-07T00:00:00", XSD.DATETIME),
+                convert(COL_TYPE.DATETIME, "2018-05-07"));
+        assertEquals(createLiteral("2018-05-07T10:20:30+02:00", XSD.DATETIMESTAMP),
+                convert(COL_TYPE.DATETIME_STAMP, "2018-05-07 10:20:30+02:00"));
+    }
+
+    @Test(expected = OntopResultConversionException.class)
+    public void testUnparseableDatetime() throws Exception {
+        convert(COL_TYPE.DATETIME, "not a date");
+    }
+
+    /**
+     * The offset is the one of the default time zone at that date
+     */
+    @Test
+    public void testTimestampTimeZones() throws Exception {
+        assertEquals(createLiteral("2018-05-07T10:20:30+02:00", XSD.DATETIME),
+                convert(COL_TYPE.DATETIME, Timestamp.valueOf("2018-05-07 10:20:30")));
+        assertEquals(createLiteral("2018-01-07T10:20:30+01:00", XSD.DATETIME),
+                convert(COL_TYPE.DATETIME, Timestamp.valueOf("2018-01-07 10:20:30")));
+    }
+
+    /**
+     * Beyond the milliseconds
+     */
+    @Test
+    public void testTimestampFractionalSeconds() throws Exception {
+        assertEquals(createLiteral("2018-05-07T10:20:30.123456789+02:00", XSD.DATETIME),
+                convert(COL_TYPE.DATETIME, Timestamp.valueOf("2018-05-07 10:20:30.123456789")));
+        assertEquals(createLiteral("2018-05-07T10:20:30.5+02:00", XSD.DATETIME),
+                convert(COL_TYPE.DATETIME, Timestamp.valueOf("2018-05-07 10:20:30.5")));
+    }
+
+    /**
+     * JDBC 4.2 objects keep their own offset
+     */
+    @Test
+    public void testJavaTimeObjects() throws Exception {
+        assertEquals(createLiteral("2018-05-07T10:20:30-05:00", XSD.DATETIME),
+                convert(COL_TYPE.DATETIME, OffsetDateTime.of(2018, 5, 7, 10, 20, 30, 0, ZoneOffset.ofHours(-5))));
+        assertEquals(createLiteral("2018-05-07T10:20:30.25Z", XSD.DATETIME),
+                convert(COL_TYPE.DATETIME, ZonedDateTime.of(2018, 5, 7, 10, 20, 30, 250_000_000, ZoneOffset.UTC)));
+        assertEquals(createLiteral("2018-05-07T10:20:30", XSD.DATETIME),
+                convert(COL_TYPE.DATETIME, LocalDateTime.of(2018, 5, 7, 10, 20, 30)));
+        assertEquals(createLiteral("2018-05-07T00:00:00", XSD.DATETIME),
+                convert(COL_TYPE.DATETIME, LocalDate.of(2018, 5, 7)));
+    }
+
+    @Test
+    public void testDate() throws Exception {
+        assertEquals(createLiteral("2018-05-07", XSD.DATE), convert(COL_TYPE.DATE, "2018-05-07"));
+        assertEquals(createLiteral("2018-05-07", XSD.DATE), convert(COL_TYPE.DATE, LocalDate.of(2018, 5, 7)));
+    }
+
+    @Test
+    public void testTime() throws Exception {
+        assertEquals(createLiteral("10:20:30", XSD.TIME), convert(COL_TYPE.TIME, "10:20:30"));
+        assertEquals(createLiteral("10:20:30.25", XSD.TIME), convert(COL_TYPE.TIME, "10:20:30.250"));
+        assertEquals(createLiteral("10:20:30", XSD.TIME), convert(COL_TYPE.TIME, LocalTime.of(10, 20, 30)));
+        // Epoch day (winter time)
+        assertEquals(createLiteral("10:20:30+01:00", XSD.TIME), convert(COL_TYPE.TIME, Time.valueOf("10:20:30")));
+    }
+
+    @Test
+    public void testShortBNodeLabels() throws Exception {
+        ValueConverter bnodeConverter = getConverter(COL_TYPE.BNODE);
+        assertEquals("b0", getLabel(bnodeConverter.convert("x", null)));
+        assertEquals("b1", getLabel(bnodeConverter.convert("y", null)));
+        assertEquals("b0", getLabel(bnodeConverter.convert("x", null)));
+    }
+
+    /**
+     * Beyond the short labels: consistent within the result set, opaque and specific to it
+     */
+    @Test
+    public void testHashedBNodeLabels() throws Exception {
+        ValueConverter bnodeConverter = getConverter(COL_TYPE.BNODE);
+        for (int i = 0; i < JDBC2ConstantConverter.MAX_BNODE_LABELS; i++)
+            bnodeConverter.convert("v" + i, null);
+
+        String value = "secret value";
+        String label = getLabel(bnodeConverter.convert(value, null));
+        assertTrue(label.startsWith("b_"));
+        assertFalse(label.contains("secret"));
+        assertEquals(label, getLabel(bnodeConverter.convert(value, null)));
+        assertNotEquals(label, getLabel(bnodeConverter.convert("other value", null)));
+
+        ValueConverter otherBNodeConverter = createConverter().createConverter(COL_TYPE.BNODE.getQuestCode()).get();
+        for (int i = 0; i < JDBC2ConstantConverter.MAX_BNODE_LABELS; i++)
+            otherBNodeConverter.convert("v" + i, null);
+        assertNotEquals(label, getLabel(otherBNodeConverter.convert(value, null)));
+    }
+
+    @Test
+    public void testUnknownTypeCode() {
+        assertFalse(converter.createConverter(-1000).isPresent());
+    }
+
+    /**
+     * The formats alternate: the preferred formatter changes without failing
+     */
+    @Test
+    public void testTemporalParserAlternatingFormats() {
+        TemporalParser parser = createDatetimeParser();
+        Set<LocalDateTime> parsedValues = new HashSet<>();
+        for (int i = 0; i < 3; i++) {
+            parsedValues.add(LocalDateTime.from(parser.parse("2018-05-07T10:20:30")));
+            parsedValues.add(LocalDateTime.from(parser.parse("2018-05-07 10:20:30")));
+        }
+        assertEquals(1, parsedValues.size());
+        assertEquals(LocalDateTime.of(2018, 5, 7, 10, 20, 30), parsedValues.iterator().next());
+    }
+
+    @Test
+    public void testTemporalParserBestQuery() {
+        TemporalParser parser = createDatetimeParser();
+        assertTrue(parser.parse("2018-05-07 10:20:30+02:00") instanceof OffsetDateTime);
+        assertTrue(parser.parse("2018-05-07 10:20:30") instanceof LocalDateTime);
+    }
+
+    /**
+     * Trailing characters, syntax errors and non-resolvable values do not throw exceptions
+     */
+    @Test
+    public void testTemporalParserFailures() {
+        TemporalParser parser = createDatetimeParser();
+        assertNull(parser.parse("2018-05-07T10:20:30 garbage"));
+        assertNull(parser.parse("07/05/2018"));
+        assertNull(parser.parse(""));
+        assertNull(parser.parse("2018-13-07T10:20:30"));
+        // Still works after the failures
+        assertEquals(LocalDateTime.of(2018, 5, 7, 10, 20, 30),
+                LocalDateTime.from(parser.parse("2018-05-07T10:20:30")));
+    }
+
+    private static TemporalParser createDatetimeParser() {
+        return new TemporalParser(ImmutableList.of(DateTimeFormatter.ISO_LOCAL_DATE_TIME,
+                DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss[XXXXX]")),
+                OffsetDateTime::from, LocalDateTime::from);
+    }
+
+    private Constant convert(COL_TYPE type, Object value) throws OntopResultConversionException {
+        return getConverter(type).convert(value, null);
+    }
+
+    private ValueConverter getConverter(COL_TYPE type) {
+        Optional<ValueConverter> valueConverter = converter.createConverter(type.getQuestCode());
+        assertTrue("No converter for " + type, valueConverter.isPresent());
+        return valueConverter.get();
+    }
+
+    private static Constant createLiteral(String lexicalValue, IRI datatype) {
+        return TERM_FACTORY.getConstantLiteral(lexicalValue, TYPE_FACTORY.getDatatype(datatype));
+    }
+
+    private static String getLabel(Constant constant) {
+        return ((BNode) constant).getName();
+    }
+
+    private static JDBC2ConstantConverter createConverter() {
+        DBMetadata dbMetadata = (DBMetadata) Proxy.newProxyInstance(DBMetadata.class.getClassLoader(),
+                new Class<?>[]{DBMetadata.class},
+                (proxy, m, args) -> m.getName().equals("getDriverName") ? "H2 JDBC Driver" : null);
+        return new JDBC2ConstantConverter(dbMetadata, Optional.empty(), TERM_FACTORY, TYPE_FACTORY, RDF_FACTORY);
+    }
+}
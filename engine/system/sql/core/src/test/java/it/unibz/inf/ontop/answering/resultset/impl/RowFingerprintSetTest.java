@@ -0,0 +1,90 @@
+package it.unibz.inf.ontop.answering.resultset.impl;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class RowFingerprintSetTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testDuplicatesInMemory() throws Exception {
+        try (RowFingerprintSet set = new RowFingerprintSet(1024 * 1024, folder.getRoot().toPath())) {
+            assertTrue(set.add(new Object[]{1, null, "a"}));
+            assertTrue(set.add(new Object[]{1, "en", "a"}));
+            assertFalse(set.add(new Object[]{1, null, "a"}));
+            // Values are separated
+            assertTrue(set.add(new Object[]{"ab", "c"}));
+            assertTrue(set.add(new Object[]{"a", "bc"}));
+
+            assertEquals(5, set.getRowCount());
+            assertEquals(4, set.getDistinctRowCount());
+            assertEquals(0, set.getSpillCount());
+        }
+    }
+
+    /**
+     * The minimal budget forces many spills
+     */
+    @Test
+    public void testDuplicatesWithSpills() throws Exception {
+        Random random = new Random(42);
+        Set<List<Object>> expected = new HashSet<>();
+        File directory = folder.newFolder();
+
+        try (RowFingerprintSet set = new RowFingerprintSet(0, directory.toPath())) {
+            for (int i = 0; i < 50000; i++) {
+                Object[] row = {7, null, "v" + random.nextInt(20000)};
+                assertEquals(expected.add(Arrays.asList(row)), set.add(row));
+            }
+            assertTrue(set.getSpillCount() > 1);
+            // Runs of similar sizes are merged
+            assertTrue(set.getRunCount() < set.getSpillCount());
+            assertEquals(expected.size(), set.getDistinctRowCount());
+            // Runs and row file
+            assertEquals(set.getRunCount() + 1, directory.listFiles().length);
+        }
+        assertEquals(0, directory.listFiles().length);
+    }
+
+    /**
+     * Distinct rows sharing a fingerprint are kept apart
+     */
+    @Test
+    public void testCollisionsInMemory() throws Exception {
+        Set<List<Object>> expected = new HashSet<>();
+        // 4 possible fingerprints
+        try (RowFingerprintSet set = new RowFingerprintSet(1024 * 1024, folder.getRoot().toPath(), 1L)) {
+            for (int i = 0; i < 3000; i++) {
+                Object[] row = {"v" + (i % 1000), i % 3 == 0 ? null : "null"};
+                assertEquals(expected.add(Arrays.asList(row)), set.add(row));
+            }
+            assertEquals(expected.size(), set.getDistinctRowCount());
+            assertEquals(0, set.getSpillCount());
+        }
+    }
+
+    @Test
+    public void testCollisionsWithSpills() throws Exception {
+        Random random = new Random(7);
+        Set<List<Object>> expected = new HashSet<>();
+        File directory = folder.newFolder();
+
+        try (RowFingerprintSet set = new RowFingerprintSet(0, directory.toPath(), 0xffL)) {
+            for (int i = 0; i < 20000; i++) {
+                Object[] row = {random.nextInt(5000), random.nextBoolean() ? null : "null"};
+                assertEquals(expected.add(Arrays.asList(row)), set.add(row));
+            }
+            assertTrue(set.getSpillCount() > 1);
+            assertEquals(expected.size(), set.getDistinctRowCount());
+        }
+        assertEquals(0, directory.listFiles().length);
+    }
+}
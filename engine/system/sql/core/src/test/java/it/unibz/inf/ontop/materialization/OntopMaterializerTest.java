@@ -146,6 +146,18 @@ public class OntopMaterializerTest {
 
 	@Test
 	public void testOneSource() throws Exception {
+		testOneSource(MaterializationParams.defaultBuilder()
+				.build());
+	}
+
+	@Test
+	public void testOneSourceInParallel() throws Exception {
+		testOneSource(MaterializationParams.defaultBuilder()
+				.parallelism(3)
+				.build());
+	}
+
+	private void testOneSource(MaterializationParams materializationParams) throws Exception {
 
     	SQLPPMapping ppMapping = createMapping();
 
@@ -168,6 +180,7 @@ public class OntopMaterializerTest {
 		}
 		in.close();
 
+		st.executeUpdate("DROP TABLE IF EXISTS \"data\"");
 		st.executeUpdate(bf.toString());
 		conn.commit();
 
@@ -176,9 +189,6 @@ public class OntopMaterializerTest {
 
 		OntopRDFMaterializer materializer = OntopRDFMaterializer.defaultMaterializer();
 
-		MaterializationParams materializationParams = MaterializationParams.defaultBuilder()
-				.build();
-
 		try (MaterializedGraphResultSet materializationResultSet = materializer.materialize(
 				configuration, vocabulary, materializationParams)) {
 
@@ -36,6 +36,18 @@ public interface OntopMappingSettings extends OntopOBDASettings, OntopOptimizati
      */
     boolean isCanIRIComplete();
 
+    /**
+     * If true, the saturated definition of a class or property (T-mapping)
+     * is only computed when first needed (e.g. by a query)
+     */
+    boolean isLazyMappingSaturationEnabled();
+
+    /**
+     * When the saturation is lazy, number of classes and properties whose definitions are computed
+     * in the background at startup (those with the most mapping assertions first)
+     */
+    int getMappingSaturationWarmUpSize();
+
     //--------------------------
     // Keys
     //--------------------------
@@ -45,6 +57,8 @@ public interface OntopMappingSettings extends OntopOBDASettings, OntopOptimizati
     String COMPLETE_PROVIDED_METADATA = "ontop.completeProvidedMetadata";
     String INFER_DEFAULT_DATATYPE = "ontop.inferDefaultDatatype";
     String IS_CANONICAL_IRI_COMPLETE = "ontop.isCanonicalIRIComplete";
+    String LAZY_MAPPING_SATURATION = "ontop.lazyMappingSaturation";
+    String MAPPING_SATURATION_WARM_UP_SIZE = "ontop.mappingSaturationWarmUpSize";
 
 
     /**
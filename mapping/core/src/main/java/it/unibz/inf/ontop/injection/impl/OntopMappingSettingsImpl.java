@@ -51,4 +51,19 @@ class OntopMappingSettingsImpl extends OntopOBDASettingsImpl implements OntopMap
     public boolean isCanIRIComplete() {
         return getRequiredBoolean(IS_CANONICAL_IRI_COMPLETE);
     }
+
+    @Override
+    public boolean isLazyMappingSaturationEnabled() {
+        return getRequiredBoolean(LAZY_MAPPING_SATURATION);
+    }
+
+    @Override
+    public int getMappingSaturationWarmUpSize() {
+        return getRequiredInteger(MAPPING_SATURATION_WARM_UP_SIZE);
+    }
+
+    @Override
+    public boolean isPostUnfoldingFixedPointEnabled() {
+        return optimizationSettings.isPostUnfoldingFixedPointEnabled();
+    }
 }
@@ -8,4 +8,12 @@ import it.unibz.inf.ontop.spec.ontology.ClassifiedTBox;
 public interface MappingSaturator {
 
     Mapping saturate(Mapping mapping, DBMetadata dbMetadata, ClassifiedTBox saturatedTBox);
+
+    /**
+     * Saturated mapping whose definitions are computed (and normalized) on demand, and then memoized.
+     *
+     * warmUpSize: number of definitions computed in the background right away (the most costly first)
+     */
+    Mapping saturateLazily(Mapping mapping, DBMetadata dbMetadata, ClassifiedTBox saturatedTBox,
+                           MappingVariableNameNormalizer normalizer, int warmUpSize);
 }
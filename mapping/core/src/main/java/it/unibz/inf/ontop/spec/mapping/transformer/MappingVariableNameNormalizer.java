@@ -1,6 +1,7 @@
 package it.unibz.inf.ontop.spec.mapping.transformer;
 
 
+import it.unibz.inf.ontop.iq.IQ;
 import it.unibz.inf.ontop.spec.mapping.Mapping;
 
 /**
@@ -10,4 +11,10 @@ import it.unibz.inf.ontop.spec.mapping.Mapping;
 public interface MappingVariableNameNormalizer {
 
     Mapping normalize(Mapping mapping);
+
+    /**
+     * Normalizes a single definition.
+     * The index must not be used for any other definition of the mapping.
+     */
+    IQ normalize(IQ definition, int index);
 }
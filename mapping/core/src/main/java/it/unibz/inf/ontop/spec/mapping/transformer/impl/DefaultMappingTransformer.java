@@ -60,8 +60,15 @@ public class DefaultMappingTransformer implements MappingTransformer {
 
     OBDASpecification createSpecification(Mapping mapping, DBMetadata dbMetadata, ClassifiedTBox tbox) {
         Mapping sameAsOptimizedMapping = sameAsInverseRewriter.rewrite(mapping);
-        Mapping saturatedMapping = mappingSaturator.saturate(sameAsOptimizedMapping, dbMetadata, tbox);
-        Mapping normalizedMapping = mappingNormalizer.normalize(saturatedMapping);
+        Mapping normalizedMapping;
+        if (settings.isLazyMappingSaturationEnabled()) {
+            normalizedMapping = mappingSaturator.saturateLazily(sameAsOptimizedMapping, dbMetadata, tbox,
+                    mappingNormalizer, settings.getMappingSaturationWarmUpSize());
+        }
+        else {
+            Mapping saturatedMapping = mappingSaturator.saturate(sameAsOptimizedMapping, dbMetadata, tbox);
+            normalizedMapping = mappingNormalizer.normalize(saturatedMapping);
+        }
 
         return specificationFactory.createSpecification(normalizedMapping, dbMetadata, tbox);
     }
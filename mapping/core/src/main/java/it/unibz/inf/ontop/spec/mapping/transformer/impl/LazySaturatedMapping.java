@@ -0,0 +1,220 @@
+package it.unibz.inf.ontop.spec.mapping.transformer.impl;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.*;
+import it.unibz.inf.ontop.datalog.CQIE;
+import it.unibz.inf.ontop.datalog.Datalog2QueryMappingConverter;
+import it.unibz.inf.ontop.injection.SpecificationFactory;
+import it.unibz.inf.ontop.iq.IQ;
+import it.unibz.inf.ontop.model.atom.RDFAtomPredicate;
+import it.unibz.inf.ontop.spec.mapping.Mapping;
+import it.unibz.inf.ontop.spec.mapping.MappingMetadata;
+import it.unibz.inf.ontop.spec.mapping.transformer.MappingVariableNameNormalizer;
+import it.unibz.inf.ontop.utils.ImmutableCollectors;
+import org.apache.commons.rdf.api.IRI;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Saturated mapping whose definitions are computed on demand, one class or property at a time,
+ * and memoized.
+ *
+ * The definition of a predicate is the same as in the eagerly saturated mapping
+ * (up to the names of its variables).
+ *
+ * The methods returning all the definitions (getQueries, getRDFPropertyQueries, etc.)
+ * compute the missing ones.
+ *
+ * Thread-safe.
+ */
+class LazySaturatedMapping implements Mapping {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LazySaturatedMapping.class);
+
+    private final TMappingProcessor.LazyTMappings tMappings;
+    private final MappingMetadata metadata;
+    private final Datalog2QueryMappingConverter datalog2MappingConverter;
+    private final MappingVariableNameNormalizer normalizer;
+    private final SpecificationFactory specificationFactory;
+
+    // Definitions (as a class and as a property) of each predicate
+    private final Map<IRI, Mapping> definitions;
+    // For normalizing the variable names
+    private final AtomicInteger definitionCounter;
+    private final Supplier<Mapping> completeMapping;
+
+    LazySaturatedMapping(TMappingProcessor.LazyTMappings tMappings, MappingMetadata metadata,
+                         Datalog2QueryMappingConverter datalog2MappingConverter,
+                         MappingVariableNameNormalizer normalizer, SpecificationFactory specificationFactory) {
+        this.tMappings = tMappings;
+        this.metadata = metadata;
+        this.datalog2MappingConverter = datalog2MappingConverter;
+        this.normalizer = normalizer;
+        this.specificationFactory = specificationFactory;
+        this.definitions = new ConcurrentHashMap<>();
+        this.definitionCounter = new AtomicInteger(0);
+        this.completeMapping = Suppliers.memoize(this::computeCompleteMapping);
+    }
+
+    /**
+     * Computes in the background the definitions of the given number of predicates,
+     * starting with the ones having the most mapping assertions
+     */
+    void startWarmUp(int size) {
+        ImmutableList<IRI> predicates = tMappings.getPredicatesByDecreasingSize().stream()
+                .limit(size)
+                .collect(ImmutableCollectors.toList());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "ontop-mapping-warm-up");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.submit(() -> {
+            try {
+                long start = System.currentTimeMillis();
+                predicates.forEach(this::getDefinitions);
+                LOGGER.debug("Definitions of {} predicates computed in the background in {} ms",
+                        predicates.size(), System.currentTimeMillis() - start);
+            }
+            catch (RuntimeException e) {
+                LOGGER.warn("Warm-up of the saturated mapping interrupted: " + e);
+            }
+        });
+        executor.shutdown();
+    }
+
+    @Override
+    public MappingMetadata getMetadata() {
+        return metadata;
+    }
+
+    @Override
+    public Optional<IQ> getRDFPropertyDefinition(RDFAtomPredicate rdfAtomPredicate, IRI propertyIRI) {
+        return tMappings.getProperties().contains(propertyIRI)
+                ? getDefinitions(propertyIRI).getRDFPropertyDefinition(rdfAtomPredicate, propertyIRI)
+                : Optional.empty();
+    }
+
+    @Override
+    public Optional<IQ> getRDFClassDefinition(RDFAtomPredicate rdfAtomPredicate, IRI classIRI) {
+        return tMappings.getClasses().contains(classIRI)
+                ? getDefinitions(classIRI).getRDFClassDefinition(rdfAtomPredicate, classIRI)
+                : Optional.empty();
+    }
+
+    @Override
+    public ImmutableSet<IRI> getRDFProperties(RDFAtomPredicate rdfAtomPredicate) {
+        return tMappings.getRDFAtomPredicates().contains(rdfAtomPredicate)
+                ? tMappings.getProperties()
+                : ImmutableSet.of();
+    }
+
+    @Override
+    public ImmutableSet<IRI> getRDFClasses(RDFAtomPredicate rdfAtomPredicate) {
+        return tMappings.getRDFAtomPredicates().contains(rdfAtomPredicate)
+                ? tMappings.getClasses()
+                : ImmutableSet.of();
+    }
+
+    /**
+     * Number of mapping assertions before saturation
+     */
+    @Override
+    public int estimateDefinitionSize(IRI classOrPropertyIRI) {
+        return tMappings.getSize(classOrPropertyIRI);
+    }
+
+    @Override
+    public ImmutableCollection<IQ> getQueries(RDFAtomPredicate rdfAtomPredicate) {
+        return completeMapping.get().getQueries(rdfAtomPredicate);
+    }
+
+    @Override
+    public ImmutableSet<Table.Cell<RDFAtomPredicate, IRI, IQ>> getRDFPropertyQueries() {
+        return completeMapping.get().getRDFPropertyQueries();
+    }
+
+    @Override
+    public ImmutableSet<Table.Cell<RDFAtomPredicate, IRI, IQ>> getRDFClassQueries() {
+        return completeMapping.get().getRDFClassQueries();
+    }
+
+    @Override
+    public ImmutableSet<RDFAtomPredicate> getRDFAtomPredicates() {
+        return (tMappings.getClasses().isEmpty() && tMappings.getProperties().isEmpty())
+                ? ImmutableSet.of()
+                : tMappings.getRDFAtomPredicates();
+    }
+
+    @Override
+    public Mapping update(ImmutableTable<RDFAtomPredicate, IRI, IQ> propertyUpdateMap,
+                          ImmutableTable<RDFAtomPredicate, IRI, IQ> classUpdateMap) {
+        return completeMapping.get().update(propertyUpdateMap, classUpdateMap);
+    }
+
+    private Mapping getDefinitions(IRI predicate) {
+        return definitions.computeIfAbsent(predicate, this::computeDefinitions);
+    }
+
+    private Mapping computeDefinitions(IRI predicate) {
+        // Duplicates are removed, as in the eager saturation
+        ImmutableList<CQIE> rules = ImmutableSet.copyOf(tMappings.getTMappings(predicate)).asList();
+        Mapping mapping = datalog2MappingConverter.convertMappingRules(rules, metadata);
+
+        return specificationFactory.createMapping(metadata,
+                normalize(mapping.getRDFPropertyQueries()),
+                normalize(mapping.getRDFClassQueries()));
+    }
+
+    private ImmutableTable<RDFAtomPredicate, IRI, IQ> normalize(
+            ImmutableSet<Table.Cell<RDFAtomPredicate, IRI, IQ>> queryCells) {
+        return queryCells.stream()
+                .map(c -> Tables.immutableCell(
+                        c.getRowKey(),
+                        c.getColumnKey(),
+                        normalizer.normalize(c.getValue(), definitionCounter.incrementAndGet())))
+                .collect(ImmutableCollectors.toTable());
+    }
+
+    /**
+     * Computes the missing definitions (in parallel)
+     */
+    private Mapping computeCompleteMapping() {
+        long start = System.currentTimeMillis();
+        ImmutableList<Mapping> predicateMappings = Stream.concat(
+                    tMappings.getClasses().stream(),
+                    tMappings.getProperties().stream())
+                .distinct()
+                .parallel()
+                .map(this::getDefinitions)
+                .collect(ImmutableCollectors.toList());
+
+        Mapping mapping = specificationFactory.createMapping(metadata,
+                predicateMappings.stream()
+                        .flatMap(m -> m.getRDFPropertyQueries().stream())
+                        .collect(ImmutableCollectors.toTable()),
+                predicateMappings.stream()
+                        .flatMap(m -> m.getRDFClassQueries().stream())
+                        .collect(ImmutableCollectors.toTable()));
+        LOGGER.debug("All the definitions of the saturated mapping computed in {} ms",
+                System.currentTimeMillis() - start);
+        return mapping;
+    }
+
+    @Override
+    public String toString() {
+        return "LazySaturatedMapping (" + definitions.size() + " of "
+                + Sets.union(tMappings.getClasses(), tMappings.getProperties()).size()
+                + " predicates computed)";
+    }
+}
@@ -9,6 +9,7 @@ import it.unibz.inf.ontop.datalog.impl.CQContainmentCheckUnderLIDs;
 import it.unibz.inf.ontop.dbschema.DBMetadata;
 import it.unibz.inf.ontop.dbschema.DatabaseRelationDefinition;
 import it.unibz.inf.ontop.dbschema.ForeignKeyConstraint;
+import it.unibz.inf.ontop.injection.SpecificationFactory;
 import it.unibz.inf.ontop.model.atom.AtomFactory;
 import it.unibz.inf.ontop.model.term.Function;
 import it.unibz.inf.ontop.model.term.Term;
@@ -17,10 +18,13 @@ import it.unibz.inf.ontop.model.vocabulary.RDF;
 import it.unibz.inf.ontop.spec.mapping.Mapping;
 import it.unibz.inf.ontop.spec.mapping.TMappingExclusionConfig;
 import it.unibz.inf.ontop.spec.mapping.transformer.MappingSaturator;
+import it.unibz.inf.ontop.spec.mapping.transformer.MappingVariableNameNormalizer;
 import it.unibz.inf.ontop.spec.ontology.ClassifiedTBox;
 import it.unibz.inf.ontop.substitution.impl.SubstitutionUtilities;
 import it.unibz.inf.ontop.substitution.impl.UnifierUtilities;
 import it.unibz.inf.ontop.utils.ImmutableCollectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -31,6 +35,8 @@ import java.util.List;
 @Singleton
 public class LegacyMappingSaturator implements MappingSaturator {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(LegacyMappingSaturator.class);
+
     private final TMappingExclusionConfig tMappingExclusionConfig;
     private final Mapping2DatalogConverter mapping2DatalogConverter;
     private final Datalog2QueryMappingConverter datalog2MappingConverter;
@@ -39,13 +45,15 @@ public class LegacyMappingSaturator implements MappingSaturator {
     private final DatalogFactory datalogFactory;
     private final UnifierUtilities unifierUtilities;
     private final SubstitutionUtilities substitutionUtilities;
+    private final SpecificationFactory specificationFactory;
 
     @Inject
     private LegacyMappingSaturator(TMappingExclusionConfig tMappingExclusionConfig,
                                    Mapping2DatalogConverter mapping2DatalogConverter,
                                    Datalog2QueryMappingConverter datalog2MappingConverter, TermFactory termFactory,
                                    TMappingProcessor tMappingProcessor, DatalogFactory datalogFactory,
-                                   UnifierUtilities unifierUtilities, SubstitutionUtilities substitutionUtilities) {
+                                   UnifierUtilities unifierUtilities, SubstitutionUtilities substitutionUtilities,
+                                   SpecificationFactory specificationFactory) {
         this.tMappingExclusionConfig = tMappingExclusionConfig;
         this.mapping2DatalogConverter = mapping2DatalogConverter;
         this.datalog2MappingConverter = datalog2MappingConverter;
@@ -54,11 +62,60 @@ public class LegacyMappingSaturator implements MappingSaturator {
         this.datalogFactory = datalogFactory;
         this.unifierUtilities = unifierUtilities;
         this.substitutionUtilities = substitutionUtilities;
+        this.specificationFactory = specificationFactory;
     }
 
     @Override
     public Mapping saturate(Mapping mapping, DBMetadata dbMetadata, ClassifiedTBox saturatedTBox) {
 
+        CQContainmentCheckUnderLIDs foreignKeyCQC = createForeignKeyCQC(dbMetadata);
+
+        long start = System.currentTimeMillis();
+        ImmutableList<CQIE> initialMappingRules = mapping2DatalogConverter.convert(mapping)
+                .collect(ImmutableCollectors.toList());
+        long conversionEnd = System.currentTimeMillis();
+
+        ImmutableSet<CQIE> saturatedMappingRules = ImmutableSet.copyOf(
+                tMappingProcessor.getTMappings(initialMappingRules, saturatedTBox, foreignKeyCQC, tMappingExclusionConfig));
+        long saturationEnd = System.currentTimeMillis();
+
+        Mapping saturatedMapping = datalog2MappingConverter.convertMappingRules(
+                ImmutableList.copyOf(saturatedMappingRules), mapping.getMetadata());
+
+        LOGGER.debug("Mapping saturation: {} rules -> {} rules, conversion into Datalog: {} ms, T-mappings: {} ms, " +
+                        "conversion back: {} ms",
+                initialMappingRules.size(), saturatedMappingRules.size(), conversionEnd - start,
+                saturationEnd - conversionEnd, System.currentTimeMillis() - saturationEnd);
+        LOGGER.debug("Containment check cache: {} chased queries (max {}), {}", foreignKeyCQC.getCacheSize(),
+                foreignKeyCQC.getMaxCacheSize(), foreignKeyCQC.getCacheStats());
+        return saturatedMapping;
+    }
+
+    @Override
+    public Mapping saturateLazily(Mapping mapping, DBMetadata dbMetadata, ClassifiedTBox saturatedTBox,
+                                  MappingVariableNameNormalizer normalizer, int warmUpSize) {
+
+        CQContainmentCheckUnderLIDs foreignKeyCQC = createForeignKeyCQC(dbMetadata);
+
+        long start = System.currentTimeMillis();
+        ImmutableList<CQIE> initialMappingRules = mapping2DatalogConverter.convert(mapping)
+                .collect(ImmutableCollectors.toList());
+
+        TMappingProcessor.LazyTMappings tMappings = tMappingProcessor.getLazyTMappings(initialMappingRules,
+                saturatedTBox, foreignKeyCQC, tMappingExclusionConfig);
+
+        LOGGER.debug("Lazy mapping saturation: {} rules, {} classes and {} properties prepared in {} ms",
+                initialMappingRules.size(), tMappings.getClasses().size(), tMappings.getProperties().size(),
+                System.currentTimeMillis() - start);
+
+        LazySaturatedMapping saturatedMapping = new LazySaturatedMapping(tMappings, mapping.getMetadata(),
+                datalog2MappingConverter, normalizer, specificationFactory);
+        if (warmUpSize > 0)
+            saturatedMapping.startWarmUp(warmUpSize);
+        return saturatedMapping;
+    }
+
+    private CQContainmentCheckUnderLIDs createForeignKeyCQC(DBMetadata dbMetadata) {
         ImmutableList<LinearInclusionDependency> foreignKeyRules =
                 dbMetadata.getDatabaseRelations().stream()
                     .map(r -> r.getForeignKeys())
@@ -66,16 +123,8 @@ public class LegacyMappingSaturator implements MappingSaturator {
                     .map(fk -> getLinearInclusionDependency(fk))
                     .collect(ImmutableCollectors.toList());
 
-        CQContainmentCheckUnderLIDs foreignKeyCQC = new CQContainmentCheckUnderLIDs(foreignKeyRules, datalogFactory,
+        return new CQContainmentCheckUnderLIDs(foreignKeyRules, datalogFactory,
                 unifierUtilities, substitutionUtilities, termFactory);
-
-        ImmutableList<CQIE> initialMappingRules = mapping2DatalogConverter.convert(mapping)
-                .collect(ImmutableCollectors.toList());
-
-        ImmutableSet<CQIE> saturatedMappingRules = ImmutableSet.copyOf(
-                tMappingProcessor.getTMappings(initialMappingRules, saturatedTBox, foreignKeyCQC, tMappingExclusionConfig));
-
-        return datalog2MappingConverter.convertMappingRules(ImmutableList.copyOf(saturatedMappingRules), mapping.getMetadata());
     }
 
 
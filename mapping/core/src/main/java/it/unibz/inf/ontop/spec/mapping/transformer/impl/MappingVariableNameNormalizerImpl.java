@@ -55,6 +55,11 @@ public class MappingVariableNameNormalizerImpl implements MappingVariableNameNor
                 newClassTable);
     }
 
+    @Override
+    public IQ normalize(IQ definition, int index) {
+        return appendSuffixToVariableNames(definition, index);
+    }
+
     private ImmutableTable<RDFAtomPredicate, IRI, IQ> normalize(
             ImmutableSet<Table.Cell<RDFAtomPredicate, IRI, IQ>> queryCells, AtomicInteger i) {
         return queryCells.stream()
@@ -21,6 +21,9 @@ package it.unibz.inf.ontop.spec.mapping.transformer.impl;
  */
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
 import com.google.inject.Inject;
 import it.unibz.inf.ontop.datalog.CQIE;
 import it.unibz.inf.ontop.datalog.DatalogFactory;
@@ -34,6 +37,7 @@ import it.unibz.inf.ontop.model.term.ImmutableTerm;
 import it.unibz.inf.ontop.model.term.TermFactory;
 import it.unibz.inf.ontop.model.term.Function;
 import it.unibz.inf.ontop.model.term.Term;
+import it.unibz.inf.ontop.model.term.functionsymbol.Predicate;
 import it.unibz.inf.ontop.model.term.impl.ImmutabilityTools;
 import it.unibz.inf.ontop.spec.mapping.TMappingExclusionConfig;
 import it.unibz.inf.ontop.spec.ontology.ClassExpression;
@@ -49,34 +53,113 @@ import it.unibz.inf.ontop.substitution.Substitution;
 import it.unibz.inf.ontop.substitution.impl.SubstitutionUtilities;
 import it.unibz.inf.ontop.utils.ImmutableCollectors;
 import org.apache.commons.rdf.api.IRI;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class TMappingProcessor {
 
 	// TODO: the implementation of EXCLUDE ignores equivalent classes / properties
 
 	private class TMappingIndexEntry implements Iterable<TMappingRule> {
-		private final List<TMappingRule> rules = new LinkedList<>();
+		private final CQContainmentCheckUnderLIDs cqc;
+		// rules by sequence number (i.e., in the order of insertion)
+		private final SortedMap<Integer, TMappingRule> rules = new TreeMap<>();
+		// signature index: rules by set of relations
+		private final Map<ImmutableSet<Predicate>, RuleSignature> signatures = new HashMap<>();
+		private int nextRuleNumber = 0;
+
+		private TMappingIndexEntry(CQContainmentCheckUnderLIDs cqc) {
+			this.cqc = cqc;
+		}
 
 		public TMappingIndexEntry copyOf(IRI newPredicate) {
-			TMappingIndexEntry copy = new TMappingIndexEntry();
-			for (TMappingRule rule : rules) {
+			return copyOf(newPredicate, cqc);
+		}
+
+		/**
+		 * cqc: containment check of the copy and of its rules
+		 */
+		public TMappingIndexEntry copyOf(IRI newPredicate, CQContainmentCheckUnderLIDs cqc) {
+			TMappingIndexEntry copy = new TMappingIndexEntry(cqc);
+			for (TMappingRule rule : rules.values()) {
+				// the terms are cloned because the rule may be shared (building an atom registers listeners)
 				List<Term> headTerms = rule.getHeadTerms();
 				Function newHead = rule.isClass()
-						? atomFactory.getMutableTripleHeadAtom(headTerms.get(0), newPredicate)
-						: atomFactory.getMutableTripleHeadAtom(headTerms.get(0), newPredicate, headTerms.get(2));
-				TMappingRule newRule = new TMappingRule(newHead, rule, datalogFactory, termFactory, eqNormalizer,
+						? atomFactory.getMutableTripleHeadAtom(headTerms.get(0).clone(), newPredicate)
+						: atomFactory.getMutableTripleHeadAtom(headTerms.get(0).clone(), newPredicate,
+								headTerms.get(2).clone());
+				TMappingRule newRule = new TMappingRule(newHead, rule, cqc, datalogFactory, termFactory, eqNormalizer,
 						rule.isClass());
-				copy.rules.add(newRule);
+				copy.add(newRule);
+			}
+			return copy;
+		}
+
+		/**
+		 * Copy with cloned rules
+		 */
+		public TMappingIndexEntry copy() {
+			TMappingIndexEntry copy = new TMappingIndexEntry(cqc);
+			for (TMappingRule rule : rules.values()) {
+				List<List<Function>> filterAtoms = new ArrayList<>(rule.getConditions().size());
+				for (List<Function> conditions : rule.getConditions())
+					filterAtoms.add(TMappingRule.cloneList(conditions));
+				copy.add(new TMappingRule(rule, filterAtoms, datalogFactory, termFactory, eqNormalizer));
 			}
 			return copy;
 		}
 
 		@Override
 		public Iterator<TMappingRule> iterator() {
-			return rules.iterator();
+			return rules.values().iterator();
+		}
+
+		public int size() {
+			return rules.size();
+		}
+
+		private void add(TMappingRule rule) {
+			int ruleNumber = nextRuleNumber++;
+			rules.put(ruleNumber, rule);
+			signatures.computeIfAbsent(rule.getRelations(), r -> new RuleSignature(r, rule.getChasedRelations()))
+					.ruleNumbers.add(ruleNumber);
+		}
+
+		private void remove(int ruleNumber) {
+			TMappingRule rule = rules.remove(ruleNumber);
+			RuleSignature signature = signatures.get(rule.getRelations());
+			signature.ruleNumbers.remove(ruleNumber);
+			if (signature.ruleNumbers.isEmpty())
+				signatures.remove(rule.getRelations());
+		}
+
+		/**
+		 * Numbers (in increasing order) of the rules that can be mapped to or from the new rule.
+		 *
+		 * A rule can only be mapped into another one if its relations are among the chased relations
+		 * of the latter. The other rules are neither equal nor comparable to the new rule.
+		 */
+		private SortedSet<Integer> getCandidateRuleNumbers(TMappingRule newRule) {
+			if (!isIndexed)
+				return new TreeSet<>(rules.keySet());
+
+			ImmutableSet<Predicate> newRelations = newRule.getRelations();
+			ImmutableSet<Predicate> newChasedRelations = newRule.getChasedRelations();
+
+			SortedSet<Integer> candidates = new TreeSet<>();
+			for (RuleSignature signature : signatures.values()) {
+				if (newChasedRelations.containsAll(signature.relations)
+						|| signature.chasedRelations.containsAll(newRelations))
+					candidates.addAll(signature.ruleNumbers);
+			}
+			return candidates;
 		}
 
 		/***
@@ -130,23 +213,22 @@ public class TMappingProcessor {
 			
 			// Facts are just added
 			if (newRule.isFact()) {
-				rules.add(newRule);
+				add(newRule);
 				return;
 			}
 		
 			if (noCQC) {
-				for (TMappingRule r : rules)
+				for (TMappingRule r : rules.values())
 					if (r.equals(newRule))
 						return;
 				
-				rules.add(newRule);
+				add(newRule);
 				return;
 			}
 			
-			Iterator<TMappingRule> mappingIterator = rules.iterator();
-			while (mappingIterator.hasNext()) {
+			for (int ruleNumber : getCandidateRuleNumbers(newRule)) {
 
-				TMappingRule currentRule = mappingIterator.next(); 
+				TMappingRule currentRule = rules.get(ruleNumber);
 				// ROMAN (14 Oct 2015): quick fix, but one has to be more careful with variables in filters
 				if (currentRule.equals(newRule))
 					return;
@@ -168,7 +250,7 @@ public class TMappingProcessor {
 				if ((fromNewRule != null) && checkConditions(currentRule, newRule, fromNewRule)) {		
 					// The existing query is more specific than the new query, so we
 					// need to add the new query and remove the old	 
-					mappingIterator.remove();
+					remove(ruleNumber);
 					continue;
 				} 
 				
@@ -219,14 +301,14 @@ public class TMappingProcessor {
 
 					filterAtoms.add(newconditions);	
 					
-	                mappingIterator.remove();
+	                remove(ruleNumber);
 	                
 					newRule = new TMappingRule(currentRule, filterAtoms, datalogFactory, termFactory, eqNormalizer);
 
 					break;
 				}				
 			}
-			rules.add(newRule);
+			add(newRule);
 		}
 		
 		private boolean checkConditions(TMappingRule rule1, TMappingRule rule2, Substitution toRule1) {
@@ -248,6 +330,19 @@ public class TMappingProcessor {
 
 	// end of the inner class
 
+	private static class RuleSignature {
+		private final ImmutableSet<Predicate> relations;
+		private final ImmutableSet<Predicate> chasedRelations;
+		private final SortedSet<Integer> ruleNumbers = new TreeSet<>();
+
+		private RuleSignature(ImmutableSet<Predicate> relations, ImmutableSet<Predicate> chasedRelations) {
+			this.relations = relations;
+			this.chasedRelations = chasedRelations;
+		}
+	}
+
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(TMappingProcessor.class);
 
 	private static final boolean noCQC = false;
 	private final AtomFactory atomFactory;
@@ -256,11 +351,31 @@ public class TMappingProcessor {
 	private final SubstitutionUtilities substitutionUtilities;
 	private final EQNormalizer eqNormalizer;
 	private final ImmutabilityTools immutabilityTools;
+	/**
+	 * If false, the nodes of each DAG are saturated one after the other
+	 */
+	private final boolean isParallel;
+	/**
+	 * If false, the new rules are compared with all the rules of the entry (no signature index)
+	 */
+	private final boolean isIndexed;
 
 	@Inject
 	private TMappingProcessor(AtomFactory atomFactory, TermFactory termFactory, DatalogFactory datalogFactory,
 							  SubstitutionUtilities substitutionUtilities, EQNormalizer eqNormalizer,
 							  ImmutabilityTools immutabilityTools) {
+		this(atomFactory, termFactory, datalogFactory, substitutionUtilities, eqNormalizer, immutabilityTools,
+				true, true);
+	}
+
+	/**
+	 * Sequential and non-indexed processing is the reference for testing the parallel and indexed one
+	 */
+	TMappingProcessor(AtomFactory atomFactory, TermFactory termFactory, DatalogFactory datalogFactory,
+					  SubstitutionUtilities substitutionUtilities, EQNormalizer eqNormalizer,
+					  ImmutabilityTools immutabilityTools, boolean isParallel, boolean isIndexed) {
+		this.isParallel = isParallel;
+		this.isIndexed = isIndexed;
 		this.atomFactory = atomFactory;
 		this.termFactory = termFactory;
 		this.datalogFactory = datalogFactory;
@@ -278,8 +393,26 @@ public class TMappingProcessor {
 	private void getObjectTMappings(Map<IRI, TMappingIndexEntry> mappingIndex,
 			Map<IRI, List<TMappingRule>> originalMappings,
 			EquivalencesDAG<ObjectPropertyExpression> dag,
-			TMappingExclusionConfig excludeFromTMappings) {
+			TMappingExclusionConfig excludeFromTMappings,
+			CQContainmentCheckUnderLIDs cqc) {
 
+		List<Equivalences<ObjectPropertyExpression>> nodes = getObjectPropertyNodes(dag, excludeFromTMappings);
+
+		List<TMappingIndexEntry> nodeMappings = getNodeStream(nodes)
+				.map(propertySet -> saturateObjectPropertyNode(propertySet, mappingIndex, originalMappings, dag, cqc))
+				.collect(ImmutableCollectors.toList());
+
+		for (int i = 0; i < nodes.size(); i++) {
+			/* Setting up mappings for the equivalent properties */
+			for (IRI equivProperty : getObjectPropertyIRIs(nodes.get(i)))
+				setMappings(mappingIndex, equivProperty, nodeMappings.get(i));
+		} // Properties loop ended
+	}
+
+	private static List<Equivalences<ObjectPropertyExpression>> getObjectPropertyNodes(
+			EquivalencesDAG<ObjectPropertyExpression> dag, TMappingExclusionConfig excludeFromTMappings) {
+
+		List<Equivalences<ObjectPropertyExpression>> nodes = new ArrayList<>();
 		for (Equivalences<ObjectPropertyExpression> propertySet : dag) {
 
 			ObjectPropertyExpression representative = propertySet.getRepresentative();
@@ -289,43 +422,70 @@ public class TMappingProcessor {
 			if (excludeFromTMappings.contains(representative)) {
 				continue;
 			}
+			nodes.add(propertySet);
+		}
+		return nodes;
+	}
 
-			/* Getting the current node mappings */
-			IRI currentPredicate = representative.getIRI();
-			TMappingIndexEntry currentNodeMappings = getMappings(mappingIndex, currentPredicate);	
-
-			for (Equivalences<ObjectPropertyExpression> descendants : dag.getSub(propertySet)) {
-				for(ObjectPropertyExpression childproperty : descendants) {
-					/*
-					 * adding the mappings of the children as own mappings, the new
-					 * mappings use the current predicate instead of the child's
-					 * predicate and, if the child is inverse and the current is
-					 * positive, it will also invert the terms in the head
-					 */
-					List<TMappingRule> childmappings = originalMappings.get(childproperty.getIRI());
-					if (childmappings == null)
-						continue;
-					
-					for (TMappingRule childmapping : childmappings) {
-						List<Term> terms = childmapping.getHeadTerms();
-						Function newMappingHead = !childproperty.isInverse()
-								? atomFactory.getMutableTripleHeadAtom(terms.get(0), currentPredicate, terms.get(2))
-								: atomFactory.getMutableTripleHeadAtom(terms.get(2), currentPredicate, terms.get(0));
-
-						TMappingRule newmapping = new TMappingRule(newMappingHead, childmapping, datalogFactory,
-								termFactory, eqNormalizer, false);
-						currentNodeMappings.mergeMappingsWithCQC(newmapping);
-					}
-				}
-			}
+	/**
+	 * Properties that get the mappings of the node
+	 */
+	private static ImmutableList<IRI> getObjectPropertyIRIs(Equivalences<ObjectPropertyExpression> propertySet) {
+		return propertySet.getMembers().stream()
+				.filter(p -> !p.isInverse())
+				.map(ObjectPropertyExpression::getIRI)
+				.collect(ImmutableCollectors.toList());
+	}
 
-			/* Setting up mappings for the equivalent classes */
-			for (ObjectPropertyExpression equivProperty : propertySet) {
-				if (!equivProperty.isInverse())
-					setMappings(mappingIndex, equivProperty.getIRI(), currentNodeMappings);
+	/**
+	 * Predicates whose original mappings are added to the node
+	 */
+	private static Stream<IRI> getObjectPropertyChildIRIs(Equivalences<ObjectPropertyExpression> propertySet,
+														  EquivalencesDAG<ObjectPropertyExpression> dag) {
+		return dag.getSub(propertySet).stream()
+				.flatMap(descendants -> descendants.getMembers().stream())
+				.map(ObjectPropertyExpression::getIRI);
+	}
+
+	/**
+	 * Does not modify the mapping index (can be run in parallel)
+	 */
+	private TMappingIndexEntry saturateObjectPropertyNode(Equivalences<ObjectPropertyExpression> propertySet,
+														  Map<IRI, TMappingIndexEntry> mappingIndex,
+														  Map<IRI, List<TMappingRule>> originalMappings,
+														  EquivalencesDAG<ObjectPropertyExpression> dag,
+														  CQContainmentCheckUnderLIDs cqc) {
+		/* Getting the current node mappings */
+		IRI currentPredicate = propertySet.getRepresentative().getIRI();
+		TMappingIndexEntry currentNodeMappings = getNodeMappings(mappingIndex, currentPredicate, cqc);
+
+		for (Equivalences<ObjectPropertyExpression> descendants : dag.getSub(propertySet)) {
+			for(ObjectPropertyExpression childproperty : descendants) {
+				/*
+				 * adding the mappings of the children as own mappings, the new
+				 * mappings use the current predicate instead of the child's
+				 * predicate and, if the child is inverse and the current is
+				 * positive, it will also invert the terms in the head
+				 */
+				List<TMappingRule> childmappings = originalMappings.get(childproperty.getIRI());
+				if (childmappings == null)
+					continue;
+
+				for (TMappingRule childmapping : childmappings) {
+					List<Term> terms = childmapping.getHeadTerms();
+					Function newMappingHead = !childproperty.isInverse()
+							? atomFactory.getMutableTripleHeadAtom(terms.get(0).clone(), currentPredicate,
+									terms.get(2).clone())
+							: atomFactory.getMutableTripleHeadAtom(terms.get(2).clone(), currentPredicate,
+									terms.get(0).clone());
+
+					TMappingRule newmapping = new TMappingRule(newMappingHead, childmapping,
+							currentNodeMappings.cqc, datalogFactory, termFactory, eqNormalizer, false);
+					currentNodeMappings.mergeMappingsWithCQC(newmapping);
+				}
 			}
-		} // Properties loop ended
-		
+		}
+		return currentNodeMappings;
 	}
 
 	/**
@@ -337,82 +497,219 @@ public class TMappingProcessor {
 	private void getDataTMappings(Map<IRI, TMappingIndexEntry> mappingIndex,
 			Map<IRI, List<TMappingRule>> originalMappings,
 			EquivalencesDAG<DataPropertyExpression> dag,
-			TMappingExclusionConfig excludeFromTMappings) {
-		
+			TMappingExclusionConfig excludeFromTMappings,
+			CQContainmentCheckUnderLIDs cqc) {
+
+		List<Equivalences<DataPropertyExpression>> nodes = getDataPropertyNodes(dag, excludeFromTMappings);
+
+		List<TMappingIndexEntry> nodeMappings = getNodeStream(nodes)
+				.map(propertySet -> saturateDataPropertyNode(propertySet, mappingIndex, originalMappings, dag, cqc))
+				.collect(ImmutableCollectors.toList());
+
+		for (int i = 0; i < nodes.size(); i++) {
+			/* Setting up mappings for the equivalent properties */
+			for (IRI equivProperty : getDataPropertyIRIs(nodes.get(i)))
+				setMappings(mappingIndex, equivProperty, nodeMappings.get(i));
+		} // Properties loop ended
+	}
+
+	private static List<Equivalences<DataPropertyExpression>> getDataPropertyNodes(
+			EquivalencesDAG<DataPropertyExpression> dag, TMappingExclusionConfig excludeFromTMappings) {
+
+		List<Equivalences<DataPropertyExpression>> nodes = new ArrayList<>();
 		for (Equivalences<DataPropertyExpression> propertySet : dag) {
 			DataPropertyExpression representative = propertySet.getRepresentative();
 
 			if (excludeFromTMappings.contains(representative)) {
 				continue;
 			}
-			/* Getting the current node mappings */
-			IRI currentPredicate = representative.getIRI();
-			TMappingIndexEntry currentNodeMappings = getMappings(mappingIndex, currentPredicate);
-
-			for (Equivalences<DataPropertyExpression> descendants : dag.getSub(propertySet)) {
-				for(DataPropertyExpression childproperty : descendants) {
-
-					/*
-					 * adding the mappings of the children as own mappings, the new
-					 * mappings use the current predicate instead of the child's
-					 * predicate and, if the child is inverse and the current is
-					 * positive, it will also invert the terms in the head
-					 */
-					List<TMappingRule> childmappings = originalMappings.get(childproperty.getIRI());
-					if (childmappings == null)
-						continue;
-
-					for (TMappingRule childmapping : childmappings) {
-						List<Term> terms = childmapping.getHeadTerms();
-
-						Function newMappingHead = atomFactory.getMutableTripleHeadAtom(terms.get(0), currentPredicate,
-								terms.get(2));
-						TMappingRule newmapping = new TMappingRule(newMappingHead, childmapping, datalogFactory,
-								termFactory, eqNormalizer, false);
-						currentNodeMappings.mergeMappingsWithCQC(newmapping);
-					}
+			nodes.add(propertySet);
+		}
+		return nodes;
+	}
+
+	/**
+	 * Properties that get the mappings of the node
+	 */
+	private static ImmutableList<IRI> getDataPropertyIRIs(Equivalences<DataPropertyExpression> propertySet) {
+		return propertySet.getMembers().stream()
+				.map(DataPropertyExpression::getIRI)
+				.collect(ImmutableCollectors.toList());
+	}
+
+	/**
+	 * Predicates whose original mappings are added to the node
+	 */
+	private static Stream<IRI> getDataPropertyChildIRIs(Equivalences<DataPropertyExpression> propertySet,
+														EquivalencesDAG<DataPropertyExpression> dag) {
+		return dag.getSub(propertySet).stream()
+				.flatMap(descendants -> descendants.getMembers().stream())
+				.map(DataPropertyExpression::getIRI);
+	}
+
+	/**
+	 * Does not modify the mapping index (can be run in parallel)
+	 */
+	private TMappingIndexEntry saturateDataPropertyNode(Equivalences<DataPropertyExpression> propertySet,
+														Map<IRI, TMappingIndexEntry> mappingIndex,
+														Map<IRI, List<TMappingRule>> originalMappings,
+														EquivalencesDAG<DataPropertyExpression> dag,
+														CQContainmentCheckUnderLIDs cqc) {
+		/* Getting the current node mappings */
+		IRI currentPredicate = propertySet.getRepresentative().getIRI();
+		TMappingIndexEntry currentNodeMappings = getNodeMappings(mappingIndex, currentPredicate, cqc);
+
+		for (Equivalences<DataPropertyExpression> descendants : dag.getSub(propertySet)) {
+			for(DataPropertyExpression childproperty : descendants) {
+
+				/*
+				 * adding the mappings of the children as own mappings, the new
+				 * mappings use the current predicate instead of the child's
+				 * predicate and, if the child is inverse and the current is
+				 * positive, it will also invert the terms in the head
+				 */
+				List<TMappingRule> childmappings = originalMappings.get(childproperty.getIRI());
+				if (childmappings == null)
+					continue;
+
+				for (TMappingRule childmapping : childmappings) {
+					List<Term> terms = childmapping.getHeadTerms();
+
+					Function newMappingHead = atomFactory.getMutableTripleHeadAtom(terms.get(0).clone(),
+							currentPredicate, terms.get(2).clone());
+					TMappingRule newmapping = new TMappingRule(newMappingHead, childmapping,
+							currentNodeMappings.cqc, datalogFactory, termFactory, eqNormalizer, false);
+					currentNodeMappings.mergeMappingsWithCQC(newmapping);
 				}
 			}
+		}
+		return currentNodeMappings;
+	}
+
+	/**
+	 * constructs the TMappings for classes using DAG
+	 */
+	private void getClassTMappings(Map<IRI, TMappingIndexEntry> mappingIndex,
+			Map<IRI, List<TMappingRule>> originalMappings,
+			EquivalencesDAG<ClassExpression> dag,
+			TMappingExclusionConfig excludeFromTMappings,
+			CQContainmentCheckUnderLIDs cqc) {
 
+		List<Equivalences<ClassExpression>> nodes = getClassNodes(dag, excludeFromTMappings);
+
+		List<TMappingIndexEntry> nodeMappings = getNodeStream(nodes)
+				.map(classSet -> saturateClassNode(classSet, mappingIndex, originalMappings, dag, cqc))
+				.collect(ImmutableCollectors.toList());
+
+		for (int i = 0; i < nodes.size(); i++) {
 			/* Setting up mappings for the equivalent classes */
-			for (DataPropertyExpression equivProperty : propertySet) {
-				setMappings(mappingIndex, equivProperty.getIRI(), currentNodeMappings);
+			for (IRI equivClass : getClassIRIs(nodes.get(i)))
+				setMappings(mappingIndex, equivClass, nodeMappings.get(i));
+		}
+	}
+
+	private static List<Equivalences<ClassExpression>> getClassNodes(EquivalencesDAG<ClassExpression> dag,
+																	 TMappingExclusionConfig excludeFromTMappings) {
+		List<Equivalences<ClassExpression>> nodes = new ArrayList<>();
+		for (Equivalences<ClassExpression> classSet : dag) {
+
+			if (!(classSet.getRepresentative() instanceof OClass))
+				continue;
+
+			if (excludeFromTMappings.contains((OClass)classSet.getRepresentative())) {
+				continue;
 			}
-		} // Properties loop ended
-		
+			nodes.add(classSet);
+		}
+		return nodes;
 	}
-	
+
 	/**
-	 * constructs the TMappings using DAG
-	 * @param originalMappings
-	 * @param reasoner
-	 * @return
+	 * Classes that get the mappings of the node
 	 */
+	private static ImmutableList<IRI> getClassIRIs(Equivalences<ClassExpression> classSet) {
+		return classSet.getMembers().stream()
+				.filter(c -> c instanceof OClass)
+				.map(c -> ((OClass) c).getIRI())
+				.collect(ImmutableCollectors.toList());
+	}
 
-	public List<CQIE> getTMappings(List<CQIE> originalMappings, ClassifiedTBox reasoner, CQContainmentCheckUnderLIDs cqc, TMappingExclusionConfig excludeFromTMappings) {
+	/**
+	 * Predicates whose original mappings are added to the node
+	 */
+	private static Stream<IRI> getClassChildIRIs(Equivalences<ClassExpression> classSet,
+												 EquivalencesDAG<ClassExpression> dag) {
+		return dag.getSub(classSet).stream()
+				.flatMap(descendants -> descendants.getMembers().stream())
+				.map(TMappingProcessor::getChildPredicate);
+	}
 
-		final boolean printouts = false;
-		
-		if (printouts)
-			System.out.println("ORIGINAL MAPPING SIZE: " + originalMappings.size());
-		
-		if (excludeFromTMappings == null)
-			throw new NullPointerException("excludeFromTMappings");
-		
-		Map<IRI, TMappingIndexEntry> mappingIndex = new HashMap<>();
+	/**
+	 * There are three cases, when the child is a named class,
+	 * or when it is an \exists P or \exists \inv P.
+	 */
+	private static IRI getChildPredicate(ClassExpression childDescription) {
+		if (childDescription instanceof OClass)
+			return ((OClass) childDescription).getIRI();
+		else if (childDescription instanceof ObjectSomeValuesFrom)
+			return ((ObjectSomeValuesFrom) childDescription).getProperty().getIRI();
+		else {
+			assert (childDescription instanceof DataSomeValuesFrom);
+			return ((DataSomeValuesFrom) childDescription).getProperty().getIRI();
+		}
+	}
 
-		Map<IRI, List<TMappingRule>> originalMappingIndex = new HashMap<>();
-		
-		/***
-		 * Creates an index of all mappings based on the predicate of the head of
-		 * the mapping. The returned map can be used for fast access to the mapping
-		 * list.
-		 */
-		
-		//CQContainmentCheckUnderLIDs cqc0 = new CQContainmentCheckUnderLIDs(null);
+	/**
+	 * Does not modify the mapping index (can be run in parallel)
+	 */
+	private TMappingIndexEntry saturateClassNode(Equivalences<ClassExpression> classSet,
+												 Map<IRI, TMappingIndexEntry> mappingIndex,
+												 Map<IRI, List<TMappingRule>> originalMappings,
+												 EquivalencesDAG<ClassExpression> dag,
+												 CQContainmentCheckUnderLIDs cqc) {
+		/* Getting the current node mappings */
+		IRI currentPredicate = ((OClass)classSet.getRepresentative()).getIRI();
+		TMappingIndexEntry currentNodeMappings = getNodeMappings(mappingIndex, currentPredicate, cqc);
+
+		for (Equivalences<ClassExpression> descendants : dag.getSub(classSet)) {
+			for (ClassExpression childDescription : descendants) {
+
+				/* adding the mappings of the children as own mappings, the new
+				 * mappings. The argument of the child mappings that becomes the
+				 * instance of the class is the object of \exists \inv P.
+				 */
+				IRI childPredicate = getChildPredicate(childDescription);
+				int arg = (childDescription instanceof ObjectSomeValuesFrom)
+						&& ((ObjectSomeValuesFrom) childDescription).getProperty().isInverse()
+						? 2
+						: 0; // a data property can never be an inverse
+
+				List<TMappingRule> childmappings = originalMappings.get(childPredicate);
+				if (childmappings == null)
+					continue;
 
-		if (printouts)
-			System.out.println("===CHECKING REDUNDANCY: " + cqc);
+				for (TMappingRule childmapping : childmappings) {
+					List<Term> terms = childmapping.getHeadTerms();
+					Function newMappingHead = atomFactory.getMutableTripleHeadAtom(terms.get(arg).clone(),
+							currentPredicate);
+					TMappingRule newmapping = new TMappingRule(newMappingHead, childmapping,
+							currentNodeMappings.cqc, datalogFactory, termFactory, eqNormalizer, true);
+					currentNodeMappings.mergeMappingsWithCQC(newmapping);
+				}
+			}
+		}
+		return currentNodeMappings;
+	}
+
+	/**
+	 * Creates an index of all mappings based on the predicate of the head of
+	 * the mapping, after removing their redundant atoms.
+	 *
+	 * mappingIndex: the original mappings merged by predicate
+	 */
+	private void indexOriginalMappings(List<CQIE> originalMappings, CQContainmentCheckUnderLIDs cqc,
+									   Map<IRI, TMappingIndexEntry> mappingIndex,
+									   Map<IRI, List<TMappingRule>> originalMappingIndex) {
 		for (CQIE mapping : originalMappings) {	
 
 			if (!noCQC)
@@ -442,9 +739,39 @@ public class TMappingProcessor {
 			}
 			ms.add(rule);
 						
-			TMappingIndexEntry set = getMappings(mappingIndex, ruleIndex);
+			TMappingIndexEntry set = getMappings(mappingIndex, ruleIndex, cqc);
 			set.mergeMappingsWithCQC(rule);
 		}
+	}
+
+	/**
+	 * constructs the TMappings using DAG
+	 * @param originalMappings
+	 * @param reasoner
+	 * @return
+	 */
+
+	public List<CQIE> getTMappings(List<CQIE> originalMappings, ClassifiedTBox reasoner, CQContainmentCheckUnderLIDs cqc, TMappingExclusionConfig excludeFromTMappings) {
+
+		final boolean printouts = false;
+		
+		if (printouts)
+			System.out.println("ORIGINAL MAPPING SIZE: " + originalMappings.size());
+		
+		if (excludeFromTMappings == null)
+			throw new NullPointerException("excludeFromTMappings");
+		
+		Map<IRI, TMappingIndexEntry> mappingIndex = new HashMap<>();
+
+		Map<IRI, List<TMappingRule>> originalMappingIndex = new HashMap<>();
+		
+		//CQContainmentCheckUnderLIDs cqc0 = new CQContainmentCheckUnderLIDs(null);
+
+		if (printouts)
+			System.out.println("===CHECKING REDUNDANCY: " + cqc);
+		long start = System.currentTimeMillis();
+		indexOriginalMappings(originalMappings, cqc, mappingIndex, originalMappingIndex);
+		long indexEnd = System.currentTimeMillis();
 		if (printouts)
 			System.out.println("===END OF CHECKING REDUNDANCY: " + CQContainmentCheckUnderLIDs.oneAtomQs + "/" + CQContainmentCheckUnderLIDs.twoAtomQs);
 		
@@ -459,75 +786,16 @@ public class TMappingProcessor {
 		 * the TMappings specification.
 		 */
 
-		getObjectTMappings(mappingIndex, originalMappingIndex, reasoner.objectPropertiesDAG(), excludeFromTMappings);
-		getDataTMappings(mappingIndex, originalMappingIndex, reasoner.dataPropertiesDAG(), excludeFromTMappings);
+		getObjectTMappings(mappingIndex, originalMappingIndex, reasoner.objectPropertiesDAG(), excludeFromTMappings, cqc);
+		getDataTMappings(mappingIndex, originalMappingIndex, reasoner.dataPropertiesDAG(), excludeFromTMappings, cqc);
+		long propertiesEnd = System.currentTimeMillis();
 
 		/*
 		 * Property t-mappings are done, we now continue with class t-mappings.
 		 */
 
-		for (Equivalences<ClassExpression> classSet : reasoner.classesDAG()) {
-
-			if (!(classSet.getRepresentative() instanceof OClass))
-				continue;
-
-			OClass representative = (OClass)classSet.getRepresentative();
-
-			if (excludeFromTMappings.contains(representative)) {
-				continue;
-			}
-
-			/* Getting the current node mappings */
-			IRI currentPredicate = representative.getIRI();
-			TMappingIndexEntry currentNodeMappings = getMappings(mappingIndex, currentPredicate);
-
-			for (Equivalences<ClassExpression> descendants : reasoner.classesDAG().getSub(classSet)) {
-				for (ClassExpression childDescription : descendants) {
-
-                    /* adding the mappings of the children as own mappings, the new
-					 * mappings. There are three cases, when the child is a named
-					 * class, or when it is an \exists P or \exists \inv P. 
-					 */
-					
-					final int arg;
-					final IRI childPredicate;
-					if (childDescription instanceof OClass) {
-						childPredicate = ((OClass) childDescription).getIRI();
-						arg = 0;
-					}
-					else if (childDescription instanceof ObjectSomeValuesFrom) {
-						ObjectPropertyExpression some = ((ObjectSomeValuesFrom) childDescription).getProperty();
-						childPredicate = some.getIRI();
-						arg = some.isInverse() ? 2 : 0;
-					} 
-					else {
-						assert (childDescription instanceof DataSomeValuesFrom);
-						DataPropertyExpression some = ((DataSomeValuesFrom) childDescription).getProperty();
-						childPredicate = some.getIRI();
-						arg = 0; // can never be an inverse
-					} 
-					
-					List<TMappingRule> childmappings = originalMappingIndex.get(childPredicate);
-					if (childmappings == null)
-						continue;
-					
-					for (TMappingRule childmapping : childmappings) {
-						List<Term> terms = childmapping.getHeadTerms();
-						Function newMappingHead = atomFactory.getMutableTripleHeadAtom(terms.get(arg), currentPredicate);
-						TMappingRule newmapping = new TMappingRule(newMappingHead, childmapping, datalogFactory,
-								termFactory, eqNormalizer, true);
-						currentNodeMappings.mergeMappingsWithCQC(newmapping);
-					}
-				}
-			}
-
-			/* Setting up mappings for the equivalent classes */
-			for (ClassExpression equiv : classSet) {
-				if (equiv instanceof OClass)
-					setMappings(mappingIndex, ((OClass) equiv).getIRI(), currentNodeMappings);
-			}
-		}
-		
+		getClassTMappings(mappingIndex, originalMappingIndex, reasoner.classesDAG(), excludeFromTMappings, cqc);
+		long classesEnd = System.currentTimeMillis();
 
 		List<CQIE> tmappingsProgram = new LinkedList<>();
 		for (Entry<IRI, TMappingIndexEntry> entry : mappingIndex.entrySet()) {
@@ -545,6 +813,16 @@ public class TMappingProcessor {
 
 		tmappingsProgram.addAll(nonOntologyRules);
 
+		if (LOGGER.isDebugEnabled())
+			LOGGER.debug("T-mappings: {} original rules, {} rules after redundancy elimination ({} ms), " +
+							"{} rules after saturation of the properties ({} ms) and of the classes ({} ms), " +
+							"{} rules in total ({} ms)",
+					originalMappings.size(),
+					originalMappingIndex.values().stream().mapToInt(List::size).sum(), indexEnd - start,
+					mappingIndex.values().stream().mapToInt(TMappingIndexEntry::size).sum(),
+					propertiesEnd - indexEnd, classesEnd - propertiesEnd,
+					tmappingsProgram.size(), System.currentTimeMillis() - start);
+
 		if (printouts) {
 			Map<Integer, Set<IRI>> frequences = new HashMap<>();
 			for (Entry<IRI, TMappingIndexEntry> entry : mappingIndex.entrySet()) {
@@ -564,7 +842,7 @@ public class TMappingProcessor {
 				for (IRI p : frequences.get(idx)) {
 					TMappingIndexEntry e = 	mappingIndex.get(p);
 					System.out.println(p + " " + e.rules.size());
-					for (TMappingRule r : e.rules) 
+					for (TMappingRule r : e) 
 						System.out.println("    " + r.asCQIE());
 				}
 			}
@@ -580,6 +858,203 @@ public class TMappingProcessor {
 		return tmappingsProgram;
 	}
 
+	/**
+	 * Prepares the T-mappings to be computed on demand, one predicate at a time.
+	 *
+	 * Only the redundancy elimination and the indexing of the original mappings are performed here.
+	 */
+	public LazyTMappings getLazyTMappings(List<CQIE> originalMappings, ClassifiedTBox reasoner,
+										  CQContainmentCheckUnderLIDs cqc,
+										  TMappingExclusionConfig excludeFromTMappings) {
+		if (excludeFromTMappings == null)
+			throw new NullPointerException("excludeFromTMappings");
+
+		Map<IRI, TMappingIndexEntry> mappingIndex = new HashMap<>();
+		Map<IRI, List<TMappingRule>> originalMappingIndex = new HashMap<>();
+		indexOriginalMappings(originalMappings, cqc, mappingIndex, originalMappingIndex);
+
+		ImmutableSet<RDFAtomPredicate> rdfAtomPredicates = originalMappings.stream()
+				.map(m -> (RDFAtomPredicate) m.getHead().getFunctionSymbol())
+				.collect(ImmutableCollectors.toSet());
+
+		return new LazyTMappings(mappingIndex, originalMappingIndex, rdfAtomPredicates, reasoner, cqc,
+				excludeFromTMappings);
+	}
+
+	/**
+	 * T-mappings computed on demand: the T-mappings of a predicate are the ones
+	 * getTMappings would produce for it.
+	 *
+	 * The classes and properties having T-mappings are known in advance
+	 * (a node of a DAG has T-mappings as soon as it gets some original mappings).
+	 *
+	 * Thread-safe: the indexes are only read, and the containment check (and its cache of chased queries)
+	 * is shared.
+	 * The T-mappings are not memoized.
+	 */
+	public class LazyTMappings {
+		// original mappings merged by predicate (never modified)
+		private final Map<IRI, TMappingIndexEntry> mappingIndex;
+		private final Map<IRI, List<TMappingRule>> originalMappingIndex;
+		// DAG node that defines the mappings of the predicate (the last one, as in getTMappings)
+		private final ImmutableMap<IRI, LazyNode> nodeIndex;
+		private final ImmutableSet<RDFAtomPredicate> rdfAtomPredicates;
+		private final ImmutableSet<IRI> classes;
+		private final ImmutableSet<IRI> properties;
+		private final ImmutableList<IRI> predicatesByDecreasingSize;
+		// number of mappings before saturation
+		private final ImmutableMap<IRI, Integer> sizes;
+
+		private LazyTMappings(Map<IRI, TMappingIndexEntry> mappingIndex,
+							  Map<IRI, List<TMappingRule>> originalMappingIndex,
+							  ImmutableSet<RDFAtomPredicate> rdfAtomPredicates, ClassifiedTBox reasoner,
+							  CQContainmentCheckUnderLIDs cqc, TMappingExclusionConfig excludeFromTMappings) {
+			this.mappingIndex = mappingIndex;
+			this.originalMappingIndex = originalMappingIndex;
+			this.rdfAtomPredicates = rdfAtomPredicates;
+
+			Map<IRI, LazyNode> nodes = new HashMap<>();
+
+			EquivalencesDAG<ObjectPropertyExpression> objectDAG = reasoner.objectPropertiesDAG();
+			for (Equivalences<ObjectPropertyExpression> propertySet : getObjectPropertyNodes(objectDAG, excludeFromTMappings)) {
+				LazyNode node = new LazyNode(propertySet.getRepresentative().getIRI(), false,
+						countOriginalMappings(getObjectPropertyChildIRIs(propertySet, objectDAG)),
+						() -> saturateObjectPropertyNode(propertySet, mappingIndex, originalMappingIndex, objectDAG, cqc));
+				getObjectPropertyIRIs(propertySet).forEach(i -> nodes.put(i, node));
+			}
+
+			EquivalencesDAG<DataPropertyExpression> dataDAG = reasoner.dataPropertiesDAG();
+			for (Equivalences<DataPropertyExpression> propertySet : getDataPropertyNodes(dataDAG, excludeFromTMappings)) {
+				LazyNode node = new LazyNode(propertySet.getRepresentative().getIRI(), false,
+						countOriginalMappings(getDataPropertyChildIRIs(propertySet, dataDAG)),
+						() -> saturateDataPropertyNode(propertySet, mappingIndex, originalMappingIndex, dataDAG, cqc));
+				getDataPropertyIRIs(propertySet).forEach(i -> nodes.put(i, node));
+			}
+
+			EquivalencesDAG<ClassExpression> classDAG = reasoner.classesDAG();
+			for (Equivalences<ClassExpression> classSet : getClassNodes(classDAG, excludeFromTMappings)) {
+				LazyNode node = new LazyNode(((OClass) classSet.getRepresentative()).getIRI(), true,
+						countOriginalMappings(getClassChildIRIs(classSet, classDAG)),
+						() -> saturateClassNode(classSet, mappingIndex, originalMappingIndex, classDAG, cqc));
+				getClassIRIs(classSet).forEach(i -> nodes.put(i, node));
+			}
+			this.nodeIndex = ImmutableMap.copyOf(nodes);
+
+			Set<IRI> predicates = new HashSet<>(nodeIndex.keySet());
+			predicates.addAll(mappingIndex.keySet());
+
+			ImmutableSet.Builder<IRI> classBuilder = ImmutableSet.builder();
+			ImmutableSet.Builder<IRI> propertyBuilder = ImmutableSet.builder();
+			Map<IRI, Integer> sizes = new HashMap<>();
+			for (IRI predicate : predicates) {
+				Optional<LazyNode> node = Optional.ofNullable(nodeIndex.get(predicate));
+				// the mappings of the representative are the starting point of the node
+				TMappingIndexEntry base = mappingIndex.get(node.map(n -> n.representative).orElse(predicate));
+				boolean hasChildMappings = node.filter(n -> n.originalMappingCount > 0).isPresent();
+
+				if ((hasChildMappings && node.get().isClassNode) || hasRule(base, true))
+					classBuilder.add(predicate);
+				if ((hasChildMappings && !node.get().isClassNode) || hasRule(base, false))
+					propertyBuilder.add(predicate);
+
+				sizes.put(predicate, (base == null ? 0 : base.size())
+						+ node.map(n -> n.originalMappingCount).orElse(0));
+			}
+			this.classes = classBuilder.build();
+			this.properties = propertyBuilder.build();
+			this.sizes = ImmutableMap.copyOf(sizes);
+			this.predicatesByDecreasingSize = Sets.union(classes, properties).stream()
+					.sorted(Comparator.comparing(sizes::get).reversed())
+					.collect(ImmutableCollectors.toList());
+		}
+
+		private int countOriginalMappings(Stream<IRI> predicates) {
+			return predicates
+					.map(originalMappingIndex::get)
+					.filter(Objects::nonNull)
+					.mapToInt(List::size)
+					.sum();
+		}
+
+		/**
+		 * T-mappings of the predicate (as a class and as a property)
+		 */
+		public ImmutableList<CQIE> getTMappings(IRI predicate) {
+			LazyNode node = nodeIndex.get(predicate);
+			TMappingIndexEntry entry;
+			if (node != null)
+				entry = node.saturation.get().copyOf(predicate);
+			else {
+				TMappingIndexEntry originalEntry = mappingIndex.get(predicate);
+				if (originalEntry == null)
+					return ImmutableList.of();
+				// asCQIE modifies the atoms of the rule
+				entry = originalEntry.copy();
+			}
+			return StreamSupport.stream(entry.spliterator(), false)
+					.map(TMappingRule::asCQIE)
+					.collect(ImmutableCollectors.toList());
+		}
+
+		/**
+		 * Classes having T-mappings
+		 */
+		public ImmutableSet<IRI> getClasses() {
+			return classes;
+		}
+
+		/**
+		 * Properties having T-mappings
+		 */
+		public ImmutableSet<IRI> getProperties() {
+			return properties;
+		}
+
+		/**
+		 * Classes and properties, by decreasing number of mappings before saturation
+		 * (which approximates the cost of their saturation)
+		 */
+		public ImmutableList<IRI> getPredicatesByDecreasingSize() {
+			return predicatesByDecreasingSize;
+		}
+
+		/**
+		 * Number of mappings of the class or property before saturation
+		 */
+		public int getSize(IRI predicate) {
+			return sizes.getOrDefault(predicate, 0);
+		}
+
+		/**
+		 * RDF atom predicates of the original mappings
+		 */
+		public ImmutableSet<RDFAtomPredicate> getRDFAtomPredicates() {
+			return rdfAtomPredicates;
+		}
+	}
+
+	private static boolean hasRule(@Nullable TMappingIndexEntry entry, boolean isClass) {
+		return entry != null
+				&& StreamSupport.stream(entry.spliterator(), false)
+					.anyMatch(r -> r.isClass() == isClass);
+	}
+
+	private static class LazyNode {
+		private final IRI representative;
+		private final boolean isClassNode;
+		// number of original mappings of the children of the node
+		private final int originalMappingCount;
+		private final Supplier<TMappingIndexEntry> saturation;
+
+		private LazyNode(IRI representative, boolean isClassNode, int originalMappingCount,
+						 Supplier<TMappingIndexEntry> saturation) {
+			this.representative = representative;
+			this.isClassNode = isClassNode;
+			this.originalMappingCount = originalMappingCount;
+			this.saturation = saturation;
+		}
+	}
+
 	private RDFPredicate extractRDFPredicate(CQIE mappingAssertion) {
 		Function headAtom = mappingAssertion.getHead();
 		if (!(headAtom.getFunctionSymbol() instanceof RDFAtomPredicate))
@@ -600,16 +1075,35 @@ public class TMappingProcessor {
 	}
 
 
-	private TMappingIndexEntry getMappings(Map<IRI, TMappingIndexEntry> mappingIndex, IRI current) {
+	private TMappingIndexEntry getMappings(Map<IRI, TMappingIndexEntry> mappingIndex, IRI current,
+										   CQContainmentCheckUnderLIDs cqc) {
 		
 		TMappingIndexEntry currentMappings = mappingIndex.get(current);	
 		if (currentMappings == null) {
-			currentMappings = new TMappingIndexEntry();
+			currentMappings = new TMappingIndexEntry(cqc);
 			mappingIndex.put(current, currentMappings);
 		}
 		return currentMappings;
 	}
 
+	/**
+	 * Copy of the current mappings of the node, so that the nodes of a DAG can be processed in parallel.
+	 * The (thread-safe) containment check is shared, and so are the chased queries it caches.
+	 *
+	 * Does not modify the mapping index.
+	 */
+	private TMappingIndexEntry getNodeMappings(Map<IRI, TMappingIndexEntry> mappingIndex, IRI current,
+											   CQContainmentCheckUnderLIDs cqc) {
+		TMappingIndexEntry currentMappings = mappingIndex.get(current);
+		return (currentMappings == null)
+				? new TMappingIndexEntry(cqc)
+				: currentMappings.copyOf(current, cqc);
+	}
+
+	private <T> Stream<T> getNodeStream(List<T> nodes) {
+		return isParallel ? nodes.parallelStream() : nodes.stream();
+	}
+
 	private static void setMappings(Map<IRI, TMappingIndexEntry> mappingIndex, IRI predicate, TMappingIndexEntry mapping) {
 		mappingIndex.put(predicate, mapping.copyOf(predicate));
 	}
@@ -1,12 +1,15 @@
 package it.unibz.inf.ontop.spec.mapping.transformer.impl;
 
+import com.google.common.collect.ImmutableSet;
 import it.unibz.inf.ontop.datalog.CQIE;
 import it.unibz.inf.ontop.datalog.DatalogFactory;
 import it.unibz.inf.ontop.datalog.impl.CQContainmentCheckUnderLIDs;
 import it.unibz.inf.ontop.model.atom.AtomPredicate;
 import it.unibz.inf.ontop.model.term.*;
 import it.unibz.inf.ontop.datalog.EQNormalizer;
+import it.unibz.inf.ontop.model.term.functionsymbol.Predicate;
 import it.unibz.inf.ontop.substitution.Substitution;
+import it.unibz.inf.ontop.utils.ImmutableCollectors;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -25,6 +28,8 @@ public class TMappingRule {
 	
 	private final Function head;
 	private final List<Function> databaseAtoms;	
+	// predicates of the database atoms
+	private final ImmutableSet<Predicate> relations;
 	private final CQIE stripped;
 	// an OR-connected list of AND-connected atomic filters
 	private final List<List<Function>> filterAtoms;	  
@@ -80,6 +85,7 @@ public class TMappingRule {
 			this.filterAtoms = Collections.singletonList(filters);
 		
 		this.head = replaceConstants(head, filters);
+		this.relations = extractRelations(databaseAtoms);
 		this.stripped = this.datalogFactory.getCQIE(this.head, databaseAtoms);
 		this.cqc = cqc;
 	}
@@ -114,6 +120,7 @@ public class TMappingRule {
 	TMappingRule(TMappingRule baseRule, List<List<Function>> filterAtoms, DatalogFactory datalogFactory,
 				 TermFactory termFactory, EQNormalizer eqNormalizer) {
 		this.databaseAtoms = cloneList(baseRule.databaseAtoms);
+		this.relations = baseRule.relations;
 		this.head = (Function)baseRule.head.clone();
 
 		this.filterAtoms = filterAtoms;
@@ -127,8 +134,11 @@ public class TMappingRule {
 	}
 	
 	
-	TMappingRule(Function head, TMappingRule baseRule, DatalogFactory datalogFactory, TermFactory termFactory,
-				 EQNormalizer eqNormalizer, boolean isClass) {
+	/**
+	 * cqc: containment check used by the new rule (may differ from the one of the base rule)
+	 */
+	TMappingRule(Function head, TMappingRule baseRule, CQContainmentCheckUnderLIDs cqc, DatalogFactory datalogFactory,
+				 TermFactory termFactory, EQNormalizer eqNormalizer, boolean isClass) {
 		this.filterAtoms = new ArrayList<>(baseRule.filterAtoms.size());
 		this.datalogFactory = datalogFactory;
 		this.termFactory = termFactory;
@@ -138,13 +148,20 @@ public class TMappingRule {
 			filterAtoms.add(cloneList(baseList));
 		
 		this.databaseAtoms = cloneList(baseRule.databaseAtoms);
+		this.relations = baseRule.relations;
 		this.head = (Function)head.clone();
 		
 		this.stripped = this.datalogFactory.getCQIE(head, databaseAtoms);
-		this.cqc = baseRule.cqc;
+		this.cqc = cqc;
 	}
 	
 	
+	private static ImmutableSet<Predicate> extractRelations(List<Function> databaseAtoms) {
+		return databaseAtoms.stream()
+				.map(Function::getFunctionSymbol)
+				.collect(ImmutableCollectors.toSet());
+	}
+
 	public static List<Function> cloneList(List<Function> list) {
 		List<Function> newlist = new ArrayList<>(list.size());
 		for (Function atom : list) {
@@ -223,6 +240,21 @@ public class TMappingRule {
 		return head.getTerms();
 	}
 	
+	/**
+	 * Predicates of the database atoms
+	 */
+	public ImmutableSet<Predicate> getRelations() {
+		return relations;
+	}
+
+	/**
+	 * Predicates of the database atoms and of the atoms that can be derived from them
+	 * by the dependencies of the containment check
+	 */
+	public ImmutableSet<Predicate> getChasedRelations() {
+		return cqc.getChasedPredicates(relations);
+	}
+
 	public int databaseAtomsSize() {
 		return databaseAtoms.size();
 	}
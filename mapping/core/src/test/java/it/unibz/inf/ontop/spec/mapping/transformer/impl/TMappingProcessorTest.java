@@ -0,0 +1,223 @@
+package it.unibz.inf.ontop.spec.mapping.transformer.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMultiset;
+import it.unibz.inf.ontop.datalog.CQIE;
+import it.unibz.inf.ontop.datalog.EQNormalizer;
+import it.unibz.inf.ontop.datalog.LinearInclusionDependency;
+import it.unibz.inf.ontop.datalog.impl.CQContainmentCheckUnderLIDs;
+import it.unibz.inf.ontop.dbschema.BasicDBMetadata;
+import it.unibz.inf.ontop.dbschema.DatabaseRelationDefinition;
+import it.unibz.inf.ontop.dbschema.QuotedIDFactory;
+import it.unibz.inf.ontop.injection.OntopMappingConfiguration;
+import it.unibz.inf.ontop.model.atom.RelationPredicate;
+import it.unibz.inf.ontop.model.term.Function;
+import it.unibz.inf.ontop.model.term.Term;
+import it.unibz.inf.ontop.model.term.Variable;
+import it.unibz.inf.ontop.spec.mapping.TMappingExclusionConfig;
+import it.unibz.inf.ontop.spec.ontology.*;
+import it.unibz.inf.ontop.spec.ontology.impl.DatatypeImpl;
+import it.unibz.inf.ontop.spec.ontology.impl.OntologyBuilderImpl;
+import org.apache.commons.rdf.api.IRI;
+import org.junit.Test;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+import static it.unibz.inf.ontop.utils.MappingTestingTools.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The parallel and indexed saturation gives the same T-mappings as the sequential and non-indexed one
+ */
+public class TMappingProcessorTest {
+
+    private static final String PREFIX = "http://example.org/voc#";
+    private static final int TABLE_COUNT = 20;
+
+    private static final Variable X = TERM_FACTORY.getVariable("x");
+    private static final Variable Y = TERM_FACTORY.getVariable("y");
+    private static final Variable Z = TERM_FACTORY.getVariable("z");
+
+    private static final EQNormalizer EQ_NORMALIZER = OntopMappingConfiguration.defaultBuilder()
+            .enableTestMode()
+            .build()
+            .getInjector()
+            .getInstance(EQNormalizer.class);
+
+    /**
+     * T0, ..., T19 with a foreign key from the first column of Ti to the one of T(i-1)
+     */
+    private static final List<RelationPredicate> TABLES = new ArrayList<>();
+    private static final ImmutableList<LinearInclusionDependency> FOREIGN_KEYS;
+
+    static {
+        BasicDBMetadata dbMetadata = createDummyMetadata();
+        QuotedIDFactory idFactory = dbMetadata.getQuotedIDFactory();
+        for (int i = 0; i < TABLE_COUNT; i++) {
+            DatabaseRelationDefinition tableDef = dbMetadata.createDatabaseRelation(
+                    idFactory.createRelationID(null, "T" + i));
+            for (int j = 1; j <= 3; j++)
+                tableDef.addAttribute(idFactory.createAttributeID("col" + j), Types.VARCHAR, null, false);
+            TABLES.add(tableDef.getAtomPredicate());
+        }
+        dbMetadata.freeze();
+
+        Variable t2 = TERM_FACTORY.getVariable("t2");
+        Variable t3 = TERM_FACTORY.getVariable("t3");
+        Variable p1 = TERM_FACTORY.getVariable("p1");
+        Variable p2 = TERM_FACTORY.getVariable("p2");
+        Variable p3 = TERM_FACTORY.getVariable("p3");
+        ImmutableList.Builder<LinearInclusionDependency> foreignKeys = ImmutableList.builder();
+        for (int i = 1; i < TABLE_COUNT; i++)
+            foreignKeys.add(new LinearInclusionDependency(
+                    TERM_FACTORY.getFunction(TABLES.get(i - 1), p1, p2, p3),
+                    TERM_FACTORY.getFunction(TABLES.get(i), p1, t2, t3)));
+        FOREIGN_KEYS = foreignKeys.build();
+    }
+
+    @Test
+    public void testSameAsSequentialAndNonIndexed() throws InconsistentOntologyException {
+        ClassifiedTBox tbox = createTBox();
+
+        List<CQIE> tMappings = saturate(createProcessor(true, true), tbox);
+        List<CQIE> expectedTMappings = saturate(createProcessor(false, false), tbox);
+
+        assertEquals(toMultiset(expectedTMappings), toMultiset(tMappings));
+        // Same order of the rules within each predicate
+        assertEquals(toStrings(expectedTMappings), toStrings(tMappings));
+        assertTrue(tMappings.size() > createMappings().size());
+
+        // All the rules of the sub-classes and of the domain of P0 are contained in the one over T0
+        assertEquals(1, countRules(tMappings, "C0"));
+    }
+
+    @Test
+    public void testIndexOnly() throws InconsistentOntologyException {
+        ClassifiedTBox tbox = createTBox();
+        assertEquals(toStrings(saturate(createProcessor(false, false), tbox)),
+                toStrings(saturate(createProcessor(false, true), tbox)));
+    }
+
+    @Test
+    public void testParallelismOnly() throws InconsistentOntologyException {
+        ClassifiedTBox tbox = createTBox();
+        assertEquals(toStrings(saturate(createProcessor(false, false), tbox)),
+                toStrings(saturate(createProcessor(true, false), tbox)));
+    }
+
+    private static TMappingProcessor createProcessor(boolean isParallel, boolean isIndexed) {
+        return new TMappingProcessor(ATOM_FACTORY, TERM_FACTORY, DATALOG_FACTORY, SUBSTITUTION_UTILITIES,
+                EQ_NORMALIZER, IMMUTABILITY_TOOLS, isParallel, isIndexed);
+    }
+
+    /**
+     * New mappings and containment check for each run (the containment check caches the chased queries)
+     */
+    private static List<CQIE> saturate(TMappingProcessor processor, ClassifiedTBox tbox) {
+        CQContainmentCheckUnderLIDs cqc = new CQContainmentCheckUnderLIDs(FOREIGN_KEYS, DATALOG_FACTORY,
+                UNIFIER_UTILITIES, SUBSTITUTION_UTILITIES, TERM_FACTORY);
+        return processor.getTMappings(createMappings(), tbox, cqc, TMappingExclusionConfig.empty());
+    }
+
+    /**
+     * Class hierarchies: Ci <= C(i-1) and Di <= C(i/2). Equivalent classes: E and C5.
+     * Property hierarchy: Pi <= P(i-1), Q <= inverse of P0 and, for data properties, name <= label.
+     * Domains: of P0 and of label, respectively C0 and C3.
+     */
+    private static ClassifiedTBox createTBox() throws InconsistentOntologyException {
+        OntologyBuilder builder = OntologyBuilderImpl.builder(RDF_FACTORY);
+        for (int i = 0; i < TABLE_COUNT; i++) {
+            OClass c = builder.declareClass(PREFIX + "C" + i);
+            OClass d = builder.declareClass(PREFIX + "D" + i);
+            if (i > 0)
+                builder.addSubClassOfAxiom(c, builder.classes().get(PREFIX + "C" + (i - 1)));
+            builder.addSubClassOfAxiom(d, builder.classes().get(PREFIX + "C" + (i / 2)));
+
+            ObjectPropertyExpression p = builder.declareObjectProperty(PREFIX + "P" + i);
+            if (i > 0)
+                builder.addSubPropertyOfAxiom(p, builder.objectProperties().get(PREFIX + "P" + (i - 1)));
+        }
+        OClass e = builder.declareClass(PREFIX + "E");
+        OClass c5 = builder.classes().get(PREFIX + "C5");
+        builder.addSubClassOfAxiom(e, c5);
+        builder.addSubClassOfAxiom(c5, e);
+
+        ObjectPropertyExpression p0 = builder.objectProperties().get(PREFIX + "P0");
+        ObjectPropertyExpression q = builder.declareObjectProperty(PREFIX + "Q");
+        builder.addSubPropertyOfAxiom(q, p0.getInverse());
+        builder.addSubClassOfAxiom(p0.getDomain(), builder.classes().get(PREFIX + "C0"));
+
+        DataPropertyExpression label = builder.declareDataProperty(PREFIX + "label");
+        DataPropertyExpression name = builder.declareDataProperty(PREFIX + "name");
+        builder.addSubPropertyOfAxiom(name, label);
+        builder.addSubClassOfAxiom(label.getDomainRestriction(DatatypeImpl.rdfsLiteral),
+                builder.classes().get(PREFIX + "C3"));
+
+        return builder.build().tbox();
+    }
+
+    /**
+     * Redundant rules (under the foreign keys), rules with constants (merged into disjunctions of conditions)
+     * and rules over joins
+     */
+    private static List<CQIE> createMappings() {
+        List<CQIE> mappings = new ArrayList<>();
+        for (int i = 0; i < TABLE_COUNT; i++) {
+            mappings.add(createClassRule("C" + i, X, table(i, X, Y, Z)));
+            mappings.add(createClassRule("C" + i, X, table(i, X, constant(i), Z)));
+            mappings.add(createClassRule("D" + i, X, table(i, X, constant(i), Z)));
+            mappings.add(createClassRule("D" + i, X, table(i, X, constant(i + 100), Z)));
+            mappings.add(createPropertyRule("P" + i, X, Y, table(i, X, Y, Z)));
+            if (i > 0)
+                mappings.add(createClassRule("D" + i, X, table(i, X, Y, Z), table(i - 1, Y, constant(i), Z)));
+            if (i % 2 == 0)
+                mappings.add(createPropertyRule("name", X, Z, table(i, X, Y, Z)));
+        }
+        mappings.add(createPropertyRule("Q", Y, X, table(7, X, Y, Z)));
+        mappings.add(createClassRule("E", X, table(5, X, Y, constant(5))));
+        mappings.add(createPropertyRule("label", X, Y, table(3, X, Y, Z)));
+        return mappings;
+    }
+
+    private static CQIE createClassRule(String className, Term subject, Function... body) {
+        return DATALOG_FACTORY.getCQIE(ATOM_FACTORY.getMutableTripleHeadAtom(subject, iri(className)), body);
+    }
+
+    private static CQIE createPropertyRule(String propertyName, Term subject, Term object, Function... body) {
+        return DATALOG_FACTORY.getCQIE(ATOM_FACTORY.getMutableTripleHeadAtom(subject, iri(propertyName), object),
+                body);
+    }
+
+    private static Function table(int i, Term... terms) {
+        return TERM_FACTORY.getFunction(TABLES.get(i), terms);
+    }
+
+    private static Term constant(int value) {
+        return TERM_FACTORY.getConstantLiteral(String.valueOf(value));
+    }
+
+    private static IRI iri(String name) {
+        return RDF_FACTORY.createIRI(PREFIX + name);
+    }
+
+    private static ImmutableMultiset<String> toMultiset(List<CQIE> rules) {
+        return ImmutableMultiset.copyOf(toStrings(rules));
+    }
+
+    private static List<String> toStrings(List<CQIE> rules) {
+        List<String> strings = new ArrayList<>(rules.size());
+        for (CQIE rule : rules)
+            strings.add(rule.toString());
+        return strings;
+    }
+
+    private static long countRules(List<CQIE> rules, String className) {
+        Term classTerm = ATOM_FACTORY.getMutableTripleHeadAtom(X, iri(className)).getTerm(2);
+        return rules.stream()
+                .filter(r -> r.getHead().getTerms().size() == 3 && r.getHead().getTerm(2).equals(classTerm))
+                .count();
+    }
+}
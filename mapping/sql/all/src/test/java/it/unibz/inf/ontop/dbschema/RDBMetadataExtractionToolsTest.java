@@ -0,0 +1,189 @@
+package it.unibz.inf.ontop.dbschema;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.inject.Injector;
+import it.unibz.inf.ontop.injection.OntopMappingSQLAllConfiguration;
+import it.unibz.inf.ontop.model.type.TypeFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RDBMetadataExtractionToolsTest {
+
+    private static final String URL = "jdbc:h2:mem:metadata_extraction";
+
+    private Connection connection;
+    private TypeFactory typeFactory;
+    private JdbcTypeMapper jdbcTypeMapper;
+
+    @Before
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(URL, "sa", "");
+        try (Statement st = connection.createStatement()) {
+            st.execute("CREATE SCHEMA S2");
+            for (int i = 0; i < 20; i++) {
+                st.execute("CREATE TABLE T" + i + " (ID INT PRIMARY KEY, CODE VARCHAR(10) NOT NULL UNIQUE, " +
+                        "NEXT INT" + (i > 0 ? " REFERENCES T" + (i - 1) + "(ID)" : "") + ")");
+            }
+            st.execute("CREATE TABLE S2.U (A INT, B INT, PRIMARY KEY (B, A), " +
+                    "FOREIGN KEY (A) REFERENCES PUBLIC.T3(ID))");
+            st.execute("CREATE VIEW V AS SELECT ID, CODE FROM T1");
+        }
+
+        OntopMappingSQLAllConfiguration configuration = OntopMappingSQLAllConfiguration.defaultBuilder()
+                .jdbcUrl(URL)
+                .jdbcUser("sa")
+                .jdbcPassword("")
+                .build();
+        Injector injector = configuration.getInjector();
+        typeFactory = injector.getInstance(TypeFactory.class);
+        jdbcTypeMapper = injector.getInstance(JdbcTypeMapper.class);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        try (Statement st = connection.createStatement()) {
+            st.execute("DROP ALL OBJECTS");
+        }
+        connection.close();
+    }
+
+    @Test
+    public void testParallelExtractionOfAllTables() throws SQLException {
+        RDBMetadata sequentialMetadata = RDBMetadataExtractionTools.createMetadata(connection, typeFactory, jdbcTypeMapper);
+        RDBMetadataExtractionTools.loadMetadata(sequentialMetadata, connection, null);
+
+        AtomicInteger additionalConnectionCount = new AtomicInteger(0);
+        RDBMetadata parallelMetadata = RDBMetadataExtractionTools.createMetadata(connection, typeFactory, jdbcTypeMapper);
+        RDBMetadataExtractionTools.loadMetadata(parallelMetadata, connection, null, 4, () -> {
+            additionalConnectionCount.incrementAndGet();
+            return DriverManager.getConnection(URL, "sa", "");
+        });
+
+        assertTrue(additionalConnectionCount.get() > 0);
+        // 20 tables, U and V (in addition to the tables of INFORMATION_SCHEMA)
+        assertEquals(22, countUserRelations(parallelMetadata));
+        assertEquals(render(sequentialMetadata), render(parallelMetadata));
+
+        DatabaseRelationDefinition u = parallelMetadata.getDatabaseRelation(
+                RelationID.createRelationIdFromDatabaseRecord(parallelMetadata.getQuotedIDFactory(), "S2", "U"));
+        assertEquals(2, u.getPrimaryKey().getAttributes().size());
+        assertEquals(1, u.getForeignKeys().size());
+    }
+
+    @Test
+    public void testParallelExtractionOfGivenTables() throws SQLException {
+        QuotedIDFactory idfac = RDBMetadataExtractionTools.createMetadata(connection, typeFactory, jdbcTypeMapper)
+                .getQuotedIDFactory();
+        List<RelationID> tables = new ArrayList<>();
+        for (int i = 0; i < 10; i++)
+            tables.add(idfac.createRelationID(null, "T" + i));
+
+        RDBMetadata sequentialMetadata = RDBMetadataExtractionTools.createMetadata(connection, typeFactory, jdbcTypeMapper);
+        RDBMetadataExtractionTools.loadMetadata(sequentialMetadata, connection, new HashSet<>(tables));
+
+        RDBMetadata parallelMetadata = RDBMetadataExtractionTools.createMetadata(connection, typeFactory, jdbcTypeMapper);
+        RDBMetadataExtractionTools.loadMetadata(parallelMetadata, connection, new HashSet<>(tables), 3,
+                () -> DriverManager.getConnection(URL, "sa", ""));
+
+        assertEquals(10, parallelMetadata.getDatabaseRelations().size());
+        assertEquals(render(sequentialMetadata), render(parallelMetadata));
+    }
+
+    /**
+     * The extraction does not fail when no additional connection can be obtained
+     */
+    @Test
+    public void testUnavailableAdditionalConnections() throws SQLException {
+        RDBMetadata metadata = RDBMetadataExtractionTools.createMetadata(connection, typeFactory, jdbcTypeMapper);
+        RDBMetadataExtractionTools.loadMetadata(metadata, connection, null, 4, () -> {
+            throw new SQLException("No more connections");
+        });
+        assertEquals(22, countUserRelations(metadata));
+    }
+
+    @Test
+    public void testSchemaFingerprint() throws SQLException {
+        QuotedIDFactory idfac = RDBMetadataExtractionTools.createMetadata(connection, typeFactory, jdbcTypeMapper)
+                .getQuotedIDFactory();
+        Set<RelationID> tables = ImmutableSet.of(idfac.createRelationID(null, "T1"),
+                idfac.createRelationID(null, "T2"));
+
+        RDBMetadata metadata = RDBMetadataExtractionTools.createMetadata(connection, typeFactory, jdbcTypeMapper);
+        RDBMetadataExtractionTools.loadMetadata(metadata, connection, tables);
+        String fingerprint = RDBMetadataExtractionTools.computeSchemaFingerprint(metadata, connection);
+        assertEquals(fingerprint, RDBMetadataExtractionTools.computeSchemaFingerprint(metadata, connection));
+
+        try (Statement st = connection.createStatement()) {
+            // Not a relation of the metadata
+            st.execute("ALTER TABLE T5 ADD COLUMN EXTRA INT");
+        }
+        assertEquals(fingerprint, RDBMetadataExtractionTools.computeSchemaFingerprint(metadata, connection));
+
+        try (Statement st = connection.createStatement()) {
+            st.execute("ALTER TABLE T2 ALTER COLUMN NEXT SET NOT NULL");
+        }
+        String newFingerprint = RDBMetadataExtractionTools.computeSchemaFingerprint(metadata, connection);
+        assertNotEquals(fingerprint, newFingerprint);
+
+        try (Statement st = connection.createStatement()) {
+            st.execute("ALTER TABLE T1 ADD FOREIGN KEY (NEXT) REFERENCES T2(ID)");
+        }
+        String fkFingerprint = RDBMetadataExtractionTools.computeSchemaFingerprint(metadata, connection);
+        assertNotEquals(newFingerprint, fkFingerprint);
+
+        try (Statement st = connection.createStatement()) {
+            st.execute("CREATE UNIQUE INDEX T2_NEXT ON T2(NEXT)");
+        }
+        assertNotEquals(fkFingerprint, RDBMetadataExtractionTools.computeSchemaFingerprint(metadata, connection));
+    }
+
+    /**
+     * Same fingerprint when the catalog queries are distributed over several connections
+     */
+    @Test
+    public void testParallelSchemaFingerprint() throws SQLException {
+        RDBMetadata metadata = RDBMetadataExtractionTools.createMetadata(connection, typeFactory, jdbcTypeMapper);
+        RDBMetadataExtractionTools.loadMetadata(metadata, connection, null);
+
+        AtomicInteger additionalConnectionCount = new AtomicInteger(0);
+        String parallelFingerprint = RDBMetadataExtractionTools.computeSchemaFingerprint(metadata, connection, 4,
+                () -> {
+                    additionalConnectionCount.incrementAndGet();
+                    return DriverManager.getConnection(URL, "sa", "");
+                });
+
+        assertTrue(additionalConnectionCount.get() > 0);
+        assertEquals(RDBMetadataExtractionTools.computeSchemaFingerprint(metadata, connection), parallelFingerprint);
+    }
+
+    private static long countUserRelations(RDBMetadata metadata) {
+        return metadata.getDatabaseRelations().stream()
+                .filter(r -> !r.getID().getSchemaName().equals("INFORMATION_SCHEMA"))
+                .count();
+    }
+
+    private static String render(RDBMetadata metadata) {
+        StringBuilder sb = new StringBuilder();
+        for (DatabaseRelationDefinition relation : metadata.getDatabaseRelations()) {
+            sb.append(relation).append("\n");
+            relation.getUniqueConstraints().forEach(uc -> sb.append(uc).append("\n"));
+            relation.getForeignKeys().forEach(fk -> sb.append(fk).append("\n"));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,198 @@
+package it.unibz.inf.ontop.spec.mapping.impl;
+
+import it.unibz.inf.ontop.dbschema.DBMetadata;
+import it.unibz.inf.ontop.dbschema.DatabaseRelationDefinition;
+import it.unibz.inf.ontop.injection.OntopMappingSQLAllConfiguration;
+import it.unibz.inf.ontop.injection.OntopMappingSQLSettings;
+import it.unibz.inf.ontop.injection.OntopMappingSettings;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+
+/**
+ * DB metadata cache: reuse of the snapshot on a warm restart and invalidation after a schema change
+ */
+public class DBMetadataSnapshotCacheTest {
+
+    private static final String URL = "jdbc:h2:mem:metadata_snapshot_cache";
+    private static final String OBDA_FILE = "src/test/resources/snapshot/person.obda";
+    /**
+     * Set on the snapshot files, for detecting that they are rewritten
+     */
+    private static final FileTime OLD_TIME = FileTime.fromMillis(0);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /*
+     * DB connection (keeps it alive)
+     */
+    private Connection connection;
+    private File cacheDirectory;
+
+    @Before
+    public void setUp() throws Exception {
+        connection = DriverManager.getConnection(URL, "sa", "");
+        try (Statement st = connection.createStatement()) {
+            st.execute("CREATE TABLE PERSON (ID INT PRIMARY KEY, FNAME VARCHAR(100) NOT NULL)");
+            st.execute("CREATE TABLE OTHER (ID INT PRIMARY KEY)");
+        }
+        cacheDirectory = folder.newFolder();
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        try (Statement st = connection.createStatement()) {
+            st.execute("DROP ALL OBJECTS");
+        }
+        connection.close();
+    }
+
+    @Test
+    public void testWarmRestart() throws Exception {
+        DBMetadata metadata = loadDBMetadata(createProperties());
+        File snapshotFile = getSnapshotFile();
+        Files.setLastModifiedTime(snapshotFile.toPath(), OLD_TIME);
+
+        DBMetadata cachedMetadata = loadDBMetadata(createProperties());
+        assertEquals(OLD_TIME, Files.getLastModifiedTime(snapshotFile.toPath()));
+        assertEquals(metadata.getDatabaseRelations().toString(), cachedMetadata.getDatabaseRelations().toString());
+    }
+
+    @Test
+    public void testInvalidationAfterAlterTable() throws Exception {
+        loadDBMetadata(createProperties());
+        File snapshotFile = getSnapshotFile();
+        Files.setLastModifiedTime(snapshotFile.toPath(), OLD_TIME);
+
+        try (Statement st = connection.createStatement()) {
+            st.execute("ALTER TABLE PERSON ADD COLUMN LNAME VARCHAR(100)");
+        }
+        DBMetadata metadata = loadDBMetadata(createProperties());
+        assertNotEquals(OLD_TIME, Files.getLastModifiedTime(snapshotFile.toPath()));
+        assertEquals(3, getPerson(metadata).getAttributes().size());
+
+        // The new snapshot is up-to-date
+        Files.setLastModifiedTime(snapshotFile.toPath(), OLD_TIME);
+        loadDBMetadata(createProperties());
+        assertEquals(OLD_TIME, Files.getLastModifiedTime(snapshotFile.toPath()));
+    }
+
+    /**
+     * Only the mapped relations are revalidated
+     */
+    @Test
+    public void testUnmappedTableChange() throws Exception {
+        loadDBMetadata(createProperties());
+        File snapshotFile = getSnapshotFile();
+        Files.setLastModifiedTime(snapshotFile.toPath(), OLD_TIME);
+
+        try (Statement st = connection.createStatement()) {
+            st.execute("ALTER TABLE OTHER ADD COLUMN CODE INT");
+        }
+        loadDBMetadata(createProperties());
+        assertEquals(OLD_TIME, Files.getLastModifiedTime(snapshotFile.toPath()));
+    }
+
+    @Test
+    public void testInvalidationAfterForeignKeyChange() throws Exception {
+        loadDBMetadata(createProperties());
+        File snapshotFile = getSnapshotFile();
+        Files.setLastModifiedTime(snapshotFile.toPath(), OLD_TIME);
+
+        try (Statement st = connection.createStatement()) {
+            st.execute("ALTER TABLE PERSON ADD FOREIGN KEY (ID) REFERENCES OTHER(ID)");
+        }
+        DBMetadata metadata = loadDBMetadata(createProperties());
+        assertNotEquals(OLD_TIME, Files.getLastModifiedTime(snapshotFile.toPath()));
+        assertEquals(1, getPerson(metadata).getForeignKeys().size());
+    }
+
+    @Test
+    public void testInvalidationAfterUniqueConstraintChange() throws Exception {
+        loadDBMetadata(createProperties());
+        File snapshotFile = getSnapshotFile();
+        Files.setLastModifiedTime(snapshotFile.toPath(), OLD_TIME);
+
+        try (Statement st = connection.createStatement()) {
+            st.execute("ALTER TABLE PERSON ADD CONSTRAINT PERSON_FNAME UNIQUE (FNAME)");
+        }
+        DBMetadata metadata = loadDBMetadata(createProperties());
+        assertNotEquals(OLD_TIME, Files.getLastModifiedTime(snapshotFile.toPath()));
+        assertEquals(2, getPerson(metadata).getUniqueConstraints().size());
+    }
+
+    /**
+     * Without revalidation, the snapshot is used even if the schema has changed
+     */
+    @Test
+    public void testNoRevalidation() throws Exception {
+        Properties properties = createProperties();
+        properties.setProperty(OntopMappingSQLSettings.DB_METADATA_SNAPSHOT_REVALIDATION, "false");
+        loadDBMetadata(properties);
+
+        try (Statement st = connection.createStatement()) {
+            st.execute("ALTER TABLE PERSON ADD COLUMN LNAME VARCHAR(100)");
+        }
+        DBMetadata metadata = loadDBMetadata(properties);
+        assertEquals(2, getPerson(metadata).getAttributes().size());
+    }
+
+    /**
+     * The additional connections refer to the same (named) in-memory database
+     */
+    @Test
+    public void testSeveralExtractionConnections() throws Exception {
+        DBMetadata metadata = loadDBMetadata(createProperties());
+
+        Properties properties = new Properties();
+        properties.setProperty(OntopMappingSQLSettings.DB_METADATA_EXTRACTION_CONNECTIONS, "4");
+        properties.setProperty(OntopMappingSettings.OBTAIN_FULL_METADATA, "true");
+        DBMetadata fullMetadata = loadDBMetadata(properties);
+
+        assertEquals(getPerson(metadata).toString(), getPerson(fullMetadata).toString());
+        assertNotNull(fullMetadata.getDatabaseRelation(
+                fullMetadata.getQuotedIDFactory().createRelationID(null, "OTHER")));
+    }
+
+    private Properties createProperties() {
+        Properties properties = new Properties();
+        properties.setProperty(OntopMappingSQLSettings.DB_METADATA_CACHE_DIRECTORY, cacheDirectory.getPath());
+        return properties;
+    }
+
+    private File getSnapshotFile() {
+        File[] files = cacheDirectory.listFiles();
+        assertEquals(1, files.length);
+        return files[0];
+    }
+
+    private static DBMetadata loadDBMetadata(Properties properties) throws Exception {
+        return OntopMappingSQLAllConfiguration.defaultBuilder()
+                .nativeOntopMappingFile(OBDA_FILE)
+                .properties(properties)
+                .jdbcUrl(URL)
+                .jdbcUser("sa")
+                .jdbcPassword("")
+                .build()
+                .loadSpecification()
+                .getDBMetadata();
+    }
+
+    private static DatabaseRelationDefinition getPerson(DBMetadata metadata) {
+        return metadata.getDatabaseRelation(metadata.getQuotedIDFactory().createRelationID(null, "PERSON"));
+    }
+}
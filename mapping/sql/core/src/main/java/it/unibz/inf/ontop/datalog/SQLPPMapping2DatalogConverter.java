@@ -22,15 +22,14 @@ package it.unibz.inf.ontop.datalog;
 
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableList;
-import com.google.inject.Inject;
 import com.google.common.collect.ImmutableMap;
+import com.google.inject.Inject;
 import it.unibz.inf.ontop.dbschema.*;
 import it.unibz.inf.ontop.exception.InvalidMappingSourceQueriesException;
 import it.unibz.inf.ontop.model.atom.TargetAtom;
 import it.unibz.inf.ontop.model.term.*;
 import it.unibz.inf.ontop.model.term.impl.ImmutabilityTools;
 import it.unibz.inf.ontop.model.type.TypeFactory;
-import it.unibz.inf.ontop.spec.mapping.OBDASQLQuery;
 import it.unibz.inf.ontop.spec.mapping.parser.exception.InvalidSelectQueryException;
 import it.unibz.inf.ontop.spec.mapping.parser.exception.UnsupportedSelectQueryException;
 import it.unibz.inf.ontop.spec.mapping.parser.impl.RAExpression;
@@ -42,7 +41,10 @@ import it.unibz.inf.ontop.utils.ImmutableCollectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 
 public class SQLPPMapping2DatalogConverter {
@@ -64,86 +66,142 @@ public class SQLPPMapping2DatalogConverter {
 
     /**
      * returns a Datalog representation of the mappings
+     *
+     * The source queries are parsed in parallel, once per distinct query (up to whitespace),
+     * and the triples maps are then converted in parallel.
+     * Errors are reported in the order of the triples maps.
      */
     public ImmutableMap<CQIE, PPMappingAssertionProvenance> convert(Collection<SQLPPTriplesMap> triplesMaps,
                                                                      RDBMetadata metadata) throws InvalidMappingSourceQueriesException {
-        Map<CQIE, PPMappingAssertionProvenance> mutableMap = new HashMap<>();
-
-        List<String> errorMessages = new ArrayList<>();
+        ImmutableList<SQLPPTriplesMap> triplesMapList = ImmutableList.copyOf(triplesMaps);
+
+        // Normalized source query -> original one (first occurrence)
+        Map<String, String> sourceQueries = new LinkedHashMap<>();
+        ImmutableList<String> keys = triplesMapList.stream()
+                .map(m -> {
+                    String sql = m.getSourceQuery().toString();
+                    String key = normalizeSQL(sql);
+                    sourceQueries.putIfAbsent(key, sql);
+                    return key;
+                })
+                .collect(ImmutableCollectors.toList());
+
+        // Read-only access to the metadata
+        ImmutableList<ParsedSourceQuery> parsedQueries = sourceQueries.values().parallelStream()
+                .map(sql -> parseSourceQuery(sql, metadata))
+                .collect(ImmutableCollectors.toList());
+
+        // Parser views are added to the metadata (sequentially, in the order of the triples maps)
+        Map<String, ParsedSourceQuery> parsedQueryMap = new HashMap<>();
+        Iterator<ParsedSourceQuery> parsedQueryIterator = parsedQueries.iterator();
+        for (Map.Entry<String, String> e : sourceQueries.entrySet()) {
+            parsedQueryMap.put(e.getKey(), parsedQueryIterator.next().createParserViewIfNeeded(e.getValue(), metadata));
+        }
 
         QuotedIDFactory idfac = metadata.getQuotedIDFactory();
+        ImmutableList<ImmutableList<ConversionResult>> results = IntStream.range(0, triplesMapList.size())
+                .parallel()
+                .mapToObj(i -> convertTriplesMap(triplesMapList.get(i), parsedQueryMap.get(keys.get(i)), idfac))
+                .collect(ImmutableCollectors.toList());
 
-        for (SQLPPTriplesMap mappingAxiom : triplesMaps) {
-            try {
-                OBDASQLQuery sourceQuery = mappingAxiom.getSourceQuery();
-
-                List<Function> body;
-                ImmutableMap<QualifiedAttributeID, Term> lookupTable;
-
-                try {
-                    SelectQueryParser sqp = new SelectQueryParser(metadata, termFactory, typeFactory);
-                    RAExpression re = sqp.parse(sourceQuery.toString());
-                    lookupTable = re.getAttributes();
-
-                    body = new ArrayList<>(re.getDataAtoms().size() + re.getFilterAtoms().size());
-                    body.addAll(re.getDataAtoms());
-                    body.addAll(re.getFilterAtoms());
+        Map<CQIE, PPMappingAssertionProvenance> mutableMap = new HashMap<>();
+        List<String> errorMessages = new ArrayList<>();
+        for (ImmutableList<ConversionResult> triplesMapResults : results) {
+            for (ConversionResult result : triplesMapResults) {
+                if (result.errorMessage != null) {
+                    errorMessages.add(result.errorMessage);
+                    continue;
                 }
-                catch (UnsupportedSelectQueryException e) {
-                    ImmutableList<QuotedID> attributes = new SelectQueryAttributeExtractor(metadata, termFactory)
-                            .extract(sourceQuery.toString());
-                    ParserViewDefinition view = metadata.createParserView(sourceQuery.toString(), attributes);
-
-                    // this is required to preserve the order of the variables
-                    ImmutableList<Map.Entry<QualifiedAttributeID,Variable>> list = view.getAttributes().stream()
-                            .map(att -> new AbstractMap.SimpleEntry<>(
-                                    new QualifiedAttributeID(null, att.getID()), // strip off the ParserViewDefinitionName
-                                    termFactory.getVariable(att.getID().getName())))
-                            .collect(ImmutableCollectors.toList());
-
-                    lookupTable = list.stream().collect(ImmutableCollectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+                PPMappingAssertionProvenance previous = mutableMap.put(result.rule, result.provenance);
+                if (previous != null)
+                    LOGGER.warn("Redundant triples maps: \n" + result.provenance + "\n and \n" + previous);
+            }
+        }
 
-                    List<Term> arguments = list.stream().map(Map.Entry::getValue).collect(ImmutableCollectors.toList());
+        if (!errorMessages.isEmpty())
+            throw new InvalidMappingSourceQueriesException(Joiner.on("\n\n").join(errorMessages));
 
-                    body = new ArrayList<>(1);
-                    body.add(termFactory.getFunction(view.getAtomPredicate(), arguments));
-                }
+        return ImmutableMap.copyOf(mutableMap);
+    }
 
-                for (TargetAtom atom : mappingAxiom.getTargetAtoms()) {
-                    PPMappingAssertionProvenance provenance = mappingAxiom.getMappingAssertionProvenance(atom);
-                    try {
-
-                        Function mergedAtom = immutabilityTools.convertToMutableFunction(
-                                atom.getProjectionAtom().getPredicate(),
-                                atom.getSubstitutedTerms());
-
-                        Function head = renameVariables(mergedAtom, lookupTable, idfac);
-                        CQIE rule = datalogFactory.getCQIE(head, body);
-
-                        PPMappingAssertionProvenance previous = mutableMap.put(rule, provenance);
-                        if (previous != null)
-                            LOGGER.warn("Redundant triples maps: \n" + provenance + "\n and \n" + previous);
-                    }
-                    catch (AttributeNotFoundException e) {
-                        errorMessages.add("Error: " + e.getMessage()
-                                + " \nProblem location: source query of the mapping assertion \n["
-                                + provenance.getProvenanceInfo() + "]");
-                    }
-                }
+    private ParsedSourceQuery parseSourceQuery(String sql, RDBMetadata metadata) {
+        try {
+            try {
+                SelectQueryParser sqp = new SelectQueryParser(metadata, termFactory, typeFactory);
+                return new ParsedSourceQuery(sqp.parse(sql));
             }
-            catch (InvalidSelectQueryException e) {
-                errorMessages.add("Error: " + e.getMessage()
-                        + " \nProblem location: source query of triplesMap \n["
-                        +  mappingAxiom.getTriplesMapProvenance().getProvenanceInfo() + "]");
+            catch (UnsupportedSelectQueryException e) {
+                ImmutableList<QuotedID> attributes = new SelectQueryAttributeExtractor(metadata, termFactory)
+                        .extract(sql);
+                return new ParsedSourceQuery(attributes);
             }
         }
+        catch (InvalidSelectQueryException e) {
+            return new ParsedSourceQuery(e);
+        }
+    }
 
-        if (!errorMessages.isEmpty())
-            throw new InvalidMappingSourceQueriesException(Joiner.on("\n\n").join(errorMessages));
+    private ImmutableList<ConversionResult> convertTriplesMap(SQLPPTriplesMap mappingAxiom, ParsedSourceQuery sourceQuery,
+                                                              QuotedIDFactory idfac) {
+        if (sourceQuery.error != null)
+            return ImmutableList.of(new ConversionResult("Error: " + sourceQuery.error.getMessage()
+                    + " \nProblem location: source query of triplesMap \n["
+                    +  mappingAxiom.getTriplesMapProvenance().getProvenanceInfo() + "]"));
+
+        // The parsed query is shared by the triples maps: their terms are mutable
+        List<Function> body = sourceQuery.body.stream()
+                .map(a -> (Function) a.clone())
+                .collect(Collectors.toCollection(ArrayList::new));
+
+        ImmutableList.Builder<ConversionResult> results = ImmutableList.builder();
+        for (TargetAtom atom : mappingAxiom.getTargetAtoms()) {
+            PPMappingAssertionProvenance provenance = mappingAxiom.getMappingAssertionProvenance(atom);
+            try {
 
-        return ImmutableMap.copyOf(mutableMap);
+                Function mergedAtom = immutabilityTools.convertToMutableFunction(
+                        atom.getProjectionAtom().getPredicate(),
+                        atom.getSubstitutedTerms());
+
+                Function head = renameVariables(mergedAtom, sourceQuery.lookupTable, idfac);
+                CQIE rule = datalogFactory.getCQIE(head, body);
+                results.add(new ConversionResult(rule, provenance));
+            }
+            catch (AttributeNotFoundException e) {
+                results.add(new ConversionResult("Error: " + e.getMessage()
+                        + " \nProblem location: source query of the mapping assertion \n["
+                        + provenance.getProvenanceInfo() + "]"));
+            }
+        }
+        return results.build();
     }
 
+    /**
+     * Collapses the whitespace outside the quotes (for identifying identical source queries)
+     */
+    static String normalizeSQL(String sql) {
+        StringBuilder sb = new StringBuilder(sql.length());
+        char quote = 0;
+        boolean pendingSpace = false;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (quote == 0 && Character.isWhitespace(c)) {
+                pendingSpace = sb.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                sb.append(' ');
+                pendingSpace = false;
+            }
+            sb.append(c);
+            if (quote == 0) {
+                if (c == '\'' || c == '"' || c == '`')
+                    quote = c;
+            }
+            else if (c == quote)
+                quote = 0;
+        }
+        return sb.toString();
+    }
 
     /**
      * Returns a new function by renaming variables occurring in the {@code function}
@@ -169,6 +227,8 @@ public class SQLPPMapping2DatalogConverter {
                         throw new AttributeNotFoundException("The source query does not provide the attribute " + attribute
                                 + " (variable " + var.getName() + ") required by the target atom.");
                 }
+                // The lookup table is shared by the triples maps
+                newTerm = newTerm.clone();
             }
             else if (term instanceof Function)
                 newTerm = renameVariables((Function) term, attributes, idfac);
@@ -189,4 +249,101 @@ public class SQLPPMapping2DatalogConverter {
             super(message);
         }
     }
+
+
+    /**
+     * Either a parsed source query (RA expression), the attributes of a source query not supported by the parser
+     * (to be turned into a parser view), or an error.
+     */
+    private final class ParsedSourceQuery {
+        @Nullable
+        private final ImmutableList<Function> body;
+        @Nullable
+        private final ImmutableMap<QualifiedAttributeID, Term> lookupTable;
+        @Nullable
+        private final ImmutableList<QuotedID> viewAttributes;
+        @Nullable
+        private final InvalidSelectQueryException error;
+
+        ParsedSourceQuery(RAExpression re) {
+            this.lookupTable = re.getAttributes();
+            this.body = ImmutableList.<Function>builder()
+                    .addAll(re.getDataAtoms())
+                    .addAll(re.getFilterAtoms())
+                    .build();
+            this.viewAttributes = null;
+            this.error = null;
+        }
+
+        ParsedSourceQuery(ImmutableList<QuotedID> viewAttributes) {
+            this.body = null;
+            this.lookupTable = null;
+            this.viewAttributes = viewAttributes;
+            this.error = null;
+        }
+
+        ParsedSourceQuery(InvalidSelectQueryException error) {
+            this.body = null;
+            this.lookupTable = null;
+            this.viewAttributes = null;
+            this.error = error;
+        }
+
+        private ParsedSourceQuery(ImmutableList<Function> body, ImmutableMap<QualifiedAttributeID, Term> lookupTable) {
+            this.body = body;
+            this.lookupTable = lookupTable;
+            this.viewAttributes = null;
+            this.error = null;
+        }
+
+        /**
+         * Not thread-safe (modifies the metadata)
+         */
+        ParsedSourceQuery createParserViewIfNeeded(String sql, RDBMetadata metadata) {
+            if (viewAttributes == null)
+                return this;
+
+            ParserViewDefinition view = metadata.createParserView(sql, viewAttributes);
+
+            // this is required to preserve the order of the variables
+            ImmutableList<Map.Entry<QualifiedAttributeID,Variable>> list = view.getAttributes().stream()
+                    .map(att -> new AbstractMap.SimpleEntry<>(
+                            new QualifiedAttributeID(null, att.getID()), // strip off the ParserViewDefinitionName
+                            termFactory.getVariable(att.getID().getName())))
+                    .collect(ImmutableCollectors.toList());
+
+            ImmutableMap<QualifiedAttributeID, Term> viewLookupTable = list.stream()
+                    .collect(ImmutableCollectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+
+            ImmutableList<Term> arguments = list.stream().map(Map.Entry::getValue).collect(ImmutableCollectors.toList());
+
+            return new ParsedSourceQuery(
+                    ImmutableList.of(termFactory.getFunction(view.getAtomPredicate(), arguments)),
+                    viewLookupTable);
+        }
+    }
+
+    /**
+     * Either a rule or an error message
+     */
+    private static final class ConversionResult {
+        @Nullable
+        private final CQIE rule;
+        @Nullable
+        private final PPMappingAssertionProvenance provenance;
+        @Nullable
+        private final String errorMessage;
+
+        ConversionResult(CQIE rule, PPMappingAssertionProvenance provenance) {
+            this.rule = rule;
+            this.provenance = provenance;
+            this.errorMessage = null;
+        }
+
+        ConversionResult(String errorMessage) {
+            this.rule = null;
+            this.provenance = null;
+            this.errorMessage = errorMessage;
+        }
+    }
 }
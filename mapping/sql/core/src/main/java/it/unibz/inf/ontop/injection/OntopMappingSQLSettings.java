@@ -1,6 +1,50 @@
 package it.unibz.inf.ontop.injection;
 
 
+import java.util.Optional;
+
 public interface OntopMappingSQLSettings extends OntopMappingSettings, OntopSQLCredentialSettings {
 
+    /**
+     * File storing a snapshot of the DB metadata (see RDBMetadataSnapshotTools).
+     *
+     * If it is up-to-date, the DB metadata is loaded from it instead of being extracted from the database.
+     * Otherwise, it is (re-)written after the extraction.
+     *
+     * Only the DB metadata is snapshotted: the mapping and the ontology are still processed
+     * (parsing, classification, saturation) when the specification is loaded.
+     */
+    Optional<String> getDBMetadataSnapshotFile();
+
+    /**
+     * Directory where the DB metadata is cached when no snapshot file is given:
+     * one snapshot file per JDBC URL and user.
+     */
+    Optional<String> getDBMetadataCacheDirectory();
+
+    /**
+     * If true, a snapshot of the DB metadata is only considered as up-to-date if the schema has not changed
+     * since its creation: according to the last DDL timestamp of the database when the DBMS provides it
+     * (Oracle, DB2, SQL Server), otherwise according to the fingerprint of its relations (columns, primary keys,
+     * unique indexes and foreign keys, as returned by the JDBC metadata).
+     * If the schema version cannot be obtained, the snapshot is ignored.
+     *
+     * If false, the snapshot is used without querying the database.
+     */
+    boolean isDBMetadataSnapshotRevalidationEnabled();
+
+    /**
+     * Maximum number of JDBC connections used in parallel for extracting the DB metadata.
+     * The additional connections are opened with the JDBC URL and credentials of the settings.
+     */
+    int getDBMetadataExtractionConnections();
+
+    //--------------------------
+    // Keys
+    //--------------------------
+
+    String DB_METADATA_SNAPSHOT_FILE = "ontop.dbMetadataSnapshotFile";
+    String DB_METADATA_CACHE_DIRECTORY = "ontop.dbMetadataCacheDirectory";
+    String DB_METADATA_SNAPSHOT_REVALIDATION = "ontop.dbMetadataSnapshotRevalidation";
+    String DB_METADATA_EXTRACTION_CONNECTIONS = "ontop.dbMetadataExtractionConnections";
 }
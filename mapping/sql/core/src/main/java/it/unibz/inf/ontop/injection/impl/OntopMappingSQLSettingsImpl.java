@@ -51,4 +51,24 @@ public class OntopMappingSQLSettingsImpl extends OntopMappingSettingsImpl implem
     public Optional<String> getJdbcDriver() {
         return sqlSettings.getJdbcDriver();
     }
+
+    @Override
+    public Optional<String> getDBMetadataSnapshotFile() {
+        return getProperty(DB_METADATA_SNAPSHOT_FILE);
+    }
+
+    @Override
+    public Optional<String> getDBMetadataCacheDirectory() {
+        return getProperty(DB_METADATA_CACHE_DIRECTORY);
+    }
+
+    @Override
+    public boolean isDBMetadataSnapshotRevalidationEnabled() {
+        return getRequiredBoolean(DB_METADATA_SNAPSHOT_REVALIDATION);
+    }
+
+    @Override
+    public int getDBMetadataExtractionConnections() {
+        return getRequiredInteger(DB_METADATA_EXTRACTION_CONNECTIONS);
+    }
 }
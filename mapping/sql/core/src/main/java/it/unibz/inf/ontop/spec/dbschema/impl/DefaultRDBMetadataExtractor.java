@@ -9,6 +9,7 @@ import it.unibz.inf.ontop.spec.mapping.pp.SQLPPMapping;
 import it.unibz.inf.ontop.spec.dbschema.RDBMetadataExtractor;
 import it.unibz.inf.ontop.spec.dbschema.PreProcessedImplicitRelationalDBConstraintExtractor;
 import it.unibz.inf.ontop.spec.dbschema.PreProcessedImplicitRelationalDBConstraintSet;
+import it.unibz.inf.ontop.utils.LocalJDBCConnectionUtils;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
@@ -39,6 +40,7 @@ public class DefaultRDBMetadataExtractor implements RDBMetadataExtractor {
     private final PreProcessedImplicitRelationalDBConstraintExtractor implicitDBConstraintExtractor;
     private final JdbcTypeMapper jdbcTypeMapper;
     private final TypeFactory typeFactory;
+    private final OntopMappingSQLSettings settings;
 
     @Inject
     private DefaultRDBMetadataExtractor(OntopMappingSQLSettings settings,
@@ -48,6 +50,7 @@ public class DefaultRDBMetadataExtractor implements RDBMetadataExtractor {
         this.implicitDBConstraintExtractor = implicitDBConstraintExtractor;
         this.jdbcTypeMapper = jdbcTypeMapper;
         this.typeFactory = typeFactory;
+        this.settings = settings;
     }
 
     @Override
@@ -77,10 +80,12 @@ public class DefaultRDBMetadataExtractor implements RDBMetadataExtractor {
 
         try {
             RDBMetadata metadata = (RDBMetadata) partiallyDefinedMetadata;
+            int maxConnections = getMaxConnections(connection);
 
             // if we have to parse the full metadata or just the table list in the mappings
             if (obtainFullMetadata) {
-                RDBMetadataExtractionTools.loadMetadata(metadata, connection, null);
+                RDBMetadataExtractionTools.loadMetadata(metadata, connection, null, maxConnections,
+                        () -> LocalJDBCConnectionUtils.createConnection(settings));
             }
             else {
                 try {
@@ -96,7 +101,8 @@ public class DefaultRDBMetadataExtractor implements RDBMetadataExtractor {
                         realTables.addAll(referredTables);
                     });
 
-                    RDBMetadataExtractionTools.loadMetadata(metadata, connection, realTables);
+                    RDBMetadataExtractionTools.loadMetadata(metadata, connection, realTables, maxConnections,
+                            () -> LocalJDBCConnectionUtils.createConnection(settings));
                 }
                 catch (SQLException e) {
                     System.out.println("Error obtaining the metadata " + e);
@@ -115,4 +121,13 @@ public class DefaultRDBMetadataExtractor implements RDBMetadataExtractor {
             throw new DBMetadataExtractionException(e.getMessage());
         }
     }
+
+    /**
+     * Decided from the settings, from which the additional connections are created
+     */
+    private int getMaxConnections(@Nullable Connection connection) {
+        return (connection == null)
+                ? 1
+                : LocalJDBCConnectionUtils.getMaxConnections(settings, settings.getDBMetadataExtractionConnections());
+    }
 }
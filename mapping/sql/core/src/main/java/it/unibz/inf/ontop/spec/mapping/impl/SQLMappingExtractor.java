@@ -1,13 +1,20 @@
 package it.unibz.inf.ontop.spec.mapping.impl;
 
+import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import com.google.inject.Inject;
 import it.unibz.inf.ontop.dbschema.DBMetadata;
+import it.unibz.inf.ontop.dbschema.JdbcTypeMapper;
 import it.unibz.inf.ontop.dbschema.RDBMetadata;
+import it.unibz.inf.ontop.dbschema.RDBMetadataExtractionTools;
+import it.unibz.inf.ontop.dbschema.RDBMetadataSnapshotTools;
 import it.unibz.inf.ontop.exception.*;
 import it.unibz.inf.ontop.injection.OntopMappingSQLSettings;
 import it.unibz.inf.ontop.iq.tools.ExecutorRegistry;
 import it.unibz.inf.ontop.model.term.TermFactory;
+import it.unibz.inf.ontop.model.type.TypeFactory;
 import it.unibz.inf.ontop.spec.OBDASpecInput;
 import it.unibz.inf.ontop.spec.dbschema.RDBMetadataExtractor;
 import it.unibz.inf.ontop.spec.impl.MappingAndDBMetadataImpl;
@@ -29,6 +36,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.Optional;
@@ -45,13 +58,16 @@ public class SQLMappingExtractor extends AbstractMappingExtractor<SQLPPMapping,
     private static final Logger log = LoggerFactory.getLogger(SQLMappingExtractor.class);
     private final TermFactory termFactory;
     private final SubstitutionFactory substitutionFactory;
+    private final TypeFactory typeFactory;
+    private final JdbcTypeMapper jdbcTypeMapper;
 
     @Inject
     private SQLMappingExtractor(SQLMappingParser mappingParser, MappingOntologyComplianceValidator ontologyComplianceValidator,
                                 SQLPPMappingConverter ppMappingConverter, MappingDatatypeFiller mappingDatatypeFiller,
                                 RDBMetadataExtractor dbMetadataExtractor, OntopMappingSQLSettings settings,
                                 MappingCanonicalTransformer canonicalTransformer, TermFactory termFactory,
-                                SubstitutionFactory substitutionFactory) {
+                                SubstitutionFactory substitutionFactory, TypeFactory typeFactory,
+                                JdbcTypeMapper jdbcTypeMapper) {
 
         super(ontologyComplianceValidator, mappingParser);
         this.ppMappingConverter = ppMappingConverter;
@@ -61,6 +77,8 @@ public class SQLMappingExtractor extends AbstractMappingExtractor<SQLPPMapping,
         this.canonicalTransformer = canonicalTransformer;
         this.termFactory = termFactory;
         this.substitutionFactory = substitutionFactory;
+        this.typeFactory = typeFactory;
+        this.jdbcTypeMapper = jdbcTypeMapper;
     }
 
     /**
@@ -126,7 +144,7 @@ public class SQLMappingExtractor extends AbstractMappingExtractor<SQLPPMapping,
     }
 
     /**
-     * Makes use of the DB connection
+     * Makes use of the DB connection, unless an up-to-date snapshot of the DB metadata is available
      */
     private RDBMetadata extractDBMetadata(SQLPPMapping ppMapping, Optional<RDBMetadata> optionalDBMetadata,
                                           OBDASpecInput specInput)
@@ -140,11 +158,62 @@ public class SQLMappingExtractor extends AbstractMappingExtractor<SQLPPMapping,
         if (isDBMetadataProvided && (!settings.isProvidedDBMetadataCompletionEnabled()))
             return optionalDBMetadata.get();
 
+        /*
+         * Snapshots are only used for metadata extracted from scratch
+         */
+        Optional<File> snapshotFile = isDBMetadataProvided
+                ? Optional.empty()
+                : getDBMetadataSnapshotFile();
+        boolean revalidateSnapshot = settings.isDBMetadataSnapshotRevalidationEnabled();
+
+        String checksum = null;
+        if (snapshotFile.isPresent() && !revalidateSnapshot) {
+            checksum = computeDBMetadataChecksum(ppMapping, specInput, Optional.empty());
+            Optional<RDBMetadata> snapshotMetadata = loadDBMetadataSnapshot(snapshotFile.get(), checksum);
+            if (snapshotMetadata.isPresent())
+                return snapshotMetadata.get();
+        }
+
+        RDBMetadata dbMetadata;
         try (Connection localConnection = LocalJDBCConnectionUtils.createConnection(settings)) {
-            return isDBMetadataProvided
+            boolean isRevalidable = snapshotFile.isPresent() && revalidateSnapshot;
+            // read before the extraction, so that a concurrent DDL statement invalidates the new snapshot
+            Optional<String> lastDDLTimestamp = isRevalidable
+                    ? getLastDDLTimestamp(localConnection)
+                    : Optional.empty();
+            if (isRevalidable) {
+                try {
+                    Optional<RDBMetadataSnapshotTools.Snapshot> snapshot = loadDBMetadataSnapshot(snapshotFile.get());
+                    if (snapshot.isPresent()) {
+                        RDBMetadata snapshotMetadata = snapshot.get().getMetadata();
+                        String expectedChecksum = computeDBMetadataChecksum(ppMapping, specInput,
+                                Optional.of(getSchemaVersion(lastDDLTimestamp, snapshotMetadata, localConnection)));
+                        if (isUpToDate(snapshot.get(), expectedChecksum, snapshotFile.get()))
+                            return snapshotMetadata;
+                    }
+                }
+                catch (SQLException e) {
+                    log.warn("Cannot revalidate the DB metadata snapshot (the snapshot is ignored): {}",
+                            e.getMessage());
+                    isRevalidable = false;
+                }
+            }
+
+            dbMetadata = isDBMetadataProvided
                     ? dbMetadataExtractor.extract(ppMapping, localConnection, optionalDBMetadata.get(),
                     specInput.getConstraintFile())
                     : dbMetadataExtractor.extract(ppMapping, localConnection, specInput.getConstraintFile());
+
+            if (isRevalidable) {
+                try {
+                    checksum = computeDBMetadataChecksum(ppMapping, specInput,
+                            Optional.of(getSchemaVersion(lastDDLTimestamp, dbMetadata, localConnection)));
+                }
+                catch (SQLException e) {
+                    log.warn("Cannot compute the schema version (the DB metadata snapshot is not written): {}",
+                            e.getMessage());
+                }
+            }
         }
         /*
          * Problem while creating the connection
@@ -152,6 +221,159 @@ public class SQLMappingExtractor extends AbstractMappingExtractor<SQLPPMapping,
         catch (SQLException e) {
             throw new DBMetadataExtractionException(e.getMessage());
         }
+
+        if (snapshotFile.isPresent() && checksum != null)
+            saveDBMetadataSnapshot(dbMetadata, snapshotFile.get(), checksum);
+        return dbMetadata;
+    }
+
+    /**
+     * Empty if the DBMS does not provide it (or if it cannot be read)
+     */
+    private static Optional<String> getLastDDLTimestamp(Connection connection) {
+        try {
+            return RDBMetadataExtractionTools.getLastDDLTimestamp(connection);
+        }
+        catch (SQLException e) {
+            log.warn("Cannot read the last DDL timestamp (the schema fingerprint is used instead): {}",
+                    e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * The last DDL timestamp of the database when the DBMS provides it (a single query).
+     * Otherwise, the fingerprint of the relations of the metadata (catalog queries for each of them,
+     * distributed over the DB metadata extraction connections).
+     */
+    private String getSchemaVersion(Optional<String> lastDDLTimestamp, RDBMetadata metadata, Connection connection)
+            throws SQLException {
+        if (lastDDLTimestamp.isPresent())
+            return "ddl:" + lastDDLTimestamp.get();
+
+        int maxConnections = LocalJDBCConnectionUtils.getMaxConnections(settings,
+                settings.getDBMetadataExtractionConnections());
+        return "fingerprint:" + RDBMetadataExtractionTools.computeSchemaFingerprint(metadata, connection,
+                maxConnections, () -> LocalJDBCConnectionUtils.createConnection(settings));
+    }
+
+    /**
+     * The snapshot file given in the settings. Otherwise, the file of the JDBC URL and user
+     * in the cache directory (if any).
+     */
+    private Optional<File> getDBMetadataSnapshotFile() {
+        Optional<String> snapshotFile = settings.getDBMetadataSnapshotFile();
+        if (snapshotFile.isPresent())
+            return snapshotFile.map(File::new);
+
+        return settings.getDBMetadataCacheDirectory()
+                .map(d -> {
+                    Hasher hasher = Hashing.sha256().newHasher();
+                    putString(hasher, settings.getJdbcUrl());
+                    putString(hasher, settings.getJdbcUser());
+                    return new File(d, "db-metadata-" + hasher.hash().toString().substring(0, 32) + ".snapshot");
+                });
+    }
+
+    /**
+     * Checksum of the inputs of the DB metadata extraction: the DB (and, when revalidated,
+     * the version of its schema: last DDL timestamp or fingerprint of the extracted relations),
+     * the source queries of the mapping (from which the relations are obtained),
+     * the implicit constraints and the extraction settings.
+     */
+    private String computeDBMetadataChecksum(SQLPPMapping ppMapping, OBDASpecInput specInput,
+                                             Optional<String> schemaVersion)
+            throws DBMetadataExtractionException {
+        Hasher hasher = Hashing.sha256().newHasher();
+        putString(hasher, settings.getJdbcUrl());
+        putString(hasher, settings.getJdbcUser());
+        hasher.putBoolean(settings.isFullMetadataExtractionEnabled());
+        // Without a schema version, the checksum is the same as when the snapshot is not revalidated
+        schemaVersion.ifPresent(v -> putString(hasher, v));
+
+        ImmutableList<SQLPPTriplesMap> triplesMaps = ppMapping.getTripleMaps();
+        hasher.putInt(triplesMaps.size());
+        triplesMaps.forEach(m -> putString(hasher, m.getSourceQuery().getSQLQuery()));
+
+        Optional<File> constraintFile = specInput.getConstraintFile();
+        hasher.putBoolean(constraintFile.isPresent());
+        if (constraintFile.isPresent()) {
+            try {
+                byte[] content = Files.readAllBytes(constraintFile.get().toPath());
+                hasher.putInt(content.length);
+                hasher.putBytes(content);
+            } catch (IOException e) {
+                throw new DBMetadataExtractionException(e.getMessage());
+            }
+        }
+        return hasher.hash().toString();
+    }
+
+    /**
+     * Length-prefixed, so that the concatenation of the strings is not ambiguous
+     */
+    private static void putString(Hasher hasher, @Nullable String s) {
+        String value = Strings.nullToEmpty(s);
+        hasher.putInt(value.length());
+        hasher.putString(value, StandardCharsets.UTF_8);
+    }
+
+    private Optional<RDBMetadata> loadDBMetadataSnapshot(File snapshotFile, String checksum) {
+        return loadDBMetadataSnapshot(snapshotFile)
+                .filter(s -> isUpToDate(s, checksum, snapshotFile))
+                .map(RDBMetadataSnapshotTools.Snapshot::getMetadata);
+    }
+
+    /**
+     * Whatever its checksum
+     */
+    private Optional<RDBMetadataSnapshotTools.Snapshot> loadDBMetadataSnapshot(File snapshotFile) {
+        if (!snapshotFile.exists())
+            return Optional.empty();
+
+        try (InputStream inputStream = new FileInputStream(snapshotFile)) {
+            Optional<RDBMetadataSnapshotTools.Snapshot> snapshot = RDBMetadataSnapshotTools.read(inputStream,
+                    typeFactory, jdbcTypeMapper);
+            if (!snapshot.isPresent())
+                log.info("DB metadata snapshot {} in an older format: extracting the DB metadata", snapshotFile);
+            return snapshot;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Cannot read the DB metadata snapshot {}: {}", snapshotFile, e.toString());
+            return Optional.empty();
+        }
+    }
+
+    private static boolean isUpToDate(RDBMetadataSnapshotTools.Snapshot snapshot, String expectedChecksum,
+                                      File snapshotFile) {
+        if (snapshot.getChecksum().equals(expectedChecksum)) {
+            log.info("DB metadata loaded from the snapshot {}", snapshotFile);
+            return true;
+        }
+        log.info("Outdated DB metadata snapshot {}: extracting the DB metadata", snapshotFile);
+        return false;
+    }
+
+    /**
+     * The snapshot is written to a temporary file before replacing the previous one, so that concurrent readers
+     * never see a partial snapshot
+     */
+    private void saveDBMetadataSnapshot(RDBMetadata dbMetadata, File snapshotFile, String checksum) {
+        Path target = snapshotFile.toPath().toAbsolutePath();
+        try {
+            Files.createDirectories(target.getParent());
+            Path tmpFile = Files.createTempFile(target.getParent(), snapshotFile.getName(), ".tmp");
+            try {
+                try (OutputStream outputStream = Files.newOutputStream(tmpFile)) {
+                    RDBMetadataSnapshotTools.write(dbMetadata, checksum, outputStream);
+                }
+                Files.move(tmpFile, target, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(tmpFile);
+            }
+            log.info("DB metadata snapshot written to {}", snapshotFile);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Cannot write the DB metadata snapshot {}: {}", snapshotFile, e.toString());
+        }
     }
 
     protected SQLPPMapping castPPMapping(PreProcessedMapping ppMapping) {
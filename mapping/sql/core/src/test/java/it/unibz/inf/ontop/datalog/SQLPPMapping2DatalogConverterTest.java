@@ -291,5 +291,8 @@ public class SQLPPMapping2DatalogConverterTest extends TestCase {
                 ":S_{lid} a :Student .");
     }
 
-
+    public void testNormalizeSQL() {
+        assertEquals("SELECT id FROM Student WHERE name = 'a  b'",
+                SQLPPMapping2DatalogConverter.normalizeSQL("  SELECT id\n  FROM Student\tWHERE name = 'a  b' "));
+    }
 }
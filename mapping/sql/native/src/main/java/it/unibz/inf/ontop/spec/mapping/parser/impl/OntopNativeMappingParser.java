@@ -47,11 +47,11 @@ import org.apache.commons.rdf.api.RDF;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.io.*;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import static it.unibz.inf.ontop.exception.InvalidMappingExceptionWithIndicator.*;
 
@@ -154,7 +154,7 @@ public class OntopNativeMappingParser implements SQLMappingParser {
         final List<SQLPPTriplesMap> mappings = new ArrayList<>();
         final List<Indicator> invalidMappingIndicators = new ArrayList<>();
 
-        List<TargetQueryParser> parsers = null;
+        Supplier<List<TargetQueryParser>> parsers = null;
 		
 		String line;
 
@@ -172,7 +172,7 @@ public class OntopNativeMappingParser implements SQLMappingParser {
                      * In case of late prefix declaration
                      */
                         if (parsers != null) {
-                            parsers = createParsers(ImmutableMap.copyOf(prefixes));
+                            parsers = createParserFactory(ImmutableMap.copyOf(prefixes));
                         }
 
                     } else if (line.contains(CLASS_DECLARATION_TAG)) {
@@ -190,7 +190,7 @@ public class OntopNativeMappingParser implements SQLMappingParser {
                                 "Please give this information with the Ontop configuration.");
                     } else if (line.contains(MAPPING_DECLARATION_TAG)) {
                         if (parsers == null) {
-                            parsers = createParsers(ImmutableMap.copyOf(prefixes));
+                            parsers = createParserFactory(ImmutableMap.copyOf(prefixes));
                         }
                         mappings.addAll(readMappingDeclaration(lineNumberReader, parsers, invalidMappingIndicators));
                     } else {
@@ -243,15 +243,34 @@ public class OntopNativeMappingParser implements SQLMappingParser {
     /**
      * TODO: describe
      * TODO: follow the advice of IntelliJ: split this method to make its workflow tractable.
+     *
+     * The lines of the declaration are read first, so that its target queries can be parsed in parallel.
+     *
      * @param reader
+     * @param parsers Creates new parsers (which are not thread-safe)
      * @param invalidMappingIndicators Read-write list of error indicators.
      * @return The updated mapping set of the current source
      * @throws IOException
      */
     private static List<SQLPPTriplesMap> readMappingDeclaration(LineNumberReader reader,
-                                                                List<TargetQueryParser> parsers,
+                                                                Supplier<List<TargetQueryParser>> parsers,
                                                                 List<Indicator> invalidMappingIndicators)
             throws IOException {
+        int firstLineNumber = reader.getLineNumber() + 1;
+        List<String> lines = new ArrayList<>();
+        String line;
+        for (line = reader.readLine();
+             line != null && !line.trim().equals(END_COLLECTION_SYMBOL);
+             line = reader.readLine()) {
+            lines.add(line);
+        }
+
+        if (line == null) {
+            throw new IOException(String.format("End collection symbol %s is missing.", END_COLLECTION_SYMBOL));
+        }
+
+        Map<String, TargetQueryParsingResult> targetQueries = parseTargetQueries(lines, parsers);
+
         List<SQLPPTriplesMap> currentSourceMappings = new ArrayList<>();
 
         String mappingId = "";
@@ -261,11 +280,9 @@ public class OntopNativeMappingParser implements SQLMappingParser {
         int wsCount = 0;  // length of whitespace used as the separator
         boolean isMappingValid = true; // a flag to load the mapping to the model if valid
         
-        String line;
-        for(line = reader.readLine(); 
-        		line != null && !line.trim().equals(END_COLLECTION_SYMBOL); 
-        		line = reader.readLine()) {
-            int lineNumber = reader.getLineNumber();
+        for (int i = 0; i < lines.size(); i++) {
+            line = lines.get(i);
+            int lineNumber = firstLineNumber + i;
             if (line.isEmpty()) {
             	if (!mappingId.isEmpty()) {
 	            	// Save the mapping to the model (if valid) at this point
@@ -292,20 +309,11 @@ public class OntopNativeMappingParser implements SQLMappingParser {
             	continue; // skip if the mapping is invalid
             }
             
-            String[] tokens = line.split("[\t| ]+", 2);
-
-            String label;
-            String value;
-            if(tokens.length > 1 ) {
-                label = tokens[0].trim();
-                value = tokens[1].trim();
-            }
-            else{
-                value = tokens[0];
-                label = "";
-            }
+            String[] tokens = splitLine(line);
+            String label = tokens[0];
+            String value = tokens[1];
             if (!label.isEmpty()) {
-            	currentLabel = tokens[0];
+            	currentLabel = tokens[2];
             }
 
             if (currentLabel.equals(Label.mappingId.name())) {
@@ -322,7 +330,7 @@ public class OntopNativeMappingParser implements SQLMappingParser {
                 } else {
 	                // Load the target query
                     try {
-                        targetQuery = loadTargetQuery(targetString, parsers);
+                        targetQuery = targetQueries.get(targetString).getTargetQuery();
                     } catch (UnparsableTargetQueryException e) {
                         invalidMappingIndicators.add(new Indicator(lineNumber, new String[] {mappingId, targetString, e.getMessage()},
                                 ERROR_PARSING_TARGET_QUERY));
@@ -345,15 +353,11 @@ public class OntopNativeMappingParser implements SQLMappingParser {
 	                }
                 }
             } else {
-                String msg = String.format("Unknown parameter name \"%s\" at line: %d.", tokens[0], lineNumber);
+                String msg = String.format("Unknown parameter name \"%s\" at line: %d.", tokens[2], lineNumber);
                 throw new IOException(msg);
             }
         }
         
-        if (line == null) {
-        	throw new IOException(String.format("End collection symbol %s is missing.", END_COLLECTION_SYMBOL));
-        }
-        
         // Save the last mapping entry to the model
         if (!mappingId.isEmpty() && isMappingValid) {
             currentSourceMappings = addNewMapping(mappingId, sourceQuery.toString(), targetQuery, currentSourceMappings);
@@ -362,6 +366,48 @@ public class OntopNativeMappingParser implements SQLMappingParser {
         return currentSourceMappings;
     }
 
+    /**
+     * Returns the label (trimmed, possibly empty), the value and the raw label of the line
+     */
+    private static String[] splitLine(String line) {
+        String[] tokens = line.split("[\t| ]+", 2);
+        return (tokens.length > 1)
+                ? new String[] { tokens[0].trim(), tokens[1].trim(), tokens[0] }
+                : new String[] { "", tokens[0], tokens[0] };
+    }
+
+    /**
+     * Parses in parallel the (distinct) target queries of the lines, with one set of parsers per thread.
+     *
+     * Some of them may end up not being used (e.g. after an invalid mapping).
+     */
+    private static Map<String, TargetQueryParsingResult> parseTargetQueries(List<String> lines,
+                                                                            Supplier<List<TargetQueryParser>> parsers) {
+        Set<String> targetStrings = new LinkedHashSet<>();
+        String currentLabel = "";
+        for (String line : lines) {
+            if (line.isEmpty() || isCommentLine(line))
+                continue;
+            String[] tokens = splitLine(line);
+            if (!tokens[0].isEmpty())
+                currentLabel = tokens[2];
+            if (currentLabel.equals(Label.target.name()) && !tokens[1].isEmpty())
+                targetStrings.add(tokens[1]);
+        }
+
+        ThreadLocal<List<TargetQueryParser>> threadParsers = ThreadLocal.withInitial(parsers);
+        return targetStrings.parallelStream()
+                .collect(Collectors.toConcurrentMap(
+                        t -> t,
+                        t -> {
+                            try {
+                                return new TargetQueryParsingResult(loadTargetQuery(t, threadParsers.get()));
+                            } catch (UnparsableTargetQueryException e) {
+                                return new TargetQueryParsingResult(e);
+                            }
+                        }));
+    }
+
 	private static ImmutableList<TargetAtom> loadTargetQuery(String targetString,
                                         List<TargetQueryParser> parsers) throws UnparsableTargetQueryException {
         Map<TargetQueryParser, TargetQueryParserException> exceptions = new HashMap<>();
@@ -406,10 +452,41 @@ public class OntopNativeMappingParser implements SQLMappingParser {
         return line.contains(COMMENT_SYMBOL) && line.trim().indexOf(COMMENT_SYMBOL) == 0;
     }
 
+    private Supplier<List<TargetQueryParser>> createParserFactory(ImmutableMap<String, String> prefixes) {
+        return () -> createParsers(prefixes);
+    }
+
     private List<TargetQueryParser> createParsers(Map<String, String> prefixes) {
         List<TargetQueryParser> parsers = new ArrayList<>();
         // TODO: consider using a factory instead.
         parsers.add(new TurtleOBDASQLParser(prefixes, termFactory, targetAtomFactory, rdfFactory));
         return ImmutableList.copyOf(parsers);
     }
+
+
+    /**
+     * Either a target query or the parsing exception
+     */
+    private static final class TargetQueryParsingResult {
+        @Nullable
+        private final ImmutableList<TargetAtom> targetQuery;
+        @Nullable
+        private final UnparsableTargetQueryException exception;
+
+        TargetQueryParsingResult(ImmutableList<TargetAtom> targetQuery) {
+            this.targetQuery = targetQuery;
+            this.exception = null;
+        }
+
+        TargetQueryParsingResult(UnparsableTargetQueryException exception) {
+            this.targetQuery = null;
+            this.exception = exception;
+        }
+
+        ImmutableList<TargetAtom> getTargetQuery() throws UnparsableTargetQueryException {
+            if (exception != null)
+                throw exception;
+            return targetQuery;
+        }
+    }
 }
@@ -53,6 +53,7 @@ public class OWLAPIABoxLoading {
             OWLAPIABoxIterator aBoxIter = new OWLAPIABoxIterator(ontologyClosure, ontology.tbox(), translatorOWL2QL);
             int count = repo.insertData(connection, aBoxIter);
             LOG.debug("Inserted {} triples from the ontology.", count);
+            repo.createIndexes(connection);
 
             return new OntopSemanticIndexLoaderImpl(repo, connection, properties,
                     Optional.of(extractTBox(owlOntology)));
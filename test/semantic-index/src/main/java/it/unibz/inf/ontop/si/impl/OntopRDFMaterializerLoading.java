@@ -75,6 +75,7 @@ public class OntopRDFMaterializerLoading {
                             }
                         });
                 LOG.debug("Inserted {} triples from the mappings.", count);
+                repo.createIndexes(connection);
                 return new OntopSemanticIndexLoaderImpl(repo, connection, properties,
                         Optional.of(extractTBox(inputOntology)));
             }
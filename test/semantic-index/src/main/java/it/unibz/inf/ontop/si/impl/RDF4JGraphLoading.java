@@ -12,6 +12,7 @@ import it.unibz.inf.ontop.model.type.TypeFactory;
 import it.unibz.inf.ontop.si.OntopSemanticIndexLoader;
 import it.unibz.inf.ontop.si.SemanticIndexException;
 import it.unibz.inf.ontop.si.repository.impl.SIRepository;
+import it.unibz.inf.ontop.si.repository.impl.SemanticIndexBulkLoader;
 import it.unibz.inf.ontop.spec.ontology.*;
 import it.unibz.inf.ontop.spec.ontology.impl.OntologyBuilderImpl;
 import org.apache.commons.rdf.api.RDF;
@@ -28,6 +29,11 @@ import java.io.InputStream;
 import java.net.URL;
 import java.sql.Connection;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 
 public class RDF4JGraphLoading {
 
@@ -56,19 +62,50 @@ public class RDF4JGraphLoading {
                 injector.getInstance(TargetAtomFactory.class));
         Connection connection = repo.createConnection();
 
-        //  Load the data
-        SemanticIndexRDFHandler insertData = new SemanticIndexRDFHandler(repo, connection,
-                defaultConfiguration.getTypeFactory(), defaultConfiguration.getTermFactory(),
-                injector.getInstance(RDF.class));
+        //  Load the data: the graphs are parsed in parallel, and the assertions are inserted by a single writer
+        AssertionConstructor assertionConstructor = new AssertionConstructor(defaultConfiguration.getTypeFactory(),
+                defaultConfiguration.getTermFactory(), rdfFactory);
 
-        for (IRI graphURL : graphURLs) {
-            processRDF(insertData, graphURL);
+        try (SemanticIndexBulkLoader loader = new SemanticIndexBulkLoader(repo, connection)) {
+            parseInParallel(graphURLs, () -> new SemanticIndexRDFHandler(loader, assertionConstructor));
+            int count = loader.finish();
+            LOG.info("Inserted {} triples", count);
         }
-        LOG.info("Inserted {} triples", insertData.count);
 
         return new OntopSemanticIndexLoaderImpl(repo, connection, properties, Optional.empty() /* no tbox */);
     }
 
+    private static void parseInParallel(Set<IRI> graphURLs,
+                                        Supplier<AbstractRDFHandler> handlerFactory)
+            throws SemanticIndexException {
+        int threadCount = Math.max(1, Math.min(graphURLs.size(), Runtime.getRuntime().availableProcessors()));
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            List<Future<Void>> futures = new ArrayList<>(graphURLs.size());
+            for (IRI graphURL : graphURLs) {
+                futures.add(executor.submit(() -> {
+                    processRDF(handlerFactory.get(), graphURL);
+                    return null;
+                }));
+            }
+            for (Future<Void> future : futures)
+                future.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SemanticIndexException("Interrupted while loading the RDF graphs");
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SemanticIndexException)
+                throw (SemanticIndexException) cause;
+            throw new SemanticIndexException(cause.getMessage());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
 
     private static final class CollectRDFVocabulary extends AbstractRDFHandler {
         private final OntologyBuilder vb;
@@ -93,29 +130,22 @@ public class RDF4JGraphLoading {
         }
     }
 
+    /**
+     * Submits the statements to the loader by batches (one handler per parsed graph).
+     */
     private static final class SemanticIndexRDFHandler extends AbstractRDFHandler {
 
-        private final SIRepository repository;
-        private final Connection connection;
-        private final ABoxAssertionSupplier builder;
-        private final TypeFactory typeFactory;
-        private final TermFactory termFactory;
+        private final SemanticIndexBulkLoader loader;
+        private final AssertionConstructor assertionConstructor;
 
-        private static final int MAX_BUFFER_SIZE = 5000;
+        private static final int MAX_BUFFER_SIZE = 50000;
 
+        // a new buffer is created for each batch (the submitted ones are converted asynchronously)
         private List<Statement> buffer = new ArrayList<>(MAX_BUFFER_SIZE);
-        private int count = 0;
-        private final RDF rdfFactory;
 
-        public SemanticIndexRDFHandler(SIRepository repository, Connection connection,
-                                       TypeFactory typeFactory, TermFactory termFactory,
-                                       RDF rdfFactory) {
-            this.repository = repository;
-            this.typeFactory = typeFactory;
-            this.termFactory = termFactory;
-            this.builder = OntologyBuilderImpl.assertionSupplier(rdfFactory);
-            this.connection = connection;
-            this.rdfFactory = rdfFactory;
+        SemanticIndexRDFHandler(SemanticIndexBulkLoader loader, AssertionConstructor assertionConstructor) {
+            this.loader = loader;
+            this.assertionConstructor = assertionConstructor;
         }
 
         @Override
@@ -133,17 +163,34 @@ public class RDF4JGraphLoading {
         }
 
         private void loadBuffer() throws RDFHandlerException {
+            if (buffer.isEmpty())
+                return;
             try {
-                Iterator<Assertion> assertionIterator = buffer.stream()
-                        .map(st -> constructAssertion(st, builder))
-                        .iterator();
-                count += repository.insertData(connection, assertionIterator);
-                buffer.clear();
+                loader.submit(buffer, assertionConstructor::constructAssertion);
+                buffer = new ArrayList<>(MAX_BUFFER_SIZE);
             }
-            catch (Exception e) {
+            catch (SemanticIndexException e) {
                 throw new RDFHandlerException(e);
             }
         }
+    }
+
+    /**
+     * Thread-safe
+     */
+    private static final class AssertionConstructor {
+
+        private final ABoxAssertionSupplier builder;
+        private final TypeFactory typeFactory;
+        private final TermFactory termFactory;
+        private final RDF rdfFactory;
+
+        AssertionConstructor(TypeFactory typeFactory, TermFactory termFactory, RDF rdfFactory) {
+            this.typeFactory = typeFactory;
+            this.termFactory = termFactory;
+            this.builder = OntologyBuilderImpl.assertionSupplier(rdfFactory);
+            this.rdfFactory = rdfFactory;
+        }
 
         /***
          * Constructs an ABox assertion with the data from the current result set.
@@ -152,7 +199,7 @@ public class RDF4JGraphLoading {
          * predicate is not type and the object is URI or BNode. Its a data property
          * if the predicate is not rdf:type and the object is a Literal.
          */
-        private Assertion constructAssertion(Statement st, ABoxAssertionSupplier builder) {
+        private Assertion constructAssertion(Statement st) {
 
             Resource subject = st.getSubject();
             final ObjectConstant c;
@@ -49,6 +49,7 @@ import java.math.BigDecimal;
 import java.sql.*;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.function.IntFunction;
 
 /**
  * Store ABox assertions in the DB
@@ -85,6 +86,13 @@ public class RDBMSSIRepositoryManager {
 		String getINSERT(String values) {
 			return insertCommand + values + ")";
 		}
+
+		/**
+		 * Multi-row INSERT: the values are repeated for each row
+		 */
+		String getINSERT(String values, int rowCount) {
+			return insertCommand + String.join("), (", Collections.nCopies(rowCount, values)) + ")";
+		}
 		
 		String getSELECT(String filter) {
 			return selectCommand +  " WHERE " + filter;
@@ -341,6 +349,15 @@ public class RDBMSSIRepositoryManager {
 		}
 	}
 
+	/**
+	 * Inserts the assertions using multi-row INSERTs.
+	 *
+	 * The rows are accumulated in one column buffer per view (and one for the new URIs).
+	 * A buffer is inserted (as a single statement) when it is full (batchLimit rows) and a row is added to it,
+	 * independently of the other buffers. The transaction is committed every commitLimit assertions.
+	 *
+	 * URI ids are assigned in memory (see the URI map).
+	 */
 	public int insertData(Connection conn, Iterator<Assertion> data, int commitLimit, int batchLimit) throws SQLException {
 		log.debug("Inserting data into DB");
 
@@ -351,14 +368,13 @@ public class RDBMSSIRepositoryManager {
 		boolean oldAutoCommit = conn.getAutoCommit();
 		conn.setAutoCommit(false);
 
-		PreparedStatement uriidStm = conn.prepareStatement(uriIdTable.getINSERT("?, ?"));
-		Map<SemanticIndexViewID, PreparedStatement> stmMap = new HashMap<>();
+		long start = System.currentTimeMillis();
+		InsertionBuffers buffers = new InsertionBuffers(conn, batchLimit);
 		
 		// For counting the insertion
 		int success = 0;
 		Map<IRI, Integer> failures = new HashMap<>();
 
-		int batchCount = 0;
 		int commitCount = 0;
 
 		try {
@@ -366,15 +382,18 @@ public class RDBMSSIRepositoryManager {
 				Assertion ax = data.next();
 
 				// log.debug("Inserting statement: {}", ax);
-				batchCount++;
 				commitCount++;
 
 				if (ax instanceof ClassAssertion) {
 					ClassAssertion ca = (ClassAssertion) ax; 
 					try {
-						process(conn, ca, uriidStm, stmMap);
+						process(ca, buffers);
 						success++;
 					}
+					catch (SQLException e) {
+						// insertion failure (not a conversion failure of the assertion)
+						throw e;
+					}
 					catch (Exception e) {
 						IRI iri = ca.getConcept().getIRI();
 						Integer counter = failures.get(iri);
@@ -386,9 +405,13 @@ public class RDBMSSIRepositoryManager {
 				else if (ax instanceof ObjectPropertyAssertion) {
 					ObjectPropertyAssertion opa = (ObjectPropertyAssertion)ax;
 					try {
-						process(conn, opa, uriidStm, stmMap);	
+						process(opa, buffers);
 						success++;
 					}
+					catch (SQLException e) {
+						// insertion failure (not a conversion failure of the assertion)
+						throw e;
+					}
 					catch (Exception e) {
 						IRI iri = opa.getProperty().getIRI();
 						Integer counter = failures.get(iri);
@@ -400,9 +423,13 @@ public class RDBMSSIRepositoryManager {
 				else if (ax instanceof DataPropertyAssertion)  {
 					DataPropertyAssertion dpa = (DataPropertyAssertion)ax;
 					try {
-						process(conn, dpa, uriidStm, stmMap);				
+						process(dpa, buffers);
 						success++;					
 					}
+					catch (SQLException e) {
+						// insertion failure (not a conversion failure of the assertion)
+						throw e;
+					}
 					catch (Exception e) {
 						IRI iri = dpa.getProperty().getIRI();
 						Integer counter = failures.get(iri);
@@ -412,18 +439,6 @@ public class RDBMSSIRepositoryManager {
 					}
 				}
 
-
-				// Check if the batch count is already in the batch limit
-				if (batchCount == batchLimit) {
-					uriidStm.executeBatch();
-					uriidStm.clearBatch();
-					for (PreparedStatement stm : stmMap.values()) {
-						stm.executeBatch();
-						stm.clearBatch();
-					}
-					batchCount = 0; // reset the counter
-				}
-
 				// Check if the commit count is already in the commit limit
 				if (commitCount == commitLimit) {
 					conn.commit();
@@ -431,27 +446,21 @@ public class RDBMSSIRepositoryManager {
 				}
 			}
 
-			// Execute the rest of the batch
-			uriidStm.executeBatch();
-			uriidStm.clearBatch();
-			for (PreparedStatement stm : stmMap.values()) {
-				stm.executeBatch();
-				stm.clearBatch();
-			}
+			// Insert the rest of the rows
+			buffers.flushAll();
 			// Commit the rest of the batch insert
 			conn.commit();
 		}
 		finally {
 			// Close all open statements
-			uriidStm.close();
-			for (PreparedStatement stm : stmMap.values()) 
-				stm.close();
+			buffers.close();
 		}
 
 		conn.setAutoCommit(oldAutoCommit);
 
 		// Print the monitoring log
-		log.debug("Total successful insertions: " + success + ".");
+		log.debug("Total successful insertions: {} ({} INSERT statements, {} ms).", success,
+				buffers.statementCount, System.currentTimeMillis() - start);
 		int totalFailures = 0;
 		for (Map.Entry<IRI, Integer> entry : failures.entrySet()) {
 			log.warn("Failed to insert data for predicate {} ({} tuples).", entry.getKey(), entry.getValue());
@@ -465,7 +474,7 @@ public class RDBMSSIRepositoryManager {
 	}
 
 
-	private void process(Connection conn, ObjectPropertyAssertion ax, PreparedStatement uriidStm, Map<SemanticIndexViewID, PreparedStatement> stmMap) throws SQLException {
+	private void process(ObjectPropertyAssertion ax, InsertionBuffers buffers) throws SQLException {
 
 		ObjectPropertyExpression ope0 = ax.getProperty();
 		if (ope0.isInverse()) 
@@ -493,26 +502,17 @@ public class RDBMSSIRepositoryManager {
 
 		SemanticIndexView view = views.getView(o1.getType(), o2.getType());
 		
-		PreparedStatement stm = stmMap.get(view.getId());
-		if (stm == null) {
-			stm = conn.prepareStatement(view.getINSERT());
-			stmMap.put(view.getId(), stm);
-		}
-		
-		int uri_id = getObjectConstantUriId(o1, uriidStm);
-		int uri2_id = getObjectConstantUriId(o2, uriidStm);
+		int uri_id = getObjectConstantUriId(o1, buffers);
+		int uri2_id = getObjectConstantUriId(o2, buffers);
 		
-		// Construct the database INSERT statements		
-		stm.setInt(1, uri_id);
-		stm.setInt(2, uri2_id);		
-		stm.setInt(3, idx);
-		stm.addBatch();
+		// Construct the database row
+		buffers.add(buffers.getBuffer(view), uri_id, uri2_id, idx);
 		
 		// Register non emptiness
 		view.addIndex(idx);
 	} 
 
-	private void process(Connection conn, DataPropertyAssertion ax, PreparedStatement uriidStm, Map<SemanticIndexViewID, PreparedStatement> stmMap) throws SQLException {
+	private void process(DataPropertyAssertion ax, InsertionBuffers buffers) throws SQLException {
 
 		// replace the property by its canonical representative
 		DataPropertyExpression dpe0 = ax.getProperty();
@@ -520,38 +520,31 @@ public class RDBMSSIRepositoryManager {
 		int idx = cacheSI.getEntry(dpe).getIndex();
 		
 		ObjectConstant subject = ax.getSubject();
-		int uri_id = getObjectConstantUriId(subject, uriidStm);
+		int uri_id = getObjectConstantUriId(subject, buffers);
 
 		ValueConstant object = ax.getValue();
 
 		// ROMAN (28 June 2016): quite fragile because objectType is UNSUPPORTED for SHORT, BYTE, etc.
 		//                       a a workaround, obtain the URI ID first, without triggering an exception here
 		SemanticIndexView view =  views.getView(subject.getType(), object.getType());
-		PreparedStatement stm = stmMap.get(view.getId());
-		if (stm == null) {
-			stm = conn.prepareStatement(view.getINSERT());
-			stmMap.put(view.getId(), stm);
-		}
+		ColumnBuffer buffer = buffers.getBuffer(view);
 
-		stm.setInt(1, uri_id);
-		
 		String value = object.getValue();
 		
 		switch (COL_TYPE.getColType(object.getType().getIRI())) {
 			case LANG_STRING:  // -3
-				stm.setString(2, value);
-				stm.setString(4, object.getType().getLanguageTag().get().getFullString());
+				buffers.add(buffer, uri_id, value, idx, object.getType().getLanguageTag().get().getFullString());
 				break;  
 			case STRING:   // 1
-				stm.setString(2, value);
+				buffers.add(buffer, uri_id, value, idx);
 				break;
 	        case INT:   // 3
 	            //if (value.charAt(0) == '+') // ROMAN: not needed in Java 7
 	            //    value = value.substring(1, value.length());
-	        	stm.setInt(2, Integer.parseInt(value));
+				buffers.add(buffer, uri_id, Integer.parseInt(value), idx);
 	            break;
 	        case UNSIGNED_INT:  // 4
-	        	stm.setInt(2, Integer.parseInt(value));
+				buffers.add(buffer, uri_id, Integer.parseInt(value), idx);
 	            break;
 	        case INTEGER:  // 2
 	        case NEGATIVE_INTEGER:   // 5
@@ -561,23 +554,23 @@ public class RDBMSSIRepositoryManager {
 	        case LONG: // 10
 	            //if (value.charAt(0) == '+')  // ROMAN: not needed in Java 7
 	            //    value = value.substring(1, value.length());
-	            stm.setLong(2, Long.parseLong(value));
+				buffers.add(buffer, uri_id, Long.parseLong(value), idx);
 	            break;
 	        case FLOAT: // 9
-				stm.setDouble(2, Float.parseFloat(value));
+				buffers.add(buffer, uri_id, (double) Float.parseFloat(value), idx);
 	            break;
 			case DOUBLE: // 12
-				stm.setDouble(2, Double.parseDouble(value));
+				buffers.add(buffer, uri_id, Double.parseDouble(value), idx);
 				break;
 			case DECIMAL: // 11
-				stm.setBigDecimal(2, new BigDecimal(value));
+				buffers.add(buffer, uri_id, new BigDecimal(value), idx);
 				break;
 			case DATETIME_STAMP: // 15
 			case DATETIME: // 13
-				stm.setTimestamp(2, XsdDatatypeConverter.parseXsdDateTime(value));
+				buffers.add(buffer, uri_id, XsdDatatypeConverter.parseXsdDateTime(value), idx);
 				break;
 			case BOOLEAN: // 14				
-				stm.setBoolean(2, XsdDatatypeConverter.parseXsdBoolean(value));
+				buffers.add(buffer, uri_id, XsdDatatypeConverter.parseXsdBoolean(value), idx);
 				break;
 			default:
 				// UNSUPPORTED DATATYPE
@@ -585,15 +578,12 @@ public class RDBMSSIRepositoryManager {
 				return;				
 		}
 		
-		stm.setInt(3, idx);
-		stm.addBatch();
-		
 		// register non-emptiness
 		view.addIndex(idx);
 	}
 	
 		
-	private void process(Connection conn, ClassAssertion ax, PreparedStatement uriidStm, Map<SemanticIndexViewID, PreparedStatement> stmMap) throws SQLException {
+	private void process(ClassAssertion ax, InsertionBuffers buffers) throws SQLException {
 		
 		// replace concept by the canonical representative (which must be a concept name)
 		OClass concept0 = ax.getConcept();
@@ -603,19 +593,11 @@ public class RDBMSSIRepositoryManager {
 		ObjectConstant c1 = ax.getIndividual();
 
 		SemanticIndexView view =  views.getView(c1.getType());
-	
-		PreparedStatement stm = stmMap.get(view.getId());
-		if (stm == null) {
-			stm = conn.prepareStatement(view.getINSERT());
-			stmMap.put(view.getId(), stm);
-		}
 
-		int uri_id = getObjectConstantUriId(c1, uriidStm); 
+		int uri_id = getObjectConstantUriId(c1, buffers);
 		
-		// Construct the database INSERT statements
-		stm.setInt(1, uri_id);
-		stm.setInt(2, conceptIndex);
-		stm.addBatch();
+		// Construct the database row
+		buffers.add(buffers.getBuffer(view), uri_id, conceptIndex);
 	
 		// Register non emptiness
 		view.addIndex(conceptIndex);
@@ -626,7 +608,7 @@ public class RDBMSSIRepositoryManager {
 	// TODO: use database to get the maximum URIId
 	private int maxURIId = -1;
 	
-	private int getObjectConstantUriId(ObjectConstant c, PreparedStatement uriidStm) throws SQLException {
+	private int getObjectConstantUriId(ObjectConstant c, InsertionBuffers buffers) throws SQLException {
 		
 		// TODO (ROMAN): I am not sure this is entirely correct for blank nodes
 		String uri = (c instanceof BNode) ? ((BNode) c).getName() : ((IRIConstant) c).getIRI().getIRIString();
@@ -635,18 +617,151 @@ public class RDBMSSIRepositoryManager {
 		if (uri_id < 0) {
 			uri_id = maxURIId + 1;
 
+			// Construct the database row (before registering the id, in case the insertion fails)
+			buffers.add(buffers.uriIdBuffer, uri_id, uri);
+
 			uriMap.set(uri, uri_id);
 			maxURIId++;
-			
-			// Construct the database INSERT statement
-			uriidStm.setInt(1, uri_id);
-			uriidStm.setString(2, uri);
-			uriidStm.addBatch();								
 		}
 			
 		return uri_id;
 	}
 
+
+	/**
+	 * Rows of a multi-row INSERT, stored by column
+	 */
+	private static final class ColumnBuffer {
+		// number of rows -> INSERT command
+		private final IntFunction<String> insertCommand;
+		private final Object[][] columns;
+		private final int capacity;
+		private int size = 0;
+		// statement for a full buffer (prepared once)
+		private PreparedStatement fullStatement;
+
+		ColumnBuffer(IntFunction<String> insertCommand, int arity, int capacity) {
+			this.insertCommand = insertCommand;
+			this.columns = new Object[arity][capacity];
+			this.capacity = capacity;
+		}
+
+		/**
+		 * The row must match the parameters of the INSERT command
+		 */
+		void add(Object... row) {
+			if (row.length != columns.length)
+				throw new IllegalArgumentException("Expected " + columns.length + " values: " + Arrays.toString(row));
+			if (isFull())
+				throw new IllegalStateException("The buffer must be inserted first");
+			for (int c = 0; c < columns.length; c++)
+				columns[c][size] = row[c];
+			size++;
+		}
+
+		boolean isFull() {
+			return size == capacity;
+		}
+
+		void flush(Connection conn) throws SQLException {
+			if (size == 0)
+				return;
+
+			if (isFull()) {
+				if (fullStatement == null)
+					fullStatement = conn.prepareStatement(insertCommand.apply(capacity));
+				execute(fullStatement);
+			}
+			else {
+				try (PreparedStatement stm = conn.prepareStatement(insertCommand.apply(size))) {
+					execute(stm);
+				}
+			}
+		}
+
+		private void execute(PreparedStatement stm) throws SQLException {
+			int p = 1;
+			for (int row = 0; row < size; row++)
+				for (Object[] column : columns)
+					stm.setObject(p++, column[row]);
+			stm.executeUpdate();
+
+			for (Object[] column : columns)
+				Arrays.fill(column, 0, size, null);
+			size = 0;
+		}
+
+		void close() throws SQLException {
+			if (fullStatement != null)
+				fullStatement.close();
+		}
+	}
+
+	/**
+	 * One column buffer per view, and one for the new URIs
+	 */
+	private static final class InsertionBuffers {
+		private final Connection conn;
+		private final int batchLimit;
+		private final ColumnBuffer uriIdBuffer;
+		private final Map<SemanticIndexViewID, ColumnBuffer> viewBuffers = new HashMap<>();
+		private long statementCount = 0;
+
+		InsertionBuffers(Connection conn, int batchLimit) {
+			this.conn = conn;
+			this.batchLimit = batchLimit;
+			this.uriIdBuffer = new ColumnBuffer(n -> uriIdTable.getINSERT("?, ?", n), 2, batchLimit);
+		}
+
+		ColumnBuffer getBuffer(SemanticIndexView view) {
+			return viewBuffers.computeIfAbsent(view.getId(),
+					id -> new ColumnBuffer(view::getINSERT, getParameterCount(id), batchLimit));
+		}
+
+		/**
+		 * class: URI, IDX
+		 * object property: URI1, URI2, IDX
+		 * data property: URI, VAL, IDX (and LANG for language-tagged strings)
+		 */
+		private static int getParameterCount(SemanticIndexViewID id) {
+			RDFTermType type2 = id.getType2();
+			if (type2 == null)
+				return 2;
+			if (type2 instanceof RDFDatatype && ((RDFDatatype) type2).getLanguageTag().isPresent())
+				return 4;
+			return 3;
+		}
+
+		/**
+		 * A full buffer is inserted before the row is added: an assertion can add several rows
+		 * to the same buffer (e.g., two new URIs)
+		 */
+		void add(ColumnBuffer buffer, Object... row) throws SQLException {
+			if (buffer.isFull())
+				flush(buffer);
+			buffer.add(row);
+		}
+
+		void flushAll() throws SQLException {
+			flush(uriIdBuffer);
+			for (ColumnBuffer buffer : viewBuffers.values())
+				flush(buffer);
+		}
+
+		private void flush(ColumnBuffer buffer) throws SQLException {
+			if (buffer.size > 0) {
+				buffer.flush(conn);
+				statementCount++;
+			}
+		}
+
+		void close() throws SQLException {
+			uriIdBuffer.close();
+			for (ColumnBuffer buffer : viewBuffers.values())
+				buffer.close();
+		}
+	}
+
 	
 	public final static int CLASS_TYPE = 1;
 	public final static int ROLE_TYPE = 2;
@@ -37,6 +37,11 @@ public class SIRepository {
     private static final String DEFAULT_USER = "sa";
     private static final String DEFAULT_PASSWORD = "";
 
+    // number of assertions per transaction
+    private static final int COMMIT_LIMIT = 50000;
+    // number of rows per (multi-row) INSERT
+    private static final int BATCH_LIMIT = 1000;
+
     private final RDBMSSIRepositoryManager dataRepository;
     private final String jdbcUrl;
     private final TermFactory termFactory;
@@ -59,7 +64,15 @@ public class SIRepository {
     public String getPassword(){ return DEFAULT_PASSWORD; }
 
     public int insertData(Connection connection, Iterator<Assertion> iterator) throws SQLException {
-        return dataRepository.insertData(connection, iterator, 5000, 500);
+        return dataRepository.insertData(connection, iterator, COMMIT_LIMIT, BATCH_LIMIT);
+    }
+
+    /**
+     * To be called once, after all the data has been inserted
+     * (maintaining the indexes during the insertion is much slower).
+     */
+    public void createIndexes(Connection connection) throws SQLException {
+        dataRepository.createIndexes(connection);
     }
 
     public SemanticIndexURIMap getUriMap() { return dataRepository.getUriMap(); }
@@ -0,0 +1,249 @@
+package it.unibz.inf.ontop.si.repository.impl;
+
+import it.unibz.inf.ontop.si.SemanticIndexException;
+import it.unibz.inf.ontop.spec.ontology.Assertion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Pipelined loading of a semantic index repository.
+ *
+ * Producers (e.g., RDF parsers, possibly several in parallel) submit batches of input elements.
+ * Each batch is converted into assertions asynchronously (on the common fork-join pool),
+ * while a single writer thread inserts the converted batches through the JDBC connection.
+ *
+ * The number of batches waiting for insertion is bounded: the producers are slowed down
+ * when the insertion is the bottleneck.
+ *
+ * The indexes are created once all the data has been inserted.
+ *
+ * After a failure (including an Error in the writer), the remaining batches are discarded
+ * and the failure is reported by submit() and finish().
+ */
+public class SemanticIndexBulkLoader implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SemanticIndexBulkLoader.class);
+
+    private static final int DEFAULT_MAX_PENDING_BATCHES = 8;
+    // number of inserted assertions between two progress reports
+    private static final long PROGRESS_INTERVAL = 1000000;
+
+    // marks the end of the input (compared by identity)
+    private static final CompletableFuture<List<Assertion>> END_OF_INPUT = new CompletableFuture<>();
+
+    private final SIRepository repository;
+    private final Connection connection;
+    private final BlockingQueue<CompletableFuture<List<Assertion>>> pendingBatches;
+    private final Thread writer;
+
+    private final long start;
+    // written by the writer thread only
+    private volatile long insertedCount = 0;
+    private volatile long insertionTime = 0;
+    private volatile Throwable failure;
+    // set by close() when finish() has not been called
+    private volatile boolean discarding = false;
+    private boolean ended = false;
+
+    public SemanticIndexBulkLoader(SIRepository repository, Connection connection) {
+        this(repository, connection, DEFAULT_MAX_PENDING_BATCHES);
+    }
+
+    public SemanticIndexBulkLoader(SIRepository repository, Connection connection, int maxPendingBatches) {
+        if (maxPendingBatches < 1)
+            throw new IllegalArgumentException("At least one pending batch must be allowed");
+        this.repository = repository;
+        this.connection = connection;
+        this.pendingBatches = new ArrayBlockingQueue<>(maxPendingBatches);
+        this.start = System.currentTimeMillis();
+        this.writer = new Thread(this::insertBatches, "semantic-index-loader");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Thread-safe. Blocks when too many batches are waiting for insertion.
+     *
+     * The batch must not be modified afterwards.
+     */
+    public <T> void submit(List<T> batch, Function<? super T, ? extends Assertion> converter)
+            throws SemanticIndexException {
+        checkFailure();
+        CompletableFuture<List<Assertion>> assertions = CompletableFuture.supplyAsync(
+                () -> batch.stream()
+                        .map(converter)
+                        .collect(Collectors.toList()));
+        try {
+            pendingBatches.put(assertions);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SemanticIndexException("Interrupted while loading the semantic index");
+        }
+    }
+
+    /**
+     * Waits for the insertion of all the submitted batches and creates the indexes.
+     *
+     * Returns the number of inserted assertions.
+     */
+    public int finish() throws SemanticIndexException {
+        awaitInsertion();
+        checkFailure();
+
+        long indexStart = System.currentTimeMillis();
+        try {
+            repository.createIndexes(connection);
+        }
+        catch (SQLException e) {
+            throw new SemanticIndexException(e.getMessage());
+        }
+        long end = System.currentTimeMillis();
+
+        LOGGER.info("Semantic index loaded: {} assertions in {} ms ({} assertions/s), insertion: {} ms, " +
+                        "index creation: {} ms", insertedCount, end - start,
+                getThroughput(insertedCount, indexStart - start), insertionTime, end - indexStart);
+        return (int) insertedCount;
+    }
+
+    /**
+     * If finish() has not been called, discards the batches that are not inserted yet
+     * and stops the writer (without creating the indexes).
+     */
+    @Override
+    public synchronized void close() throws SemanticIndexException {
+        if (ended)
+            return;
+        discarding = true;
+        List<CompletableFuture<List<Assertion>>> discardedBatches = new ArrayList<>();
+        pendingBatches.drainTo(discardedBatches);
+        discardedBatches.forEach(b -> b.cancel(false));
+        if (!discardedBatches.isEmpty())
+            LOGGER.debug("Semantic index loading closed: {} pending batches discarded", discardedBatches.size());
+        awaitInsertion();
+    }
+
+    public long getInsertedCount() {
+        return insertedCount;
+    }
+
+    private synchronized void awaitInsertion() throws SemanticIndexException {
+        if (ended)
+            return;
+        ended = true;
+        try {
+            pendingBatches.put(END_OF_INPUT);
+            writer.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SemanticIndexException("Interrupted while loading the semantic index");
+        }
+    }
+
+    private void checkFailure() throws SemanticIndexException {
+        Throwable e = failure;
+        if (e != null)
+            throw new SemanticIndexException("Cannot load the semantic index: " + e);
+    }
+
+    /**
+     * Writer thread.
+     *
+     * Whatever stops the insertion (failure, Error, interruption), the failure is set and the remaining batches
+     * are discarded until the end of the input, so that neither the producers nor awaitInsertion() are blocked.
+     */
+    private void insertBatches() {
+        boolean isEndOfInputReached = false;
+        try {
+            isEndOfInputReached = insertBatchesUntilFailure();
+        }
+        catch (InterruptedException e) {
+            failure = e;
+        }
+        catch (RuntimeException | Error e) {
+            failure = e;
+            throw e;
+        }
+        finally {
+            if (!isEndOfInputReached) {
+                if (failure == null)
+                    failure = new IllegalStateException("The semantic index writer has stopped");
+                discardBatches();
+            }
+        }
+    }
+
+    /**
+     * Returns true if the end of the input has been reached, false after a failure
+     */
+    private boolean insertBatchesUntilFailure() throws InterruptedException {
+        long nextProgressReport = PROGRESS_INTERVAL;
+        while (true) {
+            CompletableFuture<List<Assertion>> batch = pendingBatches.take();
+            if (batch == END_OF_INPUT)
+                return true;
+            if (discarding) {
+                batch.cancel(false);
+                continue;
+            }
+
+            try {
+                List<Assertion> assertions = batch.join();
+                long batchStart = System.currentTimeMillis();
+                int count = repository.insertData(connection, assertions.iterator());
+                insertionTime += System.currentTimeMillis() - batchStart;
+                insertedCount += count;
+            }
+            catch (CompletionException e) {
+                failure = (e.getCause() != null) ? e.getCause() : e;
+                return false;
+            }
+            catch (SQLException e) {
+                failure = e;
+                return false;
+            }
+
+            if (insertedCount >= nextProgressReport) {
+                LOGGER.info("Semantic index loading: {} assertions inserted ({} assertions/s)", insertedCount,
+                        getThroughput(insertedCount, System.currentTimeMillis() - start));
+                nextProgressReport = (insertedCount / PROGRESS_INTERVAL + 1) * PROGRESS_INTERVAL;
+            }
+        }
+    }
+
+    /**
+     * Until the end of the input. Interruptions are ignored: END_OF_INPUT is always submitted by awaitInsertion().
+     */
+    private void discardBatches() {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                CompletableFuture<List<Assertion>> batch = pendingBatches.take();
+                if (batch == END_OF_INPUT)
+                    break;
+                batch.cancel(false);
+            }
+            catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    private static long getThroughput(long count, long duration) {
+        return (duration > 0) ? count * 1000 / duration : count;
+    }
+}
@@ -10,12 +10,20 @@ public class SemanticIndexView {
 	private final SemanticIndexViewID id;
 	private final String selectCommand;
 	private final String insertCommand;
+	private final RDBMSSIRepositoryManager.TableDescription table;
+	private final String insertValues;
 	private final Set<Integer> indexes = new HashSet<>();
-	
-	public SemanticIndexView(SemanticIndexViewID id, String selectCommand, String insertCommand) {
+
+	/**
+	 * insertValues: parameters and constants of a row inserted into the table
+	 */
+	SemanticIndexView(SemanticIndexViewID id, String selectCommand, RDBMSSIRepositoryManager.TableDescription table,
+					  String insertValues) {
 		this.id = id;
 		this.selectCommand = selectCommand;
-		this.insertCommand = insertCommand;
+		this.table = table;
+		this.insertValues = insertValues;
+		this.insertCommand = table.getINSERT(insertValues);
 	}
 	
 	public SemanticIndexViewID getId() {
@@ -29,6 +37,13 @@ public class SemanticIndexView {
 	public String getINSERT() {
 		return insertCommand;
 	}
+
+	/**
+	 * Multi-row INSERT
+	 */
+	public String getINSERT(int rowCount) {
+		return table.getINSERT(insertValues, rowCount);
+	}
 	
 	public boolean isEmptyForIntervals(List<Interval> intervals) {
 		for (Interval interval : intervals) 
@@ -94,10 +94,10 @@ public class SemanticIndexViewsManager {
 			
 			{
 				String select = RDBMSSIRepositoryManager.classTable.getSELECT(filter);
-				String insert = RDBMSSIRepositoryManager.classTable.getINSERT("?, ?, " + value);
 				
 				SemanticIndexViewID viewId = new SemanticIndexViewID(type1);
-				SemanticIndexView view = new SemanticIndexView(viewId, select, insert);
+				SemanticIndexView view = new SemanticIndexView(viewId, select, RDBMSSIRepositoryManager.classTable,
+						"?, ?, " + value);
 				views.put(view.getId(), view);		
 				classViews.add(view);
 			}
@@ -116,7 +116,8 @@ public class SemanticIndexViewsManager {
 		String value =  type1.isBlankNode() ? "TRUE" : "FALSE";
 		String filter = "ISBNODE = " + value + " AND ";
 
-		String select, insert;
+		String select, insertValues;
+		RDBMSSIRepositoryManager.TableDescription tableDescription;
 
 		if (type2.getLanguageTag().isPresent()) {
 			/*
@@ -127,21 +128,19 @@ public class SemanticIndexViewsManager {
 			 */
 			LanguageTag languageTag = type2.getLanguageTag().get();
 			// Hack: use the RDFS Literal table to get the table description
-			RDBMSSIRepositoryManager.TableDescription tableDescription = RDBMSSIRepositoryManager.ATTRIBUTE_TABLE_MAP
-					.get(RDF.LANGSTRING);
+			tableDescription = RDBMSSIRepositoryManager.ATTRIBUTE_TABLE_MAP.get(RDF.LANGSTRING);
 
 			select = tableDescription.getSELECT("LANG = '" + languageTag.getFullString() +  "' AND " + filter);
-			insert = tableDescription.getINSERT("?, ?, ?, ?, " + value);
+			insertValues = "?, ?, ?, ?, " + value;
 		}
 		else {
-			RDBMSSIRepositoryManager.TableDescription tableDescription = RDBMSSIRepositoryManager.ATTRIBUTE_TABLE_MAP
-					.get(type2.getIRI());
+			tableDescription = RDBMSSIRepositoryManager.ATTRIBUTE_TABLE_MAP.get(type2.getIRI());
 
 			select = tableDescription.getSELECT(filter);
-			insert = tableDescription.getINSERT("?, ?, ?, " + value);
+			insertValues = "?, ?, ?, " + value;
 		}
 
-		createViews(type1, type2, select, insert);
+		createViews(type1, type2, select, tableDescription, insertValues);
 	}
 
 	private void initObjectProperty(ObjectRDFType type1, ObjectRDFType type2) {
@@ -152,14 +151,15 @@ public class SemanticIndexViewsManager {
 		RDBMSSIRepositoryManager.TableDescription tableDescription = RDBMSSIRepositoryManager.ROLE_TABLE;
 
 		String select = tableDescription.getSELECT(filter + "ISBNODE2 = " + value2 + " AND ");
-		String insert = tableDescription.getINSERT("?, ?, ?, " + value1 + ", " + value2);
+		String insertValues = "?, ?, ?, " + value1 + ", " + value2;
 
-		createViews(type1, type2, select, insert);
+		createViews(type1, type2, select, tableDescription, insertValues);
 	}
 
-	private void createViews(ObjectRDFType type1, RDFTermType type2, String select, String insert) {
+	private void createViews(ObjectRDFType type1, RDFTermType type2, String select,
+							 RDBMSSIRepositoryManager.TableDescription tableDescription, String insertValues) {
 		SemanticIndexViewID viewId = new SemanticIndexViewID(type1, type2);
-		SemanticIndexView view = new SemanticIndexView(viewId, select, insert);
+		SemanticIndexView view = new SemanticIndexView(viewId, select, tableDescription, insertValues);
 		views.put(view.getId(), view);
 		propertyViews.add(view);
 	}
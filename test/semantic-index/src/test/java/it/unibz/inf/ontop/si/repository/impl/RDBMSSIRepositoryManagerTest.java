@@ -0,0 +1,186 @@
+package it.unibz.inf.ontop.si.repository.impl;
+
+import com.google.common.collect.ImmutableMultiset;
+import it.unibz.inf.ontop.model.term.ObjectConstant;
+import it.unibz.inf.ontop.model.vocabulary.XSD;
+import it.unibz.inf.ontop.spec.ontology.*;
+import it.unibz.inf.ontop.spec.ontology.impl.OntologyBuilderImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+import static it.unibz.inf.ontop.utils.SITestingTools.*;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Multi-row insertion: the buffers of the views are flushed independently of each other
+ */
+public class RDBMSSIRepositoryManagerTest {
+
+    private static final String PREFIX = "http://example.org/voc#";
+    // small enough for the buffers to be flushed several times
+    private static final int BATCH_LIMIT = 3;
+
+    private Connection conn;
+    private RDBMSSIRepositoryManager manager;
+
+    private OClass person;
+    private ObjectPropertyExpression knows;
+    private DataPropertyExpression name;
+    private DataPropertyExpression age;
+
+    @Before
+    public void setUp() throws SQLException {
+        OntologyBuilder builder = OntologyBuilderImpl.builder(RDF_FACTORY);
+        person = builder.declareClass(PREFIX + "Person");
+        knows = builder.declareObjectProperty(PREFIX + "knows");
+        name = builder.declareDataProperty(PREFIX + "name");
+        age = builder.declareDataProperty(PREFIX + "age");
+        ClassifiedTBox tbox = builder.build().tbox();
+
+        manager = new RDBMSSIRepositoryManager(tbox, TERM_FACTORY, TYPE_FACTORY, TARGET_ATOM_FACTORY);
+        conn = DriverManager.getConnection("jdbc:h2:mem:si_repository_manager_test", "sa", "");
+        manager.createDBSchemaAndInsertMetadata(conn);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        conn.close();
+    }
+
+    /**
+     * One view (with the LANG column) per language tag
+     */
+    @Test
+    public void testLangStringView() throws Exception {
+        List<Assertion> assertions = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            assertions.add(OntologyBuilderImpl.createDataPropertyAssertion(name, individual(i),
+                    TERM_FACTORY.getConstantLiteral("name" + i, "en")));
+            assertions.add(OntologyBuilderImpl.createDataPropertyAssertion(name, individual(i),
+                    TERM_FACTORY.getConstantLiteral("nome" + i, "it")));
+        }
+        assertions.add(OntologyBuilderImpl.createDataPropertyAssertion(name, individual(0),
+                TERM_FACTORY.getConstantLiteral("plain", XSD.STRING)));
+
+        assertEquals(assertions.size(), manager.insertData(conn, assertions.iterator(), 100, BATCH_LIMIT));
+
+        ImmutableMultiset.Builder<String> expected = ImmutableMultiset.builder();
+        for (int i = 0; i < 7; i++)
+            expected.add("name" + i + "@en", "nome" + i + "@it");
+        assertEquals(expected.build(), ImmutableMultiset.copyOf(
+                select("SELECT VAL || '@' || LANG FROM QUEST_DATA_PROPERTY_LITERAL_ASSERTION")));
+
+        assertEquals(ImmutableMultiset.of("plain"),
+                ImmutableMultiset.copyOf(select("SELECT VAL FROM QUEST_DATA_PROPERTY_STRING_ASSERTION")));
+        assertEquals(7, count("URIID"));
+    }
+
+    /**
+     * Interleaved assertions of different views, with a commit limit that is not a multiple of the batch limit
+     */
+    @Test
+    public void testMixedViewsAcrossFlushes() throws Exception {
+        final int n = 10;
+        List<Assertion> assertions = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            ObjectConstant bnode = TERM_FACTORY.getConstantBNode("b" + i);
+            assertions.add(OntologyBuilderImpl.createClassAssertion(person, individual(i)));
+            assertions.add(OntologyBuilderImpl.createObjectPropertyAssertion(knows, individual(i), individual(i + 1)));
+            assertions.add(OntologyBuilderImpl.createDataPropertyAssertion(name, individual(i),
+                    TERM_FACTORY.getConstantLiteral("name" + i, XSD.STRING)));
+            assertions.add(OntologyBuilderImpl.createClassAssertion(person, bnode));
+            assertions.add(OntologyBuilderImpl.createDataPropertyAssertion(age, individual(i),
+                    TERM_FACTORY.getConstantLiteral(String.valueOf(20 + i), XSD.INT)));
+            assertions.add(OntologyBuilderImpl.createObjectPropertyAssertion(knows, bnode, individual(i)));
+            assertions.add(OntologyBuilderImpl.createDataPropertyAssertion(name, individual(i),
+                    TERM_FACTORY.getConstantLiteral("nom" + i, "fr")));
+        }
+
+        assertEquals(assertions.size(), manager.insertData(conn, assertions.iterator(), 7, BATCH_LIMIT));
+
+        assertEquals(2 * n, count("QUEST_CLASS_ASSERTION"));
+        assertEquals(n, countWhere("QUEST_CLASS_ASSERTION", "ISBNODE"));
+        assertEquals(2 * n, count("QUEST_OBJECT_PROPERTY_ASSERTION"));
+        assertEquals(n, countWhere("QUEST_OBJECT_PROPERTY_ASSERTION", "ISBNODE"));
+        assertEquals(n, count("QUEST_DATA_PROPERTY_STRING_ASSERTION"));
+        assertEquals(n, count("QUEST_DATA_PROPERTY_INT_ASSERTION"));
+        assertEquals(n, count("QUEST_DATA_PROPERTY_LITERAL_ASSERTION"));
+        // individuals 0..n and the blank nodes
+        assertEquals(2 * n + 1, count("URIID"));
+
+        // each row refers to the id of its own individual
+        assertEquals(ImmutableMultiset.of("name3"), ImmutableMultiset.copyOf(select(
+                "SELECT S.VAL FROM QUEST_DATA_PROPERTY_STRING_ASSERTION S JOIN URIID U ON S.\"URI\" = U.ID " +
+                        "WHERE U.URI = '" + PREFIX + "i3'")));
+        assertEquals(ImmutableMultiset.of("25"), ImmutableMultiset.copyOf(select(
+                "SELECT D.VAL FROM QUEST_DATA_PROPERTY_INT_ASSERTION D JOIN URIID U ON D.\"URI\" = U.ID " +
+                        "WHERE U.URI = '" + PREFIX + "i5'")));
+    }
+
+    /**
+     * An object property assertion with two new URIs when the URI buffer has a single free row
+     */
+    @Test
+    public void testTwoNewURIsAtFlushBoundary() throws Exception {
+        List<Assertion> assertions = new ArrayList<>();
+        assertions.add(OntologyBuilderImpl.createClassAssertion(person, individual(0)));
+        assertions.add(OntologyBuilderImpl.createClassAssertion(person, individual(1)));
+        assertions.add(OntologyBuilderImpl.createObjectPropertyAssertion(knows, individual(2), individual(3)));
+        assertions.add(OntologyBuilderImpl.createObjectPropertyAssertion(knows, individual(3), individual(0)));
+
+        assertEquals(assertions.size(), manager.insertData(conn, assertions.iterator(), 100, BATCH_LIMIT));
+        assertEquals(4, count("URIID"));
+        assertEquals(ImmutableMultiset.of("i2 i3", "i3 i0"), ImmutableMultiset.copyOf(selectKnows()));
+    }
+
+    /**
+     * Each object property assertion with new URIs fills the URI buffer more than once
+     */
+    @Test
+    public void testSingleRowBatches() throws Exception {
+        List<Assertion> assertions = new ArrayList<>();
+        for (int i = 0; i < 5; i++)
+            assertions.add(OntologyBuilderImpl.createObjectPropertyAssertion(knows, individual(2 * i),
+                    individual(2 * i + 1)));
+
+        assertEquals(assertions.size(), manager.insertData(conn, assertions.iterator(), 2, 1));
+        assertEquals(10, count("URIID"));
+        assertEquals(ImmutableMultiset.of("i0 i1", "i2 i3", "i4 i5", "i6 i7", "i8 i9"),
+                ImmutableMultiset.copyOf(selectKnows()));
+    }
+
+    /**
+     * Both URIs of the object property assertions are resolved by URIID
+     */
+    private List<String> selectKnows() throws SQLException {
+        return select("SELECT SUBSTRING(U1.URI, " + (PREFIX.length() + 1) + ") || ' ' || " +
+                "SUBSTRING(U2.URI, " + (PREFIX.length() + 1) + ") FROM QUEST_OBJECT_PROPERTY_ASSERTION R " +
+                "JOIN URIID U1 ON R.\"URI1\" = U1.ID JOIN URIID U2 ON R.\"URI2\" = U2.ID");
+    }
+
+    private static ObjectConstant individual(int i) {
+        return TERM_FACTORY.getConstantIRI(RDF_FACTORY.createIRI(PREFIX + "i" + i));
+    }
+
+    private List<String> select(String query) throws SQLException {
+        List<String> values = new ArrayList<>();
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(query)) {
+            while (rs.next())
+                values.add(rs.getString(1));
+        }
+        return values;
+    }
+
+    private int count(String table) throws SQLException {
+        return Integer.parseInt(select("SELECT COUNT(*) FROM " + table).get(0));
+    }
+
+    private int countWhere(String table, String condition) throws SQLException {
+        return Integer.parseInt(select("SELECT COUNT(*) FROM " + table + " WHERE " + condition).get(0));
+    }
+}
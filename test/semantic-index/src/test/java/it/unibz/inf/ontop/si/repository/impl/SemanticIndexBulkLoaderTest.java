@@ -0,0 +1,191 @@
+package it.unibz.inf.ontop.si.repository.impl;
+
+import com.google.common.collect.ImmutableList;
+import it.unibz.inf.ontop.si.SemanticIndexException;
+import it.unibz.inf.ontop.spec.ontology.*;
+import it.unibz.inf.ontop.spec.ontology.impl.OntologyBuilderImpl;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.ResultSet;
+import java.util.Iterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static it.unibz.inf.ontop.utils.SITestingTools.*;
+import static org.junit.Assert.*;
+
+public class SemanticIndexBulkLoaderTest {
+
+    private static final String PREFIX = "http://example.org/voc#";
+
+    private static final ClassifiedTBox TBOX;
+    private static final OClass PERSON;
+
+    static {
+        OntologyBuilder builder = OntologyBuilderImpl.builder(RDF_FACTORY);
+        PERSON = builder.declareClass(PREFIX + "Person");
+        TBOX = builder.build().tbox();
+    }
+
+    private static final Function<Integer, Assertion> CONVERTER = i -> {
+        try {
+            return OntologyBuilderImpl.createClassAssertion(PERSON,
+                    TERM_FACTORY.getConstantIRI(RDF_FACTORY.createIRI(PREFIX + "i" + i)));
+        }
+        catch (InconsistentOntologyException e) {
+            throw new IllegalStateException(e);
+        }
+    };
+
+    @Test
+    public void testLoading() throws Exception {
+        SIRepository repository = new SIRepository(TBOX, TERM_FACTORY, TYPE_FACTORY, TARGET_ATOM_FACTORY);
+        try (Connection conn = repository.createConnection();
+             SemanticIndexBulkLoader loader = new SemanticIndexBulkLoader(repository, conn, 2)) {
+            for (int i = 0; i < 10; i++)
+                loader.submit(ImmutableList.of(3 * i, 3 * i + 1, 3 * i + 2), CONVERTER);
+            assertEquals(30, loader.finish());
+
+            try (Statement st = conn.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM QUEST_CLASS_ASSERTION")) {
+                assertTrue(rs.next());
+                assertEquals(30, rs.getInt(1));
+            }
+        }
+    }
+
+    /**
+     * The failure of the writer is reported by finish()
+     */
+    @Test(timeout = 10000)
+    public void testWriterFailure() throws Exception {
+        SIRepository repository = new SIRepository(TBOX, TERM_FACTORY, TYPE_FACTORY, TARGET_ATOM_FACTORY) {
+            @Override
+            public int insertData(Connection connection, Iterator<Assertion> iterator) throws SQLException {
+                throw new SQLException("Insertion failure");
+            }
+        };
+        try (SemanticIndexBulkLoader loader = new SemanticIndexBulkLoader(repository, null, 1)) {
+            loader.submit(ImmutableList.of(1, 2), CONVERTER);
+            try {
+                loader.finish();
+                fail("The failure of the writer must be reported");
+            }
+            catch (SemanticIndexException e) {
+                assertTrue(e.getMessage().contains("Insertion failure"));
+            }
+        }
+    }
+
+    /**
+     * Neither the producers nor finish() are blocked after an Error in the writer
+     */
+    @Test(timeout = 10000)
+    public void testWriterError() throws Exception {
+        AtomicInteger insertionCount = new AtomicInteger();
+        SIRepository repository = new SIRepository(TBOX, TERM_FACTORY, TYPE_FACTORY, TARGET_ATOM_FACTORY) {
+            @Override
+            public int insertData(Connection connection, Iterator<Assertion> iterator) {
+                insertionCount.incrementAndGet();
+                throw new AssertionError("Writer error");
+            }
+        };
+        try (SemanticIndexBulkLoader loader = new SemanticIndexBulkLoader(repository, null, 1)) {
+            int submitted = 0;
+            try {
+                // many more batches than the queue capacity
+                for (; submitted < 100; submitted++)
+                    loader.submit(ImmutableList.of(submitted), CONVERTER);
+            }
+            catch (SemanticIndexException e) {
+                // the failure is reported to the producers
+                assertTrue(e.getMessage().contains("Writer error"));
+            }
+            assertTrue(submitted > 0);
+
+            try {
+                loader.finish();
+                fail("The error of the writer must be reported");
+            }
+            catch (SemanticIndexException e) {
+                assertTrue(e.getMessage().contains("Writer error"));
+            }
+        }
+        assertEquals(1, insertionCount.get());
+    }
+
+    /**
+     * The conversion failures are reported by finish()
+     */
+    @Test(timeout = 10000)
+    public void testConversionFailure() throws Exception {
+        SIRepository repository = new SIRepository(TBOX, TERM_FACTORY, TYPE_FACTORY, TARGET_ATOM_FACTORY);
+        try (Connection conn = repository.createConnection();
+             SemanticIndexBulkLoader loader = new SemanticIndexBulkLoader(repository, conn, 1)) {
+            loader.submit(ImmutableList.of(1, 2), i -> {
+                throw new IllegalArgumentException("Conversion failure");
+            });
+            try {
+                loader.finish();
+                fail("The conversion failure must be reported");
+            }
+            catch (SemanticIndexException e) {
+                assertTrue(e.getMessage().contains("Conversion failure"));
+            }
+        }
+    }
+
+    /**
+     * Without finish(), close() discards the batches that are not inserted yet
+     */
+    @Test(timeout = 10000)
+    public void testCloseWithoutFinish() throws Exception {
+        CountDownLatch insertionStarted = new CountDownLatch(1);
+        CountDownLatch insertionAllowed = new CountDownLatch(1);
+        AtomicInteger insertionCount = new AtomicInteger();
+        SIRepository repository = new SIRepository(TBOX, TERM_FACTORY, TYPE_FACTORY, TARGET_ATOM_FACTORY) {
+            @Override
+            public int insertData(Connection connection, Iterator<Assertion> iterator) {
+                insertionCount.incrementAndGet();
+                insertionStarted.countDown();
+                try {
+                    insertionAllowed.await();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return 1;
+            }
+        };
+
+        SemanticIndexBulkLoader loader = new SemanticIndexBulkLoader(repository, null, 4);
+        loader.submit(ImmutableList.of(0), CONVERTER);
+        // the writer is blocked in the insertion of the first batch
+        insertionStarted.await();
+        for (int i = 1; i < 4; i++)
+            loader.submit(ImmutableList.of(i), CONVERTER);
+
+        Thread closer = new Thread(() -> {
+            try {
+                loader.close();
+            }
+            catch (SemanticIndexException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        closer.start();
+        // waits for the writer (after discarding the pending batches)
+        while (closer.getState() != Thread.State.WAITING)
+            Thread.sleep(10);
+
+        insertionAllowed.countDown();
+        closer.join();
+
+        assertEquals(1, insertionCount.get());
+        assertEquals(1, loader.getInsertedCount());
+    }
+}
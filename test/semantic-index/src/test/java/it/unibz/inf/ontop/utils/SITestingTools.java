@@ -2,15 +2,19 @@ package it.unibz.inf.ontop.utils;
 
 import com.google.inject.Injector;
 import it.unibz.inf.ontop.injection.OntopModelConfiguration;
+import it.unibz.inf.ontop.model.atom.TargetAtomFactory;
 import it.unibz.inf.ontop.model.term.TermFactory;
 import it.unibz.inf.ontop.model.type.TypeFactory;
 import it.unibz.inf.ontop.spec.ontology.owlapi.OWLAPITranslatorOWL2QL;
+import org.apache.commons.rdf.api.RDF;
 
 public class SITestingTools {
 
     public static final OWLAPITranslatorOWL2QL OWLAPI_TRANSLATOR;
     public static final TermFactory TERM_FACTORY;
     public static final TypeFactory TYPE_FACTORY;
+    public static final TargetAtomFactory TARGET_ATOM_FACTORY;
+    public static final RDF RDF_FACTORY;
 
     static {
         OntopModelConfiguration defaultConfiguration = OntopModelConfiguration.defaultBuilder().build();
@@ -19,5 +23,7 @@ public class SITestingTools {
         OWLAPI_TRANSLATOR = injector.getInstance(OWLAPITranslatorOWL2QL.class);
         TERM_FACTORY = injector.getInstance(TermFactory.class);
         TYPE_FACTORY = injector.getInstance(TypeFactory.class);
+        TARGET_ATOM_FACTORY = injector.getInstance(TargetAtomFactory.class);
+        RDF_FACTORY = injector.getInstance(RDF.class);
     }
 }